@@ -0,0 +1,77 @@
+# Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+
+import os
+import time
+from concurrent.futures import ThreadPoolExecutor
+
+# each task blocks on I/O, so the pool only scales if blocking calls give up the GIL
+WORKERS = 8
+data = b"x" * 1024
+
+
+def pipe_roundtrip(n):
+    r, w = os.pipe()
+    try:
+        total = 0
+        for i in range(n):
+            os.write(w, data)
+            total += len(os.read(r, len(data)))
+        return total
+    finally:
+        os.close(r)
+        os.close(w)
+
+
+def sleeper(n):
+    time.sleep(0.001 * n)
+    return n
+
+
+def measure(num):
+    with ThreadPoolExecutor(max_workers=WORKERS) as pool:
+        for i in range(num):
+            futures = [pool.submit(sleeper, 5) for _ in range(WORKERS)]
+            futures += [pool.submit(pipe_roundtrip, 100) for _ in range(WORKERS)]
+            result = sum(f.result() for f in futures)
+    print(result)
+
+
+def __benchmark__(num=20):
+    measure(num)
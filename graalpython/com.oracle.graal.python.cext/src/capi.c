@@ -54,6 +54,14 @@ uint64_t (*PY_TRUFFLE_CEXT_LANDING_L)(void* name, ...);
 double (*PY_TRUFFLE_CEXT_LANDING_D)(void* name, ...);
 void* (*PY_TRUFFLE_CEXT_LANDING_PTR)(void* name, ...);
 
+void* upcall_table[UPCALL_TABLE_SIZE];
+
+static const char* upcall_table_names[UPCALL_TABLE_SIZE] = {
+    [UPCALL_to_char_pointer] = "to_char_pointer",
+    [UPCALL_to_long] = "to_long",
+    [UPCALL_to_double] = "to_double",
+    [UPCALL_PyLong_AsPrimitive] = "PyLong_AsPrimitive",
+};
 
 cache_t cache;
 
@@ -71,6 +79,10 @@ static void initialize_upcall_functions() {
     PY_TRUFFLE_CEXT_LANDING_D = ((double (*)(void* name, ...))polyglot_get_member(PY_TRUFFLE_CEXT, polyglot_from_string("PyTruffle_Cext_Upcall_d", SRC_CS)));
     PY_TRUFFLE_CEXT_LANDING_PTR = ((void* (*)(void* name, ...))polyglot_get_member(PY_TRUFFLE_CEXT, polyglot_from_string("PyTruffle_Cext_Upcall_ptr", SRC_CS)));
 
+    for (int i = 0; i < UPCALL_TABLE_SIZE; i++) {
+        upcall_table[i] = polyglot_get_member(PY_TRUFFLE_CEXT, polyglot_from_string(upcall_table_names[i], SRC_CS));
+    }
+
     Py_NoValue = UPCALL_CEXT_O(polyglot_from_string("Py_NoValue", SRC_CS));
 }
 
@@ -199,6 +211,7 @@ static void initialize_bufferprocs() {
     polyglot_invoke(PY_TRUFFLE_CEXT, "PyTruffle_SetBufferProcs", native_to_java((PyObject*)&PyBytes_Type), (getbufferproc)bytes_buffer_getbuffer, (releasebufferproc)NULL);
     polyglot_invoke(PY_TRUFFLE_CEXT, "PyTruffle_SetBufferProcs", native_to_java((PyObject*)&PyByteArray_Type), (getbufferproc)bytearray_getbuffer, (releasebufferproc)NULL);
     polyglot_invoke(PY_TRUFFLE_CEXT, "PyTruffle_SetBufferProcs", native_to_java((PyObject*)&PyBuffer_Type), (getbufferproc)bufferdecorator_getbuffer, (releasebufferproc)NULL);
+    polyglot_invoke(PY_TRUFFLE_CEXT, "PyTruffle_SetBufferProcs", native_to_java((PyObject*)&PyMemoryView_Type), (getbufferproc)memoryview_getbuffer, (releasebufferproc)memoryview_releasebuffer);
 }
 
 __attribute__((constructor (20000)))
@@ -142,15 +142,28 @@ extern void* (*PY_TRUFFLE_CEXT_LANDING_PTR)(void* name, ...);
        _jls_ ## name = polyglot_get_member(PY_TRUFFLE_CEXT, polyglot_from_string(#name, SRC_CS)); \
     }
 
-#define as_char_pointer(obj) ((const char*)UPCALL_CEXT_PTR(polyglot_from_string("to_char_pointer", "ascii"), native_to_java(obj)))
-#define as_long(obj) ((long)polyglot_as_i64(polyglot_invoke(PY_TRUFFLE_CEXT, "to_long", to_java(obj))))
-#define as_long_long(obj) ((long long)polyglot_as_i64(polyglot_invoke(PY_TRUFFLE_CEXT, "PyLong_AsPrimitive", to_java(obj), 1, sizeof(long long))))
-#define as_unsigned_long_long(obj) ((unsigned long long)polyglot_as_i64(polyglot_invoke(PY_TRUFFLE_CEXT, "PyLong_AsPrimitive", to_java(obj), 0, sizeof(unsigned long long))))
+/* Entry points of 'python_cext' that are used by the conversion macros below. They are resolved once
+   in 'initialize_upcall_functions' so that the macros do not look up the function by name per call. */
+typedef enum {
+    UPCALL_to_char_pointer,
+    UPCALL_to_long,
+    UPCALL_to_double,
+    UPCALL_PyLong_AsPrimitive,
+    UPCALL_TABLE_SIZE
+} upcall_table_index_t;
+extern void* upcall_table[UPCALL_TABLE_SIZE];
+
+#define UPCALL_TABLE(name) (upcall_table[UPCALL_ ## name])
+
+#define as_char_pointer(obj) ((const char*)UPCALL_CEXT_PTR(UPCALL_TABLE(to_char_pointer), native_to_java(obj)))
+#define as_long(obj) ((long)polyglot_as_i64(((void*(*)(void*))UPCALL_TABLE(to_long))(to_java(obj))))
+#define as_long_long(obj) ((long long)polyglot_as_i64(((void*(*)(void*, int, size_t))UPCALL_TABLE(PyLong_AsPrimitive))(to_java(obj), 1, sizeof(long long))))
+#define as_unsigned_long_long(obj) ((unsigned long long)polyglot_as_i64(((void*(*)(void*, int, size_t))UPCALL_TABLE(PyLong_AsPrimitive))(to_java(obj), 0, sizeof(unsigned long long))))
 #define as_int(obj) ((int)as_long(obj))
 #define as_short(obj) ((short)as_long(obj))
 #define as_uchar(obj) ((unsigned char)as_long(obj))
 #define as_char(obj) ((char)as_long(obj))
-#define as_double(obj) polyglot_as_double(polyglot_invoke(PY_TRUFFLE_CEXT, "to_double", to_java(obj)))
+#define as_double(obj) polyglot_as_double(((void*(*)(void*))UPCALL_TABLE(to_double))(to_java(obj)))
 #define as_float(obj) ((float)as_double(obj))
 
 typedef void* (*cache_t)(uint64_t);
@@ -315,5 +328,7 @@ int bytes_copy2mem(char* target, char* source, size_t nbytes);
 
 /* MEMORYVIEW, BUFFERDECORATOR */
 int bufferdecorator_getbuffer(PyBufferDecorator *self, Py_buffer *view, int flags);
+int memoryview_getbuffer(PyObject *self, Py_buffer *view, int flags);
+void memoryview_releasebuffer(PyObject *self, Py_buffer *view);
 
 #endif
@@ -46,3 +46,159 @@ PyTypeObject PyBuffer_Type = PY_TRUFFLE_TYPE("buffer", &PyType_Type, Py_TPFLAGS_
 int bufferdecorator_getbuffer(PyBufferDecorator *self, Py_buffer *view, int flags) {
     return PyBuffer_FillInfo(view, (PyObject*)self, polyglot_get_member(self, "buf_delegate"), PyObject_Size((PyObject *)self) * sizeof(PyObject*), self->readonly, flags);
 }
+
+/*
+ * Memoryview objects are implemented in Java. A view is exported by pointing into the buffer of
+ * the exporting object at the view's offset and describing the items by the view's own format,
+ * shape and strides. A non-contiguous view requested by a consumer that cannot handle strides,
+ * or a view of an exporter without a native buffer, is exported as a read-only copy.
+ */
+typedef struct {
+    Py_buffer obj_view;
+    Py_ssize_t shape[PyBUF_MAX_NDIM];
+    Py_ssize_t strides[PyBUF_MAX_NDIM];
+    char format[1];
+} MemoryViewExport;
+
+static int memoryview_get_ssize_array(PyObject *self, const char *name, Py_ssize_t *dest, int ndim) {
+    PyObject *tuple;
+    int i;
+
+    tuple = PyObject_GetAttrString(self, name);
+    if (tuple == NULL) {
+        return -1;
+    }
+    for (i = 0; i < ndim; i++) {
+        dest[i] = PyLong_AsSsize_t(PyTuple_GetItem(tuple, i));
+    }
+    Py_DECREF(tuple);
+    return PyErr_Occurred() ? -1 : 0;
+}
+
+static Py_ssize_t memoryview_get_ssize(PyObject *self, const char *name) {
+    PyObject *value;
+    Py_ssize_t result;
+
+    value = PyObject_GetAttrString(self, name);
+    if (value == NULL) {
+        return -1;
+    }
+    result = PyLong_AsSsize_t(value);
+    Py_DECREF(value);
+    return result;
+}
+
+static int memoryview_getbuffer_copy(PyObject *self, Py_buffer *view, int flags) {
+    PyObject *copy;
+
+    if ((flags & PyBUF_WRITABLE) == PyBUF_WRITABLE) {
+        PyErr_SetString(PyExc_BufferError, "memoryview: underlying buffer is not C-contiguous");
+        return -1;
+    }
+    copy = PyObject_CallMethod(self, "tobytes", NULL);
+    if (copy == NULL) {
+        return -1;
+    }
+    if (PyObject_GetBuffer(copy, view, flags) != 0) {
+        Py_DECREF(copy);
+        return -1;
+    }
+    Py_DECREF(copy);
+    return 0;
+}
+
+int memoryview_getbuffer(PyObject *self, Py_buffer *view, int flags) {
+    PyObject *obj, *format;
+    MemoryViewExport *export;
+    const char *format_str;
+    Py_ssize_t ndim, itemsize, len, readonly, c_contiguous;
+
+    readonly = memoryview_get_ssize(self, "readonly");
+    if (readonly < 0) {
+        return -1;
+    }
+    if ((flags & PyBUF_WRITABLE) == PyBUF_WRITABLE && readonly) {
+        PyErr_SetString(PyExc_BufferError, "memoryview: underlying buffer is not writable");
+        return -1;
+    }
+    c_contiguous = memoryview_get_ssize(self, "c_contiguous");
+    if (c_contiguous < 0) {
+        return -1;
+    }
+    if (!c_contiguous && (flags & PyBUF_STRIDES) != PyBUF_STRIDES) {
+        return memoryview_getbuffer_copy(self, view, flags);
+    }
+    ndim = memoryview_get_ssize(self, "ndim");
+    itemsize = memoryview_get_ssize(self, "itemsize");
+    len = memoryview_get_ssize(self, "nbytes");
+    if (ndim < 0 || itemsize < 0 || len < 0) {
+        return -1;
+    }
+    format = PyObject_GetAttrString(self, "format");
+    if (format == NULL) {
+        return -1;
+    }
+    format_str = PyUnicode_AsUTF8(format);
+    if (format_str == NULL) {
+        Py_DECREF(format);
+        return -1;
+    }
+    export = (MemoryViewExport *) malloc(sizeof(MemoryViewExport) + strlen(format_str));
+    if (export == NULL) {
+        Py_DECREF(format);
+        PyErr_NoMemory();
+        return -1;
+    }
+    strcpy(export->format, format_str);
+    Py_DECREF(format);
+    if (memoryview_get_ssize_array(self, "shape", export->shape, ndim) != 0 ||
+            memoryview_get_ssize_array(self, "strides", export->strides, ndim) != 0) {
+        free(export);
+        return -1;
+    }
+
+    obj = PyObject_GetAttrString(self, "obj");
+    if (obj == NULL) {
+        free(export);
+        return -1;
+    }
+    if (PyObject_GetBuffer(obj, &export->obj_view, readonly ? PyBUF_SIMPLE : PyBUF_WRITABLE) != 0) {
+        /* the exporter has no native buffer (e.g. 'array.array'), so fall back to a copy */
+        Py_DECREF(obj);
+        free(export);
+        if ((flags & PyBUF_WRITABLE) == PyBUF_WRITABLE) {
+            return -1;
+        }
+        PyErr_Clear();
+        return memoryview_getbuffer_copy(self, view, flags);
+    }
+    Py_DECREF(obj);
+
+    view->obj = self;
+    Py_INCREF(self);
+    view->buf = (char *) export->obj_view.buf + polyglot_as_i64(polyglot_get_member(self, "mv_offset"));
+    view->len = len;
+    view->readonly = readonly;
+    view->itemsize = itemsize;
+    view->format = (flags & PyBUF_FORMAT) == PyBUF_FORMAT ? export->format : NULL;
+    if ((flags & PyBUF_ND) == PyBUF_ND) {
+        view->ndim = ndim;
+        view->shape = export->shape;
+    } else {
+        view->ndim = 1;
+        view->shape = NULL;
+    }
+    view->strides = (flags & PyBUF_STRIDES) == PyBUF_STRIDES ? export->strides : NULL;
+    view->suboffsets = NULL;
+    view->internal = export;
+    return 0;
+}
+
+void memoryview_releasebuffer(PyObject *self, Py_buffer *view) {
+    MemoryViewExport *export = (MemoryViewExport *) view->internal;
+    if (export != NULL) {
+        PyBuffer_Release(&export->obj_view);
+        free(export);
+        view->internal = NULL;
+    }
+}
@@ -73,6 +73,7 @@ public class GraalPythonMain extends AbstractLanguageLauncher {
     private boolean stdinIsInteractive = System.console() != null;
     private boolean runLLI = false;
     private boolean unbufferedIO = false;
+    private boolean dontWriteBytecode = false;
     private VersionAction versionAction = VersionAction.None;
     private String sulongLibraryPath = null;
     private List<String> givenArguments;
@@ -92,6 +93,7 @@ public class GraalPythonMain extends AbstractLanguageLauncher {
             String arg = arguments.get(i);
             switch (arg) {
                 case "-B":
+                    dontWriteBytecode = true;
                     break;
                 case "-c":
                     i += 1;
@@ -392,6 +394,11 @@ public class GraalPythonMain extends AbstractLanguageLauncher {
             noUserSite = noUserSite || System.getenv("PYTHONNOUSERSITE") != null;
             verboseFlag = verboseFlag || System.getenv("PYTHONVERBOSE") != null;
             unbufferedIO = unbufferedIO || System.getenv("PYTHONUNBUFFERED") != null;
+            dontWriteBytecode = dontWriteBytecode || System.getenv("PYTHONDONTWRITEBYTECODE") != null;
+            String pycachePrefix = System.getenv("PYTHONPYCACHEPREFIX");
+            if (pycachePrefix != null) {
+                contextBuilder.option("python.PyCachePrefix", pycachePrefix);
+            }
         }
 
         String executable = getContextOptionIfSetViaCommandLine("python.Executable");
@@ -418,6 +425,7 @@ public class GraalPythonMain extends AbstractLanguageLauncher {
         contextBuilder.option("python.NoSiteFlag", Boolean.toString(noSite));
         contextBuilder.option("python.IgnoreEnvironmentFlag", Boolean.toString(ignoreEnv));
         contextBuilder.option("python.UnbufferedIO", Boolean.toString(unbufferedIO));
+        contextBuilder.option("python.DontWriteBytecodeFlag", Boolean.toString(dontWriteBytecode));
 
         sulongLibraryPath = System.getenv("SULONG_LIBRARY_PATH");
         if (sulongLibraryPath != null) {
@@ -556,8 +564,8 @@ public class GraalPythonMain extends AbstractLanguageLauncher {
     protected void printHelp(OptionCategory maxCategory) {
         print("usage: python [option] ... (-c cmd | file) [arg] ...\n" +
                         "Options and arguments (and corresponding environment variables):\n" +
-                        "-B     : on CPython, this disables writing .py[co] files on import;\n" +
-                        "         GraalPython does not use bytecode, and thus this flag has no effect\n" +
+                        "-B     : don't write parse tree caches (GraalPython's .pyc) on import;\n" +
+                        "         also PYTHONDONTWRITEBYTECODE=x\n" +
                         "-c cmd : program passed in as string (terminates option list)\n" +
                         // "-d : debug output from parser; also PYTHONDEBUG=x\n" +
                         "-E     : ignore PYTHON* environment variables (such as PYTHONPATH)\n" +
@@ -605,6 +613,8 @@ public class GraalPythonMain extends AbstractLanguageLauncher {
                         "               The default module search path uses <prefix>/pythonX.X.\n" +
                         "PYTHONCASEOK : ignore case in 'import' statements (Windows).\n" +
                         "PYTHONIOENCODING: Encoding[:errors] used for stdin/stdout/stderr.\n" +
+                        "PYTHONPYCACHEPREFIX: root directory for the parse tree caches instead of\n" +
+                        "   __pycache__ directories next to the sources.\n" +
                         "PYTHONHASHSEED: if this variable is set to 'random', the effect is the same\n" +
                         "   as specifying the -R option: a random value is used to seed the hashes of\n" +
                         "   str, bytes and datetime objects.  It can also be set to an integer\n" +
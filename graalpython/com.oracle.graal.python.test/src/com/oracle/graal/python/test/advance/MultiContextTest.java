@@ -40,11 +40,23 @@
  */
 package com.oracle.graal.python.test.advance;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
 import org.graalvm.polyglot.Context;
 import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.Source;
 import org.junit.Test;
 
+import com.oracle.graal.python.PythonLanguage;
+import com.oracle.graal.python.builtins.objects.function.PFunction;
+import com.oracle.graal.python.builtins.objects.module.PythonModule;
 import com.oracle.graal.python.test.PythonTests;
+import com.oracle.truffle.api.RootCallTarget;
 
 public class MultiContextTest extends PythonTests {
     @Test
@@ -57,6 +69,89 @@ public class MultiContextTest extends PythonTests {
         }
     }
 
+    @Test
+    public void testSharedMainSource() throws IOException {
+        File file = File.createTempFile("shared_main", ".py");
+        file.deleteOnExit();
+        Files.write(file.toPath(), "__file__".getBytes());
+        Source source = Source.newBuilder("python", file).build();
+        Engine engine = Engine.newBuilder().build();
+        for (int i = 0; i < 3; i++) {
+            try (Context context = newContext(engine)) {
+                assertEquals(file.getPath(), context.eval(source).asString());
+            }
+        }
+    }
+
+    @Test
+    public void testSharedModuleCode() throws IOException {
+        File dir = Files.createTempDirectory("shared_modules").toFile();
+        File module = new File(dir, "shared_module.py");
+        dir.deleteOnExit();
+        module.deleteOnExit();
+        Files.write(module.toPath(), "counter = 0\ndef incr():\n    global counter\n    counter += 1\n    return counter\n".getBytes());
+        Engine engine = Engine.newBuilder().build();
+        RootCallTarget sharedCallTarget = null;
+        for (int i = 0; i < 3; i++) {
+            try (Context context = newContext(engine)) {
+                context.eval("python", "import sys; sys.path.insert(0, '" + dir.getPath() + "'); import shared_module");
+                assertEquals(1, context.eval("python", "shared_module.incr()").asInt());
+                assertEquals(2, context.eval("python", "shared_module.incr()").asInt());
+                // the function comes from the same parse in every context
+                RootCallTarget callTarget = getFunctionCallTarget(context, "shared_module", "incr");
+                if (sharedCallTarget == null) {
+                    sharedCallTarget = callTarget;
+                } else {
+                    assertSame(sharedCallTarget, callTarget);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMainFilePerSource() throws IOException {
+        File first = File.createTempFile("first_main", ".py");
+        File second = File.createTempFile("second_main", ".py");
+        first.deleteOnExit();
+        second.deleteOnExit();
+        Files.write(first.toPath(), "__file__".getBytes());
+        Files.write(second.toPath(), "__file__".getBytes());
+        Source firstSource = Source.newBuilder("python", first).build();
+        Source secondSource = Source.newBuilder("python", second).build();
+        try (Context context = newContext(Engine.newBuilder().build())) {
+            assertEquals(first.getPath(), context.eval(firstSource).asString());
+            assertEquals(first.getPath(), context.eval(firstSource).asString());
+            assertEquals(second.getPath(), context.eval(secondSource).asString());
+            assertEquals(first.getPath(), context.eval(firstSource).asString());
+        }
+    }
+
+    @Test
+    public void testChangedModuleCode() throws IOException {
+        File dir = Files.createTempDirectory("changed_modules").toFile();
+        File module = new File(dir, "changed_module.py");
+        dir.deleteOnExit();
+        module.deleteOnExit();
+        Engine engine = Engine.newBuilder().build();
+        for (int i = 0; i < 3; i++) {
+            Files.write(module.toPath(), ("version = " + i + "\n").getBytes());
+            try (Context context = newContext(engine)) {
+                context.eval("python", "import sys; sys.path.insert(0, '" + dir.getPath() + "'); import changed_module");
+                assertEquals(i, context.eval("python", "changed_module.version").asInt());
+            }
+        }
+    }
+
+    private static RootCallTarget getFunctionCallTarget(Context context, String moduleName, String functionName) {
+        context.enter();
+        try {
+            PythonModule module = (PythonModule) PythonLanguage.getContextRef().get().getSysModules().getItem(moduleName);
+            return ((PFunction) module.getAttribute(functionName)).getCallTarget();
+        } finally {
+            context.leave();
+        }
+    }
+
     private static Context newContext(Engine engine) {
         return Context.newBuilder().allowAllAccess(true).engine(engine).build();
     }
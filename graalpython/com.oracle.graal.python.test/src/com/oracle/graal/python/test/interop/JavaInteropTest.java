@@ -51,6 +51,8 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import com.oracle.graal.python.runtime.interop.InteropArray;
 import com.oracle.graal.python.test.PythonTests;
@@ -241,6 +243,18 @@ public class JavaInteropTest {
             assertEquals("Hello World\n", out.toString("UTF-8"));
         }
 
+        @Test
+        public void threadsRunAfterEvalReturns() throws InterruptedException {
+            String source = "import _thread\n" +
+                            "def start(latch):\n" +
+                            "    _thread.start_new_thread(latch.countDown, ())\n\n";
+            context.eval(Source.create("python", source));
+            CountDownLatch latch = new CountDownLatch(1);
+            context.getBindings("python").getMember("start").execute(latch);
+            // the host thread left the context, so it must not keep the GIL
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        }
+
         @Test
         public void testMultipleInvocationsAreInSameScope() throws UnsupportedEncodingException {
             String source = "def foo(a, b):\n" +
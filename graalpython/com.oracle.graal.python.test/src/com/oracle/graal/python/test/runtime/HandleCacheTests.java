@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.test.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oracle.graal.python.PythonLanguage;
+import com.oracle.graal.python.builtins.objects.cext.HandleCache;
+import com.oracle.graal.python.test.PythonTests;
+import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.interop.InteropException;
+import com.oracle.truffle.api.interop.InteropLibrary;
+import com.oracle.truffle.api.interop.TruffleObject;
+import com.oracle.truffle.api.library.ExportLibrary;
+import com.oracle.truffle.api.library.ExportMessage;
+import com.oracle.truffle.api.nodes.RootNode;
+
+public class HandleCacheTests {
+
+    /**
+     * Stands in for {@code truffle_managed_from_handle}: creates a new object for every call so
+     * that the tests can tell a cache hit from a fresh resolution.
+     */
+    @ExportLibrary(InteropLibrary.class)
+    static final class CountingResolver implements TruffleObject {
+        int calls;
+
+        @ExportMessage
+        @SuppressWarnings("static-method")
+        boolean isExecutable() {
+            return true;
+        }
+
+        @ExportMessage
+        @TruffleBoundary
+        Object execute(Object[] arguments) {
+            calls++;
+            return new String("object " + arguments[0]);
+        }
+    }
+
+    /** Resolves handles through a cached, adopted library like a call site in native code. */
+    private static final class ResolveRootNode extends RootNode {
+        @Child private InteropLibrary library = InteropLibrary.getFactory().createDispatched(1);
+
+        ResolveRootNode(PythonLanguage language) {
+            super(language);
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            try {
+                return library.execute(frame.getArguments()[0], frame.getArguments()[1]);
+            } catch (InteropException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    private CountingResolver resolver;
+    private HandleCache cache;
+    private CallTarget resolveCallTarget;
+
+    @Before
+    public void setUp() {
+        PythonTests.enterContext();
+        resolver = new CountingResolver();
+        cache = new HandleCache(resolver);
+        resolveCallTarget = Truffle.getRuntime().createCallTarget(new ResolveRootNode(PythonLanguage.getCurrent()));
+    }
+
+    @After
+    public void tearDown() {
+        PythonTests.closeContext();
+    }
+
+    private Object resolve(long handle) {
+        return resolveCallTarget.call(cache, handle);
+    }
+
+    private Object resolveUncached(long handle) throws InteropException {
+        return InteropLibrary.getFactory().getUncached().execute(cache, handle);
+    }
+
+    @Test
+    public void hit() {
+        Object first = resolve(8);
+        for (int i = 0; i < 5; i++) {
+            assertSame(first, resolve(8));
+        }
+        assertEquals(1, resolver.calls);
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getUsed());
+    }
+
+    @Test
+    public void miss() throws InteropException {
+        Object a = resolve(8);
+        Object b = resolve(16);
+        Object c = resolveUncached(24);
+        assertNotSame(a, b);
+        assertNotSame(b, c);
+        assertEquals(3, resolver.calls);
+        assertEquals(3, cache.getMisses());
+        assertEquals(3, cache.getUsed());
+        assertSame(c, resolve(24));
+        assertEquals(3, resolver.calls);
+    }
+
+    @Test
+    public void rehash() throws InteropException {
+        Object first = resolve(8);
+        List<Object> alive = new ArrayList<>();
+        int initialCapacity = cache.getCapacity();
+        for (long handle = 16; cache.getRehashes() == 0; handle += 8) {
+            alive.add(resolveUncached(handle));
+        }
+        assertTrue(cache.getCapacity() > initialCapacity);
+        int calls = resolver.calls;
+        // the call site cached the position of the first handle before the table was rehashed
+        assertSame(first, resolve(8));
+        assertSame(first, resolve(8));
+        for (int i = 0; i < alive.size(); i++) {
+            assertSame(alive.get(i), resolve(16 + 8 * i));
+        }
+        assertEquals(calls, resolver.calls);
+        assertEquals(0, cache.getReclaimed());
+    }
+
+    @Test
+    public void collectedObjectIsResolvedAgain() throws InteropException {
+        WeakReference<Object> ref = new WeakReference<>(resolve(8));
+        for (int i = 0; i < 100 && ref.get() != null; i++) {
+            System.gc();
+        }
+        if (ref.get() != null) {
+            // the collector did not cooperate; nothing to test
+            return;
+        }
+        Object again = resolve(8);
+        assertEquals(2, resolver.calls);
+        assertEquals(1, cache.getUsed());
+        assertSame(again, resolve(8));
+
+        // entries of dead objects are dropped when the table is rehashed
+        List<Object> alive = new ArrayList<>();
+        WeakReference<Object> dead = new WeakReference<>(resolveUncached(16));
+        for (int i = 0; i < 100 && dead.get() != null; i++) {
+            System.gc();
+        }
+        for (long handle = 24; cache.getRehashes() == 0; handle += 8) {
+            alive.add(resolveUncached(handle));
+        }
+        if (dead.get() == null) {
+            assertEquals(1, cache.getReclaimed());
+            assertEquals(alive.size() + 1, cache.getUsed());
+        }
+        assertSame(again, resolve(8));
+    }
+}
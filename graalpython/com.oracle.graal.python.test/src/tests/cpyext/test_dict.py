@@ -63,6 +63,16 @@ def _reference_set_item(args):
             return -1
 
 
+def _reference_get_item_no_error(args):
+    d = args[0]
+    if not isinstance(d, dict):
+        return None
+    try:
+        return d.get(args[1])
+    except TypeError:
+        return None
+
+
 def _reference_del_item(args):
     try:
         d = args[0]
@@ -131,6 +141,9 @@ class TestPyDict(CPyExtTestCase):
             , ({'a': "hello"}, "b", "world")
             # mappingproxy
             , (type(type.__dict__)({'a': "hello"}), "b", "world")
+            , (SubDict(), "a", "hello")
+            , ({}, ["unhashable"], "hello")
+            , ([], "a", "hello")
             ),
         resultspec="i",
         argspec='OOO',
@@ -141,7 +154,7 @@ class TestPyDict(CPyExtTestCase):
     # PyDict_GetItem
     test_PyDict_GetItem = CPyExtFunction(
         _reference_get_item,
-        lambda: (({}, "a", "dflt"), ({'a': "hello"}, "a", "dflt"), ({'a': "hello"}, "b", "dflt")),
+        lambda: (({}, "a", "dflt"), ({'a': "hello"}, "a", "dflt"), ({'a': "hello"}, "b", "dflt"), (SubDict(a="hello"), "a", "dflt")),
         code='''PyObject* wrap_PyDict_GetItem(PyObject* dict, PyObject* key, PyObject* defaultVal) {
             PyObject* result = PyDict_GetItem(dict, key);
             return result;
@@ -153,6 +166,33 @@ class TestPyDict(CPyExtTestCase):
         cmpfunc=unhandled_error_compare
     )
 
+    # PyDict_GetItem returns NULL for bad arguments and unhashable keys
+    test_PyDict_GetItemNoError = CPyExtFunction(
+        _reference_get_item_no_error,
+        lambda: (
+            ({'a': "hello"}, "a"),
+            ({'a': "hello"}, "b"),
+            ({'a': "hello"}, ["unhashable"]),
+            (["not a dict"], 0),
+        ),
+        code='''PyObject* wrap_PyDict_GetItemNoError(PyObject* dict, PyObject* key) {
+            PyObject* result = PyDict_GetItem(dict, key);
+            if (PyErr_Occurred() != NULL) {
+                /* PyDict_GetItem must suppress errors; let the leaked one fail the comparison */
+                return NULL;
+            }
+            if (result == NULL) {
+                return Py_None;
+            }
+            return result;
+        }''',
+        resultspec="O",
+        argspec='OO',
+        arguments=("PyObject* dict", "PyObject* key"),
+        callfunction="wrap_PyDict_GetItemNoError",
+        cmpfunc=unhandled_error_compare
+    )
+
     # PyDict_DelItem
     test_PyDict_DelItem = CPyExtFunction(
         _reference_del_item,
@@ -175,7 +215,7 @@ class TestPyDict(CPyExtTestCase):
     # PyDict_GetItemString
     test_PyDict_GetItemString = CPyExtFunctionOutVars(
         _reference_get_item,
-        lambda: (({}, "a", "dflt"), ({'a': "hello"}, "a", "dflt"), ({'a': "hello"}, "b", "dflt")),
+        lambda: (({}, "a", "dflt"), ({'a': "hello"}, "a", "dflt"), ({'a': "hello"}, "b", "dflt"), (SubDict(a="hello"), "a", "dflt")),
         code='''PyObject* wrap_PyDict_GetItemString(PyObject* dict, char* key, PyObject* defaultValue) {
             PyObject* result = PyDict_GetItemString(dict, key);
             if (result != NULL) {
@@ -131,6 +131,8 @@ class TestPyList(CPyExtTestCase):
         lambda: (
             ([1,2,3,4], 0),
             ([1,2,3,4], 3),
+            ([1,2,3,4], 4),
+            (DummyListSubclass([1,2]), 1),
             #([None], 0),
             ([], 3),
             ([1,2,3,4], -1),
@@ -211,6 +213,7 @@ class TestPyList(CPyExtTestCase):
             #([1], None),
             ((1,), "first"),
             (DummyClass(), "first"),
+            (DummyListSubclass([1]), 2),
         ),
         resultspec="i",
         argspec='OO',
@@ -228,6 +231,7 @@ class TestPyList(CPyExtTestCase):
             ((None,),),
             (tuple(),),
             (DummyClass(),),
+            (DummyListSubclass([1, 2]),),
         ),
         resultspec="O",
         argspec='O',
@@ -254,12 +258,15 @@ class TestPyList(CPyExtTestCase):
     )
 
     test_PyList_Size = CPyExtFunction(
-        lambda args: len(args[0]),
+        _wrap_list_fun(lambda args: len(args[0])),
         lambda: (
             ([1,2,3,4],),
             ([None],),
             ([],),
             ([1,2,3,4],),
+            (DummyListSubclass([1, 2]),),
+            ((1, 2),),
+            (DummyClass(),),
         ),
         resultspec="n",
         argspec='O',
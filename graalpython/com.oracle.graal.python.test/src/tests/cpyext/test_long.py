@@ -142,6 +142,60 @@ class TestPyLong(CPyExtTestCase):
         cmpfunc=unhandled_error_compare
     )
 
+    test_PyLong_AsLongLong = CPyExtFunction(
+        lambda args: True,
+        lambda: (
+            (0, 0),
+            (-1, -1),
+            (0x7fffffffffffffff, 0x7fffffffffffffff),
+            (-0x8000000000000000, -0x8000000000000000),
+            (0x8000000000000000, -1),
+            (DummyIntable(), 0xCAFE),
+            (DummyIntSubclass(), 0xBABE),
+            (DummyNonInt(), -1),
+        ),
+        code='''int wrap_PyLong_AsLongLong(PyObject* obj, long long expected) {
+            long long res = PyLong_AsLongLong(obj);
+            PyErr_Clear();
+            if (res == expected) {
+                return 1;
+            }
+            fprintf(stderr, "expected: %lld\\nactual: %lld\\n", expected, res);
+            fflush(stderr);
+            return 0;
+        }''',
+        resultspec="i",
+        argspec='OL',
+        arguments=["PyObject* obj", "long long expected"],
+        callfunction="wrap_PyLong_AsLongLong",
+        cmpfunc=unhandled_error_compare
+    )
+
+    test_PyLong_AsUnsignedLongLong = CPyExtFunction(
+        lambda args: True,
+        lambda: (
+            (0, 0),
+            (0xffffffffffffffff, 0xffffffffffffffff),
+            (-1, 0xffffffffffffffff),
+            (0x10000000000000000, 0xffffffffffffffff),
+        ),
+        code='''int wrap_PyLong_AsUnsignedLongLong(PyObject* obj, unsigned long long expected) {
+            unsigned long long res = PyLong_AsUnsignedLongLong(obj);
+            PyErr_Clear();
+            if (res == expected) {
+                return 1;
+            }
+            fprintf(stderr, "expected: %llu\\nactual: %llu\\n", expected, res);
+            fflush(stderr);
+            return 0;
+        }''',
+        resultspec="i",
+        argspec='OK',
+        arguments=["PyObject* obj", "unsigned long long expected"],
+        callfunction="wrap_PyLong_AsUnsignedLongLong",
+        cmpfunc=unhandled_error_compare
+    )
+
     test_PyLong_AsLongAndOverflow = CPyExtFunctionOutVars(
         _reference_aslong_overflow,
         lambda: (
@@ -0,0 +1,104 @@
+# Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+
+from . import CPyExtTestCase, CPyExtFunction, unhandled_error_compare
+__dir__ = __file__.rpartition("/")[0]
+
+
+def _reference_buffer_info(args):
+    view = args[0]
+    return (view.format, view.itemsize, view.ndim, view.shape[0], view.strides[0], view.nbytes, view.tobytes()[0])
+
+
+class TestPyMemoryView(CPyExtTestCase):
+    def compile_module(self, name):
+        type(self).mro()[1].__dict__["test_%s" % name].create_module(name)
+        super(TestPyMemoryView, self).compile_module(name)
+
+    test_buffer_info = CPyExtFunction(
+        _reference_buffer_info,
+        lambda: (
+            (memoryview(b"abcd"),),
+            (memoryview(b"abcd").cast("i"),),
+            (memoryview(b"abcdef").cast("B", (2, 3)),),
+            (memoryview(b"abcdef")[2:],),
+            (memoryview(bytearray(b"abcdef"))[1::2],),
+        ),
+        code="""
+        static PyObject* get_buffer_info(PyObject* view) {
+            Py_buffer buf;
+            PyObject* result;
+            if (PyObject_GetBuffer(view, &buf, PyBUF_FULL_RO)) {
+                return NULL;
+            }
+            result = Py_BuildValue("(snnnnni)", buf.format, buf.itemsize, (Py_ssize_t) buf.ndim, buf.shape[0], buf.strides[0], buf.len, (int) ((unsigned char *) buf.buf)[0]);
+            PyBuffer_Release(&buf);
+            return result;
+        }
+        """,
+        resultspec="O",
+        argspec='O',
+        arguments=["PyObject* view"],
+        callfunction="get_buffer_info",
+        cmpfunc=unhandled_error_compare
+    )
+
+    test_write_sliced = CPyExtFunction(
+        lambda args: bytearray(b"abXYef"),
+        lambda: (
+            (memoryview(bytearray(b"abcdef"))[2:],),
+        ),
+        code="""
+        static PyObject* write_sliced(PyObject* view) {
+            Py_buffer buf;
+            if (PyObject_GetBuffer(view, &buf, PyBUF_WRITABLE)) {
+                return NULL;
+            }
+            ((char *) buf.buf)[0] = 'X';
+            ((char *) buf.buf)[1] = 'Y';
+            PyBuffer_Release(&buf);
+            return PyObject_GetAttrString(view, "obj");
+        }
+        """,
+        resultspec="O",
+        argspec='O',
+        arguments=["PyObject* view"],
+        callfunction="write_sliced",
+        cmpfunc=unhandled_error_compare
+    )
@@ -38,7 +38,7 @@
 # SOFTWARE.
 
 import sys
-from . import CPyExtTestCase, CPyExtFunction, CPyExtFunctionOutVars, unhandled_error_compare, GRAALPYTHON
+from . import CPyExtTestCase, CPyExtFunction, CPyExtFunctionOutVars, CPyExtType, unhandled_error_compare, GRAALPYTHON
 __dir__ = __file__.rpartition("/")[0]
 
 
@@ -211,3 +211,59 @@ class TestMisc(CPyExtTestCase):
         arguments=["PyObject* pyVal", "PyObject* fun"],
         cmpfunc=unhandled_error_compare
     )
+
+
+class TestHandleCache(object):
+
+    def test_handle_cache(self):
+        # storing an object in native memory turns it into a handle which is resolved again
+        # through the handle cache when the object is returned
+        TestHandles = CPyExtType("TestHandles",
+                                 """
+                                 static PyObject* roundtrip(PyObject* self, PyObject* obj) {
+                                     PyObject** slot = (PyObject**) malloc(sizeof(PyObject*));
+                                     PyObject* result;
+                                     slot[0] = obj;
+                                     result = slot[0];
+                                     free(slot);
+                                     Py_INCREF(result);
+                                     return result;
+                                 }
+                                 """,
+                                 tp_methods='{"roundtrip", (PyCFunction)roundtrip, METH_O, ""}'
+        )
+        tester = TestHandles()
+        objects = [object() for i in range(200)]
+        for o in objects:
+            assert tester.roundtrip(o) is o
+        if not GRAALPYTHON:
+            return
+
+        import python_cext
+        stats = python_cext.PyTruffle_HandleCache_Stats()
+        assert set(stats.keys()) == {"capacity", "used", "misses", "rehashes", "reclaimed"}, stats
+        assert all(isinstance(v, int) for v in stats.values()), stats
+        assert stats["used"] <= stats["capacity"], stats
+        # new objects are misses and fill up the table
+        assert stats["misses"] >= len(objects), stats
+        assert stats["rehashes"] >= 1, stats
+
+        # resolving the same objects again hits
+        for o in objects:
+            assert tester.roundtrip(o) is o
+        assert python_cext.PyTruffle_HandleCache_Stats()["misses"] == stats["misses"]
+
+        # entries of collected objects may be reused, but never resolve to the wrong object
+        del objects, o
+        import gc
+        gc.collect()
+        for i in range(3):
+            objects = [object() for i in range(200)]
+            for o in objects:
+                assert tester.roundtrip(o) is o
+            gc.collect()
+        for o in objects:
+            assert tester.roundtrip(o) is o
+        after = python_cext.PyTruffle_HandleCache_Stats()
+        assert after["misses"] > stats["misses"], after
+        assert after["rehashes"] >= stats["rehashes"], after
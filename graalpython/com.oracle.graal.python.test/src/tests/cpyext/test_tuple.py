@@ -48,6 +48,17 @@ def _reference_getslice(args):
     return t[start:end]
 
 
+def _reference_size(args):
+    t = args[0]
+    if not isinstance(t, tuple):
+        raise SystemError("bad argument to internal function")
+    return len(t)
+
+
+class TupleSubclass(tuple):
+    pass
+
+
 class MyStr(str):
 
     def __init__(self, s):
@@ -65,15 +76,19 @@ class TestPyTuple(CPyExtTestCase):
 
     # PyTuple_Size
     test_PyTuple_Size = CPyExtFunction(
-        lambda args: len(args[0]),
+        _reference_size,
         lambda: (
             (tuple(),),
             ((1, 2, 3),),
             (("a", "b"),),
+            (TupleSubclass((1, 2)),),
+            ([1, 2, 3],),
+            (None,),
         ),
         resultspec="i",
         argspec='O',
         arguments=["PyObject* tuple"],
+        cmpfunc=unhandled_error_compare
     )
 
     # PyTuple_GET_SIZE
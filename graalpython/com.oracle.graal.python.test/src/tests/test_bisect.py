@@ -0,0 +1,82 @@
+# Copyright (c) 2018, 2019, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+import bisect
+import unittest
+
+
+class BisectTest(unittest.TestCase):
+
+    def test_lists(self):
+        for data in ([1, 2, 2, 2, 3, 5], [2 ** 40, 2 ** 41, 2 ** 41], [0.5, 1.5, 1.5, 2.5], ['a', 'b', 'b', 'd']):
+            for x in set(data) | {data[0], data[-1]}:
+                self.assertEqual(bisect.bisect_left(data, x), data.index(x))
+                self.assertEqual(bisect.bisect_right(data, x), len(data) - data[::-1].index(x))
+        self.assertEqual(bisect.bisect_left([1, 2, 3], 2.5), 2)
+        self.assertEqual(bisect.bisect_right([1.0, 2.0, 3.0], 2), 2)
+        self.assertEqual(bisect.bisect([1, 2, 3, 4], 3, 1, 2), 2)
+        self.assertEqual(bisect.bisect_left([1, 2, 3, 4], 3, lo=3), 3)
+        self.assertEqual(bisect.bisect_right([1, 2, 3, 4], 0, hi=2), 0)
+
+    def test_sequences(self):
+        self.assertEqual(bisect.bisect_left(range(0, 100, 2), 31), 16)
+        self.assertEqual(bisect.bisect_right((1, 2, 2, 3), 2), 3)
+        self.assertEqual(bisect.bisect_left('abcdef', 'd'), 3)
+
+        class MyList(list):
+            pass
+
+        data = MyList([1, 3])
+        bisect.insort(data, 2)
+        self.assertEqual(data, [1, 2, 3])
+
+    def test_insort(self):
+        data = []
+        for x in [5, 1, 4, 1, 2, 3.5, 2 ** 40]:
+            bisect.insort(data, x)
+        self.assertEqual(data, [1, 1, 2, 3.5, 4, 5, 2 ** 40])
+        data = [(1, 'a'), (1, 'c')]
+        bisect.insort_left(data, (1, 'b'))
+        bisect.insort_right(data, (0, 'z'))
+        self.assertEqual(data, [(0, 'z'), (1, 'a'), (1, 'b'), (1, 'c')])
+
+    def test_errors(self):
+        self.assertRaises(ValueError, bisect.bisect_left, [1, 2], 1, -1)
+        self.assertRaises(IndexError, bisect.bisect_left, [1, 2], 1, 0, 5)
+        self.assertRaises(TypeError, bisect.bisect_left, [1, 'a'], 0.5)
+        self.assertRaises(TypeError, bisect.bisect_left, None, 1)
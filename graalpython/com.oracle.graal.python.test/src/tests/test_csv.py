@@ -0,0 +1,164 @@
+# Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+
+import csv
+import io
+import unittest
+
+
+class ReaderTests(unittest.TestCase):
+    def read(self, lines, **kwargs):
+        return list(csv.reader(lines, **kwargs))
+
+    def test_simple(self):
+        self.assertEqual(self.read(['a,b,c\r\n', '1,2,3\r\n']), [['a', 'b', 'c'], ['1', '2', '3']])
+        self.assertEqual(self.read(['']), [[]])
+        self.assertEqual(self.read(['a,,']), [['a', '', '']])
+
+    def test_quoted(self):
+        self.assertEqual(self.read(['"a,b","c""d"']), [['a,b', 'c"d']])
+        self.assertEqual(self.read(['"a\n', 'b",c\n']), [['a\nb', 'c']])
+        self.assertEqual(self.read(['a,"']), [['a', '']])
+        self.assertRaises(csv.Error, self.read, ['"a'], strict=True)
+        self.assertRaises(csv.Error, self.read, ['"ab"c'], strict=True)
+
+    def test_escape(self):
+        self.assertEqual(self.read(['a,b\\,c'], escapechar='\\'), [['a', 'b,c']])
+        self.assertEqual(self.read(['^'], escapechar='^'), [['\n']])
+
+    def test_nonnumeric(self):
+        self.assertEqual(self.read([',3,"5",7.3, 9'], quoting=csv.QUOTE_NONNUMERIC), [['', 3.0, '5', 7.3, 9.0]])
+        self.assertRaises(ValueError, self.read, ['abc,3'], quoting=csv.QUOTE_NONNUMERIC)
+
+    def test_errors(self):
+        self.assertRaises(csv.Error, self.read, ['a,b\nc,d'])
+        self.assertRaises(csv.Error, self.read, [b'abc'])
+
+    def test_line_num(self):
+        reader = csv.reader(['a\n', '"b\n', 'c"\n', 'd\n'])
+        self.assertEqual(next(reader), ['a'])
+        self.assertEqual(reader.line_num, 1)
+        self.assertEqual(next(reader), ['b\nc'])
+        self.assertEqual(reader.line_num, 3)
+
+    def test_field_size_limit(self):
+        old = csv.field_size_limit()
+        try:
+            csv.field_size_limit(5)
+            self.assertEqual(self.read(['12345,1']), [['12345', '1']])
+            self.assertRaises(csv.Error, self.read, ['123456'])
+            self.assertRaises(TypeError, csv.field_size_limit, None)
+        finally:
+            self.assertEqual(csv.field_size_limit(old), 5)
+
+
+class WriterTests(unittest.TestCase):
+    def write(self, rows, **kwargs):
+        out = io.StringIO()
+        csv.writer(out, **kwargs).writerows(rows)
+        return out.getvalue()
+
+    def test_simple(self):
+        self.assertEqual(self.write([['a', 1, 2.5, None], []]), 'a,1,2.5,\r\n\r\n')
+        self.assertEqual(self.write([[None]]), '""\r\n')
+        self.assertEqual(self.write([['a,b', 'c"d', 'e\nf']]), '"a,b","c""d","e\nf"\r\n')
+
+    def test_quoting(self):
+        self.assertEqual(self.write([['a', 1, 'p,q']], quoting=csv.QUOTE_NONNUMERIC), '"a",1,"p,q"\r\n')
+        self.assertEqual(self.write([['a', 1]], quoting=csv.QUOTE_ALL), '"a","1"\r\n')
+        self.assertEqual(self.write([['a,b']], quoting=csv.QUOTE_NONE, escapechar='\\'), 'a\\,b\r\n')
+        self.assertRaises(csv.Error, self.write, [['a,b']], quoting=csv.QUOTE_NONE)
+        self.assertRaises(csv.Error, self.write, [['']], quoting=csv.QUOTE_NONE)
+
+    def test_writerow_returns_write_result(self):
+        out = io.StringIO()
+        self.assertEqual(csv.writer(out, lineterminator='\n').writerow(['ab', 'c']), 5)
+        self.assertEqual(out.getvalue(), 'ab,c\n')
+
+    def test_writerows_writes_rows_before_error(self):
+        out = io.StringIO()
+        writer = csv.writer(out)
+        self.assertRaises(csv.Error, writer.writerows, [['a'], ['b'], None])
+        self.assertEqual(out.getvalue(), 'a\r\nb\r\n')
+
+    def test_writerows_many(self):
+        rows = [[str(i), 'x' * 100] for i in range(2000)]
+        out = io.StringIO()
+        csv.writer(out).writerows(rows)
+        self.assertEqual(list(csv.reader(io.StringIO(out.getvalue()))), rows)
+
+    def test_bad_file(self):
+        self.assertRaises(TypeError, csv.writer, None)
+
+
+class DialectTests(unittest.TestCase):
+    def test_registry(self):
+        csv.register_dialect('testdialect', delimiter=';', quoting=csv.QUOTE_ALL)
+        try:
+            self.assertIn('testdialect', csv.list_dialects())
+            dialect = csv.get_dialect('testdialect')
+            self.assertEqual(dialect.delimiter, ';')
+            self.assertEqual(dialect.quoting, csv.QUOTE_ALL)
+            self.assertEqual(list(csv.reader(['a;b'], 'testdialect')), [['a', 'b']])
+        finally:
+            csv.unregister_dialect('testdialect')
+        self.assertRaises(csv.Error, csv.get_dialect, 'testdialect')
+        self.assertRaises(csv.Error, csv.unregister_dialect, 'testdialect')
+        self.assertRaises(TypeError, csv.register_dialect, None)
+
+    def test_validation(self):
+        self.assertRaises(TypeError, csv.reader, [], delimiter='XX')
+        self.assertRaises(TypeError, csv.reader, [], delimiter=None)
+        self.assertRaises(TypeError, csv.reader, [], quotechar=1)
+        self.assertRaises(TypeError, csv.reader, [], lineterminator=None)
+        self.assertRaises(TypeError, csv.reader, [], quoting=4)
+        self.assertRaises(TypeError, csv.reader, [], bad_attr=0)
+        self.assertEqual(csv.reader([], quotechar=None).dialect.quoting, csv.QUOTE_NONE)
+
+    def test_attributes_from_object(self):
+        class Custom:
+            delimiter = '|'
+            quotechar = "'"
+            lineterminator = '\n'
+        dialect = csv.writer(io.StringIO(), Custom).dialect
+        self.assertEqual(dialect.delimiter, '|')
+        self.assertEqual(dialect.quotechar, "'")
+        self.assertEqual(dialect.escapechar, None)
+        self.assertEqual(dialect.doublequote, True)
+        self.assertRaises(AttributeError, setattr, dialect, 'delimiter', ',')
@@ -37,6 +37,7 @@
 # OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
 # SOFTWARE.
 import copy
+import pickle
 import random
 import sys
 import unittest
@@ -108,6 +109,37 @@ class TestBasic(unittest.TestCase):
         d = deque(range(10), maxlen=None)
         self.assertEqual(repr(d), 'deque([0, 1, 2, 3, 4, 5, 6, 7, 8, 9])')
 
+    def test_maxlen_eviction(self):
+        d = deque('abc', maxlen=3)
+        d.appendleft('x')       # evicts from the right
+        self.assertEqual(list(d), ['x', 'a', 'b'])
+        d.append('y')           # evicts from the left
+        self.assertEqual(list(d), ['a', 'b', 'y'])
+        d.extendleft('uvw')
+        self.assertEqual(list(d), ['w', 'v', 'u'])
+        d.extendleft(range(10))
+        self.assertEqual(list(d), [9, 8, 7])
+        d.extend(range(5))
+        self.assertEqual(list(d), [2, 3, 4])
+        self.assertEqual(len(d), 3)
+
+        d = deque(maxlen=1)
+        d.appendleft(1)
+        d.appendleft(2)
+        self.assertEqual(list(d), [2])
+        d.extendleft([3, 4])
+        self.assertEqual(list(d), [4])
+
+        d = deque(maxlen=0)
+        d.appendleft(1)
+        d.append(2)
+        d.extendleft([3])
+        self.assertEqual(list(d), [])
+
+        d = deque('ab', maxlen=3)
+        d.extendleft(d)         # extending with itself
+        self.assertEqual(list(d), ['b', 'a', 'a'])
+
     def test_maxlen_zero(self):
         it = iter(range(100))
         deque(it, maxlen=0)
@@ -235,6 +267,43 @@ class TestBasic(unittest.TestCase):
         d += d
         self.assertEqual(list(d), list('abcdabcd'))
 
+    def test_iadd_edge_cases(self):
+        d = deque('ab', maxlen=3)
+        e = d
+        d += 'cde'
+        self.assertIs(d, e)
+        self.assertEqual(list(d), ['c', 'd', 'e'])
+        self.assertEqual(d.maxlen, 3)
+        d += []
+        self.assertEqual(list(d), ['c', 'd', 'e'])
+        d += d
+        self.assertEqual(list(d), ['c', 'd', 'e'])
+        d += iter(range(2))
+        self.assertEqual(list(d), ['e', 0, 1])
+        with self.assertRaises(TypeError):
+            d += 1
+        with self.assertRaises(SyntaxError):
+            d += fail()
+
+    def test_mul_edge_cases(self):
+        d = deque('ab', maxlen=3)
+        e = d * 2
+        self.assertIsNot(d, e)
+        self.assertEqual(list(d), ['a', 'b'])
+        self.assertEqual(list(e), ['b', 'a', 'b'])
+        self.assertEqual(e.maxlen, 3)
+        self.assertEqual(list(deque('ab') * True), ['a', 'b'])
+        self.assertEqual(list(deque('ab') * False), [])
+        with self.assertRaises(TypeError):
+            deque('ab') * 1.5
+        with self.assertRaises(TypeError):
+            deque('ab') * 'x'
+        d = deque('ab')
+        e = d
+        d *= 2
+        self.assertIs(d, e)
+        self.assertEqual(list(d), ['a', 'b', 'a', 'b'])
+
     def test_extendleft(self):
         d = deque('a')
         self.assertRaises(TypeError, d.extendleft, 1)
@@ -310,6 +379,21 @@ class TestBasic(unittest.TestCase):
         with self.assertRaises(ValueError):
             i = d.index("Hello world", 0, 4)
 
+    def test_index_edge_cases(self):
+        self.assertRaises(ValueError, deque().index, 1)
+        d = deque('abcabc')
+        self.assertEqual(d.index('b'), 1)
+        self.assertEqual(d.index('b', 2), 4)
+        self.assertEqual(d.index('b', -2), 4)
+        self.assertEqual(d.index('a', -100), 0)
+        self.assertEqual(d.index('c', 0, 100), 2)
+        self.assertRaises(ValueError, d.index, 'a', 10)
+        self.assertRaises(ValueError, d.index, 'b', 2, 4)
+        self.assertRaises(ValueError, d.index, 'a', 4, 2)
+        self.assertRaises(TypeError, d.index, 'a', 'x')
+        d.rotate(2)
+        self.assertEqual(d.index('a'), 2)
+
     @unittest.skipIf(sys.implementation.name == 'cpython' and sys.version_info[0:2] < (3, 5), "skipping for cPython versions < 3.5")
     def test_imul(self):
         for n in (-10, -1, 0, 1, 2, 10, 1000):
@@ -459,6 +543,35 @@ class TestBasic(unittest.TestCase):
         d.rotate()              # rotate an empty deque
         self.assertEqual(d, deque())
 
+    def test_rotate_bounds(self):
+        s = tuple('abcde')
+        n = len(s)
+        for i in (n, 2 * n, -n, -3 * n, n * 1000):
+            d = deque(s)
+            d.rotate(i)         # multiples of the length are no-ops
+            self.assertEqual(tuple(d), s)
+        for i in (n + 2, 7 * n + 2, -n + 2, -7 * n + 2, 10 ** 6 * n + 2):
+            d = deque(s)
+            d.rotate(i)         # oversized steps wrap around like i % n
+            self.assertEqual(tuple(d), s[-2:] + s[:-2])
+        for i in (-2, -n - 2, -11 * n - 2):
+            d = deque(s)
+            d.rotate(i)
+            self.assertEqual(tuple(d), s[2:] + s[:2])
+
+        d = deque('a')
+        d.rotate(-12345)        # a single element never moves
+        self.assertEqual(list(d), ['a'])
+        d = deque()
+        d.rotate(-3)
+        self.assertEqual(list(d), [])
+
+        d = deque(range(10), maxlen=10)
+        d.rotate(-3)
+        self.assertEqual(list(d), [3, 4, 5, 6, 7, 8, 9, 0, 1, 2])
+        self.assertEqual(d.maxlen, 10)
+        self.assertRaises(TypeError, d.rotate, 1.0)
+
     def test_len(self):
         d = deque('ab')
         self.assertEqual(len(d), 2)
@@ -513,6 +626,102 @@ class TestBasic(unittest.TestCase):
             self.assertRaises(IndexError, d.remove, 'c')
             self.assertEqual(d, deque())
 
+    def test_remove_edge_cases(self):
+        self.assertRaises(ValueError, deque().remove, 'a')
+        d = deque([1, 2.0, 'x', 2])
+        d.remove(2)             # removes the first equal element only
+        self.assertEqual(list(d), [1, 'x', 2])
+        self.assertIs(type(d[2]), int)
+        d.remove(1.0)
+        self.assertEqual(list(d), ['x', 2])
+        d.rotate(1)
+        d.remove('x')
+        self.assertEqual(list(d), [2])
+        d.remove(2)
+        self.assertEqual(list(d), [])
+        self.assertRaises(ValueError, d.remove, 2)
+
+    def test_mixed_items(self):
+        d = deque([1, 2, 3])
+        d.append(1 << 40)
+        d.appendleft(2.5)
+        d.insert(2, "x")
+        d[1] = None
+        self.assertEqual(list(d), [2.5, None, "x", 2, 3, 1 << 40])
+        d = deque([0.5, 1.5], maxlen=3)
+        d.extend([2.5, 3])
+        self.assertEqual(list(d), [1.5, 2.5, 3])
+        d.rotate(1)
+        self.assertEqual(list(d), [3, 1.5, 2.5])
+
+    def test_insert(self):
+        for i in range(-12, 12):
+            d = deque(range(10))
+            l = list(range(10))
+            d.insert(i, "x")
+            l.insert(i, "x")
+            self.assertEqual(list(d), l)
+        d = deque("ab", maxlen=2)
+        self.assertRaises(IndexError, d.insert, 0, "c")
+
+    def test_insert_edge_cases(self):
+        d = deque()
+        d.insert(5, 'a')
+        d.insert(-5, 'b')
+        self.assertEqual(list(d), ['b', 'a'])
+        d.insert(1, 'c')
+        d.insert(-1, 'd')
+        self.assertEqual(list(d), ['b', 'c', 'd', 'a'])
+        d.insert(len(d), 'e')
+        self.assertEqual(list(d), ['b', 'c', 'd', 'a', 'e'])
+
+        d = deque('ab', maxlen=3)
+        d.insert(1, 'x')
+        self.assertEqual(list(d), ['a', 'x', 'b'])
+        self.assertRaises(IndexError, d.insert, 10, 'y')
+        self.assertEqual(list(d), ['a', 'x', 'b'])
+        self.assertRaises(TypeError, d.insert, 'a', 'y')
+
+        d = deque(range(100))
+        l = list(range(100))
+        for i in (-150, -51, -1, 0, 1, 50, 99, 100, 150):
+            d.insert(i, 'x')
+            l.insert(i, 'x')
+        self.assertEqual(list(d), l)
+
+    def test_iterator_mutation(self):
+        d = deque(range(10))
+        it = iter(d)
+        next(it)
+        d.append(10)
+        self.assertRaises(RuntimeError, next, it)
+        it = reversed(deque(range(3)))
+        self.assertEqual(it.__length_hint__(), 3)
+        self.assertEqual(list(it), [2, 1, 0])
+
+    def test_iterator_mutation_kinds(self):
+        for mutate in (lambda d: d.pop(), lambda d: d.popleft(), lambda d: d.appendleft(0),
+                       lambda d: d.extend([1]), lambda d: d.extendleft([1]), lambda d: d.clear(),
+                       lambda d: d.remove(3), lambda d: d.insert(1, 0), lambda d: d.__delitem__(0)):
+            for make_iter in (iter, reversed):
+                d = deque(range(5))
+                it = make_iter(d)
+                next(it)
+                mutate(d)
+                self.assertRaises(RuntimeError, next, it)
+
+        # replacing items keeps the length and does not invalidate iterators
+        d = deque(range(5))
+        it = iter(d)
+        next(it)
+        d[1] = 'x'
+        self.assertEqual(list(it), ['x', 2, 3, 4])
+
+        d = deque(range(3))
+        with self.assertRaises(RuntimeError):
+            for x in d:
+                d.append(x)
+
     def test_init(self):
         self.assertRaises(TypeError, deque, 'abc', 2, 3)
         self.assertRaises(TypeError, deque, 1)
@@ -629,3 +838,46 @@ class TestBasic(unittest.TestCase):
         klass = type(reversed(deque()))
         for s in ('abcd', range(2000)):
             self.assertEqual(list(klass(deque(s))), list(reversed(s)))
+
+    def test_pickle(self):
+        for d in (deque(), deque(range(10)), deque('abc', maxlen=5), deque(range(10), maxlen=0),
+                  deque([1, 2.5, 'x', None, (1, 2)])):
+            for proto in range(pickle.HIGHEST_PROTOCOL + 1):
+                e = pickle.loads(pickle.dumps(d, proto))
+                self.assertIsNot(e, d)
+                self.assertIs(type(e), deque)
+                self.assertEqual(e, d)
+                self.assertEqual(e.maxlen, d.maxlen)
+
+    def test_pickle_subclass(self):
+        d = DequeSubclass('abc', maxlen=4)
+        d.x = 10
+        for proto in range(pickle.HIGHEST_PROTOCOL + 1):
+            e = pickle.loads(pickle.dumps(d, proto))
+            self.assertIs(type(e), DequeSubclass)
+            self.assertEqual(list(e), ['a', 'b', 'c'])
+            self.assertEqual(e.maxlen, 4)
+            self.assertEqual(e.x, 10)
+
+    def test_deepcopy(self):
+        mut = [10]
+        d = deque([mut], maxlen=3)
+        e = copy.deepcopy(d)
+        self.assertEqual(list(d), list(e))
+        self.assertEqual(e.maxlen, 3)
+        mut[0] = 11
+        self.assertIsNot(d[0], e[0])
+        self.assertEqual(e[0], [10])
+
+    def test_copy_subclass(self):
+        d = DequeSubclass(range(3), maxlen=5)
+        for e in (copy.copy(d), d.copy()):
+            self.assertIs(type(e), DequeSubclass)
+            self.assertEqual(list(e), [0, 1, 2])
+            self.assertEqual(e.maxlen, 5)
+            e.append(3)
+            self.assertEqual(list(d), [0, 1, 2])
+
+
+class DequeSubclass(deque):
+    pass
@@ -0,0 +1,185 @@
+# Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+# generator expressions consumed by a 'for' loop and generators consumed by sum(), list(), any() and all() are
+# resumed through an inlined call
+
+
+def gen(n):
+    for i in range(n):
+        yield i
+
+
+def gen_return(n):
+    yield from range(n)
+    return "done"
+
+
+def gen_raise(n):
+    for i in range(n):
+        yield i
+    raise KeyError(n)
+
+
+def test_call():
+    for run in range(1000):
+        total = 0
+        for i in gen(10):
+            total += i
+        assert total == 45
+
+
+def test_genexp():
+    for run in range(1000):
+        total = 0
+        for i in (x * 2 for x in range(10)):
+            total += i
+        assert total == 90
+
+
+def test_return_value():
+    for run in range(1000):
+        items = []
+        for i in gen_return(3):
+            items.append(i)
+        assert items == [0, 1, 2]
+
+
+def test_exception():
+    for run in range(100):
+        items = []
+        try:
+            for i in gen_raise(3):
+                items.append(i)
+        except KeyError as e:
+            assert e.args == (3,)
+        else:
+            assert False, "KeyError expected"
+        assert items == [0, 1, 2]
+
+
+def test_break():
+    for run in range(1000):
+        for i in gen(10):
+            if i == 5:
+                break
+        assert i == 5
+
+
+def test_polymorphic():
+    gens = [gen, gen_return]
+    for run in range(1000):
+        items = []
+        for i in gens[run % 2](3):
+            items.append(i)
+        assert items == [0, 1, 2]
+
+
+def test_existing_generator():
+    for run in range(100):
+        g = gen(4)
+        assert next(g) == 0
+        assert list(i for i in g) == [1, 2, 3]
+        for i in g:
+            assert False, "exhausted generator"
+
+
+def test_builtin_consumers():
+    for run in range(1000):
+        assert sum(x % 5 for x in range(10)) == 20
+        assert sum((x * 0.5 for x in range(4)), 1.0) == 4.0
+        assert list(x * 2 for x in range(4)) == [0, 2, 4, 6]
+        assert list(gen_return(3)) == [0, 1, 2]
+        assert any(x > 2 for x in range(4))
+        assert not any(x > 5 for x in range(4))
+        assert all(x < 4 for x in range(4))
+        assert not all(x < 2 for x in range(4))
+
+
+def test_builtin_consumers_early_exit():
+    for run in range(100):
+        g = gen(10)
+        assert any(i == 3 for i in g)
+        assert next(g) == 4
+        g = gen(10)
+        assert not all(i < 3 for i in g)
+        assert list(g) == [4, 5, 6, 7, 8, 9]
+        assert list(g) == []
+        assert sum(g) == 0
+
+
+def test_builtin_consumers_exception():
+    for run in range(100):
+        try:
+            sum(gen_raise(3))
+        except KeyError as e:
+            assert e.args == (3,)
+        else:
+            assert False, "KeyError expected"
+        try:
+            list(gen_raise(3))
+        except KeyError as e:
+            assert e.args == (3,)
+        else:
+            assert False, "KeyError expected"
+
+
+def test_builtin_consumers_polymorphic():
+    gens = [gen, gen_return]
+    for run in range(1000):
+        assert sum(gens[run % 2](4)) == 6
+        assert list(gens[run % 2](3)) == [0, 1, 2]
+        assert any(gens[run % 2](3))
+        assert not all(gens[run % 2](3))
+    assert any([0, 1])
+    assert all([])
+    assert not any(iter([]))
+
+
+def test_sum_primitive_iterators():
+    def do_sum(iterable, start=0):
+        return sum(iterable, start)
+
+    for run in range(1000):
+        assert do_sum(range(10)) == 45
+        assert do_sum([0.5, 1.5]) == 2.0
+        assert do_sum([1, 2.5, 3]) == 6.5
+        assert do_sum(iter([2 ** 70, 1])) == 2 ** 70 + 1
+        assert do_sum(range(3), 0.5) == 3.5
+        assert do_sum(x for x in range(4)) == 6
+        assert do_sum([[1], [2]], []) == [1, 2]
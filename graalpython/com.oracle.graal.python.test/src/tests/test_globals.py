@@ -0,0 +1,142 @@
+# Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+
+import builtins
+import sys
+import types
+
+CONSTANT = 1
+
+
+def read_constant():
+    return CONSTANT
+
+
+def read_len():
+    return len
+
+
+def read_shadowed():
+    return shadowed
+
+
+def test_global_write():
+    global CONSTANT
+    for i in range(10):
+        CONSTANT = i
+        assert read_constant() == i
+    CONSTANT = 1
+
+
+def test_globals_dict_write():
+    for i in range(10):
+        globals()["CONSTANT"] = i
+        assert read_constant() == i
+    globals()["CONSTANT"] = 1
+
+
+def test_module_setattr():
+    module = sys.modules[__name__]
+    for i in range(10):
+        setattr(module, "CONSTANT", i)
+        assert read_constant() == i
+    module.CONSTANT = 1
+    assert read_constant() == 1
+
+
+def test_shadow_builtin():
+    assert read_len() is builtins.len
+    globals()["len"] = 42
+    try:
+        assert read_len() == 42
+    finally:
+        del globals()["len"]
+    assert read_len() is builtins.len
+
+
+def test_builtin_write():
+    global shadowed
+    builtins.shadowed = "builtin"
+    try:
+        assert read_shadowed() == "builtin"
+        shadowed = "global"
+        assert read_shadowed() == "global"
+        del shadowed
+        assert read_shadowed() == "builtin"
+        builtins.shadowed = "changed"
+        assert read_shadowed() == "changed"
+    finally:
+        del builtins.shadowed
+    try:
+        read_shadowed()
+    except NameError:
+        pass
+    else:
+        assert False, "expected NameError"
+
+
+def test_module_dict_clear():
+    module = types.ModuleType("m")
+    exec("x = 1\ndef f(): return x", module.__dict__)
+    for i in range(3):
+        assert module.f() == 1
+    f = module.f
+    module.__dict__.clear()
+    module.__dict__["x"] = 2
+    assert f() == 2
+
+
+def test_mutable_global_writes():
+    module = types.ModuleType("m")
+    exec("a = 0\nb = 0\ndef read_a(): return a\ndef read_b(): return b\ndef write_a(v):\n    global a\n    a = v", module.__dict__)
+    for i in range(3):
+        assert module.read_b() == 0
+
+    def set_attr(name, value):
+        setattr(module, name, value)
+
+    # 'a' changes often enough to be treated as mutable by the writing nodes
+    for i in range(20):
+        module.write_a(i)
+        assert module.read_a() == i
+        set_attr("a", i + 1)
+        assert module.read_a() == i + 1
+    # the same setattr site writing another attribute still invalidates the cached read
+    set_attr("b", 42)
+    assert module.read_b() == 42
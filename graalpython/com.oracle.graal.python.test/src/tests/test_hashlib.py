@@ -0,0 +1,91 @@
+# Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+
+import hashlib
+import hmac
+import unittest
+
+
+class HashlibTests(unittest.TestCase):
+
+    def test_digests(self):
+        data = b"Nobody inspects the spammish repetition"
+        self.assertEqual(hashlib.md5(data).hexdigest(), "bb649c83dd1ea5c9d9dec9a18df0ffe9")
+        self.assertEqual(hashlib.sha1(data).hexdigest(), "531b07a0f5b66477a21742d2827176264f4bbfe2")
+        self.assertEqual(hashlib.sha224(data).hexdigest(), "a4337bc45a8fc544c03f52dc550cd6e1e87021bc896588bd79e901e2")
+        self.assertEqual(hashlib.new("sha256", data).digest(), hashlib.sha256(data).digest())
+
+    def test_update(self):
+        h = hashlib.sha256()
+        h.update(b"abc")
+        h.update(bytearray(b"def"))
+        h.update(memoryview(b"xxghix")[2:5])
+        self.assertEqual(h.hexdigest(), hashlib.sha256(b"abcdefghi").hexdigest())
+        big = bytes(range(256)) * 100
+        h = hashlib.sha512()
+        h.update(big)
+        self.assertEqual(h.digest(), hashlib.sha512(big).digest())
+        self.assertRaises(TypeError, h.update, "abc")
+
+    def test_copy(self):
+        h = hashlib.sha1(b"abc")
+        c = h.copy()
+        c.update(b"def")
+        self.assertEqual(h.digest(), hashlib.sha1(b"abc").digest())
+        self.assertEqual(c.digest(), hashlib.sha1(b"abcdef").digest())
+        self.assertEqual(c.name, "sha1")
+        self.assertEqual(c.digest_size, 20)
+        self.assertEqual(c.block_size, 64)
+
+    def test_pbkdf2_hmac(self):
+        self.assertEqual(hashlib.pbkdf2_hmac("sha1", b"password", b"salt", 2).hex(), "ea6c014dc72d6f8ccd1ed92ace1d41f0d8de8957")
+        self.assertEqual(hashlib.pbkdf2_hmac("sha256", b"password", b"salt", 1, 40).hex(),
+                         "120fb6cffcf8b32c43e7225256c4f837a86548c92ccc35480805987cb70be17b4dbf3a2f3dad3377")
+        self.assertEqual(hashlib.pbkdf2_hmac("sha256", b"", b"salt", 3), hashlib.pbkdf2_hmac("sha256", b"\x00", b"salt", 3))
+        self.assertRaises(ValueError, hashlib.pbkdf2_hmac, "sha256", b"password", b"salt", 0)
+
+    def test_compare_digest(self):
+        self.assertTrue(hmac.compare_digest(b"abc", b"abc"))
+        self.assertTrue(hmac.compare_digest(bytearray(b"abc"), memoryview(b"abc")))
+        self.assertFalse(hmac.compare_digest(b"abc", b"abd"))
+        self.assertFalse(hmac.compare_digest(b"abc", b"ab"))
+        self.assertTrue(hmac.compare_digest("abc", "abc"))
+        self.assertFalse(hmac.compare_digest("abc", "abd"))
+        self.assertRaises(TypeError, hmac.compare_digest, "abc", b"abc")
+        self.assertRaises(TypeError, hmac.compare_digest, "€", "€")
@@ -0,0 +1,107 @@
+# Copyright (c) 2018, 2019, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+import heapq
+import random
+import unittest
+
+
+class HeapqTest(unittest.TestCase):
+
+    def check_sorted_pops(self, data):
+        heap = []
+        for item in data:
+            heapq.heappush(heap, item)
+        result = [heapq.heappop(heap) for _ in range(len(heap))]
+        self.assertEqual(result, sorted(data))
+
+    def test_push_pop(self):
+        rand = random.Random(42)
+        self.check_sorted_pops([rand.randrange(1000) for _ in range(500)])
+        self.check_sorted_pops([rand.randrange(2 ** 40) for _ in range(500)])
+        self.check_sorted_pops([rand.random() for _ in range(500)])
+        self.check_sorted_pops([str(rand.randrange(1000)) for _ in range(500)])
+        self.check_sorted_pops([(rand.randrange(10), 'x') for _ in range(500)])
+        self.check_sorted_pops([rand.randrange(10) for _ in range(250)] + [rand.random() for _ in range(250)])
+
+    def test_heapify(self):
+        for data in ([5, 3, 8, 1, 9, 2], [5.5, -1.0, 3.25], [2 ** 40, 1, 2 ** 41], ['b', 'c', 'a'], []):
+            heap = list(data)
+            heapq.heapify(heap)
+            self.assertEqual([heapq.heappop(heap) for _ in range(len(heap))], sorted(data))
+
+    def test_replace_and_pushpop(self):
+        heap = [1, 3, 5]
+        self.assertEqual(heapq.heapreplace(heap, 4), 1)
+        self.assertEqual(heap[0], 3)
+        self.assertEqual(heapq.heappushpop(heap, 2), 2)
+        self.assertEqual(heapq.heappushpop(heap, 6), 3)
+        self.assertEqual(sorted(heap), [4, 5, 6])
+        self.assertEqual(heapq.heappushpop([], 7), 7)
+        heap = [1, 2]
+        heapq.heapreplace(heap, 2.5)
+        self.assertEqual(heap, [2, 2.5])
+
+    def test_max_heap(self):
+        heap = [3, 1, 4, 1, 5, 9, 2, 6]
+        heapq._heapify_max(heap)
+        self.assertEqual(heap[0], 9)
+        self.assertEqual(heapq._heappop_max(heap), 9)
+        self.assertEqual(heapq._heapreplace_max(heap, 0), 6)
+        self.assertEqual([heapq._heappop_max(heap) for _ in range(len(heap))], [5, 4, 3, 2, 1, 1, 0])
+
+    def test_nlargest(self):
+        data = [random.randrange(100) for _ in range(100)]
+        self.assertEqual(heapq.nsmallest(5, data), sorted(data)[:5])
+        self.assertEqual(heapq.nlargest(5, data), sorted(data, reverse=True)[:5])
+        self.assertEqual(list(heapq.merge([1, 3, 5], [2, 4])), [1, 2, 3, 4, 5])
+
+    def test_errors(self):
+        self.assertRaises(TypeError, heapq.heappush, (), 1)
+        self.assertRaises(TypeError, heapq.heapify, None)
+        self.assertRaises(IndexError, heapq.heappop, [])
+        self.assertRaises(IndexError, heapq.heapreplace, [], 1)
+        self.assertRaises(TypeError, heapq.heappush, [1], 'a')
+
+        class Evil:
+            def __lt__(self, other):
+                heap.clear()
+                return False
+
+        heap = [Evil(), Evil()]
+        self.assertRaises(RuntimeError, heapq.heappush, heap, Evil())
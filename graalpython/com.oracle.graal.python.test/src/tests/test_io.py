@@ -0,0 +1,266 @@
+# Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+
+import io
+import unittest
+
+
+class RawRecorder(io.RawIOBase):
+    def __init__(self, data=b""):
+        self.data = bytearray(data)
+        self.pos = 0
+        self.writes = 0
+
+    def readable(self):
+        return True
+
+    def writable(self):
+        return True
+
+    def seekable(self):
+        return True
+
+    def readinto(self, b):
+        n = min(len(b), len(self.data) - self.pos)
+        b[:n] = self.data[self.pos:self.pos + n]
+        self.pos += n
+        return n
+
+    def write(self, b):
+        self.writes += 1
+        self.data[self.pos:self.pos + len(b)] = b
+        self.pos += len(b)
+        return len(b)
+
+    def seek(self, pos, whence=0):
+        if whence == 0:
+            self.pos = pos
+        elif whence == 1:
+            self.pos += pos
+        else:
+            self.pos = len(self.data) + pos
+        return self.pos
+
+    def tell(self):
+        return self.pos
+
+
+class NonBlockingRaw(io.RawIOBase):
+    """Returns the given chunks from readinto; a None chunk means no data is available yet."""
+    def __init__(self, chunks):
+        self.chunks = list(chunks)
+
+    def readable(self):
+        return True
+
+    def readinto(self, b):
+        if not self.chunks:
+            return 0
+        chunk = self.chunks.pop(0)
+        if chunk is None:
+            return None
+        b[:len(chunk)] = chunk
+        return len(chunk)
+
+
+class BytesIOTests(unittest.TestCase):
+    def test_read_write(self):
+        b = io.BytesIO(b"hello\nworld\n")
+        self.assertEqual(b.readline(), b"hello\n")
+        self.assertEqual(b.read(3), b"wor")
+        self.assertEqual(b.read(), b"ld\n")
+        self.assertEqual(b.read(), b"")
+        b.seek(0)
+        self.assertEqual(b.readlines(), [b"hello\n", b"world\n"])
+        b.seek(2)
+        b.write(b"LL")
+        self.assertEqual(b.getvalue(), b"heLLo\nworld\n")
+
+    def test_seek_past_end(self):
+        b = io.BytesIO()
+        b.seek(3)
+        b.write(b"x")
+        self.assertEqual(b.getvalue(), b"\0\0\0x")
+        self.assertEqual(b.truncate(2), 2)
+        self.assertEqual(b.getvalue(), b"\0\0")
+
+    def test_readinto(self):
+        b = io.BytesIO(b"abcdef")
+        buf = bytearray(4)
+        self.assertEqual(b.readinto(buf), 4)
+        self.assertEqual(buf, bytearray(b"abcd"))
+
+    def test_closed(self):
+        b = io.BytesIO(b"abc")
+        b.close()
+        self.assertTrue(b.closed)
+        self.assertRaises(ValueError, b.read)
+        self.assertRaises(ValueError, b.getvalue)
+
+    def test_iter(self):
+        self.assertEqual(list(io.BytesIO(b"a\nb\nc")), [b"a\n", b"b\n", b"c"])
+
+    def test_isinstance(self):
+        self.assertIsInstance(io.BytesIO(), io.BufferedIOBase)
+
+
+class StringIOTests(unittest.TestCase):
+    def test_read_write(self):
+        s = io.StringIO("hello\nworld")
+        self.assertEqual(s.readline(), "hello\n")
+        self.assertEqual(s.read(), "world")
+        s.write("!")
+        self.assertEqual(s.getvalue(), "hello\nworld!")
+        self.assertEqual(s.tell(), 12)
+
+    def test_newline(self):
+        s = io.StringIO(newline=None)
+        s.write("a\r\nb\rc\n")
+        self.assertEqual(s.getvalue(), "a\nb\nc\n")
+        s = io.StringIO(newline="")
+        s.write("a\r\nb\rc\n")
+        s.seek(0)
+        self.assertEqual(s.readlines(), ["a\r\n", "b\r", "c\n"])
+        s = io.StringIO(newline="\r\n")
+        s.write("a\nb")
+        self.assertEqual(s.getvalue(), "a\r\nb")
+        self.assertRaises(ValueError, io.StringIO, newline="x")
+
+    def test_type_errors(self):
+        self.assertRaises(TypeError, io.StringIO, b"abc")
+        self.assertRaises(TypeError, io.StringIO().write, b"abc")
+
+    def test_seek(self):
+        s = io.StringIO("abc")
+        self.assertEqual(s.seek(0, 2), 3)
+        self.assertRaises(OSError, s.seek, 1, 1)
+        s.seek(5)
+        s.write("x")
+        self.assertEqual(s.getvalue(), "abc\0\0x")
+
+
+class BufferedTests(unittest.TestCase):
+    def test_reader(self):
+        raw = RawRecorder(b"line1\nline2\nrest")
+        r = io.BufferedReader(raw, 4)
+        self.assertEqual(r.readline(), b"line1\n")
+        self.assertEqual(r.peek()[:1], b"l")
+        self.assertEqual(r.read(3), b"lin")
+        self.assertEqual(r.tell(), 9)
+        self.assertEqual(r.read(), b"e2\nrest")
+        self.assertEqual(r.read(), b"")
+
+    def test_reader_non_blocking(self):
+        r = io.BufferedReader(NonBlockingRaw([None, b"ab", None, b"c\n", None]))
+        self.assertIsNone(r.read())
+        self.assertEqual(r.readline(), b"ab")
+        self.assertEqual(r.readline(), b"c\n")
+        self.assertIsNone(r.readline())
+        self.assertEqual(r.readline(), b"")
+
+    def test_writer_buffers(self):
+        raw = RawRecorder()
+        w = io.BufferedWriter(raw, 16)
+        for _ in range(8):
+            w.write(b"ab")
+        self.assertEqual(raw.writes, 0)
+        w.write(b"c")
+        w.flush()
+        self.assertEqual(bytes(raw.data), b"ab" * 8 + b"c")
+        self.assertEqual(w.tell(), 17)
+        w.close()
+        self.assertTrue(w.closed)
+        self.assertRaises(ValueError, w.write, b"x")
+
+    def test_random(self):
+        raw = RawRecorder(b"0123456789")
+        f = io.BufferedRandom(raw)
+        self.assertEqual(f.read(2), b"01")
+        f.write(b"ab")
+        f.seek(0)
+        self.assertEqual(f.read(), b"01ab456789")
+
+    def test_invalid(self):
+        self.assertRaises(ValueError, io.BufferedReader, RawRecorder(), 0)
+        r = io.BufferedReader(RawRecorder(b"abc"))
+        r.detach()
+        self.assertRaises(ValueError, r.read)
+
+    def test_text_wrapper(self):
+        raw = RawRecorder("ä€ line\nnext".encode("utf-8"))
+        t = io.TextIOWrapper(io.BufferedReader(raw, 1), encoding="utf-8")
+        self.assertEqual(t.readline(), "ä€ line\n")
+        self.assertEqual(t.read(), "next")
+
+    def test_text_wrapper_utf8(self):
+        import os
+        import tempfile
+        fd, path = tempfile.mkstemp()
+        os.close(fd)
+        try:
+            with open(path, "w", encoding="utf-8", newline="") as f:
+                self.assertEqual(f.write("a\r\nä€\rb\nlast"), 12)
+            with open(path, "r", encoding="utf-8") as f:
+                self.assertEqual(f.readline(), "a\n")
+                pos = f.tell()
+                self.assertEqual(list(f), ["ä€\n", "b\n", "last"])
+                f.seek(pos)
+                self.assertEqual(f.read(2), "ä€")
+                self.assertEqual(f.readline(1), "\n")
+                self.assertEqual(f.read(), "b\nlast")
+            with open(path, "r", encoding="utf-8") as f:
+                self.assertEqual(f.newlines, None)
+                self.assertEqual(f.read(), "a\nä€\nb\nlast")
+                self.assertEqual(f.newlines, ("\r", "\n", "\r\n"))
+            with open(path, "r", encoding="utf-8", newline="") as f:
+                self.assertEqual(f.readlines(), ["a\r\n", "ä€\r", "b\n", "last"])
+            with open(path, "rb") as f:
+                self.assertEqual(f.read(), "a\r\nä€\rb\nlast".encode("utf-8"))
+        finally:
+            os.unlink(path)
+
+
+class Utf8DecodeTests(unittest.TestCase):
+    def test_incremental(self):
+        import _codecs
+        data = "€".encode("utf-8")
+        self.assertEqual(_codecs.utf_8_decode(data[:2], "strict", False), ("", 0))
+        self.assertEqual(_codecs.utf_8_decode(data, "strict", False), ("€", 3))
+        self.assertEqual(_codecs.utf_8_decode(b"ab" + data[:1], "strict", False), ("ab", 2))
+        self.assertRaises(UnicodeDecodeError, _codecs.utf_8_decode, data[:2], "strict", True)
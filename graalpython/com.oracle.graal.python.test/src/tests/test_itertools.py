@@ -98,3 +98,124 @@ class CombinationsTests(unittest.TestCase):
         self.assertRaises(ExpectedError, gulp, [None], keyfunc)
         keyfunc.skip = 1
         self.assertRaises(ExpectedError, gulp, [None, None], keyfunc)
+
+
+class IteratorTests(unittest.TestCase):
+
+    def test_repeat(self):
+        self.assertEqual(list(repeat('a', 3)), ['a', 'a', 'a'])
+        self.assertEqual(list(repeat('a', -1)), [])
+        self.assertEqual(list(islice(repeat(1), 4)), [1, 1, 1, 1])
+        r = repeat((), 2)
+        self.assertEqual(r.__length_hint__(), 2)
+        self.assertEqual(repr(r), 'repeat((), 2)')
+        self.assertEqual(repr(repeat('a')), "repeat('a')")
+        self.assertRaises(TypeError, repeat('a').__length_hint__)
+
+    def test_count(self):
+        self.assertEqual(list(islice(count(), 3)), [0, 1, 2])
+        self.assertEqual(list(islice(count(3, -2), 3)), [3, 1, -1])
+        self.assertEqual(list(islice(count(1.5, 0.5), 3)), [1.5, 2.0, 2.5])
+        self.assertEqual(list(islice(count(2 ** 63 - 1), 2)), [2 ** 63 - 1, 2 ** 63])
+        self.assertEqual(repr(count(5)), 'count(5)')
+        self.assertEqual(repr(count(5, 2)), 'count(5, 2)')
+        self.assertRaises(TypeError, count, 'a')
+
+    def test_chain(self):
+        self.assertEqual(list(chain('ab', [], (1, 2), range(2))), ['a', 'b', 1, 2, 0, 1])
+        self.assertEqual(list(chain()), [])
+        self.assertEqual(list(chain.from_iterable(['ab', 'cd'])), ['a', 'b', 'c', 'd'])
+        self.assertRaises(TypeError, list, chain(1))
+
+    def test_starmap(self):
+        self.assertEqual(list(starmap(pow, [(2, 3), (3, 2)])), [8, 9])
+        self.assertEqual(list(starmap(lambda *a: a, [[1, 2], []])), [(1, 2), ()])
+
+    def test_islice(self):
+        self.assertEqual(list(islice(range(10), 3)), [0, 1, 2])
+        self.assertEqual(list(islice(range(10), 2, 8, 3)), [2, 5])
+        self.assertEqual(list(islice(range(10), 7, None)), [7, 8, 9])
+        self.assertEqual(list(islice(range(3), 1, 10)), [1, 2])
+        self.assertEqual(list(islice(range(10), None)), list(range(10)))
+        it = iter(range(10))
+        self.assertEqual(list(islice(it, 3)), [0, 1, 2])
+        self.assertEqual(next(it), 3)
+        self.assertRaises(ValueError, islice, range(10), -1)
+        self.assertRaises(ValueError, islice, range(10), 1, 2, 0)
+        self.assertRaises(ValueError, islice, range(10), 'a')
+        self.assertRaises(TypeError, islice, range(10), 1, 2, 3, 4)
+
+    def test_islice_bounds(self):
+        import sys
+        self.assertEqual(list(islice(range(5), 2 ** 31)), [0, 1, 2, 3, 4])
+        self.assertEqual(list(islice(range(5), 0, sys.maxsize)), [0, 1, 2, 3, 4])
+        self.assertEqual(list(islice(range(5), 1, sys.maxsize, 2)), [1, 3])
+        self.assertEqual(list(islice(range(5), sys.maxsize, None)), [])
+        self.assertEqual(list(islice(range(5), True)), [0])
+        self.assertRaises(ValueError, islice, range(10), -1, 5)
+        self.assertRaises(ValueError, islice, range(10), 0, -2 ** 100)
+        self.assertRaises(ValueError, islice, range(10), 0, 5, -1)
+        self.assertRaises(ValueError, islice, range(10), 1.0)
+
+    def test_islice_exhaustion(self):
+        it = islice(range(3), 5)
+        self.assertEqual(list(it), [0, 1, 2])
+        self.assertRaises(StopIteration, next, it)
+        self.assertRaises(StopIteration, next, it)
+        source = iter(range(10))
+        it = islice(source, 2, 4)
+        self.assertEqual(list(it), [2, 3])
+        self.assertEqual(list(it), [])
+        self.assertEqual(next(source), 4)
+
+    def test_repeat_bounds(self):
+        import sys
+        self.assertEqual(repeat('a', 2 ** 31).__length_hint__(), 2 ** 31)
+        self.assertEqual(repeat('a', sys.maxsize).__length_hint__(), sys.maxsize)
+        self.assertEqual(list(repeat('a', -2 ** 31)), [])
+        self.assertEqual(list(islice(repeat('a', sys.maxsize), 2)), ['a', 'a'])
+        self.assertRaises(TypeError, repeat, 'a', 1.0)
+
+    def test_accumulate(self):
+        self.assertEqual(list(accumulate([1, 2, 3, 4])), [1, 3, 6, 10])
+        self.assertEqual(list(accumulate([3, 1, 4, 1, 5], max)), [3, 3, 4, 4, 5])
+        self.assertEqual(list(accumulate(['a', 'b'])), ['a', 'ab'])
+        self.assertEqual(list(accumulate([])), [])
+
+    def test_predicates(self):
+        self.assertEqual(list(dropwhile(lambda x: x < 3, [1, 2, 3, 1, 4])), [3, 1, 4])
+        self.assertEqual(list(takewhile(lambda x: x < 3, [1, 2, 3, 1, 4])), [1, 2])
+        self.assertEqual(list(filterfalse(lambda x: x % 2, range(6))), [0, 2, 4])
+        self.assertEqual(list(filterfalse(None, [0, 1, '', 'a'])), [0, ''])
+
+    def test_zip_longest(self):
+        self.assertEqual(list(zip_longest('ab', 'xyz')), [('a', 'x'), ('b', 'y'), (None, 'z')])
+        self.assertEqual(list(zip_longest('ab', [1], fillvalue='-')), [('a', 1), ('b', '-')])
+        self.assertEqual(list(zip_longest()), [])
+
+    def test_cycle(self):
+        self.assertEqual(list(islice(cycle('abc'), 7)), ['a', 'b', 'c', 'a', 'b', 'c', 'a'])
+        self.assertEqual(list(cycle([])), [])
+
+    def test_groupby_keys(self):
+        self.assertEqual([(k, list(g)) for k, g in groupby([None, None, 0, 0, None])],
+                         [(None, [None, None]), (0, [0, 0]), (None, [None])])
+        self.assertEqual([k for k, g in groupby(range(6), lambda x: x // 2 or None)], [None, 1, 2])
+
+    def test_groupby_shared_source(self):
+        it = groupby('aabbbc')
+        k1, g1 = next(it)
+        self.assertEqual(next(g1), 'a')
+        k2, g2 = next(it)
+        self.assertEqual((k1, k2), ('a', 'b'))
+        self.assertEqual(list(g1), [])
+        self.assertEqual(list(g2), ['b', 'b', 'b'])
+        self.assertEqual([(k, list(g)) for k, g in it], [('c', ['c'])])
+        self.assertEqual(type(g2).__name__, '_grouper')
+
+    def test_subclass(self):
+        class MyChain(chain):
+            pass
+        c = MyChain([1], [2])
+        self.assertIsInstance(c, chain)
+        self.assertEqual(list(c), [1, 2])
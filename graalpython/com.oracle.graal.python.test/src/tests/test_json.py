@@ -0,0 +1,156 @@
+# Copyright (c) 2018, 2019, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+import collections
+import json
+import math
+import unittest
+
+
+class JSONDecodeTest(unittest.TestCase):
+
+    def test_values(self):
+        self.assertEqual(json.loads('null'), None)
+        self.assertEqual(json.loads('true'), True)
+        self.assertEqual(json.loads('false'), False)
+        self.assertEqual(json.loads('"a\\u00e9\\n"'), 'aé\n')
+        self.assertEqual(json.loads('"\\ud83d\\ude00"'), '\U0001f600')
+        self.assertEqual(json.loads(' [1, -2, 3.5, 1e3, -0.25E-2] '), [1, -2, 3.5, 1000.0, -0.0025])
+        self.assertEqual(json.loads('123456789012345678901234567890'), 123456789012345678901234567890)
+        self.assertEqual(json.loads('{"a": {"b": []}, "c": [{}]}'), {"a": {"b": []}, "c": [{}]})
+        self.assertTrue(math.isnan(json.loads('NaN')))
+        self.assertEqual(json.loads('[-Infinity, Infinity]'), [-math.inf, math.inf])
+
+    def test_duplicate_keys(self):
+        self.assertEqual(list(json.loads('{"a": 1, "b": 2, "a": 3}').items()), [("a", 3), ("b", 2)])
+
+    def test_hooks(self):
+        self.assertEqual(json.loads('{"a": 1, "b": 2}', object_pairs_hook=list), [("a", 1), ("b", 2)])
+        self.assertEqual(json.loads('{"a": 1}', object_hook=lambda d: sorted(d)), ["a"])
+        od = json.loads('{"b": 1, "a": 2}', object_pairs_hook=collections.OrderedDict)
+        self.assertIsInstance(od, collections.OrderedDict)
+        self.assertEqual(json.loads('[1.5, 2]', parse_float=str, parse_int=str), ["1.5", "2"])
+        self.assertEqual(json.loads('NaN', parse_constant=lambda c: c), "NaN")
+
+    def test_errors(self):
+        cases = [
+            ('[1,', "Expecting value", 3),
+            ('[1', "Expecting ',' delimiter", 2),
+            ('{', "Expecting property name enclosed in double quotes", 1),
+            ('{"a"', "Expecting ':' delimiter", 4),
+            ('{"a":1,}', "Expecting property name enclosed in double quotes", 7),
+            ('[1,]', "Expecting value", 3),
+            ('["abc', "Unterminated string starting at", 1),
+            ('nul', "Expecting value", 0),
+            ('"\\u12"', "Invalid \\uXXXX escape", 2),
+        ]
+        for doc, msg, pos in cases:
+            with self.assertRaises(json.JSONDecodeError) as cm:
+                json.loads(doc)
+            self.assertTrue(cm.exception.msg.startswith(msg), (doc, cm.exception.msg))
+            self.assertEqual(cm.exception.pos, pos, doc)
+
+    def test_raw_decode(self):
+        self.assertEqual(json.JSONDecoder().raw_decode('[1] trailing'), ([1], 3))
+        with self.assertRaises(json.JSONDecodeError):
+            json.loads('[1] trailing')
+
+
+class JSONEncodeTest(unittest.TestCase):
+
+    def test_values(self):
+        self.assertEqual(json.dumps(None), 'null')
+        self.assertEqual(json.dumps([True, False, 1, 2 ** 70, 1.5, 1e16, "x"]), '[true, false, 1, 1180591620717411303424, 1.5, 1e+16, "x"]')
+        self.assertEqual(json.dumps("é\n\"\U0001f600"), '"\\u00e9\\n\\"\\ud83d\\ude00"')
+        self.assertEqual(json.dumps("é", ensure_ascii=False), '"é"')
+        self.assertEqual(json.dumps((1, [2, {}])), '[1, [2, {}]]')
+        self.assertEqual(json.dumps({"a": 1, "b": [1, 2]}, separators=(',', ':')), '{"a":1,"b":[1,2]}')
+
+    def test_keys(self):
+        self.assertEqual(json.dumps({1: 1, 1.5: 2, True: 3, None: 4}), '{"1": 3, "1.5": 2, "null": 4}')
+        self.assertEqual(json.dumps({"b": 1, "a": 2, "c": 3}, sort_keys=True), '{"a": 2, "b": 1, "c": 3}')
+        self.assertEqual(json.dumps({(1,): 1, "a": 2}, skipkeys=True), '{"a": 2}')
+        with self.assertRaises(TypeError):
+            json.dumps({(1,): 1})
+
+    def test_dict_subclass(self):
+        od = collections.OrderedDict([("b", 1), ("a", 2)])
+        od.move_to_end("b")
+        self.assertEqual(json.dumps(od), '{"a": 2, "b": 1}')
+
+    def test_floats(self):
+        self.assertEqual(json.dumps([math.inf, -math.inf]), '[Infinity, -Infinity]')
+        self.assertEqual(json.dumps(math.nan), 'NaN')
+        with self.assertRaises(ValueError):
+            json.dumps(math.inf, allow_nan=False)
+
+    def test_default(self):
+        self.assertEqual(json.dumps({1, 2} and [{3}], default=sorted), '[[3]]')
+        with self.assertRaises(TypeError):
+            json.dumps(object())
+
+    def test_circular(self):
+        l = []
+        l.append(l)
+        with self.assertRaises(ValueError):
+            json.dumps(l)
+        d = {}
+        d["d"] = d
+        with self.assertRaises(ValueError):
+            json.dumps(d)
+
+    def test_bools(self):
+        values = [bool(1), bool(0), 1 == 1, isinstance(1, str), not None]
+        self.assertEqual(json.dumps(values), '[true, false, true, false, true]')
+        self.assertEqual(json.dumps({bool(1): 1, bool(0): 0}), '{"true": 1, "false": 0}')
+
+    def test_deep_nesting(self):
+        l = []
+        d = {}
+        for _ in range(100000):
+            l = [l]
+            d = {"d": d}
+        with self.assertRaises(RecursionError):
+            json.dumps(l)
+        with self.assertRaises(RecursionError):
+            json.dumps(d, check_circular=False)
+
+    def test_round_trip(self):
+        doc = {"name": "graal", "values": [1, 2.5, None, True, "☃"], "nested": {"list": [[], {}]}}
+        self.assertEqual(json.loads(json.dumps(doc)), doc)
+        self.assertEqual(json.loads(json.dumps(doc, indent=2)), doc)
@@ -0,0 +1,101 @@
+# Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+
+import subprocess
+import sys
+
+# builtin modules whose core file is only run on first use, with a name each core file defines
+LAZY_MODULES = {
+    "unicodedata": "east_asian_width",
+    "_locale": "CHAR_MAX",
+    "_sre": "CODESIZE",
+    "_socket": "AF_INET",
+    "ctypes": "CDLL",
+    "_queue": "SimpleQueue",
+    "_pickle": "PicklingError",
+    "_struct": "error",
+    "_ast": "AST",
+    "_contextvars": "ContextVar",
+}
+
+
+def run_fresh(code):
+    # a fresh interpreter, so none of the modules has been used yet
+    return subprocess.check_output([sys.executable, "-c", code]).decode().strip()
+
+
+def test_load_on_first_use():
+    for name, attr in LAZY_MODULES.items():
+        code = "import %s; print(hasattr(%s, %r))" % (name, name, attr)
+        assert run_fresh(code) == "True", name
+
+
+def test_load_from_other_thread():
+    code = """if 1:
+        import threading
+        results = []
+        def load():
+            import _sre, _struct
+            results.append(_sre.CODESIZE > 0 and _struct.error.__name__ == "error")
+        t = threading.Thread(target=load)
+        t.start()
+        t.join()
+        print(results)
+    """
+    assert run_fresh(code) == "[True]"
+
+
+def test_load_concurrently():
+    code = """if 1:
+        import threading
+        modules = %r
+        barrier = threading.Barrier(4)
+        results = []
+        def load():
+            barrier.wait()
+            for name, attr in modules.items():
+                results.append(hasattr(__import__(name), attr))
+        threads = [threading.Thread(target=load) for i in range(4)]
+        for t in threads:
+            t.start()
+        for t in threads:
+            t.join()
+        print(len(results), all(results))
+    """ % LAZY_MODULES
+    assert run_fresh(code) == "%d True" % (4 * len(LAZY_MODULES))
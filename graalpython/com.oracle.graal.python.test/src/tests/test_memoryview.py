@@ -50,3 +50,71 @@ def test_tobytes():
     b = b"\xff\x00\x00"
     v = memoryview(b)
     assert v.tobytes() == b
+
+
+def test_slice_shares_memory():
+    data = bytearray(b'abcdef')
+    v = memoryview(data)[1:5:2]
+    assert v.tobytes() == b'bd'
+    assert v.obj is data
+    data[1] = ord('x')
+    assert v.tobytes() == b'xd'
+    v[1] = ord('y')
+    assert data == bytearray(b'axcyef')
+
+
+def test_cast():
+    data = bytearray(range(12))
+    v = memoryview(data).cast('B', (3, 4))
+    assert v.ndim == 2
+    assert v.shape == (3, 4)
+    assert v.strides == (4, 1)
+    assert v[1, 2] == 6
+    assert v.tolist() == [[0, 1, 2, 3], [4, 5, 6, 7], [8, 9, 10, 11]]
+    v[2, 3] = 42
+    assert data[11] == 42
+
+    h = memoryview(bytearray(8)).cast('h')
+    assert len(h) == 4
+    assert h.itemsize == 2
+    h[1] = -2
+    assert h[1] == -2
+    assert h.tolist() == [0, -2, 0, 0]
+    try:
+        memoryview(bytearray(3)).cast('i')
+    except TypeError:
+        pass
+    else:
+        assert False
+
+
+def test_readonly_and_release():
+    v = memoryview(b'abc')
+    assert v.readonly
+    try:
+        v[0] = 1
+    except TypeError:
+        pass
+    else:
+        assert False
+    assert hash(v) == hash(b'abc')
+    with memoryview(bytearray(b'abc')) as w:
+        assert w[0] == ord('a')
+    try:
+        len(w)
+    except ValueError:
+        pass
+    else:
+        assert False
+
+
+def test_consumers():
+    import struct
+    data = bytearray(8)
+    v = memoryview(data)
+    struct.pack_into('i', v, 4, 7)
+    assert struct.unpack_from('i', data, 4) == (7,)
+    assert bytes(v[4:]) == bytes(data[4:])
+    assert bytearray(v[:2]) == bytearray(2)
+    assert v[4:] == data[4:]
+    assert v.hex() == data.hex()
@@ -164,6 +164,46 @@ class MmapTests(unittest.TestCase):
 
 
 
+    def test_readline(self):
+        m = mmap.mmap(-1, 16)
+        m.write(b'ab\ncd\n\nef')
+        m.seek(0)
+        self.assertEqual(m.readline(), b'ab\n')
+        self.assertEqual(m.readline(), b'cd\n')
+        self.assertEqual(m.readline(), b'\n')
+        self.assertEqual(m.readline(), b'ef' + b'\0' * 7)
+        self.assertEqual(m.readline(), b'')
+        self.assertRaises(ValueError, m.read_byte)
+        m.close()
+
+    def test_write_through(self):
+        with open(TESTFN, 'wb') as f:
+            f.write(b'\0' * PAGESIZE)
+        with open(TESTFN, 'r+b') as f:
+            m = mmap.mmap(f.fileno(), 0)
+            self.assertEqual(len(m), PAGESIZE)
+            m[10:13] = b'abc'
+            m.seek(PAGESIZE - 3)
+            self.assertRaises(ValueError, m.write, b'defg')
+            m.write(b'def')
+            m.flush()
+            m.close()
+        with open(TESTFN, 'rb') as f:
+            data = f.read()
+        self.assertEqual(data[10:13], b'abc')
+        self.assertEqual(data[-3:], b'def')
+
+    def test_access_read(self):
+        with open(TESTFN, 'wb') as f:
+            f.write(b'foo')
+        with open(TESTFN, 'rb') as f:
+            m = mmap.mmap(f.fileno(), 3, access=mmap.ACCESS_READ)
+            self.assertEqual(m[:], b'foo')
+            self.assertRaises(TypeError, m.__setitem__, 0, 1)
+            self.assertRaises(TypeError, m.write, b'x')
+            m.close()
+        self.assertRaises(ValueError, m.__getitem__, 0)
+
     def test_context_manager(self):
         with mmap.mmap(-1, 10) as m:
             self.assertFalse(m.closed)
@@ -0,0 +1,148 @@
+# Copyright (c) 2018, 2019, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+
+import importlib
+import os
+import sys
+import tempfile
+import time
+import unittest
+
+
+class ParseCacheTests(unittest.TestCase):
+
+    def setUp(self):
+        self.dir = tempfile.mkdtemp()
+        sys.path.insert(0, self.dir)
+        # caches are not written by default
+        self.old_dont_write_bytecode = sys.dont_write_bytecode
+        sys.dont_write_bytecode = False
+
+    def tearDown(self):
+        sys.dont_write_bytecode = self.old_dont_write_bytecode
+        sys.path.remove(self.dir)
+        sys.modules.pop("parse_cache_mod", None)
+
+    def write_module(self, body):
+        path = os.path.join(self.dir, "parse_cache_mod.py")
+        with open(path, "w") as f:
+            f.write(body)
+        return path
+
+    def test_reimport(self):
+        path = self.write_module("def f(x):\n    return [i * x for i in range(3)]\nvalue = 'first'\n")
+        mod = importlib.import_module("parse_cache_mod")
+        self.assertEqual(mod.value, "first")
+        self.assertEqual(mod.f(2), [0, 2, 4])
+        if sys.implementation.name == "graalpython":
+            self.assertIn("parse_cache_mod.py.graalpython.tree", os.listdir(os.path.join(self.dir, "__pycache__")))
+
+        # served from the cache
+        sys.modules.pop("parse_cache_mod")
+        importlib.invalidate_caches()
+        mod = importlib.import_module("parse_cache_mod")
+        self.assertEqual(mod.value, "first")
+        self.assertEqual(mod.f(3), [0, 3, 6])
+
+        # a changed source invalidates the entry
+        self.write_module("value = 'second'\n")
+        st = os.stat(path)
+        os.utime(path, (st.st_atime, st.st_mtime + 2))
+        sys.modules.pop("parse_cache_mod")
+        importlib.invalidate_caches()
+        mod = importlib.import_module("parse_cache_mod")
+        self.assertEqual(mod.value, "second")
+        self.assertFalse(hasattr(mod, "f"))
+
+    @unittest.skipIf(sys.implementation.name == "cpython", "CPython's .pyc files only record mtime and size")
+    def test_same_mtime_different_source(self):
+        path = self.write_module("value = 1\n")
+        st = os.stat(path)
+        mod = importlib.import_module("parse_cache_mod")
+        self.assertEqual(mod.value, 1)
+        self.write_module("value = 2\n")
+        os.utime(path, (st.st_atime, st.st_mtime))
+        sys.modules.pop("parse_cache_mod")
+        importlib.invalidate_caches()
+        mod = importlib.import_module("parse_cache_mod")
+        self.assertEqual(mod.value, 2)
+
+    def test_dont_write_bytecode_flag(self):
+        if sys.flags.dont_write_bytecode:
+            self.assertTrue(self.old_dont_write_bytecode)
+
+    @unittest.skipIf(sys.implementation.name == "cpython", "CPython writes .pyc files")
+    def test_only_imports_write_cache(self):
+        path = self.write_module("value = 3\n")
+        with open(path) as f:
+            exec(compile(f.read(), path, "exec"), {})
+        self.assertFalse(os.path.exists(os.path.join(self.dir, "__pycache__")))
+        mod = importlib.import_module("parse_cache_mod")
+        self.assertEqual(mod.value, 3)
+        self.assertEqual(os.listdir(os.path.join(self.dir, "__pycache__")), ["parse_cache_mod.py.graalpython.tree"])
+
+    def test_dont_write_bytecode(self):
+        self.write_module("value = 4\n")
+        old = sys.dont_write_bytecode
+        sys.dont_write_bytecode = True
+        try:
+            mod = importlib.import_module("parse_cache_mod")
+        finally:
+            sys.dont_write_bytecode = old
+        self.assertEqual(mod.value, 4)
+        self.assertFalse(os.path.exists(os.path.join(self.dir, "__pycache__")))
+
+    @unittest.skipIf(sys.implementation.name == "cpython", "CPython writes .pyc files")
+    def test_dont_write_bytecode_truthiness(self):
+        cache_dir = os.path.join(self.dir, "__pycache__")
+        for value, written in ((0, True), ("", True), (None, True), (1, False), ("yes", False)):
+            self.write_module("value = %r\n" % (value,))
+            sys.modules.pop("parse_cache_mod", None)
+            importlib.invalidate_caches()
+            sys.dont_write_bytecode = value
+            try:
+                mod = importlib.import_module("parse_cache_mod")
+            finally:
+                sys.dont_write_bytecode = False
+            self.assertEqual(mod.value, value)
+            self.assertEqual(os.path.exists(cache_dir), written, value)
+            if written:
+                for name in os.listdir(cache_dir):
+                    os.remove(os.path.join(cache_dir, name))
+                os.rmdir(cache_dir)
@@ -37,8 +37,10 @@
 # OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
 # SOFTWARE.
 
-import unittest
+import copyreg
+import io
 import pickle
+import unittest
 
 class TestPickle(unittest.TestCase):
 
@@ -57,5 +59,159 @@ class TestPickle(unittest.TestCase):
         r_obj = pickle.loads(b_obj)
         self.assertEqual(r_obj, obj)
 
+
+class Point:
+    def __init__(self, x, y):
+        self.x = x
+        self.y = y
+
+    def __eq__(self, other):
+        return type(other) is Point and (self.x, self.y) == (other.x, other.y)
+
+
+class Reduced:
+    def __init__(self, value):
+        self.value = value
+
+    def __reduce__(self):
+        return (Reduced, (self.value,))
+
+
+class Slotted:
+    __slots__ = ('a', 'b')
+
+    def __init__(self, a, b):
+        self.a = a
+        self.b = b
+
+
+class NewArgs(int):
+    def __new__(cls, value, *, tag):
+        self = int.__new__(cls, value)
+        self.tag = tag
+        return self
+
+    def __getnewargs_ex__(self):
+        return (int(self),), {'tag': self.tag}
+
+
+def module_function():
+    pass
+
+
+VALUES = [
+    None, True, False,
+    0, 1, -1, 255, 256, 65535, 65536, -2 ** 31, 2 ** 31 - 1, 2 ** 31, -2 ** 63, 2 ** 100, -(2 ** 1000),
+    0.0, -1.5, 1e300, float('inf'),
+    '', 'abc', 'a\nb\\c', '\xe9€\U0001f600', 'x' * 300,
+    b'', b'abc', bytes(range(256)), b'y' * 300,
+    (), (1,), (1, 2), (1, 2, 3), (1, 2, 3, 4),
+    [], [1, 'a', None], list(range(2500)),
+    {}, {'a': 1, 2: [3]}, {i: str(i) for i in range(2500)},
+    set(), {1, 2, 3}, frozenset(), frozenset('abc'),
+    Point(1, 'two'), module_function, Point, len, pickle.Pickler,
+]
+
+
+class PickleTest(unittest.TestCase):
+
+    def test_roundtrip(self):
+        for proto in range(pickle.HIGHEST_PROTOCOL + 1):
+            for value in VALUES:
+                data = pickle.dumps(value, proto)
+                self.assertEqual(pickle.loads(data), value, (proto, value))
+
+    def test_shared_and_recursive(self):
+        for proto in range(pickle.HIGHEST_PROTOCOL + 1):
+            inner = [1, 2]
+            outer = [inner, inner]
+            outer.append(outer)
+            copy = pickle.loads(pickle.dumps(outer, proto))
+            self.assertIs(copy[0], copy[1])
+            self.assertIs(copy[2], copy)
+            d = {}
+            d['self'] = d
+            copy = pickle.loads(pickle.dumps(d, proto))
+            self.assertIs(copy['self'], copy)
+
+    def test_reduce(self):
+        for proto in range(pickle.HIGHEST_PROTOCOL + 1):
+            copy = pickle.loads(pickle.dumps(Reduced([1, 2]), proto))
+            self.assertIsInstance(copy, Reduced)
+            self.assertEqual(copy.value, [1, 2])
+            copy = pickle.loads(pickle.dumps(NewArgs(7, tag='t'), proto))
+            self.assertEqual((type(copy), int(copy), copy.tag), (NewArgs, 7, 't'))
+
+    def test_slots(self):
+        for proto in range(2, pickle.HIGHEST_PROTOCOL + 1):
+            copy = pickle.loads(pickle.dumps(Slotted(1, [2]), proto))
+            self.assertEqual((copy.a, copy.b), (1, [2]))
+
+    def test_file_objects(self):
+        f = io.BytesIO()
+        pickler = pickle.Pickler(f, 2)
+        pickler.dump([1, 2])
+        pickler.dump('abc')
+        f.seek(0)
+        unpickler = pickle.Unpickler(f)
+        self.assertEqual(unpickler.load(), [1, 2])
+        self.assertEqual(unpickler.load(), 'abc')
+        self.assertRaises(EOFError, unpickler.load)
+
+    def test_large_frames(self):
+        value = [b'z' * 100000, 'w' * 100000, list(range(100))]
+        f = io.BytesIO()
+        pickle.Pickler(f, 4).dump(value)
+        self.assertEqual(f.getvalue(), pickle.dumps(value, 4))
+        f.seek(0)
+        self.assertEqual(pickle.Unpickler(f).load(), value)
+
+    def test_persistent_id(self):
+        class MyPickler(pickle.Pickler):
+            def persistent_id(self, obj):
+                return 'key' if obj == 'secret' else None
+
+        class MyUnpickler(pickle.Unpickler):
+            def persistent_load(self, pid):
+                return 'loaded ' + pid
+
+        for proto in range(pickle.HIGHEST_PROTOCOL + 1):
+            f = io.BytesIO()
+            MyPickler(f, proto).dump(['public', 'secret'])
+            f.seek(0)
+            self.assertEqual(MyUnpickler(f).load(), ['public', 'loaded key'])
+
+    def test_dispatch_table(self):
+        f = io.BytesIO()
+        pickler = pickle.Pickler(f, 2)
+        pickler.dispatch_table = copyreg.dispatch_table.copy()
+        pickler.dispatch_table[Point] = lambda p: (complex, (p.x, p.y))
+        pickler.dump(Point(1, 2))
+        self.assertEqual(pickle.loads(f.getvalue()), 1 + 2j)
+
+    def test_find_class(self):
+        class Restricted(pickle.Unpickler):
+            def find_class(self, module, name):
+                raise pickle.UnpicklingError("forbidden: %s.%s" % (module, name))
+
+        data = pickle.dumps(Point(1, 2), 2)
+        self.assertRaisesRegex(pickle.UnpicklingError, "forbidden: .*Point", Restricted(io.BytesIO(data)).load)
+
+    def test_errors(self):
+        self.assertRaises(EOFError, pickle.loads, b'')
+        self.assertRaises(pickle.UnpicklingError, pickle.loads, b'\x80\x02.')
+        self.assertRaises(pickle.UnpicklingError, pickle.loads, b'\xff')
+        self.assertRaises(ValueError, pickle.dumps, 1, pickle.HIGHEST_PROTOCOL + 1)
+        self.assertRaises(TypeError, pickle.Pickler, object())
+        def unreachable():
+            pass
+        unreachable.__qualname__ = 'unreachable'
+        self.assertRaises(pickle.PicklingError, pickle.dumps, unreachable, 2)
+        deep = []
+        for _ in range(10000):
+            deep = [deep]
+        self.assertRaises(RecursionError, pickle.dumps, deep)
+
+
 if __name__ == '__main__':
     unittest.main()
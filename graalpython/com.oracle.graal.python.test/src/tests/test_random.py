@@ -4,6 +4,7 @@
 # Licensed under the PYTHON SOFTWARE FOUNDATION LICENSE VERSION 2
 
 import unittest
+import bisect
 import random
 import time
 
@@ -154,6 +155,19 @@ class TestBasicOps:
             self.assertEqual(type(sample), list)
             self.assertTrue(set(sample) <= set(data))
 
+    def test_choices_reproducible(self):
+        data = ['red', 'green', 'blue', 'yellow']
+        for k in (1, 15, 16, 1000):
+            self.gen.seed(8675309)
+            sample = self.gen.choices(data, k=k)
+            self.gen.seed(8675309)
+            self.assertEqual(sample, [data[int(self.gen.random() * 4)] for i in range(k)])
+
+            self.gen.seed(8675309)
+            sample = self.gen.choices(data, cum_weights=[1, 3, 6, 10], k=k)
+            self.gen.seed(8675309)
+            self.assertEqual(sample, [data[bisect.bisect([1, 3, 6, 10], self.gen.random() * 10)] for i in range(k)])
+
     def test_gauss(self):
         # Ensure that the seed() method initializes all the hidden state.  In
         # particular, through 2.2.1 it failed to reset a piece of state used
@@ -178,3 +192,32 @@ class TestBasicOps:
         randrange = self.gen.randrange
         k = sum(randrange(6755399441055744) % 3 == 2 for i in range(n))
         self.assertTrue(0.30 < k/n < .37, (k/n))
+
+    def test_reproducible_sequence(self):
+        # values produced by CPython's Mersenne Twister
+        self.gen.seed(12345)
+        self.assertEqual([self.gen.random() for i in range(3)], [0.41661987254534116, 0.010169169457068361, 0.8252065092537432])
+        self.assertEqual(self.gen.getrandbits(100), 1138382856001521497337215822146)
+
+    def test_internal_state(self):
+        import _random
+        gen = _random.Random()
+        gen.seed(42)
+        state = gen.getstate()
+        self.assertEqual(len(state), 625)
+        values = [gen.random() for i in range(10)]
+        gen.setstate(state)
+        self.assertEqual([gen.random() for i in range(10)], values)
+        if hasattr(gen, "_random_list"):
+            gen.setstate(state)
+            self.assertEqual(gen._random_list(10), values)
+            self.assertEqual(gen._random_list(0), [])
+            self.assertRaises(ValueError, gen._random_list, -1)
+        self.assertRaises(TypeError, gen.setstate, list(state))
+        self.assertRaises(ValueError, gen.setstate, state[:-1])
+        self.assertRaises(ValueError, gen.setstate, state[:-1] + (625,))
+        self.assertRaises(OverflowError, gen.setstate, (-1,) + state[1:])
+        self.assertRaises(OverflowError, gen.setstate, (2**64,) + state[1:])
+        # like in CPython, elements up to 2**64 - 1 are truncated to 32 bits
+        gen.setstate((state[0] + 2**64 - 2**32,) + state[1:])
+        self.assertEqual(gen.getstate(), state)
@@ -400,3 +400,109 @@ class ReTests(unittest.TestCase):
         self.assertTrue(match)
         assert "frac" in match.groupdict()
         assert match.groupdict()["frac"] == "1"
+
+    def test_match_object(self):
+        m = re.compile(r"(?P<first>\w+) (?P<second>\w+)?(x)?").search("  hello world", 1)
+        self.assertEqual(m.span(), (2, 13))
+        self.assertEqual(m.group("first", 2), ("hello", "world"))
+        self.assertEqual(m["second"], "world")
+        self.assertEqual(m.groups(), ("hello", "world", None))
+        self.assertEqual(m.groups("-"), ("hello", "world", "-"))
+        self.assertEqual(m.groupdict(), {"first": "hello", "second": "world"})
+        self.assertEqual(m.regs, ((2, 13), (2, 7), (8, 13), (-1, -1)))
+        self.assertEqual(m.lastindex, 2)
+        self.assertEqual(m.lastgroup, "second")
+        self.assertEqual(m.pos, 1)
+        self.assertEqual(m.string, "  hello world")
+        self.assertEqual(m.expand(r"\g<second> \1"), "world hello")
+        self.assertRaises(IndexError, m.group, 4)
+        self.assertRaises(IndexError, m.group, "third")
+
+    def test_pos_endpos(self):
+        p = re.compile(r"\w+")
+        self.assertEqual(p.search("ab cd", 1).group(), "b")
+        self.assertEqual(p.search("ab cd", 0, 1).group(), "a")
+        self.assertEqual(p.search("ab cd", 3, 100).group(), "cd")
+        self.assertIsNone(p.search("ab cd", 4, 2))
+        self.assertIsNone(p.match("ab cd", 2))
+        self.assertEqual(p.fullmatch("ab cd", 3).group(), "cd")
+        self.assertIsNone(p.fullmatch("ab cd", 0, 3))
+        self.assertEqual(p.findall("ab cd ef", 1, 7), ["b", "cd", "e"])
+
+    def test_finditer_and_scanner(self):
+        self.assertEqual([m.span() for m in re.finditer(r"\d*", "1a22")], [(0, 1), (1, 1), (2, 4), (4, 4)])
+        s = re.compile(r"\d").scanner("1a2")
+        self.assertEqual(s.match().group(), "1")
+        self.assertIsNone(s.match())
+        self.assertIsNone(s.search())
+
+    def test_sub_template_cache(self):
+        p = re.compile(r"(\w)(\d)")
+        for _ in range(3):
+            self.assertEqual(p.sub(r"\2\1", "a1 b2"), "1a 2b")
+            self.assertEqual(p.subn(rb"\2\1".decode(), "a1 b2", 1), ("1a b2", 1))
+        self.assertEqual(re.sub(rb"(a)", rb"<\1>", bytearray(b"xax")), b"x<a>x")
+        self.assertRaises(TypeError, p.sub, b"x", "a1")
+
+    def test_pattern_repr(self):
+        self.assertEqual(repr(re.compile("a")), "re.compile('a')")
+        self.assertEqual(repr(re.compile("a", re.I | re.M)), "re.compile('a', re.IGNORECASE|re.MULTILINE)")
+        self.assertEqual(repr(re.compile(b"a", re.I)), "re.compile(b'a', re.IGNORECASE)")
+        self.assertEqual(repr(re.match("b", "abc", re.I) or re.search("b", "abc")), "<re.Match object; span=(1, 2), match='b'>")
+
+    def test_lastindex_lastgroup(self):
+        self.assertEqual(re.match("(a)(b*)", "a").lastindex, 2)
+        self.assertEqual(re.match("((a)b*)", "a").lastindex, 1)
+        self.assertEqual(re.match("(a)((b)*)", "a").lastindex, 2)
+        self.assertEqual(re.match("(a)(?:(b)|c)", "ac").lastindex, 1)
+        self.assertEqual(re.match("(a(b))(c*)", "ab").lastindex, 3)
+        self.assertEqual(re.match("(?x) ( a # (not a group)\n (b*) )", "a").lastindex, 1)
+        self.assertEqual(re.match(r"[(](a)\((b*)", "(a(").lastindex, 2)
+        self.assertIsNone(re.match("a", "a").lastindex)
+        self.assertIsNone(re.match("(a)?b", "b").lastindex)
+        m = re.match("(?P<outer>(?P<inner>a)b*)(?P<tail>c*)", "a")
+        self.assertEqual(m.lastindex, 3)
+        self.assertEqual(m.lastgroup, "tail")
+        m = re.match("(?P<outer>(?P<inner>a)b*)", "a")
+        self.assertEqual(m.lastgroup, "outer")
+        self.assertIsNone(re.match("(?P<name>a)(b)", "ab").lastgroup)
+        self.assertEqual(re.match(b"(a)(b*)", b"a").lastindex, 2)
+
+    def test_empty_matches(self):
+        self.assertEqual(re.sub("x*", "-", "abxd"), "-a-b--d-")
+        self.assertEqual(re.subn("x*", "-", "abxd"), ("-a-b--d-", 5))
+        self.assertEqual(re.sub("", "-", "ab"), "-a-b-")
+        self.assertEqual(re.split("x*", "axbc"), ["", "a", "", "b", "c", ""])
+        self.assertEqual(re.split(r"\b", "a b"), ["", "a", " ", "b", ""])
+        self.assertEqual(re.split("(x*)", "ab"), ["", "", "a", "", "b", "", ""])
+        self.assertEqual(re.findall("x*", "axb"), ["", "x", "", ""])
+        self.assertEqual(re.findall("(a)|(b*)", "ab"), [("a", ""), ("", "b"), ("", "")])
+        self.assertEqual([m.span() for m in re.finditer("", "ab")], [(0, 0), (1, 1), (2, 2)])
+
+    def test_named_template_references(self):
+        p = re.compile(r"(?P<first>\w+) (?P<second>\w+)")
+        self.assertEqual(p.sub(r"\g<second> \g<first>", "hello world"), "world hello")
+        self.assertEqual(p.sub(r"\g<2> \g<1>", "hello world"), "world hello")
+        self.assertEqual(p.sub(r"\g<0>!", "hello world"), "hello world!")
+        self.assertEqual(p.sub(r"\g<second>0", "hello world"), "world0")
+        self.assertEqual(re.sub("(?P<x>a)|b", r"[\g<x>]", "ab"), "[a][]")
+        self.assertRaises(IndexError, p.sub, r"\g<third>", "hello world")
+        self.assertRaises(re.error, p.sub, r"\g<second", "hello world")
+        self.assertRaises(re.error, p.sub, r"\g<1a>", "hello world")
+        self.assertRaises(re.error, p.sub, r"\3", "hello world")
+
+    def test_bytes_patterns(self):
+        p = re.compile(rb"(?P<k>\w+)=(?P<v>\d*)")
+        m = p.search(b"  key=42")
+        self.assertEqual(m.group(), b"key=42")
+        self.assertEqual(m.group("k", "v"), (b"key", b"42"))
+        self.assertEqual(m.groupdict(), {"k": b"key", "v": b"42"})
+        self.assertEqual(m.lastgroup, "v")
+        self.assertEqual(m.expand(rb"\g<v>:\1"), b"42:key")
+        self.assertEqual(p.sub(rb"\g<v>=\g<k>", b"a=1 b=2"), b"1=a 2=b")
+        self.assertEqual(p.findall(b"a=1 b="), [(b"a", b"1"), (b"b", b"")])
+        self.assertEqual(re.split(rb"\s*", b"a b"), [b"", b"a", b"", b"b", b""])
+        self.assertEqual(re.sub(rb"\xff", b"!", b"a\xffb"), b"a!b")
+        self.assertEqual(re.match(rb"[\x80-\xff]+", bytearray(b"\x80\xfe")).group(), b"\x80\xfe")
+        self.assertRaises(TypeError, p.search, "key=42")
+        self.assertRaises(TypeError, re.compile("a").search, b"a")
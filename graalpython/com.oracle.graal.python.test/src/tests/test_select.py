@@ -0,0 +1,158 @@
+# Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+
+import os
+import select
+import sys
+import time
+import unittest
+
+
+class SelectTests(unittest.TestCase):
+    def setUp(self):
+        self.r, self.w = os.pipe()
+
+    def tearDown(self):
+        os.close(self.r)
+        os.close(self.w)
+
+    def test_select_pipe(self):
+        self.assertEqual(select.select([self.r], [], [], 0), ([], [], []))
+        self.assertEqual(select.select([self.r], [self.w], [], 0), ([], [self.w], []))
+        os.write(self.w, b"x")
+        self.assertEqual(select.select([self.r], [], [], 1), ([self.r], [], []))
+        os.read(self.r, 1)
+        self.assertEqual(select.select([self.r], [], [], 0), ([], [], []))
+
+    def test_select_timeout(self):
+        start = time.time()
+        self.assertEqual(select.select([self.r], [], [], 0.1), ([], [], []))
+        self.assertGreaterEqual(time.time() - start, 0.05)
+        self.assertRaises(ValueError, select.select, [], [], [], -1)
+
+    def test_select_fileno(self):
+        class F:
+            def __init__(self, fd):
+                self.fd = fd
+
+            def fileno(self):
+                return self.fd
+
+        f = F(self.r)
+        os.write(self.w, b"x")
+        self.assertEqual(select.select([f], [], [], 0), ([f], [], []))
+
+    def test_poll(self):
+        p = select.poll()
+        p.register(self.r, select.POLLIN)
+        self.assertEqual(p.poll(0), [])
+        os.write(self.w, b"x")
+        self.assertEqual(p.poll(100), [(self.r, select.POLLIN)])
+        p.modify(self.r, select.POLLOUT)
+        self.assertEqual(p.poll(0), [])
+        p.unregister(self.r)
+        self.assertRaises(KeyError, p.unregister, self.r)
+
+    def test_epoll(self):
+        with select.epoll() as ep:
+            ep.register(self.r, select.EPOLLIN)
+            ep.register(self.w, select.EPOLLOUT)
+            self.assertRaises(FileExistsError, ep.register, self.r)
+            self.assertEqual(ep.poll(0), [(self.w, select.EPOLLOUT)])
+            os.write(self.w, b"x")
+            self.assertEqual(sorted(ep.poll(1)), sorted([(self.r, select.EPOLLIN), (self.w, select.EPOLLOUT)]))
+            self.assertEqual(len(ep.poll(1, 1)), 1)
+            ep.unregister(self.w)
+            self.assertRaises(FileNotFoundError, ep.unregister, self.w)
+        self.assertTrue(ep.closed)
+        self.assertRaises(ValueError, ep.poll)
+
+    def test_poll_repeatedly(self):
+        p = select.poll()
+        p.register(self.r, select.POLLIN)
+        for i in range(50):
+            self.assertEqual(p.poll(0), [])
+            os.write(self.w, b"x")
+            self.assertEqual(p.poll(100), [(self.r, select.POLLIN)])
+            # the pipe must be usable with blocking reads between the calls
+            self.assertEqual(os.read(self.r, 1), b"x")
+        p.register(self.w, select.POLLOUT)
+        self.assertEqual(p.poll(0), [(self.w, select.POLLOUT)])
+        p.unregister(self.w)
+        self.assertEqual(p.poll(0), [])
+
+    def test_blocking_read_while_registered(self):
+        import threading
+        p = select.poll()
+        p.register(self.r, select.POLLIN)
+        self.assertEqual(p.poll(0), [])
+        # the read must wait for the data although the pipe stays registered with the poll object
+        writer = threading.Timer(0.1, os.write, (self.w, b"xy"))
+        writer.start()
+        self.assertEqual(os.read(self.r, 2), b"xy")
+        writer.join()
+        self.assertEqual(p.poll(0), [])
+
+    def test_many_poll_objects(self):
+        os.write(self.w, b"x")
+        for i in range(200):
+            p = select.poll()
+            p.register(self.r)
+            self.assertEqual(p.poll(0), [(self.r, select.POLLIN)])
+
+    def test_epoll_repeatedly(self):
+        with select.epoll() as ep:
+            ep.register(self.r, select.EPOLLIN)
+            for i in range(50):
+                self.assertEqual(ep.poll(0), [])
+                os.write(self.w, b"x")
+                self.assertEqual(ep.poll(1), [(self.r, select.EPOLLIN)])
+                self.assertEqual(os.read(self.r, 1), b"x")
+            ep.modify(self.r, select.EPOLLIN | select.EPOLLONESHOT)
+            os.write(self.w, b"x")
+            self.assertEqual(ep.poll(1), [(self.r, select.EPOLLIN)])
+            self.assertEqual(ep.poll(0), [])
+
+    @unittest.skipUnless(sys.implementation.name == "graalpython", "edge-triggered epoll is supported on CPython")
+    def test_epoll_edge_triggered_rejected(self):
+        with select.epoll() as ep:
+            self.assertRaises(OSError, ep.register, self.r, select.EPOLLIN | select.EPOLLET)
+            self.assertFalse(ep.poll(0))
+            ep.register(self.r, select.EPOLLIN)
+            self.assertRaises(OSError, ep.modify, self.r, select.EPOLLIN | select.EPOLLET)
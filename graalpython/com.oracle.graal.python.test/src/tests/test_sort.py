@@ -0,0 +1,208 @@
+# Copyright (c) 2018, 2019, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+
+import unittest
+
+
+class SortTests(unittest.TestCase):
+
+    def test_primitive(self):
+        lst = [3, 1, 2, -5, 1 << 20]
+        lst.sort()
+        self.assertEqual(lst, [-5, 1, 2, 3, 1 << 20])
+        lst.sort(reverse=True)
+        self.assertEqual(lst, [1 << 20, 3, 2, 1, -5])
+        lst = [1 << 40, 3, -(1 << 40)]
+        lst.sort()
+        self.assertEqual(lst, [-(1 << 40), 3, 1 << 40])
+        lst = [2.5, -1.0, 0.0, 1e300]
+        lst.sort()
+        self.assertEqual(lst, [-1.0, 0.0, 2.5, 1e300])
+
+    def test_float_zeros(self):
+        lst = [0.0, -0.0, 0.0, -0.0]
+        lst.sort()
+        self.assertEqual([str(x) for x in lst], ['0.0', '-0.0', '0.0', '-0.0'])
+
+    def test_mixed(self):
+        lst = [3, 2.5, 1 << 70, True, -1]
+        lst.sort()
+        self.assertEqual(lst, [-1, True, 2.5, 3, 1 << 70])
+
+    def test_strings(self):
+        lst = ["b", "a", "ab", "", "\U0001f600", "￿"]
+        lst.sort()
+        self.assertEqual(lst, ["", "a", "ab", "b", "￿", "\U0001f600"])
+
+    def test_key(self):
+        calls = []
+
+        def key(x):
+            calls.append(x)
+            return x % 3
+
+        lst = list(range(10))
+        lst.sort(key=key)
+        self.assertEqual(lst, [0, 3, 6, 9, 1, 4, 7, 2, 5, 8])
+        self.assertEqual(calls, list(range(10)))
+
+    def test_stable_reverse(self):
+        data = [(1, 'a'), (0, 'b'), (1, 'c'), (0, 'd')]
+        data.sort(key=lambda x: x[0], reverse=True)
+        self.assertEqual(data, [(1, 'a'), (1, 'c'), (0, 'b'), (0, 'd')])
+
+    def test_large(self):
+        import random
+        rnd = random.Random(42)
+        data = [rnd.randint(0, 100) for _ in range(2000)]
+        objs = [(x, i) for i, x in enumerate(data)]
+        objs.sort(key=lambda t: t[0])
+        self.assertEqual(objs, sorted(objs))
+
+    def test_merge_runs(self):
+        import random
+        rnd = random.Random(7)
+        n = 5000
+        # two runs built from interleaved blocks, so that merging gallops in both directions
+        for block in [1, 3, 100, 1000]:
+            first = [(i // block) * 2 * block + i % block for i in range(n)]
+            second = [x + block for x in first]
+            for data in [first + second, second + first, first[:n // 3] + second]:
+                objs = [(x, i) for i, x in enumerate(data)]
+                lst = list(objs)
+                lst.sort(key=lambda t: t[0])
+                self.assertEqual(lst, sorted(objs))
+        data = [rnd.randint(0, 50) if i % 7 else i for i in range(n)]
+        for rev in [False, True]:
+            lst = list(data)
+            lst.sort(reverse=rev)
+            self.assertEqual(lst, sorted(data, reverse=rev))
+
+    def test_exception_in_merge(self):
+        class C:
+            calls = 0
+
+            def __init__(self, v):
+                self.v = v
+
+            def __lt__(self, other):
+                C.calls += 1
+                if C.calls == 4500:
+                    raise KeyError
+                return self.v < other.v
+
+        objs = [C(v) for v in list(range(0, 4000, 2)) + list(range(1, 4000, 2))]
+        lst = list(objs)
+        self.assertRaises(KeyError, lst.sort)
+        self.assertEqual(set(map(id, lst)), set(map(id, objs)))
+
+    def test_custom_lt(self):
+        class C:
+            def __init__(self, v):
+                self.v = v
+
+            def __lt__(self, other):
+                return self.v < other.v
+
+        lst = [C(v) for v in [5, 3, 9, 1]]
+        lst.sort()
+        self.assertEqual([c.v for c in lst], [1, 3, 5, 9])
+
+    def test_modified_during_sort(self):
+        class Bad:
+            def __init__(self, v):
+                self.v = v
+
+            def __lt__(self, other):
+                lst2.append(1)
+                return self.v < other.v
+
+        lst2 = [Bad(2), Bad(1)]
+        self.assertRaises(ValueError, lst2.sort)
+        self.assertEqual(len(lst2), 2)
+
+    def test_key_sees_empty_list(self):
+        lst = [3, 1, 2]
+        seen = []
+
+        def key(x):
+            seen.append(len(lst))
+            return x
+        lst.sort(key=key)
+        self.assertEqual(seen, [0, 0, 0])
+        self.assertEqual(lst, [1, 2, 3])
+
+    def test_key_pops(self):
+        lst = [3, 1, 2]
+
+        def key(x):
+            try:
+                lst.pop()
+            except IndexError:
+                pass
+            return x
+        lst.sort(key=key)
+        self.assertEqual(lst, [1, 2, 3])
+
+    def test_key_appends(self):
+        lst = [3, 1, 2]
+
+        def key(x):
+            lst.append("x")
+            return x
+        self.assertRaises(ValueError, lst.sort, key=key)
+        self.assertEqual(lst, [1, 2, 3])
+
+    def test_key_raises(self):
+        lst = [3, 1, 2]
+
+        def key(x):
+            lst.append(x)
+            raise KeyError(x)
+        self.assertRaises(KeyError, lst.sort, key=key)
+        self.assertEqual(lst, [3, 1, 2])
+
+    def test_exception(self):
+        lst = [3, "a", 1, 2]
+        self.assertRaises(TypeError, lst.sort)
+        self.assertEqual(sorted(lst, key=str), [1, 2, 3, "a"])
+        self.assertEqual(len(lst), 4)
+
+    def test_keyword_only(self):
+        self.assertRaises(TypeError, [].sort, None)
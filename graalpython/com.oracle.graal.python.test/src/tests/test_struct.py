@@ -0,0 +1,181 @@
+# Copyright (c) 2018, 2019, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+
+import struct
+import unittest
+
+
+class StructTest(unittest.TestCase):
+
+    def test_calcsize(self):
+        self.assertEqual(struct.calcsize(""), 0)
+        self.assertEqual(struct.calcsize("<bhiq"), 15)
+        self.assertEqual(struct.calcsize("<3s4p2x"), 9)
+        self.assertEqual(struct.calcsize(">i h"), 6)
+        self.assertEqual(struct.calcsize(b"<d"), 8)
+        self.assertEqual(struct.calcsize("@bi"), 8)
+        self.assertEqual(struct.calcsize("@bq"), 16)
+
+    def test_pack_unpack_standard(self):
+        values = (-1, 255, -2, 65535, -3, 4294967295, -4, 2 ** 64 - 1, True, b"x", 1.5, 0.25, -2.0)
+        for order in "<>!=":
+            fmt = order + "bBhHiIqQ?cefd"
+            data = struct.pack(fmt, *values)
+            self.assertEqual(len(data), struct.calcsize(fmt))
+            self.assertEqual(struct.unpack(fmt, data), values)
+        self.assertEqual(struct.pack("<hI", 1, 2), b"\x01\x00\x02\x00\x00\x00")
+        self.assertEqual(struct.pack(">hI", 1, 2), b"\x00\x01\x00\x00\x00\x02")
+        self.assertEqual(struct.unpack("<l", b"\xff\xff\xff\xff"), (-1,))
+        self.assertEqual(struct.unpack("<L", b"\xff\xff\xff\xff"), (4294967295,))
+        self.assertEqual(struct.unpack("<Q", b"\xff" * 8), (2 ** 64 - 1,))
+
+    def test_native_alignment(self):
+        data = struct.pack("@bi", 1, 2)
+        self.assertEqual(len(data), 8)
+        self.assertEqual(struct.unpack("@bi", data), (1, 2))
+        self.assertEqual(struct.unpack("@bhb", struct.pack("@bhb", 1, -2, 3)), (1, -2, 3))
+
+    def test_repeat_and_strings(self):
+        self.assertEqual(struct.pack("<3h", 1, 2, 3), b"\x01\x00\x02\x00\x03\x00")
+        self.assertEqual(struct.pack("5s", b"abc"), b"abc\x00\x00")
+        self.assertEqual(struct.pack("2s", bytearray(b"abc")), b"ab")
+        self.assertEqual(struct.unpack("5s", b"abcde"), (b"abcde",))
+        self.assertEqual(struct.pack("5p", b"abcdefg"), b"\x04abcd")
+        self.assertEqual(struct.unpack("5p", b"\x02abcd"), (b"ab",))
+        self.assertEqual(struct.unpack("5p", b"\xffabcd"), (b"abcd",))
+        self.assertEqual(struct.pack("0s", b"abc"), b"")
+        self.assertEqual(struct.pack("x3xb", 1), b"\x00\x00\x00\x00\x01")
+
+    def test_floats(self):
+        self.assertEqual(struct.pack("<e", 1.0), b"\x00\x3c")
+        self.assertEqual(struct.pack("<e", 65504.0), b"\xff\x7b")
+        self.assertEqual(struct.pack("<e", 2.0029296875), b"\x02\x40")
+        self.assertEqual(struct.pack("<e", 5.960464477539063e-08), b"\x01\x00")
+        self.assertEqual(struct.unpack("<e", b"\x00\xfc"), (float("-inf"),))
+        self.assertNotEqual(struct.unpack("<e", b"\x00\x7e")[0], struct.unpack("<e", b"\x00\x7e")[0])
+        self.assertEqual(struct.unpack("<f", struct.pack("<f", 0.1)), (0.10000000149011612,))
+        self.assertEqual(struct.unpack(">d", struct.pack(">d", 0.1)), (0.1,))
+        self.assertRaises(OverflowError, struct.pack, "<e", 65520.0)
+        self.assertRaises(OverflowError, struct.pack, "<f", 1e300)
+        self.assertEqual(struct.unpack("<f", struct.pack("<f", float("inf"))), (float("inf"),))
+        self.assertEqual(struct.pack("<d", 3), struct.pack("<d", 3.0))
+
+    def test_integer_conversion(self):
+        class Index:
+            def __index__(self):
+                return 42
+
+        self.assertEqual(struct.pack("<i", Index()), b"\x2a\x00\x00\x00")
+        self.assertEqual(struct.pack("<Q", 2 ** 63), b"\x00" * 7 + b"\x80")
+        self.assertEqual(struct.pack("<q", -2 ** 63), b"\x00" * 7 + b"\x80")
+        self.assertRaises(struct.error, struct.pack, "<i", 1.0)
+        self.assertRaises(struct.error, struct.pack, "<i", "1")
+
+    def test_range_errors(self):
+        for fmt, value in [("b", 128), ("b", -129), ("B", 256), ("B", -1), ("<h", 32768), ("<H", 65536),
+                           ("<H", -1), ("<i", 2 ** 31), ("<I", 2 ** 32), ("<I", -1), ("<L", -1),
+                           ("h", 32768), ("H", 65536), ("i", -2 ** 31 - 1), ("I", 2 ** 32), ("Q", -1),
+                           ("q", 2 ** 63), ("Q", 2 ** 64)]:
+            self.assertRaises(struct.error, struct.pack, fmt, value)
+        for fmt, value in [("<q", 2 ** 63), ("<Q", 2 ** 64), ("<Q", -1)]:
+            self.assertRaises((OverflowError, struct.error), struct.pack, fmt, value)
+        try:
+            struct.pack("<h", 40000)
+        except struct.error as e:
+            self.assertIn("-32768 <= number <= 32767", str(e))
+        else:
+            self.fail("struct.error not raised")
+
+    def test_format_errors(self):
+        self.assertRaises(struct.error, struct.calcsize, "z")
+        self.assertRaises(struct.error, struct.calcsize, "10")
+        self.assertRaises(struct.error, struct.calcsize, "<P")
+        self.assertRaises(TypeError, struct.Struct, 1)
+        self.assertRaises(struct.error, struct.pack, "<i")
+        self.assertRaises(struct.error, struct.pack, "<i", 1, 2)
+        self.assertRaises(struct.error, struct.pack, "c", b"ab")
+        self.assertRaises(struct.error, struct.pack, "s", "a")
+        self.assertRaises(struct.error, struct.unpack, "<i", b"abc")
+        self.assertRaises(TypeError, struct.unpack, "<i", "abcd")
+
+    def test_struct_object(self):
+        s = struct.Struct("<hi")
+        self.assertEqual(s.format, "<hi")
+        self.assertEqual(s.size, 6)
+        self.assertEqual(struct.Struct(b"<hi").format, "<hi")
+        self.assertEqual(s.unpack(s.pack(1, 2)), (1, 2))
+        self.assertEqual(s.unpack_from(b"xx" + s.pack(3, 4), 2), (3, 4))
+        self.assertEqual(s.unpack_from(b"xx" + s.pack(3, 4), offset=-6), (3, 4))
+        self.assertRaises(struct.error, s.unpack_from, b"xx", 0)
+        self.assertEqual(s.unpack(memoryview(s.pack(5, 6))), (5, 6))
+        self.assertEqual(s.unpack(bytearray(s.pack(7, 8))), (7, 8))
+
+        class Sub(struct.Struct):
+            pass
+
+        self.assertEqual(Sub("<b").pack(1), b"\x01")
+
+    def test_pack_into(self):
+        s = struct.Struct("<hh")
+        buf = bytearray(8)
+        s.pack_into(buf, 2, 1, 2)
+        self.assertEqual(buf, bytearray(b"\x00\x00\x01\x00\x02\x00\x00\x00"))
+        struct.pack_into("<h", buf, -2, -1)
+        self.assertEqual(buf[-2:], bytearray(b"\xff\xff"))
+        self.assertRaises(struct.error, s.pack_into, buf, 6, 1, 2)
+        self.assertRaises(struct.error, s.pack_into, buf, -2, 1, 2)
+        self.assertRaises(struct.error, s.pack_into, buf, -12, 1, 2)
+        self.assertRaises(struct.error, s.pack_into, buf)
+        self.assertRaises(struct.error, s.pack_into, buf, 0, 1)
+        self.assertRaises(TypeError, s.pack_into, bytes(8), 0, 1, 2)
+
+    def test_iter_unpack(self):
+        it = struct.iter_unpack("<h", b"\x01\x00\x02\x00\x03\x00")
+        self.assertEqual(it.__length_hint__(), 3)
+        self.assertEqual(next(it), (1,))
+        self.assertEqual(it.__length_hint__(), 2)
+        self.assertEqual(list(it), [(2,), (3,)])
+        self.assertEqual(it.__length_hint__(), 0)
+        self.assertRaises(struct.error, struct.iter_unpack, "<h", b"\x01")
+        self.assertRaises(struct.error, struct.iter_unpack, "", b"")
+
+    def test_clearcache(self):
+        struct.pack("<i", 1)
+        struct._clearcache()
+        self.assertEqual(struct.pack("<i", 1), b"\x01\x00\x00\x00")
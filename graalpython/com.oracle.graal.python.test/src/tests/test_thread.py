@@ -512,3 +512,121 @@ if syscfg.get_config_var('WITH_THREAD'):
             lock.release()
             self.assertFalse(lock.locked())
             self.assertTrue(lock.acquire(blocking=False))
+
+
+    class GILTests(BaseTestCase):
+
+        def test_switchinterval(self):
+            orig = sys.getswitchinterval()
+            try:
+                sys.setswitchinterval(0.001)
+                self.assertAlmostEqual(sys.getswitchinterval(), 0.001)
+                self.assertRaises(ValueError, sys.setswitchinterval, 0)
+                self.assertRaises(ValueError, sys.setswitchinterval, -1.0)
+            finally:
+                sys.setswitchinterval(orig)
+
+        def test_join(self):
+            done = []
+
+            def f():
+                time.sleep(0.01)
+                done.append(1)
+            t = threading.Thread(target=f)
+            t.start()
+            t.join()
+            self.assertEqual(done, [1])
+            self.assertFalse(t.is_alive())
+
+        def test_concurrent_append(self):
+            items = []
+            N = 1000
+
+            def f():
+                for i in range(N):
+                    items.append(i)
+            threads = [threading.Thread(target=f) for _ in range(4)]
+            for t in threads:
+                t.start()
+            for t in threads:
+                t.join()
+            self.assertEqual(len(items), 4 * N)
+
+        def test_sleep_releases_gil(self):
+            start = time.time()
+            threads = [threading.Thread(target=time.sleep, args=(0.2,)) for _ in range(5)]
+            for t in threads:
+                t.start()
+            for t in threads:
+                t.join()
+            self.assertLess(time.time() - start, 0.2 * 5)
+
+        def test_blocking_read_releases_gil(self):
+            import subprocess
+            # one thread blocks on a buffered pipe and another one on stdin, while the main thread
+            # keeps running and only then feeds both of them
+            code = """if 1:
+                import os, sys, threading
+                r, w = os.pipe()
+                results = []
+                def read_pipe():
+                    with os.fdopen(r, 'rb') as f:
+                        results.append(f.read(5))
+                def read_stdin():
+                    results.append(sys.stdin.readline().strip())
+                threads = [threading.Thread(target=read_pipe), threading.Thread(target=read_stdin)]
+                for t in threads:
+                    t.start()
+                total = 0
+                for i in range(100000):
+                    total += i
+                print(total, flush=True)
+                os.write(w, b"hello")
+                os.close(w)
+                for t in threads:
+                    t.join()
+                print(sorted(map(str, results)))
+            """
+            p = subprocess.Popen([sys.executable, "-c", code], stdin=subprocess.PIPE, stdout=subprocess.PIPE)
+            # if the readers kept the GIL, the child would hang
+            watchdog = threading.Timer(60, p.kill)
+            watchdog.start()
+            try:
+                self.assertEqual(p.stdout.readline().strip(), str(sum(range(100000))).encode())
+                p.stdin.write(b"line\n")
+                p.stdin.flush()
+                out, _ = p.communicate(timeout=60)
+            finally:
+                watchdog.cancel()
+                if p.poll() is None:
+                    p.kill()
+            self.assertEqual(out.strip(), b"[\"b'hello'\", 'line']")
+
+        def test_shared_buffered_reader(self):
+            import os
+            r, w = os.pipe()
+            lines = [b"line %d\n" % i for i in range(2000)]
+            results = []
+
+            def write():
+                with os.fdopen(w, 'wb') as f:
+                    for i in range(0, len(lines), 100):
+                        f.write(b"".join(lines[i:i + 100]))
+                        f.flush()
+                        time.sleep(0.001)
+
+            with os.fdopen(r, 'rb') as f:
+                def read():
+                    while True:
+                        line = f.readline()
+                        if not line:
+                            break
+                        results.append(line)
+                threads = [threading.Thread(target=read) for _ in range(4)]
+                threads.append(threading.Thread(target=write))
+                for t in threads:
+                    t.start()
+                for t in threads:
+                    t.join()
+            # every line is read exactly once and in one piece
+            self.assertEqual(sorted(results), sorted(lines))
@@ -68,3 +68,171 @@ def test_import():
     except ImportError:
         imported = False
     assert imported
+
+
+def _raiser():
+    raise ValueError("the value")
+
+
+def _middle():
+    _raiser()
+
+
+def _tb_names(tb):
+    names = []
+    while tb is not None:
+        names.append(tb.tb_frame.f_code.co_name)
+        tb = tb.tb_next
+    return names
+
+
+def test_format_exc_name_unused():
+    import traceback
+
+    def handler():
+        try:
+            _middle()
+        except ValueError as e:
+            return traceback.format_exc()
+
+    s = handler()
+    assert "in handler" in s, s
+    assert "in _middle" in s, s
+    assert "in _raiser" in s, s
+    assert s.endswith("ValueError: the value\n"), s
+
+
+def test_format_exc_name_used():
+    import traceback
+
+    def handler():
+        try:
+            _middle()
+        except ValueError as e:
+            return e, traceback.format_exc()
+
+    e, s = handler()
+    assert "in handler" in s and "in _middle" in s and "in _raiser" in s, s
+    assert _tb_names(e.__traceback__) == ["handler", "_middle", "_raiser"], _tb_names(e.__traceback__)
+
+
+def test_traceback_name_unused_reraised():
+    def handler():
+        try:
+            _middle()
+        except ValueError as e:
+            raise
+
+    try:
+        handler()
+    except ValueError as e:
+        names = _tb_names(e.__traceback__)
+    assert names == ["test_traceback_name_unused_reraised", "handler", "_middle", "_raiser"], names
+
+
+def test_traceback_name_unused_exc_info():
+    def handler():
+        try:
+            _middle()
+        except ValueError as e:
+            return sys.exc_info()[1]
+
+    e = handler()
+    assert _tb_names(e.__traceback__) == ["handler", "_middle", "_raiser"], _tb_names(e.__traceback__)
+
+
+def test_traceback_escapes_through_frame_access():
+    import inspect
+
+    def via_locals():
+        try:
+            _middle()
+        except ValueError as e:
+            return locals()["e"]
+
+    def via_vars():
+        try:
+            _middle()
+        except ValueError as e:
+            return vars()["e"]
+
+    def via_eval():
+        try:
+            _middle()
+        except ValueError as e:
+            return eval("e")
+
+    def via_exec():
+        result = {}
+        try:
+            _middle()
+        except ValueError as e:
+            exec("result['e'] = e")
+        return result["e"]
+
+    def via_getframe():
+        try:
+            _middle()
+        except ValueError as e:
+            return sys._getframe().f_locals["e"]
+
+    def via_currentframe():
+        try:
+            _middle()
+        except ValueError as e:
+            return inspect.currentframe().f_locals["e"]
+
+    def via_closure():
+        try:
+            _middle()
+        except ValueError as e:
+            get = lambda: e
+            return get()
+
+    for fn in (via_locals, via_vars, via_eval, via_exec, via_getframe, via_currentframe, via_closure):
+        e = fn()
+        assert isinstance(e, ValueError), fn
+        assert _tb_names(e.__traceback__) == [fn.__name__, "_middle", "_raiser"], (fn, _tb_names(e.__traceback__))
+
+
+def test_traceback_escapes_through_callee():
+    def stash_caller_exception(stash):
+        stash.append(sys._getframe(1).f_locals["e"])
+
+    def via_callee(stash):
+        try:
+            _middle()
+        except ValueError as e:
+            stash_caller_exception(stash)
+
+    aliased_locals = locals
+
+    def via_aliased_builtin(stash):
+        try:
+            _middle()
+        except ValueError as e:
+            stash.append(aliased_locals()["e"])
+
+    for fn in (via_callee, via_aliased_builtin):
+        for run in range(20):
+            stash = []
+            fn(stash)
+            e = stash[0]
+            assert isinstance(e, ValueError), fn
+            # the first escape is only detected after the handler was left, later ones reify on bind
+            if run > 0:
+                assert _tb_names(e.__traceback__) == [fn.__name__, "_middle", "_raiser"], (fn, _tb_names(e.__traceback__))
+
+
+def test_traceback_name_unused_new_exception_in_handler():
+    def handler():
+        try:
+            _middle()
+        except ValueError as e:
+            raise KeyError("other")
+
+    try:
+        handler()
+    except KeyError as k:
+        e = k.__context__
+    assert _tb_names(e.__traceback__) == ["handler", "_middle", "_raiser"], _tb_names(e.__traceback__)
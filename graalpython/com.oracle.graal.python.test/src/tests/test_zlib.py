@@ -178,6 +178,80 @@ class CompressTests(BaseCompressTestCase, unittest.TestCase):
         compressed = zlib.compress(data, 1)
         self.assertEqual(zlib.decompress(compressed, 15, CustomInt()), data)
 
+class CompressObjectTests(unittest.TestCase):
+    # Test compression and decompression objects
+    def test_pair(self):
+        datasrc = HAMLET_SCENE * 128
+        for data in (datasrc, bytearray(datasrc), memoryview(datasrc)[10:]):
+            co = zlib.compressobj()
+            x1 = co.compress(data)
+            x2 = co.flush()
+            self.assertRaises(zlib.error, co.flush)
+            dco = zlib.decompressobj()
+            y1 = dco.decompress(x1 + x2)
+            y2 = dco.flush()
+            self.assertEqual(bytes(data), y1 + y2)
+            self.assertTrue(dco.eof)
+
+    def test_max_length(self):
+        data = HAMLET_SCENE * 128
+        comp = zlib.compress(data)
+        dco = zlib.decompressobj()
+        bufs = []
+        cb = comp
+        while cb:
+            chunk = dco.decompress(cb, 100)
+            self.assertFalse(len(chunk) > 100)
+            bufs.append(chunk)
+            cb = dco.unconsumed_tail
+        bufs.append(dco.flush())
+        self.assertEqual(data, b''.join(bufs))
+        self.assertRaises(ValueError, dco.decompress, b"", -1)
+
+    def test_unused_data(self):
+        comp = zlib.compress(HAMLET_SCENE) + b"trailing"
+        for chunk_size in (1, 7, len(comp)):
+            dco = zlib.decompressobj()
+            out = b"".join(dco.decompress(comp[i:i + chunk_size]) for i in range(0, len(comp), chunk_size))
+            self.assertEqual(out, HAMLET_SCENE)
+            self.assertEqual(dco.unused_data, b"trailing")
+            self.assertEqual(dco.unconsumed_tail, b"")
+
+    def test_sync_flush(self):
+        co = zlib.compressobj()
+        dco = zlib.decompressobj()
+        x = co.compress(HAMLET_SCENE) + co.flush(zlib.Z_SYNC_FLUSH)
+        self.assertEqual(dco.decompress(x), HAMLET_SCENE)
+
+    def test_wbits(self):
+        for wbits in (-zlib.MAX_WBITS, 16 + zlib.MAX_WBITS):
+            co = zlib.compressobj(wbits=wbits)
+            comp = co.compress(HAMLET_SCENE) + co.flush()
+            self.assertEqual(zlib.decompress(comp, wbits), HAMLET_SCENE)
+            dco = zlib.decompressobj(wbits)
+            self.assertEqual(b"".join(dco.decompress(comp[i:i + 3]) for i in range(0, len(comp), 3)), HAMLET_SCENE)
+        gz = zlib.compressobj(wbits=31)
+        comp = gz.compress(HAMLET_SCENE) + gz.flush()
+        self.assertEqual(zlib.decompress(comp, 32 + zlib.MAX_WBITS), HAMLET_SCENE)
+        self.assertEqual(zlib.decompress(zlib.compress(HAMLET_SCENE), 32 + zlib.MAX_WBITS), HAMLET_SCENE)
+        self.assertRaises(zlib.error, zlib.decompress, comp[:-8] + b"\0" * 8, 31)
+        self.assertRaises(ValueError, zlib.decompressobj, 100)
+
+    def test_zdict(self):
+        zdict = b"LAERTES OPHELIA POLONIUS"
+        co = zlib.compressobj(zdict=zdict)
+        comp = co.compress(HAMLET_SCENE) + co.flush()
+        self.assertEqual(zlib.decompressobj(zdict=zdict).decompress(comp), HAMLET_SCENE)
+        self.assertRaises(zlib.error, zlib.decompressobj().decompress, comp)
+
+    def test_gzip_module(self):
+        import gzip
+        data = HAMLET_SCENE * 1000
+        comp = gzip.compress(data)
+        self.assertEqual(gzip.decompress(comp), data)
+        self.assertEqual(gzip.decompress(comp + comp), data + data)
+
+
 HAMLET_SCENE = b"""
 LAERTES
 
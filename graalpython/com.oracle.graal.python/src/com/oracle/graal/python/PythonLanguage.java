@@ -28,6 +28,8 @@ package com.oracle.graal.python;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
@@ -239,9 +241,8 @@ public final class PythonLanguage extends TruffleLanguage<PythonContext> {
         PythonCore core = context.getCore();
         Source source = request.getSource();
         CompilerDirectives.transferToInterpreter();
-        if (core.isInitialized()) {
-            context.initializeMainModule(source.getPath());
-        }
+        // the call target may be reused by other contexts, so the main module is initialized when
+        // it is run (see TopLevelExceptionHandler)
         RootNode root = doParse(context, source);
         if (core.isInitialized()) {
             return Truffle.getRuntime().createCallTarget(new TopLevelExceptionHandler(this, root));
@@ -498,7 +499,7 @@ public final class PythonLanguage extends TruffleLanguage<PythonContext> {
             if (sourceBuilder == null) {
                 sourceBuilder = Source.newBuilder(ID, src, name);
             }
-            return newSource(ctxt, sourceBuilder);
+            return newSource(ctxt, sourceBuilder, !ctxt.getCore().isInitialized());
         } catch (IOException e) {
             throw new AssertionError();
         }
@@ -506,11 +507,11 @@ public final class PythonLanguage extends TruffleLanguage<PythonContext> {
 
     private final ConcurrentHashMap<Object, Source> cachedSources = new ConcurrentHashMap<>();
 
-    public Source newSource(PythonContext ctxt, TruffleFile src, String name) throws IOException {
+    public Source newSource(PythonContext ctxt, TruffleFile src, String name, boolean isCoreFile) throws IOException {
         try {
             return cachedSources.computeIfAbsent(src, t -> {
                 try {
-                    return newSource(ctxt, Source.newBuilder(ID, src).name(name));
+                    return newSource(ctxt, Source.newBuilder(ID, src).name(name), isCoreFile);
                 } catch (IOException e) {
                     throw new RuntimeException(e);
                 }
@@ -520,9 +521,8 @@ public final class PythonLanguage extends TruffleLanguage<PythonContext> {
         }
     }
 
-    private static Source newSource(PythonContext ctxt, SourceBuilder srcBuilder) throws IOException {
-        boolean coreIsInitialized = ctxt.getCore().isInitialized();
-        boolean internal = !coreIsInitialized && !PythonOptions.getOption(ctxt, PythonOptions.ExposeInternalSources);
+    private static Source newSource(PythonContext ctxt, SourceBuilder srcBuilder, boolean isCoreSource) throws IOException {
+        boolean internal = isCoreSource && !PythonOptions.getOption(ctxt, PythonOptions.ExposeInternalSources);
         if (internal) {
             srcBuilder.internal(true);
         }
@@ -535,12 +535,50 @@ public final class PythonLanguage extends TruffleLanguage<PythonContext> {
         singleContextAssumption.invalidate();
     }
 
-    private final ConcurrentHashMap<String, PCode> cachedCode = new ConcurrentHashMap<>();
+    /**
+     * Call targets of core modules, shared by all contexts of this language and keyed by file name.
+     */
+    private final ConcurrentHashMap<String, RootCallTarget> cachedCode = new ConcurrentHashMap<>();
+
+    /**
+     * Call targets of modules imported from files, shared by all contexts of this language. The key
+     * is the {@link Source}, so that a module is only reused if its contents did not change. A call
+     * target references its source, so the keys cannot be weak; the least recently used entries
+     * are dropped instead.
+     */
+    private final Map<Source, RootCallTarget> cachedModuleCode = new LinkedHashMap<Source, RootCallTarget>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
 
-    public PCode cacheCode(String filename, Supplier<PCode> createCode) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Source, RootCallTarget> eldest) {
+            return size() > MAX_CACHED_MODULE_CODE;
+        }
+    };
+    private static final int MAX_CACHED_MODULE_CODE = 512;
+
+    public RootCallTarget cacheCode(String filename, Supplier<RootCallTarget> createCode) {
         return cachedCode.computeIfAbsent(filename, f -> createCode.get());
     }
 
+    @TruffleBoundary
+    public RootCallTarget cacheModuleCode(Source source, Supplier<RootCallTarget> createCode) {
+        RootCallTarget callTarget;
+        synchronized (cachedModuleCode) {
+            callTarget = cachedModuleCode.get(source);
+        }
+        if (callTarget == null) {
+            // parse without holding the lock; if another thread was faster, its result is used
+            RootCallTarget newCallTarget = createCode.get();
+            synchronized (cachedModuleCode) {
+                callTarget = cachedModuleCode.putIfAbsent(source, newCallTarget);
+            }
+            if (callTarget == null) {
+                callTarget = newCallTarget;
+            }
+        }
+        return callTarget;
+    }
+
     public static Shape freshShape() {
         return newShape;
     }
@@ -34,10 +34,12 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.ServiceLoader;
+import java.util.Set;
 import java.util.function.Supplier;
 import java.util.logging.Level;
 
@@ -48,8 +50,10 @@ import com.oracle.graal.python.builtins.modules.ArrayModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.AstModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.AtexitModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.BinasciiModuleBuiltins;
+import com.oracle.graal.python.builtins.modules.BisectModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.BuiltinConstructors;
 import com.oracle.graal.python.builtins.modules.BuiltinFunctions;
+import com.oracle.graal.python.builtins.modules.CSVModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.CodecsModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.CollectionsModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.ContextvarsModuleBuiltins;
@@ -59,16 +63,20 @@ import com.oracle.graal.python.builtins.modules.FaulthandlerModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.FcntlModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.FunctoolsModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.GcModuleBuiltins;
+import com.oracle.graal.python.builtins.modules.HeapqModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.IOModuleBuiltins;
+import com.oracle.graal.python.builtins.modules.HashlibModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.ImpModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.InteropModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.ItertoolsModuleBuiltins;
+import com.oracle.graal.python.builtins.modules.JSONModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.JavaModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.LocaleModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.MMapModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.MarshalModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.MathModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.OperatorModuleBuiltins;
+import com.oracle.graal.python.builtins.modules.PickleModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.PosixModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.PosixSubprocessModuleBuiltins;
 import com.oracle.graal.python.builtins.modules.PyExpatModuleBuiltins;
@@ -96,8 +104,12 @@ import com.oracle.graal.python.builtins.objects.bytes.ByteArrayBuiltins;
 import com.oracle.graal.python.builtins.objects.bytes.BytesBuiltins;
 import com.oracle.graal.python.builtins.objects.cell.CellBuiltins;
 import com.oracle.graal.python.builtins.objects.code.CodeBuiltins;
-import com.oracle.graal.python.builtins.objects.code.PCode;
 import com.oracle.graal.python.builtins.objects.complex.ComplexBuiltins;
+import com.oracle.graal.python.builtins.objects.csv.CSVDialectBuiltins;
+import com.oracle.graal.python.builtins.objects.csv.CSVReaderBuiltins;
+import com.oracle.graal.python.builtins.objects.csv.CSVWriterBuiltins;
+import com.oracle.graal.python.builtins.objects.deque.DequeBuiltins;
+import com.oracle.graal.python.builtins.objects.deque.DequeIterBuiltins;
 import com.oracle.graal.python.builtins.objects.dict.DictBuiltins;
 import com.oracle.graal.python.builtins.objects.dict.DictItemsIteratorBuiltins;
 import com.oracle.graal.python.builtins.objects.dict.DictKeysIteratorBuiltins;
@@ -118,12 +130,32 @@ import com.oracle.graal.python.builtins.objects.function.PArguments;
 import com.oracle.graal.python.builtins.objects.function.PBuiltinFunction;
 import com.oracle.graal.python.builtins.objects.generator.GeneratorBuiltins;
 import com.oracle.graal.python.builtins.objects.getsetdescriptor.GetSetDescriptorTypeBuiltins;
+import com.oracle.graal.python.builtins.objects.hashlib.HashlibHashBuiltins;
 import com.oracle.graal.python.builtins.objects.ints.IntBuiltins;
 import com.oracle.graal.python.builtins.objects.ints.PInt;
+import com.oracle.graal.python.builtins.objects.io.BufferedIOBuiltins;
+import com.oracle.graal.python.builtins.objects.io.BytesIOBuiltins;
+import com.oracle.graal.python.builtins.objects.io.StringIOBuiltins;
+import com.oracle.graal.python.builtins.objects.io.Utf8TextIOBuiltins;
 import com.oracle.graal.python.builtins.objects.iterator.ForeignIteratorBuiltins;
 import com.oracle.graal.python.builtins.objects.iterator.IteratorBuiltins;
 import com.oracle.graal.python.builtins.objects.iterator.PZipBuiltins;
 import com.oracle.graal.python.builtins.objects.iterator.SentinelIteratorBuiltins;
+import com.oracle.graal.python.builtins.objects.itertools.AccumulateBuiltins;
+import com.oracle.graal.python.builtins.objects.itertools.ChainBuiltins;
+import com.oracle.graal.python.builtins.objects.itertools.CountBuiltins;
+import com.oracle.graal.python.builtins.objects.itertools.CycleBuiltins;
+import com.oracle.graal.python.builtins.objects.itertools.DropwhileBuiltins;
+import com.oracle.graal.python.builtins.objects.itertools.FilterfalseBuiltins;
+import com.oracle.graal.python.builtins.objects.itertools.GroupByBuiltins;
+import com.oracle.graal.python.builtins.objects.itertools.GrouperBuiltins;
+import com.oracle.graal.python.builtins.objects.itertools.IsliceBuiltins;
+import com.oracle.graal.python.builtins.objects.itertools.RepeatBuiltins;
+import com.oracle.graal.python.builtins.objects.itertools.StarmapBuiltins;
+import com.oracle.graal.python.builtins.objects.itertools.TakewhileBuiltins;
+import com.oracle.graal.python.builtins.objects.itertools.ZipLongestBuiltins;
+import com.oracle.graal.python.builtins.objects.json.JSONEncoderBuiltins;
+import com.oracle.graal.python.builtins.objects.json.JSONScannerBuiltins;
 import com.oracle.graal.python.builtins.objects.list.ListBuiltins;
 import com.oracle.graal.python.builtins.objects.mappingproxy.MappingproxyBuiltins;
 import com.oracle.graal.python.builtins.objects.memoryview.BufferBuiltins;
@@ -139,16 +171,25 @@ import com.oracle.graal.python.builtins.objects.module.ModuleBuiltins;
 import com.oracle.graal.python.builtins.objects.module.PythonModule;
 import com.oracle.graal.python.builtins.objects.object.ObjectBuiltins;
 import com.oracle.graal.python.builtins.objects.object.PythonObject;
+import com.oracle.graal.python.builtins.objects.pickle.PicklerBuiltins;
+import com.oracle.graal.python.builtins.objects.pickle.UnpicklerBuiltins;
 import com.oracle.graal.python.builtins.objects.posix.DirEntryBuiltins;
 import com.oracle.graal.python.builtins.objects.posix.ScandirIteratorBuiltins;
 import com.oracle.graal.python.builtins.objects.random.RandomBuiltins;
 import com.oracle.graal.python.builtins.objects.range.RangeBuiltins;
 import com.oracle.graal.python.builtins.objects.referencetype.ReferenceTypeBuiltins;
 import com.oracle.graal.python.builtins.objects.reversed.ReversedBuiltins;
+import com.oracle.graal.python.builtins.objects.select.EpollBuiltins;
+import com.oracle.graal.python.builtins.objects.select.PollBuiltins;
 import com.oracle.graal.python.builtins.objects.set.FrozenSetBuiltins;
 import com.oracle.graal.python.builtins.objects.set.SetBuiltins;
 import com.oracle.graal.python.builtins.objects.slice.SliceBuiltins;
+import com.oracle.graal.python.builtins.objects.sre.SREMatchBuiltins;
+import com.oracle.graal.python.builtins.objects.sre.SREPatternBuiltins;
+import com.oracle.graal.python.builtins.objects.sre.SREScannerBuiltins;
 import com.oracle.graal.python.builtins.objects.str.StringBuiltins;
+import com.oracle.graal.python.builtins.objects.struct.StructBuiltins;
+import com.oracle.graal.python.builtins.objects.struct.StructUnpackIteratorBuiltins;
 import com.oracle.graal.python.builtins.objects.superobject.SuperBuiltins;
 import com.oracle.graal.python.builtins.objects.thread.LockBuiltins;
 import com.oracle.graal.python.builtins.objects.thread.RLockBuiltins;
@@ -159,10 +200,13 @@ import com.oracle.graal.python.builtins.objects.type.PythonBuiltinClass;
 import com.oracle.graal.python.builtins.objects.type.TypeBuiltins;
 import com.oracle.graal.python.builtins.objects.type.TypeNodes.GetNameNode;
 import com.oracle.graal.python.builtins.objects.zipimporter.ZipImporterBuiltins;
+import com.oracle.graal.python.builtins.objects.zlib.ZLibCompressBuiltins;
+import com.oracle.graal.python.builtins.objects.zlib.ZLibDecompressBuiltins;
+import com.oracle.graal.python.runtime.GlobalInterpreterLock;
 import com.oracle.graal.python.runtime.PythonContext;
 import com.oracle.graal.python.runtime.PythonCore;
+import com.oracle.graal.python.runtime.PythonOptions;
 import com.oracle.graal.python.runtime.PythonParser;
-import com.oracle.graal.python.runtime.PythonParser.ParserMode;
 import com.oracle.graal.python.runtime.exception.PException;
 import com.oracle.graal.python.runtime.object.PythonObjectFactory;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
@@ -211,7 +255,6 @@ public final class Python3Core implements PythonCore {
                         "base_exception",
                         TruffleCextBuiltins.PYTHON_CEXT,
                         "_collections",
-                        "memoryview",
                         "list",
                         "_codecs",
                         "bytes",
@@ -224,11 +267,12 @@ public final class Python3Core implements PythonCore {
                         "_sysconfig",
                         "_socket",
                         "ctypes",
-                        "zlib",
                         "termios",
                         "zipimport",
                         "mmap",
                         "_queue",
+                        "_pickle",
+                        "_struct",
                         "_ast",
                         "java",
                         "_contextvars"));
@@ -236,6 +280,29 @@ public final class Python3Core implements PythonCore {
         return coreFiles.toArray(new String[coreFiles.size()]);
     }
 
+    /**
+     * Core files that only add to their own builtin module. Unless the context is pre-initialized,
+     * they are not loaded at startup, but when the module is first looked up (e.g. on import).
+     */
+    private static final String[] LAZY_CORE_FILES = new String[]{
+                    "unicodedata",
+                    "_locale",
+                    "_sre",
+                    "_socket",
+                    "ctypes",
+                    "_queue",
+                    "_pickle",
+                    "_struct",
+                    "_ast",
+                    "_contextvars"};
+
+    private final Set<String> pendingCoreFiles = new HashSet<>();
+    // core files currently being loaded and the loading threads, guarded by pendingCoreFiles
+    private final Map<String, Thread> loadingCoreFiles = new HashMap<>();
+    // whether there are pending or loading core files, lets lookups skip the lock once all are
+    // loaded
+    private volatile boolean hasLazyCoreFiles;
+
     private final PythonBuiltins[] builtins;
 
     private static final PythonBuiltins[] initializeBuiltins() {
@@ -304,14 +371,49 @@ public final class Python3Core implements PythonCore {
                         new WeakRefModuleBuiltins(),
                         new ReferenceTypeBuiltins(),
                         new IOModuleBuiltins(),
+                        new BufferedIOBuiltins(),
+                        new BytesIOBuiltins(),
+                        new StringIOBuiltins(),
+                        new Utf8TextIOBuiltins(),
+                        new PollBuiltins(),
+                        new EpollBuiltins(),
                         new StringModuleBuiltins(),
                         new ItertoolsModuleBuiltins(),
                         new FunctoolsModuleBuiltins(),
                         new ErrnoModuleBuiltins(),
                         new CodecsModuleBuiltins(),
                         new CollectionsModuleBuiltins(),
+                        new DequeBuiltins(),
+                        new JSONModuleBuiltins(),
+                        new JSONScannerBuiltins(),
+                        new JSONEncoderBuiltins(),
+                        new PickleModuleBuiltins(),
+                        new PicklerBuiltins(),
+                        new UnpicklerBuiltins(),
+                        new HeapqModuleBuiltins(),
+                        new BisectModuleBuiltins(),
+                        new StructModuleBuiltins(),
+                        new StructBuiltins(),
+                        new StructUnpackIteratorBuiltins(),
+                        new DequeIterBuiltins(),
                         new JavaModuleBuiltins(),
                         new SREModuleBuiltins(),
+                        new SREPatternBuiltins(),
+                        new SREMatchBuiltins(),
+                        new SREScannerBuiltins(),
+                        new RepeatBuiltins(),
+                        new CountBuiltins(),
+                        new ChainBuiltins(),
+                        new StarmapBuiltins(),
+                        new IsliceBuiltins(),
+                        new AccumulateBuiltins(),
+                        new DropwhileBuiltins(),
+                        new TakewhileBuiltins(),
+                        new FilterfalseBuiltins(),
+                        new ZipLongestBuiltins(),
+                        new CycleBuiltins(),
+                        new GroupByBuiltins(),
+                        new GrouperBuiltins(),
                         new AstModuleBuiltins(),
                         new SelectModuleBuiltins(),
                         new SocketModuleBuiltins(),
@@ -336,9 +438,17 @@ public final class Python3Core implements PythonCore {
                         new ZipImporterBuiltins(),
                         new ZipImportModuleBuiltins(),
                         new ZLibModuleBuiltins(),
+                        new ZLibCompressBuiltins(),
+                        new ZLibDecompressBuiltins(),
                         new MMapModuleBuiltins(),
                         new FcntlModuleBuiltins(),
                         new MMapBuiltins(),
+                        new HashlibModuleBuiltins(),
+                        new HashlibHashBuiltins(),
+                        new CSVModuleBuiltins(),
+                        new CSVDialectBuiltins(),
+                        new CSVReaderBuiltins(),
+                        new CSVWriterBuiltins(),
                         new QueueModuleBuiltins(),
                         new ThreadModuleBuiltins(),
                         new ThreadBuiltins(),
@@ -403,6 +513,10 @@ public final class Python3Core implements PythonCore {
 
     public void initialize(PythonContext context) {
         singletonContext = context;
+        if (!TruffleOptions.AOT && PythonOptions.getOption(context, PythonOptions.LazyCoreModules)) {
+            pendingCoreFiles.addAll(Arrays.asList(LAZY_CORE_FILES));
+            hasLazyCoreFiles = true;
+        }
         initializeJavaCore();
         initializePythonCore();
         initialized = true;
@@ -419,11 +533,86 @@ public final class Python3Core implements PythonCore {
         String coreHome = PythonCore.getCoreHomeOrFail();
         loadFile("builtins", coreHome);
         for (String s : coreFiles) {
-            loadFile(s, coreHome);
+            if (!isPendingCoreFile(s)) {
+                loadFile(s, coreHome);
+            }
         }
         initialized = true;
     }
 
+    private boolean isPendingCoreFile(String name) {
+        synchronized (pendingCoreFiles) {
+            return pendingCoreFiles.contains(name);
+        }
+    }
+
+    /**
+     * Loads the core file of a builtin module that was skipped at startup. The file is run by the
+     * first thread looking up the module. Other threads looking it up meanwhile wait for it to
+     * finish without holding the GIL, since the loading thread may give up the GIL while running
+     * the file. The loading thread itself gets the partially initialized module, just like a
+     * recursive import would.
+     */
+    private void loadPendingCoreFile(String name) {
+        Thread currentThread = Thread.currentThread();
+        boolean mustWait;
+        synchronized (pendingCoreFiles) {
+            if (pendingCoreFiles.remove(name)) {
+                loadingCoreFiles.put(name, currentThread);
+                mustWait = false;
+            } else {
+                Thread loader = loadingCoreFiles.get(name);
+                if (loader == null || loader == currentThread) {
+                    return;
+                }
+                mustWait = true;
+            }
+        }
+        if (mustWait) {
+            waitForCoreFile(name);
+            return;
+        }
+        boolean loaded = false;
+        try {
+            loadFile(name, PythonCore.getCoreHomeOrFail());
+            loaded = true;
+        } finally {
+            synchronized (pendingCoreFiles) {
+                loadingCoreFiles.remove(name);
+                if (!loaded) {
+                    // let the next lookup try again
+                    pendingCoreFiles.add(name);
+                }
+                hasLazyCoreFiles = !pendingCoreFiles.isEmpty() || !loadingCoreFiles.isEmpty();
+                pendingCoreFiles.notifyAll();
+            }
+        }
+    }
+
+    private void waitForCoreFile(String name) {
+        GlobalInterpreterLock gil = getContext().getGil();
+        boolean released = gil.release();
+        boolean interrupted = false;
+        try {
+            synchronized (pendingCoreFiles) {
+                while (loadingCoreFiles.containsKey(name)) {
+                    try {
+                        pendingCoreFiles.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+        } finally {
+            gil.acquire(released);
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // if the loader failed, the file is pending again and we try it ourselves
+        loadPendingCoreFile(name);
+    }
+
     @Override
     public void postInitialize() {
         if (!TruffleOptions.AOT || ImageInfo.inImageRuntimeCode()) {
@@ -441,7 +630,11 @@ public final class Python3Core implements PythonCore {
 
     @TruffleBoundary
     public PythonModule lookupBuiltinModule(String name) {
-        return builtinModules.get(name);
+        PythonModule module = builtinModules.get(name);
+        if (module != null && hasLazyCoreFiles) {
+            loadPendingCoreFile(name);
+        }
+        return module;
     }
 
     public PythonBuiltinClass lookupType(PythonBuiltinClassType type) {
@@ -475,7 +668,10 @@ public final class Python3Core implements PythonCore {
         PythonModule sysModule = builtinModules.get("sys");
         PDict sysModules = (PDict) sysModule.getAttribute("modules");
         for (Entry<String, PythonModule> entry : builtinModules.entrySet()) {
-            sysModules.setItem(entry.getKey(), entry.getValue());
+            // modules with pending core files are imported through the builtin importer
+            if (!isPendingCoreFile(entry.getKey())) {
+                sysModules.setItem(entry.getKey(), entry.getValue());
+            }
         }
     }
 
@@ -510,7 +706,7 @@ public final class Python3Core implements PythonCore {
         for (PythonBuiltinClassType builtinClass : PythonBuiltinClassType.VALUES) {
             String module = builtinClass.getPublicInModule();
             if (module != null) {
-                PythonModule pythonModule = lookupBuiltinModule(module);
+                PythonModule pythonModule = builtinModules.get(module);
                 if (pythonModule != null) {
                     pythonModule.setAttribute(builtinClass.getName(), lookupType(builtinClass));
                 }
@@ -591,7 +787,7 @@ public final class Python3Core implements PythonCore {
         TruffleFile file = env.getTruffleFile(prefix + suffix);
         try {
             if (file.exists()) {
-                return getLanguage().newSource(ctxt, file, basename);
+                return getLanguage().newSource(ctxt, file, basename, true);
             }
         } catch (SecurityException | IOException t) {
             // fall through;
@@ -602,8 +798,8 @@ public final class Python3Core implements PythonCore {
 
     private void loadFile(String s, String prefix) {
         Source source = getSource(s, prefix);
-        Supplier<PCode> getCode = () -> objectFactory.createCode(Truffle.getRuntime().createCallTarget((RootNode) getParser().parse(ParserMode.File, this, source, null)));
-        RootCallTarget callTarget = getLanguage().cacheCode(source.getName(), getCode).getRootCallTarget();
+        Supplier<RootCallTarget> getCode = () -> Truffle.getRuntime().createCallTarget((RootNode) getParser().parseModule(this, source, writeCoreFileCache()));
+        RootCallTarget callTarget = getLanguage().cacheCode(source.getName(), getCode);
         PythonModule mod = lookupBuiltinModule(s);
         if (mod == null) {
             // use an anonymous module for the side-effects
@@ -612,6 +808,11 @@ public final class Python3Core implements PythonCore {
         callTarget.call(PArguments.withGlobals(mod));
     }
 
+    private boolean writeCoreFileCache() {
+        PythonContext context = getContext();
+        return PythonOptions.getOption(context, PythonOptions.WriteParseCache) && !PythonOptions.getFlag(context, PythonOptions.DontWriteBytecodeFlag);
+    }
+
     public PythonObjectFactory factory() {
         return objectFactory;
     }
@@ -97,6 +97,45 @@ public enum PythonBuiltinClassType implements LazyPythonClass {
     PClassmethod("classmethod", "builtins"),
     PScandirIterator("ScandirIterator", "posix"),
     PDirEntry("DirEntry", "posix"),
+    PBufferedReader("BufferedReader", "_io"),
+    PBufferedWriter("BufferedWriter", "_io"),
+    PBufferedRandom("BufferedRandom", "_io"),
+    PBytesIO("BytesIO", "_io"),
+    PStringIO("StringIO", "_io"),
+    PUtf8TextIO("_Utf8TextIO", "_io"),
+    PPoll("poll", "select"),
+    PEpoll("epoll", "select"),
+    PDeque("deque", "_collections"),
+    PDequeIter("_deque_iterator", "_collections"),
+    PDequeRevIter("_deque_reverse_iterator", "_collections"),
+    PJSONScanner("make_scanner", "_json"),
+    PJSONEncoder("make_encoder", "_json"),
+    PPickler("Pickler", "_pickle"),
+    PUnpickler("Unpickler", "_pickle"),
+    PStruct("Struct", "_struct"),
+    PStructUnpackIterator("unpack_iterator", "_struct"),
+    PSREPattern("SRE_Pattern", "_sre"),
+    PSREMatch("SRE_Match", "_sre"),
+    PSREScanner("SRE_Scanner", "_sre"),
+    PRepeat("repeat", "itertools"),
+    PCount("count", "itertools"),
+    PChain("chain", "itertools"),
+    PStarmap("starmap", "itertools"),
+    PIslice("islice", "itertools"),
+    PAccumulate("accumulate", "itertools"),
+    PDropwhile("dropwhile", "itertools"),
+    PTakewhile("takewhile", "itertools"),
+    PFilterfalse("filterfalse", "itertools"),
+    PZipLongest("zip_longest", "itertools"),
+    PCycle("cycle", "itertools"),
+    PGroupBy("groupby", "itertools"),
+    PGrouper("_grouper", "itertools"),
+    PHashlibHash("HASH", "_hashlib"),
+    PZLibCompress("Compress", "zlib"),
+    PZLibDecompress("Decompress", "zlib"),
+    PCSVDialect("Dialect", "_csv"),
+    PCSVReader("reader"),
+    PCSVWriter("writer"),
 
     // Errors and exceptions:
 
@@ -141,6 +180,7 @@ public enum PythonBuiltinClassType implements LazyPythonClass {
     TimeoutError("TimeoutError", "builtins"),
     ZipImportError("ZipImportError", "zipimport"),
     ZLibError("error", "zlib"),
+    CSVError("Error", "_csv"),
 
     // todo: all OS errors
 
@@ -271,6 +311,7 @@ public enum PythonBuiltinClassType implements LazyPythonClass {
         TimeoutError.base = OSError;
         ZipImportError.base = ImportError;
         ZLibError.base = Exception;
+        CSVError.base = Exception;
 
         ReferenceError.base = Exception;
         RuntimeError.base = Exception;
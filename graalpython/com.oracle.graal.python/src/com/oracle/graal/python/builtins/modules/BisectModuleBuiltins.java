@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.modules;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__GT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__LT__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.IndexError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.list.ListBuiltins.ListInsertNode;
+import com.oracle.graal.python.builtins.objects.list.ListBuiltinsFactory;
+import com.oracle.graal.python.builtins.objects.list.PList;
+import com.oracle.graal.python.nodes.attributes.GetAttributeNode.GetFixedAttributeNode;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.expression.BinaryComparisonNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.nodes.subscript.GetItemNode;
+import com.oracle.graal.python.nodes.util.CastToIndexNode;
+import com.oracle.graal.python.runtime.sequence.storage.DoubleSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.IntSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.LongSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+
+@CoreFunctions(defineModule = "_bisect")
+public class BisectModuleBuiltins extends PythonBuiltins {
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return BisectModuleBuiltinsFactory.getFactories();
+    }
+
+    /**
+     * Binary search shared by the bisect and insort functions. Exact lists are searched on their
+     * storage, and int, long or double storages are searched on the primitive array when the item
+     * has a matching type. Everything else goes through {@code __getitem__} and a cached
+     * {@code <}.
+     */
+    abstract static class BisectBaseNode extends PythonBuiltinNode {
+        @Child private CastToIndexNode castToIndexNode;
+        @Child private BuiltinFunctions.LenNode lenNode;
+        @Child private GetItemNode getItemNode;
+        @Child private BinaryComparisonNode ltNode;
+
+        private final IsBuiltinClassProfile isListProfile = IsBuiltinClassProfile.create();
+
+        protected final int bisect(Object a, Object x, Object lo, Object hi, boolean isRight) {
+            int low = lo instanceof PNone ? 0 : castToIndex(lo);
+            if (low < 0) {
+                throw raise(ValueError, "lo must be non-negative");
+            }
+            if (isExactList(a)) {
+                PList list = (PList) a;
+                SequenceStorage storage = list.getSequenceStorage();
+                int high = hi instanceof PNone ? storage.length() : castToIndex(hi);
+                if (high <= storage.length()) {
+                    if (storage instanceof IntSequenceStorage && x instanceof Integer) {
+                        return bisect(((IntSequenceStorage) storage).getInternalIntArray(), (int) x, low, high, isRight);
+                    } else if (storage instanceof LongSequenceStorage && (x instanceof Integer || x instanceof Long)) {
+                        return bisect(((LongSequenceStorage) storage).getInternalLongArray(), ((Number) x).longValue(), low, high, isRight);
+                    } else if (storage instanceof DoubleSequenceStorage && x instanceof Double) {
+                        return bisect(((DoubleSequenceStorage) storage).getInternalDoubleArray(), (double) x, low, high, isRight);
+                    }
+                }
+                return bisectList(list, x, low, high, isRight);
+            }
+            int high = hi instanceof PNone ? castToIndex(getLenNode().executeWith(a)) : castToIndex(hi);
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                Object item = getItem(a, mid);
+                if (isRight ? lessThan(x, item) : lessThan(item, x)) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+
+        private int bisectList(PList list, Object x, int lo, int hi, boolean isRight) {
+            int low = lo;
+            int high = hi;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                // the comparison may change the list, so its storage is read again every time
+                SequenceStorage storage = list.getSequenceStorage();
+                if (mid >= storage.length()) {
+                    throw raise(IndexError, "list index out of range");
+                }
+                Object item = storage.getItemNormalized(mid);
+                if (isRight ? lessThan(x, item) : lessThan(item, x)) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+
+        private static int bisect(int[] a, int x, int lo, int hi, boolean isRight) {
+            int low = lo;
+            int high = hi;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (isRight ? x < a[mid] : a[mid] < x) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+
+        private static int bisect(long[] a, long x, int lo, int hi, boolean isRight) {
+            int low = lo;
+            int high = hi;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (isRight ? x < a[mid] : a[mid] < x) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+
+        private static int bisect(double[] a, double x, int lo, int hi, boolean isRight) {
+            int low = lo;
+            int high = hi;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (isRight ? x < a[mid] : a[mid] < x) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+
+        protected final boolean isExactList(Object a) {
+            return a instanceof PList && isListProfile.profileObject((PList) a, PythonBuiltinClassType.PList);
+        }
+
+        private boolean lessThan(Object a, Object b) {
+            if ((a instanceof Integer || a instanceof Long) && (b instanceof Integer || b instanceof Long)) {
+                return ((Number) a).longValue() < ((Number) b).longValue();
+            } else if (a instanceof Double && b instanceof Double) {
+                return (double) a < (double) b;
+            }
+            if (ltNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                ltNode = insert(BinaryComparisonNode.create(__LT__, __GT__, "<"));
+            }
+            return ltNode.executeBool(a, b);
+        }
+
+        private Object getItem(Object a, int index) {
+            if (getItemNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                getItemNode = insert(GetItemNode.create());
+            }
+            return getItemNode.execute(a, index);
+        }
+
+        private BuiltinFunctions.LenNode getLenNode() {
+            if (lenNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                lenNode = insert(BuiltinFunctionsFactory.LenNodeFactory.create());
+            }
+            return lenNode;
+        }
+
+        private int castToIndex(Object value) {
+            if (castToIndexNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                castToIndexNode = insert(CastToIndexNode.create());
+            }
+            return castToIndexNode.execute(value);
+        }
+    }
+
+    abstract static class InsortBaseNode extends BisectBaseNode {
+        @Child private ListInsertNode listInsertNode;
+        @Child private GetFixedAttributeNode getInsertNode;
+        @Child private CallNode callInsertNode;
+
+        protected final PNone insort(VirtualFrame frame, Object a, Object x, Object lo, Object hi, boolean isRight) {
+            int index = bisect(a, x, lo, hi, isRight);
+            if (isExactList(a)) {
+                if (listInsertNode == null) {
+                    CompilerDirectives.transferToInterpreterAndInvalidate();
+                    listInsertNode = insert(ListBuiltinsFactory.ListInsertNodeFactory.create());
+                }
+                listInsertNode.execute((PList) a, index, x);
+            } else {
+                if (getInsertNode == null) {
+                    CompilerDirectives.transferToInterpreterAndInvalidate();
+                    getInsertNode = insert(GetFixedAttributeNode.create("insert"));
+                    callInsertNode = insert(CallNode.create());
+                }
+                callInsertNode.execute(frame, getInsertNode.executeObject(a), index, x);
+            }
+            return PNone.NONE;
+        }
+    }
+
+    // bisect_right(a, x, lo=0, hi=None)
+    @Builtin(name = "bisect_right", minNumOfPositionalArgs = 2, parameterNames = {"a", "x", "lo", "hi"})
+    @GenerateNodeFactory
+    public abstract static class BisectRightNode extends BisectBaseNode {
+        @Specialization
+        int bisectRight(Object a, Object x, Object lo, Object hi) {
+            return bisect(a, x, lo, hi, true);
+        }
+    }
+
+    // bisect_left(a, x, lo=0, hi=None)
+    @Builtin(name = "bisect_left", minNumOfPositionalArgs = 2, parameterNames = {"a", "x", "lo", "hi"})
+    @GenerateNodeFactory
+    public abstract static class BisectLeftNode extends BisectBaseNode {
+        @Specialization
+        int bisectLeft(Object a, Object x, Object lo, Object hi) {
+            return bisect(a, x, lo, hi, false);
+        }
+    }
+
+    // insort_right(a, x, lo=0, hi=None)
+    @Builtin(name = "insort_right", minNumOfPositionalArgs = 2, parameterNames = {"a", "x", "lo", "hi"})
+    @GenerateNodeFactory
+    public abstract static class InsortRightNode extends InsortBaseNode {
+        @Specialization
+        PNone insortRight(VirtualFrame frame, Object a, Object x, Object lo, Object hi) {
+            return insort(frame, a, x, lo, hi, true);
+        }
+    }
+
+    // insort_left(a, x, lo=0, hi=None)
+    @Builtin(name = "insort_left", minNumOfPositionalArgs = 2, parameterNames = {"a", "x", "lo", "hi"})
+    @GenerateNodeFactory
+    public abstract static class InsortLeftNode extends InsortBaseNode {
+        @Specialization
+        PNone insortLeft(VirtualFrame frame, Object a, Object x, Object lo, Object hi) {
+            return insort(frame, a, x, lo, hi, false);
+        }
+    }
+}
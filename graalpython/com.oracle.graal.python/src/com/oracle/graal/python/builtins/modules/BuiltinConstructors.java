@@ -79,6 +79,7 @@ import com.oracle.graal.python.builtins.PythonBuiltins;
 import com.oracle.graal.python.builtins.objects.PEllipsis;
 import com.oracle.graal.python.builtins.objects.PNone;
 import com.oracle.graal.python.builtins.objects.PNotImplemented;
+import com.oracle.graal.python.builtins.objects.array.PArray;
 import com.oracle.graal.python.builtins.objects.bytes.BytesNodes;
 import com.oracle.graal.python.builtins.objects.bytes.BytesUtils;
 import com.oracle.graal.python.builtins.objects.bytes.PByteArray;
@@ -110,8 +111,10 @@ import com.oracle.graal.python.builtins.objects.getsetdescriptor.HiddenKeyDescri
 import com.oracle.graal.python.builtins.objects.ints.PInt;
 import com.oracle.graal.python.builtins.objects.iterator.PZip;
 import com.oracle.graal.python.builtins.objects.list.PList;
+import com.oracle.graal.python.builtins.objects.memoryview.MemoryViewNodes;
 import com.oracle.graal.python.builtins.objects.memoryview.PBuffer;
 import com.oracle.graal.python.builtins.objects.memoryview.PMemoryView;
+import com.oracle.graal.python.builtins.objects.mmap.PMMap;
 import com.oracle.graal.python.builtins.objects.module.PythonModule;
 import com.oracle.graal.python.builtins.objects.object.PythonObject;
 import com.oracle.graal.python.builtins.objects.range.PRange;
@@ -253,6 +256,12 @@ public final class BuiltinConstructors extends PythonBuiltins {
             return create(cls, (byte[]) ((ByteSequenceStorage) iterable.getSequenceStorage()).getCopyOfInternalArrayObject());
         }
 
+        @Specialization(guards = {"isNoValue(encoding)", "isNoValue(errors)"})
+        public Object bytearray(LazyPythonClass cls, PMemoryView view, @SuppressWarnings("unused") PNone encoding, @SuppressWarnings("unused") PNone errors,
+                        @Cached("create()") MemoryViewNodes.ToJavaBytesNode toJavaBytesNode) {
+            return create(cls, toJavaBytesNode.execute(view));
+        }
+
         @Specialization(guards = {"!isInt(iterable)", "!isNoValue(iterable)", "isNoValue(encoding)", "isNoValue(errors)"})
         public Object bytearray(LazyPythonClass cls, Object iterable, @SuppressWarnings("unused") PNone encoding, @SuppressWarnings("unused") PNone errors,
                         @Cached("create()") GetIteratorNode getIteratorNode,
@@ -2667,8 +2676,50 @@ public final class BuiltinConstructors extends PythonBuiltins {
     @GenerateNodeFactory
     public abstract static class MemoryViewNode extends PythonBuiltinNode {
         @Specialization
-        public PMemoryView doGeneric(LazyPythonClass cls, Object value) {
-            return factory().createMemoryView(cls, value);
+        PMemoryView doBytes(LazyPythonClass cls, PBytes value,
+                        @Cached("create()") SequenceStorageNodes.LenNode lenNode) {
+            int length = lenNode.execute(value.getSequenceStorage());
+            return factory().createMemoryView(cls, value, 0, "B", 1, true, new int[]{length}, new int[]{1});
+        }
+
+        @Specialization
+        PMemoryView doByteArray(LazyPythonClass cls, PByteArray value,
+                        @Cached("create()") SequenceStorageNodes.LenNode lenNode) {
+            int length = lenNode.execute(value.getSequenceStorage());
+            return factory().createMemoryView(cls, value, 0, "B", 1, false, new int[]{length}, new int[]{1});
+        }
+
+        @Specialization
+        PMemoryView doMMap(LazyPythonClass cls, PMMap value) {
+            if (value.isClosed()) {
+                throw raise(ValueError, "mmap closed or invalid");
+            }
+            int length = (int) Math.min(value.getLength(), Integer.MAX_VALUE);
+            return factory().createMemoryView(cls, value, 0, "B", 1, value.isReadonly(), new int[]{length}, new int[]{1});
+        }
+
+        @Specialization
+        PMemoryView doArray(LazyPythonClass cls, PArray value) {
+            SequenceStorage storage = value.getSequenceStorage();
+            String format = MemoryViewNodes.getArrayFormat(storage);
+            if (format == null) {
+                throw raise(TypeError, "memoryview: unsupported array type");
+            }
+            int itemsize = MemoryViewNodes.getArrayItemSize(storage);
+            return factory().createMemoryView(cls, value, 0, format, itemsize, false, new int[]{storage.length()}, new int[]{itemsize});
+        }
+
+        @Specialization
+        PMemoryView doMemoryView(LazyPythonClass cls, PMemoryView value) {
+            if (value.isReleased()) {
+                throw raise(ValueError, "operation forbidden on released memoryview object");
+            }
+            return factory().createMemoryView(cls, value.getOwner(), value.getOffset(), value.getFormat(), value.getItemSize(), value.isReadOnly(), value.getShape(), value.getStrides());
+        }
+
+        @Fallback
+        PMemoryView doGeneric(@SuppressWarnings("unused") Object cls, Object value) {
+            throw raise(TypeError, "memoryview: a bytes-like object is required, not '%p'", value);
         }
     }
 
@@ -28,6 +28,8 @@ package com.oracle.graal.python.builtins.modules;
 import static com.oracle.graal.python.builtins.objects.PNone.NO_VALUE;
 import static com.oracle.graal.python.builtins.objects.PNotImplemented.NOT_IMPLEMENTED;
 import static com.oracle.graal.python.nodes.BuiltinNames.ABS;
+import static com.oracle.graal.python.nodes.BuiltinNames.ALL;
+import static com.oracle.graal.python.nodes.BuiltinNames.ANY;
 import static com.oracle.graal.python.nodes.BuiltinNames.BIN;
 import static com.oracle.graal.python.nodes.BuiltinNames.BREAKPOINT;
 import static com.oracle.graal.python.nodes.BuiltinNames.BREAKPOINTHOOK;
@@ -65,7 +67,6 @@ import static com.oracle.graal.python.nodes.HiddenAttributes.ID_KEY;
 import static com.oracle.graal.python.nodes.SpecialAttributeNames.__NAME__;
 import static com.oracle.graal.python.nodes.SpecialMethodNames.__INSTANCECHECK__;
 import static com.oracle.graal.python.nodes.SpecialMethodNames.__LEN__;
-import static com.oracle.graal.python.nodes.SpecialMethodNames.__NEXT__;
 import static com.oracle.graal.python.nodes.SpecialMethodNames.__SUBCLASSCHECK__;
 import static com.oracle.graal.python.nodes.frame.FrameSlotIDs.RETURN_SLOT_ID;
 import static com.oracle.graal.python.runtime.exception.PythonErrorType.OverflowError;
@@ -142,6 +143,7 @@ import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode.NoAttri
 import com.oracle.graal.python.nodes.classes.IsSubtypeNode;
 import com.oracle.graal.python.nodes.control.GetIteratorExpressionNode.GetIteratorNode;
 import com.oracle.graal.python.nodes.control.GetNextNode;
+import com.oracle.graal.python.nodes.control.GetNextInliningNode;
 import com.oracle.graal.python.nodes.expression.BinaryArithmetic;
 import com.oracle.graal.python.nodes.expression.BinaryComparisonNode;
 import com.oracle.graal.python.nodes.expression.CastToBooleanNode;
@@ -244,6 +246,54 @@ public final class BuiltinFunctions extends PythonBuiltins {
         }
     }
 
+    // all(iterable)
+    @Builtin(name = ALL, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class AllNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        public boolean all(Object iterable,
+                        @Cached("create()") GetIteratorNode getIterator,
+                        @Cached("create()") GetNextInliningNode next,
+                        @Cached("createIfTrueNode()") CastToBooleanNode isTrue,
+                        @Cached("create()") IsBuiltinClassProfile errorProfile) {
+            Object iterator = getIterator.executeWith(iterable);
+            while (true) {
+                try {
+                    if (!isTrue.executeWith(next.execute(iterator))) {
+                        return false;
+                    }
+                } catch (PException e) {
+                    e.expectStopIteration(errorProfile);
+                    return true;
+                }
+            }
+        }
+    }
+
+    // any(iterable)
+    @Builtin(name = ANY, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class AnyNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        public boolean any(Object iterable,
+                        @Cached("create()") GetIteratorNode getIterator,
+                        @Cached("create()") GetNextInliningNode next,
+                        @Cached("createIfTrueNode()") CastToBooleanNode isTrue,
+                        @Cached("create()") IsBuiltinClassProfile errorProfile) {
+            Object iterator = getIterator.executeWith(iterable);
+            while (true) {
+                try {
+                    if (isTrue.executeWith(next.execute(iterator))) {
+                        return true;
+                    }
+                } catch (PException e) {
+                    e.expectStopIteration(errorProfile);
+                    return false;
+                }
+            }
+        }
+    }
+
     // bin(object)
     @Builtin(name = BIN, minNumOfPositionalArgs = 1)
     @TypeSystemReference(PythonArithmeticTypes.class)
@@ -756,13 +806,28 @@ public final class BuiltinFunctions extends PythonBuiltins {
          * Truffle tooling
          */
         private final boolean mayBeFromFile;
+        /**
+         * Whether this node compiles the files of imported modules, whose parse trees may be cached
+         * on disk.
+         */
+        private final boolean isImport;
+        /**
+         * Whether parse trees of imported modules that are not cached yet are written to the cache.
+         */
+        private final boolean writeCache;
 
-        public CompileNode(boolean mayBeFromFile) {
+        public CompileNode(boolean mayBeFromFile, boolean isImport, boolean writeCache) {
             this.mayBeFromFile = mayBeFromFile;
+            this.isImport = isImport;
+            this.writeCache = writeCache;
+        }
+
+        public CompileNode(boolean mayBeFromFile) {
+            this(mayBeFromFile, false, false);
         }
 
         public CompileNode() {
-            this.mayBeFromFile = true;
+            this(true, false, false);
         }
 
         public abstract PCode execute(Object source, String filename, String mode, Object kwFlags, Object kwDontInherit, Object kwOptimize);
@@ -796,12 +861,23 @@ public final class BuiltinFunctions extends PythonBuiltins {
             } else {
                 throw raise(ValueError, "compile() mode must be 'exec', 'eval' or 'single'");
             }
-            Supplier<PCode> createCode = () -> factory().createCode(Truffle.getRuntime().createCallTarget((RootNode) getCore().getParser().parse(pm, getCore(), source, null)));
-            if (getCore().isInitialized()) {
-                return createCode.get();
+            Supplier<RootCallTarget> createCode;
+            if (isImport && pm == ParserMode.File) {
+                createCode = () -> Truffle.getRuntime().createCallTarget((RootNode) getCore().getParser().parseModule(getCore(), source, writeCache));
+            } else {
+                createCode = () -> Truffle.getRuntime().createCallTarget((RootNode) getCore().getParser().parse(pm, getCore(), source, null));
+            }
+            PythonLanguage language = getCore().getLanguage();
+            RootCallTarget callTarget;
+            if (!getCore().isInitialized()) {
+                callTarget = language.cacheCode(filename, createCode);
+            } else if (pm == ParserMode.File && source.getPath() != null && !language.singleContextAssumption.isValid()) {
+                // modules imported from files are parsed once and shared by all contexts
+                callTarget = language.cacheModuleCode(source, createCode);
             } else {
-                return getCore().getLanguage().cacheCode(filename, createCode);
+                callTarget = createCode.get();
             }
+            return factory().createCode(callTarget);
         }
 
         @SuppressWarnings("unused")
@@ -813,6 +889,10 @@ public final class BuiltinFunctions extends PythonBuiltins {
         public static CompileNode create(boolean mapFilenameToUri) {
             return BuiltinFunctionsFactory.CompileNodeFactory.create(mapFilenameToUri, new ReadArgumentNode[]{});
         }
+
+        public static CompileNode create(boolean mapFilenameToUri, boolean isImport, boolean writeCache) {
+            return BuiltinFunctionsFactory.CompileNodeFactory.create(mapFilenameToUri, isImport, writeCache, new ReadArgumentNode[]{});
+        }
     }
 
     // delattr(object, name)
@@ -1620,7 +1700,7 @@ public final class BuiltinFunctions extends PythonBuiltins {
     public abstract static class SumFunctionNode extends PythonBuiltinNode {
 
         @Child private GetIteratorNode iter = GetIteratorNode.create();
-        @Child private LookupAndCallUnaryNode next = LookupAndCallUnaryNode.create(__NEXT__);
+        @Child private GetNextInliningNode next = GetNextInliningNode.create();
         @Child private LookupAndCallBinaryNode add = BinaryArithmetic.Add.create();
 
         private final IsBuiltinClassProfile errorProfile1 = IsBuiltinClassProfile.create();
@@ -1703,7 +1783,7 @@ public final class BuiltinFunctions extends PythonBuiltins {
             while (true) {
                 Object nextValue;
                 try {
-                    nextValue = next.executeObject(iterator);
+                    nextValue = next.execute(iterator);
                 } catch (PException e) {
                     e.expectStopIteration(errorProfile);
                     return value;
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.modules;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__CALL__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.CSVError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.OverflowError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.csv.CSVModuleState;
+import com.oracle.graal.python.builtins.objects.csv.CSVNodes.CreateDialectNode;
+import com.oracle.graal.python.builtins.objects.csv.PCSVDialect;
+import com.oracle.graal.python.builtins.objects.csv.PCSVReader;
+import com.oracle.graal.python.builtins.objects.csv.PCSVWriter;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.ints.PInt;
+import com.oracle.graal.python.builtins.objects.list.PList;
+import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.attributes.GetAttributeNode.GetAnyAttributeNode;
+import com.oracle.graal.python.nodes.attributes.LookupInheritedAttributeNode;
+import com.oracle.graal.python.nodes.attributes.ReadAttributeFromObjectNode;
+import com.oracle.graal.python.nodes.control.GetIteratorExpressionNode.GetIteratorNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.runtime.PythonCore;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.object.HiddenKey;
+
+/**
+ * The {@code _csv} module. The dialect registry and the field size limit are stored in a
+ * {@link CSVModuleState} attached to the module object.
+ */
+@CoreFunctions(defineModule = "_csv")
+public class CSVModuleBuiltins extends PythonBuiltins {
+    private static final HiddenKey STATE = new HiddenKey("__csv_state__");
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return CSVModuleBuiltinsFactory.getFactories();
+    }
+
+    @Override
+    public void initialize(PythonCore core) {
+        super.initialize(core);
+        builtinConstants.put("__version__", "1.0");
+        builtinConstants.put("QUOTE_MINIMAL", PCSVDialect.QUOTE_MINIMAL);
+        builtinConstants.put("QUOTE_ALL", PCSVDialect.QUOTE_ALL);
+        builtinConstants.put("QUOTE_NONNUMERIC", PCSVDialect.QUOTE_NONNUMERIC);
+        builtinConstants.put("QUOTE_NONE", PCSVDialect.QUOTE_NONE);
+    }
+
+    @Override
+    public void postInitialize(PythonCore core) {
+        super.postInitialize(core);
+        core.lookupBuiltinModule("_csv").setAttribute(STATE, new CSVModuleState());
+    }
+
+    private static CSVModuleState getState(PythonCore core, ReadAttributeFromObjectNode readNode) {
+        return (CSVModuleState) readNode.execute(core.lookupBuiltinModule("_csv"), STATE);
+    }
+
+    private static String getDialectName(Object name) {
+        return name instanceof String || name instanceof PString ? name.toString() : null;
+    }
+
+    @Builtin(name = "Dialect", minNumOfPositionalArgs = 1, parameterNames = {"cls", "dialect", "delimiter", "doublequote", "escapechar", "lineterminator", "quotechar", "quoting", "skipinitialspace",
+                    "strict"}, constructsClass = PythonBuiltinClassType.PCSVDialect)
+    @GenerateNodeFactory
+    abstract static class DialectNode extends PythonBuiltinNode {
+        @Specialization
+        PCSVDialect dialect(LazyPythonClass cls, Object dialect, Object delimiter, Object doublequote, Object escapechar, Object lineterminator, Object quotechar, Object quoting,
+                        Object skipinitialspace, Object strict,
+                        @Cached("create()") ReadAttributeFromObjectNode readStateNode,
+                        @Cached("create()") CreateDialectNode createDialectNode) {
+            Object[] options = {delimiter, doublequote, escapechar, lineterminator, quotechar, quoting, skipinitialspace, strict};
+            return createDialectNode.execute(cls, dialect, options, getState(getCore(), readStateNode));
+        }
+    }
+
+    // reader(iterable, dialect='excel', **fmtparams)
+    @Builtin(name = "reader", minNumOfPositionalArgs = 1, parameterNames = {"iterable", "dialect"}, takesVarKeywordArgs = true)
+    @GenerateNodeFactory
+    abstract static class ReaderNode extends PythonBuiltinNode {
+        @Specialization
+        PCSVReader reader(Object iterable, Object dialect, PKeyword[] kwargs,
+                        @Cached("create()") GetIteratorNode getIteratorNode,
+                        @Cached("create()") ReadAttributeFromObjectNode readStateNode,
+                        @Cached("create()") CreateDialectNode createDialectNode) {
+            Object iterator = getIteratorNode.executeWith(iterable);
+            CSVModuleState state = getState(getCore(), readStateNode);
+            PCSVDialect csvDialect = createDialectNode.executeWithKeywords(PythonBuiltinClassType.PCSVDialect, dialect, kwargs, state);
+            return factory().createCSVReader(PythonBuiltinClassType.PCSVReader, iterator, csvDialect, state);
+        }
+    }
+
+    // writer(fileobj, dialect='excel', **fmtparams)
+    @Builtin(name = "writer", minNumOfPositionalArgs = 1, parameterNames = {"fileobj", "dialect"}, takesVarKeywordArgs = true)
+    @GenerateNodeFactory
+    abstract static class WriterNode extends PythonBuiltinNode {
+        @Specialization
+        PCSVWriter writer(Object fileobj, Object dialect, PKeyword[] kwargs,
+                        @Cached("create()") GetAnyAttributeNode getAttributeNode,
+                        @Cached("create()") IsBuiltinClassProfile attributeErrorProfile,
+                        @Cached("create(__CALL__)") LookupInheritedAttributeNode lookupCallNode,
+                        @Cached("create()") ReadAttributeFromObjectNode readStateNode,
+                        @Cached("create()") CreateDialectNode createDialectNode) {
+            Object write;
+            try {
+                write = getAttributeNode.executeObject(fileobj, "write");
+            } catch (PException e) {
+                e.expectAttributeError(attributeErrorProfile);
+                write = null;
+            }
+            if (write == null || !(PGuards.isCallable(write) || lookupCallNode.execute(write) != PNone.NO_VALUE)) {
+                throw raise(TypeError, "argument 1 must have a \"write\" method");
+            }
+            CSVModuleState state = getState(getCore(), readStateNode);
+            PCSVDialect csvDialect = createDialectNode.executeWithKeywords(PythonBuiltinClassType.PCSVDialect, dialect, kwargs, state);
+            return factory().createCSVWriter(PythonBuiltinClassType.PCSVWriter, write, csvDialect);
+        }
+    }
+
+    // register_dialect(name[, dialect[, **fmtparams]])
+    @Builtin(name = "register_dialect", minNumOfPositionalArgs = 1, parameterNames = {"name", "dialect"}, takesVarKeywordArgs = true)
+    @GenerateNodeFactory
+    abstract static class RegisterDialectNode extends PythonBuiltinNode {
+        @Specialization
+        PNone register(Object nameObj, Object dialect, PKeyword[] kwargs,
+                        @Cached("create()") ReadAttributeFromObjectNode readStateNode,
+                        @Cached("create()") CreateDialectNode createDialectNode) {
+            String name = getDialectName(nameObj);
+            if (name == null) {
+                throw raise(TypeError, "dialect name must be a string");
+            }
+            CSVModuleState state = getState(getCore(), readStateNode);
+            state.registerDialect(name, createDialectNode.executeWithKeywords(PythonBuiltinClassType.PCSVDialect, dialect, kwargs, state));
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "unregister_dialect", minNumOfPositionalArgs = 1, parameterNames = {"name"})
+    @GenerateNodeFactory
+    abstract static class UnregisterDialectNode extends PythonBuiltinNode {
+        @Specialization
+        PNone unregister(Object nameObj,
+                        @Cached("create()") ReadAttributeFromObjectNode readStateNode) {
+            String name = getDialectName(nameObj);
+            if (name == null || !getState(getCore(), readStateNode).unregisterDialect(name)) {
+                throw raise(CSVError, "unknown dialect");
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "get_dialect", minNumOfPositionalArgs = 1, parameterNames = {"name"})
+    @GenerateNodeFactory
+    abstract static class GetDialectNode extends PythonBuiltinNode {
+        @Specialization
+        PCSVDialect get(Object nameObj,
+                        @Cached("create()") ReadAttributeFromObjectNode readStateNode) {
+            String name = getDialectName(nameObj);
+            PCSVDialect dialect = name == null ? null : getState(getCore(), readStateNode).getDialect(name);
+            if (dialect == null) {
+                throw raise(CSVError, "unknown dialect");
+            }
+            return dialect;
+        }
+    }
+
+    @Builtin(name = "list_dialects")
+    @GenerateNodeFactory
+    abstract static class ListDialectsNode extends PythonBuiltinNode {
+        @Specialization
+        PList list(@Cached("create()") ReadAttributeFromObjectNode readStateNode) {
+            return factory().createList(getState(getCore(), readStateNode).getDialectNames());
+        }
+    }
+
+    // field_size_limit([limit])
+    @Builtin(name = "field_size_limit", parameterNames = {"limit"})
+    @GenerateNodeFactory
+    abstract static class FieldSizeLimitNode extends PythonBuiltinNode {
+        @Specialization
+        long fieldSizeLimit(Object limit,
+                        @Cached("create()") ReadAttributeFromObjectNode readStateNode) {
+            CSVModuleState state = getState(getCore(), readStateNode);
+            long oldLimit = state.getFieldLimit();
+            if (limit != PNone.NO_VALUE) {
+                state.setFieldLimit(toLong(limit));
+            }
+            return oldLimit;
+        }
+
+        private long toLong(Object limit) {
+            if (limit instanceof Integer) {
+                return (int) limit;
+            } else if (limit instanceof Long) {
+                return (long) limit;
+            } else if (limit instanceof PInt) {
+                try {
+                    return ((PInt) limit).longValueExact();
+                } catch (ArithmeticException e) {
+                    throw raise(OverflowError, "Python int too large to convert to C long");
+                }
+            }
+            throw raise(TypeError, "limit must be an integer");
+        }
+    }
+}
@@ -50,6 +50,7 @@ import java.nio.CharBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -64,6 +65,7 @@ import com.oracle.graal.python.builtins.objects.bytes.PBytes;
 import com.oracle.graal.python.builtins.objects.bytes.PIBytesLike;
 import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes;
 import com.oracle.graal.python.builtins.objects.tuple.PTuple;
+import com.oracle.graal.python.nodes.expression.CastToBooleanNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
 import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
@@ -554,6 +556,66 @@ public class CodecsModuleBuiltins extends PythonBuiltins {
         }
     }
 
+    // _codecs.utf_8_decode(obj, errors='strict', final=False)
+    @Builtin(name = "utf_8_decode", minNumOfPositionalArgs = 1, parameterNames = {"obj", "errors", "final"})
+    @GenerateNodeFactory
+    abstract static class Utf8DecodeNode extends EncodeBaseNode {
+
+        @Specialization
+        Object decode(PIBytesLike bytes, Object errors, Object finalArg,
+                        @Cached("create(false)") SequenceStorageNodes.ToByteArrayNode toByteArrayNode,
+                        @Cached("createIfTrueNode()") CastToBooleanNode castToBooleanNode) {
+            byte[] data = toByteArrayNode.execute(bytes.getSequenceStorage());
+            String errorsStr = errors instanceof PNone ? "strict" : errors.toString();
+            boolean isFinal = !(finalArg instanceof PNone) && castToBooleanNode.executeWith(finalArg);
+            int consumed = isFinal ? data.length : completeLength(data);
+            String string = decodeUtf8(data, consumed, errorsStr);
+            return factory().createTuple(new Object[]{string, consumed});
+        }
+
+        @Fallback
+        Object decode(Object bytes, @SuppressWarnings("unused") Object errors, @SuppressWarnings("unused") Object finalArg) {
+            throw raise(TypeError, "a bytes-like object is required, not '%p'", bytes);
+        }
+
+        /**
+         * Returns the length of the longest prefix of {@code data} that does not end in the middle
+         * of a multi-byte sequence, so that an incremental decoder can keep the remaining bytes for
+         * the next chunk.
+         */
+        private static int completeLength(byte[] data) {
+            int len = data.length;
+            for (int i = len - 1; i >= 0 && i >= len - 4; i--) {
+                int b = data[i] & 0xFF;
+                if ((b & 0xC0) != 0x80) {
+                    int expected;
+                    if ((b & 0xE0) == 0xC0) {
+                        expected = 2;
+                    } else if ((b & 0xF0) == 0xE0) {
+                        expected = 3;
+                    } else if ((b & 0xF8) == 0xF0) {
+                        expected = 4;
+                    } else {
+                        expected = 1;
+                    }
+                    return len - i < expected ? i : len;
+                }
+            }
+            return len;
+        }
+
+        @TruffleBoundary
+        String decodeUtf8(byte[] data, int len, String errors) {
+            CodingErrorAction errorAction = convertCodingErrorAction(errors);
+            try {
+                CharBuffer decoded = StandardCharsets.UTF_8.newDecoder().onMalformedInput(errorAction).onUnmappableCharacter(errorAction).decode(ByteBuffer.wrap(data, 0, len));
+                return String.valueOf(decoded);
+            } catch (CharacterCodingException e) {
+                throw raise(UnicodeDecodeError, e);
+            }
+        }
+    }
+
     @Builtin(name = "__truffle_raw_decode", minNumOfPositionalArgs = 1, parameterNames = {"bytes", "errors"})
     @GenerateNodeFactory
     abstract static class RawDecodeNode extends EncodeBaseNode {
@@ -40,18 +40,73 @@
  */
 package com.oracle.graal.python.builtins.modules;
 
-import java.util.ArrayList;
 import java.util.List;
 
+import com.oracle.graal.python.builtins.Builtin;
 import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
 import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.deque.PDeque;
+import com.oracle.graal.python.builtins.objects.deque.PDequeIterator;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.util.CastToIndexNode;
+import com.oracle.graal.python.runtime.object.PythonObjectFactory;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
 
 @CoreFunctions(defineModule = "_collections")
 public class CollectionsModuleBuiltins extends PythonBuiltins {
     @Override
     protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
-        return new ArrayList<>();
+        return CollectionsModuleBuiltinsFactory.getFactories();
+    }
+
+    // the actual initialization happens in the type's __init__
+    @Builtin(name = "deque", minNumOfPositionalArgs = 1, takesVarArgs = true, takesVarKeywordArgs = true, constructsClass = PythonBuiltinClassType.PDeque)
+    @GenerateNodeFactory
+    public abstract static class DequeNode extends PythonBuiltinNode {
+        @Specialization
+        @SuppressWarnings("unused")
+        PDeque doNew(LazyPythonClass cls, Object[] args, PKeyword[] kwargs) {
+            return factory().createDeque(cls);
+        }
+    }
+
+    // _deque_iterator(deque, index=0)
+    @Builtin(name = "_deque_iterator", minNumOfPositionalArgs = 2, parameterNames = {"cls", "deque", "index"}, constructsClass = PythonBuiltinClassType.PDequeIter)
+    @GenerateNodeFactory
+    public abstract static class DequeIterNode extends PythonBuiltinNode {
+        @Specialization
+        PDequeIterator doNew(LazyPythonClass cls, PDeque deque, Object index,
+                        @Cached("create()") CastToIndexNode castToIndexNode) {
+            return createIterator(factory(), castToIndexNode, cls, deque, index, false);
+        }
+    }
+
+    // _deque_reverse_iterator(deque, index=0)
+    @Builtin(name = "_deque_reverse_iterator", minNumOfPositionalArgs = 2, parameterNames = {"cls", "deque", "index"}, constructsClass = PythonBuiltinClassType.PDequeRevIter)
+    @GenerateNodeFactory
+    public abstract static class DequeRevIterNode extends PythonBuiltinNode {
+        @Specialization
+        PDequeIterator doNew(LazyPythonClass cls, PDeque deque, Object index,
+                        @Cached("create()") CastToIndexNode castToIndexNode) {
+            return createIterator(factory(), castToIndexNode, cls, deque, index, true);
+        }
+    }
+
+    private static PDequeIterator createIterator(PythonObjectFactory factory, CastToIndexNode castToIndexNode, LazyPythonClass cls, PDeque deque, Object index, boolean reversed) {
+        PDequeIterator iterator = factory.createDequeIterator(cls, deque, reversed);
+        if (!(index instanceof PNone)) {
+            // the iterator starts after the given number of items, as in CPython
+            int skip = castToIndexNode.execute(index);
+            iterator.setIndex(Math.max(0, Math.min(skip, deque.getLength())));
+        }
+        return iterator;
     }
 }
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.modules;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.OverflowError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.List;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.bytes.BytesNodes;
+import com.oracle.graal.python.builtins.objects.bytes.PBytes;
+import com.oracle.graal.python.builtins.objects.common.EconomicMapStorage;
+import com.oracle.graal.python.builtins.objects.common.HashingStorage;
+import com.oracle.graal.python.builtins.objects.hashlib.HashAlgorithm;
+import com.oracle.graal.python.builtins.objects.hashlib.HashlibNodes;
+import com.oracle.graal.python.builtins.objects.hashlib.PHashlibHash;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.util.CastToJavaLongNode;
+import com.oracle.graal.python.runtime.GlobalInterpreterLock;
+import com.oracle.graal.python.runtime.PythonCore;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Fallback;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+
+/**
+ * The {@code _hashlib} module, backed by {@link MessageDigest} instead of OpenSSL.
+ */
+@CoreFunctions(defineModule = "_hashlib")
+public class HashlibModuleBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return HashlibModuleBuiltinsFactory.getFactories();
+    }
+
+    @Override
+    public void initialize(PythonCore core) {
+        super.initialize(core);
+        HashingStorage names = EconomicMapStorage.create(true);
+        for (HashAlgorithm algorithm : HashAlgorithm.values()) {
+            if (algorithm.createDigest() != null) {
+                names.setItem(algorithm.getPythonName(), PNone.NO_VALUE, HashingStorage.getSlowPathEquivalence(algorithm.getPythonName()));
+            }
+        }
+        builtinConstants.put("openssl_md_meth_names", core.factory().createFrozenSet(names));
+    }
+
+    abstract static class HashConstructorNode extends PythonBuiltinNode {
+        @Child private HashlibNodes.UpdateNode updateNode;
+
+        protected final PHashlibHash createHash(HashAlgorithm algorithm, Object data) {
+            MessageDigest digest = algorithm == null ? null : algorithm.createDigest();
+            if (digest == null) {
+                throw raise(ValueError, "unsupported hash type");
+            }
+            PHashlibHash hash = factory().createHashlibHash(PythonBuiltinClassType.PHashlibHash, algorithm, digest);
+            if (data != PNone.NO_VALUE) {
+                if (updateNode == null) {
+                    CompilerDirectives.transferToInterpreterAndInvalidate();
+                    updateNode = insert(HashlibNodes.UpdateNode.create());
+                }
+                updateNode.execute(hash, data);
+            }
+            return hash;
+        }
+    }
+
+    @Builtin(name = "new", minNumOfPositionalArgs = 1, parameterNames = {"name", "string"})
+    @GenerateNodeFactory
+    abstract static class NewNode extends HashConstructorNode {
+        @Specialization
+        PHashlibHash doNew(String name, Object data) {
+            return createHash(HashAlgorithm.lookup(name), data);
+        }
+
+        @Fallback
+        @SuppressWarnings("unused")
+        PHashlibHash doError(Object name, Object data) {
+            throw raise(TypeError, "new() argument 'name' must be str, not %p", name);
+        }
+    }
+
+    @Builtin(name = "openssl_md5", parameterNames = {"string"})
+    @GenerateNodeFactory
+    abstract static class Md5Node extends HashConstructorNode {
+        @Specialization
+        PHashlibHash md5(Object data) {
+            return createHash(HashAlgorithm.MD5, data);
+        }
+    }
+
+    @Builtin(name = "openssl_sha1", parameterNames = {"string"})
+    @GenerateNodeFactory
+    abstract static class Sha1Node extends HashConstructorNode {
+        @Specialization
+        PHashlibHash sha1(Object data) {
+            return createHash(HashAlgorithm.SHA1, data);
+        }
+    }
+
+    @Builtin(name = "openssl_sha224", parameterNames = {"string"})
+    @GenerateNodeFactory
+    abstract static class Sha224Node extends HashConstructorNode {
+        @Specialization
+        PHashlibHash sha224(Object data) {
+            return createHash(HashAlgorithm.SHA224, data);
+        }
+    }
+
+    @Builtin(name = "openssl_sha256", parameterNames = {"string"})
+    @GenerateNodeFactory
+    abstract static class Sha256Node extends HashConstructorNode {
+        @Specialization
+        PHashlibHash sha256(Object data) {
+            return createHash(HashAlgorithm.SHA256, data);
+        }
+    }
+
+    @Builtin(name = "openssl_sha384", parameterNames = {"string"})
+    @GenerateNodeFactory
+    abstract static class Sha384Node extends HashConstructorNode {
+        @Specialization
+        PHashlibHash sha384(Object data) {
+            return createHash(HashAlgorithm.SHA384, data);
+        }
+    }
+
+    @Builtin(name = "openssl_sha512", parameterNames = {"string"})
+    @GenerateNodeFactory
+    abstract static class Sha512Node extends HashConstructorNode {
+        @Specialization
+        PHashlibHash sha512(Object data) {
+            return createHash(HashAlgorithm.SHA512, data);
+        }
+    }
+
+    // pbkdf2_hmac(hash_name, password, salt, iterations, dklen=None)
+    @Builtin(name = "pbkdf2_hmac", minNumOfPositionalArgs = 4, parameterNames = {"hash_name", "password", "salt", "iterations", "dklen"})
+    @GenerateNodeFactory
+    abstract static class Pbkdf2HmacNode extends PythonBuiltinNode {
+        @Specialization
+        PBytes pbkdf2Hmac(String hashName, Object passwordObj, Object saltObj, Object iterationsObj, Object dklenObj,
+                        @Cached("create()") BytesNodes.ToBytesNode toBytesNode,
+                        @Cached("create()") CastToJavaLongNode castToLongNode) {
+            byte[] password = toBytesNode.execute(passwordObj);
+            byte[] salt = toBytesNode.execute(saltObj);
+            long iterations = castToLongNode.execute(iterationsObj);
+            if (iterations < 1) {
+                throw raise(ValueError, "iteration value must be greater than 0.");
+            } else if (iterations > Integer.MAX_VALUE) {
+                throw raise(OverflowError, "iteration value is too great.");
+            }
+            HashAlgorithm algorithm = HashAlgorithm.lookup(hashName);
+            Mac mac = algorithm == null ? null : createMac(algorithm, password);
+            if (mac == null) {
+                throw raise(ValueError, "unsupported hash type");
+            }
+            long dklen = dklenObj instanceof PNone ? mac.getMacLength() : castToLongNode.execute(dklenObj);
+            if (dklen < 1) {
+                throw raise(ValueError, "key length must be greater than 0.");
+            } else if (dklen > Integer.MAX_VALUE) {
+                throw raise(OverflowError, "key length is too great.");
+            }
+            byte[] key;
+            GlobalInterpreterLock gil = getContext().getGil();
+            boolean released = gil.release();
+            try {
+                key = derive(mac, salt, (int) iterations, (int) dklen);
+            } finally {
+                gil.acquire(released);
+            }
+            return factory().createBytes(key);
+        }
+
+        @Fallback
+        @SuppressWarnings("unused")
+        PBytes doError(Object hashName, Object password, Object salt, Object iterations, Object dklen) {
+            throw raise(TypeError, "pbkdf2_hmac() argument 'hash_name' must be str, not %p", hashName);
+        }
+
+        @TruffleBoundary
+        private static Mac createMac(HashAlgorithm algorithm, byte[] password) {
+            try {
+                Mac mac = Mac.getInstance(algorithm.getMacName());
+                // HMAC pads short keys with zeros, so an empty key is the same as a single zero
+                // byte; SecretKeySpec rejects empty keys
+                mac.init(new SecretKeySpec(password.length == 0 ? new byte[1] : password, algorithm.getMacName()));
+                return mac;
+            } catch (GeneralSecurityException e) {
+                return null;
+            }
+        }
+
+        // PBKDF2 as defined in RFC 8018, section 5.2
+        @TruffleBoundary
+        private static byte[] derive(Mac mac, byte[] salt, int iterations, int dklen) {
+            int hlen = mac.getMacLength();
+            byte[] result = new byte[dklen];
+            byte[] u = new byte[hlen];
+            byte[] t = new byte[hlen];
+            try {
+                for (int block = 1, pos = 0; pos < dklen; block++) {
+                    mac.update(salt);
+                    mac.update((byte) (block >>> 24));
+                    mac.update((byte) (block >>> 16));
+                    mac.update((byte) (block >>> 8));
+                    mac.update((byte) block);
+                    mac.doFinal(u, 0);
+                    System.arraycopy(u, 0, t, 0, hlen);
+                    for (int i = 1; i < iterations; i++) {
+                        mac.update(u);
+                        mac.doFinal(u, 0);
+                        for (int j = 0; j < hlen; j++) {
+                            t[j] ^= u[j];
+                        }
+                    }
+                    int n = Math.min(hlen, dklen - pos);
+                    System.arraycopy(t, 0, result, pos, n);
+                    pos += n;
+                }
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+            return result;
+        }
+    }
+}
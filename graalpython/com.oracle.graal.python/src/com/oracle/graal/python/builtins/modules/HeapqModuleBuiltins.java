@@ -0,0 +1,490 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.modules;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__GT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__LT__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.IndexError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.RuntimeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.common.IndexNodes.NormalizeIndexNode;
+import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes;
+import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes.ListGeneralizationNode;
+import com.oracle.graal.python.builtins.objects.list.PList;
+import com.oracle.graal.python.nodes.builtins.ListNodes;
+import com.oracle.graal.python.nodes.expression.BinaryComparisonNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.graal.python.runtime.sequence.storage.DoubleSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.IntSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.LongSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.dsl.Fallback;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+
+@CoreFunctions(defineModule = "_heapq")
+public class HeapqModuleBuiltins extends PythonBuiltins {
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return HeapqModuleBuiltinsFactory.getFactories();
+    }
+
+    /**
+     * Common sift operations of the heap functions. Heaps backed by an int, long or double storage
+     * are sifted directly on the primitive array, because the order of the items is the same as the
+     * one of Python's {@code <}. All other heaps compare their items with a cached {@code <}.
+     */
+    abstract static class HeapNode extends PythonBuiltinNode {
+        @Child private BinaryComparisonNode ltNode;
+        @Child private ListNodes.AppendNode appendNode;
+        @Child private SequenceStorageNodes.SetItemNode setItemNode;
+
+        protected final void append(PList heap, Object item) {
+            if (appendNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                appendNode = insert(ListNodes.AppendNode.create());
+            }
+            appendNode.execute(heap, item);
+        }
+
+        protected final Object removeLast(PList heap) {
+            SequenceStorage storage = heap.getSequenceStorage();
+            int n = storage.length();
+            if (n == 0) {
+                throw raise(IndexError, "index out of range");
+            }
+            Object lastItem = storage.getItemNormalized(n - 1);
+            storage.setNewLength(n - 1);
+            return lastItem;
+        }
+
+        protected final Object getFirst(PList heap) {
+            SequenceStorage storage = heap.getSequenceStorage();
+            if (storage.length() == 0) {
+                throw raise(IndexError, "index out of range");
+            }
+            return storage.getItemNormalized(0);
+        }
+
+        protected final void setFirst(PList heap, Object item) {
+            if (setItemNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                setItemNode = insert(SequenceStorageNodes.SetItemNode.create(NormalizeIndexNode.forListAssign(), () -> ListGeneralizationNode.create()));
+            }
+            SequenceStorage storage = heap.getSequenceStorage();
+            SequenceStorage newStorage = setItemNode.executeInt(storage, 0, item);
+            if (newStorage != storage) {
+                heap.setSequenceStorage(newStorage);
+            }
+        }
+
+        /**
+         * Moves the item at {@code pos} towards the root until its parent is not greater.
+         */
+        protected final void siftDown(PList heap, int startPos, int pos, boolean isMax) {
+            SequenceStorage storage = heap.getSequenceStorage();
+            if (storage instanceof IntSequenceStorage) {
+                siftDown(((IntSequenceStorage) storage).getInternalIntArray(), startPos, pos, isMax);
+            } else if (storage instanceof LongSequenceStorage) {
+                siftDown(((LongSequenceStorage) storage).getInternalLongArray(), startPos, pos, isMax);
+            } else if (storage instanceof DoubleSequenceStorage) {
+                siftDown(((DoubleSequenceStorage) storage).getInternalDoubleArray(), startPos, pos, isMax);
+            } else {
+                siftDownGeneric(heap, storage, startPos, pos, isMax);
+            }
+        }
+
+        /**
+         * Moves the smaller child of {@code pos} up until a leaf is reached and then puts the
+         * original item in place with {@link #siftDown}, which needs fewer comparisons than
+         * stopping as soon as the item is in order.
+         */
+        protected final void siftUp(PList heap, int pos, boolean isMax) {
+            SequenceStorage storage = heap.getSequenceStorage();
+            if (storage instanceof IntSequenceStorage) {
+                siftUp(((IntSequenceStorage) storage).getInternalIntArray(), storage.length(), pos, isMax);
+            } else if (storage instanceof LongSequenceStorage) {
+                siftUp(((LongSequenceStorage) storage).getInternalLongArray(), storage.length(), pos, isMax);
+            } else if (storage instanceof DoubleSequenceStorage) {
+                siftUp(((DoubleSequenceStorage) storage).getInternalDoubleArray(), storage.length(), pos, isMax);
+            } else {
+                siftUpGeneric(heap, storage, pos, isMax);
+            }
+        }
+
+        protected final void heapify(PList heap, boolean isMax) {
+            // only the items with children need to be sifted, starting with the last one
+            for (int i = heap.getSequenceStorage().length() / 2 - 1; i >= 0; i--) {
+                siftUp(heap, i, isMax);
+            }
+        }
+
+        private void siftDownGeneric(PList heap, SequenceStorage storage, int startPos, int pos, boolean isMax) {
+            int n = storage.length();
+            int current = pos;
+            Object newItem = storage.getItemNormalized(current);
+            while (current > startPos) {
+                int parentPos = (current - 1) >> 1;
+                Object parent = storage.getItemNormalized(parentPos);
+                boolean inOrder = !lessThan(newItem, parent, isMax);
+                checkUnchanged(heap, storage, n);
+                if (inOrder) {
+                    break;
+                }
+                storage.setItemNormalized(current, parent);
+                current = parentPos;
+            }
+            storage.setItemNormalized(current, newItem);
+        }
+
+        private void siftUpGeneric(PList heap, SequenceStorage storage, int pos, boolean isMax) {
+            int n = storage.length();
+            int current = pos;
+            Object newItem = storage.getItemNormalized(current);
+            int childPos = 2 * current + 1;
+            while (childPos < n) {
+                int rightPos = childPos + 1;
+                if (rightPos < n) {
+                    boolean leftSmaller = lessThan(storage.getItemNormalized(childPos), storage.getItemNormalized(rightPos), isMax);
+                    checkUnchanged(heap, storage, n);
+                    if (!leftSmaller) {
+                        childPos = rightPos;
+                    }
+                }
+                storage.setItemNormalized(current, storage.getItemNormalized(childPos));
+                current = childPos;
+                childPos = 2 * current + 1;
+            }
+            storage.setItemNormalized(current, newItem);
+            siftDownGeneric(heap, storage, pos, current, isMax);
+        }
+
+        private void checkUnchanged(PList heap, SequenceStorage storage, int n) {
+            if (heap.getSequenceStorage() != storage || storage.length() != n) {
+                throw raise(RuntimeError, "list changed size during iteration");
+            }
+        }
+
+        protected final boolean lessThan(Object a, Object b, boolean isMax) {
+            Object left = isMax ? b : a;
+            Object right = isMax ? a : b;
+            if ((left instanceof Integer || left instanceof Long) && (right instanceof Integer || right instanceof Long)) {
+                return ((Number) left).longValue() < ((Number) right).longValue();
+            } else if (left instanceof Double && right instanceof Double) {
+                return (double) left < (double) right;
+            }
+            if (ltNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                ltNode = insert(BinaryComparisonNode.create(__LT__, __GT__, "<"));
+            }
+            return ltNode.executeBool(left, right);
+        }
+
+        private static void siftDown(int[] heap, int startPos, int pos, boolean isMax) {
+            int current = pos;
+            int newItem = heap[current];
+            while (current > startPos) {
+                int parentPos = (current - 1) >> 1;
+                int parent = heap[parentPos];
+                if (isMax ? parent >= newItem : newItem >= parent) {
+                    break;
+                }
+                heap[current] = parent;
+                current = parentPos;
+            }
+            heap[current] = newItem;
+        }
+
+        private static void siftUp(int[] heap, int n, int pos, boolean isMax) {
+            int current = pos;
+            int newItem = heap[current];
+            int childPos = 2 * current + 1;
+            while (childPos < n) {
+                int rightPos = childPos + 1;
+                if (rightPos < n && (isMax ? heap[rightPos] >= heap[childPos] : heap[childPos] >= heap[rightPos])) {
+                    childPos = rightPos;
+                }
+                heap[current] = heap[childPos];
+                current = childPos;
+                childPos = 2 * current + 1;
+            }
+            heap[current] = newItem;
+            siftDown(heap, pos, current, isMax);
+        }
+
+        private static void siftDown(long[] heap, int startPos, int pos, boolean isMax) {
+            int current = pos;
+            long newItem = heap[current];
+            while (current > startPos) {
+                int parentPos = (current - 1) >> 1;
+                long parent = heap[parentPos];
+                if (isMax ? parent >= newItem : newItem >= parent) {
+                    break;
+                }
+                heap[current] = parent;
+                current = parentPos;
+            }
+            heap[current] = newItem;
+        }
+
+        private static void siftUp(long[] heap, int n, int pos, boolean isMax) {
+            int current = pos;
+            long newItem = heap[current];
+            int childPos = 2 * current + 1;
+            while (childPos < n) {
+                int rightPos = childPos + 1;
+                if (rightPos < n && (isMax ? heap[rightPos] >= heap[childPos] : heap[childPos] >= heap[rightPos])) {
+                    childPos = rightPos;
+                }
+                heap[current] = heap[childPos];
+                current = childPos;
+                childPos = 2 * current + 1;
+            }
+            heap[current] = newItem;
+            siftDown(heap, pos, current, isMax);
+        }
+
+        // written with '!(a < b)' rather than 'a >= b' to treat NaN like Python's '<' does
+        private static void siftDown(double[] heap, int startPos, int pos, boolean isMax) {
+            int current = pos;
+            double newItem = heap[current];
+            while (current > startPos) {
+                int parentPos = (current - 1) >> 1;
+                double parent = heap[parentPos];
+                if (!(isMax ? parent < newItem : newItem < parent)) {
+                    break;
+                }
+                heap[current] = parent;
+                current = parentPos;
+            }
+            heap[current] = newItem;
+        }
+
+        private static void siftUp(double[] heap, int n, int pos, boolean isMax) {
+            int current = pos;
+            double newItem = heap[current];
+            int childPos = 2 * current + 1;
+            while (childPos < n) {
+                int rightPos = childPos + 1;
+                if (rightPos < n && !(isMax ? heap[rightPos] < heap[childPos] : heap[childPos] < heap[rightPos])) {
+                    childPos = rightPos;
+                }
+                heap[current] = heap[childPos];
+                current = childPos;
+                childPos = 2 * current + 1;
+            }
+            heap[current] = newItem;
+            siftDown(heap, pos, current, isMax);
+        }
+
+        protected final Object popFirst(PList heap, boolean isMax) {
+            Object lastItem = removeLast(heap);
+            if (heap.getSequenceStorage().length() == 0) {
+                return lastItem;
+            }
+            Object returnItem = getFirst(heap);
+            setFirst(heap, lastItem);
+            siftUp(heap, 0, isMax);
+            return returnItem;
+        }
+
+        protected final Object replaceFirst(PList heap, Object item, boolean isMax) {
+            Object returnItem = getFirst(heap);
+            setFirst(heap, item);
+            siftUp(heap, 0, isMax);
+            return returnItem;
+        }
+
+        protected final PException raiseNotAList() {
+            throw raise(TypeError, "heap argument must be a list");
+        }
+    }
+
+    // heappush(heap, item)
+    @Builtin(name = "heappush", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    public abstract static class HeapPushNode extends HeapNode {
+        @Specialization
+        PNone push(PList heap, Object item) {
+            append(heap, item);
+            siftDown(heap, 0, heap.getSequenceStorage().length() - 1, false);
+            return PNone.NONE;
+        }
+
+        @Fallback
+        @SuppressWarnings("unused")
+        Object doOther(Object heap, Object item) {
+            throw raiseNotAList();
+        }
+    }
+
+    // heappop(heap)
+    @Builtin(name = "heappop", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class HeapPopNode extends HeapNode {
+        @Specialization
+        Object pop(PList heap) {
+            return popFirst(heap, false);
+        }
+
+        @Fallback
+        Object doOther(@SuppressWarnings("unused") Object heap) {
+            throw raiseNotAList();
+        }
+    }
+
+    // _heappop_max(heap)
+    @Builtin(name = "_heappop_max", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class HeapPopMaxNode extends HeapNode {
+        @Specialization
+        Object pop(PList heap) {
+            return popFirst(heap, true);
+        }
+
+        @Fallback
+        Object doOther(@SuppressWarnings("unused") Object heap) {
+            throw raiseNotAList();
+        }
+    }
+
+    // heapreplace(heap, item)
+    @Builtin(name = "heapreplace", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    public abstract static class HeapReplaceNode extends HeapNode {
+        @Specialization
+        Object replace(PList heap, Object item) {
+            return replaceFirst(heap, item, false);
+        }
+
+        @Fallback
+        @SuppressWarnings("unused")
+        Object doOther(Object heap, Object item) {
+            throw raiseNotAList();
+        }
+    }
+
+    // _heapreplace_max(heap, item)
+    @Builtin(name = "_heapreplace_max", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    public abstract static class HeapReplaceMaxNode extends HeapNode {
+        @Specialization
+        Object replace(PList heap, Object item) {
+            return replaceFirst(heap, item, true);
+        }
+
+        @Fallback
+        @SuppressWarnings("unused")
+        Object doOther(Object heap, Object item) {
+            throw raiseNotAList();
+        }
+    }
+
+    // heappushpop(heap, item)
+    @Builtin(name = "heappushpop", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    public abstract static class HeapPushPopNode extends HeapNode {
+        @Specialization
+        Object pushPop(PList heap, Object item) {
+            if (heap.getSequenceStorage().length() == 0) {
+                return item;
+            }
+            Object top = getFirst(heap);
+            if (!lessThan(top, item, false)) {
+                return item;
+            }
+            // the comparison may have emptied the list
+            Object returnItem = getFirst(heap);
+            setFirst(heap, item);
+            siftUp(heap, 0, false);
+            return returnItem;
+        }
+
+        @Fallback
+        @SuppressWarnings("unused")
+        Object doOther(Object heap, Object item) {
+            throw raiseNotAList();
+        }
+    }
+
+    // heapify(heap)
+    @Builtin(name = "heapify", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class HeapifyNode extends HeapNode {
+        @Specialization
+        PNone heapify(PList heap) {
+            heapify(heap, false);
+            return PNone.NONE;
+        }
+
+        @Fallback
+        Object doOther(@SuppressWarnings("unused") Object heap) {
+            throw raiseNotAList();
+        }
+    }
+
+    // _heapify_max(heap)
+    @Builtin(name = "_heapify_max", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class HeapifyMaxNode extends HeapNode {
+        @Specialization
+        PNone heapify(PList heap) {
+            heapify(heap, true);
+            return PNone.NONE;
+        }
+
+        @Fallback
+        Object doOther(@SuppressWarnings("unused") Object heap) {
+            throw raiseNotAList();
+        }
+    }
+}
@@ -40,18 +40,125 @@
  */
 package com.oracle.graal.python.builtins.modules;
 
-import java.util.ArrayList;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
 import java.util.List;
 
+import com.oracle.graal.python.builtins.Builtin;
 import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
 import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.io.PBufferedIO;
+import com.oracle.graal.python.builtins.objects.io.PBytesIO;
+import com.oracle.graal.python.builtins.objects.io.PStringIO;
+import com.oracle.graal.python.builtins.objects.io.PUtf8TextIO;
+import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+import com.oracle.graal.python.nodes.expression.CastToBooleanNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Fallback;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
 
 @CoreFunctions(defineModule = "_io")
 public class IOModuleBuiltins extends PythonBuiltins {
     @Override
     protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
-        return new ArrayList<>();
+        return IOModuleBuiltinsFactory.getFactories();
+    }
+
+    // the actual initialization happens in the type's __init__
+
+    @Builtin(name = "BufferedReader", minNumOfPositionalArgs = 1, takesVarArgs = true, takesVarKeywordArgs = true, constructsClass = PythonBuiltinClassType.PBufferedReader)
+    @GenerateNodeFactory
+    public abstract static class BufferedReaderNode extends PythonBuiltinNode {
+        @Specialization
+        @SuppressWarnings("unused")
+        PBufferedIO doNew(LazyPythonClass cls, Object[] args, PKeyword[] kwargs) {
+            return factory().createBufferedIO(cls, true, false);
+        }
+    }
+
+    @Builtin(name = "BufferedWriter", minNumOfPositionalArgs = 1, takesVarArgs = true, takesVarKeywordArgs = true, constructsClass = PythonBuiltinClassType.PBufferedWriter)
+    @GenerateNodeFactory
+    public abstract static class BufferedWriterNode extends PythonBuiltinNode {
+        @Specialization
+        @SuppressWarnings("unused")
+        PBufferedIO doNew(LazyPythonClass cls, Object[] args, PKeyword[] kwargs) {
+            return factory().createBufferedIO(cls, false, true);
+        }
+    }
+
+    @Builtin(name = "BufferedRandom", minNumOfPositionalArgs = 1, takesVarArgs = true, takesVarKeywordArgs = true, constructsClass = PythonBuiltinClassType.PBufferedRandom)
+    @GenerateNodeFactory
+    public abstract static class BufferedRandomNode extends PythonBuiltinNode {
+        @Specialization
+        @SuppressWarnings("unused")
+        PBufferedIO doNew(LazyPythonClass cls, Object[] args, PKeyword[] kwargs) {
+            return factory().createBufferedIO(cls, true, true);
+        }
+    }
+
+    @Builtin(name = "BytesIO", minNumOfPositionalArgs = 1, takesVarArgs = true, takesVarKeywordArgs = true, constructsClass = PythonBuiltinClassType.PBytesIO)
+    @GenerateNodeFactory
+    public abstract static class BytesIONode extends PythonBuiltinNode {
+        @Specialization
+        @SuppressWarnings("unused")
+        PBytesIO doNew(LazyPythonClass cls, Object[] args, PKeyword[] kwargs) {
+            return factory().createBytesIO(cls);
+        }
+    }
+
+    @Builtin(name = "StringIO", minNumOfPositionalArgs = 1, takesVarArgs = true, takesVarKeywordArgs = true, constructsClass = PythonBuiltinClassType.PStringIO)
+    @GenerateNodeFactory
+    public abstract static class StringIONode extends PythonBuiltinNode {
+        @Specialization
+        @SuppressWarnings("unused")
+        PStringIO doNew(LazyPythonClass cls, Object[] args, PKeyword[] kwargs) {
+            return factory().createStringIO(cls);
+        }
+    }
+
+    // _Utf8TextIO(buffer, newline, line_buffering)
+    @Builtin(name = "_Utf8TextIO", minNumOfPositionalArgs = 4, parameterNames = {"cls", "buffer", "newline", "line_buffering"}, constructsClass = PythonBuiltinClassType.PUtf8TextIO)
+    @GenerateNodeFactory
+    public abstract static class Utf8TextIONode extends PythonBuiltinNode {
+        @Specialization
+        PUtf8TextIO doNew(LazyPythonClass cls, PBufferedIO buffer, Object newline, Object lineBuffering,
+                        @Cached("createIfTrueNode()") CastToBooleanNode castToBooleanNode) {
+            int mode;
+            String writeNewline = null;
+            if (newline == PNone.NONE) {
+                mode = PUtf8TextIO.NEWLINE_TRANSLATE;
+            } else {
+                String nl = newline instanceof PString ? ((PString) newline).getValue() : newline.toString();
+                if (nl.isEmpty()) {
+                    mode = PUtf8TextIO.NEWLINE_UNIVERSAL;
+                } else if (nl.equals("\n")) {
+                    mode = PUtf8TextIO.NEWLINE_LF;
+                } else if (nl.equals("\r")) {
+                    mode = PUtf8TextIO.NEWLINE_CR;
+                    writeNewline = nl;
+                } else if (nl.equals("\r\n")) {
+                    mode = PUtf8TextIO.NEWLINE_CRLF;
+                    writeNewline = nl;
+                } else {
+                    throw raise(ValueError, "illegal newline value: %s", nl);
+                }
+            }
+            return factory().createUtf8TextIO(cls, buffer, mode, writeNewline, castToBooleanNode.executeWith(lineBuffering));
+        }
+
+        @Fallback
+        @SuppressWarnings("unused")
+        PUtf8TextIO doGeneric(Object cls, Object buffer, Object newline, Object lineBuffering) {
+            throw raise(TypeError, "expected a buffered stream, got %p", buffer);
+        }
     }
 }
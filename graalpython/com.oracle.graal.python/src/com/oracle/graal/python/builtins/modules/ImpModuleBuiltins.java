@@ -52,6 +52,7 @@ import java.util.concurrent.locks.ReentrantLock;
 import com.oracle.graal.python.builtins.Builtin;
 import com.oracle.graal.python.builtins.CoreFunctions;
 import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.modules.BuiltinFunctions.CompileNode;
 import com.oracle.graal.python.builtins.modules.TruffleCextBuiltins.CheckFunctionResultNode;
 import com.oracle.graal.python.builtins.objects.PNone;
 import com.oracle.graal.python.builtins.objects.cext.CExtNodes.AsPythonObjectNode;
@@ -141,7 +142,6 @@ public class ImpModuleBuiltins extends PythonBuiltins {
     @GenerateNodeFactory
     public abstract static class CreateDynamic extends PythonBuiltinNode {
         protected static final String INITIALIZE_CAPI = "initialize_capi";
-        protected static final String IMPORT_NATIVE_MEMORYVIEW = "import_native_memoryview";
         protected static final String RUN_CAPI_LOADED_HOOKS = "run_capi_loaded_hooks";
         private static final String LLVM_LANGUAGE = "llvm";
         @Child private SetItemNode setItemNode;
@@ -244,10 +244,6 @@ public class ImpModuleBuiltins extends PythonBuiltins {
                 callNode.executeObject(readNode.execute(ctxt.getCore().lookupBuiltinModule(TruffleCextBuiltins.PYTHON_CEXT), INITIALIZE_CAPI), capi);
                 ctxt.setCapiWasLoaded(capi);
                 callNode.executeObject(readNode.execute(ctxt.getCore().lookupBuiltinModule(TruffleCextBuiltins.PYTHON_CEXT), RUN_CAPI_LOADED_HOOKS), capi);
-
-                // initialization needs to be finished already but load memoryview implemenation
-                // immediately
-                callNode.executeObject(readNode.execute(ctxt.getCore().lookupBuiltinModule(TruffleCextBuiltins.PYTHON_CEXT), IMPORT_NATIVE_MEMORYVIEW), capi);
             }
         }
 
@@ -354,6 +350,25 @@ public class ImpModuleBuiltins extends PythonBuiltins {
         }
     }
 
+    // source_to_code(data, path, write_cache, optimize)
+    @Builtin(name = "source_to_code", minNumOfPositionalArgs = 4)
+    @GenerateNodeFactory
+    public abstract static class SourceToCodeNode extends PythonBuiltinNode {
+        @Child private CompileNode compileNode = CompileNode.create(true, true, false);
+        @Child private CompileNode compileAndCacheNode = CompileNode.create(true, true, true);
+
+        @Specialization
+        public Object run(Object data, PString path, boolean writeCache, Object optimize) {
+            return run(data, path.getValue(), writeCache, optimize);
+        }
+
+        @Specialization
+        public Object run(Object data, String path, boolean writeCache, Object optimize) {
+            CompileNode compile = writeCache ? compileAndCacheNode : compileNode;
+            return compile.execute(data, path, "exec", PNone.NO_VALUE, PNone.NO_VALUE, optimize);
+        }
+    }
+
     @Builtin(name = "_fix_co_filename", minNumOfPositionalArgs = 2)
     @GenerateNodeFactory
     public abstract static class FixCoFilename extends PythonBinaryBuiltinNode {
@@ -25,16 +25,43 @@
  */
 package com.oracle.graal.python.builtins.modules;
 
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__FLOAT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__INDEX__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__INT__;
 import static com.oracle.graal.python.runtime.exception.PythonErrorType.NotImplementedError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
 
 import java.util.List;
 
 import com.oracle.graal.python.builtins.Builtin;
 import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
 import com.oracle.graal.python.builtins.PythonBuiltins;
 import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.complex.PComplex;
+import com.oracle.graal.python.builtins.objects.floats.PFloat;
+import com.oracle.graal.python.builtins.objects.ints.PInt;
+import com.oracle.graal.python.builtins.objects.itertools.PAccumulate;
+import com.oracle.graal.python.builtins.objects.itertools.PChain;
+import com.oracle.graal.python.builtins.objects.itertools.PCount;
+import com.oracle.graal.python.builtins.objects.itertools.PCycle;
+import com.oracle.graal.python.builtins.objects.itertools.PDropwhile;
+import com.oracle.graal.python.builtins.objects.itertools.PFilterfalse;
+import com.oracle.graal.python.builtins.objects.itertools.PGroupBy;
+import com.oracle.graal.python.builtins.objects.itertools.PIslice;
+import com.oracle.graal.python.builtins.objects.itertools.PRepeat;
+import com.oracle.graal.python.builtins.objects.itertools.PStarmap;
+import com.oracle.graal.python.builtins.objects.itertools.PTakewhile;
+import com.oracle.graal.python.builtins.objects.itertools.PZipLongest;
+import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+import com.oracle.graal.python.nodes.attributes.LookupInheritedAttributeNode;
+import com.oracle.graal.python.nodes.control.GetIteratorExpressionNode.GetIteratorNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.util.CastToIntegerFromIndexNode;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.dsl.Specialization;
@@ -58,4 +85,224 @@ public final class ItertoolsModuleBuiltins extends PythonBuiltins {
         }
     }
 
+    // repeat(object[, times])
+    @Builtin(name = "repeat", minNumOfPositionalArgs = 2, parameterNames = {"cls", "object", "times"}, constructsClass = PythonBuiltinClassType.PRepeat)
+    @GenerateNodeFactory
+    public abstract static class RepeatNode extends PythonBuiltinNode {
+        @Specialization(guards = "isNoValue(times)")
+        PRepeat repeat(LazyPythonClass cls, Object object, @SuppressWarnings("unused") PNone times) {
+            return factory().createRepeat(cls, object, -1);
+        }
+
+        @Specialization(guards = "!isNoValue(times)")
+        PRepeat repeat(LazyPythonClass cls, Object object, Object times,
+                        @Cached("create()") CastToIntegerFromIndexNode castToIndexNode) {
+            return factory().createRepeat(cls, object, Math.max(0, toClampedLong(castToIndexNode.execute(times))));
+        }
+    }
+
+    /**
+     * Converts the result of {@code __index__} to a Java {@code long}, clamping values outside
+     * the range to {@code sys.maxsize} resp. {@code -sys.maxsize - 1} like CPython's
+     * {@code PyNumber_AsSsize_t(obj, NULL)}.
+     */
+    static long toClampedLong(Object index) {
+        if (index instanceof Integer) {
+            return (int) index;
+        } else if (index instanceof Long) {
+            return (long) index;
+        } else if (index instanceof Boolean) {
+            return PInt.intValue((boolean) index);
+        } else if (index instanceof PInt) {
+            PInt pint = (PInt) index;
+            if (pint.fitsInLong()) {
+                return pint.longValue();
+            }
+            return pint.isZeroOrPositive() ? Long.MAX_VALUE : Long.MIN_VALUE;
+        }
+        throw new IllegalStateException("__index__ result is not an integer");
+    }
+
+    // count(start=0, step=1)
+    @Builtin(name = "count", minNumOfPositionalArgs = 1, parameterNames = {"cls", "start", "step"}, constructsClass = PythonBuiltinClassType.PCount)
+    @GenerateNodeFactory
+    public abstract static class CountNode extends PythonBuiltinNode {
+        @Specialization
+        PCount count(LazyPythonClass cls, Object start, Object step,
+                        @Cached("create(__INDEX__)") LookupInheritedAttributeNode lookupIndexNode,
+                        @Cached("create(__INT__)") LookupInheritedAttributeNode lookupIntNode,
+                        @Cached("create(__FLOAT__)") LookupInheritedAttributeNode lookupFloatNode) {
+            Object startValue = start == PNone.NO_VALUE ? 0 : start;
+            Object stepValue = step == PNone.NO_VALUE ? 1 : step;
+            if (!isNumber(startValue, lookupIndexNode, lookupIntNode, lookupFloatNode) || !isNumber(stepValue, lookupIndexNode, lookupIntNode, lookupFloatNode)) {
+                throw raise(TypeError, "a number is required");
+            }
+            return factory().createCount(cls, startValue, stepValue);
+        }
+
+        private static boolean isNumber(Object value, LookupInheritedAttributeNode lookupIndexNode, LookupInheritedAttributeNode lookupIntNode, LookupInheritedAttributeNode lookupFloatNode) {
+            if (value instanceof Integer || value instanceof Long || value instanceof Double || value instanceof Boolean || value instanceof PInt || value instanceof PFloat ||
+                            value instanceof PComplex) {
+                return true;
+            }
+            return lookupIndexNode.execute(value) != PNone.NO_VALUE || lookupIntNode.execute(value) != PNone.NO_VALUE || lookupFloatNode.execute(value) != PNone.NO_VALUE;
+        }
+    }
+
+    // chain(*iterables)
+    @Builtin(name = "chain", minNumOfPositionalArgs = 1, takesVarArgs = true, constructsClass = PythonBuiltinClassType.PChain)
+    @GenerateNodeFactory
+    public abstract static class ChainNode extends PythonBuiltinNode {
+        @Specialization
+        PChain chain(LazyPythonClass cls, Object[] iterables,
+                        @Cached("create()") GetIteratorNode getIteratorNode) {
+            return factory().createChain(cls, getIteratorNode.executeWith(factory().createTuple(iterables)));
+        }
+    }
+
+    // starmap(function, iterable)
+    @Builtin(name = "starmap", minNumOfPositionalArgs = 3, constructsClass = PythonBuiltinClassType.PStarmap)
+    @GenerateNodeFactory
+    public abstract static class StarmapNode extends PythonBuiltinNode {
+        @Specialization
+        PStarmap starmap(LazyPythonClass cls, Object function, Object iterable,
+                        @Cached("create()") GetIteratorNode getIteratorNode) {
+            return factory().createStarmap(cls, function, getIteratorNode.executeWith(iterable));
+        }
+    }
+
+    // islice(iterable, stop)
+    // islice(iterable, start, stop[, step])
+    @Builtin(name = "islice", minNumOfPositionalArgs = 3, takesVarArgs = true, constructsClass = PythonBuiltinClassType.PIslice)
+    @GenerateNodeFactory
+    public abstract static class IsliceNode extends PythonBuiltinNode {
+        private static final String INDEX_ERROR = "Indices for islice() must be None or an integer: 0 <= x <= sys.maxsize.";
+        private static final String STOP_ERROR = "Stop argument for islice() must be None or an integer: 0 <= x <= sys.maxsize.";
+        private static final String STEP_ERROR = "Step for islice() must be a positive integer or None.";
+
+        @Specialization
+        PIslice islice(LazyPythonClass cls, Object iterable, Object first, Object[] rest,
+                        @Cached("create()") GetIteratorNode getIteratorNode,
+                        @Cached("create()") CastToIntegerFromIndexNode castToIndexNode) {
+            long start = 0;
+            long stop;
+            long step = 1;
+            if (rest.length == 0) {
+                stop = toIndex(first, -1, castToIndexNode, STOP_ERROR);
+            } else if (rest.length <= 2) {
+                start = toIndex(first, 0, castToIndexNode, INDEX_ERROR);
+                stop = toIndex(rest[0], -1, castToIndexNode, INDEX_ERROR);
+                if (rest.length == 2) {
+                    step = toIndex(rest[1], 1, castToIndexNode, STEP_ERROR);
+                    if (step == 0) {
+                        throw raise(ValueError, STEP_ERROR);
+                    }
+                }
+            } else {
+                throw raise(TypeError, "islice expected at most 4 arguments, got %d", rest.length + 2);
+            }
+            return factory().createIslice(cls, getIteratorNode.executeWith(iterable), start, stop, step);
+        }
+
+        private long toIndex(Object value, long defaultValue, CastToIntegerFromIndexNode castToIndexNode, String message) {
+            if (value == PNone.NONE) {
+                return defaultValue;
+            }
+            long index;
+            try {
+                index = toClampedLong(castToIndexNode.execute(value));
+            } catch (PException e) {
+                throw raise(ValueError, message);
+            }
+            if (index < 0) {
+                throw raise(ValueError, message);
+            }
+            return index;
+        }
+    }
+
+    // accumulate(iterable, func=None)
+    @Builtin(name = "accumulate", minNumOfPositionalArgs = 2, parameterNames = {"cls", "iterable", "func"}, constructsClass = PythonBuiltinClassType.PAccumulate)
+    @GenerateNodeFactory
+    public abstract static class AccumulateNode extends PythonBuiltinNode {
+        @Specialization
+        PAccumulate accumulate(LazyPythonClass cls, Object iterable, Object func,
+                        @Cached("create()") GetIteratorNode getIteratorNode) {
+            Object function = func instanceof PNone ? null : func;
+            return factory().createAccumulate(cls, getIteratorNode.executeWith(iterable), function);
+        }
+    }
+
+    // dropwhile(predicate, iterable)
+    @Builtin(name = "dropwhile", minNumOfPositionalArgs = 3, constructsClass = PythonBuiltinClassType.PDropwhile)
+    @GenerateNodeFactory
+    public abstract static class DropwhileNode extends PythonBuiltinNode {
+        @Specialization
+        PDropwhile dropwhile(LazyPythonClass cls, Object predicate, Object iterable,
+                        @Cached("create()") GetIteratorNode getIteratorNode) {
+            return factory().createDropwhile(cls, predicate, getIteratorNode.executeWith(iterable));
+        }
+    }
+
+    // takewhile(predicate, iterable)
+    @Builtin(name = "takewhile", minNumOfPositionalArgs = 3, constructsClass = PythonBuiltinClassType.PTakewhile)
+    @GenerateNodeFactory
+    public abstract static class TakewhileNode extends PythonBuiltinNode {
+        @Specialization
+        PTakewhile takewhile(LazyPythonClass cls, Object predicate, Object iterable,
+                        @Cached("create()") GetIteratorNode getIteratorNode) {
+            return factory().createTakewhile(cls, predicate, getIteratorNode.executeWith(iterable));
+        }
+    }
+
+    // filterfalse(function or None, iterable)
+    @Builtin(name = "filterfalse", minNumOfPositionalArgs = 3, constructsClass = PythonBuiltinClassType.PFilterfalse)
+    @GenerateNodeFactory
+    public abstract static class FilterfalseNode extends PythonBuiltinNode {
+        @Specialization
+        PFilterfalse filterfalse(LazyPythonClass cls, Object function, Object iterable,
+                        @Cached("create()") GetIteratorNode getIteratorNode) {
+            Object predicate = function == PNone.NONE ? null : function;
+            return factory().createFilterfalse(cls, predicate, getIteratorNode.executeWith(iterable));
+        }
+    }
+
+    // zip_longest(*iterables, fillvalue=None)
+    @Builtin(name = "zip_longest", minNumOfPositionalArgs = 1, takesVarArgs = true, keywordOnlyNames = {"fillvalue"}, constructsClass = PythonBuiltinClassType.PZipLongest)
+    @GenerateNodeFactory
+    public abstract static class ZipLongestNode extends PythonBuiltinNode {
+        @Specialization
+        PZipLongest zipLongest(LazyPythonClass cls, Object[] iterables, Object fillValue,
+                        @Cached("create()") GetIteratorNode getIteratorNode) {
+            Object[] iterators = new Object[iterables.length];
+            for (int i = 0; i < iterables.length; i++) {
+                iterators[i] = getIteratorNode.executeWith(iterables[i]);
+            }
+            return factory().createZipLongest(cls, iterators, fillValue == PNone.NO_VALUE ? PNone.NONE : fillValue);
+        }
+    }
+
+    // cycle(iterable)
+    @Builtin(name = "cycle", minNumOfPositionalArgs = 2, constructsClass = PythonBuiltinClassType.PCycle)
+    @GenerateNodeFactory
+    public abstract static class CycleNode extends PythonBuiltinNode {
+        @Specialization
+        PCycle cycle(LazyPythonClass cls, Object iterable,
+                        @Cached("create()") GetIteratorNode getIteratorNode) {
+            return factory().createCycle(cls, getIteratorNode.executeWith(iterable));
+        }
+    }
+
+    // groupby(iterable, key=None)
+    @Builtin(name = "groupby", minNumOfPositionalArgs = 2, parameterNames = {"cls", "iterable", "key"}, constructsClass = PythonBuiltinClassType.PGroupBy)
+    @GenerateNodeFactory
+    public abstract static class GroupByNode extends PythonBuiltinNode {
+        @Specialization
+        PGroupBy groupBy(LazyPythonClass cls, Object iterable, Object key,
+                        @Cached("create()") GetIteratorNode getIteratorNode) {
+            Object keyFunction = key == PNone.NO_VALUE || key == PNone.NONE ? null : key;
+            return factory().createGroupBy(cls, getIteratorNode.executeWith(iterable), keyFunction);
+        }
+    }
+
 }
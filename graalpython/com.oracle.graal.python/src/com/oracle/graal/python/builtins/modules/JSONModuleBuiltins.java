@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.modules;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.json.JSONScannerBuiltins;
+import com.oracle.graal.python.builtins.objects.json.JSONUtils;
+import com.oracle.graal.python.builtins.objects.json.JSONUtils.DecodeError;
+import com.oracle.graal.python.builtins.objects.json.PJSONEncoder;
+import com.oracle.graal.python.builtins.objects.json.PJSONEncoder.FastEncode;
+import com.oracle.graal.python.builtins.objects.json.PJSONScanner;
+import com.oracle.graal.python.builtins.objects.module.PythonModule;
+import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.builtins.objects.tuple.PTuple;
+import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+import com.oracle.graal.python.nodes.attributes.GetAttributeNode.GetFixedAttributeNode;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.expression.CastToBooleanNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.nodes.util.CastToIndexNode;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Fallback;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+
+@CoreFunctions(defineModule = "_json")
+public class JSONModuleBuiltins extends PythonBuiltins {
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return JSONModuleBuiltinsFactory.getFactories();
+    }
+
+    // scanstring(string, end, strict=True)
+    @Builtin(name = "scanstring", minNumOfPositionalArgs = 2, parameterNames = {"string", "end", "strict"})
+    @GenerateNodeFactory
+    public abstract static class ScanStringNode extends PythonTernaryBuiltinNode {
+        @Child private CallNode callNode;
+
+        @Specialization
+        PTuple doString(String string, Object end, Object strict,
+                        @Cached("create()") CastToIndexNode castToIndexNode,
+                        @Cached("createIfTrueNode()") CastToBooleanNode castToBooleanNode) {
+            int idx = castToIndexNode.execute(end);
+            if (idx < 0 || idx > string.length()) {
+                throw raise(ValueError, "end is out of bounds");
+            }
+            boolean isStrict = strict == PNone.NO_VALUE || castToBooleanNode.executeWith(strict);
+            int[] nextIndex = new int[1];
+            try {
+                String result = JSONUtils.scanString(string, idx, isStrict, nextIndex);
+                return factory().createTuple(new Object[]{result, nextIndex[0]});
+            } catch (DecodeError e) {
+                if (callNode == null) {
+                    callNode = insert(CallNode.create());
+                }
+                throw JSONScannerBuiltins.raiseDecodeError(this, callNode, string, e);
+            }
+        }
+
+        @Specialization
+        PTuple doPString(PString string, Object end, Object strict,
+                        @Cached("create()") CastToIndexNode castToIndexNode,
+                        @Cached("createIfTrueNode()") CastToBooleanNode castToBooleanNode) {
+            return doString(string.getValue(), end, strict, castToIndexNode, castToBooleanNode);
+        }
+
+        @Fallback
+        PTuple doOther(Object string, @SuppressWarnings("unused") Object end, @SuppressWarnings("unused") Object strict) {
+            throw raise(TypeError, "first argument must be a string, not %p", string);
+        }
+    }
+
+    @Builtin(name = "encode_basestring_ascii", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class EncodeBaseStringAsciiNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        @TruffleBoundary
+        String doString(String string) {
+            StringBuilder sb = new StringBuilder(string.length() + 2);
+            JSONUtils.appendStringAscii(sb, string);
+            return sb.toString();
+        }
+
+        @Specialization
+        String doPString(PString string) {
+            return doString(string.getValue());
+        }
+
+        @Fallback
+        String doOther(Object string) {
+            throw raise(TypeError, "first argument must be a string, not %p", string);
+        }
+    }
+
+    @Builtin(name = "encode_basestring", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class EncodeBaseStringNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        @TruffleBoundary
+        String doString(String string) {
+            StringBuilder sb = new StringBuilder(string.length() + 2);
+            JSONUtils.appendString(sb, string);
+            return sb.toString();
+        }
+
+        @Specialization
+        String doPString(PString string) {
+            return doString(string.getValue());
+        }
+
+        @Fallback
+        String doOther(Object string) {
+            throw raise(TypeError, "first argument must be a string, not %p", string);
+        }
+    }
+
+    // make_scanner(context)
+    @Builtin(name = "make_scanner", minNumOfPositionalArgs = 2, parameterNames = {"cls", "context"}, constructsClass = PythonBuiltinClassType.PJSONScanner)
+    @GenerateNodeFactory
+    public abstract static class MakeScannerNode extends PythonBuiltinNode {
+        @Child private GetFixedAttributeNode getStrict = GetFixedAttributeNode.create("strict");
+        @Child private GetFixedAttributeNode getObjectHook = GetFixedAttributeNode.create("object_hook");
+        @Child private GetFixedAttributeNode getObjectPairsHook = GetFixedAttributeNode.create("object_pairs_hook");
+        @Child private GetFixedAttributeNode getParseFloat = GetFixedAttributeNode.create("parse_float");
+        @Child private GetFixedAttributeNode getParseInt = GetFixedAttributeNode.create("parse_int");
+        @Child private GetFixedAttributeNode getParseConstant = GetFixedAttributeNode.create("parse_constant");
+        @Child private CastToBooleanNode castToBooleanNode = CastToBooleanNode.createIfTrueNode();
+
+        @Specialization
+        PJSONScanner doNew(LazyPythonClass cls, Object context) {
+            boolean strict = castToBooleanNode.executeWith(getStrict.executeObject(context));
+            Object objectHook = getObjectHook.executeObject(context);
+            Object objectPairsHook = getObjectPairsHook.executeObject(context);
+            Object parseFloat = getParseFloat.executeObject(context);
+            Object parseInt = getParseInt.executeObject(context);
+            Object parseConstant = getParseConstant.executeObject(context);
+            boolean builtinParseFloat = isBuiltinType(parseFloat, PythonBuiltinClassType.PFloat);
+            boolean builtinParseInt = isBuiltinType(parseInt, PythonBuiltinClassType.PInt);
+            return factory().createJSONScanner(cls, strict, objectHook, objectPairsHook, parseFloat, parseInt, parseConstant, builtinParseFloat, builtinParseInt);
+        }
+
+        private boolean isBuiltinType(Object object, PythonBuiltinClassType type) {
+            return object == type || object == getCore().lookupType(type);
+        }
+    }
+
+    // make_encoder(markers, default, encoder, indent, key_separator, item_separator, sort_keys,
+    // skipkeys, allow_nan)
+    @Builtin(name = "make_encoder", minNumOfPositionalArgs = 10, parameterNames = {"cls", "markers", "default", "encoder", "indent", "key_separator", "item_separator", "sort_keys", "skipkeys",
+                    "allow_nan"}, constructsClass = PythonBuiltinClassType.PJSONEncoder)
+    @GenerateNodeFactory
+    public abstract static class MakeEncoderNode extends PythonBuiltinNode {
+        @Child private CastToBooleanNode castToBooleanNode = CastToBooleanNode.createIfTrueNode();
+
+        @Specialization
+        PJSONEncoder doNew(LazyPythonClass cls, Object markers, Object defaultFn, Object encoder, @SuppressWarnings("unused") Object indent, Object keySeparator, Object itemSeparator,
+                        Object sortKeys, Object skipKeys, Object allowNan) {
+            String keySep = castSeparator(keySeparator, 5);
+            String itemSep = castSeparator(itemSeparator, 6);
+            return factory().createJSONEncoder(cls, markers != PNone.NONE, defaultFn, encoder, keySep, itemSep, castToBooleanNode.executeWith(sortKeys),
+                            castToBooleanNode.executeWith(skipKeys), castToBooleanNode.executeWith(allowNan), getFastEncode(encoder));
+        }
+
+        private String castSeparator(Object separator, int argNum) {
+            if (separator instanceof String) {
+                return (String) separator;
+            } else if (separator instanceof PString) {
+                return ((PString) separator).getValue();
+            }
+            throw raise(TypeError, "make_encoder() argument %d must be str, not %p", argNum, separator);
+        }
+
+        /**
+         * The module's own escape functions are applied directly, without calling them.
+         */
+        private FastEncode getFastEncode(Object encoder) {
+            PythonModule json = getCore().lookupBuiltinModule("_json");
+            if (encoder == json.getAttribute("encode_basestring_ascii")) {
+                return FastEncode.ASCII;
+            } else if (encoder == json.getAttribute("encode_basestring")) {
+                return FastEncode.Unicode;
+            }
+            return FastEncode.None;
+        }
+    }
+}
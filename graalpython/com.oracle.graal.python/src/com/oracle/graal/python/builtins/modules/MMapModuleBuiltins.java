@@ -40,11 +40,12 @@
  */
 package com.oracle.graal.python.builtins.modules;
 
-import static com.oracle.graal.python.builtins.PythonBuiltinClassType.PMMap;
 import static com.oracle.graal.python.builtins.PythonBuiltinClassType.ValueError;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.StandardOpenOption;
 import java.util.HashSet;
@@ -60,8 +61,10 @@ import com.oracle.graal.python.builtins.objects.mmap.PMMap;
 import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.util.CastToJavaLongNode;
 import com.oracle.truffle.api.TruffleFile;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.dsl.Specialization;
@@ -86,49 +89,74 @@ public class MMapModuleBuiltins extends PythonBuiltins {
         builtinConstants.put("ACCESS_COPY", ACCESS_COPY);
     }
 
-    @Builtin(name = "mmap", minNumOfPositionalArgs = 3, parameterNames = {"cls", "fd", "length", "tagname", "access", "offset"}, constructsClass = PMMap)
+    @Builtin(name = "mmap", minNumOfPositionalArgs = 3, parameterNames = {"cls", "fd", "length", "tagname", "access", "offset"}, constructsClass = PythonBuiltinClassType.PMMap)
     @GenerateNodeFactory
     public abstract static class MMapNode extends PythonBuiltinNode {
 
         private final BranchProfile invalidLengthProfile = BranchProfile.create();
 
-        @Specialization(guards = {"isAnonymous(fd)", "isNoValue(access)", "isNoValue(offset)"})
-        PMMap doAnonymous(LazyPythonClass clazz, @SuppressWarnings("unused") int fd, int length, @SuppressWarnings("unused") Object tagname, @SuppressWarnings("unused") PNone access,
-                        @SuppressWarnings("unused") PNone offset) {
-            checkLength(length);
-            return factory().createMMap(clazz, new AnonymousMap(length), length, 0);
-        }
-
-        @Specialization(guards = {"fd >= 0", "isNoValue(access)", "isNoValue(offset)"})
-        PMMap doFile(LazyPythonClass clazz, int fd, int length, Object tagname, @SuppressWarnings("unused") PNone access, @SuppressWarnings("unused") PNone offset) {
-            return doFile(clazz, fd, length, tagname, ACCESS_DEFAULT, 0);
-        }
-
-        @Specialization(guards = {"fd >= 0", "isNoValue(offset)"})
-        PMMap doFile(LazyPythonClass clazz, int fd, int length, Object tagname, int access, @SuppressWarnings("unused") PNone offset) {
-            return doFile(clazz, fd, length, tagname, access, 0);
-        }
-
         // mmap(fileno, length, tagname=None, access=ACCESS_DEFAULT[, offset])
-        @Specialization(guards = "fd >= 0")
-        PMMap doFile(LazyPythonClass clazz, int fd, int length, @SuppressWarnings("unused") Object tagname, @SuppressWarnings("unused") int access, long offset) {
+        @Specialization(guards = "!isIllegal(fd)")
+        PMMap doMMap(LazyPythonClass clazz, int fd, Object lengthObj, @SuppressWarnings("unused") Object tagname, Object accessObj, Object offsetObj,
+                        @Cached("create()") CastToJavaLongNode castToLongNode) {
+            long length = castToLongNode.execute(lengthObj);
+            int access = accessObj instanceof PNone ? ACCESS_DEFAULT : (int) castToLongNode.execute(accessObj);
+            long offset = offsetObj instanceof PNone ? 0 : castToLongNode.execute(offsetObj);
             checkLength(length);
+            if (offset < 0) {
+                invalidLengthProfile.enter();
+                throw raise(PythonBuiltinClassType.OverflowError, "memory mapped offset must be positive");
+            }
+            if (access < ACCESS_DEFAULT || access > ACCESS_COPY) {
+                invalidLengthProfile.enter();
+                throw raise(ValueError, "mmap invalid access parameter.");
+            }
+            if (isAnonymous(fd)) {
+                return factory().createMMap(clazz, allocate(length), length, 0, access == ACCESS_READ, null, false);
+            }
 
             String path = getContext().getResources().getFilePath(fd);
             TruffleFile truffleFile = getContext().getEnv().getTruffleFile(path);
 
-            // TODO(fa) correctly honor access flags
-            Set<StandardOpenOption> options = set(StandardOpenOption.READ, StandardOpenOption.WRITE);
-
             // we create a new channel otherwise we cannot guarantee that the cursor is exclusive
             SeekableByteChannel fileChannel;
             try {
-                fileChannel = truffleFile.newByteChannel(options);
-                position(fileChannel, offset);
-                return factory().createMMap(clazz, fileChannel, length, offset);
+                fileChannel = truffleFile.newByteChannel(access == ACCESS_READ ? set(StandardOpenOption.READ) : set(StandardOpenOption.READ, StandardOpenOption.WRITE));
             } catch (IOException e) {
                 throw raise(ValueError, "cannot mmap file");
             }
+            boolean success = false;
+            try {
+                long fileSize = size(fileChannel);
+                long mapSize = length;
+                if (mapSize == 0) {
+                    if (fileSize == 0) {
+                        throw raise(ValueError, "cannot mmap an empty file");
+                    } else if (offset >= fileSize) {
+                        throw raise(ValueError, "mmap offset is greater than file size");
+                    }
+                    mapSize = fileSize - offset;
+                } else if (offset > fileSize || fileSize - offset < mapSize) {
+                    throw raise(ValueError, "mmap length is greater than file size");
+                }
+                PMMap mmap;
+                if (fileChannel instanceof FileChannel) {
+                    mmap = factory().createMMap(clazz, map((FileChannel) fileChannel, access, offset, mapSize), mapSize, offset, access == ACCESS_READ, fileChannel, false);
+                } else {
+                    // the channel cannot be mapped, so we work on a copy that is written back
+                    ByteBuffer[] windows = allocate(mapSize);
+                    read(fileChannel, windows, offset);
+                    mmap = factory().createMMap(clazz, windows, mapSize, offset, access == ACCESS_READ, fileChannel, access == ACCESS_DEFAULT || access == ACCESS_WRITE);
+                }
+                success = true;
+                return mmap;
+            } catch (IOException e) {
+                throw raise(ValueError, "cannot mmap file");
+            } finally {
+                if (!success) {
+                    close(fileChannel);
+                }
+            }
         }
 
         @TruffleBoundary
@@ -142,7 +170,7 @@ public class MMapModuleBuiltins extends PythonBuiltins {
 
         @Specialization(guards = "isIllegal(fd)")
         @SuppressWarnings("unused")
-        PMMap doAnonymous(LazyPythonClass clazz, int fd, Object length, Object tagname, PNone access, PNone offset) {
+        PMMap doIllegal(LazyPythonClass clazz, int fd, Object length, Object tagname, Object access, Object offset) {
             throw raise(PythonBuiltinClassType.OSError);
         }
 
@@ -154,7 +182,7 @@ public class MMapModuleBuiltins extends PythonBuiltins {
             return fd < -1;
         }
 
-        private void checkLength(int length) {
+        private void checkLength(long length) {
             if (length < 0) {
                 invalidLengthProfile.enter();
                 throw raise(PythonBuiltinClassType.OverflowError, "memory mapped length must be positive");
@@ -162,63 +190,64 @@ public class MMapModuleBuiltins extends PythonBuiltins {
         }
 
         @TruffleBoundary
-        private static void position(SeekableByteChannel ch, long offset) throws IOException {
-            ch.position(offset);
-        }
-    }
-
-    private static class AnonymousMap implements SeekableByteChannel {
-        private final byte[] data;
-
-        private boolean open = true;
-        private int cur;
-
-        public AnonymousMap(int cap) {
-            this.data = new byte[cap];
-        }
-
-        public boolean isOpen() {
-            return open;
-        }
-
-        public void close() throws IOException {
-            open = false;
+        private static ByteBuffer[] allocate(long length) {
+            ByteBuffer[] windows = new ByteBuffer[windowCount(length)];
+            for (int i = 0; i < windows.length; i++) {
+                windows[i] = ByteBuffer.allocate(windowLength(length, i));
+            }
+            return windows;
         }
 
-        public int read(ByteBuffer dst) throws IOException {
-            int nread = Math.min(dst.remaining(), data.length - cur);
-            dst.put(data, cur, nread);
-            return nread;
+        @TruffleBoundary
+        private static ByteBuffer[] map(FileChannel channel, int access, long offset, long length) throws IOException {
+            MapMode mode;
+            if (access == ACCESS_READ) {
+                mode = MapMode.READ_ONLY;
+            } else if (access == ACCESS_COPY) {
+                mode = MapMode.PRIVATE;
+            } else {
+                mode = MapMode.READ_WRITE;
+            }
+            ByteBuffer[] windows = new ByteBuffer[windowCount(length)];
+            for (int i = 0; i < windows.length; i++) {
+                windows[i] = channel.map(mode, offset + ((long) i << PMMap.WINDOW_SHIFT), windowLength(length, i));
+            }
+            return windows;
         }
 
-        public int write(ByteBuffer src) throws IOException {
-            int nwrite = Math.min(src.remaining(), data.length - cur);
-            src.get(data, cur, nwrite);
-            return nwrite;
+        @TruffleBoundary
+        private static void read(SeekableByteChannel channel, ByteBuffer[] windows, long offset) throws IOException {
+            channel.position(offset);
+            for (ByteBuffer window : windows) {
+                while (window.hasRemaining()) {
+                    if (channel.read(window) < 0) {
+                        break;
+                    }
+                }
+                window.clear();
+            }
         }
 
-        public long position() throws IOException {
-            return cur;
+        private static int windowCount(long length) {
+            return (int) ((length + PMMap.WINDOW_SIZE - 1) >>> PMMap.WINDOW_SHIFT);
         }
 
-        public SeekableByteChannel position(long newPosition) throws IOException {
-            if (newPosition < 0) {
-                throw new IllegalArgumentException();
-            }
-            cur = (int) newPosition;
-            return this;
+        private static int windowLength(long length, int index) {
+            return (int) Math.min(PMMap.WINDOW_SIZE, length - ((long) index << PMMap.WINDOW_SHIFT));
         }
 
-        public long size() throws IOException {
-            return data.length;
+        @TruffleBoundary
+        private static long size(SeekableByteChannel ch) throws IOException {
+            return ch.size();
         }
 
-        public SeekableByteChannel truncate(long size) throws IOException {
-            for (int i = 0; i < size; i++) {
-                data[i] = 0;
+        @TruffleBoundary
+        private static void close(SeekableByteChannel ch) {
+            try {
+                ch.close();
+            } catch (IOException e) {
+                // ignore, we are already failing
             }
-            return this;
         }
-
     }
 }
@@ -41,11 +41,16 @@
 
 package com.oracle.graal.python.builtins.modules;
 
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+
 import com.oracle.graal.python.builtins.Builtin;
 import com.oracle.graal.python.builtins.CoreFunctions;
 import com.oracle.graal.python.builtins.PythonBuiltins;
 import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.bytes.BytesNodes;
+import com.oracle.graal.python.builtins.objects.bytes.PIBytesLike;
 import com.oracle.graal.python.builtins.objects.ints.PInt;
+import com.oracle.graal.python.builtins.objects.memoryview.PMemoryView;
 import com.oracle.graal.python.nodes.SpecialMethodNames;
 import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
@@ -54,12 +59,14 @@ import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
 import com.oracle.graal.python.nodes.truffle.PythonArithmeticTypes;
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Fallback;
 import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.dsl.TypeSystemReference;
 import java.math.BigInteger;
+import java.security.MessageDigest;
 import java.util.List;
 
 @CoreFunctions(defineModule = OperatorModuleBuiltins.MODULE_NAME)
@@ -142,8 +149,51 @@ public class OperatorModuleBuiltins extends PythonBuiltins {
 
         @Specialization
         public boolean doString(String arg1, String arg2) {
-            return arg1.equals(arg2);
+            if (!isAscii(arg1) || !isAscii(arg2)) {
+                throw raise(TypeError, "comparing strings with non-ASCII characters is not supported");
+            }
+            return compare(arg1, arg2);
+        }
+
+        @Specialization(guards = {"isBytesLike(arg1)", "isBytesLike(arg2)"})
+        public boolean doBytes(Object arg1, Object arg2,
+                        @Cached("create()") BytesNodes.ToBytesNode toBytesNode) {
+            return compare(toBytesNode.execute(arg1), toBytesNode.execute(arg2));
+        }
+
+        @Fallback
+        public boolean doError(Object arg1, Object arg2) {
+            throw raise(TypeError, "unsupported operand types(s) or combination of types: '%p' and '%p'", arg1, arg2);
         }
 
+        protected static boolean isBytesLike(Object obj) {
+            return obj instanceof PIBytesLike || obj instanceof PMemoryView;
+        }
+
+        @TruffleBoundary
+        private static boolean isAscii(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                if (s.charAt(i) > 127) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // the comparisons take time independent of where the arguments differ
+        @TruffleBoundary
+        private static boolean compare(String a, String b) {
+            int result = a.length() ^ b.length();
+            String other = a.length() == b.length() ? b : a;
+            for (int i = 0; i < a.length(); i++) {
+                result |= a.charAt(i) ^ other.charAt(i);
+            }
+            return result == 0;
+        }
+
+        @TruffleBoundary
+        private static boolean compare(byte[] a, byte[] b) {
+            return MessageDigest.isEqual(a, b);
+        }
     }
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.modules;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.bytes.PIBytesLike;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.pickle.PPickler;
+import com.oracle.graal.python.builtins.objects.pickle.PUnpickler;
+import com.oracle.graal.python.builtins.objects.pickle.PicklerBuiltins;
+import com.oracle.graal.python.builtins.objects.pickle.PicklerNodes;
+import com.oracle.graal.python.builtins.objects.pickle.UnpicklerBuiltins;
+import com.oracle.graal.python.builtins.objects.pickle.UnpicklerNodes;
+import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.expression.CastToBooleanNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.util.CastToIndexNode;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+
+/**
+ * The {@code _pickle} accelerator. The exception classes and the helpers that import modules are
+ * defined in {@code lib-graalpython/_pickle.py}.
+ */
+@CoreFunctions(defineModule = "_pickle")
+public class PickleModuleBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return PickleModuleBuiltinsFactory.getFactories();
+    }
+
+    // the actual initialization happens in the type's __init__
+    @Builtin(name = "Pickler", minNumOfPositionalArgs = 1, takesVarArgs = true, takesVarKeywordArgs = true, constructsClass = PythonBuiltinClassType.PPickler)
+    @GenerateNodeFactory
+    public abstract static class PicklerNode extends PythonBuiltinNode {
+        @Specialization
+        @SuppressWarnings("unused")
+        PPickler doNew(LazyPythonClass cls, Object[] args, PKeyword[] kwargs) {
+            return factory().createPickler(cls);
+        }
+    }
+
+    // the actual initialization happens in the type's __init__
+    @Builtin(name = "Unpickler", minNumOfPositionalArgs = 1, takesVarArgs = true, takesVarKeywordArgs = true, constructsClass = PythonBuiltinClassType.PUnpickler)
+    @GenerateNodeFactory
+    public abstract static class UnpicklerNode extends PythonBuiltinNode {
+        @Specialization
+        @SuppressWarnings("unused")
+        PUnpickler doNew(LazyPythonClass cls, Object[] args, PKeyword[] kwargs) {
+            return factory().createUnpickler(cls);
+        }
+    }
+
+    /**
+     * The pickle is written into one growing buffer, which becomes the storage of the result
+     * without being copied.
+     */
+    // dumps(obj, protocol=None, *, fix_imports=True)
+    @Builtin(name = "dumps", minNumOfPositionalArgs = 1, parameterNames = {"obj", "protocol"}, varArgsMarker = true, keywordOnlyNames = {"fix_imports"})
+    @GenerateNodeFactory
+    public abstract static class DumpsNode extends PythonBuiltinNode {
+        @Child private PicklerNodes.DumpNode dumpNode = PicklerNodes.DumpNode.create();
+
+        @Specialization
+        Object dumps(Object obj, Object protocol, Object fixImports,
+                        @Cached("create()") CastToIndexNode castToIndexNode,
+                        @Cached("createIfTrueNode()") CastToBooleanNode isTrueNode) {
+            int proto = PicklerBuiltins.getProtocol(this, castToIndexNode, protocol);
+            PPickler pickler = factory().createPickler(PythonBuiltinClassType.PPickler);
+            pickler.init(proto, fixImports instanceof PNone || isTrueNode.executeWith(fixImports), null);
+            dumpNode.execute(pickler, obj, false);
+            return factory().createBytes(pickler.takeOutput());
+        }
+    }
+
+    /**
+     * The opcodes are read directly from the storage of the argument; it is not copied.
+     */
+    // loads(data, *, fix_imports=True, encoding="ASCII", errors="strict")
+    @Builtin(name = "loads", minNumOfPositionalArgs = 1, parameterNames = {"data"}, varArgsMarker = true, keywordOnlyNames = {"fix_imports", "encoding", "errors"})
+    @GenerateNodeFactory
+    public abstract static class LoadsNode extends PythonBuiltinNode {
+        @Child private UnpicklerNodes.LoadNode loadNode = UnpicklerNodes.LoadNode.create();
+        @Child private CallNode callNode;
+
+        @Specialization
+        Object loads(Object data, Object fixImports, Object encoding, Object errors,
+                        @Cached("createIfTrueNode()") CastToBooleanNode isTrueNode) {
+            String encodingName = UnpicklerBuiltins.getStringArgument(this, encoding, "encoding", "ASCII");
+            String errorsName = UnpicklerBuiltins.getStringArgument(this, errors, "errors", "strict");
+            PUnpickler unpickler = factory().createUnpickler(PythonBuiltinClassType.PUnpickler);
+            unpickler.init(null, null, fixImports instanceof PNone || isTrueNode.executeWith(fixImports), encodingName, errorsName);
+            SequenceStorage storage = getStorage(data);
+            if (storage instanceof ByteSequenceStorage) {
+                unpickler.setInput(((ByteSequenceStorage) storage).getInternalByteArray(), 0, storage.length());
+            } else {
+                byte[] bytes = new byte[storage.length()];
+                for (int i = 0; i < bytes.length; i++) {
+                    bytes[i] = (byte) (int) storage.getItemNormalized(i);
+                }
+                unpickler.setInput(bytes, 0, bytes.length);
+            }
+            return loadNode.execute(unpickler, false);
+        }
+
+        private SequenceStorage getStorage(Object data) {
+            if (data instanceof PIBytesLike) {
+                return ((PIBytesLike) data).getSequenceStorage();
+            } else if (data instanceof String || data instanceof PString) {
+                throw raise(TypeError, "a bytes-like object is required, not 'str'");
+            }
+            // other buffers, e.g. memoryview, are converted like bytes(data)
+            if (callNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                callNode = insert(CallNode.create());
+            }
+            Object bytes = callNode.execute(null, getBuiltinPythonClass(PythonBuiltinClassType.PBytes), new Object[]{data}, PKeyword.EMPTY_KEYWORDS);
+            return ((PIBytesLike) bytes).getSequenceStorage();
+        }
+    }
+}
@@ -98,6 +98,7 @@ import com.oracle.graal.python.builtins.objects.floats.PFloat;
 import com.oracle.graal.python.builtins.objects.function.PKeyword;
 import com.oracle.graal.python.builtins.objects.ints.PInt;
 import com.oracle.graal.python.builtins.objects.module.PythonModule;
+import com.oracle.graal.python.builtins.objects.select.PPoll;
 import com.oracle.graal.python.builtins.objects.str.PString;
 import com.oracle.graal.python.builtins.objects.tuple.PTuple;
 import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
@@ -114,6 +115,7 @@ import com.oracle.graal.python.nodes.truffle.PythonArithmeticTypes;
 import com.oracle.graal.python.nodes.util.CastToIndexNode;
 import com.oracle.graal.python.nodes.util.CastToIntegerFromIntNode;
 import com.oracle.graal.python.nodes.util.ChannelNodes.ReadFromChannelNode;
+import com.oracle.graal.python.runtime.GlobalInterpreterLock;
 import com.oracle.graal.python.runtime.PosixResources;
 import com.oracle.graal.python.runtime.PythonContext;
 import com.oracle.graal.python.runtime.PythonCore;
@@ -953,7 +955,7 @@ public class PosixModuleBuiltins extends PythonBuiltins {
             Channel channel = getResources().getFileChannel(fd, channelClassProfile);
             if (channel instanceof WritableByteChannel) {
                 try {
-                    return doWriteOp(data, (WritableByteChannel) channel);
+                    return doWriteOp(getContext().getGil(), data, (WritableByteChannel) channel);
                 } catch (NonWritableChannelException | IOException e) {
                     gotException.enter();
                     throw raise(OSError, e);
@@ -964,9 +966,18 @@ public class PosixModuleBuiltins extends PythonBuiltins {
             }
         }
 
+        /*
+         * Only the channel call runs without the GIL; errors are raised after it has been acquired
+         * again.
+         */
         @TruffleBoundary(allowInlining = true, transferToInterpreterOnException = false)
-        private static int doWriteOp(byte[] data, WritableByteChannel channel) throws IOException {
-            return channel.write(ByteBuffer.wrap(data));
+        private static int doWriteOp(GlobalInterpreterLock gil, byte[] data, WritableByteChannel channel) throws IOException {
+            boolean released = gil.release();
+            try {
+                return PPoll.write(channel, ByteBuffer.wrap(data));
+            } finally {
+                gil.acquire(released);
+            }
         }
 
         @Specialization
@@ -1043,6 +1054,7 @@ public class PosixModuleBuiltins extends PythonBuiltins {
                 size = ReadFromChannelNode.MAX_READ;
             }
             Channel channel = getResources().getFileChannel(fd, channelClassProfile);
+            // the node releases the GIL around the channel read
             ByteSequenceStorage array = readNode.execute(channel, size);
             return factory().createBytes(array);
         }
@@ -1271,12 +1283,21 @@ public class PosixModuleBuiltins extends PythonBuiltins {
         @Specialization(guards = {"options == 0"})
         @TruffleBoundary
         PTuple waitpid(int pid, int options) {
+            GlobalInterpreterLock gil = getContext().getGil();
+            int exitStatus = 0;
+            boolean valid = true;
+            boolean released = gil.release();
             try {
-                int exitStatus = getResources().waitpid(pid);
-                return factory().createTuple(new Object[]{pid, exitStatus});
+                exitStatus = getResources().waitpid(pid);
             } catch (ArrayIndexOutOfBoundsException | InterruptedException e) {
+                valid = false;
+            } finally {
+                gil.acquire(released);
+            }
+            if (!valid) {
                 throw raise(OSError, "not a valid child pid");
             }
+            return factory().createTuple(new Object[]{pid, exitStatus});
         }
 
         @SuppressWarnings("unused")
@@ -40,44 +40,23 @@
  */
 package com.oracle.graal.python.builtins.modules;
 
-import static com.oracle.graal.python.runtime.exception.PythonErrorType.RuntimeError;
-import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
-import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
-
-import java.io.UnsupportedEncodingException;
 import java.util.List;
 
 import com.oracle.graal.python.builtins.Builtin;
 import com.oracle.graal.python.builtins.CoreFunctions;
 import com.oracle.graal.python.builtins.PythonBuiltins;
-import com.oracle.graal.python.builtins.objects.bytes.BytesNodes;
-import com.oracle.graal.python.builtins.objects.bytes.BytesUtils;
-import com.oracle.graal.python.builtins.objects.bytes.PIBytesLike;
-import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes;
-import com.oracle.graal.python.builtins.objects.memoryview.PMemoryView;
-import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.builtins.objects.bytes.PBytes;
+import com.oracle.graal.python.builtins.objects.dict.PDict;
+import com.oracle.graal.python.builtins.objects.sre.PSREPattern;
+import com.oracle.graal.python.builtins.objects.sre.SRENodes.CompileNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
-import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
 import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
-import com.oracle.graal.python.nodes.truffle.PythonArithmeticTypes;
-import com.oracle.graal.python.runtime.exception.PythonErrorType;
-import com.oracle.truffle.api.CompilerAsserts;
-import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
-import com.oracle.truffle.api.TruffleException;
 import com.oracle.truffle.api.dsl.Cached;
-import com.oracle.truffle.api.dsl.Fallback;
 import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.dsl.Specialization;
-import com.oracle.truffle.api.dsl.TypeSystemReference;
-import com.oracle.truffle.api.interop.ArityException;
-import com.oracle.truffle.api.interop.InteropLibrary;
-import com.oracle.truffle.api.interop.TruffleObject;
-import com.oracle.truffle.api.interop.UnsupportedMessageException;
-import com.oracle.truffle.api.interop.UnsupportedTypeException;
-import com.oracle.truffle.api.library.CachedLibrary;
-import com.oracle.truffle.api.profiles.BranchProfile;
 import com.oracle.truffle.api.source.Source;
 
 @CoreFunctions(defineModule = "_sre")
@@ -98,144 +77,32 @@ public class SREModuleBuiltins extends PythonBuiltins {
     }
 
     /**
-     * Replaces any <it>quoted</it> escape sequence like {@code "\\n"} (two characters; backslash +
-     * 'n') by its single character like {@code "\n"} (one character; newline).
+     * Compiles a {@code str} or {@code bytes} pattern with the given TRegex engine and returns the
+     * {@code re.Pattern} object. {@code flags_str} is the TRegex flags string corresponding to
+     * {@code flags}.
      */
-    @Builtin(name = "_process_escape_sequences", minNumOfPositionalArgs = 1)
+    @Builtin(name = "tregex_compile", minNumOfPositionalArgs = 4, parameterNames = {"engine", "pattern", "flags", "flags_str"})
     @GenerateNodeFactory
-    abstract static class ProcessEscapeSequences extends PythonUnaryBuiltinNode {
-
-        @Child private SequenceStorageNodes.ToByteArrayNode toByteArrayNode;
-        @Child private BytesNodes.ToBytesNode toBytesNode;
-
-        @Specialization
-        Object run(PString str) {
-            return run(str.getValue());
-        }
-
-        @Specialization
-        @TruffleBoundary(transferToInterpreterOnException = false, allowInlining = true)
-        Object run(String str) {
-            if (containsBackslash(str)) {
-                StringBuilder sb = BytesUtils.decodeEscapes(getCore(), str, true);
-                return sb.toString();
-            }
-            return str;
-        }
+    abstract static class TRegexCompile extends PythonBuiltinNode {
 
         @Specialization
-        Object run(PIBytesLike str) {
-            byte[] bytes = doBytes(getToByteArrayNode().execute(str.getSequenceStorage()));
-            if (bytes != null) {
-                return factory().createByteArray(bytes);
-            }
-            return str;
-        }
-
-        @Specialization
-        Object run(PMemoryView memoryView) {
-            byte[] bytes = doBytes(getToBytesNode().execute(memoryView));
-            if (bytes != null) {
-                return factory().createByteArray(bytes);
-            }
-            return memoryView;
-        }
-
-        @TruffleBoundary(transferToInterpreterOnException = false, allowInlining = true)
-        private byte[] doBytes(byte[] str) {
-            try {
-                StringBuilder sb = BytesUtils.decodeEscapes(getCore(), new String(str, "ascii"), true);
-                return sb.toString().getBytes("ascii");
-            } catch (UnsupportedEncodingException e) {
-            }
-            return null;
-        }
-
-        private static boolean containsBackslash(String str) {
-            CompilerAsserts.neverPartOfCompilation();
-            for (int i = 0; i < str.length(); i++) {
-                if (str.charAt(i) == '\\') {
-                    return true;
-                }
-            }
-            return false;
-        }
-
-        @Fallback
-        Object run(Object o) {
-            throw raise(PythonErrorType.TypeError, "expected string, not %p", o);
-        }
-
-        private SequenceStorageNodes.ToByteArrayNode getToByteArrayNode() {
-            if (toByteArrayNode == null) {
-                CompilerDirectives.transferToInterpreterAndInvalidate();
-                toByteArrayNode = insert(SequenceStorageNodes.ToByteArrayNode.create());
-            }
-            return toByteArrayNode;
-        }
-
-        private BytesNodes.ToBytesNode getToBytesNode() {
-            if (toBytesNode == null) {
-                CompilerDirectives.transferToInterpreterAndInvalidate();
-                toBytesNode = insert(BytesNodes.ToBytesNode.create());
-            }
-            return toBytesNode;
-        }
-    }
-
-    @Builtin(name = "tregex_call_compile", minNumOfPositionalArgs = 3)
-    @TypeSystemReference(PythonArithmeticTypes.class)
-    @GenerateNodeFactory
-    abstract static class TRegexCallCompile extends PythonTernaryBuiltinNode {
-
-        @Specialization(guards = "isForeignObject(callable)", limit = "1")
-        Object call(TruffleObject callable, Object arg1, Object arg2,
-                        @Cached("create()") BranchProfile syntaxError,
-                        @Cached("create()") BranchProfile typeError,
-                        @CachedLibrary("callable") InteropLibrary interop) {
-            try {
-                return interop.execute(callable, arg1, arg2);
-            } catch (ArityException | UnsupportedTypeException | UnsupportedMessageException e) {
-                typeError.enter();
-                throw raise(TypeError, "%s", e);
-            } catch (RuntimeException e) {
-                if (e instanceof TruffleException && ((TruffleException) e).isSyntaxError()) {
-                    syntaxError.enter();
-                    throw raise(ValueError, "%s", e);
+        @TruffleBoundary
+        PSREPattern compile(Object engine, Object pattern, int flags, Object flagsStr,
+                        @Cached("create()") CompileNode compileNode) {
+            boolean binary = pattern instanceof PBytes;
+            Object source = binary ? pattern : pattern.toString();
+            String flagsString = flagsStr.toString();
+            Object compiled = compileNode.compile(engine, source, flagsString, pattern);
+            Object searchExec = compileNode.readMember(compiled, "exec");
+            int groups = compileNode.getGroups(compiled);
+            String[] groupNames = compileNode.getGroupNames(compiled, groups);
+            PDict groupIndex = factory().createDict();
+            for (int i = 1; i < groupNames.length; i++) {
+                if (groupNames[i] != null) {
+                    groupIndex.setItem(groupNames[i], i);
                 }
-                // just re-throw
-                throw e;
             }
-        }
-
-        @SuppressWarnings("unused")
-        @Fallback
-        Object call(Object callable, Object arg1, Object arg2) {
-            throw raise(RuntimeError, "invalid arguments passed to tregex_call_compile");
-        }
-    }
-
-    @Builtin(name = "tregex_call_exec", minNumOfPositionalArgs = 3)
-    @TypeSystemReference(PythonArithmeticTypes.class)
-    @GenerateNodeFactory
-    abstract static class TRegexCallExec extends PythonTernaryBuiltinNode {
-
-        @Specialization(guards = "isForeignObject(callable)", limit = "1")
-        Object call(TruffleObject callable, Object arg1, Number arg2,
-                        @Cached("create()") BranchProfile typeError,
-                        @CachedLibrary("callable") InteropLibrary interop) {
-            try {
-                return interop.execute(callable, arg1, arg2);
-            } catch (ArityException | UnsupportedTypeException | UnsupportedMessageException e) {
-                typeError.enter();
-                throw raise(TypeError, "%s", e);
-            }
-        }
-
-        @SuppressWarnings("unused")
-        @Fallback
-        Object call(Object callable, Object arg1, Object arg2) {
-            throw raise(RuntimeError, "invalid arguments passed to tregex_call_exec");
+            return factory().createSREPattern(engine, pattern, source, flags, flagsString, binary, groups, groupIndex.getDictStorage(), groupNames, searchExec);
         }
     }
 }
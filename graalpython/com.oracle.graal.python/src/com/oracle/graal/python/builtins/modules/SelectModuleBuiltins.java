@@ -40,20 +40,38 @@
  */
 package com.oracle.graal.python.builtins.modules;
 
-import java.io.PrintStream;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.OSError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import com.oracle.graal.python.builtins.Builtin;
 import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
 import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.exception.OSErrorEnum;
+import com.oracle.graal.python.builtins.objects.select.PPoll;
+import com.oracle.graal.python.builtins.objects.select.SelectNodes.FileDescriptorNode;
+import com.oracle.graal.python.builtins.objects.select.SelectNodes.TimeoutToMillisNode;
 import com.oracle.graal.python.builtins.objects.tuple.PTuple;
+import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+import com.oracle.graal.python.nodes.control.GetIteratorExpressionNode.GetIteratorNode;
+import com.oracle.graal.python.nodes.control.GetNextNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
-import com.oracle.graal.python.runtime.PythonOptions;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.nodes.util.CastToDoubleNode;
+import com.oracle.graal.python.runtime.PythonCore;
+import com.oracle.graal.python.runtime.exception.PException;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
 
 @CoreFunctions(defineModule = "select")
 public class SelectModuleBuiltins extends PythonBuiltins {
@@ -62,16 +80,153 @@ public class SelectModuleBuiltins extends PythonBuiltins {
         return SelectModuleBuiltinsFactory.getFactories();
     }
 
+    @Override
+    public void initialize(PythonCore core) {
+        super.initialize(core);
+        builtinConstants.put("POLLIN", PPoll.POLLIN);
+        builtinConstants.put("POLLPRI", PPoll.POLLPRI);
+        builtinConstants.put("POLLOUT", PPoll.POLLOUT);
+        builtinConstants.put("POLLERR", PPoll.POLLERR);
+        builtinConstants.put("POLLHUP", PPoll.POLLHUP);
+        builtinConstants.put("POLLNVAL", PPoll.POLLNVAL);
+        builtinConstants.put("POLLRDNORM", PPoll.POLLRDNORM);
+        builtinConstants.put("POLLRDBAND", PPoll.POLLRDBAND);
+        builtinConstants.put("POLLWRNORM", PPoll.POLLWRNORM);
+        builtinConstants.put("POLLWRBAND", PPoll.POLLWRBAND);
+        builtinConstants.put("POLLMSG", PPoll.POLLMSG);
+        builtinConstants.put("POLLRDHUP", PPoll.POLLRDHUP);
+        builtinConstants.put("EPOLLIN", PPoll.POLLIN);
+        builtinConstants.put("EPOLLPRI", PPoll.POLLPRI);
+        builtinConstants.put("EPOLLOUT", PPoll.POLLOUT);
+        builtinConstants.put("EPOLLERR", PPoll.POLLERR);
+        builtinConstants.put("EPOLLHUP", PPoll.POLLHUP);
+        builtinConstants.put("EPOLLRDNORM", PPoll.POLLRDNORM);
+        builtinConstants.put("EPOLLRDBAND", PPoll.POLLRDBAND);
+        builtinConstants.put("EPOLLWRNORM", PPoll.POLLWRNORM);
+        builtinConstants.put("EPOLLWRBAND", PPoll.POLLWRBAND);
+        builtinConstants.put("EPOLLMSG", PPoll.POLLMSG);
+        builtinConstants.put("EPOLLRDHUP", PPoll.POLLRDHUP);
+        builtinConstants.put("EPOLLONESHOT", PPoll.EPOLLONESHOT);
+        // exported for compatibility, but epoll objects reject it since they are level-triggered
+        builtinConstants.put("EPOLLET", PPoll.EPOLLET);
+        builtinConstants.put("EPOLL_CLOEXEC", 0x80000);
+    }
+
     @Builtin(name = "select", minNumOfPositionalArgs = 3, parameterNames = {"rlist", "wlist", "xlist", "timeout"})
     @GenerateNodeFactory
     abstract static class SelectNode extends PythonBuiltinNode {
         @Specialization
-        @TruffleBoundary
-        PTuple select(Object rlist, Object wlist, Object xlist, @SuppressWarnings("unused") Object timeout) {
-            if (PythonOptions.getFlag(getContext(), PythonOptions.VerboseFlag)) {
-                new PrintStream(getContext().getEnv().err()).println("select() will always return immediately, we only support blocking I/O for now");
+        PTuple select(VirtualFrame frame, Object rlist, Object wlist, Object xlist, Object timeout,
+                        @Cached("create()") GetIteratorNode getIteratorNode,
+                        @Cached("create()") GetNextNode getNextNode,
+                        @Cached("create()") IsBuiltinClassProfile errorProfile,
+                        @Cached("create()") FileDescriptorNode fileDescriptorNode,
+                        @Cached("create()") CastToDoubleNode castToDoubleNode,
+                        @Cached("createSeconds()") TimeoutToMillisNode timeoutNode) {
+            if (!(timeout instanceof PNone) && castToDoubleNode.execute(timeout) < 0) {
+                throw raise(ValueError, "timeout must be non-negative");
+            }
+            long millis = timeoutNode.execute(timeout);
+            Object[] readObjects = toArray(rlist, getIteratorNode, getNextNode, errorProfile);
+            Object[] writeObjects = toArray(wlist, getIteratorNode, getNextNode, errorProfile);
+            Object[] exceptObjects = toArray(xlist, getIteratorNode, getNextNode, errorProfile);
+            int[] readFds = toFds(readObjects, fileDescriptorNode);
+            int[] writeFds = toFds(writeObjects, fileDescriptorNode);
+            // exceptional conditions (out-of-band data) are never reported, but the arguments are
+            // still validated
+            toFds(exceptObjects, fileDescriptorNode);
+
+            int n = readFds.length + writeFds.length;
+            int[] fds = new int[n];
+            int[] events = new int[n];
+            for (int i = 0; i < readFds.length; i++) {
+                fds[i] = readFds[i];
+                events[i] = PPoll.POLLIN;
+            }
+            for (int i = 0; i < writeFds.length; i++) {
+                fds[readFds.length + i] = writeFds[i];
+                events[readFds.length + i] = PPoll.POLLOUT;
+            }
+            int[] revents;
+            try {
+                revents = PPoll.waitForEvents(getContext().getResources(), getContext().getGil(), fds, events, millis);
+            } catch (IOException e) {
+                throw raise(OSError, e);
+            }
+            for (int i = 0; i < n; i++) {
+                if ((revents[i] & PPoll.POLLNVAL) != 0) {
+                    throw raiseOSError(frame, OSErrorEnum.EBADF);
+                }
+            }
+            Object[] readReady = ready(readObjects, revents, 0);
+            Object[] writeReady = ready(writeObjects, revents, readFds.length);
+            return factory().createTuple(new Object[]{factory().createList(readReady), factory().createList(writeReady), factory().createList()});
+        }
+
+        private static Object[] toArray(Object sequence, GetIteratorNode getIteratorNode, GetNextNode getNextNode, IsBuiltinClassProfile errorProfile) {
+            Object iterator = getIteratorNode.executeWith(sequence);
+            List<Object> result = new ArrayList<>();
+            while (true) {
+                try {
+                    add(result, getNextNode.execute(iterator));
+                } catch (PException e) {
+                    e.expectStopIteration(errorProfile);
+                    return toArray(result);
+                }
+            }
+        }
+
+        private static int[] toFds(Object[] objects, FileDescriptorNode fileDescriptorNode) {
+            int[] fds = new int[objects.length];
+            for (int i = 0; i < objects.length; i++) {
+                fds[i] = fileDescriptorNode.execute(objects[i]);
+            }
+            return fds;
+        }
+
+        private static Object[] ready(Object[] objects, int[] revents, int offset) {
+            int count = 0;
+            for (int i = 0; i < objects.length; i++) {
+                if (revents[offset + i] != 0) {
+                    count++;
+                }
+            }
+            Object[] result = new Object[count];
+            int j = 0;
+            for (int i = 0; i < objects.length; i++) {
+                if (revents[offset + i] != 0) {
+                    result[j++] = objects[i];
+                }
             }
-            return factory().createTuple(new Object[]{rlist, wlist, xlist});
+            return result;
+        }
+
+        @TruffleBoundary
+        private static void add(List<Object> list, Object item) {
+            list.add(item);
+        }
+
+        @TruffleBoundary
+        private static Object[] toArray(List<Object> list) {
+            return list.toArray();
+        }
+    }
+
+    @Builtin(name = "poll", minNumOfPositionalArgs = 1, constructsClass = PythonBuiltinClassType.PPoll)
+    @GenerateNodeFactory
+    abstract static class PollNode extends PythonBuiltinNode {
+        @Specialization
+        PPoll poll(LazyPythonClass cls) {
+            return factory().createPoll(cls);
+        }
+    }
+
+    @Builtin(name = "epoll", minNumOfPositionalArgs = 1, parameterNames = {"cls", "sizehint", "flags"}, constructsClass = PythonBuiltinClassType.PEpoll)
+    @GenerateNodeFactory
+    abstract static class EpollNode extends PythonBuiltinNode {
+        @Specialization
+        PPoll epoll(LazyPythonClass cls, @SuppressWarnings("unused") Object sizehint, @SuppressWarnings("unused") Object flags) {
+            return factory().createPoll(cls);
         }
     }
 }
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.modules;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.bytes.PBytes;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.struct.PStruct;
+import com.oracle.graal.python.builtins.objects.struct.PStructUnpackIterator;
+import com.oracle.graal.python.builtins.objects.struct.StructFormat;
+import com.oracle.graal.python.builtins.objects.struct.StructNodes.GetFormatNode;
+import com.oracle.graal.python.builtins.objects.struct.StructNodes.IterUnpackNode;
+import com.oracle.graal.python.builtins.objects.struct.StructNodes.PackIntoNode;
+import com.oracle.graal.python.builtins.objects.struct.StructNodes.PackNode;
+import com.oracle.graal.python.builtins.objects.struct.StructNodes.UnpackFromNode;
+import com.oracle.graal.python.builtins.objects.struct.StructNodes.UnpackNode;
+import com.oracle.graal.python.builtins.objects.tuple.PTuple;
+import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+
+/**
+ * The {@code _struct} module. Compiled formats are shared with {@code Struct} objects through
+ * the per-context {@link StructFormat.Cache}, and constant format strings are compiled once per
+ * call site.
+ * {@code struct.error} is defined in {@code lib-graalpython/_struct.py}.
+ */
+@CoreFunctions(defineModule = "_struct")
+public class StructModuleBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return StructModuleBuiltinsFactory.getFactories();
+    }
+
+    // the actual initialization happens in the type's __init__
+    @Builtin(name = "Struct", minNumOfPositionalArgs = 1, takesVarArgs = true, takesVarKeywordArgs = true, constructsClass = PythonBuiltinClassType.PStruct)
+    @GenerateNodeFactory
+    public abstract static class StructNode extends PythonBuiltinNode {
+        @Specialization
+        @SuppressWarnings("unused")
+        PStruct doNew(LazyPythonClass cls, Object[] args, PKeyword[] kwargs) {
+            return factory().createStruct(cls);
+        }
+    }
+
+    @Builtin(name = "calcsize", minNumOfPositionalArgs = 1, parameterNames = {"format"})
+    @GenerateNodeFactory
+    public abstract static class CalcSizeNode extends PythonBuiltinNode {
+        @Specialization
+        int calcsize(Object format,
+                        @Cached("create()") GetFormatNode getFormatNode) {
+            return getFormatNode.execute(format).getSize();
+        }
+    }
+
+    @Builtin(name = "pack", minNumOfPositionalArgs = 1, parameterNames = {"format"}, takesVarArgs = true)
+    @GenerateNodeFactory
+    public abstract static class PackFunctionNode extends PythonBuiltinNode {
+        @Specialization
+        PBytes pack(Object format, Object[] args,
+                        @Cached("create()") GetFormatNode getFormatNode,
+                        @Cached("create()") PackNode packNode) {
+            return packNode.execute(getFormatNode.execute(format), args);
+        }
+    }
+
+    @Builtin(name = "pack_into", minNumOfPositionalArgs = 1, parameterNames = {"format"}, takesVarArgs = true)
+    @GenerateNodeFactory
+    public abstract static class PackIntoFunctionNode extends PythonBuiltinNode {
+        @Specialization
+        PNone packInto(Object format, Object[] args,
+                        @Cached("create()") GetFormatNode getFormatNode,
+                        @Cached("create()") PackIntoNode packIntoNode) {
+            packIntoNode.execute(getFormatNode.execute(format), args);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "unpack", minNumOfPositionalArgs = 2, parameterNames = {"format", "buffer"})
+    @GenerateNodeFactory
+    public abstract static class UnpackFunctionNode extends PythonBuiltinNode {
+        @Specialization
+        PTuple unpack(Object format, Object buffer,
+                        @Cached("create()") GetFormatNode getFormatNode,
+                        @Cached("create()") UnpackNode unpackNode) {
+            return unpackNode.execute(getFormatNode.execute(format), buffer);
+        }
+    }
+
+    @Builtin(name = "unpack_from", minNumOfPositionalArgs = 2, parameterNames = {"format", "buffer", "offset"})
+    @GenerateNodeFactory
+    public abstract static class UnpackFromFunctionNode extends PythonBuiltinNode {
+        @Specialization
+        PTuple unpackFrom(Object format, Object buffer, Object offset,
+                        @Cached("create()") GetFormatNode getFormatNode,
+                        @Cached("create()") UnpackFromNode unpackFromNode) {
+            return unpackFromNode.execute(getFormatNode.execute(format), buffer, offset);
+        }
+    }
+
+    @Builtin(name = "iter_unpack", minNumOfPositionalArgs = 2, parameterNames = {"format", "buffer"})
+    @GenerateNodeFactory
+    public abstract static class IterUnpackFunctionNode extends PythonBuiltinNode {
+        @Specialization
+        PStructUnpackIterator iterUnpack(Object format, Object buffer,
+                        @Cached("create()") GetFormatNode getFormatNode,
+                        @Cached("create()") IterUnpackNode iterUnpackNode) {
+            return iterUnpackNode.execute(getFormatNode.execute(format), buffer);
+        }
+    }
+
+    @Builtin(name = "_clearcache")
+    @GenerateNodeFactory
+    public abstract static class ClearCacheNode extends PythonBuiltinNode {
+        @Specialization
+        PNone clearCache() {
+            getContext().getStructFormatCache().clear();
+            return PNone.NONE;
+        }
+    }
+}
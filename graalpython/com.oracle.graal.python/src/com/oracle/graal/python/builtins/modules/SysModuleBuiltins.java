@@ -69,6 +69,7 @@ import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
 import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
 import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
 import com.oracle.graal.python.nodes.object.GetClassNode;
+import com.oracle.graal.python.nodes.truffle.PythonArithmeticTypes;
 import com.oracle.graal.python.nodes.util.CastToIntegerFromIntNode;
 import com.oracle.graal.python.runtime.PythonContext;
 import com.oracle.graal.python.runtime.PythonCore;
@@ -85,9 +86,11 @@ import com.oracle.truffle.api.TruffleOptions;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Cached.Shared;
 import com.oracle.truffle.api.dsl.CachedLanguage;
+import com.oracle.truffle.api.dsl.Fallback;
 import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.dsl.TypeSystemReference;
 import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.nodes.DirectCallNode;
 import com.oracle.truffle.api.nodes.RootNode;
@@ -119,7 +122,6 @@ public class SysModuleBuiltins extends PythonBuiltins {
         builtinConstants.put("abiflags", "");
         builtinConstants.put("byteorder", ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? "little" : "big");
         builtinConstants.put("copyright", LICENSE);
-        builtinConstants.put("dont_write_bytecode", true);
         builtinConstants.put("modules", core.factory().createDict());
         builtinConstants.put("path", core.factory().createList());
         builtinConstants.put("builtin_module_names", core.factory().createTuple(core.builtinModuleNames()));
@@ -176,6 +178,9 @@ public class SysModuleBuiltins extends PythonBuiltins {
             sys.setAttribute(name, base_prefix);
         }
 
+        // parse tree caches are only written if requested, but the attribute may be changed at
+        // runtime
+        sys.setAttribute("dont_write_bytecode", PythonOptions.getFlag(context, PythonOptions.DontWriteBytecodeFlag) || !PythonOptions.getOption(context, PythonOptions.WriteParseCache));
         sys.setAttribute("executable", PythonOptions.getOption(context, PythonOptions.Executable));
         sys.setAttribute("graal_python_home", context.getLanguage().getHome());
         sys.setAttribute("graal_python_core_home", PythonOptions.getOption(context, PythonOptions.CoreHome));
@@ -185,7 +190,7 @@ public class SysModuleBuiltins extends PythonBuiltins {
         sys.setAttribute("__flags__", core.factory().createTuple(new Object[]{
                         false, // bytes_warning
                         !PythonOptions.getFlag(context, PythonOptions.PythonOptimizeFlag), // debug
-                        true,  // dont_write_bytecode
+                        PythonOptions.getFlag(context, PythonOptions.DontWriteBytecodeFlag), // dont_write_bytecode
                         false, // hash_randomization
                         PythonOptions.getFlag(context, PythonOptions.IgnoreEnvironmentFlag), // ignore_environment
                         PythonOptions.getFlag(context, PythonOptions.InspectFlag), // inspect
@@ -441,6 +446,39 @@ public class SysModuleBuiltins extends PythonBuiltins {
         }
     }
 
+    @Builtin(name = "getswitchinterval", minNumOfPositionalArgs = 0)
+    @GenerateNodeFactory
+    public abstract static class GetSwitchIntervalNode extends PythonBuiltinNode {
+        @Specialization
+        protected double getSwitchInterval() {
+            return getContext().getGil().getSwitchInterval();
+        }
+    }
+
+    @Builtin(name = "setswitchinterval", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    @TypeSystemReference(PythonArithmeticTypes.class)
+    public abstract static class SetSwitchIntervalNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        protected PNone setSwitchInterval(double interval) {
+            if (interval <= 0) {
+                throw raise(ValueError, "switch interval must be strictly positive");
+            }
+            getContext().getGil().setSwitchInterval(interval);
+            return PNone.NONE;
+        }
+
+        @Specialization
+        protected PNone setSwitchInterval(long interval) {
+            return setSwitchInterval((double) interval);
+        }
+
+        @Fallback
+        protected PNone setSwitchInterval(Object interval) {
+            throw raise(TypeError, "must be real number, not %p", interval);
+        }
+    }
+
     @Builtin(name = "getsizeof", minNumOfPositionalArgs = 1, maxNumOfPositionalArgs = 2)
     @GenerateNodeFactory
     public abstract static class GetsizeofNode extends PythonBinaryBuiltinNode {
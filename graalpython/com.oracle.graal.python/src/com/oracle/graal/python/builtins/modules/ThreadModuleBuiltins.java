@@ -45,12 +45,14 @@ import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueErr
 
 import java.util.List;
 
+import com.oracle.graal.python.PythonLanguage;
 import com.oracle.graal.python.builtins.Builtin;
 import com.oracle.graal.python.builtins.CoreFunctions;
 import com.oracle.graal.python.builtins.PythonBuiltinClassType;
 import com.oracle.graal.python.builtins.PythonBuiltins;
 import com.oracle.graal.python.builtins.objects.PNone;
 import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.module.PythonModule;
 import com.oracle.graal.python.builtins.objects.thread.PLock;
 import com.oracle.graal.python.builtins.objects.thread.PRLock;
 import com.oracle.graal.python.builtins.objects.thread.PThread;
@@ -61,14 +63,17 @@ import com.oracle.graal.python.nodes.call.CallNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
 import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.runtime.GlobalInterpreterLock;
 import com.oracle.graal.python.runtime.PythonContext;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.Truffle;
 import com.oracle.truffle.api.TruffleLanguage;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.RootNode;
 import com.oracle.truffle.api.profiles.ConditionProfile;
 
 @CoreFunctions(defineModule = "_thread")
@@ -163,18 +168,83 @@ public class ThreadModuleBuiltins extends PythonBuiltins {
                         @Cached("create()") ExpandKeywordStarargsNode getKwArgsNode) {
             PythonContext context = getContext();
             TruffleLanguage.Env env = context.getEnv();
+            GlobalInterpreterLock gil = context.getGil();
+            if (!gil.isActive()) {
+                activateGil(context);
+            }
 
             // TODO: python thread stack size != java thread stack size
             // ignore setting the stack size for the moment
             Thread thread = env.createThread(() -> {
-                Object[] arguments = getArgsNode.executeWith(args);
-                PKeyword[] keywords = getKwArgsNode.executeWith(kwargs);
-                callNode.execute(frame, callable, arguments, keywords);
+                gil.enter();
+                try {
+                    Object[] arguments = getArgsNode.executeWith(args);
+                    PKeyword[] keywords = getKwArgsNode.executeWith(kwargs);
+                    callNode.execute(frame, callable, arguments, keywords);
+                } finally {
+                    // lets 'Thread.join' in the threading module return
+                    PLock sentinel = context.getThreadSentinel();
+                    if (sentinel != null && sentinel.locked()) {
+                        sentinel.release();
+                    }
+                    gil.leave();
+                }
             }, env.getContext(), context.getThreadGroup());
 
             PThread pThread = factory().createPythonThread(cls, thread);
             pThread.start();
             return pThread.getId();
         }
+
+        @TruffleBoundary
+        private static void activateGil(PythonContext context) {
+            context.getGil().activate();
+            context.setThreadingShutdownHook(Truffle.getRuntime().createCallTarget(new ThreadingShutdownRootNode(context.getLanguage())));
+        }
+    }
+
+    /**
+     * Calls {@code threading._shutdown()} at exit, so that the interpreter waits for non-daemon
+     * threads like CPython does.
+     */
+    private static final class ThreadingShutdownRootNode extends RootNode {
+        private static final String THREADING = "threading";
+        private static final String SHUTDOWN = "_shutdown";
+
+        @Child private CallNode callNode = CallNode.create();
+
+        ThreadingShutdownRootNode(TruffleLanguage<?> language) {
+            super(language);
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            Object shutdown = lookupShutdown();
+            if (shutdown != PNone.NO_VALUE) {
+                callNode.execute(frame, shutdown, new Object[0], PKeyword.EMPTY_KEYWORDS);
+            }
+            return PNone.NONE;
+        }
+
+        @TruffleBoundary
+        private static Object lookupShutdown() {
+            Object threading = PythonLanguage.getContextRef().get().getSysModules().getItem(THREADING);
+            if (threading instanceof PythonModule) {
+                return ((PythonModule) threading).getAttribute(SHUTDOWN);
+            }
+            return PNone.NO_VALUE;
+        }
+    }
+
+    @Builtin(name = "_set_sentinel", minNumOfPositionalArgs = 0)
+    @GenerateNodeFactory
+    abstract static class SetSentinelNode extends PythonBuiltinNode {
+        @Specialization
+        PLock setSentinel() {
+            // released when the current thread finishes
+            PLock lock = factory().createLock(PythonBuiltinClassType.PLock);
+            getContext().setThreadSentinel(lock);
+            return lock;
+        }
     }
 }
@@ -50,6 +50,7 @@ import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
 import com.oracle.graal.python.nodes.truffle.PythonArithmeticTypes;
 import com.oracle.graal.python.nodes.util.CastToIndexNode;
 import com.oracle.graal.python.nodes.util.CastToIntegerFromIntNode;
+import com.oracle.graal.python.runtime.GlobalInterpreterLock;
 import com.oracle.graal.python.runtime.PythonCore;
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
@@ -228,17 +229,23 @@ public final class TimeModuleBuiltins extends PythonBuiltins {
             long secs = seconds;
 
             long deadline = (long) timeSeconds() + secs;
-            do {
-                try {
-                    Thread.sleep(seconds * 1000);
-                } catch (InterruptedException ignored) {
-                }
-
-                secs = deadline - (long) timeSeconds();
-                if (secs < 0) {
-                    break;
-                }
-            } while (true);
+            GlobalInterpreterLock gil = getContext().getGil();
+            boolean released = gil.release();
+            try {
+                do {
+                    try {
+                        Thread.sleep(seconds * 1000);
+                    } catch (InterruptedException ignored) {
+                    }
+
+                    secs = deadline - (long) timeSeconds();
+                    if (secs < 0) {
+                        break;
+                    }
+                } while (true);
+            } finally {
+                gil.acquire(released);
+            }
 
             return PNone.NONE;
         }
@@ -249,20 +256,26 @@ public final class TimeModuleBuiltins extends PythonBuiltins {
             double secs = seconds;
 
             double deadline = timeSeconds() + secs;
-            do {
-                double milliseconds = secs * 1000;
-                long millis = Math.round(Math.floor(milliseconds));
-                int nanos = ((Long) Math.round((milliseconds - millis) * 1000)).intValue();
-                nanos = (millis == 0 && nanos == 0) ? DELAY_NANOS : nanos;
-                try {
-                    Thread.sleep(millis, nanos);
-                } catch (InterruptedException ignored) {
-                }
-                secs = deadline - timeSeconds();
-                if (secs < 0) {
-                    break;
-                }
-            } while (true);
+            GlobalInterpreterLock gil = getContext().getGil();
+            boolean released = gil.release();
+            try {
+                do {
+                    double milliseconds = secs * 1000;
+                    long millis = Math.round(Math.floor(milliseconds));
+                    int nanos = ((Long) Math.round((milliseconds - millis) * 1000)).intValue();
+                    nanos = (millis == 0 && nanos == 0) ? DELAY_NANOS : nanos;
+                    try {
+                        Thread.sleep(millis, nanos);
+                    } catch (InterruptedException ignored) {
+                    }
+                    secs = deadline - timeSeconds();
+                    if (secs < 0) {
+                        break;
+                    }
+                } while (true);
+            } finally {
+                gil.acquire(released);
+            }
 
             return PNone.NONE;
         }
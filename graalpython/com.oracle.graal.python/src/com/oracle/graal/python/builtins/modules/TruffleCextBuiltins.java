@@ -42,8 +42,10 @@ package com.oracle.graal.python.builtins.modules;
 
 import static com.oracle.graal.python.builtins.PythonBuiltinClassType.IndexError;
 import static com.oracle.graal.python.builtins.PythonBuiltinClassType.SystemError;
+import static com.oracle.graal.python.builtins.PythonBuiltinClassType.TypeError;
 import static com.oracle.graal.python.nodes.SpecialAttributeNames.__SLOTS__;
 import static com.oracle.graal.python.nodes.SpecialMethodNames.__GETITEM__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__INT__;
 import static com.oracle.graal.python.runtime.exception.PythonErrorType.OverflowError;
 
 import java.math.BigInteger;
@@ -55,7 +57,9 @@ import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CharsetEncoder;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.oracle.graal.python.PythonLanguage;
 import com.oracle.graal.python.builtins.Builtin;
@@ -97,6 +101,7 @@ import com.oracle.graal.python.builtins.objects.cext.PythonNativeWrapper;
 import com.oracle.graal.python.builtins.objects.cext.UnicodeObjectNodes.UnicodeAsWideCharNode;
 import com.oracle.graal.python.builtins.objects.code.PCode;
 import com.oracle.graal.python.builtins.objects.common.HashingCollectionNodes;
+import com.oracle.graal.python.builtins.objects.common.HashingStorageNodes;
 import com.oracle.graal.python.builtins.objects.common.IndexNodes.NormalizeIndexNode;
 import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes;
 import com.oracle.graal.python.builtins.objects.complex.PComplex;
@@ -138,7 +143,9 @@ import com.oracle.graal.python.nodes.attributes.HasInheritedAttributeNode;
 import com.oracle.graal.python.nodes.attributes.LookupAttributeInMRONode;
 import com.oracle.graal.python.nodes.attributes.ReadAttributeFromObjectNode;
 import com.oracle.graal.python.nodes.attributes.WriteAttributeToObjectNode;
+import com.oracle.graal.python.nodes.builtins.ListNodes;
 import com.oracle.graal.python.nodes.call.PythonCallNode;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode;
 import com.oracle.graal.python.nodes.classes.IsSubtypeNode;
 import com.oracle.graal.python.nodes.expression.BinaryComparisonNode;
 import com.oracle.graal.python.nodes.function.BuiltinFunctionRootNode;
@@ -549,7 +556,7 @@ public class TruffleCextBuiltins extends PythonBuiltins {
         @Specialization(guards = {"!isPythonBuiltinClass(object)"})
         @TruffleBoundary
         Object setattr(PythonObject object, String key, Object value) {
-            object.getStorage().define(key, value);
+            object.setAttribute(key, value);
             return PNone.NONE;
         }
 
@@ -1967,7 +1974,29 @@ public class TruffleCextBuiltins extends PythonBuiltins {
     abstract static class PyTruffleHandleCacheCreate extends PythonUnaryBuiltinNode {
         @Specialization
         Object createCache(TruffleObject ptrToResolveHandle) {
-            return new HandleCache(ptrToResolveHandle);
+            HandleCache cache = new HandleCache(ptrToResolveHandle);
+            getContext().setHandleCache(cache);
+            return cache;
+        }
+    }
+
+    @Builtin(name = "PyTruffle_HandleCache_Stats")
+    @GenerateNodeFactory
+    abstract static class PyTruffleHandleCacheStats extends PythonBuiltinNode {
+        @Specialization
+        @TruffleBoundary
+        Object stats() {
+            HandleCache cache = getContext().getHandleCache();
+            if (cache == null) {
+                return PNone.NONE;
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("capacity", cache.getCapacity());
+            stats.put("used", cache.getUsed());
+            stats.put("misses", cache.getMisses());
+            stats.put("rehashes", cache.getRehashes());
+            stats.put("reclaimed", cache.getReclaimed());
+            return factory().createDict(stats);
         }
     }
 
@@ -2116,6 +2145,175 @@ public class TruffleCextBuiltins extends PythonBuiltins {
         }
     }
 
+    @Builtin(name = "PyTuple_Size", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class PyTuple_Size extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        int doPTuple(PTuple tuple,
+                        @Cached("create()") SequenceStorageNodes.LenNode lenNode) {
+            return lenNode.execute(tuple.getSequenceStorage());
+        }
+
+        @Fallback
+        int doGeneric(Object tuple) {
+            return NativeBuiltin.raiseNative(this, -1, SystemError, "bad argument to internal function, was '%s' (type '%p')", tuple, tuple);
+        }
+    }
+
+    @Builtin(name = "PyList_GetItem", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class PyList_GetItem extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        Object doPList(PList list, long key,
+                        @Cached("create()") SequenceStorageNodes.LenNode lenNode,
+                        @Cached("createNotNormalized()") SequenceStorageNodes.GetItemNode getItemNode,
+                        @Cached CExtNodes.GetNativeNullNode getNativeNullNode) {
+            SequenceStorage sequenceStorage = list.getSequenceStorage();
+            // we must do a bounds-check but we must not normalize the index
+            if (key < 0 || key >= lenNode.execute(sequenceStorage)) {
+                return NativeBuiltin.raiseNative(this, getNativeNullNode.execute(), IndexError, NormalizeIndexNode.LIST_OUT_OF_BOUNDS);
+            }
+            return getItemNode.execute(sequenceStorage, key);
+        }
+
+        @Fallback
+        Object doGeneric(Object list, @SuppressWarnings("unused") Object key) {
+            return NativeBuiltin.raiseNative(this, CExtNodesFactory.GetNativeNullNodeGen.getUncached().execute(), SystemError, "bad argument to internal function, was '%s' (type '%p')", list, list);
+        }
+    }
+
+    @Builtin(name = "PyList_Size", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class PyList_Size extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        int doPList(PList list,
+                        @Cached("create()") SequenceStorageNodes.LenNode lenNode) {
+            return lenNode.execute(list.getSequenceStorage());
+        }
+
+        @Fallback
+        int doGeneric(Object list) {
+            return NativeBuiltin.raiseNative(this, -1, SystemError, "bad argument to internal function, was '%s' (type '%p')", list, list);
+        }
+    }
+
+    @Builtin(name = "PyList_Append", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class PyList_Append extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        int doPList(PList list, Object item,
+                        @Cached("create()") ListNodes.AppendNode appendNode) {
+            appendNode.execute(list, item);
+            return 0;
+        }
+
+        @Fallback
+        int doGeneric(Object list, @SuppressWarnings("unused") Object item) {
+            return NativeBuiltin.raiseNative(this, -1, SystemError, "bad argument to internal function, was '%s' (type '%p')", list, list);
+        }
+    }
+
+    @Builtin(name = "PyList_AsTuple", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class PyList_AsTuple extends PythonUnaryBuiltinNode {
+
+        @Specialization
+        PTuple doPList(PList list,
+                        @Cached("create(true)") SequenceStorageNodes.ToArrayNode toArrayNode) {
+            return factory().createTuple(toArrayNode.execute(list.getSequenceStorage()));
+        }
+
+        @Fallback
+        Object doGeneric(@SuppressWarnings("unused") Object list) {
+            return NativeBuiltin.raiseNative(this, CExtNodesFactory.GetNativeNullNodeGen.getUncached().execute(), SystemError, "expected list type");
+        }
+    }
+
+    @Builtin(name = "PyDict_GetItem", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class PyDict_GetItem extends PythonBinaryBuiltinNode {
+
+        @Specialization
+        Object doPDict(PDict dict, Object key,
+                        @Cached("create()") HashingStorageNodes.GetItemNode getItemNode,
+                        @Cached CExtNodes.GetNativeNullNode getNativeNullNode) {
+            try {
+                Object value = getItemNode.execute(dict.getDictStorage(), key);
+                return value != null ? value : getNativeNullNode.execute();
+            } catch (PException e) {
+                NativeBuiltin.transformToNative(getContext(), e);
+                return getNativeNullNode.execute();
+            }
+        }
+
+        @Fallback
+        Object doGeneric(Object dict, @SuppressWarnings("unused") Object key) {
+            return NativeBuiltin.raiseNative(this, CExtNodesFactory.GetNativeNullNodeGen.getUncached().execute(), TypeError, "expected dict, %p found", dict);
+        }
+    }
+
+    @Builtin(name = "PyDict_SetItem", minNumOfPositionalArgs = 3)
+    @GenerateNodeFactory
+    abstract static class PyDict_SetItem extends PythonTernaryBuiltinNode {
+
+        @Specialization
+        int doPDict(PDict dict, Object key, Object value,
+                        @Cached("create()") HashingCollectionNodes.SetItemNode setItemNode) {
+            try {
+                setItemNode.execute(dict, key, value);
+                return 0;
+            } catch (PException e) {
+                NativeBuiltin.transformToNative(getContext(), e);
+                return -1;
+            }
+        }
+
+        @Fallback
+        int doGeneric(Object dict, @SuppressWarnings("unused") Object key, @SuppressWarnings("unused") Object value) {
+            return NativeBuiltin.raiseNative(this, -1, TypeError, "expected dict, %p found", dict);
+        }
+    }
+
+    /**
+     * Converts an object to a C integer of the given size, calling {@code __int__} on objects that
+     * are not integers, like {@code int(n)} does.
+     */
+    @Builtin(name = "PyLong_AsPrimitive", minNumOfPositionalArgs = 3)
+    @GenerateNodeFactory
+    @TypeSystemReference(PythonArithmeticTypes.class)
+    abstract static class PyLong_AsPrimitive extends PythonTernaryBuiltinNode {
+        @Child private TrufflePInt_AsPrimitive asPrimitiveNode = TrufflePInt_AsPrimitiveFactory.create();
+
+        @Specialization(guards = "isIntegerLike(n)")
+        Object doInteger(Object n, int signed, long targetTypeSize) {
+            return asPrimitiveNode.executeWith(n, signed, targetTypeSize);
+        }
+
+        @Specialization(guards = "!isIntegerLike(n)")
+        Object doGeneric(Object n, int signed, long targetTypeSize,
+                        @Cached("create(__INT__)") LookupAndCallUnaryNode callIntNode) {
+            Object value;
+            try {
+                value = callIntNode.executeObject(n);
+            } catch (PException e) {
+                NativeBuiltin.transformToNative(getContext(), e);
+                return -1;
+            }
+            if (!isIntegerLike(value)) {
+                return NativeBuiltin.raiseNative(this, -1, TypeError, "an integer is required (got type %p)", n);
+            }
+            return asPrimitiveNode.executeWith(value, signed, targetTypeSize);
+        }
+
+        protected static boolean isIntegerLike(Object n) {
+            return n instanceof Integer || n instanceof Long || n instanceof PInt || n instanceof PythonNativeVoidPtr;
+        }
+    }
+
     @Builtin(name = "PySequence_Check", minNumOfPositionalArgs = 1)
     @GenerateNodeFactory
     abstract static class PySequence_Check extends PythonUnaryBuiltinNode {
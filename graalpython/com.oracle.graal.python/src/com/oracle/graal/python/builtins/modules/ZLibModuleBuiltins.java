@@ -44,13 +44,12 @@ package com.oracle.graal.python.builtins.modules;
 import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
 import static com.oracle.graal.python.runtime.exception.PythonErrorType.ZLibError;
 
-import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.zip.Adler32;
 import java.util.zip.CRC32;
 import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
-import java.util.zip.Inflater;
 
 import com.oracle.graal.python.builtins.Builtin;
 import com.oracle.graal.python.builtins.CoreFunctions;
@@ -62,12 +61,16 @@ import com.oracle.graal.python.builtins.objects.bytes.PBytes;
 import com.oracle.graal.python.builtins.objects.bytes.PIBytesLike;
 import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes;
 import com.oracle.graal.python.builtins.objects.ints.PInt;
+import com.oracle.graal.python.builtins.objects.zlib.PZLibCompress;
+import com.oracle.graal.python.builtins.objects.zlib.PZLibDecompress;
+import com.oracle.graal.python.builtins.objects.zlib.ZLibOutputBuffer;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
 import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
 import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
 import com.oracle.graal.python.nodes.truffle.PythonArithmeticTypes;
 import com.oracle.graal.python.nodes.util.CastToIntegerFromIntNode;
+import com.oracle.graal.python.nodes.util.CastToJavaLongNode;
 import com.oracle.graal.python.runtime.PythonCore;
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
@@ -77,7 +80,6 @@ import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.dsl.TypeSystemReference;
-import com.oracle.truffle.api.interop.TruffleObject;
 import com.oracle.truffle.api.profiles.ConditionProfile;
 
 @CoreFunctions(defineModule = ZLibModuleBuiltins.MODULE_NAME)
@@ -372,280 +374,149 @@ public class ZLibModuleBuiltins extends PythonBuiltins {
         }
     }
 
-    @Builtin(name = "zlib_deflateInit", minNumOfPositionalArgs = 6)
+    // zlib.compressobj(level=-1, method=DEFLATED, wbits=MAX_WBITS, memLevel=DEF_MEM_LEVEL,
+    // strategy=Z_DEFAULT_STRATEGY, zdict=None)
+    @Builtin(name = "compressobj", parameterNames = {"level", "method", "wbits", "memLevel", "strategy", "zdict"})
     @GenerateNodeFactory
-    abstract static class DeflateInitNode extends PythonBuiltinNode {
+    abstract static class CompressObjNode extends PythonBuiltinNode {
         /**
-         * @param memLevel is ignored - it mostly affects performance and compression rate, we trust
-         *            that the Deflater implementation will work well
+         * {@code memLevel} is ignored - it mostly affects performance and compression rate, we trust
+         * that the Deflater implementation will work well. The window size of {@link Deflater} is
+         * fixed, so {@code wbits} only selects the container format.
          */
         @Specialization
-        @TruffleBoundary
-        Object deflateInit(int level, int method, int wbits, int memLevel, int strategy, Object zdict) {
-            Deflater deflater;
-            if (wbits < 0) {
-                // generate a RAW stream, i.e., no wrapping
-                deflater = new Deflater(level, true);
-            } else if (wbits >= 25) {
-                // include gzip container
-                throw raise(PythonBuiltinClassType.NotImplementedError, "gzip containers");
-            } else {
-                // wrap stream with zlib header and trailer
-                deflater = new Deflater(level, false);
-            }
-
-            if (method != DEFLATED) {
-                throw raise(PythonBuiltinClassType.ValueError, "only DEFLATED (%d) allowed as method, got %d", DEFLATED, method);
-            }
-            deflater.setStrategy(strategy);
-            if (zdict instanceof String) {
-                deflater.setDictionary(((String) zdict).getBytes());
-            } else if (!(zdict instanceof PNone)) {
-                throw raise(PythonBuiltinClassType.ValueError, "zdict must be a str, not %p", zdict);
-            }
-            return new DeflaterWrapper(deflater);
-        }
-    }
-
-    static class DeflaterWrapper implements TruffleObject {
-        private final Deflater deflater;
-
-        public DeflaterWrapper(Deflater deflater) {
-            this.deflater = deflater;
-        }
-    }
-
-    @Builtin(name = "zlib_deflateCompress", minNumOfPositionalArgs = 3)
-    @GenerateNodeFactory
-    abstract static class DeflateCompress extends PythonTernaryBuiltinNode {
-        @Child BytesNodes.ToBytesNode toBytes = BytesNodes.ToBytesNode.create();
-
-        @Specialization
-        @TruffleBoundary
-        Object deflateCompress(DeflaterWrapper stream, PIBytesLike pb, int mode) {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            byte[] data = toBytes.execute(pb);
-            byte[] result = new byte[DEF_BUF_SIZE];
-
-            stream.deflater.setInput(data);
-            int deflateMode = mode;
-            if (mode == Z_FINISH) {
-                deflateMode = Z_SYNC_FLUSH;
-                stream.deflater.finish();
-            }
-
-            int bytesWritten = result.length;
-            while (bytesWritten == result.length) {
-                bytesWritten = stream.deflater.deflate(result, 0, result.length, deflateMode);
-                baos.write(result, 0, bytesWritten);
+        PZLibCompress compressobj(Object levelObj, Object methodObj, Object wbitsObj, Object memLevelObj, Object strategyObj, Object zdict,
+                        @Cached("create()") CastToJavaLongNode castToLongNode,
+                        @Cached("create()") BytesNodes.ToBytesNode toBytesNode) {
+            int level = asInt(levelObj, Z_DEFAULT_COMPRESSION, castToLongNode);
+            int method = asInt(methodObj, DEFLATED, castToLongNode);
+            int wbits = asInt(wbitsObj, MAX_WBITS, castToLongNode);
+            int memLevel = asInt(memLevelObj, DEF_MEM_LEVEL, castToLongNode);
+            int strategy = asInt(strategyObj, Z_DEFAULT_STRATEGY, castToLongNode);
+            if (method != DEFLATED || level < -1 || level > 9 || memLevel < 1 || memLevel > 9 || strategy < 0 || strategy > Z_FIXED) {
+                throw raise(PythonBuiltinClassType.ValueError, "Invalid initialization option");
             }
-
-            if (mode == Z_FINISH) {
-                stream.deflater.end();
+            boolean gzip = wbits >= 24 && wbits <= 31;
+            if (!(wbits >= 8 && wbits <= MAX_WBITS || wbits >= -MAX_WBITS && wbits <= -8 || gzip)) {
+                throw raise(PythonBuiltinClassType.ValueError, "Invalid initialization option");
             }
-
-            return factory().createBytes(baos.toByteArray());
+            byte[] dictionary = zdict instanceof PNone ? null : toBytesNode.execute(zdict);
+            Deflater deflater = createDeflater(level, wbits < 0 || gzip, strategy, dictionary);
+            return factory().createZLibCompress(PythonBuiltinClassType.PZLibCompress, deflater, gzip, level);
         }
-    }
 
-    @Builtin(name = "zlib_inflateInit", minNumOfPositionalArgs = 2)
-    @GenerateNodeFactory
-    abstract static class InflateInitNode extends PythonBinaryBuiltinNode {
-        @Child BytesNodes.ToBytesNode toBytes = BytesNodes.ToBytesNode.create();
-
-        @Specialization
         @TruffleBoundary
-        Object init(int wbits, PBytes zdict) {
-            Inflater inflater;
-            if (wbits < 0) {
-                // generate a RAW stream, i.e., no wrapping
-                inflater = new Inflater(true);
-            } else if (wbits >= 25) {
-                // include gzip container
-                throw raise(PythonBuiltinClassType.NotImplementedError, "gzip containers");
-            } else {
-                // wrap stream with zlib header and trailer
-                inflater = new Inflater(false);
+        private static Deflater createDeflater(int level, boolean nowrap, int strategy, byte[] dictionary) {
+            Deflater deflater = new Deflater(level, nowrap);
+            // Deflater does not offer the Z_RLE and Z_FIXED strategies
+            deflater.setStrategy(strategy == Z_FILTERED || strategy == Z_HUFFMAN_ONLY ? strategy : Deflater.DEFAULT_STRATEGY);
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
             }
-
-            inflater.setDictionary(toBytes.execute(zdict));
-            return new InflaterWrapper(inflater);
-        }
-    }
-
-    static class InflaterWrapper implements TruffleObject {
-        private final Inflater inflater;
-
-        public InflaterWrapper(Inflater inflater) {
-            this.inflater = inflater;
+            return deflater;
         }
     }
 
-    @Builtin(name = "zlib_inflateDecompress", minNumOfPositionalArgs = 3)
+    // zlib.decompressobj(wbits=MAX_WBITS, zdict=b'')
+    @Builtin(name = "decompressobj", parameterNames = {"wbits", "zdict"})
     @GenerateNodeFactory
-    abstract static class InflaterDecompress extends PythonTernaryBuiltinNode {
-        @Child BytesNodes.ToBytesNode toBytes = BytesNodes.ToBytesNode.create();
-
+    abstract static class DecompressObjNode extends PythonBuiltinNode {
         @Specialization
-        @TruffleBoundary
-        Object decompress(InflaterWrapper stream, PIBytesLike pb, int maxLen) {
-            int maxLength = maxLen == 0 ? Integer.MAX_VALUE : maxLen;
-
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            byte[] data = toBytes.execute(pb);
-            byte[] result = new byte[DEF_BUF_SIZE];
-            stream.inflater.setInput(data);
-
-            int bytesWritten = result.length;
-            while (baos.size() < maxLength && bytesWritten == result.length) {
-                try {
-                    bytesWritten = stream.inflater.inflate(result, 0, result.length);
-                } catch (DataFormatException e) {
-                    throw raise(ZLibError, e.getMessage());
-                }
-                baos.write(result, 0, bytesWritten);
+        PZLibDecompress decompressobj(Object wbitsObj, Object zdict,
+                        @Cached("create()") CastToJavaLongNode castToLongNode,
+                        @Cached("create()") BytesNodes.ToBytesNode toBytesNode) {
+            int format = getFormat(asInt(wbitsObj, MAX_WBITS, castToLongNode));
+            if (format < 0) {
+                throw raise(PythonBuiltinClassType.ValueError, "Invalid initialization option");
             }
-
-            return factory().createTuple(new Object[]{
-                            factory().createBytes(baos.toByteArray()),
-                            stream.inflater.needsInput(),
-                            stream.inflater.getRemaining()
-            });
+            byte[] dictionary = zdict instanceof PNone ? null : toBytesNode.execute(zdict);
+            return factory().createZLibDecompress(PythonBuiltinClassType.PZLibDecompress, format, dictionary != null && dictionary.length > 0 ? dictionary : null);
         }
     }
 
     // zlib.compress(data, level=-1)
     @Builtin(name = "compress", minNumOfPositionalArgs = 1, parameterNames = {"", "level"})
-    @TypeSystemReference(PythonArithmeticTypes.class)
     @GenerateNodeFactory
     public abstract static class CompressNode extends PythonBinaryBuiltinNode {
 
-        @Child private SequenceStorageNodes.ToByteArrayNode toArrayNode;
-
-        private SequenceStorageNodes.ToByteArrayNode getToArrayNode() {
-            if (toArrayNode == null) {
-                CompilerDirectives.transferToInterpreterAndInvalidate();
-                toArrayNode = insert(SequenceStorageNodes.ToByteArrayNode.create());
-            }
-            return toArrayNode;
-        }
-
-        @TruffleBoundary
-        private static byte[] compress(byte[] input, int level) {
-            Deflater compresser = new Deflater(level);
-            compresser.setInput(input);
-            compresser.finish();
-            byte[] resultArray = new byte[DEF_BUF_SIZE];
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            while (!compresser.finished()) {
-                int howmany = compresser.deflate(resultArray);
-                baos.write(resultArray, 0, howmany);
-            }
-            compresser.end();
-            return baos.toByteArray();
-        }
-
         @Specialization
-        public PBytes doit(PIBytesLike data, @SuppressWarnings("unused") PNone level) {
-            byte[] array = getToArrayNode().execute(data.getSequenceStorage());
-            return factory().createBytes(compress(array, -1));
-        }
-
-        @Specialization
-        public PBytes doit(PIBytesLike data, long level,
+        public PBytes compress(Object data, Object levelObj,
+                        @Cached("create()") CastToJavaLongNode castToLongNode,
+                        @Cached("create()") BytesNodes.ToByteBufferNode toByteBufferNode,
                         @Cached("createBinaryProfile()") ConditionProfile wrongLevelProfile) {
+            int level = asInt(levelObj, Z_DEFAULT_COMPRESSION, castToLongNode);
             if (wrongLevelProfile.profile(level < -1 || 9 < level)) {
                 throw raise(ZLibError, "Bad compression level");
             }
-            byte[] array = getToArrayNode().execute(data.getSequenceStorage());
-            return factory().createBytes(compress(array, (int) level));
+            ByteBuffer input = toByteBufferNode.execute(data);
+            ZLibOutputBuffer out = new ZLibOutputBuffer(input.remaining() / 2);
+            PZLibCompress compress = factory().createZLibCompress(PythonBuiltinClassType.PZLibCompress, createDeflater(level), false, level);
+            compress.compress(input.array(), input.position(), input.remaining(), out);
+            compress.flush(Z_FINISH, out);
+            return factory().createBytes(out.toStorage());
         }
 
+        @TruffleBoundary
+        private static Deflater createDeflater(int level) {
+            return new Deflater(level);
+        }
     }
 
     // zlib.decompress(data, wbits=MAX_WBITS, bufsize=DEF_BUF_SIZE)
     @Builtin(name = "decompress", minNumOfPositionalArgs = 1, parameterNames = {"data", "wbits", "bufsize"})
-    @TypeSystemReference(PythonArithmeticTypes.class)
     @GenerateNodeFactory
     public abstract static class DecompressNode extends PythonTernaryBuiltinNode {
 
-        @Child private CastToIntegerFromIntNode castToIntNode;
-        @Child private SequenceStorageNodes.ToByteArrayNode toArrayNode;
-
-        private final ConditionProfile bufSizeProfile = ConditionProfile.createBinaryProfile();
-
-        private SequenceStorageNodes.ToByteArrayNode getToArrayNode() {
-            if (toArrayNode == null) {
-                CompilerDirectives.transferToInterpreterAndInvalidate();
-                toArrayNode = insert(SequenceStorageNodes.ToByteArrayNode.create());
+        @Specialization
+        public PBytes decompress(Object data, Object wbitsObj, Object bufsizeObj,
+                        @Cached("create()") CastToJavaLongNode castToLongNode,
+                        @Cached("create()") BytesNodes.ToByteBufferNode toByteBufferNode) {
+            int format = getFormat(asInt(wbitsObj, MAX_WBITS, castToLongNode));
+            if (format < 0) {
+                throw raise(ZLibError, "Error -2 while preparing to decompress data: inconsistent stream state");
             }
-            return toArrayNode;
-        }
-
-        private CastToIntegerFromIntNode getCastToIntNode() {
-            if (castToIntNode == null) {
-                CompilerDirectives.transferToInterpreterAndInvalidate();
-                castToIntNode = insert(CastToIntegerFromIntNode.create(val -> {
-                    throw raise(PythonBuiltinClassType.TypeError, "an integer is required (got type %p)", val);
-                }));
+            int bufsize = asInt(bufsizeObj, DEF_BUF_SIZE, castToLongNode);
+            if (bufsize < 0) {
+                throw raise(PythonBuiltinClassType.ValueError, "bufsize must be non-negative");
             }
-            return castToIntNode;
-        }
-
-        @TruffleBoundary
-        private byte[] decompress(byte[] input, @SuppressWarnings("unused") int wbits, int bufsize) {
-            // decompress
-            // We don't use wbits currently. There is no easy way how to map to java Inflater.
-            Inflater decompresser = new Inflater();
-            decompresser.setInput(input);
-            byte[] resultArray = new byte[bufsize];
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ByteBuffer input = toByteBufferNode.execute(data);
+            ZLibOutputBuffer out = new ZLibOutputBuffer(bufsize);
+            PZLibDecompress decompress = factory().createZLibDecompress(PythonBuiltinClassType.PZLibDecompress, format, null);
             try {
-                while (!decompresser.finished()) {
-                    int howmany = decompresser.inflate(resultArray);
-                    if (howmany == 0 && decompresser.needsInput()) {
-                        throw raise(ZLibError, "Error -5 while decompressing data: incomplete or truncated stream");
-                    }
-                    baos.write(resultArray, 0, howmany);
-                }
+                decompress.decompress(input.array(), input.position(), input.remaining(), 0, out);
             } catch (DataFormatException e) {
-                throw raise(ZLibError, "while preparing to decompress data");
+                throw raise(ZLibError, e.getMessage());
             }
-            decompresser.end();
-            return baos.toByteArray();
-        }
-
-        @Specialization
-        @TruffleBoundary
-        public PBytes doit(PIBytesLike data, @SuppressWarnings("unused") PNone wbits, @SuppressWarnings("unused") PNone bufsize) {
-            byte[] array = getToArrayNode().execute(data.getSequenceStorage());
-            return factory().createBytes(decompress(array, MAX_WBITS, DEF_BUF_SIZE));
-        }
-
-        @Specialization
-        public PBytes decompress(PIBytesLike data, byte wbits, int bufsize) {
-            return decompress(data, (long) wbits, bufsize);
-        }
-
-        @Specialization
-        public PBytes decompress(PIBytesLike data, long wbits, int bufsize) {
-            // checking bufsize
-            if (bufSizeProfile.profile(bufsize < 0)) {
-                throw raise(ZLibError, "bufsize must be non-negative");
+            if (!decompress.isEof()) {
+                throw raise(ZLibError, "Error -5 while decompressing data: incomplete or truncated stream");
             }
-            byte[] array = getToArrayNode().execute(data.getSequenceStorage());
-            return factory().createBytes(decompress(array, (int) wbits, bufsize == 0 ? 1 : bufsize));
+            return factory().createBytes(out.toStorage());
         }
+    }
 
-        @Specialization
-        public PBytes decompress(PIBytesLike data, long wbits, Object bufsize,
-                        @Cached("create()") DecompressNode recursiveNode) {
-            Object bufferLen = getCastToIntNode().execute(bufsize);
-            return (PBytes) recursiveNode.execute(data, wbits, bufferLen);
+    // out of range values are clamped; they are rejected as invalid options or buffer sizes
+    private static int asInt(Object value, int defaultValue, CastToJavaLongNode castToLongNode) {
+        if (value instanceof PNone) {
+            return defaultValue;
         }
+        long result = castToLongNode.execute(value);
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, result));
+    }
 
-        protected static DecompressNode create() {
-            return ZLibModuleBuiltinsFactory.DecompressNodeFactory.create();
-        }
+    /**
+     * Returns the {@link PZLibDecompress} stream format for a {@code wbits} value, or -1 if it is
+     * invalid.
+     */
+    private static int getFormat(int wbits) {
+        if (wbits == 0 || wbits >= 8 && wbits <= MAX_WBITS) {
+            return PZLibDecompress.FORMAT_ZLIB;
+        } else if (wbits >= -MAX_WBITS && wbits <= -8) {
+            return PZLibDecompress.FORMAT_RAW;
+        } else if (wbits >= 24 && wbits <= 31) {
+            return PZLibDecompress.FORMAT_GZIP;
+        } else if (wbits == 32 || wbits >= 40 && wbits <= 47) {
+            return PZLibDecompress.FORMAT_AUTO;
+        }
+        return -1;
     }
 }
@@ -47,6 +47,7 @@ import static com.oracle.graal.python.nodes.SpecialMethodNames.__SETITEM__;
 
 import java.util.HashSet;
 
+import com.oracle.graal.python.PythonLanguage;
 import com.oracle.graal.python.builtins.PythonBuiltinClassType;
 import com.oracle.graal.python.builtins.objects.bytes.PBytes;
 import com.oracle.graal.python.builtins.objects.cext.DynamicObjectNativeWrapper;
@@ -84,12 +85,15 @@ import com.oracle.graal.python.nodes.interop.PTypeToForeignNode;
 import com.oracle.graal.python.nodes.object.GetClassNode;
 import com.oracle.graal.python.nodes.object.GetLazyClassNode;
 import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.runtime.GlobalInterpreterLock;
+import com.oracle.graal.python.runtime.PythonContext;
 import com.oracle.graal.python.runtime.exception.PException;
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Cached.Exclusive;
 import com.oracle.truffle.api.dsl.Cached.Shared;
+import com.oracle.truffle.api.dsl.CachedContext;
 import com.oracle.truffle.api.dsl.GenerateUncached;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.interop.InteropLibrary;
@@ -124,7 +128,10 @@ public abstract class PythonAbstractObject implements TruffleObject, Comparable<
                     @Exclusive @Cached KeyForAttributeAccess getAttributeKey,
                     @Exclusive @Cached KeyForItemAccess getItemKey,
                     @Cached PInteropSetAttributeNode writeNode,
-                    @Exclusive @Cached IsBuiltinClassProfile attrErrorProfile) throws UnsupportedMessageException, UnknownIdentifierException {
+                    @Exclusive @Cached IsBuiltinClassProfile attrErrorProfile,
+                    @CachedContext(PythonLanguage.class) PythonContext context) throws UnsupportedMessageException, UnknownIdentifierException {
+        GlobalInterpreterLock gil = context.getGil();
+        gil.enter();
         try {
             String attrKey = getAttributeKey.execute(key);
             if (attrKey != null) {
@@ -153,6 +160,8 @@ public abstract class PythonAbstractObject implements TruffleObject, Comparable<
             e.expectAttributeError(attrErrorProfile);
             // TODO(fa) not accurate; distinguish between read-only and non-existing
             throw UnknownIdentifierException.create(key);
+        } finally {
+            gil.leave();
         }
     }
 
@@ -164,40 +173,47 @@ public abstract class PythonAbstractObject implements TruffleObject, Comparable<
                     @Exclusive @Cached KeyForAttributeAccess getAttributeKey,
                     @Shared("getItemNode") @Cached PInteropSubscriptNode getItemNode,
                     @Shared("toForeign") @Cached PTypeToForeignNode toForeign,
-                    @Shared("isSequenceNode") @Cached IsSequenceNode isSequenceNode) throws UnknownIdentifierException {
-        String attrKey = getAttributeKey.execute(key);
-        Object attrGetattribute = null;
-        if (attrKey != null) {
-            try {
-                attrGetattribute = lookupGetattributeNode.execute(this, __GETATTRIBUTE__);
-                return toForeign.executeConvert(callGetattributeNode.execute(null, attrGetattribute, this, attrKey));
-            } catch (PException e) {
-                // pass, we might be reading an item that starts with "@"
+                    @Shared("isSequenceNode") @Cached IsSequenceNode isSequenceNode,
+                    @CachedContext(PythonLanguage.class) PythonContext context) throws UnknownIdentifierException {
+        GlobalInterpreterLock gil = context.getGil();
+        gil.enter();
+        try {
+            String attrKey = getAttributeKey.execute(key);
+            Object attrGetattribute = null;
+            if (attrKey != null) {
+                try {
+                    attrGetattribute = lookupGetattributeNode.execute(this, __GETATTRIBUTE__);
+                    return toForeign.executeConvert(callGetattributeNode.execute(null, attrGetattribute, this, attrKey));
+                } catch (PException e) {
+                    // pass, we might be reading an item that starts with "@"
+                }
             }
-        }
 
-        String itemKey = getItemKey.execute(key);
-        if (itemKey != null) {
-            return toForeign.executeConvert(getItemNode.execute(this, itemKey));
-        }
-
-        try {
-            if (attrGetattribute == null) {
-                attrGetattribute = lookupGetattributeNode.execute(this, __GETATTRIBUTE__);
+            String itemKey = getItemKey.execute(key);
+            if (itemKey != null) {
+                return toForeign.executeConvert(getItemNode.execute(this, itemKey));
             }
-            return toForeign.executeConvert(callGetattributeNode.execute(null, attrGetattribute, this, key));
-        } catch (PException e) {
-            // pass
-        }
-        if (isSequenceNode.execute(this)) {
+
             try {
-                return toForeign.executeConvert(getItemNode.execute(this, key));
+                if (attrGetattribute == null) {
+                    attrGetattribute = lookupGetattributeNode.execute(this, __GETATTRIBUTE__);
+                }
+                return toForeign.executeConvert(callGetattributeNode.execute(null, attrGetattribute, this, key));
             } catch (PException e) {
                 // pass
             }
-        }
+            if (isSequenceNode.execute(this)) {
+                try {
+                    return toForeign.executeConvert(getItemNode.execute(this, key));
+                } catch (PException e) {
+                    // pass
+                }
+            }
 
-        throw UnknownIdentifierException.create(key);
+            throw UnknownIdentifierException.create(key);
+        } finally {
+            gil.leave();
+        }
     }
 
     @ExportMessage
@@ -419,15 +435,22 @@ public abstract class PythonAbstractObject implements TruffleObject, Comparable<
                     @Exclusive @Cached CallNode callGetattributeNode,
                     @Exclusive @Cached PExecuteNode executeNode,
                     @Cached("createBinaryProfile()") ConditionProfile profileGetattribute,
-                    @Cached("createBinaryProfile()") ConditionProfile profileMember) throws UnknownIdentifierException, UnsupportedMessageException {
-        Object attrGetattribute = lookupGetattributeNode.execute(this, __GETATTRIBUTE__);
-        if (profileGetattribute.profile(attrGetattribute != PNone.NO_VALUE)) {
-            Object memberObj = callGetattributeNode.execute(null, attrGetattribute, this, member);
-            if (profileMember.profile(memberObj != PNone.NO_VALUE)) {
-                return executeNode.execute(memberObj, arguments);
+                    @Cached("createBinaryProfile()") ConditionProfile profileMember,
+                    @CachedContext(PythonLanguage.class) PythonContext context) throws UnknownIdentifierException, UnsupportedMessageException {
+        GlobalInterpreterLock gil = context.getGil();
+        gil.enter();
+        try {
+            Object attrGetattribute = lookupGetattributeNode.execute(this, __GETATTRIBUTE__);
+            if (profileGetattribute.profile(attrGetattribute != PNone.NO_VALUE)) {
+                Object memberObj = callGetattributeNode.execute(null, attrGetattribute, this, member);
+                if (profileMember.profile(memberObj != PNone.NO_VALUE)) {
+                    return executeNode.execute(memberObj, arguments);
+                }
             }
+            throw UnknownIdentifierException.create(member);
+        } finally {
+            gil.leave();
         }
-        throw UnknownIdentifierException.create(member);
     }
 
     @ExportMessage
@@ -777,13 +800,20 @@ public abstract class PythonAbstractObject implements TruffleObject, Comparable<
                         @Cached PTypeToForeignNode toForeign,
                         @Exclusive @Cached CallNode callNode,
                         @Exclusive @Cached LookupInheritedAttributeNode.Dynamic callAttrGetterNode,
-                        @Cached ArgumentsFromForeignNode convertArgsNode) throws UnsupportedMessageException {
-            Object isCallable = callAttrGetterNode.execute(receiver, SpecialMethodNames.__CALL__);
-            if (isCallable == PNone.NO_VALUE) {
-                throw UnsupportedMessageException.create();
+                        @Cached ArgumentsFromForeignNode convertArgsNode,
+                        @CachedContext(PythonLanguage.class) PythonContext context) throws UnsupportedMessageException {
+            GlobalInterpreterLock gil = context.getGil();
+            gil.enter();
+            try {
+                Object isCallable = callAttrGetterNode.execute(receiver, SpecialMethodNames.__CALL__);
+                if (isCallable == PNone.NO_VALUE) {
+                    throw UnsupportedMessageException.create();
+                }
+                Object[] convertedArgs = convertArgsNode.execute(arguments);
+                return toForeign.executeConvert(callNode.execute(null, receiver, convertedArgs, PKeyword.EMPTY_KEYWORDS));
+            } finally {
+                gil.leave();
             }
-            Object[] convertedArgs = convertArgsNode.execute(arguments);
-            return toForeign.executeConvert(callNode.execute(null, receiver, convertedArgs, PKeyword.EMPTY_KEYWORDS));
         }
 
         public static PExecuteNode create() {
@@ -42,20 +42,21 @@ package com.oracle.graal.python.builtins.objects.bytes;
 
 import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 import com.oracle.graal.python.builtins.objects.bytes.AbstractBytesBuiltins.BytesLikeNoGeneralizationNode;
 import com.oracle.graal.python.builtins.objects.bytes.BytesNodesFactory.BytesJoinNodeGen;
 import com.oracle.graal.python.builtins.objects.bytes.BytesNodesFactory.FindNodeGen;
+import com.oracle.graal.python.builtins.objects.bytes.BytesNodesFactory.ToByteBufferNodeGen;
 import com.oracle.graal.python.builtins.objects.bytes.BytesNodesFactory.ToBytesNodeGen;
 import com.oracle.graal.python.builtins.objects.common.IndexNodes.NormalizeIndexNode;
 import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes;
+import com.oracle.graal.python.builtins.objects.memoryview.MemoryViewNodes;
 import com.oracle.graal.python.builtins.objects.memoryview.PMemoryView;
 import com.oracle.graal.python.nodes.PGuards;
 import com.oracle.graal.python.nodes.PNodeWithContext;
 import com.oracle.graal.python.nodes.PRaiseNode;
-import com.oracle.graal.python.nodes.SpecialMethodNames;
-import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode;
 import com.oracle.graal.python.nodes.control.GetIteratorExpressionNode.GetIteratorNode;
 import com.oracle.graal.python.nodes.control.GetNextNode;
 import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
@@ -128,17 +129,11 @@ public abstract class BytesNodes {
         }
     }
 
-    @ImportStatic({PGuards.class, SpecialMethodNames.class})
+    @ImportStatic(PGuards.class)
     public abstract static class ToBytesNode extends PNodeWithContext {
         @Child private PRaiseNode raise = PRaiseNode.create();
         @Child private SequenceStorageNodes.ToByteArrayNode toByteArrayNode;
 
-        protected final boolean allowRecursive;
-
-        ToBytesNode(boolean allowRecursive) {
-            this.allowRecursive = allowRecursive;
-        }
-
         public abstract byte[] execute(Object obj);
 
         @Specialization
@@ -162,11 +157,10 @@ public abstract class BytesNodes {
             }
         }
 
-        @Specialization(guards = "allowRecursive")
+        @Specialization
         byte[] doMemoryView(PMemoryView memoryView,
-                        @Cached("createRecursive()") ToBytesNode recursive,
-                        @Cached("create(TOBYTES)") LookupAndCallUnaryNode callToBytesNode) {
-            return recursive.execute(callToBytesNode.executeObject(memoryView));
+                        @Cached("create()") MemoryViewNodes.ToJavaBytesNode toJavaBytesNode) {
+            return toJavaBytesNode.execute(memoryView);
         }
 
         @Fallback
@@ -182,16 +176,58 @@ public abstract class BytesNodes {
             return toByteArrayNode;
         }
 
-        protected ToBytesNode createRecursive() {
-            return ToBytesNode.create(false);
+        public static ToBytesNode create() {
+            return ToBytesNodeGen.create();
         }
+    }
 
-        public static ToBytesNode create() {
-            return ToBytesNodeGen.create(true);
+    /**
+     * Returns a heap {@link ByteBuffer} whose remaining bytes are the bytes of a bytes-like object.
+     * The storage of {@code bytes} and {@code bytearray} objects and of contiguous memoryviews of
+     * them is wrapped without copying, so the buffer is only valid until the object is modified.
+     */
+    public abstract static class ToByteBufferNode extends PNodeWithContext {
+        @Child private ToBytesNode toBytesNode;
+
+        public abstract ByteBuffer execute(Object obj);
+
+        @Specialization(guards = "isByteStorage(bytes)")
+        ByteBuffer doBytes(PIBytesLike bytes) {
+            ByteSequenceStorage storage = (ByteSequenceStorage) bytes.getSequenceStorage();
+            return wrap(storage.getInternalByteArray(), 0, storage.length());
+        }
+
+        @Specialization(guards = "isInPlace(memoryView)")
+        ByteBuffer doMemoryView(PMemoryView memoryView) {
+            ByteSequenceStorage storage = (ByteSequenceStorage) ((PIBytesLike) memoryView.getOwner()).getSequenceStorage();
+            return wrap(storage.getInternalByteArray(), memoryView.getOffset(), memoryView.getNBytes());
+        }
+
+        @Fallback
+        ByteBuffer doGeneric(Object obj) {
+            if (toBytesNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                toBytesNode = insert(ToBytesNode.create());
+            }
+            byte[] bytes = toBytesNode.execute(obj);
+            return wrap(bytes, 0, bytes.length);
+        }
+
+        @TruffleBoundary(allowInlining = true)
+        private static ByteBuffer wrap(byte[] array, int offset, int length) {
+            return ByteBuffer.wrap(array, offset, length);
+        }
+
+        protected static boolean isByteStorage(PIBytesLike bytes) {
+            return bytes.getSequenceStorage() instanceof ByteSequenceStorage;
+        }
+
+        protected static boolean isInPlace(PMemoryView view) {
+            return !view.isReleased() && view.isCContiguous() && view.getOwner() instanceof PIBytesLike && isByteStorage((PIBytesLike) view.getOwner());
         }
 
-        public static ToBytesNode create(boolean allowRecursive) {
-            return ToBytesNodeGen.create(allowRecursive);
+        public static ToByteBufferNode create() {
+            return ToByteBufferNodeGen.create();
         }
     }
 
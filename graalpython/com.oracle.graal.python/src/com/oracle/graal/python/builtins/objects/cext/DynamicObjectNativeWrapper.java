@@ -111,7 +111,6 @@ import com.oracle.graal.python.nodes.PRaiseNode;
 import com.oracle.graal.python.nodes.SpecialAttributeNames;
 import com.oracle.graal.python.nodes.SpecialMethodNames;
 import com.oracle.graal.python.nodes.attributes.LookupAttributeInMRONode;
-import com.oracle.graal.python.nodes.attributes.ReadAttributeFromObjectNode;
 import com.oracle.graal.python.nodes.attributes.WriteAttributeToObjectNode;
 import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode.LookupAndCallUnaryDynamicNode;
 import com.oracle.graal.python.nodes.classes.IsSubtypeNode;
@@ -729,28 +728,16 @@ public abstract class DynamicObjectNativeWrapper extends PythonNativeWrapper {
             return lenNode.execute(getStorageNode.execute(object));
         }
 
-        @Specialization
-        Object doMemoryview(PMemoryView object, String key,
-                        @Cached PRaiseNode raise,
-                        @Cached ReadAttributeFromObjectNode readAttrNode,
-                        @CachedLibrary(limit = "1") InteropLibrary read,
-                        @Cached("createBinaryProfile()") ConditionProfile isNativeObject) {
-            Object delegateObj = readAttrNode.execute(object, "__c_memoryview");
-            if (isNativeObject.profile(PythonNativeObject.isInstance(delegateObj))) {
-                try {
-                    return read.readMember(PythonNativeObject.cast(delegateObj).getPtr(), key);
-                } catch (UnsupportedMessageException | UnknownIdentifierException e) {
-                    throw raise.raise(PythonBuiltinClassType.TypeError, e);
-                }
-            }
-            throw new IllegalStateException("delegate of memoryview object is not native");
-        }
-
         @Specialization(guards = "eq(MMAP_DATA, key)")
         Object doMmapData(PMMap object, @SuppressWarnings("unused") String key) {
             return new PySequenceArrayWrapper(object, 1);
         }
 
+        @Specialization(guards = "eq(MEMORYVIEW_OFFSET, key)")
+        long doMemoryViewOffset(PMemoryView object, @SuppressWarnings("unused") String key) {
+            return object.getOffset();
+        }
+
         protected static boolean isPyDateTimeCAPI(PythonObject object, GetClassNode getClassNode, GetNameNode getNameNode) {
             return isPyDateTimeCAPIType(getNameNode.execute(getClassNode.execute(object)));
         }
@@ -893,18 +880,6 @@ public abstract class DynamicObjectNativeWrapper extends PythonNativeWrapper {
             return value;
         }
 
-        @Specialization
-        Object doMemoryview(PMemoryView object, String key, Object value,
-                        @Cached ReadAttributeFromObjectNode readAttrNode,
-                        @Cached("createBinaryProfile()") ConditionProfile isNativeObject,
-                        @CachedLibrary(limit = "1") InteropLibrary interopLib) throws UnsupportedMessageException, UnknownIdentifierException, UnsupportedTypeException {
-            Object delegateObj = readAttrNode.execute(object, "__c_memoryview");
-            if (isNativeObject.profile(PythonNativeObject.isInstance(delegateObj))) {
-                interopLib.writeMember(PythonNativeObject.cast(delegateObj).getPtr(), key, value);
-            }
-            throw new IllegalStateException("delegate of memoryview object is not native");
-        }
-
         @Specialization
         Object doGeneric(Object object, String key, Object value,
                         @Shared("setItemNode") @Cached HashingStorageNodes.DynamicObjectSetItemNode setItemNode) throws UnknownIdentifierException {
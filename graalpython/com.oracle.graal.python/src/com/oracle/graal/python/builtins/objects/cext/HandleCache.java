@@ -40,9 +40,13 @@
  */
 package com.oracle.graal.python.builtins.objects.cext;
 
+import java.lang.ref.WeakReference;
+
 import com.oracle.graal.python.PythonLanguage;
 import com.oracle.truffle.api.Assumption;
 import com.oracle.truffle.api.CompilerAsserts;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.Truffle;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.GenerateUncached;
 import com.oracle.truffle.api.dsl.ImportStatic;
@@ -55,33 +59,166 @@ import com.oracle.truffle.api.interop.UnsupportedTypeException;
 import com.oracle.truffle.api.library.CachedLibrary;
 import com.oracle.truffle.api.library.ExportLibrary;
 import com.oracle.truffle.api.library.ExportMessage;
-import com.oracle.truffle.api.nodes.ControlFlowException;
-import com.oracle.truffle.api.nodes.ExplodeLoop;
 import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.api.profiles.BranchProfile;
 
+/**
+ * Maps native handles back to the managed objects they were created for. The first resolution of
+ * a handle goes through {@code truffle_managed_from_handle}; the result is remembered in an
+ * open-addressing hash table that grows with the number of live handles.
+ * <p>
+ * Values are held weakly, so entries of objects that died are dropped when the table is rehashed.
+ * Entries never move until the next rehash, which allows nodes to cache the position of a handle
+ * under {@link #positionsStable}. Rehashing invalidates that assumption so that the cached
+ * positions are looked up again.
+ * </p>
+ */
 @ExportLibrary(InteropLibrary.class)
 public final class HandleCache implements TruffleObject {
+    /** Number of handles for which a resolving node caches the table position. */
     public static final int CACHE_SIZE = 10;
 
-    final long[] keys;
-    final Object[] values;
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** The handles; {@code 0} marks an empty slot since a handle is never {@code NULL}. */
+    private long[] keys;
+    private WeakReference<?>[] values;
+    /** Number of occupied slots including those whose object was collected. */
+    private int used;
+    private Assumption positionsStable = createPositionsStableAssumption();
     private final TruffleObject ptrToResolveHandle;
 
-    int pos = 0;
+    private long misses;
+    private long rehashes;
+    private long reclaimed;
 
     public HandleCache(TruffleObject ptrToResolveHandle) {
-        keys = new long[CACHE_SIZE];
-        values = new Object[CACHE_SIZE];
+        this.keys = new long[INITIAL_CAPACITY];
+        this.values = new WeakReference<?>[INITIAL_CAPACITY];
         this.ptrToResolveHandle = ptrToResolveHandle;
     }
 
-    protected int len() {
+    protected TruffleObject getPtrToResolveHandle() {
+        return ptrToResolveHandle;
+    }
+
+    protected Assumption getPositionsStableAssumption() {
+        return positionsStable;
+    }
+
+    private static Assumption createPositionsStableAssumption() {
+        return Truffle.getRuntime().createAssumption("handle cache positions stable");
+    }
+
+    public int getCapacity() {
         return keys.length;
     }
 
-    protected TruffleObject getPtrToResolveHandle() {
-        return ptrToResolveHandle;
+    public int getUsed() {
+        return used;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getRehashes() {
+        return rehashes;
+    }
+
+    public long getReclaimed() {
+        return reclaimed;
+    }
+
+    private static int indexFor(long handle, int mask) {
+        long h = handle * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Returns the slot of {@code handle} or {@code -1} if the handle was not resolved yet.
+     */
+    protected int findPosition(long handle) {
+        long[] k = keys;
+        int mask = k.length - 1;
+        int i = indexFor(handle, mask);
+        while (true) {
+            long key = k[i];
+            if (key == handle) {
+                return i;
+            } else if (key == 0) {
+                return -1;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * Returns the object stored at {@code position} or {@code null} if it was collected.
+     */
+    protected Object getValue(int position) {
+        return values[position].get();
+    }
+
+    /**
+     * Stores the resolved object of {@code handle} and returns its slot. If the handle is already
+     * present (with a collected object), the slot is reused.
+     */
+    @TruffleBoundary
+    protected int insert(long handle, Object resolved) {
+        misses++;
+        int pos = findPosition(handle);
+        if (pos < 0) {
+            if ((used + 1) * 4 > keys.length * 3) {
+                rehash();
+            }
+            int mask = keys.length - 1;
+            pos = indexFor(handle, mask);
+            while (keys[pos] != 0) {
+                pos = (pos + 1) & mask;
+            }
+            keys[pos] = handle;
+            used++;
+        }
+        values[pos] = new WeakReference<>(resolved);
+        return pos;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        WeakReference<?>[] oldValues = values;
+        int live = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0 && oldValues[i].get() != null) {
+                live++;
+            }
+        }
+        // grow if the live entries alone would keep the table more than half full
+        int capacity = oldKeys.length;
+        while ((live + 1) * 2 > capacity) {
+            capacity <<= 1;
+        }
+        long[] newKeys = new long[capacity];
+        WeakReference<?>[] newValues = new WeakReference<?>[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0 && oldValues[i].get() != null) {
+                int pos = indexFor(key, mask);
+                while (newKeys[pos] != 0) {
+                    pos = (pos + 1) & mask;
+                }
+                newKeys[pos] = key;
+                newValues[pos] = oldValues[i];
+            }
+        }
+        reclaimed += used - live;
+        keys = newKeys;
+        values = newValues;
+        used = live;
+        positionsStable.invalidate();
+        positionsStable = createPositionsStableAssumption();
+        rehashes++;
     }
 
     @ExportMessage
@@ -101,83 +238,56 @@ public final class HandleCache implements TruffleObject {
         return getOrInsertNode.execute(this, (long) arguments[0]);
     }
 
-    static class InvalidCacheEntryException extends ControlFlowException {
-        private static final long serialVersionUID = 1L;
-        public static final InvalidCacheEntryException INSTANCE = new InvalidCacheEntryException();
-    }
-
     @GenerateUncached
     @ImportStatic(HandleCache.class)
     abstract static class GetOrInsertNode extends Node {
         public abstract Object execute(HandleCache cache, long handle) throws UnsupportedTypeException, ArityException, UnsupportedMessageException;
 
-        @Specialization(limit = "CACHE_SIZE", guards = {"cache.len() == cachedLen",
-                        "handle == cachedHandle"}, rewriteOn = InvalidCacheEntryException.class, assumptions = "singleContextAssumption()")
-        Object doCachedSingleContext(HandleCache cache, @SuppressWarnings("unused") long handle,
-                        @Cached("handle") long cachedHandle,
-                        @Cached("cache.len()") @SuppressWarnings("unused") int cachedLen,
-                        @Cached("cache.getPtrToResolveHandle()") @SuppressWarnings("unused") TruffleObject cachedResolveHandleFunction,
-                        @Cached("lookupPositionUncached(cache, handle, cachedLen, cachedResolveHandleFunction)") int cachedPosition) throws InvalidCacheEntryException {
-            if (cache.keys[cachedPosition] == cachedHandle) {
-                return cache.values[cachedPosition];
+        @Specialization(limit = "CACHE_SIZE", guards = "handle == cachedHandle", assumptions = {"singleContextAssumption()", "positionsStable"})
+        Object doCachedSingleContext(HandleCache cache, long handle,
+                        @Cached("handle") @SuppressWarnings("unused") long cachedHandle,
+                        @Cached("lookupPositionUncached(cache, handle)") int cachedPosition,
+                        @Cached("cache.getPositionsStableAssumption()") @SuppressWarnings("unused") Assumption positionsStable,
+                        @Cached BranchProfile invalidEntryProfile,
+                        @CachedLibrary(limit = "1") InteropLibrary interopLibrary) throws UnsupportedTypeException, ArityException, UnsupportedMessageException {
+            Object value = cache.getValue(cachedPosition);
+            if (value != null) {
+                return value;
             }
-            throw InvalidCacheEntryException.INSTANCE;
+            invalidEntryProfile.enter();
+            return lookup(cache, handle, invalidEntryProfile, interopLibrary);
         }
 
-        @Specialization(guards = {"cache.len() == cachedLen"}, replaces = "doCachedSingleContext", assumptions = "singleContextAssumption()")
-        Object doFullLookupSingleContext(HandleCache cache, long handle,
-                        @Cached(value = "cache.len()", allowUncached = true) int cachedLen,
-                        @Cached(value = "cache.getPtrToResolveHandle()", allowUncached = true) TruffleObject resolveHandleFunction,
-                        @CachedLibrary("resolveHandleFunction") InteropLibrary interopLibrary) throws UnsupportedTypeException, ArityException, UnsupportedMessageException {
-            int pos = lookupPosition(cache, handle, cachedLen, resolveHandleFunction, interopLibrary);
-            return cache.values[pos];
+        @Specialization(replaces = "doCachedSingleContext")
+        Object doLookup(HandleCache cache, long handle,
+                        @Cached BranchProfile missProfile,
+                        @CachedLibrary(limit = "1") InteropLibrary interopLibrary) throws UnsupportedTypeException, ArityException, UnsupportedMessageException {
+            return lookup(cache, handle, missProfile, interopLibrary);
         }
 
-        @Specialization(limit = "CACHE_SIZE", guards = {"cache.len() == cachedLen",
-                        "handle == cachedHandle", "cache.getPtrToResolveHandle() == cachedResolveHandleFunction"}, rewriteOn = InvalidCacheEntryException.class)
-        Object doCached(HandleCache cache, @SuppressWarnings("unused") long handle,
-                        @Cached("handle") long cachedHandle,
-                        @Cached("cache.len()") @SuppressWarnings("unused") int cachedLen,
-                        @Cached("cache.getPtrToResolveHandle()") @SuppressWarnings("unused") TruffleObject cachedResolveHandleFunction,
-                        @Cached("lookupPositionUncached(cache, handle, cachedLen, cachedResolveHandleFunction)") int cachedPosition) throws InvalidCacheEntryException {
-            if (cache.keys[cachedPosition] == cachedHandle) {
-                return cache.values[cachedPosition];
+        private static Object lookup(HandleCache cache, long handle, BranchProfile missProfile, InteropLibrary interopLibrary)
+                        throws UnsupportedTypeException, ArityException, UnsupportedMessageException {
+            int pos = cache.findPosition(handle);
+            if (pos >= 0) {
+                Object value = cache.getValue(pos);
+                if (value != null) {
+                    return value;
+                }
             }
-            throw InvalidCacheEntryException.INSTANCE;
+            missProfile.enter();
+            Object resolved = interopLibrary.execute(cache.getPtrToResolveHandle(), handle);
+            cache.insert(handle, resolved);
+            return resolved;
         }
 
-        @Specialization(guards = {"cache.len() == cachedLen", "cache.getPtrToResolveHandle() == cachedResolveHandleFunction"}, replaces = "doCached")
-        Object doFullLookup(HandleCache cache, long handle,
-                        @Cached(value = "cache.len()", allowUncached = true) int cachedLen,
-                        @Cached(value = "cache.getPtrToResolveHandle()", allowUncached = true) TruffleObject cachedResolveHandleFunction,
-                        @CachedLibrary("cachedResolveHandleFunction") InteropLibrary interopLibrary) throws UnsupportedTypeException, ArityException, UnsupportedMessageException {
-            int pos = lookupPosition(cache, handle, cachedLen, cachedResolveHandleFunction, interopLibrary);
-            return cache.values[pos];
-        }
-
-        protected static int lookupPositionUncached(HandleCache cache, long handle, int len, TruffleObject ptrToResolveHandle)
-                        throws UnsupportedTypeException, ArityException, UnsupportedMessageException {
+        protected static int lookupPositionUncached(HandleCache cache, long handle) throws UnsupportedTypeException, ArityException, UnsupportedMessageException {
             CompilerAsserts.neverPartOfCompilation();
-            return lookupPosition(cache, handle, len, ptrToResolveHandle, InteropLibrary.getFactory().getUncached(ptrToResolveHandle));
-        }
-
-        @ExplodeLoop
-        protected static int lookupPosition(HandleCache cache, long handle, int cachedLen, TruffleObject ptrToResolveHandle, InteropLibrary interopLibrary)
-                        throws UnsupportedTypeException, ArityException, UnsupportedMessageException {
-            for (int i = 0; i < cachedLen; i++) {
-                if (cache.keys[i] == handle) {
-                    return i;
-                }
+            int pos = cache.findPosition(handle);
+            if (pos >= 0 && cache.getValue(pos) != null) {
+                return pos;
             }
-
-            Object resolved = interopLibrary.execute(ptrToResolveHandle, handle);
-
-            int insertPos = cache.pos;
-            cache.keys[insertPos] = handle;
-            cache.values[insertPos] = resolved;
-            cache.pos = (insertPos + 1) % cache.len();
-
-            return insertPos;
+            TruffleObject resolveHandle = cache.getPtrToResolveHandle();
+            return cache.insert(handle, InteropLibrary.getFactory().getUncached(resolveHandle).execute(resolveHandle, handle));
         }
 
         protected static Assumption singleContextAssumption() {
@@ -116,6 +116,7 @@ public final class NativeMemberNames {
     public static final String IM_SELF = "im_self";
     public static final String SQ_REPEAT = "sq_repeat";
     public static final String MEMORYVIEW_FLAGS = "flags";
+    public static final String MEMORYVIEW_OFFSET = "mv_offset";
     public static final String D_COMMON = "d_common";
     public static final String D_MEMBER = "d_member";
     public static final String D_GETSET = "d_getset";
@@ -42,6 +42,7 @@ package com.oracle.graal.python.builtins.objects.common;
 
 import java.util.ArrayList;
 
+import com.oracle.graal.python.builtins.objects.module.PythonModule;
 import com.oracle.graal.python.runtime.sequence.storage.MroSequenceStorage;
 import com.oracle.truffle.api.Assumption;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
@@ -160,22 +161,64 @@ public abstract class DynamicObjectStorage extends HashingStorage {
         }
     }
 
+    /**
+     * Storage that is used in the {@code __dict__} of Python objects. If the object is a module,
+     * writing to this storage will invalidate the <it>attribute stable</it> assumptions of the
+     * module.
+     */
     public static final class PythonObjectDictStorage extends DynamicObjectStorage {
         private final Assumption dictUnsetOrSameAsStorage;
+        private final PythonModule module;
 
         public PythonObjectDictStorage(DynamicObject store) {
             this(store, null);
         }
 
         public PythonObjectDictStorage(DynamicObject store, Assumption dictUnsetOrSameAsStorage) {
+            this(store, dictUnsetOrSameAsStorage, null);
+        }
+
+        public PythonObjectDictStorage(DynamicObject store, Assumption dictUnsetOrSameAsStorage, PythonModule module) {
             super(store);
             this.dictUnsetOrSameAsStorage = dictUnsetOrSameAsStorage;
+            this.module = module;
         }
 
         public Assumption getDictUnsetOrSameAsStorage() {
             return dictUnsetOrSameAsStorage;
         }
 
+        public PythonModule getModule() {
+            return module;
+        }
+
+        @Override
+        @TruffleBoundary
+        public void setItem(Object key, Object value, Equivalence eq) {
+            if (module != null) {
+                module.invalidateAttributeStableAssumption(key);
+            }
+            super.setItem(key, value, eq);
+        }
+
+        @Override
+        @TruffleBoundary
+        public boolean remove(Object key, Equivalence eq) {
+            if (module != null) {
+                module.invalidateAttributeStableAssumption(key);
+            }
+            return super.remove(key, eq);
+        }
+
+        @Override
+        @TruffleBoundary
+        public void clear() {
+            if (module != null) {
+                module.invalidateAllAttributeStableAssumptions();
+            }
+            super.clear();
+        }
+
         @Override
         @TruffleBoundary
         public HashingStorage copy(Equivalence eq) {
@@ -279,6 +279,10 @@ public abstract class HashingStorageNodes {
             if (dictUnsetOrSameAsStorage != null) {
                 dictUnsetOrSameAsStorage.invalidate();
             }
+            if (dictStorage.getModule() != null) {
+                // the hybrid storage does not notify the module about writes anymore
+                dictStorage.getModule().invalidateAllAttributeStableAssumptions();
+            }
             return new PythonObjectHybridDictStorage(dictStorage);
         }
 
@@ -814,7 +818,12 @@ public abstract class HashingStorageNodes {
             storage.invalidateAttributeInMROFinalAssumptions(key);
         }
 
-        @Specialization(guards = "!isNativeObjectDictStorage(storage)")
+        @Specialization(guards = "storage.getModule() != null")
+        static void doPythonModuleDictStorage(PythonObjectDictStorage storage, String key, @SuppressWarnings("unused") Object val) {
+            storage.getModule().invalidateAttributeStableAssumption(key);
+        }
+
+        @Specialization(guards = {"!isNativeObjectDictStorage(storage)", "!isModuleDictStorage(storage)"})
         @SuppressWarnings("unused")
         static void doPythonNativeObjectDictStorage(DynamicObjectStorage storage, String key, Object val) {
             // do nothing
@@ -824,6 +833,10 @@ public abstract class HashingStorageNodes {
             return storage instanceof PythonNativeObjectDictStorage;
         }
 
+        protected static boolean isModuleDictStorage(DynamicObjectStorage storage) {
+            return storage instanceof PythonObjectDictStorage && ((PythonObjectDictStorage) storage).getModule() != null;
+        }
+
         public static InvalidateMroNode create() {
             return InvalidateMroNodeGen.create();
         }
@@ -65,6 +65,7 @@ public abstract class IndexNodes {
         public static final String ARRAY_OUT_OF_BOUNDS = "array index out of range";
         public static final String ARRAY_ASSIGN_OUT_OF_BOUNDS = "array assignment index out of range";
         public static final String BYTEARRAY_OUT_OF_BOUNDS = "bytearray index out of range";
+        public static final String DEQUE_OUT_OF_BOUNDS = "deque index out of range";
 
         @Child private NormalizeIndexCustomMessageNode subNode;
 
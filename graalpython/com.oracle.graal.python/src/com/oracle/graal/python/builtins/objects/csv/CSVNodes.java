@@ -0,0 +1,405 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.csv;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__FLOAT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__INT__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.CSVError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.complex.PComplex;
+import com.oracle.graal.python.builtins.objects.csv.CSVNodesFactory.AppendRowNodeGen;
+import com.oracle.graal.python.builtins.objects.csv.CSVNodesFactory.CreateDialectNodeGen;
+import com.oracle.graal.python.builtins.objects.floats.PFloat;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.ints.PInt;
+import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+import com.oracle.graal.python.nodes.PNodeWithContext;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.nodes.attributes.GetAttributeNode.GetAnyAttributeNode;
+import com.oracle.graal.python.nodes.attributes.LookupInheritedAttributeNode;
+import com.oracle.graal.python.nodes.control.GetIteratorExpressionNode.GetIteratorNode;
+import com.oracle.graal.python.nodes.control.GetNextNode;
+import com.oracle.graal.python.nodes.expression.CastToBooleanNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.nodes.util.CastToStringNode;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.graal.python.runtime.object.PythonObjectFactory;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Specialization;
+
+public abstract class CSVNodes {
+
+    /** The dialect options in the order in which they are passed to {@link CreateDialectNode}. */
+    public static final String[] DIALECT_OPTIONS = {"delimiter", "doublequote", "escapechar", "lineterminator", "quotechar", "quoting", "skipinitialspace", "strict"};
+
+    private static final int DELIMITER = 0;
+    private static final int DOUBLEQUOTE = 1;
+    private static final int ESCAPECHAR = 2;
+    private static final int LINETERMINATOR = 3;
+    private static final int QUOTECHAR = 4;
+    private static final int QUOTING = 5;
+    private static final int SKIPINITIALSPACE = 6;
+    private static final int STRICT = 7;
+
+    /**
+     * Creates a dialect from a base dialect and explicit options, like CPython's
+     * {@code _call_dialect}. The base dialect may be the name of a registered dialect or any object
+     * with dialect attributes; options which are neither given nor found on the base dialect get
+     * their default values. A {@link PCSVDialect} without explicit options is returned as is.
+     */
+    public abstract static class CreateDialectNode extends PNodeWithContext {
+        @Child private PRaiseNode raiseNode;
+
+        public abstract PCSVDialect execute(LazyPythonClass cls, Object dialect, Object[] options, CSVModuleState state);
+
+        public final PCSVDialect executeWithKeywords(LazyPythonClass cls, Object dialect, PKeyword[] keywords, CSVModuleState state) {
+            Object[] options = new Object[DIALECT_OPTIONS.length];
+            for (int i = 0; i < options.length; i++) {
+                options[i] = PNone.NO_VALUE;
+            }
+            for (PKeyword keyword : keywords) {
+                int index = indexOfOption(keyword.getName());
+                if (index < 0) {
+                    throw raise(TypeError, "'%s' is an invalid keyword argument for this function", keyword.getName());
+                }
+                options[index] = keyword.getValue();
+            }
+            return execute(cls, dialect, options, state);
+        }
+
+        private static int indexOfOption(String name) {
+            for (int i = 0; i < DIALECT_OPTIONS.length; i++) {
+                if (DIALECT_OPTIONS[i].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Specialization
+        PCSVDialect create(LazyPythonClass cls, Object dialectObj, Object[] options, CSVModuleState state,
+                        @Cached("create()") GetAnyAttributeNode getAttributeNode,
+                        @Cached("create()") IsBuiltinClassProfile attributeErrorProfile,
+                        @Cached("createIfTrueNode()") CastToBooleanNode castToBooleanNode,
+                        @Cached("create()") PythonObjectFactory factory) {
+            Object dialect = dialectObj;
+            if (dialect instanceof String || dialect instanceof PString) {
+                dialect = state.getDialect(dialect.toString());
+                if (dialect == null) {
+                    throw raise(CSVError, "unknown dialect");
+                }
+            }
+            boolean hasOptions = false;
+            for (Object option : options) {
+                hasOptions |= option != PNone.NO_VALUE;
+            }
+            if (dialect instanceof PCSVDialect && !hasOptions) {
+                return (PCSVDialect) dialect;
+            }
+            Object[] values = options.clone();
+            if (dialect != PNone.NO_VALUE) {
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] == PNone.NO_VALUE) {
+                        try {
+                            values[i] = getAttributeNode.executeObject(dialect, DIALECT_OPTIONS[i]);
+                        } catch (PException e) {
+                            e.expectAttributeError(attributeErrorProfile);
+                        }
+                    }
+                }
+            }
+
+            char delimiter = toChar(values, DELIMITER, ',');
+            boolean doublequote = toBoolean(values, DOUBLEQUOTE, true, castToBooleanNode);
+            char escapechar = toChar(values, ESCAPECHAR, PCSVDialect.NOT_SET);
+            String lineterminator = toString(values, LINETERMINATOR, "\r\n");
+            char quotechar = toChar(values, QUOTECHAR, '"');
+            int quoting = toInt(values, QUOTING, PCSVDialect.QUOTE_MINIMAL);
+            boolean skipinitialspace = toBoolean(values, SKIPINITIALSPACE, false, castToBooleanNode);
+            boolean strict = toBoolean(values, STRICT, false, castToBooleanNode);
+
+            if (quoting < PCSVDialect.QUOTE_MINIMAL || quoting > PCSVDialect.QUOTE_NONE) {
+                throw raise(TypeError, "bad \"quoting\" value");
+            }
+            if (delimiter == PCSVDialect.NOT_SET) {
+                throw raise(TypeError, "\"delimiter\" must be a 1-character string");
+            }
+            if (values[QUOTECHAR] == PNone.NONE && values[QUOTING] == PNone.NO_VALUE) {
+                quoting = PCSVDialect.QUOTE_NONE;
+            }
+            if (quoting != PCSVDialect.QUOTE_NONE && quotechar == PCSVDialect.NOT_SET) {
+                throw raise(TypeError, "quotechar must be set if quoting enabled");
+            }
+            if (lineterminator == null) {
+                throw raise(TypeError, "lineterminator must be set");
+            }
+            return factory.createCSVDialect(cls, delimiter, doublequote, escapechar, lineterminator, quotechar, quoting, skipinitialspace, strict);
+        }
+
+        private char toChar(Object[] values, int index, char defaultValue) {
+            Object value = values[index];
+            if (value == PNone.NO_VALUE) {
+                return defaultValue;
+            } else if (value == PNone.NONE) {
+                return PCSVDialect.NOT_SET;
+            } else if (value instanceof String || value instanceof PString) {
+                // characters outside the BMP are rejected like longer strings
+                String str = value.toString();
+                if (str.length() > 1) {
+                    throw raise(TypeError, "\"%s\" must be a 1-character string", DIALECT_OPTIONS[index]);
+                }
+                return str.isEmpty() ? PCSVDialect.NOT_SET : str.charAt(0);
+            }
+            throw raise(TypeError, "\"%s\" must be string, not %p", DIALECT_OPTIONS[index], value);
+        }
+
+        private static boolean toBoolean(Object[] values, int index, boolean defaultValue, CastToBooleanNode castToBooleanNode) {
+            Object value = values[index];
+            return value == PNone.NO_VALUE ? defaultValue : castToBooleanNode.executeWith(value);
+        }
+
+        private String toString(Object[] values, int index, String defaultValue) {
+            Object value = values[index];
+            if (value == PNone.NO_VALUE) {
+                return defaultValue;
+            } else if (value == PNone.NONE) {
+                return null;
+            } else if (value instanceof String || value instanceof PString) {
+                return value.toString();
+            }
+            throw raise(TypeError, "\"%s\" must be a string", DIALECT_OPTIONS[index]);
+        }
+
+        private int toInt(Object[] values, int index, int defaultValue) {
+            Object value = values[index];
+            if (value == PNone.NO_VALUE) {
+                return defaultValue;
+            } else if (value instanceof Integer) {
+                return (int) value;
+            } else if (value instanceof Long) {
+                long l = (long) value;
+                return l == (int) l ? (int) l : -1;
+            } else if (value instanceof PInt) {
+                try {
+                    return ((PInt) value).intValueExact();
+                } catch (ArithmeticException e) {
+                    return -1;
+                }
+            }
+            throw raise(TypeError, "\"%s\" must be an integer", DIALECT_OPTIONS[index]);
+        }
+
+        private PException raise(PythonBuiltinClassType type, String format, Object... arguments) {
+            if (raiseNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                raiseNode = insert(PRaiseNode.create());
+            }
+            return raiseNode.raise(type, format, arguments);
+        }
+
+        public static CreateDialectNode create() {
+            return CreateDialectNodeGen.create();
+        }
+    }
+
+    /**
+     * Appends a row and the line terminator to the buffer of a writer, quoting and escaping the
+     * fields like CPython's {@code csv_writerow}. If the row cannot be written, the buffer is left
+     * unchanged.
+     */
+    public abstract static class AppendRowNode extends PNodeWithContext {
+        @Child private PRaiseNode raiseNode;
+
+        public abstract void execute(PCSVWriter self, Object row);
+
+        @Specialization
+        void append(PCSVWriter self, Object row,
+                        @Cached("create()") GetIteratorNode getIteratorNode,
+                        @Cached("create()") GetNextNode nextNode,
+                        @Cached("create()") IsBuiltinClassProfile typeErrorProfile,
+                        @Cached("create()") IsBuiltinClassProfile stopIterationProfile,
+                        @Cached("create(__INT__)") LookupInheritedAttributeNode lookupIntNode,
+                        @Cached("create(__FLOAT__)") LookupInheritedAttributeNode lookupFloatNode,
+                        @Cached("createCoercing()") CastToStringNode castToStringNode) {
+            PCSVDialect dialect = self.getDialect();
+            Object iterator;
+            try {
+                iterator = getIteratorNode.executeWith(row);
+            } catch (PException e) {
+                e.expect(TypeError, typeErrorProfile);
+                throw raise(CSVError, "iterable expected, not %p", row);
+            }
+            int start = self.getBufferLength();
+            self.setNumFields(0);
+            try {
+                while (true) {
+                    Object field;
+                    try {
+                        field = nextNode.execute(iterator);
+                    } catch (PException e) {
+                        e.expectStopIteration(stopIterationProfile);
+                        break;
+                    }
+                    boolean quoted;
+                    switch (dialect.getQuoting()) {
+                        case PCSVDialect.QUOTE_NONNUMERIC:
+                            quoted = !isNumber(field, lookupIntNode, lookupFloatNode);
+                            break;
+                        case PCSVDialect.QUOTE_ALL:
+                            quoted = true;
+                            break;
+                        default:
+                            quoted = false;
+                            break;
+                    }
+                    CharSequence str;
+                    if (field instanceof String) {
+                        str = (String) field;
+                    } else if (field instanceof PString) {
+                        str = ((PString) field).getCharSequence();
+                    } else if (field == PNone.NONE) {
+                        str = null;
+                    } else {
+                        str = castToStringNode.execute(field);
+                    }
+                    joinAppend(self, dialect, str, quoted);
+                }
+                if (self.getNumFields() > 0 && self.getBufferLength() == start) {
+                    // a single empty field is written as a quoted empty string
+                    if (dialect.getQuoting() == PCSVDialect.QUOTE_NONE) {
+                        throw raise(CSVError, "single empty field record must be quoted");
+                    }
+                    self.setNumFields(0);
+                    joinAppend(self, dialect, null, true);
+                }
+                appendLineterminator(self, dialect);
+            } catch (PException e) {
+                self.truncateBuffer(start);
+                throw e;
+            }
+        }
+
+        private static boolean isNumber(Object value, LookupInheritedAttributeNode lookupIntNode, LookupInheritedAttributeNode lookupFloatNode) {
+            if (value instanceof Integer || value instanceof Long || value instanceof Double || value instanceof Boolean || value instanceof PInt || value instanceof PFloat ||
+                            value instanceof PComplex) {
+                return true;
+            }
+            return lookupIntNode.execute(value) != PNone.NO_VALUE || lookupFloatNode.execute(value) != PNone.NO_VALUE;
+        }
+
+        @TruffleBoundary
+        private void joinAppend(PCSVWriter self, PCSVDialect dialect, CharSequence field, boolean quotedArg) {
+            StringBuilder buffer = self.getBuffer();
+            char delimiter = dialect.getDelimiter();
+            char escapechar = dialect.getEscapechar();
+            char quotechar = dialect.getQuotechar();
+            String lineterminator = dialect.getLineterminator();
+            boolean quoteNone = dialect.getQuoting() == PCSVDialect.QUOTE_NONE;
+
+            if (self.getNumFields() > 0) {
+                buffer.append(delimiter);
+            }
+            // whether an unquoted field needs quotes is only known after its characters were seen
+            int quotePos = buffer.length();
+            boolean quoted = quotedArg;
+            if (quoted) {
+                buffer.append(quotechar);
+            }
+            int length = field == null ? 0 : field.length();
+            int runStart = 0;
+            for (int i = 0; i < length; i++) {
+                char c = field.charAt(i);
+                if (c == delimiter || c == escapechar || c == quotechar || lineterminator.indexOf(c) >= 0) {
+                    buffer.append(field, runStart, i);
+                    runStart = i;
+                    boolean wantEscape = quoteNone;
+                    if (!quoteNone) {
+                        if (c == quotechar) {
+                            if (dialect.isDoublequote()) {
+                                buffer.append(quotechar);
+                            } else {
+                                wantEscape = true;
+                            }
+                        }
+                        if (!wantEscape && !quoted) {
+                            buffer.insert(quotePos, quotechar);
+                            quoted = true;
+                        }
+                    }
+                    if (wantEscape) {
+                        if (escapechar == PCSVDialect.NOT_SET) {
+                            throw raise(CSVError, "need to escape, but no escapechar set");
+                        }
+                        buffer.append(escapechar);
+                    }
+                }
+            }
+            buffer.append(field, runStart, length);
+            if (quoted) {
+                buffer.append(quotechar);
+            }
+            self.setNumFields(self.getNumFields() + 1);
+        }
+
+        @TruffleBoundary
+        private static void appendLineterminator(PCSVWriter self, PCSVDialect dialect) {
+            self.getBuffer().append(dialect.getLineterminator());
+        }
+
+        private PException raise(PythonBuiltinClassType type, String format, Object... arguments) {
+            if (raiseNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                raiseNode = insert(PRaiseNode.create());
+            }
+            return raiseNode.raise(type, format, arguments);
+        }
+
+        public static AppendRowNode create() {
+            return AppendRowNodeGen.create();
+        }
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.csv;
+
+import static com.oracle.graal.python.builtins.objects.csv.PCSVReader.AFTER_ESCAPED_CRNL;
+import static com.oracle.graal.python.builtins.objects.csv.PCSVReader.EAT_CRNL;
+import static com.oracle.graal.python.builtins.objects.csv.PCSVReader.ESCAPED_CHAR;
+import static com.oracle.graal.python.builtins.objects.csv.PCSVReader.ESCAPE_IN_QUOTED_FIELD;
+import static com.oracle.graal.python.builtins.objects.csv.PCSVReader.IN_FIELD;
+import static com.oracle.graal.python.builtins.objects.csv.PCSVReader.IN_QUOTED_FIELD;
+import static com.oracle.graal.python.builtins.objects.csv.PCSVReader.QUOTE_IN_QUOTED_FIELD;
+import static com.oracle.graal.python.builtins.objects.csv.PCSVReader.START_FIELD;
+import static com.oracle.graal.python.builtins.objects.csv.PCSVReader.START_RECORD;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__ITER__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__NEXT__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.CSVError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.list.PList;
+import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.control.GetNextNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PCSVReader)
+public final class CSVReaderBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return CSVReaderBuiltinsFactory.getFactories();
+    }
+
+    @Builtin(name = __ITER__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class IterNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        PCSVReader iter(PCSVReader self) {
+            return self;
+        }
+    }
+
+    /**
+     * The parser of CPython's {@code _csv} module. Lines are processed character by character, but
+     * runs of ordinary characters in a field are copied into the field buffer at once. The end of
+     * each line is signalled by an extra {@link #EOL} character.
+     */
+    @Builtin(name = __NEXT__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class NextNode extends PythonUnaryBuiltinNode {
+        private static final char EOL = '\0';
+
+        @Child private CallNode callFloatNode;
+
+        @Specialization
+        PList next(VirtualFrame frame, PCSVReader self,
+                        @Cached("create()") GetNextNode nextNode,
+                        @Cached("create()") IsBuiltinClassProfile stopIterationProfile) {
+            PCSVDialect dialect = self.getDialect();
+            self.reset();
+            try {
+                do {
+                    Object line;
+                    try {
+                        line = nextNode.execute(self.getIterator());
+                    } catch (PException e) {
+                        e.expectStopIteration(stopIterationProfile);
+                        if (self.getFieldLength() == 0 && self.getState() != IN_QUOTED_FIELD) {
+                            throw e;
+                        }
+                        if (dialect.isStrict()) {
+                            throw raise(CSVError, "unexpected end of data");
+                        }
+                        self.saveField();
+                        break;
+                    }
+                    CharSequence chars;
+                    if (line instanceof String) {
+                        chars = (String) line;
+                    } else if (line instanceof PString) {
+                        chars = ((PString) line).getCharSequence();
+                    } else {
+                        throw raise(CSVError, "iterator should return strings, not %p (did you open the file in text mode?)", line);
+                    }
+                    self.incrementLineNum();
+                    parseLine(self, dialect, chars);
+                } while (self.getState() != START_RECORD);
+            } catch (PException e) {
+                // CPython converts numeric fields when they are saved, so their errors come first
+                convertNumericFields(frame, self, self.takeFields());
+                throw e;
+            }
+            Object[] fields = self.takeFields();
+            convertNumericFields(frame, self, fields);
+            return factory().createList(fields);
+        }
+
+        private void convertNumericFields(VirtualFrame frame, PCSVReader self, Object[] fields) {
+            for (int i = self.nextNumericField(0); i >= 0; i = self.nextNumericField(i + 1)) {
+                fields[i] = toFloat(frame, fields[i]);
+            }
+        }
+
+        private Object toFloat(VirtualFrame frame, Object field) {
+            if (callFloatNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                callFloatNode = insert(CallNode.create());
+            }
+            return callFloatNode.execute(frame, getBuiltinPythonClass(PythonBuiltinClassType.PFloat), field);
+        }
+
+        @TruffleBoundary
+        private void parseLine(PCSVReader self, PCSVDialect dialect, CharSequence line) {
+            int length = line.length();
+            int pos = 0;
+            while (pos < length) {
+                int state = self.getState();
+                if (state == IN_FIELD || state == IN_QUOTED_FIELD) {
+                    int end = scanField(dialect, line, pos, length, state == IN_QUOTED_FIELD);
+                    if (end > pos) {
+                        addChars(self, line, pos, end);
+                        pos = end;
+                        continue;
+                    }
+                }
+                char c = line.charAt(pos);
+                if (c == EOL) {
+                    throw raise(CSVError, "line contains NULL byte");
+                }
+                processChar(self, dialect, c);
+                pos++;
+            }
+            processChar(self, dialect, EOL);
+        }
+
+        /**
+         * Returns the end of the run of characters starting at {@code start} which are simply
+         * appended to the current field in the given state.
+         */
+        private static int scanField(PCSVDialect dialect, CharSequence line, int start, int length, boolean quoted) {
+            char delimiter = dialect.getDelimiter();
+            char escapechar = dialect.getEscapechar();
+            char quotechar = dialect.getQuoting() != PCSVDialect.QUOTE_NONE ? dialect.getQuotechar() : EOL;
+            int i = start;
+            while (i < length) {
+                char c = line.charAt(i);
+                if (c == EOL || c == escapechar) {
+                    break;
+                } else if (quoted) {
+                    if (c == quotechar) {
+                        break;
+                    }
+                } else if (c == '\n' || c == '\r' || c == delimiter) {
+                    break;
+                }
+                i++;
+            }
+            return i;
+        }
+
+        private void processChar(PCSVReader self, PCSVDialect dialect, char ch) {
+            char c = ch;
+            switch (self.getState()) {
+                case START_RECORD:
+                    if (c == EOL) {
+                        // empty line - return []
+                        break;
+                    } else if (c == '\n' || c == '\r') {
+                        self.setState(EAT_CRNL);
+                        break;
+                    }
+                    // normal character - handle as START_FIELD
+                    self.setState(START_FIELD);
+                    // fall through
+                case START_FIELD:
+                    if (c == '\n' || c == '\r' || c == EOL) {
+                        // save empty field - return [fields]
+                        self.saveField();
+                        self.setState(c == EOL ? START_RECORD : EAT_CRNL);
+                    } else if (c == dialect.getQuotechar() && dialect.getQuoting() != PCSVDialect.QUOTE_NONE) {
+                        self.setState(IN_QUOTED_FIELD);
+                    } else if (c == dialect.getEscapechar()) {
+                        self.setState(ESCAPED_CHAR);
+                    } else if (c == ' ' && dialect.isSkipinitialspace()) {
+                        // ignore space at start of field
+                    } else if (c == dialect.getDelimiter()) {
+                        // save empty field
+                        self.saveField();
+                    } else {
+                        // begin new unquoted field
+                        if (dialect.getQuoting() == PCSVDialect.QUOTE_NONNUMERIC) {
+                            self.setNumericField();
+                        }
+                        addChar(self, c);
+                        self.setState(IN_FIELD);
+                    }
+                    break;
+                case ESCAPED_CHAR:
+                    if (c == '\n' || c == '\r') {
+                        addChar(self, c);
+                        self.setState(AFTER_ESCAPED_CRNL);
+                        break;
+                    }
+                    if (c == EOL) {
+                        c = '\n';
+                    }
+                    addChar(self, c);
+                    self.setState(IN_FIELD);
+                    break;
+                case AFTER_ESCAPED_CRNL:
+                    if (c == EOL) {
+                        break;
+                    }
+                    // fall through
+                case IN_FIELD:
+                    if (c == '\n' || c == '\r' || c == EOL) {
+                        // end of line - return [fields]
+                        self.saveField();
+                        self.setState(c == EOL ? START_RECORD : EAT_CRNL);
+                    } else if (c == dialect.getEscapechar()) {
+                        self.setState(ESCAPED_CHAR);
+                    } else if (c == dialect.getDelimiter()) {
+                        // save field - wait for new field
+                        self.saveField();
+                        self.setState(START_FIELD);
+                    } else {
+                        addChar(self, c);
+                    }
+                    break;
+                case IN_QUOTED_FIELD:
+                    if (c == EOL) {
+                        // the field continues on the next line
+                    } else if (c == dialect.getEscapechar()) {
+                        self.setState(ESCAPE_IN_QUOTED_FIELD);
+                    } else if (c == dialect.getQuotechar() && dialect.getQuoting() != PCSVDialect.QUOTE_NONE) {
+                        // with doublequote, " is represented by ""
+                        self.setState(dialect.isDoublequote() ? QUOTE_IN_QUOTED_FIELD : IN_FIELD);
+                    } else {
+                        addChar(self, c);
+                    }
+                    break;
+                case ESCAPE_IN_QUOTED_FIELD:
+                    if (c == EOL) {
+                        c = '\n';
+                    }
+                    addChar(self, c);
+                    self.setState(IN_QUOTED_FIELD);
+                    break;
+                case QUOTE_IN_QUOTED_FIELD:
+                    if (dialect.getQuoting() != PCSVDialect.QUOTE_NONE && c == dialect.getQuotechar()) {
+                        // save "" as "
+                        addChar(self, c);
+                        self.setState(IN_QUOTED_FIELD);
+                    } else if (c == dialect.getDelimiter()) {
+                        self.saveField();
+                        self.setState(START_FIELD);
+                    } else if (c == '\n' || c == '\r' || c == EOL) {
+                        self.saveField();
+                        self.setState(c == EOL ? START_RECORD : EAT_CRNL);
+                    } else if (!dialect.isStrict()) {
+                        addChar(self, c);
+                        self.setState(IN_FIELD);
+                    } else {
+                        throw raise(CSVError, "'%s' expected after '%s'", String.valueOf(dialect.getDelimiter()), String.valueOf(dialect.getQuotechar()));
+                    }
+                    break;
+                case EAT_CRNL:
+                    if (c == '\n' || c == '\r') {
+                        // skip
+                    } else if (c == EOL) {
+                        self.setState(START_RECORD);
+                    } else {
+                        throw raise(CSVError, "new-line character seen in unquoted field - do you need to open the file in universal-newline mode?");
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+
+        private void addChar(PCSVReader self, char c) {
+            if (self.getFieldLength() >= self.getFieldLimit()) {
+                throw raise(CSVError, "field larger than field limit (%d)", self.getFieldLimit());
+            }
+            self.addChar(c);
+        }
+
+        private void addChars(PCSVReader self, CharSequence line, int start, int end) {
+            if (self.getFieldLength() + (end - start) > self.getFieldLimit()) {
+                throw raise(CSVError, "field larger than field limit (%d)", self.getFieldLimit());
+            }
+            self.addChars(line, start, end);
+        }
+    }
+
+    @Builtin(name = "dialect", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class DialectNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        PCSVDialect dialect(PCSVReader self) {
+            return self.getDialect();
+        }
+    }
+
+    @Builtin(name = "line_num", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class LineNumNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        long lineNum(PCSVReader self) {
+            return self.getLineNum();
+        }
+    }
+}
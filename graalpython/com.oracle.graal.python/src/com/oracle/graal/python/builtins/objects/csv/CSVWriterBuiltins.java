@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.csv;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.csv.CSVNodes.AppendRowNode;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.control.GetIteratorExpressionNode.GetIteratorNode;
+import com.oracle.graal.python.nodes.control.GetNextNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PCSVWriter)
+public final class CSVWriterBuiltins extends PythonBuiltins {
+    /** The number of buffered characters after which {@code writerows} calls {@code write}. */
+    private static final int WRITEROWS_BATCH_SIZE = 64 * 1024;
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return CSVWriterBuiltinsFactory.getFactories();
+    }
+
+    @Builtin(name = "writerow", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class WriteRowNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        Object writerow(VirtualFrame frame, PCSVWriter self, Object row,
+                        @Cached("create()") AppendRowNode appendRowNode,
+                        @Cached("create()") CallNode callNode) {
+            appendRowNode.execute(self, row);
+            return callNode.execute(frame, self.getWrite(), self.takeBuffer());
+        }
+    }
+
+    @Builtin(name = "writerows", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class WriteRowsNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        PNone writerows(VirtualFrame frame, PCSVWriter self, Object rows,
+                        @Cached("create()") GetIteratorNode getIteratorNode,
+                        @Cached("create()") GetNextNode nextNode,
+                        @Cached("create()") IsBuiltinClassProfile stopIterationProfile,
+                        @Cached("create()") AppendRowNode appendRowNode,
+                        @Cached("create()") CallNode callNode) {
+            Object iterator = getIteratorNode.executeWith(rows);
+            try {
+                while (true) {
+                    Object row;
+                    try {
+                        row = nextNode.execute(iterator);
+                    } catch (PException e) {
+                        e.expectStopIteration(stopIterationProfile);
+                        break;
+                    }
+                    appendRowNode.execute(self, row);
+                    if (self.getBufferLength() >= WRITEROWS_BATCH_SIZE) {
+                        callNode.execute(frame, self.getWrite(), self.takeBuffer());
+                    }
+                }
+            } finally {
+                // rows before a failing one are still written
+                if (self.getBufferLength() > 0) {
+                    callNode.execute(frame, self.getWrite(), self.takeBuffer());
+                }
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "dialect", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class DialectNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        PCSVDialect dialect(PCSVWriter self) {
+            return self.getDialect();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.csv;
+
+import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
+import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+
+/**
+ * A {@code _csv.Dialect}. Dialects are immutable once created. As in CPython, an unset
+ * {@code escapechar} or {@code quotechar} is represented by {@code '\0'}, which the reader also
+ * uses as its end-of-line marker.
+ */
+public final class PCSVDialect extends PythonBuiltinObject {
+    public static final int QUOTE_MINIMAL = 0;
+    public static final int QUOTE_ALL = 1;
+    public static final int QUOTE_NONNUMERIC = 2;
+    public static final int QUOTE_NONE = 3;
+
+    public static final char NOT_SET = '\0';
+
+    private final char delimiter;
+    private final boolean doublequote;
+    private final char escapechar;
+    private final String lineterminator;
+    private final char quotechar;
+    private final int quoting;
+    private final boolean skipinitialspace;
+    private final boolean strict;
+
+    public PCSVDialect(LazyPythonClass cls, char delimiter, boolean doublequote, char escapechar, String lineterminator, char quotechar, int quoting, boolean skipinitialspace,
+                    boolean strict) {
+        super(cls);
+        this.delimiter = delimiter;
+        this.doublequote = doublequote;
+        this.escapechar = escapechar;
+        this.lineterminator = lineterminator;
+        this.quotechar = quotechar;
+        this.quoting = quoting;
+        this.skipinitialspace = skipinitialspace;
+        this.strict = strict;
+    }
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    public boolean isDoublequote() {
+        return doublequote;
+    }
+
+    public char getEscapechar() {
+        return escapechar;
+    }
+
+    public String getLineterminator() {
+        return lineterminator;
+    }
+
+    public char getQuotechar() {
+        return quotechar;
+    }
+
+    public int getQuoting() {
+        return quoting;
+    }
+
+    public boolean isSkipinitialspace() {
+        return skipinitialspace;
+    }
+
+    public boolean isStrict() {
+        return strict;
+    }
+}
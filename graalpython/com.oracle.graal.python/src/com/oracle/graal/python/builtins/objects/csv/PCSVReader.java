@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.csv;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
+import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * A {@code _csv.reader} object. The parser state and the field and row buffers live here, the
+ * state machine itself is in {@link CSVReaderBuiltins}. Fields are collected as Java strings and
+ * only turned into a list once a row is complete.
+ */
+public final class PCSVReader extends PythonBuiltinObject {
+    public static final int START_RECORD = 0;
+    public static final int START_FIELD = 1;
+    public static final int ESCAPED_CHAR = 2;
+    public static final int IN_FIELD = 3;
+    public static final int IN_QUOTED_FIELD = 4;
+    public static final int ESCAPE_IN_QUOTED_FIELD = 5;
+    public static final int QUOTE_IN_QUOTED_FIELD = 6;
+    public static final int EAT_CRNL = 7;
+    public static final int AFTER_ESCAPED_CRNL = 8;
+
+    private final Object iterator;
+    private final PCSVDialect dialect;
+    private final CSVModuleState moduleState;
+    private final StringBuilder field = new StringBuilder();
+    private final ArrayList<Object> fields = new ArrayList<>();
+    /** The indices of the fields of the current row which must be converted to floats. */
+    private final BitSet numericFields = new BitSet();
+    private int state = START_RECORD;
+    private boolean numericField;
+    private long lineNum;
+
+    public PCSVReader(LazyPythonClass cls, Object iterator, PCSVDialect dialect, CSVModuleState moduleState) {
+        super(cls);
+        this.iterator = iterator;
+        this.dialect = dialect;
+        this.moduleState = moduleState;
+    }
+
+    public Object getIterator() {
+        return iterator;
+    }
+
+    public PCSVDialect getDialect() {
+        return dialect;
+    }
+
+    public long getFieldLimit() {
+        return moduleState.getFieldLimit();
+    }
+
+    public int getState() {
+        return state;
+    }
+
+    public void setState(int state) {
+        this.state = state;
+    }
+
+    public void setNumericField() {
+        this.numericField = true;
+    }
+
+    public long getLineNum() {
+        return lineNum;
+    }
+
+    public void incrementLineNum() {
+        lineNum++;
+    }
+
+    @TruffleBoundary
+    public void reset() {
+        field.setLength(0);
+        fields.clear();
+        numericFields.clear();
+        numericField = false;
+        state = START_RECORD;
+    }
+
+    @TruffleBoundary
+    public int getFieldLength() {
+        return field.length();
+    }
+
+    @TruffleBoundary
+    public void addChar(char c) {
+        field.append(c);
+    }
+
+    @TruffleBoundary
+    public void addChars(CharSequence line, int start, int end) {
+        field.append(line, start, end);
+    }
+
+    @TruffleBoundary
+    public void saveField() {
+        if (numericField) {
+            numericField = false;
+            numericFields.set(fields.size());
+        }
+        fields.add(field.toString());
+        field.setLength(0);
+    }
+
+    /**
+     * Returns the fields of the completed row and clears the row buffer. Fields of a
+     * {@code QUOTE_NONNUMERIC} dialect are still strings, see {@link #nextNumericField(int)}.
+     */
+    @TruffleBoundary
+    public Object[] takeFields() {
+        Object[] result = fields.toArray();
+        fields.clear();
+        return result;
+    }
+
+    @TruffleBoundary
+    public int nextNumericField(int fromIndex) {
+        return numericFields.nextSetBit(fromIndex);
+    }
+}
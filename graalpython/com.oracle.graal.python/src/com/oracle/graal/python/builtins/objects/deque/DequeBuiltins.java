@@ -0,0 +1,529 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.deque;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__CONTAINS__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__DELITEM__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__EQ__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__GETITEM__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__INIT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__ITER__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__LEN__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__REVERSED__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__SETITEM__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.IndexError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.RuntimeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.common.IndexNodes.NormalizeIndexNode;
+import com.oracle.graal.python.builtins.objects.deque.DequeNodes.AppendNode;
+import com.oracle.graal.python.builtins.objects.deque.DequeNodes.GetStorageNode;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.control.GetIteratorExpressionNode.GetIteratorNode;
+import com.oracle.graal.python.nodes.control.GetNextNode;
+import com.oracle.graal.python.nodes.expression.BinaryComparisonNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.object.GetClassNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.nodes.util.CastToIndexNode;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PDeque)
+public class DequeBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return DequeBuiltinsFactory.getFactories();
+    }
+
+    abstract static class DequeBaseNode extends PythonBuiltinNode {
+        @Child private GetStorageNode getStorageNode;
+        @Child private BinaryComparisonNode eqNode;
+
+        protected final DequeStorage getStorage(PDeque self) {
+            if (getStorageNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                getStorageNode = insert(GetStorageNode.create());
+            }
+            return getStorageNode.execute(self);
+        }
+
+        protected final boolean isEqual(Object item, Object value) {
+            if (item == value) {
+                return true;
+            }
+            if (eqNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                eqNode = insert(BinaryComparisonNode.create(__EQ__, __EQ__, "=="));
+            }
+            return eqNode.executeBool(item, value);
+        }
+
+        protected final void checkState(PDeque self, int state) {
+            if (self.getState() != state) {
+                throw raise(RuntimeError, "deque mutated during iteration");
+            }
+        }
+    }
+
+    /**
+     * Appends the items of an iterable at one end of a deque.
+     */
+    abstract static class DequeExtendBaseNode extends DequeBaseNode {
+        @Child private AppendNode appendNode = AppendNode.create();
+        @Child private GetIteratorNode getIteratorNode;
+        @Child private GetNextNode getNextNode;
+        @Child private IsBuiltinClassProfile errorProfile;
+
+        protected final void extend(PDeque self, Object iterable, boolean left) {
+            if (iterable instanceof PDeque) {
+                // also covers 'd.extend(d)'
+                DequeStorage source = getStorage((PDeque) iterable);
+                Object[] items = source.toArray();
+                for (int i = 0; i < items.length; i++) {
+                    appendNode.execute(self, items[i], left);
+                }
+                return;
+            }
+            if (getIteratorNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                getIteratorNode = insert(GetIteratorNode.create());
+                getNextNode = insert(GetNextNode.create());
+                errorProfile = insert(IsBuiltinClassProfile.create());
+            }
+            Object iterator = getIteratorNode.executeWith(iterable);
+            while (true) {
+                Object value;
+                try {
+                    value = getNextNode.execute(iterator);
+                } catch (PException e) {
+                    e.expectStopIteration(errorProfile);
+                    break;
+                }
+                appendNode.execute(self, value, left);
+            }
+        }
+    }
+
+    // deque([iterable[, maxlen]])
+    @Builtin(name = __INIT__, minNumOfPositionalArgs = 1, parameterNames = {"self", "iterable", "maxlen"})
+    @GenerateNodeFactory
+    abstract static class DequeInitNode extends DequeExtendBaseNode {
+        @Specialization
+        PNone init(PDeque self, Object iterable, Object maxlen,
+                        @Cached("createOverflow()") CastToIndexNode castToIndexNode) {
+            int maxLength = -1;
+            if (!(maxlen instanceof PNone)) {
+                maxLength = castToIndexNode.execute(maxlen);
+                if (maxLength < 0) {
+                    throw raise(ValueError, "maxlen must be non-negative");
+                }
+            }
+            self.setMaxLength(maxLength);
+            if (self.getLength() > 0) {
+                getStorage(self).clear();
+                self.modified();
+            }
+            if (!(iterable instanceof PNone)) {
+                extend(self, iterable, false);
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "append", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class DequeAppendNode extends PythonBuiltinNode {
+        @Specialization
+        PNone append(PDeque self, Object value,
+                        @Cached("create()") AppendNode appendNode) {
+            appendNode.execute(self, value, false);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "appendleft", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class DequeAppendLeftNode extends PythonBuiltinNode {
+        @Specialization
+        PNone appendLeft(PDeque self, Object value,
+                        @Cached("create()") AppendNode appendNode) {
+            appendNode.execute(self, value, true);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "extend", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class DequeExtendNode extends DequeExtendBaseNode {
+        @Specialization
+        PNone extend(PDeque self, Object iterable) {
+            extend(self, iterable, false);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "extendleft", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class DequeExtendLeftNode extends DequeExtendBaseNode {
+        @Specialization
+        PNone extendLeft(PDeque self, Object iterable) {
+            extend(self, iterable, true);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "pop", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class DequePopNode extends DequeBaseNode {
+        @Specialization
+        Object pop(PDeque self) {
+            DequeStorage storage = getStorage(self);
+            if (storage.length() == 0) {
+                throw raise(IndexError, "pop from an empty deque");
+            }
+            self.modified();
+            return storage.pop();
+        }
+    }
+
+    @Builtin(name = "popleft", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class DequePopLeftNode extends DequeBaseNode {
+        @Specialization
+        Object popLeft(PDeque self) {
+            DequeStorage storage = getStorage(self);
+            if (storage.length() == 0) {
+                throw raise(IndexError, "pop from an empty deque");
+            }
+            self.modified();
+            return storage.popLeft();
+        }
+    }
+
+    @Builtin(name = "clear", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class DequeClearNode extends PythonBuiltinNode {
+        @Specialization
+        PNone clear(PDeque self) {
+            self.setStorage(DequeStorage.create());
+            self.modified();
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "copy", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class DequeCopyNode extends DequeBaseNode {
+        @Specialization
+        Object copy(VirtualFrame frame, PDeque self,
+                        @Cached("create()") IsBuiltinClassProfile isBuiltinProfile,
+                        @Cached("create()") GetClassNode getClassNode,
+                        @Cached("create()") CallNode callNode) {
+            if (isBuiltinProfile.profileObject(self, PythonBuiltinClassType.PDeque)) {
+                PDeque copy = factory().createDeque(PythonBuiltinClassType.PDeque);
+                copy.setStorage(getStorage(self).copy());
+                copy.setMaxLength(self.getMaxLength());
+                return copy;
+            }
+            // subclasses are copied by calling their constructor, as in CPython
+            Object[] args;
+            if (self.getMaxLength() < 0) {
+                args = new Object[]{self};
+            } else {
+                args = new Object[]{self, self.getMaxLength()};
+            }
+            return callNode.execute(frame, getClassNode.execute(self), args, PKeyword.EMPTY_KEYWORDS);
+        }
+    }
+
+    @Builtin(name = "count", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class DequeCountNode extends DequeBaseNode {
+        @Specialization
+        int count(PDeque self, Object value) {
+            int state = self.getState();
+            int count = 0;
+            for (int i = 0; i < self.getLength(); i++) {
+                if (isEqual(getStorage(self).getItem(i), value)) {
+                    count++;
+                }
+                checkState(self, state);
+            }
+            return count;
+        }
+    }
+
+    @Builtin(name = __CONTAINS__, minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class DequeContainsNode extends DequeBaseNode {
+        @Specialization
+        boolean contains(PDeque self, Object value) {
+            int state = self.getState();
+            for (int i = 0; i < self.getLength(); i++) {
+                if (isEqual(getStorage(self).getItem(i), value)) {
+                    return true;
+                }
+                checkState(self, state);
+            }
+            return false;
+        }
+    }
+
+    // deque.index(x[, start[, stop]])
+    @Builtin(name = "index", minNumOfPositionalArgs = 2, parameterNames = {"self", "x", "start", "stop"})
+    @GenerateNodeFactory
+    abstract static class DequeIndexNode extends DequeBaseNode {
+        @Specialization
+        int index(PDeque self, Object value, Object start, Object stop,
+                        @Cached("createOverflow()") CastToIndexNode castToIndexNode) {
+            int length = self.getLength();
+            int from = start instanceof PNone ? 0 : normalize(castToIndexNode.execute(start), length);
+            int to = stop instanceof PNone ? length : normalize(castToIndexNode.execute(stop), length);
+            int state = self.getState();
+            for (int i = from; i < to && i < self.getLength(); i++) {
+                if (isEqual(getStorage(self).getItem(i), value)) {
+                    return i;
+                }
+                checkState(self, state);
+            }
+            throw raise(ValueError, "%s is not in deque", value);
+        }
+
+        private static int normalize(int index, int length) {
+            if (index < 0) {
+                return Math.max(index + length, 0);
+            }
+            return Math.min(index, length);
+        }
+    }
+
+    // deque.insert(i, x)
+    @Builtin(name = "insert", minNumOfPositionalArgs = 3)
+    @GenerateNodeFactory
+    abstract static class DequeInsertNode extends DequeBaseNode {
+        @Specialization
+        PNone insert(PDeque self, Object index, Object value,
+                        @Cached("createOverflow()") CastToIndexNode castToIndexNode,
+                        @Cached("create()") AppendNode appendNode) {
+            // the index is converted first, so that a bad index raises a TypeError even if the
+            // deque is full
+            int idx = castToIndexNode.execute(index);
+            int length = self.getLength();
+            if (length == self.getMaxLength()) {
+                throw raise(IndexError, "deque already at its maximum size");
+            }
+            if (idx < 0) {
+                idx = Math.max(idx + length, 0);
+            }
+            if (idx >= length) {
+                appendNode.execute(self, value, false);
+            } else if (idx == 0) {
+                appendNode.execute(self, value, true);
+            } else {
+                DequeStorage storage = getStorage(self);
+                if (!storage.canStore(value)) {
+                    storage = storage.generalizeFor(value);
+                    self.setStorage(storage);
+                }
+                storage.insert(idx, value);
+                self.modified();
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "remove", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class DequeRemoveNode extends DequeBaseNode {
+        @Specialization
+        PNone remove(PDeque self, Object value) {
+            int length = self.getLength();
+            for (int i = 0; i < length; i++) {
+                boolean equal = isEqual(getStorage(self).getItem(i), value);
+                if (length != self.getLength()) {
+                    throw raise(IndexError, "deque mutated during remove().");
+                }
+                if (equal) {
+                    getStorage(self).delItem(i);
+                    self.modified();
+                    return PNone.NONE;
+                }
+            }
+            throw raise(ValueError, "deque.remove(x): x not in deque");
+        }
+    }
+
+    @Builtin(name = "reverse", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class DequeReverseNode extends DequeBaseNode {
+        @Specialization
+        PNone reverse(PDeque self) {
+            getStorage(self).reverse();
+            self.modified();
+            return PNone.NONE;
+        }
+    }
+
+    // deque.rotate(n=1)
+    @Builtin(name = "rotate", minNumOfPositionalArgs = 1, parameterNames = {"self", "n"})
+    @GenerateNodeFactory
+    abstract static class DequeRotateNode extends DequeBaseNode {
+        @Specialization
+        PNone rotate(PDeque self, Object n,
+                        @Cached("createOverflow()") CastToIndexNode castToIndexNode) {
+            int steps = n instanceof PNone ? 1 : castToIndexNode.execute(n);
+            int length = self.getLength();
+            if (length <= 1) {
+                return PNone.NONE;
+            }
+            int halfLength = length >> 1;
+            if (steps > halfLength || steps < -halfLength) {
+                steps = Math.floorMod(steps, length);
+                if (steps > halfLength) {
+                    steps -= length;
+                }
+            }
+            if (steps != 0) {
+                getStorage(self).rotate(steps);
+                self.modified();
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = __LEN__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class DequeLenNode extends PythonBuiltinNode {
+        @Specialization
+        int len(PDeque self) {
+            return self.getLength();
+        }
+    }
+
+    @Builtin(name = __GETITEM__, minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class DequeGetItemNode extends DequeBaseNode {
+        protected static final String OUT_OF_BOUNDS = NormalizeIndexNode.DEQUE_OUT_OF_BOUNDS;
+
+        @Specialization
+        Object getItem(PDeque self, Object index,
+                        @Cached("create(OUT_OF_BOUNDS)") NormalizeIndexNode normalizeIndexNode) {
+            return getStorage(self).getItem(normalizeIndexNode.execute(index, self.getLength()));
+        }
+    }
+
+    @Builtin(name = __SETITEM__, minNumOfPositionalArgs = 3)
+    @GenerateNodeFactory
+    abstract static class DequeSetItemNode extends DequeBaseNode {
+        protected static final String OUT_OF_BOUNDS = NormalizeIndexNode.DEQUE_OUT_OF_BOUNDS;
+
+        @Specialization
+        PNone setItem(PDeque self, Object index, Object value,
+                        @Cached("create(OUT_OF_BOUNDS)") NormalizeIndexNode normalizeIndexNode) {
+            int idx = normalizeIndexNode.execute(index, self.getLength());
+            DequeStorage storage = getStorage(self);
+            if (!storage.canStore(value)) {
+                storage = storage.generalizeFor(value);
+                self.setStorage(storage);
+            }
+            storage.setItem(idx, value);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = __DELITEM__, minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class DequeDelItemNode extends DequeBaseNode {
+        protected static final String OUT_OF_BOUNDS = NormalizeIndexNode.DEQUE_OUT_OF_BOUNDS;
+
+        @Specialization
+        PNone delItem(PDeque self, Object index,
+                        @Cached("create(OUT_OF_BOUNDS)") NormalizeIndexNode normalizeIndexNode) {
+            getStorage(self).delItem(normalizeIndexNode.execute(index, self.getLength()));
+            self.modified();
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = __ITER__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class DequeIterNode extends PythonBuiltinNode {
+        @Specialization
+        PDequeIterator iter(PDeque self) {
+            return factory().createDequeIterator(PythonBuiltinClassType.PDequeIter, self, false);
+        }
+    }
+
+    @Builtin(name = __REVERSED__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class DequeReversedNode extends PythonBuiltinNode {
+        @Specialization
+        PDequeIterator reversed(PDeque self) {
+            return factory().createDequeIterator(PythonBuiltinClassType.PDequeRevIter, self, true);
+        }
+    }
+
+    @Builtin(name = "maxlen", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class DequeMaxLenNode extends PythonBuiltinNode {
+        @Specialization
+        Object maxlen(PDeque self) {
+            int maxLength = self.getMaxLength();
+            return maxLength < 0 ? PNone.NONE : maxLength;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.deque;
+
+import com.oracle.graal.python.builtins.objects.deque.DequeNodesFactory.AppendNodeGen;
+import com.oracle.graal.python.builtins.objects.deque.DequeNodesFactory.GetStorageNodeGen;
+import com.oracle.graal.python.nodes.PNodeWithContext;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Specialization;
+
+public abstract class DequeNodes {
+
+    /**
+     * Returns the storage of a deque with its exact class profiled, so that the storage's methods
+     * can be inlined.
+     */
+    public abstract static class GetStorageNode extends PNodeWithContext {
+        protected static final int MAX_STORAGES = 4;
+
+        public abstract DequeStorage execute(PDeque deque);
+
+        @Specialization(limit = "MAX_STORAGES", guards = "deque.getStorage().getClass() == cachedClass")
+        static DequeStorage doCached(PDeque deque,
+                        @Cached("deque.getStorage().getClass()") Class<? extends DequeStorage> cachedClass) {
+            return cachedClass.cast(deque.getStorage());
+        }
+
+        @Specialization(replaces = "doCached")
+        static DequeStorage doGeneric(PDeque deque) {
+            return deque.getStorage();
+        }
+
+        public static GetStorageNode create() {
+            return GetStorageNodeGen.create();
+        }
+    }
+
+    /**
+     * Adds an item at one end of a deque. If the deque is bounded and full, an item is dropped
+     * from the other end first.
+     */
+    public abstract static class AppendNode extends PNodeWithContext {
+
+        public abstract void execute(PDeque deque, Object value, boolean left);
+
+        @Specialization
+        static void doIt(PDeque deque, Object value, boolean left,
+                        @Cached("create()") GetStorageNode getStorageNode) {
+            int maxLength = deque.getMaxLength();
+            if (maxLength == 0) {
+                return;
+            }
+            DequeStorage storage = getStorageNode.execute(deque);
+            if (!storage.canStore(value)) {
+                storage = generalize(deque, value);
+            }
+            if (storage.length() == maxLength) {
+                if (left) {
+                    storage.pop();
+                } else {
+                    storage.popLeft();
+                }
+            }
+            if (left) {
+                storage.appendLeft(value);
+            } else {
+                storage.append(value);
+            }
+            deque.modified();
+        }
+
+        @TruffleBoundary
+        private static DequeStorage generalize(PDeque deque, Object value) {
+            DequeStorage storage = deque.getStorage().generalizeFor(value);
+            deque.setStorage(storage);
+            return storage;
+        }
+
+        public static AppendNode create() {
+            return AppendNodeGen.create();
+        }
+    }
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.deque;
+
+/**
+ * The items of a deque in a growable circular array. The capacity is always a power of two, so
+ * physical indices wrap around with a mask. Like the list's sequence storages there are
+ * specializations for int, long and double items which are replaced by a more general storage
+ * when an item does not fit.
+ */
+public abstract class DequeStorage {
+    static final int INITIAL_CAPACITY = 8;
+
+    protected int head;
+    protected int length;
+
+    public final int length() {
+        return length;
+    }
+
+    protected abstract int capacity();
+
+    protected abstract Object getPhysical(int idx);
+
+    /**
+     * Stores a value at a physical index. The caller must have checked {@link #canStore}.
+     */
+    protected abstract void setPhysical(int idx, Object value);
+
+    protected abstract void clearPhysical(int idx);
+
+    /**
+     * Replaces the backing array with one of the given capacity, moving the head to index zero.
+     */
+    protected abstract void resize(int newCapacity);
+
+    protected abstract DequeStorage createEmpty(int capacity);
+
+    public abstract boolean canStore(Object value);
+
+    protected final int physical(int idx) {
+        return (head + idx) & (capacity() - 1);
+    }
+
+    public final Object getItem(int idx) {
+        assert idx >= 0 && idx < length;
+        return getPhysical(physical(idx));
+    }
+
+    public final void setItem(int idx, Object value) {
+        assert idx >= 0 && idx < length;
+        setPhysical(physical(idx), value);
+    }
+
+    public final void append(Object value) {
+        ensureCapacity();
+        setPhysical(physical(length), value);
+        length++;
+    }
+
+    public final void appendLeft(Object value) {
+        ensureCapacity();
+        head = (head - 1) & (capacity() - 1);
+        setPhysical(head, value);
+        length++;
+    }
+
+    public final Object pop() {
+        assert length > 0;
+        int idx = physical(length - 1);
+        Object value = getPhysical(idx);
+        clearPhysical(idx);
+        length--;
+        return value;
+    }
+
+    public final Object popLeft() {
+        assert length > 0;
+        Object value = getPhysical(head);
+        clearPhysical(head);
+        head = (head + 1) & (capacity() - 1);
+        length--;
+        return value;
+    }
+
+    public final void clear() {
+        for (int i = 0; i < length; i++) {
+            clearPhysical(physical(i));
+        }
+        head = 0;
+        length = 0;
+    }
+
+    public final void reverse() {
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            int left = physical(i);
+            int right = physical(j);
+            Object tmp = getPhysical(left);
+            setPhysical(left, getPhysical(right));
+            setPhysical(right, tmp);
+        }
+    }
+
+    /**
+     * Rotates the items {@code n} steps to the right, where {@code |n| < length}.
+     */
+    public final void rotate(int n) {
+        if (length == capacity()) {
+            // the array is full, so only the head moves
+            head = (head - n) & (capacity() - 1);
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            appendLeft(pop());
+        }
+        for (int i = 0; i > n; i--) {
+            append(popLeft());
+        }
+    }
+
+    /**
+     * Inserts a value before the given index, moving the shorter side of the deque.
+     */
+    public final void insert(int idx, Object value) {
+        assert idx >= 0 && idx <= length;
+        if (idx < length / 2) {
+            appendLeft(value);
+            for (int i = 0; i < idx; i++) {
+                setItem(i, getItem(i + 1));
+            }
+        } else {
+            append(value);
+            for (int i = length - 1; i > idx; i--) {
+                setItem(i, getItem(i - 1));
+            }
+        }
+        setItem(idx, value);
+    }
+
+    /**
+     * Removes the item at the given index, moving the shorter side of the deque.
+     */
+    public final void delItem(int idx) {
+        assert idx >= 0 && idx < length;
+        if (idx < length / 2) {
+            for (int i = idx; i > 0; i--) {
+                setItem(i, getItem(i - 1));
+            }
+            popLeft();
+        } else {
+            for (int i = idx; i < length - 1; i++) {
+                setItem(i, getItem(i + 1));
+            }
+            pop();
+        }
+    }
+
+    public final Object[] toArray() {
+        Object[] result = new Object[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = getItem(i);
+        }
+        return result;
+    }
+
+    public final DequeStorage copy() {
+        DequeStorage result = createEmpty(capacity());
+        for (int i = 0; i < length; i++) {
+            result.setPhysical(i, getItem(i));
+        }
+        result.length = length;
+        return result;
+    }
+
+    /**
+     * Returns a storage with the same items which can also store the given value.
+     */
+    public final DequeStorage generalizeFor(Object value) {
+        DequeStorage result;
+        if (length == 0) {
+            result = createFor(value, capacity());
+        } else if (this instanceof IntStorage && value instanceof Long) {
+            result = new LongStorage(capacity());
+        } else {
+            result = new ObjectStorage(capacity());
+        }
+        for (int i = 0; i < length; i++) {
+            result.setPhysical(i, getItem(i));
+        }
+        result.length = length;
+        return result;
+    }
+
+    public static DequeStorage create() {
+        return new ObjectStorage(INITIAL_CAPACITY);
+    }
+
+    private static DequeStorage createFor(Object value, int capacity) {
+        if (value instanceof Integer) {
+            return new IntStorage(capacity);
+        } else if (value instanceof Long) {
+            return new LongStorage(capacity);
+        } else if (value instanceof Double) {
+            return new DoubleStorage(capacity);
+        } else {
+            return new ObjectStorage(capacity);
+        }
+    }
+
+    private void ensureCapacity() {
+        if (length == capacity()) {
+            resize(capacity() * 2);
+        }
+    }
+
+    public static final class IntStorage extends DequeStorage {
+        private int[] values;
+
+        IntStorage(int capacity) {
+            values = new int[capacity];
+        }
+
+        @Override
+        protected int capacity() {
+            return values.length;
+        }
+
+        @Override
+        protected Object getPhysical(int idx) {
+            return values[idx];
+        }
+
+        @Override
+        protected void setPhysical(int idx, Object value) {
+            values[idx] = (int) value;
+        }
+
+        @Override
+        protected void clearPhysical(int idx) {
+        }
+
+        @Override
+        protected void resize(int newCapacity) {
+            int[] newValues = new int[newCapacity];
+            for (int i = 0; i < length; i++) {
+                newValues[i] = values[physical(i)];
+            }
+            values = newValues;
+            head = 0;
+        }
+
+        @Override
+        protected DequeStorage createEmpty(int capacity) {
+            return new IntStorage(capacity);
+        }
+
+        @Override
+        public boolean canStore(Object value) {
+            return value instanceof Integer;
+        }
+    }
+
+    public static final class LongStorage extends DequeStorage {
+        private long[] values;
+
+        LongStorage(int capacity) {
+            values = new long[capacity];
+        }
+
+        @Override
+        protected int capacity() {
+            return values.length;
+        }
+
+        @Override
+        protected Object getPhysical(int idx) {
+            return values[idx];
+        }
+
+        @Override
+        protected void setPhysical(int idx, Object value) {
+            values[idx] = value instanceof Integer ? (int) value : (long) value;
+        }
+
+        @Override
+        protected void clearPhysical(int idx) {
+        }
+
+        @Override
+        protected void resize(int newCapacity) {
+            long[] newValues = new long[newCapacity];
+            for (int i = 0; i < length; i++) {
+                newValues[i] = values[physical(i)];
+            }
+            values = newValues;
+            head = 0;
+        }
+
+        @Override
+        protected DequeStorage createEmpty(int capacity) {
+            return new LongStorage(capacity);
+        }
+
+        @Override
+        public boolean canStore(Object value) {
+            return value instanceof Long || value instanceof Integer;
+        }
+    }
+
+    public static final class DoubleStorage extends DequeStorage {
+        private double[] values;
+
+        DoubleStorage(int capacity) {
+            values = new double[capacity];
+        }
+
+        @Override
+        protected int capacity() {
+            return values.length;
+        }
+
+        @Override
+        protected Object getPhysical(int idx) {
+            return values[idx];
+        }
+
+        @Override
+        protected void setPhysical(int idx, Object value) {
+            values[idx] = (double) value;
+        }
+
+        @Override
+        protected void clearPhysical(int idx) {
+        }
+
+        @Override
+        protected void resize(int newCapacity) {
+            double[] newValues = new double[newCapacity];
+            for (int i = 0; i < length; i++) {
+                newValues[i] = values[physical(i)];
+            }
+            values = newValues;
+            head = 0;
+        }
+
+        @Override
+        protected DequeStorage createEmpty(int capacity) {
+            return new DoubleStorage(capacity);
+        }
+
+        @Override
+        public boolean canStore(Object value) {
+            return value instanceof Double;
+        }
+    }
+
+    public static final class ObjectStorage extends DequeStorage {
+        private Object[] values;
+
+        ObjectStorage(int capacity) {
+            values = new Object[capacity];
+        }
+
+        @Override
+        protected int capacity() {
+            return values.length;
+        }
+
+        @Override
+        protected Object getPhysical(int idx) {
+            return values[idx];
+        }
+
+        @Override
+        protected void setPhysical(int idx, Object value) {
+            values[idx] = value;
+        }
+
+        @Override
+        protected void clearPhysical(int idx) {
+            // do not keep popped items alive
+            values[idx] = null;
+        }
+
+        @Override
+        protected void resize(int newCapacity) {
+            Object[] newValues = new Object[newCapacity];
+            for (int i = 0; i < length; i++) {
+                newValues[i] = values[physical(i)];
+            }
+            values = newValues;
+            head = 0;
+        }
+
+        @Override
+        protected DequeStorage createEmpty(int capacity) {
+            return new ObjectStorage(capacity);
+        }
+
+        @Override
+        public boolean canStore(Object value) {
+            return true;
+        }
+    }
+}
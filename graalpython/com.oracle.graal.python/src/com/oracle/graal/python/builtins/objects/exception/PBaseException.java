@@ -58,6 +58,7 @@ import com.oracle.graal.python.runtime.formatting.ErrorMessageFormatter;
 import com.oracle.graal.python.runtime.object.PythonObjectFactory;
 import com.oracle.graal.python.runtime.sequence.storage.BasicSequenceStorage;
 import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.truffle.api.Assumption;
 import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.TruffleStackTrace;
@@ -80,6 +81,10 @@ public final class PBaseException extends PythonObject {
     private List<TruffleStackTraceElement> stackTrace;
     private PTraceback[] traceback;
 
+    // set while the exception is bound by a handler that skipped reification, see ExceptNode
+    private Assumption lazyReification;
+    private boolean lazyReificationHandlerLeft;
+
     public PBaseException(LazyPythonClass cls, PTuple args) {
         super(cls);
         this.args = args;
@@ -190,6 +195,14 @@ public final class PBaseException extends PythonObject {
      */
     @TruffleBoundary
     public void reifyException() {
+        if (lazyReification != null) {
+            if (lazyReificationHandlerLeft) {
+                // the exception escaped the handler that bound it; the stack it was caught on is
+                // gone, so make that handler reify right away from now on
+                lazyReification.invalidate();
+            }
+            lazyReification = null;
+        }
         if (stackTrace == null && traceback == null) {
             TruffleStackTrace.fillIn(exception);
             stackTrace = TruffleStackTrace.getStackTrace(exception);
@@ -209,6 +222,24 @@ public final class PBaseException extends PythonObject {
         }
     }
 
+    /**
+     * Marks the exception as bound by a handler that did not reify it. Reification is only exact
+     * while that handler runs; if it happens after the handler was left, the given assumption is
+     * invalidated.
+     */
+    public void setLazyReification(Assumption handlerAssumption) {
+        if (stackTrace == null && traceback == null) {
+            lazyReification = handlerAssumption;
+            lazyReificationHandlerLeft = false;
+        }
+    }
+
+    public void leaveLazyReificationHandler() {
+        if (lazyReification != null) {
+            lazyReificationHandlerLeft = true;
+        }
+    }
+
     @TruffleBoundary
     public PFrame getPFrame(PythonObjectFactory factory, int index) {
         assert index >= 0 && index < stackTrace.size() : "PBaseException.getPFrame index out of bounds";
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.hashlib;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * The hash algorithms of the {@code _hashlib} module with their Python and
+ * {@link MessageDigest} names. The SHA-3 digests are only available on Java 9 and later.
+ */
+public enum HashAlgorithm {
+    MD5("md5", "MD5", 64),
+    SHA1("sha1", "SHA-1", 64),
+    SHA224("sha224", "SHA-224", 64),
+    SHA256("sha256", "SHA-256", 64),
+    SHA384("sha384", "SHA-384", 128),
+    SHA512("sha512", "SHA-512", 128),
+    SHA3_224("sha3_224", "SHA3-224", 144),
+    SHA3_256("sha3_256", "SHA3-256", 136),
+    SHA3_384("sha3_384", "SHA3-384", 104),
+    SHA3_512("sha3_512", "SHA3-512", 72);
+
+    private static final HashAlgorithm[] VALUES = values();
+
+    private final String pythonName;
+    private final String javaName;
+    private final int blockSize;
+
+    HashAlgorithm(String pythonName, String javaName, int blockSize) {
+        this.pythonName = pythonName;
+        this.javaName = javaName;
+        this.blockSize = blockSize;
+    }
+
+    public String getPythonName() {
+        return pythonName;
+    }
+
+    public String getJavaName() {
+        return javaName;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Returns the name of the HMAC algorithm of {@link javax.crypto.Mac} using this digest.
+     */
+    public String getMacName() {
+        return "Hmac" + (javaName.startsWith("SHA3") ? javaName : javaName.replace("-", ""));
+    }
+
+    /**
+     * Returns a new digest, or {@code null} if the algorithm is not provided by this JVM.
+     */
+    @TruffleBoundary
+    public MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(javaName);
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Looks up an algorithm by its Python name (case-insensitive) or {@link MessageDigest} name.
+     */
+    @TruffleBoundary
+    public static HashAlgorithm lookup(String name) {
+        String lowerCase = name.toLowerCase(Locale.ROOT);
+        for (HashAlgorithm algorithm : VALUES) {
+            if (algorithm.pythonName.equals(lowerCase) || algorithm.javaName.equalsIgnoreCase(name)) {
+                return algorithm;
+            }
+        }
+        return null;
+    }
+}
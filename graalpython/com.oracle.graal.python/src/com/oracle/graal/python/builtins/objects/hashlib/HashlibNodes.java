@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.hashlib;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+
+import com.oracle.graal.python.PythonLanguage;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.objects.bytes.PIBytesLike;
+import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes;
+import com.oracle.graal.python.builtins.objects.memoryview.MemoryViewNodes;
+import com.oracle.graal.python.builtins.objects.memoryview.PMemoryView;
+import com.oracle.graal.python.nodes.PNodeWithContext;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.runtime.GlobalInterpreterLock;
+import com.oracle.graal.python.runtime.PythonContext;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.CachedContext;
+import com.oracle.truffle.api.dsl.Fallback;
+import com.oracle.truffle.api.dsl.Specialization;
+
+public abstract class HashlibNodes {
+
+    /**
+     * Updates a hash with the data of a bytes-like object. The bytes of {@code bytes},
+     * {@code bytearray} and contiguous memoryviews of them are read in place. Like CPython, the GIL
+     * is released while hashing at least {@link #GIL_MINSIZE} bytes.
+     */
+    public abstract static class UpdateNode extends PNodeWithContext {
+        public static final int GIL_MINSIZE = 2048;
+
+        @Child private PRaiseNode raiseNode;
+
+        public abstract void execute(PHashlibHash self, Object data);
+
+        @Specialization(guards = "isByteStorage(data)")
+        void doBytes(PHashlibHash self, PIBytesLike data,
+                        @CachedContext(PythonLanguage.class) PythonContext context) {
+            ByteSequenceStorage storage = (ByteSequenceStorage) data.getSequenceStorage();
+            update(context, self, storage.getInternalByteArray(), 0, storage.length());
+        }
+
+        @Specialization(guards = "!isByteStorage(data)")
+        void doBytesGeneric(PHashlibHash self, PIBytesLike data,
+                        @CachedContext(PythonLanguage.class) PythonContext context,
+                        @Cached("create()") SequenceStorageNodes.ToByteArrayNode toByteArrayNode) {
+            byte[] bytes = toByteArrayNode.execute(data.getSequenceStorage());
+            update(context, self, bytes, 0, bytes.length);
+        }
+
+        @Specialization(guards = "isInPlace(data)")
+        void doMemoryView(PHashlibHash self, PMemoryView data,
+                        @CachedContext(PythonLanguage.class) PythonContext context) {
+            ByteSequenceStorage storage = (ByteSequenceStorage) ((PIBytesLike) data.getOwner()).getSequenceStorage();
+            update(context, self, storage.getInternalByteArray(), data.getOffset(), data.getNBytes());
+        }
+
+        @Specialization(guards = "!isInPlace(data)")
+        void doMemoryViewGeneric(PHashlibHash self, PMemoryView data,
+                        @CachedContext(PythonLanguage.class) PythonContext context,
+                        @Cached("create()") MemoryViewNodes.ToJavaBytesNode toJavaBytesNode) {
+            byte[] bytes = toJavaBytesNode.execute(data);
+            update(context, self, bytes, 0, bytes.length);
+        }
+
+        @Specialization
+        void doString(@SuppressWarnings("unused") PHashlibHash self, @SuppressWarnings("unused") String data) {
+            throw raise(TypeError, "Unicode-objects must be encoded before hashing");
+        }
+
+        @Fallback
+        void doError(@SuppressWarnings("unused") Object self, Object data) {
+            throw raise(TypeError, "object supporting the buffer API required, got '%p'", data);
+        }
+
+        private static void update(PythonContext context, PHashlibHash self, byte[] data, int offset, int len) {
+            if (len >= GIL_MINSIZE) {
+                GlobalInterpreterLock gil = context.getGil();
+                boolean released = gil.release();
+                try {
+                    self.update(data, offset, len);
+                } finally {
+                    gil.acquire(released);
+                }
+            } else {
+                self.update(data, offset, len);
+            }
+        }
+
+        private PRaiseNode getRaiseNode() {
+            if (raiseNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                raiseNode = insert(PRaiseNode.create());
+            }
+            return raiseNode;
+        }
+
+        private PException raise(PythonBuiltinClassType type, String format, Object... arguments) {
+            return getRaiseNode().raise(type, format, arguments);
+        }
+
+        protected static boolean isByteStorage(PIBytesLike data) {
+            return data.getSequenceStorage() instanceof ByteSequenceStorage;
+        }
+
+        protected static boolean isInPlace(PMemoryView view) {
+            return !view.isReleased() && view.isCContiguous() && view.getOwner() instanceof PIBytesLike && isByteStorage((PIBytesLike) view.getOwner());
+        }
+
+        public static UpdateNode create() {
+            return HashlibNodesFactory.UpdateNodeGen.create();
+        }
+    }
+}
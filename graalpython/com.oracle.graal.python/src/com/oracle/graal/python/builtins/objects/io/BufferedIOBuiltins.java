@@ -0,0 +1,769 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.io;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__ENTER__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__EXIT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__INIT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__ITER__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__LEN__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__NEXT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__SETITEM__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.StopIteration;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.nio.channels.Channel;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.bytes.PByteArray;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodes.BufferedWriteNode;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodes.CheckInitializedNode;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodes.EnterBufferedNode;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodes.FlushWriteBufferNode;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodes.RawReadNode;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodes.RawSeekNode;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodes.ReadLineNode;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodes.ReadNode;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodes.ResetBuffersNode;
+import com.oracle.graal.python.builtins.objects.io.IONodes.GetByteStorageNode;
+import com.oracle.graal.python.builtins.objects.io.IONodes.RaiseUnsupportedOperationNode;
+import com.oracle.graal.python.builtins.objects.io.IONodes.ToSizeNode;
+import com.oracle.graal.python.builtins.objects.tuple.PTuple;
+import com.oracle.graal.python.nodes.attributes.GetAttributeNode.GetFixedAttributeNode;
+import com.oracle.graal.python.nodes.attributes.ReadAttributeFromObjectNode;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallBinaryNode;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallTernaryNode;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode;
+import com.oracle.graal.python.nodes.control.GetIteratorExpressionNode.GetIteratorNode;
+import com.oracle.graal.python.nodes.control.GetNextNode;
+import com.oracle.graal.python.nodes.expression.CastToBooleanNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.object.GetLazyClassNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.nodes.util.CastToIndexNode;
+import com.oracle.graal.python.nodes.util.CastToJavaLongNode;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+
+@CoreFunctions(extendClasses = {PythonBuiltinClassType.PBufferedReader, PythonBuiltinClassType.PBufferedWriter, PythonBuiltinClassType.PBufferedRandom})
+public class BufferedIOBuiltins extends PythonBuiltins {
+
+    /**
+     * The name of the tuple in the {@code _io} module listing the raw file classes that are plain
+     * wrappers around a file descriptor. Buffered objects over exact instances of these classes
+     * bypass the raw object and access the file descriptor's channel directly.
+     */
+    public static final String FD_RAW_TYPES = "_fd_raw_types";
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return BufferedIOBuiltinsFactory.getFactories();
+    }
+
+    abstract static class BufferedBaseNode extends PythonBuiltinNode {
+        @Child private CheckInitializedNode checkInitializedNode;
+        @Child private RaiseUnsupportedOperationNode raiseUnsupportedNode;
+        @Child private EnterBufferedNode enterBufferedNode;
+
+        protected final void checkInitialized(PBufferedIO self) {
+            if (checkInitializedNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                checkInitializedNode = insert(CheckInitializedNode.create());
+            }
+            checkInitializedNode.execute(self);
+        }
+
+        protected final void checkOpen(PBufferedIO self) {
+            checkInitialized(self);
+            if (self.isClosed()) {
+                throw raise(ValueError, "I/O operation on closed file.");
+            }
+        }
+
+        protected final void checkReadable(VirtualFrame frame, PBufferedIO self) {
+            checkOpen(self);
+            if (!self.isReader()) {
+                throw raiseUnsupported(frame, "read");
+            }
+        }
+
+        protected final void checkWritable(VirtualFrame frame, PBufferedIO self) {
+            checkOpen(self);
+            if (!self.isWriter()) {
+                throw raiseUnsupported(frame, "write");
+            }
+        }
+
+        protected final PException raiseUnsupported(VirtualFrame frame, String message) {
+            if (raiseUnsupportedNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                raiseUnsupportedNode = insert(RaiseUnsupportedOperationNode.create());
+            }
+            return raiseUnsupportedNode.execute(frame, message);
+        }
+
+        protected final boolean enterBuffered(PBufferedIO self) {
+            if (enterBufferedNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                enterBufferedNode = insert(EnterBufferedNode.create());
+            }
+            return enterBufferedNode.execute(self);
+        }
+
+        protected static void leaveBuffered(PBufferedIO self, boolean locked) {
+            if (locked) {
+                self.unlock();
+            }
+        }
+    }
+
+    @Builtin(name = __INIT__, minNumOfPositionalArgs = 2, parameterNames = {"self", "raw", "buffer_size"})
+    @GenerateNodeFactory
+    abstract static class InitNode extends BufferedBaseNode {
+        protected static final String FILENO = "fileno";
+        protected static final String READABLE = "readable";
+        protected static final String WRITABLE = "writable";
+
+        @Specialization
+        PNone init(VirtualFrame frame, PBufferedIO self, Object raw, Object bufferSize,
+                        @Cached("create(READABLE)") LookupAndCallUnaryNode callReadableNode,
+                        @Cached("create(WRITABLE)") LookupAndCallUnaryNode callWritableNode,
+                        @Cached("create(FILENO)") LookupAndCallUnaryNode callFilenoNode,
+                        @Cached("createIfTrueNode()") CastToBooleanNode castToBooleanNode,
+                        @Cached("create()") ReadAttributeFromObjectNode readTypesNode,
+                        @Cached("create()") GetLazyClassNode getClassNode,
+                        @Cached("create()") CastToIndexNode castToIndexNode) {
+            int size = PBufferedIO.DEFAULT_BUFFER_SIZE;
+            if (!(bufferSize instanceof PNone)) {
+                size = castToIndexNode.execute(bufferSize);
+                if (size <= 0) {
+                    throw raise(ValueError, "buffer size must be strictly positive");
+                }
+            }
+            if (self.isReader() && !castToBooleanNode.executeWith(callReadableNode.executeObject(raw))) {
+                throw raiseUnsupported(frame, "File or stream is not readable.");
+            }
+            if (self.isWriter() && !castToBooleanNode.executeWith(callWritableNode.executeObject(raw))) {
+                throw raiseUnsupported(frame, "File or stream is not writable.");
+            }
+            Channel channel = null;
+            Object fdRawTypes = readTypesNode.execute(getCore().lookupBuiltinModule(IONodes.IO_MODULE), FD_RAW_TYPES);
+            if (fdRawTypes instanceof PTuple && isOneOf(getClassNode.execute(raw), ((PTuple) fdRawTypes).getArray())) {
+                int fd = castToIndexNode.execute(callFilenoNode.executeObject(raw));
+                channel = getContext().getResources().getFileChannel(fd);
+            }
+            self.init(raw, channel, size);
+            return PNone.NONE;
+        }
+
+        private static boolean isOneOf(Object cls, Object[] types) {
+            for (Object type : types) {
+                if (type == cls) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    @Builtin(name = "read", minNumOfPositionalArgs = 1, parameterNames = {"self", "size"})
+    @GenerateNodeFactory
+    abstract static class ReadBuiltinNode extends BufferedBaseNode {
+        @Specialization
+        Object read(VirtualFrame frame, PBufferedIO self, Object size,
+                        @Cached("create()") ReadNode readNode,
+                        @Cached("create()") ToSizeNode toSizeNode) {
+            checkReadable(frame, self);
+            int n = toSizeNode.execute(size);
+            if (n < -1) {
+                throw raise(ValueError, "read length must be non-negative or -1");
+            }
+            byte[] result;
+            boolean locked = enterBuffered(self);
+            try {
+                result = readNode.execute(self, n);
+            } finally {
+                leaveBuffered(self, locked);
+            }
+            if (result == null) {
+                return PNone.NONE;
+            }
+            return factory().createBytes(result);
+        }
+    }
+
+    @Builtin(name = "read1", minNumOfPositionalArgs = 1, parameterNames = {"self", "size"})
+    @GenerateNodeFactory
+    abstract static class Read1Node extends BufferedBaseNode {
+        @Specialization
+        Object read1(VirtualFrame frame, PBufferedIO self, Object size,
+                        @Cached("create()") FlushWriteBufferNode flushNode,
+                        @Cached("create()") RawReadNode rawReadNode,
+                        @Cached("createBinaryProfile()") ConditionProfile emptyProfile,
+                        @Cached("create()") ToSizeNode toSizeNode) {
+            checkReadable(frame, self);
+            int n = toSizeNode.execute(size);
+            if (n == 0) {
+                return factory().createBytes(new byte[0]);
+            }
+            byte[] result;
+            boolean locked = enterBuffered(self);
+            try {
+                flushNode.execute(self);
+                if (emptyProfile.profile(self.getAvailable() == 0)) {
+                    if (rawReadNode.execute(self, Math.max(n, self.getBufferSize())) < 0) {
+                        return PNone.NONE;
+                    }
+                }
+                int available = self.getAvailable();
+                result = self.takeBytes(n < 0 ? available : Math.min(n, available));
+            } finally {
+                leaveBuffered(self, locked);
+            }
+            return factory().createBytes(result);
+        }
+    }
+
+    @Builtin(name = "readinto", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class ReadIntoNode extends BufferedBaseNode {
+        @Specialization
+        Object readinto(VirtualFrame frame, PBufferedIO self, Object buffer,
+                        @Cached("create()") ReadNode readNode,
+                        @Cached("create(__LEN__)") LookupAndCallUnaryNode callLenNode,
+                        @Cached("create(__SETITEM__)") LookupAndCallTernaryNode callSetItemNode,
+                        @Cached("create()") CastToIndexNode castToIndexNode) {
+            checkReadable(frame, self);
+            int len = castToIndexNode.execute(callLenNode.executeObject(buffer));
+            byte[] data;
+            boolean locked = enterBuffered(self);
+            try {
+                data = readNode.execute(self, len);
+            } finally {
+                leaveBuffered(self, locked);
+            }
+            if (data == null) {
+                return PNone.NONE;
+            }
+            storeInto(buffer, data, callSetItemNode);
+            return data.length;
+        }
+
+        private void storeInto(Object buffer, byte[] data, LookupAndCallTernaryNode callSetItemNode) {
+            if (buffer instanceof PByteArray) {
+                SequenceStorage storage = ((PByteArray) buffer).getSequenceStorage();
+                if (storage instanceof ByteSequenceStorage && storage.length() >= data.length) {
+                    System.arraycopy(data, 0, ((ByteSequenceStorage) storage).getInternalByteArray(), 0, data.length);
+                    return;
+                }
+            }
+            callSetItemNode.execute(buffer, factory().createSlice(0, data.length, 1), factory().createBytes(data));
+        }
+    }
+
+    @Builtin(name = "readinto1", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class ReadInto1Node extends ReadIntoNode {
+    }
+
+    @Builtin(name = "readline", minNumOfPositionalArgs = 1, parameterNames = {"self", "size"})
+    @GenerateNodeFactory
+    abstract static class ReadlineNode extends BufferedBaseNode {
+        @Specialization
+        Object readline(VirtualFrame frame, PBufferedIO self, Object size,
+                        @Cached("create()") ReadLineNode readLineNode,
+                        @Cached("create()") ToSizeNode toSizeNode) {
+            checkReadable(frame, self);
+            int limit = toSizeNode.execute(size);
+            byte[] line;
+            boolean locked = enterBuffered(self);
+            try {
+                line = readLineNode.execute(self, limit);
+            } finally {
+                leaveBuffered(self, locked);
+            }
+            if (line == null) {
+                return PNone.NONE;
+            }
+            return factory().createBytes(line);
+        }
+    }
+
+    @Builtin(name = "readlines", minNumOfPositionalArgs = 1, parameterNames = {"self", "hint"})
+    @GenerateNodeFactory
+    abstract static class ReadlinesNode extends BufferedBaseNode {
+        @Specialization
+        Object readlines(VirtualFrame frame, PBufferedIO self, Object hint,
+                        @Cached("create()") ReadLineNode readLineNode,
+                        @Cached("create()") ToSizeNode toSizeNode) {
+            checkReadable(frame, self);
+            int limit = toSizeNode.execute(hint);
+            List<Object> lines = new ArrayList<>();
+            int total = 0;
+            boolean locked = enterBuffered(self);
+            try {
+                while (true) {
+                    byte[] line = readLineNode.execute(self, -1);
+                    if (line == null || line.length == 0) {
+                        break;
+                    }
+                    add(lines, factory().createBytes(line));
+                    total += line.length;
+                    if (limit > 0 && total >= limit) {
+                        break;
+                    }
+                }
+            } finally {
+                leaveBuffered(self, locked);
+            }
+            return factory().createList(toArray(lines));
+        }
+
+        @TruffleBoundary
+        private static void add(List<Object> lines, Object line) {
+            lines.add(line);
+        }
+
+        @TruffleBoundary
+        private static Object[] toArray(List<Object> lines) {
+            return lines.toArray();
+        }
+    }
+
+    @Builtin(name = "peek", minNumOfPositionalArgs = 1, parameterNames = {"self", "size"})
+    @GenerateNodeFactory
+    abstract static class PeekNode extends BufferedBaseNode {
+        @Specialization
+        Object peek(VirtualFrame frame, PBufferedIO self, @SuppressWarnings("unused") Object size,
+                        @Cached("create()") FlushWriteBufferNode flushNode,
+                        @Cached("create()") RawReadNode rawReadNode) {
+            checkReadable(frame, self);
+            byte[] result;
+            boolean locked = enterBuffered(self);
+            try {
+                flushNode.execute(self);
+                if (self.getAvailable() == 0) {
+                    rawReadNode.execute(self, self.getBufferSize());
+                }
+                result = self.peekBytes();
+            } finally {
+                leaveBuffered(self, locked);
+            }
+            return factory().createBytes(result);
+        }
+    }
+
+    @Builtin(name = __ITER__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class IterNode extends BufferedBaseNode {
+        @Specialization
+        Object iter(PBufferedIO self) {
+            checkOpen(self);
+            return self;
+        }
+    }
+
+    @Builtin(name = __NEXT__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class NextNode extends BufferedBaseNode {
+        @Specialization
+        Object next(VirtualFrame frame, PBufferedIO self,
+                        @Cached("create()") ReadLineNode readLineNode) {
+            checkReadable(frame, self);
+            byte[] line;
+            boolean locked = enterBuffered(self);
+            try {
+                line = readLineNode.execute(self, -1);
+            } finally {
+                leaveBuffered(self, locked);
+            }
+            if (line == null || line.length == 0) {
+                throw raise(StopIteration);
+            }
+            return factory().createBytes(line);
+        }
+    }
+
+    @Builtin(name = "write", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class WriteNode extends BufferedBaseNode {
+        @Specialization
+        int write(VirtualFrame frame, PBufferedIO self, Object data,
+                        @Cached("create()") GetByteStorageNode getStorageNode,
+                        @Cached("create()") BufferedWriteNode bufferedWriteNode) {
+            checkWritable(frame, self);
+            ByteSequenceStorage storage = getStorageNode.execute(data);
+            boolean locked = enterBuffered(self);
+            try {
+                return bufferedWriteNode.execute(self, storage.getInternalByteArray(), storage.length());
+            } finally {
+                leaveBuffered(self, locked);
+            }
+        }
+    }
+
+    @Builtin(name = "writelines", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class WriteLinesNode extends BufferedBaseNode {
+        protected static final String WRITE = "write";
+
+        @Specialization
+        Object writelines(VirtualFrame frame, PBufferedIO self, Object lines,
+                        @Cached("create()") GetIteratorNode getIteratorNode,
+                        @Cached("create()") GetNextNode getNextNode,
+                        @Cached("create()") IsBuiltinClassProfile errorProfile,
+                        @Cached("create(WRITE)") LookupAndCallBinaryNode callWriteNode) {
+            checkWritable(frame, self);
+            Object iterator = getIteratorNode.executeWith(lines);
+            while (true) {
+                Object line;
+                try {
+                    line = getNextNode.execute(iterator);
+                } catch (PException e) {
+                    e.expectStopIteration(errorProfile);
+                    break;
+                }
+                callWriteNode.executeObject(self, line);
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "flush", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class FlushNode extends BufferedBaseNode {
+        @Specialization
+        Object flush(PBufferedIO self,
+                        @Cached("create()") FlushWriteBufferNode flushNode) {
+            checkOpen(self);
+            boolean locked = enterBuffered(self);
+            try {
+                flushNode.execute(self);
+            } finally {
+                leaveBuffered(self, locked);
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "close", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class CloseNode extends BufferedBaseNode {
+        protected static final String CLOSE = "close";
+        protected static final String CLOSED = "closed";
+
+        @Specialization
+        Object close(PBufferedIO self,
+                        @Cached("create(CLOSED)") GetFixedAttributeNode getClosedNode,
+                        @Cached("createIfTrueNode()") CastToBooleanNode castToBooleanNode,
+                        @Cached("create()") FlushWriteBufferNode flushNode,
+                        @Cached("create(CLOSE)") LookupAndCallUnaryNode callCloseNode) {
+            checkInitialized(self);
+            if (self.isClosed() || castToBooleanNode.executeWith(getClosedNode.executeObject(self.getRaw()))) {
+                self.markClosed();
+                return PNone.NONE;
+            }
+            PException flushError = null;
+            boolean locked = enterBuffered(self);
+            try {
+                flushNode.execute(self);
+            } catch (PException e) {
+                flushError = e;
+            } finally {
+                leaveBuffered(self, locked);
+            }
+            self.markClosed();
+            callCloseNode.executeObject(self.getRaw());
+            if (flushError != null) {
+                throw flushError;
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "detach", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class DetachNode extends BufferedBaseNode {
+        @Specialization
+        Object detach(PBufferedIO self,
+                        @Cached("create()") FlushWriteBufferNode flushNode) {
+            checkOpen(self);
+            boolean locked = enterBuffered(self);
+            try {
+                flushNode.execute(self);
+                return self.detach();
+            } finally {
+                leaveBuffered(self, locked);
+            }
+        }
+    }
+
+    @Builtin(name = "seek", minNumOfPositionalArgs = 2, parameterNames = {"self", "pos", "whence"})
+    @GenerateNodeFactory
+    abstract static class SeekNode extends BufferedBaseNode {
+        @Specialization
+        long seek(PBufferedIO self, Object pos, Object whence,
+                        @Cached("create()") CastToJavaLongNode castToLongNode,
+                        @Cached("create()") ResetBuffersNode resetNode,
+                        @Cached("create()") RawSeekNode rawSeekNode,
+                        @Cached("create()") ToSizeNode toSizeNode) {
+            checkOpen(self);
+            long target = castToLongNode.execute(pos);
+            int how = whence instanceof PNone ? BufferedIONodes.SEEK_SET : toSizeNode.execute(whence);
+            if (how < BufferedIONodes.SEEK_SET || how > BufferedIONodes.SEEK_END) {
+                throw raise(ValueError, "whence value %d unsupported", how);
+            }
+            boolean locked = enterBuffered(self);
+            try {
+                if (how == BufferedIONodes.SEEK_CUR && self.isReader()) {
+                    target -= self.getAvailable();
+                }
+                resetNode.execute(self, false);
+                return rawSeekNode.execute(self, target, how);
+            } finally {
+                leaveBuffered(self, locked);
+            }
+        }
+    }
+
+    @Builtin(name = "tell", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class TellNode extends BufferedBaseNode {
+        @Specialization
+        long tell(PBufferedIO self,
+                        @Cached("create()") RawSeekNode rawSeekNode) {
+            checkOpen(self);
+            long pos;
+            boolean locked = enterBuffered(self);
+            try {
+                pos = rawSeekNode.execute(self, 0, BufferedIONodes.SEEK_CUR);
+                if (self.isReader()) {
+                    pos -= self.getAvailable();
+                }
+                if (self.isWriter()) {
+                    pos += self.getWriteEnd();
+                }
+            } finally {
+                leaveBuffered(self, locked);
+            }
+            return Math.max(pos, 0);
+        }
+    }
+
+    @Builtin(name = "truncate", minNumOfPositionalArgs = 1, parameterNames = {"self", "pos"})
+    @GenerateNodeFactory
+    abstract static class TruncateNode extends BufferedBaseNode {
+        protected static final String TRUNCATE = "truncate";
+
+        @Specialization
+        Object truncate(VirtualFrame frame, PBufferedIO self, Object pos,
+                        @Cached("create()") ResetBuffersNode resetNode,
+                        @Cached("create()") RawSeekNode rawSeekNode,
+                        @Cached("create(TRUNCATE)") LookupAndCallBinaryNode callTruncateNode) {
+            checkWritable(frame, self);
+            boolean locked = enterBuffered(self);
+            try {
+                resetNode.execute(self, true);
+                Object size = pos;
+                if (pos instanceof PNone) {
+                    size = rawSeekNode.execute(self, 0, BufferedIONodes.SEEK_CUR);
+                }
+                return callTruncateNode.executeObject(self.getRaw(), size);
+            } finally {
+                leaveBuffered(self, locked);
+            }
+        }
+    }
+
+    abstract static class DelegateToRawNode extends BufferedBaseNode {
+        protected Object delegate(PBufferedIO self, LookupAndCallUnaryNode callNode) {
+            checkInitialized(self);
+            return callNode.executeObject(self.getRaw());
+        }
+    }
+
+    @Builtin(name = "fileno", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class FilenoNode extends DelegateToRawNode {
+        protected static final String NAME = "fileno";
+
+        @Specialization
+        Object fileno(PBufferedIO self,
+                        @Cached("create(NAME)") LookupAndCallUnaryNode callNode) {
+            return delegate(self, callNode);
+        }
+    }
+
+    @Builtin(name = "isatty", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class IsattyNode extends DelegateToRawNode {
+        protected static final String NAME = "isatty";
+
+        @Specialization
+        Object isatty(PBufferedIO self,
+                        @Cached("create(NAME)") LookupAndCallUnaryNode callNode) {
+            return delegate(self, callNode);
+        }
+    }
+
+    @Builtin(name = "readable", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class ReadableNode extends DelegateToRawNode {
+        protected static final String NAME = "readable";
+
+        @Specialization
+        Object readable(PBufferedIO self,
+                        @Cached("create(NAME)") LookupAndCallUnaryNode callNode) {
+            return self.isReader() && (boolean) delegate(self, callNode);
+        }
+    }
+
+    @Builtin(name = "writable", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class WritableNode extends DelegateToRawNode {
+        protected static final String NAME = "writable";
+
+        @Specialization
+        Object writable(PBufferedIO self,
+                        @Cached("create(NAME)") LookupAndCallUnaryNode callNode) {
+            return self.isWriter() && (boolean) delegate(self, callNode);
+        }
+    }
+
+    @Builtin(name = "seekable", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class SeekableNode extends DelegateToRawNode {
+        protected static final String NAME = "seekable";
+
+        @Specialization
+        Object seekable(PBufferedIO self,
+                        @Cached("create(NAME)") LookupAndCallUnaryNode callNode) {
+            return delegate(self, callNode);
+        }
+    }
+
+    @Builtin(name = "raw", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class RawNode extends BufferedBaseNode {
+        @Specialization
+        Object raw(PBufferedIO self) {
+            checkInitialized(self);
+            return self.getRaw();
+        }
+    }
+
+    @Builtin(name = "closed", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class ClosedNode extends BufferedBaseNode {
+        protected static final String CLOSED = "closed";
+
+        @Specialization
+        Object closed(PBufferedIO self,
+                        @Cached("create(CLOSED)") GetFixedAttributeNode getAttrNode) {
+            checkInitialized(self);
+            return getAttrNode.executeObject(self.getRaw());
+        }
+    }
+
+    @Builtin(name = "name", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class NameNode extends BufferedBaseNode {
+        protected static final String NAME = "name";
+
+        @Specialization
+        Object name(PBufferedIO self,
+                        @Cached("create(NAME)") GetFixedAttributeNode getAttrNode) {
+            checkInitialized(self);
+            return getAttrNode.executeObject(self.getRaw());
+        }
+    }
+
+    @Builtin(name = "mode", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class ModeNode extends BufferedBaseNode {
+        protected static final String MODE = "mode";
+
+        @Specialization
+        Object mode(PBufferedIO self,
+                        @Cached("create(MODE)") GetFixedAttributeNode getAttrNode) {
+            checkInitialized(self);
+            return getAttrNode.executeObject(self.getRaw());
+        }
+    }
+
+    @Builtin(name = __ENTER__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class EnterNode extends BufferedBaseNode {
+        @Specialization
+        Object enter(PBufferedIO self) {
+            checkOpen(self);
+            return self;
+        }
+    }
+
+    @Builtin(name = __EXIT__, minNumOfPositionalArgs = 4)
+    @GenerateNodeFactory
+    abstract static class ExitNode extends BufferedBaseNode {
+        protected static final String CLOSE = "close";
+
+        @Specialization
+        Object exit(PBufferedIO self, @SuppressWarnings("unused") Object type, @SuppressWarnings("unused") Object value, @SuppressWarnings("unused") Object tb,
+                        @Cached("create(CLOSE)") LookupAndCallUnaryNode callCloseNode) {
+            return callCloseNode.executeObject(self);
+        }
+    }
+}
@@ -0,0 +1,521 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.io;
+
+import static com.oracle.graal.python.builtins.PythonBuiltinClassType.BlockingIOError;
+import static com.oracle.graal.python.builtins.PythonBuiltinClassType.OSError;
+import static com.oracle.graal.python.builtins.PythonBuiltinClassType.RuntimeError;
+import static com.oracle.graal.python.builtins.PythonBuiltinClassType.ValueError;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import com.oracle.graal.python.PythonLanguage;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.bytes.BytesNodes;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodesFactory.BufferedWriteNodeGen;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodesFactory.CheckInitializedNodeGen;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodesFactory.EnterBufferedNodeGen;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodesFactory.FlushWriteBufferNodeGen;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodesFactory.RawReadNodeGen;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodesFactory.RawSeekNodeGen;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodesFactory.RawWriteNodeGen;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodesFactory.ReadLineNodeGen;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodesFactory.ReadNodeGen;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodesFactory.ResetBuffersNodeGen;
+import com.oracle.graal.python.builtins.objects.select.PPoll;
+import com.oracle.graal.python.nodes.PNodeWithContext;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallBinaryNode;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallTernaryNode;
+import com.oracle.graal.python.nodes.util.CastToIndexNode;
+import com.oracle.graal.python.nodes.util.CastToJavaLongNode;
+import com.oracle.graal.python.runtime.GlobalInterpreterLock;
+import com.oracle.graal.python.runtime.PythonContext;
+import com.oracle.graal.python.runtime.object.PythonObjectFactory;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.CachedContext;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.profiles.BranchProfile;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+
+/**
+ * Nodes implementing the buffering logic of {@link PBufferedIO}. Access to the raw stream either
+ * goes directly to the channel of the raw file descriptor or, for arbitrary raw objects, through
+ * calls of the raw object's {@code read}, {@code write} and {@code seek} methods.
+ */
+public abstract class BufferedIONodes {
+    public static final int SEEK_SET = 0;
+    public static final int SEEK_CUR = 1;
+    public static final int SEEK_END = 2;
+
+    /*
+     * Reading and writing channels may block (e.g. on stdin, pipes or FIFOs), so other threads are
+     * allowed to run meanwhile, like for os.read and os.write.
+     */
+    @TruffleBoundary(allowInlining = true, transferToInterpreterOnException = false)
+    private static int readChannel(GlobalInterpreterLock gil, ReadableByteChannel channel, byte[] buffer, int offset, int length) throws IOException {
+        boolean released = gil.release();
+        try {
+            int n = PPoll.read(channel, ByteBuffer.wrap(buffer, offset, length));
+            return n < 0 ? 0 : n;
+        } finally {
+            gil.acquire(released);
+        }
+    }
+
+    @TruffleBoundary(allowInlining = true, transferToInterpreterOnException = false)
+    private static int writeChannel(GlobalInterpreterLock gil, WritableByteChannel channel, byte[] buffer, int offset, int length) throws IOException {
+        boolean released = gil.release();
+        try {
+            return PPoll.write(channel, ByteBuffer.wrap(buffer, offset, length));
+        } finally {
+            gil.acquire(released);
+        }
+    }
+
+    @TruffleBoundary(allowInlining = true, transferToInterpreterOnException = false)
+    private static long seekChannel(SeekableByteChannel channel, long pos, int whence) throws IOException {
+        switch (whence) {
+            case SEEK_CUR:
+                channel.position(channel.position() + pos);
+                break;
+            case SEEK_END:
+                channel.position(channel.size() + pos);
+                break;
+            default:
+                channel.position(pos);
+        }
+        return channel.position();
+    }
+
+    /**
+     * Raises a {@code ValueError} if the buffered object has not been initialized or was detached.
+     */
+    public abstract static class CheckInitializedNode extends PNodeWithContext {
+        public abstract void execute(PBufferedIO self);
+
+        @Specialization
+        static void doIt(PBufferedIO self,
+                        @Cached("createBinaryProfile()") ConditionProfile errorProfile,
+                        @Cached PRaiseNode raise) {
+            if (errorProfile.profile(!self.isInitialized())) {
+                if (self.isDetached()) {
+                    throw raise.raise(ValueError, "raw stream has been detached");
+                }
+                throw raise.raise(ValueError, "I/O operation on uninitialized object");
+            }
+        }
+
+        public static CheckInitializedNode create() {
+            return CheckInitializedNodeGen.create();
+        }
+    }
+
+    /**
+     * Locks the buffered object for the duration of an operation, like {@code ENTER_BUFFERED} in
+     * CPython. The GIL alone does not protect the buffers, since it is released during raw I/O. A
+     * thread that has to wait for the lock releases the GIL meanwhile, because the holder may need
+     * it to finish. Returns whether the lock was taken, which is only done once the GIL is active;
+     * the caller unlocks it with {@link PBufferedIO#unlock()} when the operation is done.
+     */
+    public abstract static class EnterBufferedNode extends PNodeWithContext {
+        public abstract boolean execute(PBufferedIO self);
+
+        @Specialization
+        static boolean doIt(PBufferedIO self,
+                        @Cached("createBinaryProfile()") ConditionProfile busyProfile,
+                        @CachedContext(PythonLanguage.class) PythonContext context,
+                        @Cached PRaiseNode raise) {
+            GlobalInterpreterLock gil = context.getGil();
+            if (!gil.isActive()) {
+                return false;
+            }
+            if (self.isLockedByCurrentThread()) {
+                throw raise.raise(RuntimeError, "reentrant call inside %p", self);
+            }
+            if (busyProfile.profile(!self.tryLock())) {
+                lockBlocking(gil, self);
+            }
+            return true;
+        }
+
+        @TruffleBoundary
+        private static void lockBlocking(GlobalInterpreterLock gil, PBufferedIO self) {
+            boolean released = gil.release();
+            try {
+                self.lock();
+            } finally {
+                gil.acquire(released);
+            }
+        }
+
+        public static EnterBufferedNode create() {
+            return EnterBufferedNodeGen.create();
+        }
+    }
+
+    /**
+     * Reads at most {@code n} bytes from the raw stream and appends them to the read buffer.
+     * Returns the number of bytes read, {@code 0} at end of file and {@code -1} if the raw stream
+     * is non-blocking and has no data available.
+     */
+    public abstract static class RawReadNode extends PNodeWithContext {
+        protected static final String READ = "read";
+
+        public abstract int execute(PBufferedIO self, int n);
+
+        @Specialization
+        static int doIt(PBufferedIO self, int n,
+                        @Cached("createBinaryProfile()") ConditionProfile channelProfile,
+                        @Cached("create(READ)") LookupAndCallBinaryNode callReadNode,
+                        @Cached("create()") BytesNodes.ToBytesNode toBytesNode,
+                        @CachedContext(PythonLanguage.class) PythonContext context,
+                        @Cached PRaiseNode raise) {
+            int start = self.prepareFill(n);
+            Channel channel = self.getChannel();
+            if (channelProfile.profile(channel instanceof ReadableByteChannel)) {
+                try {
+                    int read = readChannel(context.getGil(), (ReadableByteChannel) channel, self.getReadBuffer(), start, n);
+                    self.filled(read);
+                    return read;
+                } catch (IOException e) {
+                    throw raise.raise(OSError, e);
+                }
+            }
+            Object result = callReadNode.executeObject(self.getRaw(), n);
+            if (result == PNone.NONE) {
+                return -1;
+            }
+            byte[] data = toBytesNode.execute(result);
+            if (data.length > n) {
+                throw raise.raise(OSError, "raw read() returned too much data (%d bytes requested, %d returned)", n, data.length);
+            }
+            System.arraycopy(data, 0, self.getReadBuffer(), start, data.length);
+            self.filled(data.length);
+            return data.length;
+        }
+
+        public static RawReadNode create() {
+            return RawReadNodeGen.create();
+        }
+    }
+
+    /**
+     * Writes up to {@code len} bytes to the raw stream and returns the number of bytes written.
+     */
+    public abstract static class RawWriteNode extends PNodeWithContext {
+        protected static final String WRITE = "write";
+
+        public abstract int execute(PBufferedIO self, byte[] data, int offset, int len);
+
+        @Specialization
+        static int doIt(PBufferedIO self, byte[] data, int offset, int len,
+                        @Cached("createBinaryProfile()") ConditionProfile channelProfile,
+                        @Cached("create(WRITE)") LookupAndCallBinaryNode callWriteNode,
+                        @Cached("create()") CastToIndexNode castToIndexNode,
+                        @Cached PythonObjectFactory factory,
+                        @CachedContext(PythonLanguage.class) PythonContext context,
+                        @Cached PRaiseNode raise) {
+            Channel channel = self.getChannel();
+            if (channelProfile.profile(channel instanceof WritableByteChannel)) {
+                try {
+                    return writeChannel(context.getGil(), (WritableByteChannel) channel, data, offset, len);
+                } catch (IOException e) {
+                    throw raise.raise(OSError, e);
+                }
+            }
+            Object result = callWriteNode.executeObject(self.getRaw(), factory.createBytes(copyRange(data, offset, len)));
+            if (result == PNone.NONE) {
+                throw raise.raise(BlockingIOError, "write could not complete without blocking");
+            }
+            int written = castToIndexNode.execute(result);
+            if (written < 0 || written > len) {
+                throw raise.raise(OSError, "raw write() returned invalid length %d (should have been between 0 and %d)", written, len);
+            }
+            return written;
+        }
+
+        @TruffleBoundary(allowInlining = true)
+        private static byte[] copyRange(byte[] data, int offset, int len) {
+            return Arrays.copyOfRange(data, offset, offset + len);
+        }
+
+        public static RawWriteNode create() {
+            return RawWriteNodeGen.create();
+        }
+    }
+
+    /**
+     * Changes the position of the raw stream and returns the new absolute position.
+     */
+    public abstract static class RawSeekNode extends PNodeWithContext {
+        protected static final String SEEK = "seek";
+
+        public abstract long execute(PBufferedIO self, long pos, int whence);
+
+        @Specialization
+        static long doIt(PBufferedIO self, long pos, int whence,
+                        @Cached("createBinaryProfile()") ConditionProfile channelProfile,
+                        @Cached("create(SEEK)") LookupAndCallTernaryNode callSeekNode,
+                        @Cached("create()") CastToJavaLongNode castToLongNode,
+                        @Cached PRaiseNode raise) {
+            Channel channel = self.getChannel();
+            if (channelProfile.profile(channel instanceof SeekableByteChannel)) {
+                try {
+                    return seekChannel((SeekableByteChannel) channel, pos, whence);
+                } catch (IOException e) {
+                    throw raise.raise(OSError, e);
+                }
+            }
+            long result = castToLongNode.execute(callSeekNode.execute(self.getRaw(), pos, whence));
+            if (result < 0) {
+                throw raise.raise(OSError, "raw stream returned invalid position %d", result);
+            }
+            return result;
+        }
+
+        public static RawSeekNode create() {
+            return RawSeekNodeGen.create();
+        }
+    }
+
+    /**
+     * Writes all pending bytes of the write buffer to the raw stream.
+     */
+    public abstract static class FlushWriteBufferNode extends PNodeWithContext {
+        public abstract void execute(PBufferedIO self);
+
+        @Specialization
+        static void doIt(PBufferedIO self,
+                        @Cached("createBinaryProfile()") ConditionProfile pendingProfile,
+                        @Cached RawWriteNode rawWriteNode,
+                        @Cached BranchProfile blockedProfile,
+                        @Cached PRaiseNode raise) {
+            if (pendingProfile.profile(self.isWriter() && self.getWriteEnd() > 0)) {
+                while (self.getWriteEnd() > 0) {
+                    int written = rawWriteNode.execute(self, self.getWriteBuffer(), 0, self.getWriteEnd());
+                    if (written == 0) {
+                        blockedProfile.enter();
+                        throw raise.raise(BlockingIOError, "write could not complete without blocking");
+                    }
+                    self.consumeWritten(written);
+                }
+            }
+        }
+
+        public static FlushWriteBufferNode create() {
+            return FlushWriteBufferNodeGen.create();
+        }
+    }
+
+    /**
+     * Writes the first {@code len} bytes of {@code data} through the write buffer and returns the
+     * number of bytes accepted. Data that does not fit into the buffer after flushing it is written
+     * to the raw stream directly.
+     */
+    public abstract static class BufferedWriteNode extends PNodeWithContext {
+        public abstract int execute(PBufferedIO self, byte[] data, int len);
+
+        @Specialization
+        static int doIt(PBufferedIO self, byte[] data, int len,
+                        @Cached ResetBuffersNode resetNode,
+                        @Cached FlushWriteBufferNode flushNode,
+                        @Cached RawWriteNode rawWriteNode,
+                        @Cached("createBinaryProfile()") ConditionProfile fitsProfile) {
+            if (self.isReader() && self.getAvailable() > 0) {
+                resetNode.execute(self, true);
+            }
+            if (fitsProfile.profile(len <= self.getWriteCapacity())) {
+                self.append(data, 0, len);
+                return len;
+            }
+            flushNode.execute(self);
+            if (len < self.getBufferSize()) {
+                self.append(data, 0, len);
+                return len;
+            }
+            int offset = 0;
+            while (offset < len) {
+                int written = rawWriteNode.execute(self, data, offset, len - offset);
+                if (written == 0) {
+                    break;
+                }
+                offset += written;
+            }
+            return offset;
+        }
+
+        public static BufferedWriteNode create() {
+            return BufferedWriteNodeGen.create();
+        }
+    }
+
+    /**
+     * Brings the raw stream position in line with the logical position of the buffered object:
+     * pending output is written and read-ahead data is dropped, rewinding the raw stream if it is
+     * seekable. Must be called before switching between reading and writing and before seeking.
+     */
+    public abstract static class ResetBuffersNode extends PNodeWithContext {
+        public abstract void execute(PBufferedIO self, boolean rewind);
+
+        @Specialization
+        static void doIt(PBufferedIO self, boolean rewind,
+                        @Cached FlushWriteBufferNode flushNode,
+                        @Cached("createBinaryProfile()") ConditionProfile readAheadProfile,
+                        @Cached RawSeekNode rawSeekNode) {
+            flushNode.execute(self);
+            if (readAheadProfile.profile(self.isReader() && self.getAvailable() > 0)) {
+                if (rewind) {
+                    rawSeekNode.execute(self, -self.getAvailable(), SEEK_CUR);
+                }
+                self.clearReadBuffer();
+            }
+        }
+
+        public static ResetBuffersNode create() {
+            return ResetBuffersNodeGen.create();
+        }
+    }
+
+    /**
+     * Reads {@code n} bytes, or everything up to end of file if {@code n < 0}. Returns
+     * {@code null} if the raw stream is non-blocking and no data is available.
+     */
+    public abstract static class ReadNode extends PNodeWithContext {
+        public abstract byte[] execute(PBufferedIO self, int n);
+
+        @Specialization
+        static byte[] doIt(PBufferedIO self, int n,
+                        @Cached FlushWriteBufferNode flushNode,
+                        @Cached RawReadNode rawReadNode,
+                        @Cached("createBinaryProfile()") ConditionProfile bufferedProfile) {
+            flushNode.execute(self);
+            if (n >= 0) {
+                if (bufferedProfile.profile(self.getAvailable() >= n)) {
+                    return self.takeBytes(n);
+                }
+                while (self.getAvailable() < n) {
+                    int read = rawReadNode.execute(self, Math.max(n - self.getAvailable(), self.getBufferSize()));
+                    if (read <= 0) {
+                        if (read < 0 && self.getAvailable() == 0) {
+                            return null;
+                        }
+                        break;
+                    }
+                }
+                return self.takeBytes(Math.min(n, self.getAvailable()));
+            }
+            while (true) {
+                int read = rawReadNode.execute(self, Math.max(self.getBufferSize(), self.getAvailable()));
+                if (read <= 0) {
+                    if (read < 0 && self.getAvailable() == 0) {
+                        return null;
+                    }
+                    return self.takeBytes(self.getAvailable());
+                }
+            }
+        }
+
+        public static ReadNode create() {
+            return ReadNodeGen.create();
+        }
+    }
+
+    /**
+     * Reads a line terminated by {@code b'\n'}, or at most {@code limit} bytes if
+     * {@code limit >= 0}. The line is located inside the read buffer, refilling it from the raw
+     * stream only when the buffered data does not contain a newline. Returns {@code null} if the
+     * raw stream is non-blocking and no data is available.
+     */
+    public abstract static class ReadLineNode extends PNodeWithContext {
+        public abstract byte[] execute(PBufferedIO self, int limit);
+
+        @Specialization
+        static byte[] doIt(PBufferedIO self, int limit,
+                        @Cached FlushWriteBufferNode flushNode,
+                        @Cached RawReadNode rawReadNode,
+                        @Cached("createBinaryProfile()") ConditionProfile foundProfile) {
+            flushNode.execute(self);
+            int scanned = 0;
+            while (true) {
+                int lineLength = findNewline(self, scanned);
+                if (foundProfile.profile(lineLength > 0)) {
+                    return self.takeBytes(limit >= 0 ? Math.min(lineLength, limit) : lineLength);
+                }
+                int available = self.getAvailable();
+                if (limit >= 0 && available >= limit) {
+                    return self.takeBytes(limit);
+                }
+                scanned = available;
+                int read = rawReadNode.execute(self, self.getBufferSize());
+                if (read <= 0) {
+                    if (read < 0 && self.getAvailable() == 0) {
+                        return null;
+                    }
+                    return self.takeBytes(self.getAvailable());
+                }
+            }
+        }
+
+        private static int findNewline(PBufferedIO self, int from) {
+            byte[] buffer = self.getReadBuffer();
+            int start = self.getReadPos();
+            int end = self.getReadEnd();
+            for (int i = start + from; i < end; i++) {
+                if (buffer[i] == '\n') {
+                    return i - start + 1;
+                }
+            }
+            return -1;
+        }
+
+        public static ReadLineNode create() {
+            return ReadLineNodeGen.create();
+        }
+    }
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.io;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__ENTER__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__EXIT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__INIT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__ITER__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__LEN__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__NEXT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__SETITEM__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.StopIteration;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.bytes.PByteArray;
+import com.oracle.graal.python.builtins.objects.io.IONodes.GetByteStorageNode;
+import com.oracle.graal.python.builtins.objects.io.IONodes.RaiseUnsupportedOperationNode;
+import com.oracle.graal.python.builtins.objects.io.IONodes.ToSizeNode;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallTernaryNode;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode;
+import com.oracle.graal.python.nodes.control.GetIteratorExpressionNode.GetIteratorNode;
+import com.oracle.graal.python.nodes.control.GetNextNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.nodes.util.CastToIndexNode;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PBytesIO)
+public class BytesIOBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return BytesIOBuiltinsFactory.getFactories();
+    }
+
+    abstract static class BytesIOBaseNode extends PythonBuiltinNode {
+        protected final void checkOpen(PBytesIO self) {
+            if (self.isClosed()) {
+                throw raise(ValueError, "I/O operation on closed file.");
+            }
+        }
+    }
+
+    @Builtin(name = __INIT__, minNumOfPositionalArgs = 1, parameterNames = {"self", "initial_bytes"})
+    @GenerateNodeFactory
+    abstract static class InitNode extends BytesIOBaseNode {
+        @Specialization
+        PNone init(PBytesIO self, Object initialBytes,
+                        @Cached("create()") GetByteStorageNode getStorageNode) {
+            checkOpen(self);
+            if (initialBytes instanceof PNone) {
+                self.setValue(new byte[0], 0);
+            } else {
+                ByteSequenceStorage storage = getStorageNode.execute(initialBytes);
+                self.setValue(storage.getInternalByteArray(), storage.length());
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "getvalue", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class GetValueNode extends BytesIOBaseNode {
+        @Specialization
+        Object getvalue(PBytesIO self) {
+            checkOpen(self);
+            return factory().createBytes(self.getValue());
+        }
+    }
+
+    @Builtin(name = "getbuffer", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class GetBufferNode extends BytesIOBaseNode {
+        @Specialization
+        Object getbuffer(PBytesIO self) {
+            checkOpen(self);
+            PByteArray view = factory().createByteArray(new ByteSequenceStorage(self.getBuffer(), self.getSize()));
+            return factory().createByteMemoryView(view, self.getSize(), false);
+        }
+    }
+
+    @Builtin(name = "read", minNumOfPositionalArgs = 1, parameterNames = {"self", "size"})
+    @GenerateNodeFactory
+    abstract static class ReadNode extends BytesIOBaseNode {
+        @Specialization
+        Object read(PBytesIO self, Object size,
+                        @Cached("create()") ToSizeNode toSizeNode) {
+            checkOpen(self);
+            return factory().createBytes(self.read(toSizeNode.execute(size)));
+        }
+    }
+
+    @Builtin(name = "read1", minNumOfPositionalArgs = 1, parameterNames = {"self", "size"})
+    @GenerateNodeFactory
+    abstract static class Read1Node extends ReadNode {
+    }
+
+    @Builtin(name = "readinto", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class ReadIntoNode extends BytesIOBaseNode {
+        @Specialization
+        int readinto(PBytesIO self, Object buffer,
+                        @Cached("create(__LEN__)") LookupAndCallUnaryNode callLenNode,
+                        @Cached("create(__SETITEM__)") LookupAndCallTernaryNode callSetItemNode,
+                        @Cached("create()") CastToIndexNode castToIndexNode) {
+            checkOpen(self);
+            int len = castToIndexNode.execute(callLenNode.executeObject(buffer));
+            byte[] data = self.read(len);
+            if (buffer instanceof PByteArray) {
+                SequenceStorage storage = ((PByteArray) buffer).getSequenceStorage();
+                if (storage instanceof ByteSequenceStorage) {
+                    System.arraycopy(data, 0, ((ByteSequenceStorage) storage).getInternalByteArray(), 0, data.length);
+                    return data.length;
+                }
+            }
+            callSetItemNode.execute(buffer, factory().createSlice(0, data.length, 1), factory().createBytes(data));
+            return data.length;
+        }
+    }
+
+    @Builtin(name = "readline", minNumOfPositionalArgs = 1, parameterNames = {"self", "size"})
+    @GenerateNodeFactory
+    abstract static class ReadlineNode extends BytesIOBaseNode {
+        @Specialization
+        Object readline(PBytesIO self, Object size,
+                        @Cached("create()") ToSizeNode toSizeNode) {
+            checkOpen(self);
+            return factory().createBytes(self.readline(toSizeNode.execute(size)));
+        }
+    }
+
+    @Builtin(name = "readlines", minNumOfPositionalArgs = 1, parameterNames = {"self", "hint"})
+    @GenerateNodeFactory
+    abstract static class ReadlinesNode extends BytesIOBaseNode {
+        @Specialization
+        Object readlines(PBytesIO self, Object hint,
+                        @Cached("create()") ToSizeNode toSizeNode) {
+            checkOpen(self);
+            return factory().createList(readlines(self, toSizeNode.execute(hint)));
+        }
+
+        @TruffleBoundary
+        private Object[] readlines(PBytesIO self, int limit) {
+            List<Object> lines = new ArrayList<>();
+            int total = 0;
+            while (true) {
+                byte[] line = self.readline(-1);
+                if (line.length == 0) {
+                    break;
+                }
+                lines.add(factory().createBytes(line));
+                total += line.length;
+                if (limit > 0 && total >= limit) {
+                    break;
+                }
+            }
+            return lines.toArray();
+        }
+    }
+
+    @Builtin(name = __ITER__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class IterNode extends BytesIOBaseNode {
+        @Specialization
+        Object iter(PBytesIO self) {
+            checkOpen(self);
+            return self;
+        }
+    }
+
+    @Builtin(name = __NEXT__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class NextNode extends BytesIOBaseNode {
+        @Specialization
+        Object next(PBytesIO self) {
+            checkOpen(self);
+            byte[] line = self.readline(-1);
+            if (line.length == 0) {
+                throw raise(StopIteration);
+            }
+            return factory().createBytes(line);
+        }
+    }
+
+    @Builtin(name = "write", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class WriteNode extends BytesIOBaseNode {
+        @Specialization
+        int write(PBytesIO self, Object data,
+                        @Cached("create()") GetByteStorageNode getStorageNode) {
+            checkOpen(self);
+            ByteSequenceStorage storage = getStorageNode.execute(data);
+            return self.write(storage.getInternalByteArray(), 0, storage.length());
+        }
+    }
+
+    @Builtin(name = "writelines", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class WriteLinesNode extends BytesIOBaseNode {
+        @Specialization
+        Object writelines(PBytesIO self, Object lines,
+                        @Cached("create()") GetIteratorNode getIteratorNode,
+                        @Cached("create()") GetNextNode getNextNode,
+                        @Cached("create()") IsBuiltinClassProfile errorProfile,
+                        @Cached("create()") GetByteStorageNode getStorageNode) {
+            checkOpen(self);
+            Object iterator = getIteratorNode.executeWith(lines);
+            while (true) {
+                Object line;
+                try {
+                    line = getNextNode.execute(iterator);
+                } catch (PException e) {
+                    e.expectStopIteration(errorProfile);
+                    break;
+                }
+                ByteSequenceStorage storage = getStorageNode.execute(line);
+                self.write(storage.getInternalByteArray(), 0, storage.length());
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "seek", minNumOfPositionalArgs = 2, parameterNames = {"self", "pos", "whence"})
+    @GenerateNodeFactory
+    abstract static class SeekNode extends BytesIOBaseNode {
+        @Specialization
+        int seek(PBytesIO self, Object pos, Object whence,
+                        @Cached("create()") ToSizeNode toSizeNode) {
+            checkOpen(self);
+            int target = toSizeNode.execute(pos);
+            int how = whence instanceof PNone ? BufferedIONodes.SEEK_SET : toSizeNode.execute(whence);
+            switch (how) {
+                case BufferedIONodes.SEEK_SET:
+                    if (target < 0) {
+                        throw raise(ValueError, "negative seek value %d", target);
+                    }
+                    break;
+                case BufferedIONodes.SEEK_CUR:
+                    target = Math.max(self.getPos() + target, 0);
+                    break;
+                case BufferedIONodes.SEEK_END:
+                    target = Math.max(self.getSize() + target, 0);
+                    break;
+                default:
+                    throw raise(ValueError, "invalid whence (%d, should be 0, 1 or 2)", how);
+            }
+            self.setPos(target);
+            return target;
+        }
+    }
+
+    @Builtin(name = "tell", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class TellNode extends BytesIOBaseNode {
+        @Specialization
+        int tell(PBytesIO self) {
+            checkOpen(self);
+            return self.getPos();
+        }
+    }
+
+    @Builtin(name = "truncate", minNumOfPositionalArgs = 1, parameterNames = {"self", "size"})
+    @GenerateNodeFactory
+    abstract static class TruncateNode extends BytesIOBaseNode {
+        @Specialization
+        int truncate(PBytesIO self, Object size,
+                        @Cached("create()") ToSizeNode toSizeNode) {
+            checkOpen(self);
+            int newSize = size instanceof PNone ? self.getPos() : toSizeNode.execute(size);
+            if (newSize < 0) {
+                throw raise(ValueError, "negative size value %d", newSize);
+            }
+            self.truncate(newSize);
+            return newSize;
+        }
+    }
+
+    @Builtin(name = "close", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class CloseNode extends BytesIOBaseNode {
+        @Specialization
+        Object close(PBytesIO self) {
+            self.markClosed();
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "closed", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class ClosedNode extends BytesIOBaseNode {
+        @Specialization
+        boolean closed(PBytesIO self) {
+            return self.isClosed();
+        }
+    }
+
+    @Builtin(name = "readable", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class ReadableNode extends BytesIOBaseNode {
+        @Specialization
+        boolean readable(PBytesIO self) {
+            checkOpen(self);
+            return true;
+        }
+    }
+
+    @Builtin(name = "writable", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class WritableNode extends ReadableNode {
+    }
+
+    @Builtin(name = "seekable", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class SeekableNode extends ReadableNode {
+    }
+
+    @Builtin(name = "isatty", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class IsattyNode extends BytesIOBaseNode {
+        @Specialization
+        boolean isatty(PBytesIO self) {
+            checkOpen(self);
+            return false;
+        }
+    }
+
+    @Builtin(name = "flush", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class FlushNode extends BytesIOBaseNode {
+        @Specialization
+        Object flush(PBytesIO self) {
+            checkOpen(self);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "fileno", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class FilenoNode extends BytesIOBaseNode {
+        @Specialization
+        Object fileno(VirtualFrame frame, @SuppressWarnings("unused") PBytesIO self,
+                        @Cached("create()") RaiseUnsupportedOperationNode raiseNode) {
+            throw raiseNode.execute(frame, "fileno");
+        }
+    }
+
+    @Builtin(name = __ENTER__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class EnterNode extends BytesIOBaseNode {
+        @Specialization
+        Object enter(PBytesIO self) {
+            checkOpen(self);
+            return self;
+        }
+    }
+
+    @Builtin(name = __EXIT__, minNumOfPositionalArgs = 4)
+    @GenerateNodeFactory
+    abstract static class ExitNode extends BytesIOBaseNode {
+        @Specialization
+        Object exit(PBytesIO self, @SuppressWarnings("unused") Object type, @SuppressWarnings("unused") Object value, @SuppressWarnings("unused") Object tb) {
+            self.markClosed();
+            return PNone.NONE;
+        }
+    }
+}
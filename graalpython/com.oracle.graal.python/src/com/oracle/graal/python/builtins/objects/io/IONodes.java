@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.io;
+
+import com.oracle.graal.python.PythonLanguage;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.bytes.BytesNodes;
+import com.oracle.graal.python.builtins.objects.bytes.PIBytesLike;
+import com.oracle.graal.python.builtins.objects.exception.PBaseException;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.io.IONodesFactory.GetByteStorageNodeGen;
+import com.oracle.graal.python.builtins.objects.io.IONodesFactory.RaiseUnsupportedOperationNodeGen;
+import com.oracle.graal.python.builtins.objects.io.IONodesFactory.ToSizeNodeGen;
+import com.oracle.graal.python.nodes.PNodeWithContext;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.nodes.attributes.ReadAttributeFromObjectNode;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.util.CastToIndexNode;
+import com.oracle.graal.python.runtime.PythonContext;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.CachedContext;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+
+public abstract class IONodes {
+    public static final String IO_MODULE = "_io";
+    public static final String UNSUPPORTED_OPERATION = "UnsupportedOperation";
+
+    /**
+     * Raises {@code _io.UnsupportedOperation}, which is defined in Python since it has two base
+     * classes ({@code OSError} and {@code ValueError}).
+     */
+    public abstract static class RaiseUnsupportedOperationNode extends PNodeWithContext {
+        public abstract PException execute(VirtualFrame frame, String message);
+
+        @Specialization
+        PException doIt(VirtualFrame frame, String message,
+                        @Cached ReadAttributeFromObjectNode readNode,
+                        @Cached CallNode callNode,
+                        @CachedContext(PythonLanguage.class) PythonContext context) {
+            Object type = readNode.execute(context.getCore().lookupBuiltinModule(IO_MODULE), UNSUPPORTED_OPERATION);
+            PBaseException exception = (PBaseException) callNode.execute(frame, type, new Object[]{message}, PKeyword.EMPTY_KEYWORDS);
+            return PRaiseNode.raise(this, exception);
+        }
+
+        public static RaiseUnsupportedOperationNode create() {
+            return RaiseUnsupportedOperationNodeGen.create();
+        }
+    }
+
+    /**
+     * Returns the byte storage of a bytes-like object. For {@code bytes} and {@code bytearray}
+     * objects with a managed byte storage, the storage is returned as is and must not be modified.
+     */
+    public abstract static class GetByteStorageNode extends PNodeWithContext {
+        public abstract ByteSequenceStorage execute(Object data);
+
+        @Specialization(guards = "isByteStorage(data)")
+        static ByteSequenceStorage doBytesLike(PIBytesLike data) {
+            return (ByteSequenceStorage) data.getSequenceStorage();
+        }
+
+        @Specialization(guards = "!isByteStorage(data)")
+        static ByteSequenceStorage doOther(Object data,
+                        @Cached("create()") BytesNodes.ToBytesNode toBytesNode) {
+            return new ByteSequenceStorage(toBytesNode.execute(data));
+        }
+
+        static boolean isByteStorage(Object data) {
+            return data instanceof PIBytesLike && ((PIBytesLike) data).getSequenceStorage() instanceof ByteSequenceStorage;
+        }
+
+        public static GetByteStorageNode create() {
+            return GetByteStorageNodeGen.create();
+        }
+    }
+
+    /**
+     * Converts an optional size argument; {@code None} or a missing argument mean {@code -1}.
+     */
+    public abstract static class ToSizeNode extends PNodeWithContext {
+        public abstract int execute(Object size);
+
+        @Specialization
+        static int doNone(@SuppressWarnings("unused") PNone size) {
+            return -1;
+        }
+
+        @Specialization(guards = "!isPNone(size)")
+        static int doOther(Object size,
+                        @Cached("create()") CastToIndexNode castToIndexNode) {
+            return castToIndexNode.execute(size);
+        }
+
+        static boolean isPNone(Object size) {
+            return size instanceof PNone;
+        }
+
+        public static ToSizeNode create() {
+            return ToSizeNodeGen.create();
+        }
+    }
+}
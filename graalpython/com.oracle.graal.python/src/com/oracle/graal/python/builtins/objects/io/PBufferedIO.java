@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.io;
+
+import java.nio.channels.Channel;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
+import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * The state of a {@code _io.BufferedReader}, {@code _io.BufferedWriter} or
+ * {@code _io.BufferedRandom} object.
+ *
+ * The object keeps separate read and write buffers. Read-ahead data lives in
+ * {@code readBuffer[readPos, readEnd)}, pending output in {@code writeBuffer[0, writeEnd)}. At most
+ * one of the two is non-empty at any time; switching direction flushes (or discards and rewinds)
+ * the other one.
+ *
+ * If the raw stream is a plain file object whose file descriptor is backed by a channel in
+ * {@link com.oracle.graal.python.runtime.PosixResources}, the channel is remembered and used
+ * directly, so that filling or draining a buffer does not need to call back into Python.
+ *
+ * The raw I/O of an operation runs without the GIL, so the operations on the buffers are
+ * serialized by a lock of their own, see {@link BufferedIONodes.EnterBufferedNode}.
+ */
+public final class PBufferedIO extends PythonBuiltinObject {
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final boolean isReader;
+    private final boolean isWriter;
+
+    private Object raw;
+    private boolean detached;
+    private boolean closed;
+    private Channel channel;
+
+    private byte[] readBuffer;
+    private int readPos;
+    private int readEnd;
+
+    private byte[] writeBuffer;
+    private int writeEnd;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public PBufferedIO(LazyPythonClass cls, boolean isReader, boolean isWriter) {
+        super(cls);
+        this.isReader = isReader;
+        this.isWriter = isWriter;
+    }
+
+    public void init(Object rawStream, Channel rawChannel, int bufferSize) {
+        this.raw = rawStream;
+        this.channel = rawChannel;
+        this.detached = false;
+        this.closed = false;
+        this.readBuffer = isReader ? new byte[bufferSize] : null;
+        this.writeBuffer = isWriter ? new byte[bufferSize] : null;
+        this.readPos = 0;
+        this.readEnd = 0;
+        this.writeEnd = 0;
+    }
+
+    public boolean isReader() {
+        return isReader;
+    }
+
+    public boolean isWriter() {
+        return isWriter;
+    }
+
+    public boolean isInitialized() {
+        return raw != null;
+    }
+
+    public boolean isDetached() {
+        return detached;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public void markClosed() {
+        closed = true;
+    }
+
+    public Object getRaw() {
+        return raw;
+    }
+
+    public Object detach() {
+        Object result = raw;
+        raw = null;
+        channel = null;
+        detached = true;
+        return result;
+    }
+
+    public Channel getChannel() {
+        return channel;
+    }
+
+    @TruffleBoundary
+    public boolean tryLock() {
+        return lock.tryLock();
+    }
+
+    @TruffleBoundary
+    public void lock() {
+        lock.lock();
+    }
+
+    @TruffleBoundary
+    public void unlock() {
+        lock.unlock();
+    }
+
+    @TruffleBoundary
+    public boolean isLockedByCurrentThread() {
+        return lock.isHeldByCurrentThread();
+    }
+
+    public int getBufferSize() {
+        return isReader ? readBuffer.length : writeBuffer.length;
+    }
+
+    // read buffer
+
+    public byte[] getReadBuffer() {
+        return readBuffer;
+    }
+
+    public int getReadPos() {
+        return readPos;
+    }
+
+    public int getReadEnd() {
+        return readEnd;
+    }
+
+    public int getAvailable() {
+        return readEnd - readPos;
+    }
+
+    public void advance(int n) {
+        assert n <= getAvailable();
+        readPos += n;
+    }
+
+    /**
+     * Makes room for at least {@code n} more bytes at the end of the read buffer, moving unread
+     * bytes to the front and growing the buffer if necessary. Returns the index at which new data
+     * can be stored.
+     */
+    public int prepareFill(int n) {
+        int available = getAvailable();
+        if (readPos > 0) {
+            if (available > 0) {
+                System.arraycopy(readBuffer, readPos, readBuffer, 0, available);
+            }
+            readPos = 0;
+            readEnd = available;
+        }
+        if (readBuffer.length - readEnd < n) {
+            readBuffer = Arrays.copyOf(readBuffer, Math.max(readBuffer.length * 2, readEnd + n));
+        }
+        return readEnd;
+    }
+
+    public void filled(int n) {
+        readEnd += n;
+    }
+
+    public byte[] peekBytes() {
+        return Arrays.copyOfRange(readBuffer, readPos, readEnd);
+    }
+
+    public void clearReadBuffer() {
+        readPos = 0;
+        readEnd = 0;
+    }
+
+    public byte[] takeBytes(int n) {
+        byte[] result = Arrays.copyOfRange(readBuffer, readPos, readPos + n);
+        readPos += n;
+        return result;
+    }
+
+    // write buffer
+
+    public byte[] getWriteBuffer() {
+        return writeBuffer;
+    }
+
+    public int getWriteEnd() {
+        return writeEnd;
+    }
+
+    public int getWriteCapacity() {
+        return writeBuffer.length - writeEnd;
+    }
+
+    public void append(byte[] data, int offset, int len) {
+        assert len <= getWriteCapacity();
+        System.arraycopy(data, offset, writeBuffer, writeEnd, len);
+        writeEnd += len;
+    }
+
+    /**
+     * Removes the first {@code n} bytes from the write buffer after they have been written to the
+     * raw stream.
+     */
+    public void consumeWritten(int n) {
+        if (n >= writeEnd) {
+            writeEnd = 0;
+        } else {
+            System.arraycopy(writeBuffer, n, writeBuffer, 0, writeEnd - n);
+            writeEnd -= n;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.io;
+
+import java.util.Arrays;
+
+import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
+import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+
+/**
+ * An in-memory binary stream. The content lives in a growable byte array of which only the first
+ * {@code size} bytes are valid; the stream position may point past the end, in which case the gap
+ * is zero-filled by the next write.
+ */
+public final class PBytesIO extends PythonBuiltinObject {
+    private static final byte[] EMPTY = new byte[0];
+
+    private byte[] buf = EMPTY;
+    private int size;
+    private int pos;
+    private boolean closed;
+
+    public PBytesIO(LazyPythonClass cls) {
+        super(cls);
+    }
+
+    public void setValue(byte[] data, int length) {
+        buf = Arrays.copyOf(data, length);
+        size = length;
+        pos = 0;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public void markClosed() {
+        closed = true;
+        buf = EMPTY;
+        size = 0;
+        pos = 0;
+    }
+
+    public byte[] getBuffer() {
+        return buf;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getPos() {
+        return pos;
+    }
+
+    public void setPos(int pos) {
+        this.pos = pos;
+    }
+
+    public int getAvailable() {
+        return Math.max(size - pos, 0);
+    }
+
+    public byte[] getValue() {
+        return Arrays.copyOf(buf, size);
+    }
+
+    /**
+     * Returns the next {@code n} bytes (at most up to the end of the content) and advances the
+     * position. A negative {@code n} reads until the end.
+     */
+    public byte[] read(int n) {
+        int available = getAvailable();
+        int len = n < 0 || n > available ? available : n;
+        if (len == 0) {
+            return EMPTY;
+        }
+        byte[] result = Arrays.copyOfRange(buf, pos, pos + len);
+        pos += len;
+        return result;
+    }
+
+    /**
+     * Returns the bytes up to and including the next {@code '\n'}, reading no more than
+     * {@code limit} bytes if {@code limit} is non-negative.
+     */
+    public byte[] readline(int limit) {
+        int available = getAvailable();
+        int end = limit < 0 || limit > available ? size : pos + limit;
+        int i = pos;
+        while (i < end && buf[i] != '\n') {
+            i++;
+        }
+        if (i < end) {
+            i++;
+        }
+        return read(i - pos);
+    }
+
+    public int write(byte[] data, int offset, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        int end = pos + len;
+        if (end > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(end, buf.length + (buf.length >> 1) + 16));
+        }
+        if (pos > size) {
+            Arrays.fill(buf, size, pos, (byte) 0);
+        }
+        System.arraycopy(data, offset, buf, pos, len);
+        pos = end;
+        if (end > size) {
+            size = end;
+        }
+        return len;
+    }
+
+    public void truncate(int newSize) {
+        if (newSize < size) {
+            size = newSize;
+        }
+    }
+}
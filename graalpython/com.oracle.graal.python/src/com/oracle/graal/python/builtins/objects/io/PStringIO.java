@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.io;
+
+import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
+import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * An in-memory text stream. Newline handling follows the {@code newline} argument of
+ * {@code io.StringIO}: {@code null} translates {@code "\r"} and {@code "\r\n"} to {@code "\n"} on
+ * write, the empty string keeps line endings untouched but recognizes all of them when reading
+ * lines, and any other value translates {@code "\n"} to itself on write and is the line terminator
+ * on read.
+ */
+public final class PStringIO extends PythonBuiltinObject {
+    private StringBuilder buf = new StringBuilder();
+    private int pos;
+    private boolean closed;
+    private String newline = "\n";
+
+    public PStringIO(LazyPythonClass cls) {
+        super(cls);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @TruffleBoundary
+    public void markClosed() {
+        closed = true;
+        buf = new StringBuilder();
+        pos = 0;
+    }
+
+    public String getNewline() {
+        return newline;
+    }
+
+    public void setNewline(String newline) {
+        this.newline = newline;
+    }
+
+    public int getPos() {
+        return pos;
+    }
+
+    public void setPos(int pos) {
+        this.pos = pos;
+    }
+
+    @TruffleBoundary
+    public int getSize() {
+        return buf.length();
+    }
+
+    @TruffleBoundary
+    public String getValue() {
+        return buf.toString();
+    }
+
+    @TruffleBoundary
+    public String read(int n) {
+        int size = buf.length();
+        if (pos >= size) {
+            return "";
+        }
+        int end = n < 0 || n > size - pos ? size : pos + n;
+        String result = buf.substring(pos, end);
+        pos = end;
+        return result;
+    }
+
+    @TruffleBoundary
+    public String readline(int limit) {
+        int size = buf.length();
+        if (pos >= size) {
+            return "";
+        }
+        int end = limit < 0 || limit > size - pos ? size : pos + limit;
+        int i = pos;
+        if (newline == null || newline.equals("\n")) {
+            int idx = buf.indexOf("\n", pos);
+            i = idx < 0 || idx >= end ? end : idx + 1;
+        } else if (newline.isEmpty()) {
+            while (i < end) {
+                char c = buf.charAt(i++);
+                if (c == '\n') {
+                    break;
+                } else if (c == '\r') {
+                    if (i < end && buf.charAt(i) == '\n') {
+                        i++;
+                    }
+                    break;
+                }
+            }
+        } else {
+            int idx = buf.indexOf(newline, pos);
+            i = idx < 0 || idx + newline.length() > end ? end : idx + newline.length();
+        }
+        return read(i - pos);
+    }
+
+    @TruffleBoundary
+    public int write(String s) {
+        String text = s;
+        if (newline == null) {
+            text = text.replace("\r\n", "\n").replace('\r', '\n');
+        } else if (newline.equals("\r") || newline.equals("\r\n")) {
+            text = text.replace("\n", newline);
+        }
+        int len = text.length();
+        if (len == 0) {
+            return s.length();
+        }
+        int size = buf.length();
+        if (pos > size) {
+            for (int i = size; i < pos; i++) {
+                buf.append('\0');
+            }
+            size = pos;
+        }
+        int end = pos + len;
+        buf.replace(pos, Math.min(end, size), text);
+        pos = end;
+        return s.length();
+    }
+
+    @TruffleBoundary
+    public void setValue(String s) {
+        buf = new StringBuilder();
+        pos = 0;
+        write(s);
+        pos = 0;
+    }
+
+    @TruffleBoundary
+    public void truncate(int newSize) {
+        if (newSize < buf.length()) {
+            buf.setLength(newSize);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.io;
+
+import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
+import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+
+/**
+ * The reading and writing state of a UTF-8 {@code TextIOWrapper} with strict error handling over
+ * one of the Java buffered streams. Text is decoded directly from the read buffer of the
+ * {@link PBufferedIO} and encoded directly into its write buffer, so no decoded characters or
+ * decoder state are kept here apart from the kinds of line endings seen so far.
+ *
+ * The newline mode mirrors the {@code newline} argument of {@code TextIOWrapper}: {@code None}
+ * recognizes and translates all line endings to {@code "\n"}, the empty string recognizes them
+ * without translating, and {@code "\n"}, {@code "\r"} or {@code "\r\n"} is the only line ending
+ * recognized.
+ */
+public final class PUtf8TextIO extends PythonBuiltinObject {
+    public static final int NEWLINE_TRANSLATE = 0;
+    public static final int NEWLINE_UNIVERSAL = 1;
+    public static final int NEWLINE_LF = 2;
+    public static final int NEWLINE_CR = 3;
+    public static final int NEWLINE_CRLF = 4;
+
+    // the same bits as in IncrementalNewlineDecoder
+    public static final int SEEN_LF = 1;
+    public static final int SEEN_CR = 2;
+    public static final int SEEN_CRLF = 4;
+
+    private final PBufferedIO buffer;
+    private final int newlineMode;
+    private final String writeNewline;
+    private final boolean lineBuffering;
+    private int seenNewlines;
+
+    public PUtf8TextIO(LazyPythonClass cls, PBufferedIO buffer, int newlineMode, String writeNewline, boolean lineBuffering) {
+        super(cls);
+        this.buffer = buffer;
+        this.newlineMode = newlineMode;
+        this.writeNewline = writeNewline;
+        this.lineBuffering = lineBuffering;
+    }
+
+    public PBufferedIO getBuffer() {
+        return buffer;
+    }
+
+    public int getNewlineMode() {
+        return newlineMode;
+    }
+
+    /** Returns {@code true} if line endings of all kinds are recognized on read. */
+    public boolean isUniversal() {
+        return newlineMode == NEWLINE_TRANSLATE || newlineMode == NEWLINE_UNIVERSAL;
+    }
+
+    /** The string {@code "\n"} is replaced by on write, or {@code null} if it is written as is. */
+    public String getWriteNewline() {
+        return writeNewline;
+    }
+
+    public boolean isLineBuffering() {
+        return lineBuffering;
+    }
+
+    public int getSeenNewlines() {
+        return seenNewlines;
+    }
+
+    public void addSeenNewlines(int seen) {
+        seenNewlines |= seen;
+    }
+}
@@ -0,0 +1,428 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.io;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__ENTER__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__EXIT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__INIT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__ITER__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__NEXT__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.OSError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.StopIteration;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.io.IONodes.RaiseUnsupportedOperationNode;
+import com.oracle.graal.python.builtins.objects.io.IONodes.ToSizeNode;
+import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.nodes.control.GetIteratorExpressionNode.GetIteratorNode;
+import com.oracle.graal.python.nodes.control.GetNextNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PStringIO)
+public class StringIOBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return StringIOBuiltinsFactory.getFactories();
+    }
+
+    abstract static class StringIOBaseNode extends PythonBuiltinNode {
+        protected final void checkOpen(PStringIO self) {
+            if (self.isClosed()) {
+                throw raise(ValueError, "I/O operation on closed file.");
+            }
+        }
+
+        protected final String toText(Object obj, String message) {
+            if (obj instanceof String) {
+                return (String) obj;
+            } else if (obj instanceof PString) {
+                return ((PString) obj).getValue();
+            }
+            throw raise(TypeError, message, obj);
+        }
+    }
+
+    @Builtin(name = __INIT__, minNumOfPositionalArgs = 1, parameterNames = {"self", "initial_value", "newline"})
+    @GenerateNodeFactory
+    abstract static class InitNode extends StringIOBaseNode {
+        @Specialization
+        PNone init(PStringIO self, Object initialValue, Object newline) {
+            String nl = "\n";
+            if (newline == PNone.NONE) {
+                nl = null;
+            } else if (newline != PNone.NO_VALUE) {
+                nl = toText(newline, "newline must be str or None, not %p");
+                if (!isLegalNewline(nl)) {
+                    throw raise(ValueError, "illegal newline value: %s", nl);
+                }
+            }
+            self.setNewline(nl);
+            if (initialValue instanceof PNone) {
+                self.setValue("");
+            } else {
+                self.setValue(toText(initialValue, "initial_value must be str or None, not %p"));
+            }
+            return PNone.NONE;
+        }
+
+        private static boolean isLegalNewline(String nl) {
+            return nl.isEmpty() || nl.equals("\n") || nl.equals("\r") || nl.equals("\r\n");
+        }
+    }
+
+    @Builtin(name = "getvalue", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class GetValueNode extends StringIOBaseNode {
+        @Specialization
+        String getvalue(PStringIO self) {
+            checkOpen(self);
+            return self.getValue();
+        }
+    }
+
+    @Builtin(name = "read", minNumOfPositionalArgs = 1, parameterNames = {"self", "size"})
+    @GenerateNodeFactory
+    abstract static class ReadNode extends StringIOBaseNode {
+        @Specialization
+        String read(PStringIO self, Object size,
+                        @Cached("create()") ToSizeNode toSizeNode) {
+            checkOpen(self);
+            return self.read(toSizeNode.execute(size));
+        }
+    }
+
+    @Builtin(name = "readline", minNumOfPositionalArgs = 1, parameterNames = {"self", "size"})
+    @GenerateNodeFactory
+    abstract static class ReadlineNode extends StringIOBaseNode {
+        @Specialization
+        String readline(PStringIO self, Object size,
+                        @Cached("create()") ToSizeNode toSizeNode) {
+            checkOpen(self);
+            return self.readline(toSizeNode.execute(size));
+        }
+    }
+
+    @Builtin(name = "readlines", minNumOfPositionalArgs = 1, parameterNames = {"self", "hint"})
+    @GenerateNodeFactory
+    abstract static class ReadlinesNode extends StringIOBaseNode {
+        @Specialization
+        Object readlines(PStringIO self, Object hint,
+                        @Cached("create()") ToSizeNode toSizeNode) {
+            checkOpen(self);
+            return factory().createList(readlines(self, toSizeNode.execute(hint)));
+        }
+
+        @TruffleBoundary
+        private static Object[] readlines(PStringIO self, int limit) {
+            List<Object> lines = new ArrayList<>();
+            int total = 0;
+            while (true) {
+                String line = self.readline(-1);
+                if (line.isEmpty()) {
+                    break;
+                }
+                lines.add(line);
+                total += line.length();
+                if (limit > 0 && total >= limit) {
+                    break;
+                }
+            }
+            return lines.toArray();
+        }
+    }
+
+    @Builtin(name = __ITER__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class IterNode extends StringIOBaseNode {
+        @Specialization
+        Object iter(PStringIO self) {
+            checkOpen(self);
+            return self;
+        }
+    }
+
+    @Builtin(name = __NEXT__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class NextNode extends StringIOBaseNode {
+        @Specialization
+        String next(PStringIO self) {
+            checkOpen(self);
+            String line = self.readline(-1);
+            if (line.isEmpty()) {
+                throw raise(StopIteration);
+            }
+            return line;
+        }
+    }
+
+    @Builtin(name = "write", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class WriteNode extends StringIOBaseNode {
+        @Specialization
+        int write(PStringIO self, Object s) {
+            checkOpen(self);
+            return self.write(toText(s, "string argument expected, got '%p'"));
+        }
+    }
+
+    @Builtin(name = "writelines", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class WriteLinesNode extends StringIOBaseNode {
+        @Specialization
+        Object writelines(PStringIO self, Object lines,
+                        @Cached("create()") GetIteratorNode getIteratorNode,
+                        @Cached("create()") GetNextNode getNextNode,
+                        @Cached("create()") IsBuiltinClassProfile errorProfile) {
+            checkOpen(self);
+            Object iterator = getIteratorNode.executeWith(lines);
+            while (true) {
+                Object line;
+                try {
+                    line = getNextNode.execute(iterator);
+                } catch (PException e) {
+                    e.expectStopIteration(errorProfile);
+                    break;
+                }
+                self.write(toText(line, "string argument expected, got '%p'"));
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "seek", minNumOfPositionalArgs = 2, parameterNames = {"self", "pos", "whence"})
+    @GenerateNodeFactory
+    abstract static class SeekNode extends StringIOBaseNode {
+        @Specialization
+        int seek(PStringIO self, Object pos, Object whence,
+                        @Cached("create()") ToSizeNode toSizeNode) {
+            checkOpen(self);
+            int target = toSizeNode.execute(pos);
+            int how = whence instanceof PNone ? BufferedIONodes.SEEK_SET : toSizeNode.execute(whence);
+            switch (how) {
+                case BufferedIONodes.SEEK_SET:
+                    if (target < 0) {
+                        throw raise(ValueError, "Negative seek position %d", target);
+                    }
+                    break;
+                case BufferedIONodes.SEEK_CUR:
+                    if (target != 0) {
+                        throw raise(OSError, "Can't do nonzero cur-relative seeks");
+                    }
+                    target = self.getPos();
+                    break;
+                case BufferedIONodes.SEEK_END:
+                    if (target != 0) {
+                        throw raise(OSError, "Can't do nonzero end-relative seeks");
+                    }
+                    target = self.getSize();
+                    break;
+                default:
+                    throw raise(ValueError, "Invalid whence (%d, should be 0, 1 or 2)", how);
+            }
+            self.setPos(target);
+            return target;
+        }
+    }
+
+    @Builtin(name = "tell", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class TellNode extends StringIOBaseNode {
+        @Specialization
+        int tell(PStringIO self) {
+            checkOpen(self);
+            return self.getPos();
+        }
+    }
+
+    @Builtin(name = "truncate", minNumOfPositionalArgs = 1, parameterNames = {"self", "pos"})
+    @GenerateNodeFactory
+    abstract static class TruncateNode extends StringIOBaseNode {
+        @Specialization
+        int truncate(PStringIO self, Object pos,
+                        @Cached("create()") ToSizeNode toSizeNode) {
+            checkOpen(self);
+            int newSize = pos instanceof PNone ? self.getPos() : toSizeNode.execute(pos);
+            if (newSize < 0) {
+                throw raise(ValueError, "Negative size value %d", newSize);
+            }
+            self.truncate(newSize);
+            return newSize;
+        }
+    }
+
+    @Builtin(name = "close", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class CloseNode extends StringIOBaseNode {
+        @Specialization
+        Object close(PStringIO self) {
+            self.markClosed();
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "closed", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class ClosedNode extends StringIOBaseNode {
+        @Specialization
+        boolean closed(PStringIO self) {
+            return self.isClosed();
+        }
+    }
+
+    @Builtin(name = "line_buffering", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class LineBufferingNode extends StringIOBaseNode {
+        @Specialization
+        boolean lineBuffering(PStringIO self) {
+            checkOpen(self);
+            return false;
+        }
+    }
+
+    @Builtin(name = "newlines", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class NewlinesNode extends StringIOBaseNode {
+        @Specialization
+        Object newlines(PStringIO self) {
+            checkOpen(self);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "readable", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class ReadableNode extends StringIOBaseNode {
+        @Specialization
+        boolean readable(PStringIO self) {
+            checkOpen(self);
+            return true;
+        }
+    }
+
+    @Builtin(name = "writable", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class WritableNode extends ReadableNode {
+    }
+
+    @Builtin(name = "seekable", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class SeekableNode extends ReadableNode {
+    }
+
+    @Builtin(name = "isatty", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class IsattyNode extends StringIOBaseNode {
+        @Specialization
+        boolean isatty(PStringIO self) {
+            checkOpen(self);
+            return false;
+        }
+    }
+
+    @Builtin(name = "flush", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class FlushNode extends StringIOBaseNode {
+        @Specialization
+        Object flush(PStringIO self) {
+            checkOpen(self);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "fileno", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class FilenoNode extends StringIOBaseNode {
+        @Specialization
+        Object fileno(VirtualFrame frame, @SuppressWarnings("unused") PStringIO self,
+                        @Cached("create()") RaiseUnsupportedOperationNode raiseNode) {
+            throw raiseNode.execute(frame, "fileno");
+        }
+    }
+
+    @Builtin(name = "detach", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class DetachNode extends StringIOBaseNode {
+        @Specialization
+        Object detach(VirtualFrame frame, @SuppressWarnings("unused") PStringIO self,
+                        @Cached("create()") RaiseUnsupportedOperationNode raiseNode) {
+            throw raiseNode.execute(frame, "detach");
+        }
+    }
+
+    @Builtin(name = __ENTER__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class EnterNode extends StringIOBaseNode {
+        @Specialization
+        Object enter(PStringIO self) {
+            checkOpen(self);
+            return self;
+        }
+    }
+
+    @Builtin(name = __EXIT__, minNumOfPositionalArgs = 4)
+    @GenerateNodeFactory
+    abstract static class ExitNode extends StringIOBaseNode {
+        @Specialization
+        Object exit(PStringIO self, @SuppressWarnings("unused") Object type, @SuppressWarnings("unused") Object value, @SuppressWarnings("unused") Object tb) {
+            self.markClosed();
+            return PNone.NONE;
+        }
+    }
+}
@@ -0,0 +1,433 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.io;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.UnicodeDecodeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.UnicodeEncodeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodes.BufferedWriteNode;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodes.CheckInitializedNode;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodes.EnterBufferedNode;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodes.FlushWriteBufferNode;
+import com.oracle.graal.python.builtins.objects.io.BufferedIONodes.RawReadNode;
+import com.oracle.graal.python.builtins.objects.io.IONodes.RaiseUnsupportedOperationNode;
+import com.oracle.graal.python.builtins.objects.io.IONodes.ToSizeNode;
+import com.oracle.graal.python.builtins.objects.io.Utf8TextIOBuiltinsFactory.ReadTextNodeGen;
+import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.nodes.PNodeWithContext;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+
+/**
+ * The UTF-8 fast path of {@code TextIOWrapper}. The Python class in {@code __builtins_patches__}
+ * delegates {@code read}, {@code readline}, {@code __next__} and {@code write} to these builtins as
+ * long as its own (Python) decoder has not been created.
+ */
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PUtf8TextIO)
+public class Utf8TextIOBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return Utf8TextIOBuiltinsFactory.getFactories();
+    }
+
+    abstract static class Utf8TextIOBaseNode extends PythonBuiltinNode {
+        @Child private CheckInitializedNode checkInitializedNode;
+        @Child private RaiseUnsupportedOperationNode raiseUnsupportedNode;
+        @Child private EnterBufferedNode enterBufferedNode;
+
+        private void checkOpen(PUtf8TextIO self, String closedMessage) {
+            if (checkInitializedNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                checkInitializedNode = insert(CheckInitializedNode.create());
+            }
+            checkInitializedNode.execute(self.getBuffer());
+            if (self.getBuffer().isClosed()) {
+                throw raise(ValueError, closedMessage);
+            }
+        }
+
+        protected final void checkReadable(VirtualFrame frame, PUtf8TextIO self, String closedMessage) {
+            checkOpen(self, closedMessage);
+            if (!self.getBuffer().isReader()) {
+                throw raiseUnsupported(frame, "not readable");
+            }
+        }
+
+        protected final void checkWritable(VirtualFrame frame, PUtf8TextIO self, String closedMessage) {
+            checkOpen(self, closedMessage);
+            if (!self.getBuffer().isWriter()) {
+                throw raiseUnsupported(frame, "not writable");
+            }
+        }
+
+        private PException raiseUnsupported(VirtualFrame frame, String message) {
+            if (raiseUnsupportedNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                raiseUnsupportedNode = insert(RaiseUnsupportedOperationNode.create());
+            }
+            return raiseUnsupportedNode.execute(frame, message);
+        }
+
+        protected final boolean enterBuffered(PUtf8TextIO self) {
+            if (enterBufferedNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                enterBufferedNode = insert(EnterBufferedNode.create());
+            }
+            return enterBufferedNode.execute(self.getBuffer());
+        }
+
+        protected static void leaveBuffered(PUtf8TextIO self, boolean locked) {
+            if (locked) {
+                self.getBuffer().unlock();
+            }
+        }
+    }
+
+    /**
+     * Decodes text from the read buffer of the underlying buffered stream, refilling the buffer
+     * from the raw stream as needed. Reads a single line if {@code line} is {@code true}, and at
+     * most {@code limit} characters if {@code limit >= 0}.
+     *
+     * Line endings are found on the encoded bytes, which is possible since the bytes of
+     * {@code '\r'} and {@code '\n'} never occur inside a multi-byte UTF-8 sequence. The bytes of
+     * the result are thus always complete sequences and are decoded at once; if they are all
+     * ASCII, they are copied to the string without decoding. Returns {@code null} if the raw
+     * stream is non-blocking and no complete character is available.
+     */
+    abstract static class ReadTextNode extends PNodeWithContext {
+        abstract String execute(PUtf8TextIO self, int limit, boolean line);
+
+        @Specialization
+        static String doIt(PUtf8TextIO self, int limit, boolean line,
+                        @Cached FlushWriteBufferNode flushNode,
+                        @Cached RawReadNode rawReadNode,
+                        @Cached("createBinaryProfile()") ConditionProfile translateProfile,
+                        @Cached PRaiseNode raise) {
+            PBufferedIO buffer = self.getBuffer();
+            flushNode.execute(buffer);
+            int mode = self.getNewlineMode();
+            boolean universal = self.isUniversal();
+            // pos counts the bytes of the result, chars its length in UTF-16 code units
+            int pos = 0;
+            int chars = 0;
+            // the start and end of the last multi-byte sequence started so far
+            int sequenceStart = 0;
+            int sequenceEnd = 0;
+            int seen = 0;
+            boolean ascii = true;
+            boolean eof = false;
+            scan: while (true) {
+                byte[] data = buffer.getReadBuffer();
+                int start = buffer.getReadPos();
+                int available = buffer.getAvailable();
+                while (pos < available) {
+                    int b = data[start + pos] & 0xFF;
+                    if (b >= 0x80) {
+                        ascii = false;
+                        if ((b & 0xC0) == 0x80) {
+                            // continuation byte
+                            pos++;
+                            continue;
+                        }
+                    }
+                    int width = b >= 0xF0 ? 2 : 1;
+                    if (limit >= 0 && chars + width > limit) {
+                        break scan;
+                    }
+                    if (b >= 0xC0) {
+                        sequenceStart = pos;
+                        sequenceEnd = pos + (b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : 2);
+                    }
+                    if (b == '\r' && (universal || mode == PUtf8TextIO.NEWLINE_CR || mode == PUtf8TextIO.NEWLINE_CRLF)) {
+                        if (pos + 1 == available && !eof && mode != PUtf8TextIO.NEWLINE_CR) {
+                            // whether this is "\r\n" is only known after reading more
+                            break;
+                        }
+                        if (mode != PUtf8TextIO.NEWLINE_CR && pos + 1 < available && data[start + pos + 1] == '\n') {
+                            if (mode == PUtf8TextIO.NEWLINE_TRANSLATE) {
+                                pos += 2;
+                                chars++;
+                            } else if (limit >= 0 && chars + 2 > limit) {
+                                // only the '\r' fits, like in CPython
+                                pos++;
+                                chars++;
+                                break scan;
+                            } else {
+                                pos += 2;
+                                chars += 2;
+                            }
+                            seen |= PUtf8TextIO.SEEN_CRLF;
+                            if (line) {
+                                break scan;
+                            }
+                            continue;
+                        }
+                        pos++;
+                        chars++;
+                        if (universal) {
+                            seen |= PUtf8TextIO.SEEN_CR;
+                        }
+                        if (line && mode != PUtf8TextIO.NEWLINE_CRLF) {
+                            break scan;
+                        }
+                        continue;
+                    }
+                    pos++;
+                    chars += width;
+                    if (b == '\n') {
+                        if (universal) {
+                            seen |= PUtf8TextIO.SEEN_LF;
+                        }
+                        if (line && (universal || mode == PUtf8TextIO.NEWLINE_LF)) {
+                            break scan;
+                        }
+                    }
+                }
+                if (eof || (limit >= 0 && chars >= limit && pos >= sequenceEnd)) {
+                    break;
+                }
+                int read = rawReadNode.execute(buffer, buffer.getBufferSize());
+                if (read < 0) {
+                    // non-blocking raw stream without data: return what is complete so far
+                    if (pos < sequenceEnd) {
+                        pos = sequenceStart;
+                    }
+                    if (pos == 0) {
+                        return null;
+                    }
+                    break;
+                }
+                if (read == 0) {
+                    eof = true;
+                }
+            }
+            String text;
+            try {
+                text = decode(buffer.getReadBuffer(), buffer.getReadPos(), pos, ascii);
+            } catch (CharacterCodingException e) {
+                throw raise.raise(UnicodeDecodeError, e);
+            }
+            buffer.advance(pos);
+            self.addSeenNewlines(seen);
+            if (translateProfile.profile(mode == PUtf8TextIO.NEWLINE_TRANSLATE && (seen & (PUtf8TextIO.SEEN_CR | PUtf8TextIO.SEEN_CRLF)) != 0)) {
+                return translateNewlines(text);
+            }
+            return text;
+        }
+
+        @TruffleBoundary
+        private static String decode(byte[] data, int offset, int length, boolean ascii) throws CharacterCodingException {
+            if (ascii) {
+                return new String(data, offset, length, StandardCharsets.ISO_8859_1);
+            }
+            return StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(data, offset, length)).toString();
+        }
+
+        @TruffleBoundary
+        private static String translateNewlines(String text) {
+            return text.replace("\r\n", "\n").replace('\r', '\n');
+        }
+
+        static ReadTextNode create() {
+            return ReadTextNodeGen.create();
+        }
+    }
+
+    @Builtin(name = "readline", minNumOfPositionalArgs = 1, parameterNames = {"self", "size"})
+    @GenerateNodeFactory
+    abstract static class ReadlineNode extends Utf8TextIOBaseNode {
+        @Specialization
+        Object readline(VirtualFrame frame, PUtf8TextIO self, Object size,
+                        @Cached("create()") ReadTextNode readTextNode,
+                        @Cached("create()") ToSizeNode toSizeNode) {
+            checkReadable(frame, self, "read from closed file");
+            int limit = toSizeNode.execute(size);
+            boolean locked = enterBuffered(self);
+            String text;
+            try {
+                text = readTextNode.execute(self, limit, true);
+            } finally {
+                leaveBuffered(self, locked);
+            }
+            return text == null ? PNone.NONE : text;
+        }
+    }
+
+    @Builtin(name = "read", minNumOfPositionalArgs = 1, parameterNames = {"self", "size"})
+    @GenerateNodeFactory
+    abstract static class ReadNode extends Utf8TextIOBaseNode {
+        @Specialization
+        Object read(VirtualFrame frame, PUtf8TextIO self, Object size,
+                        @Cached("create()") ReadTextNode readTextNode,
+                        @Cached("create()") ToSizeNode toSizeNode) {
+            checkReadable(frame, self, "I/O operation on closed file.");
+            int limit = toSizeNode.execute(size);
+            boolean locked = enterBuffered(self);
+            String text;
+            try {
+                text = readTextNode.execute(self, limit, false);
+            } finally {
+                leaveBuffered(self, locked);
+            }
+            return text == null ? PNone.NONE : text;
+        }
+    }
+
+    @Builtin(name = "write", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class WriteNode extends Utf8TextIOBaseNode {
+        @Specialization
+        int write(VirtualFrame frame, PUtf8TextIO self, Object s,
+                        @Cached("create()") BufferedWriteNode bufferedWriteNode,
+                        @Cached("create()") FlushWriteBufferNode flushNode,
+                        @Cached("createBinaryProfile()") ConditionProfile translateProfile,
+                        @Cached("createBinaryProfile()") ConditionProfile flushProfile) {
+            checkWritable(frame, self, "write to closed file");
+            String text;
+            if (s instanceof String) {
+                text = (String) s;
+            } else if (s instanceof PString) {
+                text = ((PString) s).getValue();
+            } else {
+                throw raise(TypeError, "can't write %p to text stream", s);
+            }
+            String writeNewline = self.getWriteNewline();
+            boolean hasLF = (writeNewline != null || self.isLineBuffering()) && indexOf(text, '\n') >= 0;
+            String translated = text;
+            if (translateProfile.profile(hasLF && writeNewline != null)) {
+                translated = replaceNewlines(text, writeNewline);
+            }
+            byte[] data;
+            try {
+                data = encode(translated);
+            } catch (CharacterCodingException e) {
+                throw raise(UnicodeEncodeError, e);
+            }
+            boolean locked = enterBuffered(self);
+            try {
+                bufferedWriteNode.execute(self.getBuffer(), data, data.length);
+                if (flushProfile.profile(self.isLineBuffering() && (hasLF || indexOf(text, '\r') >= 0))) {
+                    flushNode.execute(self.getBuffer());
+                }
+            } finally {
+                leaveBuffered(self, locked);
+            }
+            return text.length();
+        }
+
+        @TruffleBoundary
+        private static int indexOf(String text, char c) {
+            return text.indexOf(c);
+        }
+
+        @TruffleBoundary
+        private static String replaceNewlines(String text, String newline) {
+            return text.replace("\n", newline);
+        }
+
+        @TruffleBoundary
+        private static byte[] encode(String text) throws CharacterCodingException {
+            int length = text.length();
+            for (int i = 0; i < length; i++) {
+                if (text.charAt(i) >= 0x80) {
+                    ByteBuffer encoded = StandardCharsets.UTF_8.newEncoder().encode(CharBuffer.wrap(text));
+                    byte[] result = new byte[encoded.remaining()];
+                    encoded.get(result);
+                    return result;
+                }
+            }
+            return text.getBytes(StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    @Builtin(name = "newlines", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class NewlinesNode extends Utf8TextIOBaseNode {
+        @Specialization
+        Object newlines(PUtf8TextIO self) {
+            if (!self.isUniversal()) {
+                return PNone.NONE;
+            }
+            switch (self.getSeenNewlines()) {
+                case PUtf8TextIO.SEEN_LF:
+                    return "\n";
+                case PUtf8TextIO.SEEN_CR:
+                    return "\r";
+                case PUtf8TextIO.SEEN_CR | PUtf8TextIO.SEEN_LF:
+                    return factory().createTuple(new Object[]{"\r", "\n"});
+                case PUtf8TextIO.SEEN_CRLF:
+                    return "\r\n";
+                case PUtf8TextIO.SEEN_LF | PUtf8TextIO.SEEN_CRLF:
+                    return factory().createTuple(new Object[]{"\n", "\r\n"});
+                case PUtf8TextIO.SEEN_CR | PUtf8TextIO.SEEN_CRLF:
+                    return factory().createTuple(new Object[]{"\r", "\r\n"});
+                case PUtf8TextIO.SEEN_CR | PUtf8TextIO.SEEN_LF | PUtf8TextIO.SEEN_CRLF:
+                    return factory().createTuple(new Object[]{"\r", "\n", "\r\n"});
+                default:
+                    return PNone.NONE;
+            }
+        }
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.json;
+
+import static com.oracle.graal.python.builtins.PythonBuiltinClassType.RecursionError;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__CALL__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__GT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__LT__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.common.HashingStorage;
+import com.oracle.graal.python.builtins.objects.common.HashingStorage.DictEntry;
+import com.oracle.graal.python.builtins.objects.dict.PDict;
+import com.oracle.graal.python.builtins.objects.floats.PFloat;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.ints.PInt;
+import com.oracle.graal.python.builtins.objects.list.PList;
+import com.oracle.graal.python.builtins.objects.list.TimSort;
+import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.builtins.objects.tuple.PTuple;
+import com.oracle.graal.python.nodes.attributes.GetAttributeNode.GetFixedAttributeNode;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.expression.BinaryComparisonNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.runtime.formatting.FloatFormatter;
+import com.oracle.graal.python.runtime.formatting.InternalFormat;
+import com.oracle.graal.python.runtime.sequence.PSequence;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PJSONEncoder)
+public class JSONEncoderBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return JSONEncoderBuiltinsFactory.getFactories();
+    }
+
+    /**
+     * Encodes the whole object into one string and returns it as the only chunk of a list; the
+     * caller joins the chunks.
+     */
+    // encoder(obj, _current_indent_level)
+    @Builtin(name = __CALL__, minNumOfPositionalArgs = 3, parameterNames = {"self", "obj", "_current_indent_level"})
+    @GenerateNodeFactory
+    public abstract static class CallEncoderNode extends PythonTernaryBuiltinNode {
+        /** Nesting depth of containers and 'default' results, like the one of the pickler. */
+        private static final int MAX_DEPTH = 1000;
+
+        @Child private CallNode callNode = CallNode.create();
+        @Child private GetFixedAttributeNode getItemsNode;
+        @Child private BinaryComparisonNode ltNode;
+
+        @Specialization
+        PList call(PJSONEncoder self, Object obj, @SuppressWarnings("unused") Object indentLevel) {
+            return factory().createList(new Object[]{encode(self, obj)});
+        }
+
+        @TruffleBoundary
+        private String encode(PJSONEncoder self, Object obj) {
+            StringBuilder sb = new StringBuilder();
+            Set<Object> markers = self.isCheckCircular() ? Collections.newSetFromMap(new IdentityHashMap<>()) : null;
+            appendObject(self, sb, obj, markers, 0);
+            return sb.toString();
+        }
+
+        private void appendObject(PJSONEncoder self, StringBuilder sb, Object obj, Set<Object> markers, int depth) {
+            if (obj == PNone.NONE) {
+                sb.append("null");
+            } else if (obj instanceof Boolean) {
+                sb.append((boolean) obj ? "true" : "false");
+            } else if (isBoolean(obj)) {
+                sb.append(((PInt) obj).isZero() ? "false" : "true");
+            } else if (obj instanceof String) {
+                appendString(self, sb, (String) obj);
+            } else if (obj instanceof PString) {
+                appendString(self, sb, ((PString) obj).getValue());
+            } else if (obj instanceof Integer || obj instanceof Long) {
+                sb.append(obj);
+            } else if (obj instanceof PInt) {
+                sb.append(((PInt) obj).getValue());
+            } else if (obj instanceof Double) {
+                sb.append(encodeFloat(self, (double) obj));
+            } else if (obj instanceof PFloat) {
+                sb.append(encodeFloat(self, ((PFloat) obj).getValue()));
+            } else if (obj instanceof PList || obj instanceof PTuple) {
+                checkDepth(depth);
+                appendSequence(self, sb, (PSequence) obj, markers, depth + 1);
+            } else if (obj instanceof PDict) {
+                checkDepth(depth);
+                appendDict(self, sb, (PDict) obj, markers, depth + 1);
+            } else {
+                checkDepth(depth);
+                enter(markers, obj);
+                Object newObj = callNode.execute(null, self.getDefaultFn(), new Object[]{obj}, PKeyword.EMPTY_KEYWORDS);
+                appendObject(self, sb, newObj, markers, depth + 1);
+                exit(markers, obj);
+            }
+        }
+
+        private void appendSequence(PJSONEncoder self, StringBuilder sb, PSequence sequence, Set<Object> markers, int depth) {
+            if (sequence.getSequenceStorage().length() == 0) {
+                sb.append("[]");
+                return;
+            }
+            enter(markers, sequence);
+            sb.append('[');
+            // the storage is fetched again because 'default' may modify the list
+            for (int i = 0; i < sequence.getSequenceStorage().length(); i++) {
+                if (i > 0) {
+                    sb.append(self.getItemSeparator());
+                }
+                appendObject(self, sb, sequence.getSequenceStorage().getItemNormalized(i), markers, depth);
+            }
+            sb.append(']');
+            exit(markers, sequence);
+        }
+
+        private void appendDict(PJSONEncoder self, StringBuilder sb, PDict dict, Set<Object> markers, int depth) {
+            if (dict.size() == 0) {
+                sb.append("{}");
+                return;
+            }
+            enter(markers, dict);
+            Object[] keys;
+            Object[] values;
+            if (IsBuiltinClassProfile.profileClassSlowPath(dict.getLazyPythonClass(), PythonBuiltinClassType.PDict)) {
+                HashingStorage storage = dict.getDictStorage();
+                keys = new Object[storage.length()];
+                values = new Object[keys.length];
+                int i = 0;
+                for (DictEntry entry : storage.entries()) {
+                    keys[i] = entry.getKey();
+                    values[i] = entry.getValue();
+                    i++;
+                }
+            } else {
+                // subclasses may define their own order, so they are asked for their items
+                PList items = getItems(dict);
+                SequenceStorage storage = items.getSequenceStorage();
+                keys = new Object[storage.length()];
+                values = new Object[keys.length];
+                for (int i = 0; i < keys.length; i++) {
+                    Object item = storage.getItemNormalized(i);
+                    SequenceStorage pair = item instanceof PTuple ? ((PTuple) item).getSequenceStorage() : null;
+                    if (pair == null || pair.length() != 2) {
+                        throw raise(ValueError, "items must return 2-tuples");
+                    }
+                    keys[i] = pair.getItemNormalized(0);
+                    values[i] = pair.getItemNormalized(1);
+                }
+            }
+            if (self.isSortKeys()) {
+                new TimSort() {
+                    @Override
+                    protected boolean lessThan(Object a, Object b) {
+                        return CallEncoderNode.this.lessThan(a, b);
+                    }
+                }.sort(keys, values, keys.length);
+            }
+            sb.append('{');
+            boolean first = true;
+            for (int i = 0; i < keys.length; i++) {
+                String key = encodeKey(self, keys[i]);
+                if (key == null) {
+                    continue;
+                }
+                if (!first) {
+                    sb.append(self.getItemSeparator());
+                }
+                first = false;
+                appendString(self, sb, key);
+                sb.append(self.getKeySeparator());
+                appendObject(self, sb, values[i], markers, depth);
+            }
+            sb.append('}');
+            exit(markers, dict);
+        }
+
+        /**
+         * Converts a dict key to a string, or returns {@code null} if the key is skipped.
+         */
+        private String encodeKey(PJSONEncoder self, Object key) {
+            if (key instanceof String) {
+                return (String) key;
+            } else if (key instanceof PString) {
+                return ((PString) key).getValue();
+            } else if (key instanceof Double) {
+                return encodeFloat(self, (double) key);
+            } else if (key instanceof PFloat) {
+                return encodeFloat(self, ((PFloat) key).getValue());
+            } else if (key instanceof Boolean) {
+                return (boolean) key ? "true" : "false";
+            } else if (isBoolean(key)) {
+                return ((PInt) key).isZero() ? "false" : "true";
+            } else if (key == PNone.NONE) {
+                return "null";
+            } else if (key instanceof Integer || key instanceof Long) {
+                return key.toString();
+            } else if (key instanceof PInt) {
+                return ((PInt) key).getValue().toString();
+            } else if (self.isSkipKeys()) {
+                return null;
+            }
+            throw raise(TypeError, "keys must be str, int, float, bool or None, not %p", key);
+        }
+
+        private void appendString(PJSONEncoder self, StringBuilder sb, String s) {
+            switch (self.getFastEncode()) {
+                case ASCII:
+                    JSONUtils.appendStringAscii(sb, s);
+                    break;
+                case Unicode:
+                    JSONUtils.appendString(sb, s);
+                    break;
+                default:
+                    Object encoded = callNode.execute(null, self.getEncoder(), new Object[]{s}, PKeyword.EMPTY_KEYWORDS);
+                    if (encoded instanceof String) {
+                        sb.append((String) encoded);
+                    } else if (encoded instanceof PString) {
+                        sb.append(((PString) encoded).getValue());
+                    } else {
+                        throw raise(TypeError, "encoder() must return a string, not %p", encoded);
+                    }
+            }
+        }
+
+        private String encodeFloat(PJSONEncoder self, double value) {
+            if (!Double.isFinite(value)) {
+                if (!self.isAllowNan()) {
+                    throw raise(ValueError, "Out of range float values are not JSON compliant");
+                }
+                if (Double.isNaN(value)) {
+                    return "NaN";
+                }
+                return value > 0 ? "Infinity" : "-Infinity";
+            }
+            // the same as float.__repr__
+            InternalFormat.Spec spec = new InternalFormat.Spec(' ', '>', InternalFormat.Spec.NONE, false, InternalFormat.Spec.UNSPECIFIED, false, 0, 'r');
+            FloatFormatter formatter = new FloatFormatter(getCore(), spec);
+            formatter.setMinFracDigits(1);
+            return formatter.format(value).getResult();
+        }
+
+        private PList getItems(PDict dict) {
+            if (getItemsNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                getItemsNode = insert(GetFixedAttributeNode.create("items"));
+            }
+            Object items = callNode.execute(null, getItemsNode.executeObject(dict), new Object[0], PKeyword.EMPTY_KEYWORDS);
+            Object list = callNode.execute(null, getCore().lookupType(PythonBuiltinClassType.PList), new Object[]{items}, PKeyword.EMPTY_KEYWORDS);
+            return (PList) list;
+        }
+
+        private boolean lessThan(Object a, Object b) {
+            if (ltNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                ltNode = insert(BinaryComparisonNode.create(__LT__, __GT__, "<"));
+            }
+            return ltNode.executeBool(a, b);
+        }
+
+        /**
+         * {@code True} and {@code False} may also be {@code PInt} objects, which must not be
+         * encoded as {@code 1} and {@code 0}.
+         */
+        private static boolean isBoolean(Object obj) {
+            return obj instanceof PInt && IsBuiltinClassProfile.profileClassSlowPath(((PInt) obj).getLazyPythonClass(), PythonBuiltinClassType.Boolean);
+        }
+
+        private void checkDepth(int depth) {
+            if (depth >= MAX_DEPTH) {
+                throw raise(RecursionError, "maximum recursion depth exceeded while encoding a JSON object");
+            }
+        }
+
+        private void enter(Set<Object> markers, Object obj) {
+            if (markers != null && !markers.add(obj)) {
+                throw raise(ValueError, "Circular reference detected");
+            }
+        }
+
+        private static void exit(Set<Object> markers, Object obj) {
+            if (markers != null) {
+                markers.remove(obj);
+            }
+        }
+    }
+}
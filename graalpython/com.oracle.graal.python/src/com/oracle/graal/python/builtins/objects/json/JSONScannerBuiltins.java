@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.json;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__CALL__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.StopIteration;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.common.EconomicMapStorage;
+import com.oracle.graal.python.builtins.objects.common.HashingStorage;
+import com.oracle.graal.python.builtins.objects.dict.PDict;
+import com.oracle.graal.python.builtins.objects.exception.PBaseException;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.json.JSONUtils.DecodeError;
+import com.oracle.graal.python.builtins.objects.module.PythonModule;
+import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.util.CastToIndexNode;
+import com.oracle.graal.python.runtime.PythonContext;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Fallback;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PJSONScanner)
+public class JSONScannerBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return JSONScannerBuiltinsFactory.getFactories();
+    }
+
+    /**
+     * Raises {@code json.JSONDecodeError} for the given error, or a {@code ValueError} if the
+     * {@code json.decoder} module has not been imported.
+     */
+    public static PException raiseDecodeError(PythonBuiltinBaseNode node, CallNode callNode, String string, DecodeError error) {
+        Object errorType = lookupDecodeErrorType(node.getContext());
+        if (errorType == PNone.NO_VALUE) {
+            throw node.raise(ValueError, "%s: char %d", error.getMessage(), error.getPosition());
+        }
+        Object exception = callNode.execute(null, errorType, new Object[]{error.getMessage(), string, error.getPosition()}, PKeyword.EMPTY_KEYWORDS);
+        if (exception instanceof PBaseException) {
+            throw node.raise((PBaseException) exception);
+        }
+        throw node.raise(TypeError, "exceptions must derive from BaseException");
+    }
+
+    @TruffleBoundary
+    private static Object lookupDecodeErrorType(PythonContext context) {
+        Object decoder = context.getSysModules().getItem("json.decoder");
+        if (decoder instanceof PythonModule) {
+            return ((PythonModule) decoder).getAttribute("JSONDecodeError");
+        }
+        return PNone.NO_VALUE;
+    }
+
+    // scanner(string, idx)
+    @Builtin(name = __CALL__, minNumOfPositionalArgs = 3, parameterNames = {"self", "string", "idx"})
+    @GenerateNodeFactory
+    public abstract static class CallScannerNode extends PythonTernaryBuiltinNode {
+        @Child private CallNode callNode = CallNode.create();
+
+        @Specialization
+        Object doString(PJSONScanner self, String string, Object idx,
+                        @Cached("create()") CastToIndexNode castToIndexNode) {
+            int start = castToIndexNode.execute(idx);
+            if (start < 0) {
+                throw raise(ValueError, "idx cannot be negative");
+            }
+            int[] nextIndex = new int[1];
+            Object result;
+            try {
+                result = scanOnce(self, string, start, nextIndex, new HashMap<>());
+            } catch (DecodeError e) {
+                throw raiseDecodeError(this, callNode, string, e);
+            }
+            return factory().createTuple(new Object[]{result, nextIndex[0]});
+        }
+
+        @Specialization
+        Object doPString(PJSONScanner self, PString string, Object idx,
+                        @Cached("create()") CastToIndexNode castToIndexNode) {
+            return doString(self, string.getValue(), idx, castToIndexNode);
+        }
+
+        @Fallback
+        @SuppressWarnings("unused")
+        Object doOther(Object self, Object string, Object idx) {
+            throw raise(TypeError, "first argument must be a string, not %p", string);
+        }
+
+        /**
+         * Scans one JSON value starting at {@code idx} and stores the index after it in
+         * {@code nextIndex[0]}. Raises {@code StopIteration(idx)} if there is no value there, which
+         * {@code json.decoder} reports as "Expecting value".
+         */
+        @TruffleBoundary
+        private Object scanOnce(PJSONScanner self, String s, int idx, int[] nextIndex, HashMap<String, String> memo) throws DecodeError {
+            if (idx >= s.length()) {
+                throw raiseStopIteration(idx);
+            }
+            switch (s.charAt(idx)) {
+                case '"':
+                    return JSONUtils.scanString(s, idx + 1, self.isStrict(), nextIndex);
+                case '{':
+                    return parseObject(self, s, idx + 1, nextIndex, memo);
+                case '[':
+                    return parseArray(self, s, idx + 1, nextIndex, memo);
+                case 'n':
+                    if (s.startsWith("null", idx)) {
+                        nextIndex[0] = idx + 4;
+                        return PNone.NONE;
+                    }
+                    break;
+                case 't':
+                    if (s.startsWith("true", idx)) {
+                        nextIndex[0] = idx + 4;
+                        return true;
+                    }
+                    break;
+                case 'f':
+                    if (s.startsWith("false", idx)) {
+                        nextIndex[0] = idx + 5;
+                        return false;
+                    }
+                    break;
+                case 'N':
+                    if (s.startsWith("NaN", idx)) {
+                        return parseConstant(self, "NaN", idx, nextIndex);
+                    }
+                    break;
+                case 'I':
+                    if (s.startsWith("Infinity", idx)) {
+                        return parseConstant(self, "Infinity", idx, nextIndex);
+                    }
+                    break;
+                case '-':
+                    if (s.startsWith("-Infinity", idx)) {
+                        return parseConstant(self, "-Infinity", idx, nextIndex);
+                    }
+                    break;
+            }
+            return matchNumber(self, s, idx, nextIndex);
+        }
+
+        private Object parseObject(PJSONScanner self, String s, int start, int[] nextIndex, HashMap<String, String> memo) throws DecodeError {
+            Object objectPairsHook = self.getObjectPairsHook();
+            boolean usePairs = objectPairsHook != PNone.NONE;
+            ArrayList<Object> pairs = usePairs ? new ArrayList<>() : null;
+            HashingStorage storage = usePairs ? null : EconomicMapStorage.create(false);
+            int end = s.length();
+            int idx = skipWhitespace(s, start);
+            if (idx >= end || s.charAt(idx) != '}') {
+                while (true) {
+                    if (idx >= end || s.charAt(idx) != '"') {
+                        throw new DecodeError("Expecting property name enclosed in double quotes", idx);
+                    }
+                    String key = JSONUtils.scanString(s, idx + 1, self.isStrict(), nextIndex);
+                    // keys repeat a lot in real documents, so they share one string each
+                    String memoKey = memo.putIfAbsent(key, key);
+                    if (memoKey != null) {
+                        key = memoKey;
+                    }
+                    idx = skipWhitespace(s, nextIndex[0]);
+                    if (idx >= end || s.charAt(idx) != ':') {
+                        throw new DecodeError("Expecting ':' delimiter", idx);
+                    }
+                    idx = skipWhitespace(s, idx + 1);
+                    Object value = scanOnce(self, s, idx, nextIndex, memo);
+                    if (usePairs) {
+                        pairs.add(factory().createTuple(new Object[]{key, value}));
+                    } else {
+                        storage.setItem(key, value, HashingStorage.getSlowPathEquivalence(key));
+                    }
+                    idx = skipWhitespace(s, nextIndex[0]);
+                    if (idx < end && s.charAt(idx) == '}') {
+                        break;
+                    }
+                    if (idx >= end || s.charAt(idx) != ',') {
+                        throw new DecodeError("Expecting ',' delimiter", idx);
+                    }
+                    idx = skipWhitespace(s, idx + 1);
+                }
+            }
+            nextIndex[0] = idx + 1;
+            if (usePairs) {
+                return callNode.execute(null, objectPairsHook, new Object[]{factory().createList(pairs.toArray())}, PKeyword.EMPTY_KEYWORDS);
+            }
+            PDict dict = factory().createDict(storage);
+            Object objectHook = self.getObjectHook();
+            if (objectHook != PNone.NONE) {
+                return callNode.execute(null, objectHook, new Object[]{dict}, PKeyword.EMPTY_KEYWORDS);
+            }
+            return dict;
+        }
+
+        private Object parseArray(PJSONScanner self, String s, int start, int[] nextIndex, HashMap<String, String> memo) throws DecodeError {
+            ArrayList<Object> items = new ArrayList<>();
+            int end = s.length();
+            int idx = skipWhitespace(s, start);
+            if (idx >= end || s.charAt(idx) != ']') {
+                while (true) {
+                    items.add(scanOnce(self, s, idx, nextIndex, memo));
+                    idx = skipWhitespace(s, nextIndex[0]);
+                    if (idx < end && s.charAt(idx) == ']') {
+                        break;
+                    }
+                    if (idx >= end || s.charAt(idx) != ',') {
+                        throw new DecodeError("Expecting ',' delimiter", idx);
+                    }
+                    idx = skipWhitespace(s, idx + 1);
+                }
+            }
+            nextIndex[0] = idx + 1;
+            // picks an int, long or double storage when the items allow it
+            return factory().createList(items.toArray());
+        }
+
+        private Object parseConstant(PJSONScanner self, String constant, int idx, int[] nextIndex) {
+            nextIndex[0] = idx + constant.length();
+            return callNode.execute(null, self.getParseConstant(), new Object[]{constant}, PKeyword.EMPTY_KEYWORDS);
+        }
+
+        /**
+         * Matches a number with the grammar of CPython's {@code _match_number_unicode}.
+         */
+        private Object matchNumber(PJSONScanner self, String s, int start, int[] nextIndex) {
+            int end = s.length();
+            int idx = start;
+            if (s.charAt(idx) == '-') {
+                idx++;
+                if (idx >= end) {
+                    throw raiseStopIteration(start);
+                }
+            }
+            char c = s.charAt(idx);
+            if (c >= '1' && c <= '9') {
+                idx = skipDigits(s, idx + 1);
+            } else if (c == '0') {
+                idx++;
+            } else {
+                throw raiseStopIteration(start);
+            }
+            boolean isFloat = false;
+            if (idx + 1 < end && s.charAt(idx) == '.' && isDigit(s.charAt(idx + 1))) {
+                isFloat = true;
+                idx = skipDigits(s, idx + 2);
+            }
+            if (idx + 1 < end && (s.charAt(idx) == 'e' || s.charAt(idx) == 'E')) {
+                int exponentStart = idx;
+                idx++;
+                if (idx + 1 < end && (s.charAt(idx) == '-' || s.charAt(idx) == '+')) {
+                    idx++;
+                }
+                idx = skipDigits(s, idx);
+                if (isDigit(s.charAt(idx - 1))) {
+                    isFloat = true;
+                } else {
+                    idx = exponentStart;
+                }
+            }
+            nextIndex[0] = idx;
+            String number = s.substring(start, idx);
+            if (isFloat) {
+                if (self.isBuiltinParseFloat()) {
+                    return Double.parseDouble(number);
+                }
+                return callNode.execute(null, self.getParseFloat(), new Object[]{number}, PKeyword.EMPTY_KEYWORDS);
+            } else if (self.isBuiltinParseInt()) {
+                if (number.length() <= 18) {
+                    long value = Long.parseLong(number);
+                    if (value == (int) value) {
+                        return (int) value;
+                    }
+                    return value;
+                }
+                return factory().createInt(new BigInteger(number));
+            }
+            return callNode.execute(null, self.getParseInt(), new Object[]{number}, PKeyword.EMPTY_KEYWORDS);
+        }
+
+        private PException raiseStopIteration(int idx) {
+            return raise(factory().createBaseException(StopIteration, factory().createTuple(new Object[]{idx})));
+        }
+
+        private static int skipWhitespace(String s, int start) {
+            int idx = start;
+            while (idx < s.length() && JSONUtils.isWhitespace(s.charAt(idx))) {
+                idx++;
+            }
+            return idx;
+        }
+
+        private static int skipDigits(String s, int start) {
+            int idx = start;
+            while (idx < s.length() && isDigit(s.charAt(idx))) {
+                idx++;
+            }
+            return idx;
+        }
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.json;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * The string scanning and escaping routines of the {@code _json} module, following CPython's
+ * {@code Modules/_json.c}.
+ */
+public final class JSONUtils {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private JSONUtils() {
+    }
+
+    /**
+     * A malformed JSON document; converted to {@code json.JSONDecodeError} by the caller.
+     */
+    public static final class DecodeError extends Exception {
+        private static final long serialVersionUID = 2413186924394127473L;
+
+        private final int position;
+
+        public DecodeError(String message, int position) {
+            super(message);
+            this.position = position;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+        @SuppressWarnings("sync-override")
+        @Override
+        public Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    public static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    /**
+     * Decodes the JSON string starting after the opening quote at {@code end}. Returns the decoded
+     * string and stores the index after the closing quote in {@code nextIndex[0]}.
+     */
+    @TruffleBoundary
+    public static String scanString(String s, int end, boolean strict, int[] nextIndex) throws DecodeError {
+        int len = s.length();
+        int begin = end - 1;
+        StringBuilder sb = null;
+        int idx = end;
+        while (true) {
+            // find the end of the string or the next escape
+            char c = 0;
+            int next = idx;
+            for (; next < len; next++) {
+                c = s.charAt(next);
+                if (c == '"' || c == '\\') {
+                    break;
+                } else if (c <= 0x1f && strict) {
+                    throw new DecodeError("Invalid control character at", next);
+                }
+            }
+            if (next == len) {
+                throw new DecodeError("Unterminated string starting at", begin);
+            }
+            if (c == '"' && sb == null) {
+                // no escapes at all
+                nextIndex[0] = next + 1;
+                return s.substring(end, next);
+            }
+            if (sb == null) {
+                sb = new StringBuilder(next - end + 16);
+            }
+            sb.append(s, idx, next);
+            next++;
+            if (c == '"') {
+                nextIndex[0] = next;
+                return sb.toString();
+            }
+            if (next == len) {
+                throw new DecodeError("Unterminated string starting at", begin);
+            }
+            c = s.charAt(next);
+            if (c != 'u') {
+                idx = next + 1;
+                switch (c) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        break;
+                    case 'b':
+                        c = '\b';
+                        break;
+                    case 'f':
+                        c = '\f';
+                        break;
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                    case 't':
+                        c = '\t';
+                        break;
+                    default:
+                        throw new DecodeError("Invalid \\escape", idx - 2);
+                }
+                sb.append(c);
+            } else {
+                next++;
+                idx = next + 4;
+                if (idx >= len) {
+                    throw new DecodeError("Invalid \\uXXXX escape", next - 1);
+                }
+                int u = decodeHex(s, next, idx);
+                // a surrogate pair is joined, anything else is kept as is
+                if (Character.isHighSurrogate((char) u) && idx + 6 < len && s.charAt(idx) == '\\' && s.charAt(idx + 1) == 'u') {
+                    int u2 = decodeHex(s, idx + 2, idx + 6);
+                    if (Character.isLowSurrogate((char) u2)) {
+                        sb.append((char) u).append((char) u2);
+                        idx += 6;
+                        continue;
+                    }
+                }
+                sb.append((char) u);
+            }
+        }
+    }
+
+    private static int decodeHex(String s, int start, int end) throws DecodeError {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(s.charAt(i), 16);
+            if (digit < 0 || s.charAt(i) > 'f') {
+                throw new DecodeError("Invalid \\uXXXX escape", end - 5);
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    /**
+     * Appends {@code s} as a JSON string, escaping only quotes, backslashes and control
+     * characters ({@code encode_basestring}).
+     */
+    @TruffleBoundary
+    public static void appendString(StringBuilder sb, String s) {
+        sb.append('"');
+        int start = 0;
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\' || c < ' ') {
+                sb.append(s, start, i);
+                appendEscape(sb, c);
+                start = i + 1;
+            }
+        }
+        sb.append(s, start, len).append('"');
+    }
+
+    /**
+     * Appends {@code s} as a JSON string with all non-ASCII characters escaped
+     * ({@code encode_basestring_ascii}).
+     */
+    @TruffleBoundary
+    public static void appendStringAscii(StringBuilder sb, String s) {
+        sb.append('"');
+        int start = 0;
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\' || c < ' ' || c > '~') {
+                sb.append(s, start, i);
+                appendEscape(sb, c);
+                start = i + 1;
+            }
+        }
+        sb.append(s, start, len).append('"');
+    }
+
+    private static void appendEscape(StringBuilder sb, char c) {
+        sb.append('\\');
+        switch (c) {
+            case '"':
+            case '\\':
+                sb.append(c);
+                break;
+            case '\b':
+                sb.append('b');
+                break;
+            case '\f':
+                sb.append('f');
+                break;
+            case '\n':
+                sb.append('n');
+                break;
+            case '\r':
+                sb.append('r');
+                break;
+            case '\t':
+                sb.append('t');
+                break;
+            default:
+                // characters outside the BMP are already surrogate pairs in Java strings
+                sb.append('u').append(HEX[(c >> 12) & 0xf]).append(HEX[(c >> 8) & 0xf]).append(HEX[(c >> 4) & 0xf]).append(HEX[c & 0xf]);
+        }
+    }
+}
@@ -50,8 +50,10 @@ import static com.oracle.graal.python.runtime.exception.PythonErrorType.MemoryEr
 import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.List;
 
+import com.oracle.graal.python.PythonLanguage;
 import com.oracle.graal.python.builtins.Builtin;
 import com.oracle.graal.python.builtins.CoreFunctions;
 import com.oracle.graal.python.builtins.PythonBuiltinClassType;
@@ -62,6 +64,8 @@ import com.oracle.graal.python.builtins.objects.PNotImplemented;
 import com.oracle.graal.python.builtins.objects.common.IndexNodes.NormalizeIndexNode;
 import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes;
 import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes.ListGeneralizationNode;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.generator.PGenerator;
 import com.oracle.graal.python.builtins.objects.ints.PInt;
 import com.oracle.graal.python.builtins.objects.iterator.PDoubleSequenceIterator;
 import com.oracle.graal.python.builtins.objects.iterator.PIntegerSequenceIterator;
@@ -76,8 +80,10 @@ import com.oracle.graal.python.nodes.builtins.ListNodes;
 import com.oracle.graal.python.nodes.builtins.ListNodes.AppendNode;
 import com.oracle.graal.python.nodes.builtins.ListNodes.CreateStorageFromIteratorNode;
 import com.oracle.graal.python.nodes.builtins.ListNodes.IndexNode;
+import com.oracle.graal.python.nodes.call.CallNode;
 import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode;
 import com.oracle.graal.python.nodes.control.GetIteratorExpressionNode.GetIteratorNode;
+import com.oracle.graal.python.nodes.control.GetNextInliningNode;
 import com.oracle.graal.python.nodes.expression.BinaryComparisonNode;
 import com.oracle.graal.python.nodes.expression.CastToBooleanNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
@@ -86,7 +92,9 @@ import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
 import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
 import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
 import com.oracle.graal.python.nodes.object.GetLazyClassNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
 import com.oracle.graal.python.nodes.truffle.PythonArithmeticTypes;
+import com.oracle.graal.python.runtime.exception.PException;
 import com.oracle.graal.python.runtime.exception.PythonErrorType;
 import com.oracle.graal.python.runtime.sequence.PSequence;
 import com.oracle.graal.python.runtime.sequence.storage.DoubleSequenceStorage;
@@ -95,15 +103,21 @@ import com.oracle.graal.python.runtime.sequence.storage.IntSequenceStorage;
 import com.oracle.graal.python.runtime.sequence.storage.LongSequenceStorage;
 import com.oracle.graal.python.runtime.sequence.storage.ObjectSequenceStorage;
 import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorageFactory;
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.Truffle;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Fallback;
 import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.ImportStatic;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.dsl.TypeSystemReference;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.RootNode;
 import com.oracle.truffle.api.profiles.ConditionProfile;
+import com.oracle.truffle.api.source.SourceSection;
 
 @CoreFunctions(extendClasses = PythonBuiltinClassType.PList)
 public class ListBuiltins extends PythonBuiltins {
@@ -176,6 +190,33 @@ public class ListBuiltins extends PythonBuiltins {
             return PNone.NONE;
         }
 
+        /**
+         * A generator is consumed with the same bounded inlining of its body as in a {@code for}
+         * loop, so that {@code list(x for x in ...)} can be compiled into a single loop.
+         */
+        @Specialization
+        public PNone listGenerator(PList list, PGenerator iterable,
+                        @Cached("create()") GetNextInliningNode next,
+                        @Cached("create()") IsBuiltinClassProfile errorProfile) {
+            clearStorage(list);
+            Object[] elements = new Object[2];
+            int i = 0;
+            while (true) {
+                try {
+                    Object value = next.execute(iterable);
+                    if (i >= elements.length) {
+                        elements = Arrays.copyOf(elements, elements.length * 2);
+                    }
+                    elements[i++] = value;
+                } catch (PException e) {
+                    e.expectStopIteration(errorProfile);
+                    break;
+                }
+            }
+            list.setSequenceStorage(SequenceStorageFactory.createStorage(Arrays.copyOf(elements, i)));
+            return PNone.NONE;
+        }
+
         @Specialization(guards = {"!isNoValue(iterable)", "!isString(iterable)"})
         public PNone listIterable(PList list, Object iterable,
                         @Cached("create()") GetIteratorNode getIteratorNode,
@@ -712,6 +753,282 @@ public class ListBuiltins extends PythonBuiltins {
         }
     }
 
+    // list.sort(*, key=None, reverse=False)
+    @Builtin(name = "sort", minNumOfPositionalArgs = 1, parameterNames = {"self"}, varArgsMarker = true, keywordOnlyNames = {"key", "reverse"})
+    @GenerateNodeFactory
+    public abstract static class ListSortNode extends PythonBuiltinNode {
+
+        @Child private CastToBooleanNode castToBooleanNode;
+        @Child private CallNode callKeyNode;
+
+        /** Compares objects that have no fast path, see {@link LessThanRootNode}. */
+        private RootCallTarget lessThanTarget;
+
+        @Specialization(guards = {"isNoKey(key)", "isIntStorage(list)"})
+        PNone sortInt(PList list, @SuppressWarnings("unused") Object key, Object reverse) {
+            IntSequenceStorage storage = (IntSequenceStorage) list.getSequenceStorage();
+            sortInts(storage.getInternalIntArray(), storage.length(), isReverse(reverse));
+            return PNone.NONE;
+        }
+
+        @Specialization(guards = {"isNoKey(key)", "isLongStorage(list)"})
+        PNone sortLong(PList list, @SuppressWarnings("unused") Object key, Object reverse) {
+            LongSequenceStorage storage = (LongSequenceStorage) list.getSequenceStorage();
+            sortLongs(storage.getInternalLongArray(), storage.length(), isReverse(reverse));
+            return PNone.NONE;
+        }
+
+        @Specialization(guards = {"isNoKey(key)", "isDoubleStorage(list)"})
+        PNone sortDouble(VirtualFrame frame, PList list, Object key, Object reverse) {
+            DoubleSequenceStorage storage = (DoubleSequenceStorage) list.getSequenceStorage();
+            // Arrays.sort orders NaN and -0.0 differently than '<' does
+            if (!sortDoubles(storage.getInternalDoubleArray(), storage.length(), isReverse(reverse))) {
+                return sortGeneric(frame, list, key, reverse);
+            }
+            return PNone.NONE;
+        }
+
+        @Specialization
+        PNone sortGeneric(VirtualFrame frame, PList list, Object key, Object reverse) {
+            boolean isReverse = isReverse(reverse);
+            SequenceStorage storage = list.getSequenceStorage();
+            int n = storage.length();
+            Object[] items = getItems(storage, n);
+            // like in CPython, the list appears empty while the keys are computed and the items are
+            // sorted, so any change to it by a key function or comparison is detected
+            list.setSequenceStorage(EmptySequenceStorage.INSTANCE);
+            boolean modified;
+            try {
+                Object[] keys = items;
+                Object[] values = null;
+                if (!isNoKey(key)) {
+                    // the key function is called exactly once per item
+                    keys = new Object[n];
+                    for (int i = 0; i < n; i++) {
+                        keys[i] = getCallKeyNode().execute(frame, key, new Object[]{items[i]}, PKeyword.EMPTY_KEYWORDS);
+                    }
+                    values = items;
+                }
+                sort(keys, values, n, isReverse);
+            } finally {
+                modified = list.getSequenceStorage() != EmptySequenceStorage.INSTANCE;
+                setItems(storage, items, n);
+                list.setSequenceStorage(storage);
+            }
+            if (modified) {
+                throw raise(PythonErrorType.ValueError, "list modified during sort");
+            }
+            return PNone.NONE;
+        }
+
+        @TruffleBoundary
+        private void sort(Object[] keys, Object[] values, int n, boolean isReverse) {
+            // reversing before and after the sort keeps it stable for 'reverse=True'
+            if (isReverse) {
+                reverse(keys, n);
+                reverse(values, n);
+            }
+            try {
+                if (values == null && allStrings(keys, n)) {
+                    Arrays.sort(keys, 0, n, ListSortNode::compareStrings);
+                } else {
+                    new TimSort() {
+                        @Override
+                        protected boolean lessThan(Object a, Object b) {
+                            return ListSortNode.this.lessThan(a, b);
+                        }
+                    }.sort(keys, values, n);
+                }
+            } finally {
+                if (isReverse) {
+                    reverse(keys, n);
+                    reverse(values, n);
+                }
+            }
+        }
+
+        private boolean lessThan(Object a, Object b) {
+            if ((a instanceof Integer || a instanceof Long) && (b instanceof Integer || b instanceof Long)) {
+                return ((Number) a).longValue() < ((Number) b).longValue();
+            } else if (a instanceof Double && b instanceof Double) {
+                return (double) a < (double) b;
+            } else if (a instanceof String && b instanceof String) {
+                return compareStrings(a, b) < 0;
+            }
+            if (lessThanTarget == null) {
+                lessThanTarget = Truffle.getRuntime().createCallTarget(new LessThanRootNode());
+            }
+            return (boolean) lessThanTarget.call(a, b);
+        }
+
+        /**
+         * The sort runs behind a boundary, so comparing there directly would execute a user-defined
+         * {@code __lt__} in the interpreter. Instead, each sort call site compares through its own
+         * call target, which is compiled separately with the {@code __lt__} methods it sees
+         * inlined.
+         */
+        private static final class LessThanRootNode extends RootNode {
+            @Child private BinaryComparisonNode ltNode = BinaryComparisonNode.create(__LT__, __GT__, "<");
+
+            LessThanRootNode() {
+                super(PythonLanguage.getCurrent());
+            }
+
+            @Override
+            public Object execute(VirtualFrame frame) {
+                Object[] args = frame.getArguments();
+                return ltNode.executeBool(args[0], args[1]);
+            }
+
+            @Override
+            public SourceSection getSourceSection() {
+                return null;
+            }
+
+            @Override
+            public boolean isCloningAllowed() {
+                return true;
+            }
+        }
+
+        /**
+         * Compares two strings by code points, like Python does. {@link String#compareTo} compares
+         * UTF-16 units, which orders surrogate pairs before the characters from U+E000 to U+FFFF.
+         */
+        private static int compareStrings(Object a, Object b) {
+            String left = (String) a;
+            String right = (String) b;
+            int n = Math.min(left.length(), right.length());
+            for (int i = 0; i < n; i++) {
+                char c1 = left.charAt(i);
+                char c2 = right.charAt(i);
+                if (c1 != c2) {
+                    if (Character.isSurrogate(c1) != Character.isSurrogate(c2) && (c1 >= 0xE000 || c2 >= 0xE000)) {
+                        return Character.isSurrogate(c1) ? 1 : -1;
+                    }
+                    return c1 - c2;
+                }
+            }
+            return left.length() - right.length();
+        }
+
+        private static boolean allStrings(Object[] items, int n) {
+            for (int i = 0; i < n; i++) {
+                if (!(items[i] instanceof String)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static void reverse(Object[] array, int n) {
+            if (array != null) {
+                for (int i = 0, j = n - 1; i < j; i++, j--) {
+                    Object tmp = array[i];
+                    array[i] = array[j];
+                    array[j] = tmp;
+                }
+            }
+        }
+
+        @TruffleBoundary
+        private static Object[] getItems(SequenceStorage storage, int n) {
+            Object[] items = new Object[n];
+            for (int i = 0; i < n; i++) {
+                items[i] = storage.getItemNormalized(i);
+            }
+            return items;
+        }
+
+        @TruffleBoundary
+        private static void setItems(SequenceStorage storage, Object[] items, int n) {
+            for (int i = 0; i < n; i++) {
+                storage.setItemNormalized(i, items[i]);
+            }
+        }
+
+        @TruffleBoundary
+        private static void sortInts(int[] array, int n, boolean isReverse) {
+            Arrays.sort(array, 0, n);
+            if (isReverse) {
+                for (int i = 0, j = n - 1; i < j; i++, j--) {
+                    int tmp = array[i];
+                    array[i] = array[j];
+                    array[j] = tmp;
+                }
+            }
+        }
+
+        @TruffleBoundary
+        private static void sortLongs(long[] array, int n, boolean isReverse) {
+            Arrays.sort(array, 0, n);
+            if (isReverse) {
+                for (int i = 0, j = n - 1; i < j; i++, j--) {
+                    long tmp = array[i];
+                    array[i] = array[j];
+                    array[j] = tmp;
+                }
+            }
+        }
+
+        /**
+         * Sorts the array unless it contains NaN or -0.0, returning whether it was sorted.
+         */
+        @TruffleBoundary
+        private static boolean sortDoubles(double[] array, int n, boolean isReverse) {
+            for (int i = 0; i < n; i++) {
+                double d = array[i];
+                if (d != d || (d == 0.0 && Double.doubleToRawLongBits(d) != 0L)) {
+                    return false;
+                }
+            }
+            Arrays.sort(array, 0, n);
+            if (isReverse) {
+                for (int i = 0, j = n - 1; i < j; i++, j--) {
+                    double tmp = array[i];
+                    array[i] = array[j];
+                    array[j] = tmp;
+                }
+            }
+            return true;
+        }
+
+        private boolean isReverse(Object reverse) {
+            if (reverse instanceof PNone) {
+                return false;
+            }
+            if (castToBooleanNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                castToBooleanNode = insert(CastToBooleanNode.createIfTrueNode());
+            }
+            return castToBooleanNode.executeWith(reverse);
+        }
+
+        private CallNode getCallKeyNode() {
+            if (callKeyNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                callKeyNode = insert(CallNode.create());
+            }
+            return callKeyNode;
+        }
+
+        protected static boolean isNoKey(Object key) {
+            return key instanceof PNone;
+        }
+
+        protected static boolean isIntStorage(PList list) {
+            return list.getSequenceStorage() instanceof IntSequenceStorage;
+        }
+
+        protected static boolean isLongStorage(PList list) {
+            return list.getSequenceStorage() instanceof LongSequenceStorage;
+        }
+
+        protected static boolean isDoubleStorage(PList list) {
+            return list.getSequenceStorage() instanceof DoubleSequenceStorage;
+        }
+    }
+
     @Builtin(name = __LEN__, minNumOfPositionalArgs = 1)
     @GenerateNodeFactory
     public abstract static class LenNode extends PythonUnaryBuiltinNode {
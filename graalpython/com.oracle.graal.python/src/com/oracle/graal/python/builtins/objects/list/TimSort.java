@@ -0,0 +1,556 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.list;
+
+/**
+ * A stable TimSort that only relies on a "less than" comparison, as required for {@code list.sort}.
+ * Natural runs are detected and extended to a minimum length by binary insertion; runs are then
+ * merged following the usual stack invariants. Merges first trim the parts of both runs that are
+ * already in place, copy only the shorter run to a temporary array and switch to galloping when one
+ * run wins consistently. Unlike {@link java.util.Arrays#sort(Object[],
+ * java.util.Comparator)} it never rejects an inconsistent comparison, since Python code may define
+ * arbitrary {@code __lt__} methods.
+ *
+ * The sort permutes {@code keys} and, if given, the parallel {@code values} array in the same way.
+ */
+public abstract class TimSort {
+    private static final int MIN_MERGE = 32;
+    private static final int MAX_STACK = 85;
+    private static final int MIN_GALLOP = 7;
+
+    private Object[] keys;
+    private Object[] values;
+    private Object[] tmpKeys;
+    private Object[] tmpValues;
+    private final int[] runBase = new int[MAX_STACK];
+    private final int[] runLen = new int[MAX_STACK];
+    private int stackSize;
+    /** The threshold for entering the galloping mode, adapted while merging. */
+    private int minGallop;
+
+    /**
+     * Returns {@code true} if {@code a < b}.
+     */
+    protected abstract boolean lessThan(Object a, Object b);
+
+    public final void sort(Object[] sortKeys, Object[] sortValues, int n) {
+        if (n < 2) {
+            return;
+        }
+        this.keys = sortKeys;
+        this.values = sortValues;
+        this.stackSize = 0;
+        this.minGallop = MIN_GALLOP;
+        try {
+            int minRun = minRunLength(n);
+            int lo = 0;
+            int remaining = n;
+            do {
+                int len = countRunAndMakeAscending(lo, n);
+                if (len < minRun) {
+                    int force = Math.min(remaining, minRun);
+                    binaryInsertionSort(lo, lo + force, lo + len);
+                    len = force;
+                }
+                runBase[stackSize] = lo;
+                runLen[stackSize] = len;
+                stackSize++;
+                mergeCollapse();
+                lo += len;
+                remaining -= len;
+            } while (remaining != 0);
+            mergeForceCollapse();
+        } finally {
+            this.keys = null;
+            this.values = null;
+            this.tmpKeys = null;
+            this.tmpValues = null;
+        }
+    }
+
+    private static int minRunLength(int length) {
+        int n = length;
+        int r = 0;
+        while (n >= MIN_MERGE) {
+            r |= n & 1;
+            n >>= 1;
+        }
+        return n + r;
+    }
+
+    private int countRunAndMakeAscending(int lo, int hi) {
+        int runHi = lo + 1;
+        if (runHi == hi) {
+            return 1;
+        }
+        if (lessThan(keys[runHi++], keys[lo])) {
+            // strictly descending runs can be reversed without breaking stability
+            while (runHi < hi && lessThan(keys[runHi], keys[runHi - 1])) {
+                runHi++;
+            }
+            reverseRange(lo, runHi);
+        } else {
+            while (runHi < hi && !lessThan(keys[runHi], keys[runHi - 1])) {
+                runHi++;
+            }
+        }
+        return runHi - lo;
+    }
+
+    private void reverseRange(int from, int to) {
+        int lo = from;
+        int hi = to - 1;
+        while (lo < hi) {
+            Object t = keys[lo];
+            keys[lo] = keys[hi];
+            keys[hi] = t;
+            if (values != null) {
+                t = values[lo];
+                values[lo] = values[hi];
+                values[hi] = t;
+            }
+            lo++;
+            hi--;
+        }
+    }
+
+    private void binaryInsertionSort(int lo, int hi, int sortedHi) {
+        for (int start = sortedHi; start < hi; start++) {
+            Object pivot = keys[start];
+            Object pivotValue = values != null ? values[start] : null;
+            int left = lo;
+            int right = start;
+            while (left < right) {
+                int mid = (left + right) >>> 1;
+                if (lessThan(pivot, keys[mid])) {
+                    right = mid;
+                } else {
+                    left = mid + 1;
+                }
+            }
+            int n = start - left;
+            System.arraycopy(keys, left, keys, left + 1, n);
+            keys[left] = pivot;
+            if (values != null) {
+                System.arraycopy(values, left, values, left + 1, n);
+                values[left] = pivotValue;
+            }
+        }
+    }
+
+    private void mergeCollapse() {
+        while (stackSize > 1) {
+            int n = stackSize - 2;
+            if (n > 0 && runLen[n - 1] <= runLen[n] + runLen[n + 1] || n > 1 && runLen[n - 2] <= runLen[n] + runLen[n - 1]) {
+                if (runLen[n - 1] < runLen[n + 1]) {
+                    n--;
+                }
+            } else if (runLen[n] > runLen[n + 1]) {
+                break;
+            }
+            mergeAt(n);
+        }
+    }
+
+    private void mergeForceCollapse() {
+        while (stackSize > 1) {
+            int n = stackSize - 2;
+            if (n > 0 && runLen[n - 1] < runLen[n + 1]) {
+                n--;
+            }
+            mergeAt(n);
+        }
+    }
+
+    private void mergeAt(int i) {
+        int base1 = runBase[i];
+        int len1 = runLen[i];
+        int base2 = runBase[i + 1];
+        int len2 = runLen[i + 1];
+        runLen[i] = len1 + len2;
+        if (i == stackSize - 3) {
+            runBase[i + 1] = runBase[i + 2];
+            runLen[i + 1] = runLen[i + 2];
+        }
+        stackSize--;
+        // elements of the first run that are not greater than the first element of the second run
+        // are already in place
+        int k = gallopRight(keys[base2], keys, base1, len1, 0);
+        base1 += k;
+        len1 -= k;
+        if (len1 == 0) {
+            return;
+        }
+        // so are elements of the second run that are not smaller than the last element of the first
+        len2 = gallopLeft(keys[base1 + len1 - 1], keys, base2, len2, len2 - 1);
+        if (len2 == 0) {
+            return;
+        }
+        if (len1 <= len2) {
+            mergeLo(base1, len1, base2, len2);
+        } else {
+            mergeHi(base1, len1, base2, len2);
+        }
+    }
+
+    /**
+     * Returns the position {@code k} in the sorted range {@code a[base, base + n)} such that
+     * {@code a[base + k - 1] < key <= a[base + k]}, i.e., the leftmost position at which
+     * {@code key} can be inserted. The search starts at {@code base + hint} and gallops away from
+     * it in steps of increasing size before a final binary search.
+     */
+    private int gallopLeft(Object key, Object[] a, int base, int n, int hint) {
+        int lastOfs = 0;
+        int ofs = 1;
+        if (lessThan(a[base + hint], key)) {
+            // a[hint] < key: gallop right until a[hint + lastOfs] < key <= a[hint + ofs]
+            int maxOfs = n - hint;
+            while (ofs < maxOfs && lessThan(a[base + hint + ofs], key)) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0) {
+                    ofs = maxOfs;
+                }
+            }
+            if (ofs > maxOfs) {
+                ofs = maxOfs;
+            }
+            lastOfs += hint;
+            ofs += hint;
+        } else {
+            // key <= a[hint]: gallop left until a[hint - ofs] < key <= a[hint - lastOfs]
+            int maxOfs = hint + 1;
+            while (ofs < maxOfs && !lessThan(a[base + hint - ofs], key)) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0) {
+                    ofs = maxOfs;
+                }
+            }
+            if (ofs > maxOfs) {
+                ofs = maxOfs;
+            }
+            int tmp = lastOfs;
+            lastOfs = hint - ofs;
+            ofs = hint - tmp;
+        }
+        // now a[lastOfs] < key <= a[ofs]
+        lastOfs++;
+        while (lastOfs < ofs) {
+            int m = lastOfs + ((ofs - lastOfs) >>> 1);
+            if (lessThan(a[base + m], key)) {
+                lastOfs = m + 1;
+            } else {
+                ofs = m;
+            }
+        }
+        return ofs;
+    }
+
+    /**
+     * Like {@link #gallopLeft}, but returns the rightmost position at which {@code key} can be
+     * inserted, i.e., {@code a[base + k - 1] <= key < a[base + k]}.
+     */
+    private int gallopRight(Object key, Object[] a, int base, int n, int hint) {
+        int lastOfs = 0;
+        int ofs = 1;
+        if (lessThan(key, a[base + hint])) {
+            // key < a[hint]: gallop left until a[hint - ofs] <= key < a[hint - lastOfs]
+            int maxOfs = hint + 1;
+            while (ofs < maxOfs && lessThan(key, a[base + hint - ofs])) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0) {
+                    ofs = maxOfs;
+                }
+            }
+            if (ofs > maxOfs) {
+                ofs = maxOfs;
+            }
+            int tmp = lastOfs;
+            lastOfs = hint - ofs;
+            ofs = hint - tmp;
+        } else {
+            // a[hint] <= key: gallop right until a[hint + lastOfs] <= key < a[hint + ofs]
+            int maxOfs = n - hint;
+            while (ofs < maxOfs && !lessThan(key, a[base + hint + ofs])) {
+                lastOfs = ofs;
+                ofs = (ofs << 1) + 1;
+                if (ofs <= 0) {
+                    ofs = maxOfs;
+                }
+            }
+            if (ofs > maxOfs) {
+                ofs = maxOfs;
+            }
+            lastOfs += hint;
+            ofs += hint;
+        }
+        // now a[lastOfs] <= key < a[ofs]
+        lastOfs++;
+        while (lastOfs < ofs) {
+            int m = lastOfs + ((ofs - lastOfs) >>> 1);
+            if (lessThan(key, a[base + m])) {
+                ofs = m;
+            } else {
+                lastOfs = m + 1;
+            }
+        }
+        return ofs;
+    }
+
+    /**
+     * Merges two adjacent runs in place, going from left to right, where {@code len1 <= len2}.
+     * The first element of the second run must be smaller than the first element of the first run,
+     * and the last element of the first run must be greater than all elements of the second run.
+     * Only the first run is copied to the temporary array.
+     */
+    private void mergeLo(int base1, int len1, int base2, int len2) {
+        ensureCapacity(len1);
+        System.arraycopy(keys, base1, tmpKeys, 0, len1);
+        if (values != null) {
+            System.arraycopy(values, base1, tmpValues, 0, len1);
+        }
+        int cursor1 = 0;
+        int cursor2 = base2;
+        int dest = base1;
+        int n1 = len1;
+        int n2 = len2;
+        moveInPlace(cursor2++, dest++, 1);
+        n2--;
+        boolean completed = false;
+        try {
+            int gallop = minGallop;
+            outer: while (n2 > 0 && n1 > 1) {
+                int count1 = 0;
+                int count2 = 0;
+                // compare one element at a time until one run wins consistently
+                do {
+                    if (lessThan(keys[cursor2], tmpKeys[cursor1])) {
+                        moveInPlace(cursor2++, dest++, 1);
+                        count2++;
+                        count1 = 0;
+                        if (--n2 == 0) {
+                            break outer;
+                        }
+                    } else {
+                        moveFromTmp(cursor1++, dest++, 1);
+                        count1++;
+                        count2 = 0;
+                        if (--n1 == 1) {
+                            break outer;
+                        }
+                    }
+                } while (count1 < gallop && count2 < gallop);
+                // then gallop as long as that pays off
+                gallop++;
+                do {
+                    if (gallop > 1) {
+                        gallop--;
+                    }
+                    minGallop = gallop;
+                    count1 = gallopRight(keys[cursor2], tmpKeys, cursor1, n1, 0);
+                    if (count1 != 0) {
+                        moveFromTmp(cursor1, dest, count1);
+                        cursor1 += count1;
+                        dest += count1;
+                        n1 -= count1;
+                        // n1 == 0 is only possible with an inconsistent comparison
+                        if (n1 <= 1) {
+                            break outer;
+                        }
+                    }
+                    moveInPlace(cursor2++, dest++, 1);
+                    if (--n2 == 0) {
+                        break outer;
+                    }
+                    count2 = gallopLeft(tmpKeys[cursor1], keys, cursor2, n2, 0);
+                    if (count2 != 0) {
+                        moveInPlace(cursor2, dest, count2);
+                        cursor2 += count2;
+                        dest += count2;
+                        n2 -= count2;
+                        if (n2 == 0) {
+                            break outer;
+                        }
+                    }
+                    moveFromTmp(cursor1++, dest++, 1);
+                    if (--n1 == 1) {
+                        break outer;
+                    }
+                } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+                // penalize leaving the galloping mode
+                gallop++;
+                minGallop = gallop;
+            }
+            completed = true;
+        } finally {
+            if (completed && n1 == 1 && n2 > 0) {
+                // the last element of the first run goes to the end of the merged run
+                moveInPlace(cursor2, dest, n2);
+                moveFromTmp(cursor1, dest + n2, 1);
+            } else if (n1 > 0) {
+                // also if a comparison fails, the remaining elements of the first run fill exactly
+                // the gap left before the unconsumed part of the second run
+                moveFromTmp(cursor1, dest, n1);
+            }
+        }
+    }
+
+    /**
+     * Merges two adjacent runs in place, going from right to left, where {@code len1 > len2}. The
+     * same conditions as for {@link #mergeLo} apply. Only the second run is copied to the
+     * temporary array.
+     */
+    private void mergeHi(int base1, int len1, int base2, int len2) {
+        ensureCapacity(len2);
+        System.arraycopy(keys, base2, tmpKeys, 0, len2);
+        if (values != null) {
+            System.arraycopy(values, base2, tmpValues, 0, len2);
+        }
+        int cursor1 = base1 + len1 - 1;
+        int cursor2 = len2 - 1;
+        int dest = base2 + len2 - 1;
+        int n1 = len1;
+        int n2 = len2;
+        moveInPlace(cursor1--, dest--, 1);
+        n1--;
+        boolean completed = false;
+        try {
+            int gallop = minGallop;
+            outer: while (n1 > 0 && n2 > 1) {
+                int count1 = 0;
+                int count2 = 0;
+                do {
+                    if (lessThan(tmpKeys[cursor2], keys[cursor1])) {
+                        moveInPlace(cursor1--, dest--, 1);
+                        count1++;
+                        count2 = 0;
+                        if (--n1 == 0) {
+                            break outer;
+                        }
+                    } else {
+                        moveFromTmp(cursor2--, dest--, 1);
+                        count2++;
+                        count1 = 0;
+                        if (--n2 == 1) {
+                            break outer;
+                        }
+                    }
+                } while (count1 < gallop && count2 < gallop);
+                gallop++;
+                do {
+                    if (gallop > 1) {
+                        gallop--;
+                    }
+                    minGallop = gallop;
+                    count1 = n1 - gallopRight(tmpKeys[cursor2], keys, base1, n1, n1 - 1);
+                    if (count1 != 0) {
+                        dest -= count1;
+                        cursor1 -= count1;
+                        moveInPlace(cursor1 + 1, dest + 1, count1);
+                        n1 -= count1;
+                        if (n1 == 0) {
+                            break outer;
+                        }
+                    }
+                    moveFromTmp(cursor2--, dest--, 1);
+                    if (--n2 == 1) {
+                        break outer;
+                    }
+                    count2 = n2 - gallopLeft(keys[cursor1], tmpKeys, 0, n2, n2 - 1);
+                    if (count2 != 0) {
+                        dest -= count2;
+                        cursor2 -= count2;
+                        moveFromTmp(cursor2 + 1, dest + 1, count2);
+                        n2 -= count2;
+                        // n2 == 0 is only possible with an inconsistent comparison
+                        if (n2 <= 1) {
+                            break outer;
+                        }
+                    }
+                    moveInPlace(cursor1--, dest--, 1);
+                    if (--n1 == 0) {
+                        break outer;
+                    }
+                } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+                gallop++;
+                minGallop = gallop;
+            }
+            completed = true;
+        } finally {
+            if (completed && n2 == 1 && n1 > 0) {
+                // the first element of the second run goes to the front of the merged run
+                dest -= n1;
+                cursor1 -= n1;
+                moveInPlace(cursor1 + 1, dest + 1, n1);
+                moveFromTmp(cursor2, dest, 1);
+            } else if (n2 > 0) {
+                // the remaining elements of the second run fill the gap after the unconsumed part
+                // of the first run
+                moveFromTmp(0, dest - (n2 - 1), n2);
+            }
+        }
+    }
+
+    private void moveInPlace(int from, int to, int n) {
+        System.arraycopy(keys, from, keys, to, n);
+        if (values != null) {
+            System.arraycopy(values, from, values, to, n);
+        }
+    }
+
+    private void moveFromTmp(int from, int to, int n) {
+        System.arraycopy(tmpKeys, from, keys, to, n);
+        if (values != null) {
+            System.arraycopy(tmpValues, from, values, to, n);
+        }
+    }
+
+    private void ensureCapacity(int n) {
+        if (tmpKeys == null || tmpKeys.length < n) {
+            tmpKeys = new Object[n];
+            if (values != null) {
+                tmpValues = new Object[n];
+            }
+        }
+    }
+}
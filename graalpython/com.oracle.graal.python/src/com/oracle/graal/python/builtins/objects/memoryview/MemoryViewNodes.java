@@ -0,0 +1,529 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.memoryview;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.BufferError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.IndexError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.NotImplementedError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.nio.ByteOrder;
+
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.objects.array.PArray;
+import com.oracle.graal.python.builtins.objects.bytes.PIBytesLike;
+import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes;
+import com.oracle.graal.python.builtins.objects.mmap.PMMap;
+import com.oracle.graal.python.builtins.objects.slice.PSlice;
+import com.oracle.graal.python.builtins.objects.struct.StructFormat;
+import com.oracle.graal.python.builtins.objects.struct.StructFormat.FormatError;
+import com.oracle.graal.python.builtins.objects.struct.StructNodes.PackValuesNode;
+import com.oracle.graal.python.builtins.objects.struct.StructNodes.UnpackValuesNode;
+import com.oracle.graal.python.builtins.objects.tuple.PTuple;
+import com.oracle.graal.python.nodes.PNodeWithContext;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.nodes.util.CastToIndexNode;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.graal.python.runtime.object.PythonObjectFactory;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.DoubleSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.IntSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.LongSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Fallback;
+import com.oracle.truffle.api.dsl.ImportStatic;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+
+public abstract class MemoryViewNodes {
+    private static final boolean BIG_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+
+    /**
+     * Returns the format character of a native single-item format (optionally prefixed with
+     * {@code '@'}), or {@code 0} if the format is not supported by {@code memoryview}.
+     */
+    public static char getFormatChar(String format) {
+        int len = format.length();
+        if (len == 1 || (len == 2 && format.charAt(0) == '@')) {
+            char c = format.charAt(len - 1);
+            if (getItemSize(c) > 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    public static int getItemSize(char formatChar) {
+        switch (formatChar) {
+            case 'c':
+            case 'b':
+            case 'B':
+            case '?':
+                return 1;
+            case 'h':
+            case 'H':
+            case 'e':
+                return 2;
+            case 'i':
+            case 'I':
+            case 'f':
+                return 4;
+            case 'l':
+            case 'L':
+            case 'q':
+            case 'Q':
+            case 'n':
+            case 'N':
+            case 'd':
+            case 'P':
+                return 8;
+            default:
+                return -1;
+        }
+    }
+
+    /** Formats whose items are single bytes; only views of these may be cast to other formats. */
+    public static boolean isByteFormat(String format) {
+        char c = getFormatChar(format);
+        return c == 'B' || c == 'b' || c == 'c';
+    }
+
+    public abstract static class MemoryViewBaseNode extends PNodeWithContext {
+        @Child private PythonObjectFactory objectFactory;
+        @Child private PRaiseNode raiseNode;
+
+        protected final PythonObjectFactory factory() {
+            if (objectFactory == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                objectFactory = insert(PythonObjectFactory.create());
+            }
+            return objectFactory;
+        }
+
+        protected final PException raise(PythonBuiltinClassType type, String format, Object... arguments) {
+            if (raiseNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                raiseNode = insert(PRaiseNode.create());
+            }
+            return raiseNode.raise(type, format, arguments);
+        }
+
+        protected final void checkReleased(PMemoryView self) {
+            if (self.isReleased()) {
+                throw raise(ValueError, "operation forbidden on released memoryview object");
+            }
+        }
+
+        protected final StructFormat lookupFormat(String format) {
+            try {
+                return StructFormat.lookup(format);
+            } catch (FormatError e) {
+                throw raise(NotImplementedError, "memoryview: format %s not supported", format);
+            }
+        }
+    }
+
+    /**
+     * Copies {@code len} bytes starting at byte {@code offset} of the exporter's memory to
+     * {@code dst}.
+     */
+    @ImportStatic(MemoryViewNodes.class)
+    public abstract static class ReadBytesNode extends MemoryViewBaseNode {
+        public abstract void execute(Object owner, int offset, byte[] dst, int dstOffset, int len);
+
+        @Specialization(guards = "isByteStorage(owner)")
+        void doBytes(PIBytesLike owner, int offset, byte[] dst, int dstOffset, int len) {
+            ByteSequenceStorage storage = (ByteSequenceStorage) owner.getSequenceStorage();
+            checkBounds(storage.length(), offset, len);
+            System.arraycopy(storage.getInternalByteArray(), offset, dst, dstOffset, len);
+        }
+
+        @Specialization(guards = "!isByteStorage(owner)")
+        void doBytesGeneric(PIBytesLike owner, int offset, byte[] dst, int dstOffset, int len,
+                        @Cached("create()") SequenceStorageNodes.ToByteArrayNode toByteArrayNode) {
+            byte[] bytes = toByteArrayNode.execute(owner.getSequenceStorage());
+            checkBounds(bytes.length, offset, len);
+            System.arraycopy(bytes, offset, dst, dstOffset, len);
+        }
+
+        @Specialization
+        void doMMap(PMMap owner, int offset, byte[] dst, int dstOffset, int len) {
+            checkMMap(owner, offset, len);
+            owner.getBytes(offset, dst, dstOffset, len);
+        }
+
+        @Specialization
+        void doArray(PArray owner, int offset, byte[] dst, int dstOffset, int len) {
+            SequenceStorage storage = owner.getSequenceStorage();
+            checkBounds(storage.length() * getArrayItemSize(storage), offset, len);
+            readArray(storage, offset, dst, dstOffset, len);
+        }
+
+        @Fallback
+        void doError(Object owner, @SuppressWarnings("unused") int offset, @SuppressWarnings("unused") byte[] dst, @SuppressWarnings("unused") int dstOffset,
+                        @SuppressWarnings("unused") int len) {
+            throw raise(BufferError, "memoryview: cannot read the buffer of '%p'", owner);
+        }
+
+        public static ReadBytesNode create() {
+            return MemoryViewNodesFactory.ReadBytesNodeGen.create();
+        }
+    }
+
+    /**
+     * Copies {@code len} bytes of {@code src} to the exporter's memory starting at byte
+     * {@code offset}.
+     */
+    @ImportStatic(MemoryViewNodes.class)
+    public abstract static class WriteBytesNode extends MemoryViewBaseNode {
+        public abstract void execute(Object owner, int offset, byte[] src, int srcOffset, int len);
+
+        @Specialization(guards = "isByteStorage(owner)")
+        void doBytes(PIBytesLike owner, int offset, byte[] src, int srcOffset, int len) {
+            ByteSequenceStorage storage = (ByteSequenceStorage) owner.getSequenceStorage();
+            checkBounds(storage.length(), offset, len);
+            System.arraycopy(src, srcOffset, storage.getInternalByteArray(), offset, len);
+        }
+
+        @Specialization
+        void doMMap(PMMap owner, int offset, byte[] src, int srcOffset, int len) {
+            checkMMap(owner, offset, len);
+            owner.putBytes(offset, src, srcOffset, len);
+        }
+
+        @Specialization
+        void doArray(PArray owner, int offset, byte[] src, int srcOffset, int len) {
+            SequenceStorage storage = owner.getSequenceStorage();
+            checkBounds(storage.length() * getArrayItemSize(storage), offset, len);
+            writeArray(storage, offset, src, srcOffset, len);
+        }
+
+        @Fallback
+        void doError(Object owner, @SuppressWarnings("unused") int offset, @SuppressWarnings("unused") byte[] src, @SuppressWarnings("unused") int srcOffset,
+                        @SuppressWarnings("unused") int len) {
+            throw raise(BufferError, "memoryview: underlying buffer of '%p' is not writable", owner);
+        }
+
+        public static WriteBytesNode create() {
+            return MemoryViewNodesFactory.WriteBytesNodeGen.create();
+        }
+    }
+
+    /**
+     * Returns the items of a view as a new byte array in C order, like {@code tobytes()}.
+     */
+    public abstract static class ToJavaBytesNode extends MemoryViewBaseNode {
+        @Child private ReadBytesNode readBytesNode = ReadBytesNode.create();
+
+        public abstract byte[] execute(PMemoryView self);
+
+        @Specialization
+        byte[] doView(PMemoryView self,
+                        @Cached("createBinaryProfile()") ConditionProfile contiguousProfile) {
+            checkReleased(self);
+            byte[] result = new byte[self.getNBytes()];
+            if (contiguousProfile.profile(self.isCContiguous())) {
+                readBytesNode.execute(self.getOwner(), self.getOffset(), result, 0, result.length);
+            } else {
+                gather(self, 0, self.getOffset(), result, 0);
+            }
+            return result;
+        }
+
+        private int gather(PMemoryView self, int dim, int offset, byte[] dst, int dstOffset) {
+            if (dim == self.getDimensions()) {
+                readBytesNode.execute(self.getOwner(), offset, dst, dstOffset, self.getItemSize());
+                return dstOffset + self.getItemSize();
+            }
+            int next = dstOffset;
+            for (int i = 0; i < self.getShape()[dim]; i++) {
+                next = gather(self, dim + 1, offset + i * self.getStrides()[dim], dst, next);
+            }
+            return next;
+        }
+
+        public static ToJavaBytesNode create() {
+            return MemoryViewNodesFactory.ToJavaBytesNodeGen.create();
+        }
+    }
+
+    /**
+     * Unpacks the item stored at byte {@code offset} of the exporter's memory.
+     */
+    @ImportStatic(MemoryViewNodes.class)
+    public abstract static class ReadItemAtNode extends MemoryViewBaseNode {
+        @Child private ReadBytesNode readBytesNode = ReadBytesNode.create();
+
+        public abstract Object execute(PMemoryView self, int offset);
+
+        @Specialization(guards = "getFormatChar(self.getFormat()) == 'B'")
+        int doUnsignedByte(PMemoryView self, int offset) {
+            byte[] item = new byte[1];
+            readBytesNode.execute(self.getOwner(), offset, item, 0, 1);
+            return item[0] & 0xFF;
+        }
+
+        @Specialization(guards = "self.getFormat().equals(cachedFormat)", limit = "3")
+        Object doCached(PMemoryView self, int offset,
+                        @Cached("self.getFormat()") String cachedFormat,
+                        @Cached("lookupFormat(cachedFormat)") StructFormat structFormat,
+                        @Cached("create()") UnpackValuesNode unpackNode) {
+            byte[] item = new byte[structFormat.getSize()];
+            readBytesNode.execute(self.getOwner(), offset, item, 0, item.length);
+            return unpackNode.execute(structFormat, item, 0)[0];
+        }
+
+        @Specialization(replaces = "doCached")
+        Object doGeneric(PMemoryView self, int offset,
+                        @Cached("create()") UnpackValuesNode unpackNode) {
+            StructFormat structFormat = lookupFormat(self.getFormat());
+            byte[] item = new byte[structFormat.getSize()];
+            readBytesNode.execute(self.getOwner(), offset, item, 0, item.length);
+            return unpackNode.execute(structFormat, item, 0)[0];
+        }
+
+        public static ReadItemAtNode create() {
+            return MemoryViewNodesFactory.ReadItemAtNodeGen.create();
+        }
+    }
+
+    /**
+     * Packs {@code value} into the item stored at byte {@code offset} of the exporter's memory.
+     */
+    @ImportStatic(MemoryViewNodes.class)
+    public abstract static class WriteItemAtNode extends MemoryViewBaseNode {
+        @Child private WriteBytesNode writeBytesNode = WriteBytesNode.create();
+
+        public abstract void execute(PMemoryView self, int offset, Object value);
+
+        @Specialization(guards = "getFormatChar(self.getFormat()) == 'B'")
+        void doUnsignedByte(PMemoryView self, int offset, int value) {
+            if (value < 0 || value > 0xFF) {
+                throw raise(ValueError, "memoryview: invalid value for format 'B'");
+            }
+            writeBytesNode.execute(self.getOwner(), offset, new byte[]{(byte) value}, 0, 1);
+        }
+
+        @Specialization(guards = "self.getFormat().equals(cachedFormat)", limit = "3")
+        void doCached(PMemoryView self, int offset, Object value,
+                        @Cached("self.getFormat()") String cachedFormat,
+                        @Cached("lookupFormat(cachedFormat)") StructFormat structFormat,
+                        @Cached("create()") PackValuesNode packNode) {
+            byte[] item = new byte[structFormat.getSize()];
+            packNode.execute(structFormat, new Object[]{value}, 0, item, 0);
+            writeBytesNode.execute(self.getOwner(), offset, item, 0, item.length);
+        }
+
+        @Specialization(replaces = "doCached")
+        void doGeneric(PMemoryView self, int offset, Object value,
+                        @Cached("create()") PackValuesNode packNode) {
+            StructFormat structFormat = lookupFormat(self.getFormat());
+            byte[] item = new byte[structFormat.getSize()];
+            packNode.execute(structFormat, new Object[]{value}, 0, item, 0);
+            writeBytesNode.execute(self.getOwner(), offset, item, 0, item.length);
+        }
+
+        public static WriteItemAtNode create() {
+            return MemoryViewNodesFactory.WriteItemAtNodeGen.create();
+        }
+    }
+
+    /**
+     * Computes the byte offset of the item addressed by an integer index or a tuple of integer
+     * indices. Slices, the ellipsis and empty tuples are handled by the callers.
+     */
+    public static final class PointerLookupNode extends MemoryViewBaseNode {
+        @Child private CastToIndexNode castToIndexNode;
+
+        public int execute(PMemoryView self, Object index) {
+            int ndim = self.getDimensions();
+            if (index instanceof PTuple) {
+                SequenceStorage indices = ((PTuple) index).getSequenceStorage();
+                int n = indices.length();
+                for (int i = 0; i < n; i++) {
+                    if (indices.getItemNormalized(i) instanceof PSlice) {
+                        throw raise(NotImplementedError, "multi-dimensional slicing is not implemented");
+                    }
+                }
+                if (n < ndim) {
+                    throw raise(NotImplementedError, "sub-views are not implemented");
+                } else if (n > ndim) {
+                    throw raise(TypeError, "cannot index %d-dimension view with %d-element tuple", ndim, n);
+                }
+                int offset = self.getOffset();
+                for (int dim = 0; dim < n; dim++) {
+                    offset += lookupDimension(self, dim, indices.getItemNormalized(dim));
+                }
+                return offset;
+            }
+            if (ndim == 0) {
+                throw raise(TypeError, "invalid indexing of 0-dim memory");
+            } else if (ndim > 1) {
+                throw raise(NotImplementedError, "multi-dimensional sub-views are not implemented");
+            }
+            return self.getOffset() + lookupDimension(self, 0, index);
+        }
+
+        private int lookupDimension(PMemoryView self, int dim, Object indexObj) {
+            if (castToIndexNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                castToIndexNode = insert(CastToIndexNode.create());
+            }
+            int index = castToIndexNode.execute(indexObj);
+            int length = self.getShape()[dim];
+            if (index < 0) {
+                index += length;
+            }
+            if (index < 0 || index >= length) {
+                throw raise(IndexError, "index out of bounds on dimension %d", dim + 1);
+            }
+            return index * self.getStrides()[dim];
+        }
+
+        public static PointerLookupNode create() {
+            return new PointerLookupNode();
+        }
+    }
+
+    protected static boolean isByteStorage(PIBytesLike bytes) {
+        return bytes.getSequenceStorage() instanceof ByteSequenceStorage;
+    }
+
+    /**
+     * Returns the format of the items of an {@code array} with the given storage, or {@code null}
+     * if the memory of such arrays cannot be exported.
+     */
+    public static String getArrayFormat(SequenceStorage storage) {
+        if (storage instanceof ByteSequenceStorage) {
+            return "b";
+        } else if (storage instanceof IntSequenceStorage) {
+            return "i";
+        } else if (storage instanceof LongSequenceStorage) {
+            return "l";
+        } else if (storage instanceof DoubleSequenceStorage) {
+            return "d";
+        }
+        return null;
+    }
+
+    public static int getArrayItemSize(SequenceStorage storage) {
+        String format = getArrayFormat(storage);
+        return format != null ? getItemSize(format.charAt(0)) : 0;
+    }
+
+    private static void checkBounds(int length, int offset, int len) {
+        if (offset < 0 || offset + len > length) {
+            CompilerDirectives.transferToInterpreter();
+            throw PRaiseNode.getUncached().raise(BufferError, "memoryview: underlying buffer is smaller than the view");
+        }
+    }
+
+    private static void checkMMap(PMMap mmap, int offset, int len) {
+        if (mmap.isClosed()) {
+            CompilerDirectives.transferToInterpreter();
+            throw PRaiseNode.getUncached().raise(ValueError, "mmap closed or invalid");
+        }
+        checkBounds((int) Math.min(mmap.getLength(), Integer.MAX_VALUE), offset, len);
+    }
+
+    /*
+     * The items of typed array storages are accessed byte-wise in native byte order, so that the
+     * view sees the same memory layout as CPython's array module.
+     */
+
+    @TruffleBoundary
+    private static void readArray(SequenceStorage storage, int offset, byte[] dst, int dstOffset, int len) {
+        if (storage instanceof ByteSequenceStorage) {
+            System.arraycopy(((ByteSequenceStorage) storage).getInternalByteArray(), offset, dst, dstOffset, len);
+            return;
+        }
+        int itemsize = getArrayItemSize(storage);
+        for (int i = 0; i < len; i++) {
+            int byteIndex = offset + i;
+            dst[dstOffset + i] = (byte) (getArrayItemBits(storage, byteIndex / itemsize) >> byteShift(byteIndex % itemsize, itemsize));
+        }
+    }
+
+    @TruffleBoundary
+    private static void writeArray(SequenceStorage storage, int offset, byte[] src, int srcOffset, int len) {
+        if (storage instanceof ByteSequenceStorage) {
+            System.arraycopy(src, srcOffset, ((ByteSequenceStorage) storage).getInternalByteArray(), offset, len);
+            return;
+        }
+        int itemsize = getArrayItemSize(storage);
+        for (int i = 0; i < len; i++) {
+            int byteIndex = offset + i;
+            int index = byteIndex / itemsize;
+            int shift = byteShift(byteIndex % itemsize, itemsize);
+            long bits = getArrayItemBits(storage, index);
+            bits = (bits & ~(0xFFL << shift)) | ((src[srcOffset + i] & 0xFFL) << shift);
+            setArrayItemBits(storage, index, bits);
+        }
+    }
+
+    private static int byteShift(int byteInItem, int itemsize) {
+        return 8 * (BIG_ENDIAN ? itemsize - 1 - byteInItem : byteInItem);
+    }
+
+    private static long getArrayItemBits(SequenceStorage storage, int index) {
+        if (storage instanceof IntSequenceStorage) {
+            return ((IntSequenceStorage) storage).getIntItemNormalized(index);
+        } else if (storage instanceof LongSequenceStorage) {
+            return ((LongSequenceStorage) storage).getLongItemNormalized(index);
+        } else {
+            return Double.doubleToRawLongBits(((DoubleSequenceStorage) storage).getDoubleItemNormalized(index));
+        }
+    }
+
+    private static void setArrayItemBits(SequenceStorage storage, int index, long bits) {
+        if (storage instanceof IntSequenceStorage) {
+            ((IntSequenceStorage) storage).setIntItemNormalized(index, (int) bits);
+        } else if (storage instanceof LongSequenceStorage) {
+            ((LongSequenceStorage) storage).setLongItemNormalized(index, bits);
+        } else {
+            ((DoubleSequenceStorage) storage).setDoubleItemNormalized(index, Double.longBitsToDouble(bits));
+        }
+    }
+}
@@ -40,49 +40,631 @@
  */
 package com.oracle.graal.python.builtins.objects.memoryview;
 
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__ENTER__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__EQ__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__EXIT__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__GETITEM__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__HASH__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__LEN__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__REPR__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__SETITEM__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.NotImplementedError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.util.Arrays;
 import java.util.List;
 
 import com.oracle.graal.python.builtins.Builtin;
 import com.oracle.graal.python.builtins.CoreFunctions;
 import com.oracle.graal.python.builtins.PythonBuiltinClassType;
 import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PEllipsis;
 import com.oracle.graal.python.builtins.objects.PNone;
-import com.oracle.graal.python.nodes.attributes.ReadAttributeFromObjectNode;
-import com.oracle.graal.python.nodes.attributes.WriteAttributeToObjectNode;
+import com.oracle.graal.python.builtins.objects.PNotImplemented;
+import com.oracle.graal.python.builtins.objects.bytes.PIBytesLike;
+import com.oracle.graal.python.builtins.objects.common.SequenceNodes;
+import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes;
+import com.oracle.graal.python.builtins.objects.list.PList;
+import com.oracle.graal.python.builtins.objects.memoryview.MemoryViewNodes.PointerLookupNode;
+import com.oracle.graal.python.builtins.objects.memoryview.MemoryViewNodes.ReadItemAtNode;
+import com.oracle.graal.python.builtins.objects.memoryview.MemoryViewNodes.ToJavaBytesNode;
+import com.oracle.graal.python.builtins.objects.memoryview.MemoryViewNodes.WriteBytesNode;
+import com.oracle.graal.python.builtins.objects.memoryview.MemoryViewNodes.WriteItemAtNode;
+import com.oracle.graal.python.builtins.objects.slice.PSlice;
+import com.oracle.graal.python.builtins.objects.slice.PSlice.SliceInfo;
+import com.oracle.graal.python.builtins.objects.tuple.PTuple;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallBinaryNode;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode;
+import com.oracle.graal.python.nodes.expression.CastToBooleanNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
 import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.nodes.util.CastToIndexNode;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Fallback;
 import com.oracle.truffle.api.dsl.GenerateNodeFactory;
 import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.profiles.ConditionProfile;
 
 @CoreFunctions(extendClasses = PythonBuiltinClassType.PMemoryView)
 public class MemoryviewBuiltins extends PythonBuiltins {
-    private static final String C_MEMORYVIEW = "__c_memoryview";
 
     @Override
-    protected List<NodeFactory<SetCMemoryviewNode>> getNodeFactories() {
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
         return MemoryviewBuiltinsFactory.getFactories();
     }
 
-    @Builtin(name = C_MEMORYVIEW, minNumOfPositionalArgs = 1, maxNumOfPositionalArgs = 2, isGetter = true, isSetter = true)
+    static void checkReleased(PythonBuiltinBaseNode node, PMemoryView self) {
+        if (self.isReleased()) {
+            CompilerDirectives.transferToInterpreter();
+            throw node.raise(ValueError, "operation forbidden on released memoryview object");
+        }
+    }
+
+    /**
+     * Creates the view of the items selected by a slice of the first dimension. The new view
+     * shares the memory of {@code self}.
+     */
+    static PMemoryView slice(PythonBuiltinBaseNode node, PMemoryView self, PSlice slice) {
+        if (self.getDimensions() == 0) {
+            throw node.raise(TypeError, "invalid indexing of 0-dim memory");
+        }
+        SliceInfo info = slice.computeIndices(self.getShape()[0]);
+        int[] shape = self.getShape().clone();
+        int[] strides = self.getStrides().clone();
+        shape[0] = info.length;
+        strides[0] *= info.step;
+        int offset = self.getOffset() + info.start * self.getStrides()[0];
+        return node.factory().createMemoryView(PythonBuiltinClassType.PMemoryView, self.getOwner(), offset, self.getFormat(), self.getItemSize(), self.isReadOnly(), shape, strides);
+    }
+
+    @Builtin(name = __GETITEM__, minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    public abstract static class GetItemNode extends PythonBinaryBuiltinNode {
+        @Child private ReadItemAtNode readItemNode = ReadItemAtNode.create();
+
+        @Specialization
+        Object doSlice(PMemoryView self, PSlice slice) {
+            checkReleased(this, self);
+            return slice(this, self, slice);
+        }
+
+        @Specialization(guards = "isEllipsis(index) || isEmptyTuple(index)")
+        Object doSelf(PMemoryView self, Object index) {
+            checkReleased(this, self);
+            if (self.getDimensions() == 0 && index != PEllipsis.INSTANCE) {
+                return readItemNode.execute(self, self.getOffset());
+            }
+            return self;
+        }
+
+        @Specialization(guards = {"!isPSlice(index)", "!isEllipsis(index)", "!isEmptyTuple(index)"})
+        Object doIndex(PMemoryView self, Object index,
+                        @Cached("create()") PointerLookupNode pointerLookupNode) {
+            checkReleased(this, self);
+            return readItemNode.execute(self, pointerLookupNode.execute(self, index));
+        }
+
+        protected static boolean isEllipsis(Object index) {
+            return index == PEllipsis.INSTANCE;
+        }
+
+        protected static boolean isEmptyTuple(Object index) {
+            return index instanceof PTuple && ((PTuple) index).getSequenceStorage().length() == 0;
+        }
+    }
+
+    @Builtin(name = __SETITEM__, minNumOfPositionalArgs = 3)
+    @GenerateNodeFactory
+    public abstract static class SetItemNode extends PythonTernaryBuiltinNode {
+        @Child private WriteItemAtNode writeItemNode = WriteItemAtNode.create();
+
+        @Specialization
+        Object doSlice(PMemoryView self, PSlice slice, Object value,
+                        @Cached("create()") ToJavaBytesNode toJavaBytesNode,
+                        @Cached("create()") SequenceStorageNodes.ToByteArrayNode toByteArrayNode,
+                        @Cached("create()") WriteBytesNode writeBytesNode,
+                        @Cached("createBinaryProfile()") ConditionProfile contiguousProfile) {
+            checkWritable(self);
+            if (self.getDimensions() != 1) {
+                throw raise(NotImplementedError, "memoryview slice assignments are currently restricted to ndim = 1");
+            }
+            PMemoryView dest = slice(this, self, slice);
+            byte[] src;
+            int srcItems;
+            if (value instanceof PMemoryView) {
+                PMemoryView srcView = (PMemoryView) value;
+                checkReleased(this, srcView);
+                if (srcView.getDimensions() != 1 || MemoryViewNodes.getFormatChar(srcView.getFormat()) != MemoryViewNodes.getFormatChar(self.getFormat())) {
+                    throw raiseDifferentStructures();
+                }
+                // copy first; the source may overlap with the destination
+                src = toJavaBytesNode.execute(srcView);
+                srcItems = srcView.getShape()[0];
+            } else if (value instanceof PIBytesLike) {
+                if (MemoryViewNodes.getFormatChar(self.getFormat()) != 'B') {
+                    throw raiseDifferentStructures();
+                }
+                src = toByteArrayNode.execute(((PIBytesLike) value).getSequenceStorage());
+                srcItems = src.length;
+            } else {
+                throw raise(TypeError, "a bytes-like object is required, not '%p'", value);
+            }
+            int length = dest.getShape()[0];
+            if (srcItems != length) {
+                throw raiseDifferentStructures();
+            }
+            int itemsize = self.getItemSize();
+            int stride = dest.getStrides()[0];
+            if (contiguousProfile.profile(stride == itemsize)) {
+                writeBytesNode.execute(self.getOwner(), dest.getOffset(), src, 0, length * itemsize);
+            } else {
+                for (int i = 0; i < length; i++) {
+                    writeBytesNode.execute(self.getOwner(), dest.getOffset() + i * stride, src, i * itemsize, itemsize);
+                }
+            }
+            return PNone.NONE;
+        }
+
+        @Specialization(guards = "isEllipsis(index) || isEmptyTuple(index)")
+        Object doSelf(PMemoryView self, Object index, Object value) {
+            checkWritable(self);
+            if (self.getDimensions() != 0) {
+                throw raise(NotImplementedError, "memoryview assignments are currently restricted to ndim = 1");
+            }
+            writeItemNode.execute(self, self.getOffset(), value);
+            return PNone.NONE;
+        }
+
+        @Specialization(guards = {"!isPSlice(index)", "!isEllipsis(index)", "!isEmptyTuple(index)"})
+        Object doIndex(PMemoryView self, Object index, Object value,
+                        @Cached("create()") PointerLookupNode pointerLookupNode) {
+            checkWritable(self);
+            writeItemNode.execute(self, pointerLookupNode.execute(self, index), value);
+            return PNone.NONE;
+        }
+
+        private void checkWritable(PMemoryView self) {
+            checkReleased(this, self);
+            if (self.isReadOnly()) {
+                throw raise(TypeError, "cannot modify read-only memory");
+            }
+        }
+
+        private RuntimeException raiseDifferentStructures() {
+            return raise(ValueError, "memoryview assignment: lvalue and rvalue have different structures");
+        }
+
+        protected static boolean isEllipsis(Object index) {
+            return index == PEllipsis.INSTANCE;
+        }
+
+        protected static boolean isEmptyTuple(Object index) {
+            return index instanceof PTuple && ((PTuple) index).getSequenceStorage().length() == 0;
+        }
+    }
+
+    @Builtin(name = __LEN__, minNumOfPositionalArgs = 1)
     @GenerateNodeFactory
-    abstract static class SetCMemoryviewNode extends PythonBinaryBuiltinNode {
+    public abstract static class LenNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        int len(PMemoryView self) {
+            checkReleased(this, self);
+            if (self.getDimensions() == 0) {
+                throw raise(TypeError, "0-dim memory has no length");
+            }
+            return self.getShape()[0];
+        }
+    }
+
+    @Builtin(name = __REPR__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class ReprNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        @TruffleBoundary
+        String repr(PMemoryView self) {
+            if (self.isReleased()) {
+                return String.format("<released memory at 0x%x>", self.hashCode());
+            }
+            return String.format("<memory at 0x%x>", self.hashCode());
+        }
+    }
+
+    @Builtin(name = __EQ__, minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    public abstract static class EqNode extends PythonBinaryBuiltinNode {
+        @Child private ToJavaBytesNode toJavaBytesNode = ToJavaBytesNode.create();
+        @Child private TolistNode tolistNode;
+        @Child private LookupAndCallBinaryNode eqNode;
+        @Child private CastToBooleanNode castToBooleanNode;
+
+        @Specialization
+        boolean eq(PMemoryView self, PMemoryView other) {
+            if (self == other) {
+                return true;
+            }
+            if (self.isReleased() || other.isReleased()) {
+                return false;
+            }
+            if (!Arrays.equals(self.getShape(), other.getShape())) {
+                return false;
+            }
+            char format = MemoryViewNodes.getFormatChar(self.getFormat());
+            if (format != 0 && format == MemoryViewNodes.getFormatChar(other.getFormat()) && !isFloatFormat(format)) {
+                return Arrays.equals(toJavaBytesNode.execute(self), toJavaBytesNode.execute(other));
+            }
+            return compareItems(self, other);
+        }
+
+        @Specialization
+        boolean eq(PMemoryView self, PIBytesLike other,
+                        @Cached("create()") SequenceStorageNodes.ToByteArrayNode toByteArrayNode) {
+            if (self.isReleased() || self.getDimensions() != 1) {
+                return false;
+            }
+            byte[] otherBytes = toByteArrayNode.execute(other.getSequenceStorage());
+            if (self.getShape()[0] != otherBytes.length) {
+                return false;
+            }
+            if (MemoryViewNodes.getFormatChar(self.getFormat()) == 'B') {
+                return Arrays.equals(toJavaBytesNode.execute(self), otherBytes);
+            }
+            PMemoryView otherView = factory().createMemoryView(PythonBuiltinClassType.PMemoryView, other, 0, "B", 1, true, new int[]{otherBytes.length}, new int[]{1});
+            return compareItems(self, otherView);
+        }
+
+        @Fallback
+        @SuppressWarnings("unused")
+        Object eq(Object self, Object other) {
+            return PNotImplemented.NOT_IMPLEMENTED;
+        }
+
+        private boolean compareItems(PMemoryView self, PMemoryView other) {
+            if (tolistNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                tolistNode = insert(MemoryviewBuiltinsFactory.TolistNodeFactory.create(null));
+                eqNode = insert(LookupAndCallBinaryNode.create(__EQ__));
+                castToBooleanNode = insert(CastToBooleanNode.createIfTrueNode());
+            }
+            return castToBooleanNode.executeBoolean(null, eqNode.executeObject(tolistNode.execute(self), tolistNode.execute(other)));
+        }
+
+        private static boolean isFloatFormat(char format) {
+            return format == 'f' || format == 'd' || format == 'e';
+        }
+    }
+
+    @Builtin(name = __HASH__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class HashNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        Object hash(PMemoryView self,
+                        @Cached("create()") ToJavaBytesNode toJavaBytesNode,
+                        @Cached("create(__HASH__)") LookupAndCallUnaryNode callHashNode) {
+            checkReleased(this, self);
+            if (!self.isReadOnly()) {
+                throw raise(ValueError, "cannot hash writable memoryview object");
+            }
+            if (!MemoryViewNodes.isByteFormat(self.getFormat())) {
+                throw raise(ValueError, "memoryview: hashing is restricted to formats 'B', 'b' or 'c'");
+            }
+            return callHashNode.executeObject(factory().createBytes(toJavaBytesNode.execute(self)));
+        }
+    }
+
+    @Builtin(name = __ENTER__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class EnterNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        Object enter(PMemoryView self) {
+            checkReleased(this, self);
+            return self;
+        }
+    }
 
-        /*
-         * NOTE: DO NOT CHANGE THE NAME OF PROPERTY '__c_memoryview' it is also referenced in native
-         * code and Java code
-         */
-        @Specialization(guards = "isNoValue(value)")
-        Object set(Object self, @SuppressWarnings("unused") PNone value,
-                        @Cached("create()") ReadAttributeFromObjectNode readNode) {
-            return readNode.execute(self, C_MEMORYVIEW);
+    @Builtin(name = __EXIT__, minNumOfPositionalArgs = 4)
+    @GenerateNodeFactory
+    public abstract static class ExitNode extends PythonBuiltinNode {
+        @Specialization
+        Object exit(PMemoryView self, @SuppressWarnings("unused") Object type, @SuppressWarnings("unused") Object value, @SuppressWarnings("unused") Object traceback) {
+            self.release();
+            return PNone.NONE;
         }
+    }
 
-        @Specialization(guards = "!isNoValue(cmemoryview)")
-        PNone set(Object self, Object cmemoryview,
-                        @Cached("create()") WriteAttributeToObjectNode writeNode) {
-            writeNode.execute(self, C_MEMORYVIEW, cmemoryview);
+    @Builtin(name = "release", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class ReleaseNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        Object release(PMemoryView self) {
+            self.release();
             return PNone.NONE;
         }
     }
+
+    @Builtin(name = "tobytes", minNumOfPositionalArgs = 1, parameterNames = {"self", "order"})
+    @GenerateNodeFactory
+    public abstract static class TobytesNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        Object tobytes(PMemoryView self, @SuppressWarnings("unused") Object order,
+                        @Cached("create()") ToJavaBytesNode toJavaBytesNode) {
+            return factory().createBytes(toJavaBytesNode.execute(self));
+        }
+    }
+
+    @Builtin(name = "hex", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class HexNode extends PythonUnaryBuiltinNode {
+        private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+        @Specialization
+        String hex(PMemoryView self,
+                        @Cached("create()") ToJavaBytesNode toJavaBytesNode) {
+            return hex(toJavaBytesNode.execute(self));
+        }
+
+        @TruffleBoundary
+        private static String hex(byte[] bytes) {
+            char[] result = new char[bytes.length * 2];
+            for (int i = 0; i < bytes.length; i++) {
+                result[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+                result[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xF];
+            }
+            return new String(result);
+        }
+    }
+
+    @Builtin(name = "tolist", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class TolistNode extends PythonUnaryBuiltinNode {
+        @Child private ReadItemAtNode readItemNode = ReadItemAtNode.create();
+
+        public abstract Object execute(PMemoryView self);
+
+        @Specialization
+        Object tolist(PMemoryView self) {
+            checkReleased(this, self);
+            if (self.getDimensions() == 0) {
+                return readItemNode.execute(self, self.getOffset());
+            }
+            return tolist(self, 0, self.getOffset());
+        }
+
+        private PList tolist(PMemoryView self, int dim, int offset) {
+            int length = self.getShape()[dim];
+            int stride = self.getStrides()[dim];
+            Object[] items = new Object[length];
+            boolean last = dim == self.getDimensions() - 1;
+            for (int i = 0; i < length; i++) {
+                int itemOffset = offset + i * stride;
+                items[i] = last ? readItemNode.execute(self, itemOffset) : tolist(self, dim + 1, itemOffset);
+            }
+            return factory().createList(items);
+        }
+    }
+
+    @Builtin(name = "cast", minNumOfPositionalArgs = 2, parameterNames = {"self", "format", "shape"})
+    @GenerateNodeFactory
+    public abstract static class CastNode extends PythonTernaryBuiltinNode {
+        @Child private CastToIndexNode castToIndexNode;
+
+        @Specialization
+        PMemoryView cast(PMemoryView self, String format, @SuppressWarnings("unused") PNone shape) {
+            checkCast(self, format);
+            int itemsize = MemoryViewNodes.getItemSize(MemoryViewNodes.getFormatChar(format));
+            int nbytes = self.getNBytes();
+            if (nbytes % itemsize != 0) {
+                throw raise(TypeError, "memoryview: length is not a multiple of itemsize");
+            }
+            return create(self, format, itemsize, new int[]{nbytes / itemsize});
+        }
+
+        @Specialization(guards = "isListOrTuple(shapeObj)")
+        PMemoryView cast(PMemoryView self, String format, Object shapeObj,
+                        @Cached("create()") SequenceNodes.GetSequenceStorageNode getStorageNode) {
+            checkCast(self, format);
+            int itemsize = MemoryViewNodes.getItemSize(MemoryViewNodes.getFormatChar(format));
+            SequenceStorage storage = getStorageNode.execute(shapeObj);
+            int ndim = storage.length();
+            if (ndim > PMemoryView.MAX_DIM) {
+                throw raise(ValueError, "memoryview: number of dimensions must not exceed %d", PMemoryView.MAX_DIM);
+            }
+            if (self.getDimensions() != 1 && ndim != 1) {
+                throw raise(TypeError, "memoryview: cast must be 1D -> ND or ND -> 1D");
+            }
+            int[] shape = new int[ndim];
+            long product = itemsize;
+            for (int i = 0; i < ndim; i++) {
+                shape[i] = castToIndex(storage.getItemNormalized(i));
+                if (shape[i] <= 0) {
+                    throw raise(ValueError, "memoryview.cast(): elements of shape must be integers > 0");
+                }
+                product *= shape[i];
+                if (product > Integer.MAX_VALUE) {
+                    throw raise(ValueError, "memoryview.cast(): product(shape) > SSIZE_MAX");
+                }
+            }
+            if (product != self.getNBytes()) {
+                throw raise(TypeError, "memoryview: product(shape) * itemsize != buffer size");
+            }
+            return create(self, format, itemsize, shape);
+        }
+
+        @Specialization(guards = {"!isPNone(shapeObj)", "!isListOrTuple(shapeObj)"})
+        @SuppressWarnings("unused")
+        PMemoryView castError(PMemoryView self, String format, Object shapeObj) {
+            throw raise(TypeError, "shape must be a list or a tuple");
+        }
+
+        @Fallback
+        @SuppressWarnings("unused")
+        PMemoryView castError(Object self, Object format, Object shapeObj) {
+            throw raise(TypeError, "memoryview: format argument must be a string");
+        }
+
+        private void checkCast(PMemoryView self, String format) {
+            checkReleased(this, self);
+            if (!self.isCContiguous()) {
+                throw raise(TypeError, "memoryview: casts are restricted to C-contiguous views");
+            }
+            if (MemoryViewNodes.getFormatChar(format) == 0) {
+                throw raise(ValueError, "memoryview: destination format must be a native single character format prefixed with an optional '@'");
+            }
+            if (!MemoryViewNodes.isByteFormat(self.getFormat()) && !MemoryViewNodes.isByteFormat(format)) {
+                throw raise(TypeError, "memoryview: cannot cast between two non-byte formats");
+            }
+        }
+
+        private PMemoryView create(PMemoryView self, String format, int itemsize, int[] shape) {
+            return factory().createMemoryView(PythonBuiltinClassType.PMemoryView, self.getOwner(), self.getOffset(), format, itemsize, self.isReadOnly(), shape,
+                            PMemoryView.contiguousStrides(shape, itemsize));
+        }
+
+        private int castToIndex(Object value) {
+            if (castToIndexNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                castToIndexNode = insert(CastToIndexNode.create());
+            }
+            return castToIndexNode.execute(value);
+        }
+
+        protected static boolean isListOrTuple(Object obj) {
+            return obj instanceof PList || obj instanceof PTuple;
+        }
+    }
+
+    @Builtin(name = "obj", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class ObjNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        Object obj(PMemoryView self) {
+            checkReleased(this, self);
+            return self.getOwner();
+        }
+    }
+
+    @Builtin(name = "nbytes", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class NBytesNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        int nbytes(PMemoryView self) {
+            checkReleased(this, self);
+            return self.getNBytes();
+        }
+    }
+
+    @Builtin(name = "readonly", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class ReadonlyNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        boolean readonly(PMemoryView self) {
+            checkReleased(this, self);
+            return self.isReadOnly();
+        }
+    }
+
+    @Builtin(name = "itemsize", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class ItemsizeNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        int itemsize(PMemoryView self) {
+            checkReleased(this, self);
+            return self.getItemSize();
+        }
+    }
+
+    @Builtin(name = "format", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class FormatNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        String format(PMemoryView self) {
+            checkReleased(this, self);
+            return self.getFormat();
+        }
+    }
+
+    @Builtin(name = "ndim", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class NDimNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        int ndim(PMemoryView self) {
+            checkReleased(this, self);
+            return self.getDimensions();
+        }
+    }
+
+    @Builtin(name = "shape", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class ShapeNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        PTuple shape(PMemoryView self) {
+            checkReleased(this, self);
+            return factory().createTuple(toObjectArray(self.getShape()));
+        }
+    }
+
+    @Builtin(name = "strides", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class StridesNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        PTuple strides(PMemoryView self) {
+            checkReleased(this, self);
+            return factory().createTuple(toObjectArray(self.getStrides()));
+        }
+    }
+
+    @Builtin(name = "suboffsets", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class SuboffsetsNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        PTuple suboffsets(PMemoryView self) {
+            checkReleased(this, self);
+            return factory().createEmptyTuple();
+        }
+    }
+
+    @Builtin(name = "c_contiguous", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class CContiguousNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        boolean contiguous(PMemoryView self) {
+            checkReleased(this, self);
+            return self.isCContiguous();
+        }
+    }
+
+    @Builtin(name = "f_contiguous", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class FContiguousNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        boolean contiguous(PMemoryView self) {
+            checkReleased(this, self);
+            return self.isFortranContiguous();
+        }
+    }
+
+    @Builtin(name = "contiguous", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    public abstract static class ContiguousNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        boolean contiguous(PMemoryView self) {
+            checkReleased(this, self);
+            return self.isCContiguous() || self.isFortranContiguous();
+        }
+    }
+
+    private static Object[] toObjectArray(int[] values) {
+        Object[] result = new Object[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = values[i];
+        }
+        return result;
+    }
 }
@@ -42,11 +42,129 @@ package com.oracle.graal.python.builtins.objects.memoryview;
 
 import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
 import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 
-public class PMemoryView extends PythonBuiltinObject {
+/**
+ * A view of the memory of an exporting object ({@code bytes}, {@code bytearray}, {@code mmap},
+ * {@code array} or another buffer). The view does not copy the memory; it describes the items it
+ * covers by a byte offset into the exporter, the item format, and the shape and strides of each
+ * dimension.
+ */
+public final class PMemoryView extends PythonBuiltinObject {
+    public static final int MAX_DIM = 64;
+
+    private final Object owner;
+    private final int offset;
+    private final String format;
+    private final int itemsize;
+    private final boolean readonly;
+    @CompilationFinal(dimensions = 1) private final int[] shape;
+    @CompilationFinal(dimensions = 1) private final int[] strides;
+    private boolean released;
 
-    public PMemoryView(LazyPythonClass cls, @SuppressWarnings("unused") Object obj) {
+    public PMemoryView(LazyPythonClass cls, Object owner, int offset, String format, int itemsize, boolean readonly, int[] shape, int[] strides) {
         super(cls);
+        assert shape.length == strides.length;
+        this.owner = owner;
+        this.offset = offset;
+        this.format = format;
+        this.itemsize = itemsize;
+        this.readonly = readonly;
+        this.shape = shape;
+        this.strides = strides;
+    }
+
+    /** The exporting object, i.e., the {@code obj} attribute. */
+    public Object getOwner() {
+        return owner;
+    }
+
+    /** The offset of the first item in the exporter's memory, in bytes. */
+    public int getOffset() {
+        return offset;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public int getItemSize() {
+        return itemsize;
+    }
+
+    public boolean isReadOnly() {
+        return readonly;
+    }
+
+    public int getDimensions() {
+        return shape.length;
+    }
+
+    public int[] getShape() {
+        return shape;
     }
 
+    public int[] getStrides() {
+        return strides;
+    }
+
+    public boolean isReleased() {
+        return released;
+    }
+
+    public void release() {
+        released = true;
+    }
+
+    /** The number of items in the view. */
+    public int getItemCount() {
+        int count = 1;
+        for (int i = 0; i < shape.length; i++) {
+            count *= shape[i];
+        }
+        return count;
+    }
+
+    public int getNBytes() {
+        return getItemCount() * itemsize;
+    }
+
+    public boolean isCContiguous() {
+        if (getItemCount() == 0) {
+            return true;
+        }
+        int expected = itemsize;
+        for (int i = shape.length - 1; i >= 0; i--) {
+            if (shape[i] > 1 && strides[i] != expected) {
+                return false;
+            }
+            expected *= shape[i];
+        }
+        return true;
+    }
+
+    public boolean isFortranContiguous() {
+        if (getItemCount() == 0) {
+            return true;
+        }
+        int expected = itemsize;
+        for (int i = 0; i < shape.length; i++) {
+            if (shape[i] > 1 && strides[i] != expected) {
+                return false;
+            }
+            expected *= shape[i];
+        }
+        return true;
+    }
+
+    /** Returns the strides of a C-contiguous view with the given shape. */
+    public static int[] contiguousStrides(int[] shape, int itemsize) {
+        int[] strides = new int[shape.length];
+        int stride = itemsize;
+        for (int i = shape.length - 1; i >= 0; i--) {
+            strides[i] = stride;
+            stride *= shape[i];
+        }
+        return strides;
+    }
 }
@@ -58,9 +58,6 @@ import static com.oracle.graal.python.nodes.SpecialMethodNames.__RMUL__;
 import static com.oracle.graal.python.nodes.SpecialMethodNames.__STR__;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.channels.Channel;
-import java.nio.channels.SeekableByteChannel;
 import java.util.List;
 
 import com.oracle.graal.python.builtins.Builtin;
@@ -68,21 +65,12 @@ import com.oracle.graal.python.builtins.CoreFunctions;
 import com.oracle.graal.python.builtins.PythonBuiltinClassType;
 import com.oracle.graal.python.builtins.PythonBuiltins;
 import com.oracle.graal.python.builtins.objects.PNone;
-import com.oracle.graal.python.builtins.objects.bytes.AbstractBytesBuiltins.BytesLikeNoGeneralizationNode;
 import com.oracle.graal.python.builtins.objects.bytes.BytesNodes;
 import com.oracle.graal.python.builtins.objects.bytes.PBytes;
-import com.oracle.graal.python.builtins.objects.bytes.PIBytesLike;
-import com.oracle.graal.python.builtins.objects.common.SequenceNodes;
-import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes;
 import com.oracle.graal.python.builtins.objects.exception.OSErrorEnum;
-import com.oracle.graal.python.builtins.objects.ints.PInt;
-import com.oracle.graal.python.builtins.objects.memoryview.PMemoryView;
-import com.oracle.graal.python.builtins.objects.mmap.MMapBuiltinsFactory.InternalLenNodeGen;
 import com.oracle.graal.python.builtins.objects.slice.PSlice;
 import com.oracle.graal.python.builtins.objects.slice.PSlice.SliceInfo;
-import com.oracle.graal.python.nodes.PNodeWithContext;
-import com.oracle.graal.python.nodes.PRaiseNode;
-import com.oracle.graal.python.nodes.PRaiseOSErrorNode;
+import com.oracle.graal.python.nodes.PGuards;
 import com.oracle.graal.python.nodes.SpecialMethodNames;
 import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
@@ -93,13 +81,7 @@ import com.oracle.graal.python.nodes.truffle.PythonArithmeticTypes;
 import com.oracle.graal.python.nodes.util.CastToByteNode;
 import com.oracle.graal.python.nodes.util.CastToIndexNode;
 import com.oracle.graal.python.nodes.util.CastToJavaLongNode;
-import com.oracle.graal.python.nodes.util.ChannelNodes;
-import com.oracle.graal.python.nodes.util.ChannelNodes.ReadByteFromChannelNode;
-import com.oracle.graal.python.nodes.util.ChannelNodes.ReadFromChannelNode;
-import com.oracle.graal.python.nodes.util.ChannelNodes.WriteByteToChannelNode;
-import com.oracle.graal.python.nodes.util.ChannelNodes.WriteToChannelNode;
-import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
-import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.graal.python.runtime.exception.PException;
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Cached;
@@ -115,67 +97,21 @@ import com.oracle.truffle.api.profiles.ConditionProfile;
 public class MMapBuiltins extends PythonBuiltins {
 
     protected interface MMapBaseNode {
-        @TruffleBoundary
-        default long position(SeekableByteChannel ch) throws IOException {
-            return ch.position();
-        }
-
-        @TruffleBoundary
-        default void position(SeekableByteChannel ch, long offset) throws IOException {
-            ch.position(offset);
-        }
-
-        @TruffleBoundary
-        default long size(SeekableByteChannel ch) throws IOException {
-            return ch.size();
-        }
-    }
-
-    protected interface ByteReadingNode extends MMapBaseNode {
-
-        default ReadByteFromChannelNode createValueError(PRaiseNode raise) {
-            return ReadByteFromChannelNode.create(() -> new ChannelNodes.ReadByteErrorHandler() {
-
-                @Override
-                public int execute(Channel channel) {
-                    throw raise.raise(PythonBuiltinClassType.ValueError, "read byte out of range");
-                }
-            });
-        }
-
-        default ReadByteFromChannelNode createIndexError(PRaiseNode raise) {
-            return ReadByteFromChannelNode.create(() -> new ChannelNodes.ReadByteErrorHandler() {
-
-                @Override
-                public int execute(Channel channel) {
-                    throw raise.raise(PythonBuiltinClassType.IndexError, "mmap index out of range");
-                }
-            });
-
-        }
-    }
-
-    protected interface ByteWritingNode extends MMapBaseNode {
-
-        default WriteByteToChannelNode createValueError(PRaiseNode raise) {
-            return WriteByteToChannelNode.create(() -> new ChannelNodes.WriteByteErrorHandler() {
+        PException raise(PythonBuiltinClassType type, String format, Object... arguments);
 
-                @Override
-                public void execute(Channel channel, byte b) {
-                    throw raise.raise(PythonBuiltinClassType.ValueError, "write byte out of range");
-                }
-            });
+        default void checkValid(PMMap self) {
+            if (self.isClosed()) {
+                CompilerDirectives.transferToInterpreter();
+                throw raise(PythonBuiltinClassType.ValueError, "mmap closed or invalid");
+            }
         }
 
-        default WriteByteToChannelNode createIndexError(PRaiseNode raise) {
-            return WriteByteToChannelNode.create(() -> new ChannelNodes.WriteByteErrorHandler() {
-
-                @Override
-                public void execute(Channel channel, byte b) {
-                    throw raise.raise(PythonBuiltinClassType.IndexError, "mmap index out of range");
-                }
-            });
-
+        default void checkWritable(PMMap self) {
+            checkValid(self);
+            if (self.isReadonly()) {
+                CompilerDirectives.transferToInterpreter();
+                throw raise(PythonBuiltinClassType.TypeError, "mmap can't modify a readonly memory map.");
+            }
         }
     }
 
@@ -244,9 +180,10 @@ public class MMapBuiltins extends PythonBuiltins {
     abstract static class ReprNode extends StrNode {
     }
 
+
     @Builtin(name = __GETITEM__, minNumOfPositionalArgs = 2)
     @GenerateNodeFactory
-    public abstract static class GetItemNode extends PythonBuiltinNode implements ByteReadingNode {
+    public abstract static class GetItemNode extends PythonBuiltinNode implements MMapBaseNode {
 
         public abstract Object executeObject(VirtualFrame frame, PMMap self, Object idxObj);
 
@@ -255,56 +192,33 @@ public class MMapBuiltins extends PythonBuiltins {
         public abstract long executeLong(VirtualFrame frame, PMMap self, Object idxObj);
 
         @Specialization(guards = "!isPSlice(idxObj)")
-        int doSingle(VirtualFrame frame, PMMap self, Object idxObj,
-                        @SuppressWarnings("unused") @Cached PRaiseNode raise,
-                        @Cached("createIndexError(raise)") ReadByteFromChannelNode readByteNode,
+        int doSingle(PMMap self, Object idxObj,
                         @Cached("create()") CastToJavaLongNode castToLongNode,
-                        @Cached("create()") InternalLenNode lenNode) {
-
-            try {
-                long i = castToLongNode.execute(idxObj);
-                long len = lenNode.execute(frame, self);
-                SeekableByteChannel channel = self.getChannel();
-                long idx = i < 0 ? i + len : i;
-
-                // save current position
-                long oldPos = position(channel);
-
-                position(channel, idx);
-                int res = readByteNode.execute(channel) & 0xFF;
-
-                // restore position
-                position(channel, oldPos);
-
-                return res;
-
-            } catch (IOException e) {
-                throw raise(PythonBuiltinClassType.OSError, e);
+                        @Cached("createBinaryProfile()") ConditionProfile outOfRangeProfile) {
+            checkValid(self);
+            long i = castToLongNode.execute(idxObj);
+            long len = self.getLength();
+            long idx = i < 0 ? i + len : i;
+            if (outOfRangeProfile.profile(idx < 0 || idx >= len)) {
+                throw raise(PythonBuiltinClassType.IndexError, "mmap index out of range");
             }
+            return self.getByte(idx) & 0xFF;
         }
 
         @Specialization
-        Object doSlice(VirtualFrame frame, PMMap self, PSlice idx,
-                        @Cached("create()") ReadFromChannelNode readNode,
-                        @Cached("create()") InternalLenNode lenNode) {
-            try {
-                long len = lenNode.execute(frame, self);
-                SliceInfo info = idx.computeIndices(PInt.intValueExact(len));
-                SeekableByteChannel channel = self.getChannel();
-
-                // save current position
-                long oldPos = position(channel);
-
-                position(channel, info.start);
-                ByteSequenceStorage s = readNode.execute(channel, info.length);
-
-                // restore position
-                position(channel, oldPos);
-
-                return factory().createBytes(s);
-            } catch (IOException e) {
-                throw raise(PythonBuiltinClassType.OSError, e);
+        Object doSlice(PMMap self, PSlice idx,
+                        @Cached("createBinaryProfile()") ConditionProfile stepOneProfile) {
+            checkValid(self);
+            SliceInfo info = idx.computeIndices(clampedLength(self));
+            byte[] result = new byte[info.length];
+            if (stepOneProfile.profile(info.step == 1)) {
+                self.getBytes(info.start, result, 0, info.length);
+            } else {
+                for (int i = 0, j = info.start; i < info.length; i++, j += info.step) {
+                    result[i] = self.getByte(j);
+                }
             }
+            return factory().createBytes(result);
         }
 
         public static GetItemNode create() {
@@ -314,73 +228,42 @@ public class MMapBuiltins extends PythonBuiltins {
 
     @Builtin(name = SpecialMethodNames.__SETITEM__, minNumOfPositionalArgs = 3)
     @GenerateNodeFactory
-    abstract static class SetItemNode extends PythonBuiltinNode implements ByteWritingNode {
+    abstract static class SetItemNode extends PythonBuiltinNode implements MMapBaseNode {
 
         @Specialization(guards = "!isPSlice(idxObj)")
-        PNone doSingle(VirtualFrame frame, PMMap self, Object idxObj, Object val,
-                        @SuppressWarnings("unused") @Cached PRaiseNode raise,
-                        @Cached("createIndexError(raise)") WriteByteToChannelNode writeByteNode,
+        PNone doSingle(PMMap self, Object idxObj, Object val,
                         @Cached("create()") CastToJavaLongNode castToLongNode,
                         @Cached("createCoerce()") CastToByteNode castToByteNode,
-                        @Cached("create()") InternalLenNode lenNode,
                         @Cached("createBinaryProfile()") ConditionProfile outOfRangeProfile) {
-
-            try {
-                long i = castToLongNode.execute(idxObj);
-                long len = lenNode.execute(frame, self);
-                SeekableByteChannel channel = self.getChannel();
-                long idx = i < 0 ? i + len : i;
-
-                if (outOfRangeProfile.profile(idx < 0 || idx >= len)) {
-                    throw raise(PythonBuiltinClassType.IndexError, "mmap index out of range");
-                }
-
-                // save current position
-                long oldPos = position(channel);
-
-                position(channel, idx);
-                writeByteNode.execute(channel, castToByteNode.execute(val));
-
-                // restore position
-                position(channel, oldPos);
-
-                return PNone.NONE;
-
-            } catch (IOException e) {
-                throw raise(PythonBuiltinClassType.OSError, e);
+            checkWritable(self);
+            long i = castToLongNode.execute(idxObj);
+            long len = self.getLength();
+            long idx = i < 0 ? i + len : i;
+            if (outOfRangeProfile.profile(idx < 0 || idx >= len)) {
+                throw raise(PythonBuiltinClassType.IndexError, "mmap index out of range");
             }
+            self.putByte(idx, castToByteNode.execute(val));
+            return PNone.NONE;
         }
 
         @Specialization
-        PNone doSlice(VirtualFrame frame, PMMap self, PSlice idx, PIBytesLike val,
-                        @Cached("create()") WriteToChannelNode writeNode,
-                        @Cached("create()") SequenceNodes.GetSequenceStorageNode getStorageNode,
-                        @Cached("create()") InternalLenNode lenNode,
-                        @Cached("createBinaryProfile()") ConditionProfile invalidStepProfile) {
-
-            try {
-                long len = lenNode.execute(frame, self);
-                SliceInfo info = idx.computeIndices(PInt.intValueExact(len));
-                SeekableByteChannel channel = self.getChannel();
-
-                if (invalidStepProfile.profile(info.step != 1)) {
-                    throw raise(PythonBuiltinClassType.SystemError, "step != 1 not supported");
+        PNone doSlice(PMMap self, PSlice idx, Object val,
+                        @Cached("create()") BytesNodes.ToBytesNode toBytesNode,
+                        @Cached("createBinaryProfile()") ConditionProfile stepOneProfile) {
+            checkWritable(self);
+            SliceInfo info = idx.computeIndices(clampedLength(self));
+            byte[] data = toBytesNode.execute(val);
+            if (data.length != info.length) {
+                throw raise(PythonBuiltinClassType.IndexError, "mmap slice assignment is wrong size");
+            }
+            if (stepOneProfile.profile(info.step == 1)) {
+                self.putBytes(info.start, data, 0, info.length);
+            } else {
+                for (int i = 0, j = info.start; i < info.length; i++, j += info.step) {
+                    self.putByte(j, data[i]);
                 }
-
-                // save current position
-                long oldPos = position(channel);
-
-                position(channel, info.start);
-                writeNode.execute(channel, getStorageNode.execute(val), info.length);
-
-                // restore position
-                position(channel, oldPos);
-
-                return PNone.NONE;
-
-            } catch (IOException e) {
-                throw raise(PythonBuiltinClassType.OSError, e);
             }
+            return PNone.NONE;
         }
 
         protected static CastToByteNode createCoerce() {
@@ -390,11 +273,11 @@ public class MMapBuiltins extends PythonBuiltins {
 
     @Builtin(name = __LEN__, minNumOfPositionalArgs = 1)
     @GenerateNodeFactory
-    public abstract static class LenNode extends PythonBuiltinNode {
+    public abstract static class LenNode extends PythonUnaryBuiltinNode implements MMapBaseNode {
         @Specialization
-        long len(VirtualFrame frame, PMMap self,
-                        @Cached("create()") InternalLenNode lenNode) {
-            return lenNode.execute(frame, self);
+        long len(PMMap self) {
+            checkValid(self);
+            return self.getLength();
         }
     }
 
@@ -426,17 +309,12 @@ public class MMapBuiltins extends PythonBuiltins {
         @Specialization
         PNone doClose(PMMap self) {
             try {
-                close(self);
+                self.close();
             } catch (IOException e) {
                 // TODO(fa): ignore ?
             }
             return PNone.NONE;
         }
-
-        @TruffleBoundary
-        private static void close(PMMap self) throws IOException {
-            self.getChannel().close();
-        }
     }
 
     @Builtin(name = "closed", minNumOfPositionalArgs = 1, isGetter = true)
@@ -444,137 +322,140 @@ public class MMapBuiltins extends PythonBuiltins {
     abstract static class ClosedNode extends PythonUnaryBuiltinNode {
 
         @Specialization
-        @TruffleBoundary
         boolean close(PMMap self) {
-            return !self.getChannel().isOpen();
+            return self.isClosed();
         }
     }
 
     @Builtin(name = "size", minNumOfPositionalArgs = 1)
     @GenerateNodeFactory
-    abstract static class SizeNode extends PythonBuiltinNode {
+    abstract static class SizeNode extends PythonBuiltinNode implements MMapBaseNode {
 
         @Specialization
-        long size(VirtualFrame frame, PMMap self,
-                        @Cached("create()") InternalLenNode lenNode) {
-            return lenNode.execute(frame, self);
+        long size(VirtualFrame frame, PMMap self) {
+            checkValid(self);
+            if (self.getChannel() == null) {
+                return self.getLength();
+            }
+            try {
+                return size(self);
+            } catch (IOException e) {
+                throw raiseOSError(frame, OSErrorEnum.EIO, e);
+            }
+        }
+
+        @TruffleBoundary
+        private static long size(PMMap self) throws IOException {
+            return self.getChannel().size();
         }
     }
 
     @Builtin(name = "tell", minNumOfPositionalArgs = 1)
     @GenerateNodeFactory
-    abstract static class TellNode extends PythonBuiltinNode implements ByteReadingNode {
+    abstract static class TellNode extends PythonUnaryBuiltinNode implements MMapBaseNode {
         @Specialization
-        long readline(VirtualFrame frame, PMMap self) {
-            try {
-                SeekableByteChannel channel = self.getChannel();
-                return position(channel) - self.getOffset();
-            } catch (IOException e) {
-                throw raiseOSError(frame, OSErrorEnum.EIO, e);
-            }
+        long tell(PMMap self) {
+            checkValid(self);
+            return self.getPos();
         }
     }
 
     @Builtin(name = "read_byte", minNumOfPositionalArgs = 1)
     @GenerateNodeFactory
     @TypeSystemReference(PythonArithmeticTypes.class)
-    abstract static class ReadByteNode extends PythonUnaryBuiltinNode implements ByteReadingNode {
+    abstract static class ReadByteNode extends PythonUnaryBuiltinNode implements MMapBaseNode {
 
         @Specialization
-        int readByte(PMMap self,
-                        @SuppressWarnings("unused") @Cached PRaiseNode raise,
-                        @Cached("createValueError(raise)") ReadByteFromChannelNode readByteNode) {
-            return readByteNode.execute(self.getChannel());
+        int readByte(PMMap self) {
+            checkValid(self);
+            long pos = self.getPos();
+            if (pos >= self.getLength()) {
+                throw raise(PythonBuiltinClassType.ValueError, "read byte out of range");
+            }
+            self.setPos(pos + 1);
+            return self.getByte(pos) & 0xFF;
         }
     }
 
     @Builtin(name = "read", minNumOfPositionalArgs = 1, maxNumOfPositionalArgs = 2)
     @GenerateNodeFactory
     @TypeSystemReference(PythonArithmeticTypes.class)
-    abstract static class ReadNode extends PythonBuiltinNode {
+    abstract static class ReadNode extends PythonBuiltinNode implements MMapBaseNode {
 
         @Specialization
-        PBytes readUnlimited(PMMap self, @SuppressWarnings("unused") PNone n,
-                        @Cached("create()") ReadFromChannelNode readChannelNode) {
+        PBytes readUnlimited(PMMap self, @SuppressWarnings("unused") PNone n) {
             // intentionally accept NO_VALUE and NONE; both mean that we read unlimited amount of
             // bytes
-            ByteSequenceStorage res = readChannelNode.execute(self.getChannel(), ReadFromChannelNode.MAX_READ);
-            return factory().createBytes(res);
+            return read(self, Long.MAX_VALUE);
         }
 
         @Specialization(guards = "!isNoValue(n)")
         PBytes read(PMMap self, Object n,
-                        @Cached("create()") ReadFromChannelNode readChannelNode,
                         @Cached("create()") CastToIndexNode castToIndexNode,
                         @Cached("createBinaryProfile()") ConditionProfile negativeProfile) {
             int nread = castToIndexNode.execute(n);
             if (negativeProfile.profile(nread < 0)) {
-                return readUnlimited(self, PNone.NO_VALUE, readChannelNode);
+                return readUnlimited(self, PNone.NO_VALUE);
             }
-            ByteSequenceStorage res = readChannelNode.execute(self.getChannel(), nread);
-            return factory().createBytes(res);
+            return read(self, nread);
         }
 
+        private PBytes read(PMMap self, long n) {
+            checkValid(self);
+            long pos = self.getPos();
+            long remaining = Math.max(self.getLength() - pos, 0);
+            long nread = Math.min(n, remaining);
+            if (nread > Integer.MAX_VALUE) {
+                throw raise(PythonBuiltinClassType.OverflowError, "cannot fit %d bytes into a bytes object", nread);
+            }
+            byte[] result = new byte[(int) nread];
+            self.getBytes(pos, result, 0, result.length);
+            self.setPos(pos + nread);
+            return factory().createBytes(result);
+        }
     }
 
     @Builtin(name = "readline", minNumOfPositionalArgs = 1)
     @GenerateNodeFactory
-    abstract static class ReadlineNode extends PythonUnaryBuiltinNode implements ByteReadingNode {
+    abstract static class ReadlineNode extends PythonUnaryBuiltinNode implements MMapBaseNode {
 
-        @Specialization
-        Object readline(PMMap self,
-                        @Cached SequenceStorageNodes.AppendNode appendNode) {
+        private static final byte[] NEWLINE = new byte[]{'\n'};
 
-            try {
-                ByteBuffer buf = ByteBuffer.allocate(4096);
-                SeekableByteChannel channel = self.getChannel();
-                ByteSequenceStorage res = new ByteSequenceStorage(16);
-                // search for newline char
-                outer: while (readIntoBuffer(channel, buf) > 0) {
-                    buf.flip();
-                    while (buf.hasRemaining()) {
-                        byte b = buf.get();
-                        // CPython really tests for '\n' only
-                        if (b != (byte) '\n') {
-                            appendNode.execute(res, b, BytesLikeNoGeneralizationNode.SUPPLIER);
-                        } else {
-                            // recover correct position (i.e. number of remaining bytes in buffer)
-                            position(channel, position(channel) - buf.remaining() - 1);
-                            break outer;
-                        }
-                    }
-                    buf.clear();
-                }
-                return factory().createBytes(res);
-            } catch (IOException e) {
-                throw raise(PythonBuiltinClassType.OSError, e);
+        @Specialization
+        Object readline(PMMap self) {
+            checkValid(self);
+            long pos = self.getPos();
+            long len = self.getLength();
+            // CPython really tests for '\n' only
+            long eol = self.find(NEWLINE, 1, pos, len);
+            long end = eol < 0 ? len : eol + 1;
+            long nread = Math.max(end - pos, 0);
+            if (nread > Integer.MAX_VALUE) {
+                throw raise(PythonBuiltinClassType.OverflowError, "cannot fit %d bytes into a bytes object", nread);
             }
-        }
-
-        @TruffleBoundary(allowInlining = true)
-        private static int readIntoBuffer(SeekableByteChannel ch, ByteBuffer dst) throws IOException {
-            return ch.read(dst);
+            byte[] result = new byte[(int) nread];
+            self.getBytes(pos, result, 0, result.length);
+            self.setPos(pos + nread);
+            return factory().createBytes(result);
         }
     }
 
     @Builtin(name = "write", minNumOfPositionalArgs = 2)
     @GenerateNodeFactory
-    abstract static class WriteNode extends PythonBinaryBuiltinNode {
-
-        @Specialization
-        int writeBytesLike(PMMap self, PIBytesLike bytesLike,
-                        @Cached("create()") WriteToChannelNode writeNode,
-                        @Cached("create()") SequenceNodes.GetSequenceStorageNode getStorageNode) {
-            SeekableByteChannel channel = self.getChannel();
-            return writeNode.execute(channel, getStorageNode.execute(bytesLike), Integer.MAX_VALUE);
-        }
+    abstract static class WriteNode extends PythonBinaryBuiltinNode implements MMapBaseNode {
 
         @Specialization
-        int writeMemoryview(PMMap self, PMemoryView memoryView,
-                        @Cached("create()") WriteToChannelNode writeNode,
+        int write(PMMap self, Object data,
                         @Cached("create()") BytesNodes.ToBytesNode toBytesNode) {
-            byte[] data = toBytesNode.execute(memoryView);
-            return writeNode.execute(self.getChannel(), new ByteSequenceStorage(data), Integer.MAX_VALUE);
+            checkWritable(self);
+            byte[] bytes = toBytesNode.execute(data);
+            long pos = self.getPos();
+            if (pos > self.getLength() || self.getLength() - pos < bytes.length) {
+                throw raise(PythonBuiltinClassType.ValueError, "data out of range");
+            }
+            self.putBytes(pos, bytes, 0, bytes.length);
+            self.setPos(pos + bytes.length);
+            return bytes.length;
         }
     }
 
@@ -587,46 +468,36 @@ public class MMapBuiltins extends PythonBuiltins {
         private final BranchProfile errorProfile = BranchProfile.create();
 
         @Specialization(guards = "isNoValue(how)")
-        Object seek(VirtualFrame frame, PMMap self, long dist, @SuppressWarnings("unused") PNone how) {
-            return seek(frame, self, dist, 0);
+        Object seek(PMMap self, long dist, @SuppressWarnings("unused") PNone how) {
+            return seek(self, dist, 0);
         }
 
         @Specialization
-        Object seek(VirtualFrame frame, PMMap self, long dist, Object how) {
-            try {
-                SeekableByteChannel channel = self.getChannel();
-                long size;
-                if (self.getLength() == 0) {
-                    size = size(channel) - self.getOffset();
-                } else {
-                    size = self.getLength();
-                }
-                long where;
-                int ihow = castToInt(how);
-                switch (ihow) {
-                    case 0: /* relative to start */
-                        where = dist;
-                        break;
-                    case 1: /* relative to current position */
-                        where = position(channel) + dist;
-                        break;
-                    case 2: /* relative to end */
-                        where = size + dist;
-                        break;
-                    default:
-                        errorProfile.enter();
-                        throw raise(PythonBuiltinClassType.ValueError, "unknown seek type");
-                }
-                if (where > size || where < 0) {
+        Object seek(PMMap self, long dist, Object how) {
+            checkValid(self);
+            long size = self.getLength();
+            long where;
+            int ihow = castToInt(how);
+            switch (ihow) {
+                case 0: /* relative to start */
+                    where = dist;
+                    break;
+                case 1: /* relative to current position */
+                    where = self.getPos() + dist;
+                    break;
+                case 2: /* relative to end */
+                    where = size + dist;
+                    break;
+                default:
                     errorProfile.enter();
-                    throw raise(PythonBuiltinClassType.ValueError, "seek out of range");
-                }
-                position(channel, where);
-                return PNone.NONE;
-            } catch (IOException e) {
+                    throw raise(PythonBuiltinClassType.ValueError, "unknown seek type");
+            }
+            if (where > size || where < 0) {
                 errorProfile.enter();
-                throw raiseOSError(frame, OSErrorEnum.EIO, e);
+                throw raise(PythonBuiltinClassType.ValueError, "seek out of range");
             }
+            self.setPos(where);
+            return PNone.NONE;
         }
 
         private int castToInt(Object val) {
@@ -641,153 +512,90 @@ public class MMapBuiltins extends PythonBuiltins {
     @Builtin(name = "find", minNumOfPositionalArgs = 2, maxNumOfPositionalArgs = 4)
     @GenerateNodeFactory
     @TypeSystemReference(PythonArithmeticTypes.class)
-    public abstract static class FindNode extends PythonBuiltinNode implements ByteReadingNode {
+    public abstract static class FindNode extends PythonBuiltinNode implements MMapBaseNode {
 
-        @Child private SequenceStorageNodes.GetItemNode getRightItemNode;
+        @Child private CastToJavaLongNode castToLongNode;
 
         public abstract long execute(PMMap bytes, Object sub, Object starting, Object ending);
 
         @Specialization
-        long find(PMMap primary, PIBytesLike sub, Object starting, Object ending,
-                        @SuppressWarnings("unused") @Cached PRaiseNode raise,
-                        @Cached("createValueError(raise)") ReadByteFromChannelNode readByteNode) {
-            try {
-                SeekableByteChannel channel = primary.getChannel();
-                long len1 = size(channel);
-
-                SequenceStorage needle = sub.getSequenceStorage();
-                int len2 = needle.length();
-
-                long s = castToLong(starting, 0);
-                long e = castToLong(ending, len1);
-
-                long start = s < 0 ? s + len1 : s;
-                long end = e < 0 ? e + len1 : e;
-
-                if (start >= len1 || len1 < len2) {
-                    return -1;
-                } else if (end > len1) {
-                    end = len1;
-                }
-
-                // TODO implement a more efficient algorithm
-                outer: for (long i = start; i < end; i++) {
-                    // TODO(fa) don't seek but use circular buffer
-                    position(channel, i);
-                    for (int j = 0; j < len2; j++) {
-                        int hb = readByteNode.execute(channel);
-                        int nb = getGetRightItemNode().executeInt(needle, j);
-                        if (nb != hb || i + j >= end) {
-                            continue outer;
-                        }
-                    }
-                    return i;
-                }
-                return -1;
-            } catch (IOException e) {
-                throw raise(PythonBuiltinClassType.OSError, e);
-            }
+        long find(PMMap primary, long sub, Object starting, Object ending,
+                        @Cached("create()") CastToByteNode castToByteNode) {
+            return find(primary, new byte[]{castToByteNode.execute(sub)}, starting, ending);
         }
 
-        @Specialization
-        long find(PMMap primary, int sub, Object starting, @SuppressWarnings("unused") Object ending,
-                        @SuppressWarnings("unused") @Cached PRaiseNode raise,
-                        @Cached("createValueError(raise)") ReadByteFromChannelNode readByteNode) {
-            try {
-                SeekableByteChannel channel = primary.getChannel();
-                long len1 = size(channel);
-
-                long s = castToLong(starting, 0);
-                long e = castToLong(ending, len1);
-
-                long start = s < 0 ? s + len1 : s;
-                long end = Math.max(e < 0 ? e + len1 : e, len1);
-
-                position(channel, start);
+        @Specialization(guards = "!isInteger(sub)")
+        long find(PMMap primary, Object sub, Object starting, Object ending,
+                        @Cached("create()") BytesNodes.ToBytesNode toBytesNode) {
+            return find(primary, toBytesNode.execute(sub), starting, ending);
+        }
 
-                for (long i = start; i < end; i++) {
-                    int hb = readByteNode.execute(channel);
-                    if (hb == sub) {
-                        return i;
-                    }
-                }
-                return -1;
-            } catch (IOException e) {
-                throw raise(PythonBuiltinClassType.OSError, e);
-            }
+        private long find(PMMap primary, byte[] needle, Object starting, Object ending) {
+            checkValid(primary);
+            long len = primary.getLength();
+            long start = clamp(castToLong(starting, primary.getPos()), len);
+            long end = clamp(castToLong(ending, len), len);
+            return primary.find(needle, needle.length, start, end);
         }
 
-        // TODO(fa): use node
-        private static long castToLong(Object obj, long defaultVal) {
-            if (obj instanceof Integer || obj instanceof Long) {
-                return ((Number) obj).longValue();
-            } else if (obj instanceof PInt) {
-                try {
-                    return ((PInt) obj).longValueExact();
-                } catch (ArithmeticException e) {
-                    return defaultVal;
-                }
+        private static long clamp(long idx, long len) {
+            if (idx < 0) {
+                return Math.max(idx + len, 0);
             }
-            return defaultVal;
+            return Math.min(idx, len);
         }
 
-        private SequenceStorageNodes.GetItemNode getGetRightItemNode() {
-            if (getRightItemNode == null) {
+        private long castToLong(Object obj, long defaultVal) {
+            if (PGuards.isPNone(obj)) {
+                return defaultVal;
+            }
+            if (castToLongNode == null) {
                 CompilerDirectives.transferToInterpreterAndInvalidate();
-                getRightItemNode = insert(SequenceStorageNodes.GetItemNode.create());
+                castToLongNode = insert(CastToJavaLongNode.create());
             }
-            return getRightItemNode;
+            return castToLongNode.execute(obj);
         }
     }
 
-    abstract static class InternalLenNode extends PNodeWithContext implements MMapBaseNode {
+    @Builtin(name = "flush", minNumOfPositionalArgs = 1, maxNumOfPositionalArgs = 3)
+    @GenerateNodeFactory
+    abstract static class FlushNode extends PythonBuiltinNode implements MMapBaseNode {
 
-        public abstract long execute(VirtualFrame frame, PMMap self);
+        @Child private CastToJavaLongNode castToLongNode;
 
-        @Specialization(guards = "self.getLength() == 0")
-        long doFull(VirtualFrame frame, PMMap self,
-                        @Cached PRaiseOSErrorNode raise,
-                        @Cached("create()") BranchProfile profile) {
+        @Specialization
+        Object flush(VirtualFrame frame, PMMap self, Object offsetObj, Object sizeObj) {
+            checkValid(self);
+            long len = self.getLength();
+            long offset = castToLong(offsetObj, 0);
+            long size = castToLong(sizeObj, len);
+            if (size < 0 || offset < 0 || len - offset < size) {
+                throw raise(PythonBuiltinClassType.ValueError, "flush values out of range");
+            }
             try {
-                return size(self.getChannel()) - self.getOffset();
+                self.flush(offset, size);
             } catch (IOException e) {
-                profile.enter();
-                throw raise.raiseOSError(frame, OSErrorEnum.EIO, e);
+                throw raiseOSError(frame, OSErrorEnum.EIO, e);
             }
+            return PNone.NONE;
         }
 
-        @Specialization(guards = "self.getLength() > 0")
-        long doWindow(@SuppressWarnings("unused") VirtualFrame frame, PMMap self) {
-            return self.getLength();
-        }
-
-        @Specialization
-        long doGeneric(VirtualFrame frame, PMMap self,
-                        @Cached PRaiseOSErrorNode raise) {
-            if (self.getLength() == 0) {
-                try {
-                    return size(self.getChannel()) - self.getOffset();
-                } catch (IOException e) {
-                    throw raise.raiseOSError(frame, OSErrorEnum.EIO, e);
-                }
+        private long castToLong(Object obj, long defaultVal) {
+            if (PGuards.isPNone(obj)) {
+                return defaultVal;
             }
-            return self.getLength();
-        }
-
-        public static InternalLenNode create() {
-            return InternalLenNodeGen.create();
+            if (castToLongNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                castToLongNode = insert(CastToJavaLongNode.create());
+            }
+            return castToLongNode.execute(obj);
         }
     }
 
-    @Builtin(name = "flush", minNumOfPositionalArgs = 1)
-    @GenerateNodeFactory
-    abstract static class FlushNode extends PythonUnaryBuiltinNode {
-
-        @Specialization
-        Object seek(@SuppressWarnings("unused") PMMap self) {
-            return PNone.NONE;
-        }
-
+    /**
+     * Slices are computed with {@code int} indices; this limits slicing to the first 2 GB of a map.
+     */
+    static int clampedLength(PMMap self) {
+        return (int) Math.min(self.getLength(), Integer.MAX_VALUE);
     }
-
 }
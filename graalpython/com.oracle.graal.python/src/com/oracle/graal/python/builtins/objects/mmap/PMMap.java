@@ -40,26 +40,48 @@
  */
 package com.oracle.graal.python.builtins.objects.mmap;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.SeekableByteChannel;
 
 import com.oracle.graal.python.builtins.objects.object.PythonObject;
 import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 
+/**
+ * A memory map. The mapped region is split into windows of {@link #WINDOW_SIZE} bytes because a
+ * {@link ByteBuffer} is indexed by {@code int}, so maps larger than 2 GB are supported. File maps
+ * use {@link MappedByteBuffer}s; anonymous maps, and files whose channel cannot be mapped, use heap
+ * buffers. In the latter case, the contents are written back to the channel by {@link #flush} and
+ * {@link #close}.
+ */
 public final class PMMap extends PythonObject {
+    public static final int WINDOW_SHIFT = 30;
+    public static final int WINDOW_SIZE = 1 << WINDOW_SHIFT;
+    private static final int WINDOW_MASK = WINDOW_SIZE - 1;
 
-    private final SeekableByteChannel mappedByteBuffer;
+    private ByteBuffer[] windows;
     private final long length;
     private final long offset;
+    private final boolean readonly;
+    private final boolean writeBack;
+    /** The channel of the mapped file, or {@code null} for anonymous maps. */
+    private final SeekableByteChannel channel;
+    private long pos;
 
-    public PMMap(LazyPythonClass pythonClass, SeekableByteChannel mappedByteBuffer, long length, long offset) {
+    public PMMap(LazyPythonClass pythonClass, ByteBuffer[] windows, long length, long offset, boolean readonly, SeekableByteChannel channel, boolean writeBack) {
         super(pythonClass);
-        this.mappedByteBuffer = mappedByteBuffer;
+        this.windows = windows;
         this.length = length;
         this.offset = offset;
+        this.readonly = readonly;
+        this.channel = channel;
+        this.writeBack = writeBack;
     }
 
     public SeekableByteChannel getChannel() {
-        return mappedByteBuffer;
+        return channel;
     }
 
     public long getLength() {
@@ -69,4 +91,138 @@ public final class PMMap extends PythonObject {
     public long getOffset() {
         return offset;
     }
+
+    public boolean isReadonly() {
+        return readonly;
+    }
+
+    public boolean isClosed() {
+        return windows == null;
+    }
+
+    public long getPos() {
+        return pos;
+    }
+
+    public void setPos(long pos) {
+        this.pos = pos;
+    }
+
+    public byte getByte(long index) {
+        return windows[(int) (index >>> WINDOW_SHIFT)].get((int) (index & WINDOW_MASK));
+    }
+
+    public void putByte(long index, byte value) {
+        windows[(int) (index >>> WINDOW_SHIFT)].put((int) (index & WINDOW_MASK), value);
+    }
+
+    /**
+     * Copies {@code len} bytes starting at {@code index} into {@code dst}.
+     */
+    @TruffleBoundary
+    public void getBytes(long index, byte[] dst, int dstOffset, int len) {
+        long i = index;
+        int done = 0;
+        while (done < len) {
+            ByteBuffer window = windows[(int) (i >>> WINDOW_SHIFT)].duplicate();
+            int start = (int) (i & WINDOW_MASK);
+            int n = Math.min(len - done, window.limit() - start);
+            window.position(start);
+            window.get(dst, dstOffset + done, n);
+            done += n;
+            i += n;
+        }
+    }
+
+    /**
+     * Copies {@code len} bytes from {@code src} to the map starting at {@code index}.
+     */
+    @TruffleBoundary
+    public void putBytes(long index, byte[] src, int srcOffset, int len) {
+        long i = index;
+        int done = 0;
+        while (done < len) {
+            ByteBuffer window = windows[(int) (i >>> WINDOW_SHIFT)].duplicate();
+            int start = (int) (i & WINDOW_MASK);
+            int n = Math.min(len - done, window.limit() - start);
+            window.position(start);
+            window.put(src, srcOffset + done, n);
+            done += n;
+            i += n;
+        }
+    }
+
+    /**
+     * Returns the index of the first occurrence of {@code needle} in {@code [start, end)}, or -1.
+     */
+    @TruffleBoundary
+    public long find(byte[] needle, int needleLength, long start, long end) {
+        if (needleLength == 0) {
+            return start <= end ? start : -1;
+        }
+        byte first = needle[0];
+        outer: for (long i = start; i <= end - needleLength; i++) {
+            if (getByte(i) != first) {
+                continue;
+            }
+            for (int j = 1; j < needleLength; j++) {
+                if (getByte(i + j) != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Writes the modified region {@code [start, start + len)} to the file, like {@code msync}.
+     * Mapped buffers are forced to the storage device; buffers that were copied from the channel
+     * are written back to it.
+     */
+    @TruffleBoundary
+    public void flush(long start, long len) throws IOException {
+        if (len <= 0) {
+            return;
+        }
+        int first = (int) (start >>> WINDOW_SHIFT);
+        int last = (int) ((start + len - 1) >>> WINDOW_SHIFT);
+        for (int w = first; w <= last; w++) {
+            ByteBuffer window = windows[w];
+            if (window instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) window).force();
+            } else if (writeBack) {
+                long windowStart = (long) w << WINDOW_SHIFT;
+                long from = Math.max(start, windowStart);
+                long to = Math.min(start + len, windowStart + window.limit());
+                ByteBuffer src = window.duplicate();
+                src.limit((int) (to - windowStart));
+                src.position((int) (from - windowStart));
+                channel.position(offset + from);
+                while (src.hasRemaining()) {
+                    channel.write(src);
+                }
+            }
+        }
+    }
+
+    /**
+     * Unmaps the memory. The mapped buffers are released by the garbage collector.
+     */
+    @TruffleBoundary
+    public void close() throws IOException {
+        if (windows == null) {
+            return;
+        }
+        try {
+            if (writeBack) {
+                flush(0, length);
+            }
+        } finally {
+            windows = null;
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
 }
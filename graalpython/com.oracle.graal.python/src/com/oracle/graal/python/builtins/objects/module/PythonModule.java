@@ -29,13 +29,35 @@ import static com.oracle.graal.python.nodes.SpecialAttributeNames.__DOC__;
 import static com.oracle.graal.python.nodes.SpecialAttributeNames.__NAME__;
 import static com.oracle.graal.python.nodes.SpecialAttributeNames.__PACKAGE__;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import com.oracle.graal.python.builtins.objects.PNone;
 import com.oracle.graal.python.builtins.objects.object.PythonObject;
 import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+import com.oracle.truffle.api.Assumption;
+import com.oracle.truffle.api.CompilerAsserts;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.Truffle;
 
 public final class PythonModule extends PythonObject {
+    /**
+     * Number of times the value of a single attribute may change before we stop handing out
+     * assumptions for it. Global variables that are really variable are then read normally.
+     */
+    private static final int MAX_ATTRIBUTE_INVALIDATIONS = 4;
+
     private final String name;
 
+    /**
+     * These assumptions will be invalidated whenever the given attribute is written, deleted, or
+     * defined, so they also cover names that are not (yet) present in the module. The keys of
+     * {@link #attributeInvalidations} are never removed and count how often the value of an
+     * attribute changed after an assumption was handed out for it.
+     */
+    private final Map<String, Assumption> attributeStableAssumptions = new HashMap<>();
+    private final Map<String, Integer> attributeInvalidations = new HashMap<>();
+
     public PythonModule(LazyPythonClass clazz, String name) {
         super(clazz);
         this.name = name;
@@ -52,6 +74,64 @@ public final class PythonModule extends PythonObject {
         return name;
     }
 
+    @Override
+    @TruffleBoundary
+    public void setAttribute(Object key, Object value) {
+        invalidateAttributeStableAssumption(key);
+        super.setAttribute(key, value);
+    }
+
+    /**
+     * Returns an assumption that the value of the attribute {@code name} does not change, or
+     * {@code null} if the attribute changed too often to be treated as a constant.
+     */
+    @TruffleBoundary
+    public Assumption getAttributeStableAssumption(String name) {
+        CompilerAsserts.neverPartOfCompilation();
+        Assumption assumption = attributeStableAssumptions.get(name);
+        if (assumption == null || !assumption.isValid()) {
+            if (attributeInvalidations.getOrDefault(name, 0) >= MAX_ATTRIBUTE_INVALIDATIONS) {
+                return null;
+            }
+            assumption = Truffle.getRuntime().createAssumption(name);
+            attributeStableAssumptions.put(name, assumption);
+        }
+        return assumption;
+    }
+
+    /**
+     * Invalidates the assumption handed out for the attribute {@code key}, if any. Returns
+     * {@code true} if the attribute changed too often to get an assumption ever again, so that
+     * callers may skip this call for further writes of the same attribute.
+     */
+    @TruffleBoundary
+    public boolean invalidateAttributeStableAssumption(Object key) {
+        if (key instanceof String) {
+            if (!attributeStableAssumptions.isEmpty()) {
+                Assumption assumption = attributeStableAssumptions.remove(key);
+                if (assumption != null) {
+                    attributeInvalidations.merge((String) key, 1, Integer::sum);
+                    assumption.invalidate(this.name + "." + key);
+                }
+            }
+            return attributeInvalidations.getOrDefault(key, 0) >= MAX_ATTRIBUTE_INVALIDATIONS;
+        }
+        return false;
+    }
+
+    /**
+     * Needs to be called if the attributes may have changed without going through
+     * {@link #invalidateAttributeStableAssumption(Object)}, e.g., when the module dict is cleared.
+     */
+    @TruffleBoundary
+    public void invalidateAllAttributeStableAssumptions() {
+        for (Map.Entry<String, Assumption> entry : attributeStableAssumptions.entrySet()) {
+            attributeInvalidations.merge(entry.getKey(), 1, Integer::sum);
+            entry.getValue().invalidate();
+        }
+        attributeStableAssumptions.clear();
+    }
+
     @Override
     public String toString() {
         return "<module '" + this.getAttribute(__NAME__) + "'>";
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.pickle;
+
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.FRAME;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.FRAME_HEADER_SIZE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.FRAME_SIZE_MIN;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.FRAME_SIZE_TARGET;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
+import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+
+/**
+ * The {@code _pickle.Pickler} object. The pickle is written into a growing byte array; frames are
+ * written in place by reserving their header when the frame is opened and filling it in when the
+ * frame is committed, so that no frame is copied.
+ */
+public final class PPickler extends PythonBuiltinObject {
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+
+    private boolean initialized;
+    private int protocol;
+    private boolean fixImports;
+    /** The {@code write} method of the file, or {@code null} if the pickle is kept in memory. */
+    private Object write;
+
+    /** Maps pickled objects to their memo index; the objects are kept alive by the memo. */
+    private IdentityHashMap<Object, Integer> memo = new IdentityHashMap<>();
+
+    private byte[] output;
+    private int outputLength;
+    private boolean framing;
+    /** The position of the reserved header of the current frame, or {@code -1}. */
+    private int frameStart = -1;
+
+    public PPickler(LazyPythonClass cls) {
+        super(cls);
+    }
+
+    public void init(int proto, boolean fix, Object writeMethod) {
+        this.initialized = true;
+        this.protocol = proto;
+        this.fixImports = fix;
+        this.write = writeMethod;
+        this.memo = new IdentityHashMap<>();
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    public int getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * Whether the binary opcodes may be used, i.e., the protocol is not 0.
+     */
+    public boolean isBin() {
+        return protocol > 0;
+    }
+
+    public boolean isFixImports() {
+        return fixImports;
+    }
+
+    public Object getWrite() {
+        return write;
+    }
+
+    public IdentityHashMap<Object, Integer> getMemo() {
+        return memo;
+    }
+
+    public void clearMemo() {
+        memo = new IdentityHashMap<>();
+    }
+
+    public void setFraming(boolean framing) {
+        this.framing = framing;
+    }
+
+    public int getOutputLength() {
+        return outputLength;
+    }
+
+    private void ensureCapacity(int n) {
+        if (framing && frameStart == -1) {
+            // open a new frame and reserve room for its header
+            ensureRawCapacity(n + FRAME_HEADER_SIZE);
+            frameStart = outputLength;
+            outputLength += FRAME_HEADER_SIZE;
+        } else {
+            ensureRawCapacity(n);
+        }
+    }
+
+    private void ensureRawCapacity(int n) {
+        if (output == null) {
+            output = new byte[Math.max(INITIAL_BUFFER_SIZE, n)];
+        } else if (outputLength + n > output.length) {
+            output = Arrays.copyOf(output, Math.max(output.length * 2, outputLength + n));
+        }
+    }
+
+    public void write(byte b) {
+        ensureCapacity(1);
+        output[outputLength++] = b;
+    }
+
+    public void write(byte b0, byte b1) {
+        ensureCapacity(2);
+        output[outputLength++] = b0;
+        output[outputLength++] = b1;
+    }
+
+    public void write(byte[] data, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(data, offset, output, outputLength, length);
+        outputLength += length;
+    }
+
+    public void write(byte[] data) {
+        write(data, 0, data.length);
+    }
+
+    /**
+     * Writes an opcode followed by {@code size} bytes of {@code value} in little-endian order.
+     */
+    public void writeWithArgument(byte opcode, long value, int size) {
+        ensureCapacity(1 + size);
+        output[outputLength++] = opcode;
+        outputLength = putLittleEndian(output, outputLength, value, size);
+    }
+
+    /**
+     * Writes an opcode that is followed by a length and the payload. Payloads of at least one frame
+     * target size are not framed so that they are not copied into the frame.
+     *
+     * @return {@code true} if the payload must still be written by the caller, which happens if it
+     *         is large and goes directly to the file
+     */
+    public boolean writeWithPayload(byte opcode, int lengthSize, byte[] data, int offset, int length) {
+        if (!framing || length < FRAME_SIZE_TARGET) {
+            writeWithArgument(opcode, length, lengthSize);
+            write(data, offset, length);
+            return false;
+        }
+        commitFrame();
+        framing = false;
+        ensureRawCapacity(1 + lengthSize);
+        output[outputLength++] = opcode;
+        outputLength = putLittleEndian(output, outputLength, length, lengthSize);
+        boolean direct = write != null;
+        if (!direct) {
+            write(data, offset, length);
+        }
+        framing = true;
+        return direct;
+    }
+
+    /**
+     * Whether the current frame reached its target size and should be committed.
+     */
+    public boolean isFrameFull() {
+        return frameStart != -1 && outputLength - frameStart - FRAME_HEADER_SIZE >= FRAME_SIZE_TARGET;
+    }
+
+    /**
+     * Closes the current frame. Frames that are too short to be worth their header are written
+     * without it.
+     */
+    public void commitFrame() {
+        if (frameStart == -1) {
+            return;
+        }
+        int frameLength = outputLength - frameStart - FRAME_HEADER_SIZE;
+        if (frameLength >= FRAME_SIZE_MIN) {
+            output[frameStart] = FRAME;
+            putLittleEndian(output, frameStart + 1, frameLength, 8);
+        } else {
+            System.arraycopy(output, frameStart + FRAME_HEADER_SIZE, output, frameStart, frameLength);
+            outputLength -= FRAME_HEADER_SIZE;
+        }
+        frameStart = -1;
+    }
+
+    /**
+     * Drops anything left over from a failed dump.
+     */
+    public void clearOutput() {
+        output = null;
+        outputLength = 0;
+        framing = false;
+        frameStart = -1;
+    }
+
+    /**
+     * Hands the written data over to a bytes storage and starts a new buffer. The array is not
+     * copied.
+     */
+    public ByteSequenceStorage takeOutput() {
+        assert frameStart == -1;
+        ByteSequenceStorage result = new ByteSequenceStorage(output == null ? new byte[0] : output, outputLength);
+        output = null;
+        outputLength = 0;
+        return result;
+    }
+
+    private static int putLittleEndian(byte[] buffer, int offset, long value, int size) {
+        for (int i = 0; i < size; i++) {
+            buffer[offset + i] = (byte) (value >>> (8 * i));
+        }
+        return offset + size;
+    }
+}
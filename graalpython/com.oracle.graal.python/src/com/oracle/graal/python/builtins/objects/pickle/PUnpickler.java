@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.pickle;
+
+import java.util.Arrays;
+
+import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
+import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+
+/**
+ * The {@code _pickle.Unpickler} object. The input is read from a byte array, which is either the
+ * argument of {@code loads} or the data read from the file for the current opcode or frame.
+ */
+public final class PUnpickler extends PythonBuiltinObject {
+    private boolean initialized;
+    private Object read;
+    private Object readline;
+    private boolean fixImports;
+    private String encoding;
+    private String errors;
+    /** The protocol announced by the PROTO opcode of the current pickle. */
+    private int protocol;
+
+    private Object[] memo = new Object[32];
+    private int memoLength;
+
+    private byte[] input;
+    private int position;
+    private int limit;
+
+    private Object[] stack = new Object[16];
+    private int stackSize;
+    private int[] marks = new int[8];
+    private int markCount;
+
+    public PUnpickler(LazyPythonClass cls) {
+        super(cls);
+    }
+
+    public void init(Object readMethod, Object readlineMethod, boolean fix, String encodingName, String errorsName) {
+        this.initialized = true;
+        this.read = readMethod;
+        this.readline = readlineMethod;
+        this.fixImports = fix;
+        this.encoding = encodingName;
+        this.errors = errorsName;
+        this.memo = new Object[32];
+        this.memoLength = 0;
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    /**
+     * The {@code read} method of the file, or {@code null} if the whole pickle is in the input.
+     */
+    public Object getRead() {
+        return read;
+    }
+
+    public Object getReadline() {
+        return readline;
+    }
+
+    public boolean isFixImports() {
+        return fixImports;
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public String getErrors() {
+        return errors;
+    }
+
+    public int getProtocol() {
+        return protocol;
+    }
+
+    public void setProtocol(int protocol) {
+        this.protocol = protocol;
+    }
+
+    /**
+     * Prepares for a new pickle. The memo is kept, like in CPython, so that several pickles written
+     * by one pickler can be read by one unpickler.
+     */
+    public void reset() {
+        protocol = 0;
+        Arrays.fill(stack, 0, stackSize, null);
+        stackSize = 0;
+        markCount = 0;
+    }
+
+    public void setInput(byte[] data, int offset, int length) {
+        this.input = data;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    public byte[] getInput() {
+        return input;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public int available() {
+        return limit - position;
+    }
+
+    /**
+     * Consumes {@code n} bytes, which must be available, and returns the offset of the first.
+     */
+    public int consume(int n) {
+        int start = position;
+        position += n;
+        return start;
+    }
+
+    /**
+     * Returns the offset just after the next newline in the input, or {@code -1}.
+     */
+    public int findLineEnd() {
+        for (int i = position; i < limit; i++) {
+            if (input[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    public Object getMemo(long index) {
+        return index >= 0 && index < memoLength ? memo[(int) index] : null;
+    }
+
+    public void putMemo(int index, Object value) {
+        if (index >= memo.length) {
+            memo = Arrays.copyOf(memo, Math.max(memo.length * 2, index + 1));
+        }
+        memo[index] = value;
+        memoLength = Math.max(memoLength, index + 1);
+    }
+
+    /**
+     * The index used by the MEMOIZE opcode.
+     */
+    public int getMemoLength() {
+        return memoLength;
+    }
+
+    public void push(Object value) {
+        if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stackSize * 2);
+        }
+        stack[stackSize++] = value;
+    }
+
+    public int getStackSize() {
+        return stackSize;
+    }
+
+    /**
+     * The stack size at the innermost mark; items below it must not be popped.
+     */
+    public int getFence() {
+        return markCount == 0 ? 0 : marks[markCount - 1];
+    }
+
+    public Object pop() {
+        Object value = stack[--stackSize];
+        stack[stackSize] = null;
+        return value;
+    }
+
+    public Object peek() {
+        return stack[stackSize - 1];
+    }
+
+    public void replaceTop(Object value) {
+        stack[stackSize - 1] = value;
+    }
+
+    public void pushMark() {
+        if (markCount == marks.length) {
+            marks = Arrays.copyOf(marks, markCount * 2);
+        }
+        marks[markCount++] = stackSize;
+    }
+
+    public int getMarkCount() {
+        return markCount;
+    }
+
+    /**
+     * Removes the innermost mark and returns the items above it.
+     */
+    public Object[] popMark() {
+        int mark = marks[--markCount];
+        Object[] items = Arrays.copyOfRange(stack, mark, stackSize);
+        Arrays.fill(stack, mark, stackSize, null);
+        stackSize = mark;
+        return items;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.pickle;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+
+import com.oracle.graal.python.PythonLanguage;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.exception.PBaseException;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.object.PythonObject;
+import com.oracle.graal.python.nodes.PNodeWithContext;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.nodes.attributes.GetAttributeNode.GetAnyAttributeNode;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.runtime.PythonCore;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.graal.python.runtime.object.PythonObjectFactory;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * Helpers shared by the pickling and unpickling engines. The engines run behind a
+ * {@code TruffleBoundary}, so these nodes are only used from the interpreter.
+ */
+abstract class PickleBaseNode extends PNodeWithContext {
+    @Child private PythonObjectFactory objectFactory;
+    @Child private PRaiseNode raiseNode;
+    @Child private CallNode callNode;
+    @Child private GetAnyAttributeNode getAttributeNode;
+    private final IsBuiltinClassProfile attributeErrorProfile = IsBuiltinClassProfile.create();
+
+    protected final PythonObjectFactory factory() {
+        if (objectFactory == null) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            objectFactory = insert(PythonObjectFactory.create());
+        }
+        return objectFactory;
+    }
+
+    protected final PException raise(PythonBuiltinClassType type, String format, Object... arguments) {
+        return getRaiseNode().raise(type, format, arguments);
+    }
+
+    protected final PException raise(PBaseException exception) {
+        return getRaiseNode().raise(exception);
+    }
+
+    private PRaiseNode getRaiseNode() {
+        if (raiseNode == null) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            raiseNode = insert(PRaiseNode.create());
+        }
+        return raiseNode;
+    }
+
+    protected static PythonCore getCore() {
+        return PythonLanguage.getCore();
+    }
+
+    protected final Object call(Object callable, Object... arguments) {
+        return callWithKeywords(callable, arguments, PKeyword.EMPTY_KEYWORDS);
+    }
+
+    protected final Object callWithKeywords(Object callable, Object[] arguments, PKeyword[] keywords) {
+        if (callNode == null) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            callNode = insert(CallNode.create());
+        }
+        return callNode.execute(null, callable, arguments, keywords);
+    }
+
+    protected final Object getAttribute(Object object, String name) {
+        if (getAttributeNode == null) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            getAttributeNode = insert(GetAnyAttributeNode.create());
+        }
+        return getAttributeNode.executeObject(object, name);
+    }
+
+    /**
+     * Like {@code getattr(object, name, NO_VALUE)}.
+     */
+    protected final Object lookupAttribute(Object object, String name) {
+        try {
+            return getAttribute(object, name);
+        } catch (PException e) {
+            e.expectAttributeError(attributeErrorProfile);
+            return PNone.NO_VALUE;
+        }
+    }
+
+    protected final Object callMethod(Object object, String name, Object... arguments) {
+        return call(getAttribute(object, name), arguments);
+    }
+
+    /**
+     * Returns a helper or exception class defined by {@code lib-graalpython/_pickle.py}.
+     */
+    @TruffleBoundary
+    protected static Object getPickleModuleAttribute(String name) {
+        return getCore().lookupBuiltinModule("_pickle").getAttribute(name);
+    }
+
+    /**
+     * Raises {@code PicklingError} or {@code UnpicklingError} from the {@code _pickle} module.
+     */
+    protected final PException raisePickleError(String errorName, String format, Object... arguments) {
+        Object exception = call(getPickleModuleAttribute(errorName), formatMessage(format, arguments));
+        if (exception instanceof PBaseException) {
+            throw raise((PBaseException) exception);
+        }
+        throw raise(TypeError, "exceptions must derive from BaseException");
+    }
+
+    @TruffleBoundary
+    private static String formatMessage(String format, Object... arguments) {
+        return String.format(format, arguments);
+    }
+
+    protected static boolean isExact(Object object, PythonBuiltinClassType type) {
+        return object instanceof PythonObject && IsBuiltinClassProfile.profileClassSlowPath(((PythonObject) object).getLazyPythonClass(), type);
+    }
+}
@@ -0,0 +1,432 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.pickle;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * The opcodes of the pickle format and the encodings used by their arguments, following
+ * {@code Lib/pickle.py} and CPython's {@code Modules/_pickle.c}.
+ */
+public final class PickleUtils {
+    public static final int DEFAULT_PROTOCOL = 3;
+    public static final int HIGHEST_PROTOCOL = 4;
+
+    /** The number of items written by one APPENDS, SETITEMS or ADDITEMS opcode. */
+    static final int BATCHSIZE = 1000;
+    static final int FRAME_SIZE_MIN = 4;
+    static final int FRAME_SIZE_TARGET = 64 * 1024;
+    /** The FRAME opcode followed by the eight byte frame length. */
+    static final int FRAME_HEADER_SIZE = 9;
+
+    static final byte MARK = '(';
+    static final byte STOP = '.';
+    static final byte POP = '0';
+    static final byte POP_MARK = '1';
+    static final byte DUP = '2';
+    static final byte FLOAT = 'F';
+    static final byte INT = 'I';
+    static final byte BININT = 'J';
+    static final byte BININT1 = 'K';
+    static final byte LONG = 'L';
+    static final byte BININT2 = 'M';
+    static final byte NONE = 'N';
+    static final byte PERSID = 'P';
+    static final byte BINPERSID = 'Q';
+    static final byte REDUCE = 'R';
+    static final byte STRING = 'S';
+    static final byte BINSTRING = 'T';
+    static final byte SHORT_BINSTRING = 'U';
+    static final byte UNICODE = 'V';
+    static final byte BINUNICODE = 'X';
+    static final byte APPEND = 'a';
+    static final byte BUILD = 'b';
+    static final byte GLOBAL = 'c';
+    static final byte DICT = 'd';
+    static final byte EMPTY_DICT = '}';
+    static final byte APPENDS = 'e';
+    static final byte GET = 'g';
+    static final byte BINGET = 'h';
+    static final byte INST = 'i';
+    static final byte LONG_BINGET = 'j';
+    static final byte LIST = 'l';
+    static final byte EMPTY_LIST = ']';
+    static final byte OBJ = 'o';
+    static final byte PUT = 'p';
+    static final byte BINPUT = 'q';
+    static final byte LONG_BINPUT = 'r';
+    static final byte SETITEM = 's';
+    static final byte TUPLE = 't';
+    static final byte EMPTY_TUPLE = ')';
+    static final byte SETITEMS = 'u';
+    static final byte BINFLOAT = 'G';
+
+    // protocol 2
+    static final byte PROTO = (byte) 0x80;
+    static final byte NEWOBJ = (byte) 0x81;
+    static final byte EXT1 = (byte) 0x82;
+    static final byte EXT2 = (byte) 0x83;
+    static final byte EXT4 = (byte) 0x84;
+    static final byte TUPLE1 = (byte) 0x85;
+    static final byte TUPLE2 = (byte) 0x86;
+    static final byte TUPLE3 = (byte) 0x87;
+    static final byte NEWTRUE = (byte) 0x88;
+    static final byte NEWFALSE = (byte) 0x89;
+    static final byte LONG1 = (byte) 0x8a;
+    static final byte LONG4 = (byte) 0x8b;
+
+    // protocol 3
+    static final byte BINBYTES = 'B';
+    static final byte SHORT_BINBYTES = 'C';
+
+    // protocol 4
+    static final byte SHORT_BINUNICODE = (byte) 0x8c;
+    static final byte BINUNICODE8 = (byte) 0x8d;
+    static final byte BINBYTES8 = (byte) 0x8e;
+    static final byte EMPTY_SET = (byte) 0x8f;
+    static final byte ADDITEMS = (byte) 0x90;
+    static final byte FROZENSET = (byte) 0x91;
+    static final byte NEWOBJ_EX = (byte) 0x92;
+    static final byte STACK_GLOBAL = (byte) 0x93;
+    static final byte MEMOIZE = (byte) 0x94;
+    static final byte FRAME = (byte) 0x95;
+
+    private PickleUtils() {
+    }
+
+    /**
+     * Encodes an int as little-endian two's complement with as few bytes as possible, like
+     * {@code pickle.encode_long}. Zero is encoded as no bytes at all.
+     */
+    @TruffleBoundary
+    static byte[] encodeLong(BigInteger value) {
+        if (value.signum() == 0) {
+            return new byte[0];
+        }
+        int nbytes = (value.abs().bitLength() >> 3) + 1;
+        byte[] bigEndian = value.toByteArray();
+        byte[] result = new byte[nbytes];
+        byte fill = value.signum() < 0 ? (byte) 0xff : 0;
+        for (int i = 0; i < nbytes; i++) {
+            int src = bigEndian.length - 1 - i;
+            result[i] = src >= 0 ? bigEndian[src] : fill;
+        }
+        if (value.signum() < 0 && nbytes > 1 && result[nbytes - 1] == (byte) 0xff && (result[nbytes - 2] & 0x80) != 0) {
+            byte[] trimmed = new byte[nbytes - 1];
+            System.arraycopy(result, 0, trimmed, 0, nbytes - 1);
+            return trimmed;
+        }
+        return result;
+    }
+
+    @TruffleBoundary
+    static BigInteger decodeLong(byte[] data, int offset, int length) {
+        if (length == 0) {
+            return BigInteger.ZERO;
+        }
+        byte[] bigEndian = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bigEndian[i] = data[offset + length - 1 - i];
+        }
+        return new BigInteger(bigEndian);
+    }
+
+    /**
+     * Encodes a string as UTF-8 with the {@code surrogatepass} error handler, so that lone
+     * surrogates survive a round trip.
+     */
+    @TruffleBoundary
+    static byte[] encodeUTF8(String s) {
+        int n = s.length();
+        int size = 0;
+        boolean ascii = true;
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                size++;
+            } else {
+                ascii = false;
+                if (c < 0x800) {
+                    size += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    size += 4;
+                    i++;
+                } else {
+                    size += 3;
+                }
+            }
+        }
+        if (ascii) {
+            return s.getBytes(StandardCharsets.ISO_8859_1);
+        }
+        byte[] result = new byte[size];
+        int pos = 0;
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                result[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                result[pos++] = (byte) (0xc0 | (c >> 6));
+                result[pos++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                result[pos++] = (byte) (0xf0 | (cp >> 18));
+                result[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                result[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                result[pos++] = (byte) (0x80 | (cp & 0x3f));
+            } else {
+                result[pos++] = (byte) (0xe0 | (c >> 12));
+                result[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                result[pos++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Decodes UTF-8 with the {@code surrogatepass} error handler. Returns {@code null} if the data
+     * is not valid UTF-8.
+     */
+    @TruffleBoundary
+    static String decodeUTF8(byte[] data, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        while (i < end && data[i] >= 0) {
+            i++;
+        }
+        if (i == end) {
+            return new String(data, offset, length, StandardCharsets.ISO_8859_1);
+        }
+        StringBuilder sb = new StringBuilder(length);
+        for (int j = offset; j < i; j++) {
+            sb.append((char) data[j]);
+        }
+        while (i < end) {
+            int b = data[i] & 0xff;
+            if (b < 0x80) {
+                sb.append((char) b);
+                i++;
+                continue;
+            }
+            int needed;
+            int cp;
+            if (b >= 0xc2 && b <= 0xdf) {
+                needed = 1;
+                cp = b & 0x1f;
+            } else if (b >= 0xe0 && b <= 0xef) {
+                needed = 2;
+                cp = b & 0x0f;
+            } else if (b >= 0xf0 && b <= 0xf4) {
+                needed = 3;
+                cp = b & 0x07;
+            } else {
+                return null;
+            }
+            if (i + needed >= end) {
+                return null;
+            }
+            for (int k = 1; k <= needed; k++) {
+                int cont = data[i + k] & 0xff;
+                if ((cont & 0xc0) != 0x80) {
+                    return null;
+                }
+                cp = (cp << 6) | (cont & 0x3f);
+            }
+            if ((needed == 2 && cp < 0x800) || (needed == 3 && (cp < 0x10000 || cp > 0x10ffff))) {
+                return null;
+            }
+            sb.appendCodePoint(cp);
+            i += needed + 1;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Encodes a string like the {@code raw-unicode-escape} codec, as used by protocol 0.
+     */
+    @TruffleBoundary
+    static byte[] encodeRawUnicodeEscape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x100) {
+                sb.append(c);
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                sb.append(String.format("\\U%08x", Character.toCodePoint(c, s.charAt(++i))));
+            } else {
+                sb.append(String.format("\\u%04x", (int) c));
+            }
+        }
+        return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Decodes the {@code raw-unicode-escape} codec. Returns {@code null} for a truncated or
+     * invalid escape.
+     */
+    @TruffleBoundary
+    static String decodeRawUnicodeEscape(byte[] data, int offset, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            char c = (char) (data[i] & 0xff);
+            if (c != '\\') {
+                sb.append(c);
+                i++;
+                continue;
+            }
+            // \\u and \\U are escapes only after an odd number of backslashes
+            int start = i;
+            while (i < end && data[i] == '\\') {
+                i++;
+            }
+            int backslashes = i - start;
+            if ((backslashes & 1) == 0 || i >= end || (data[i] != 'u' && data[i] != 'U')) {
+                for (int k = 0; k < backslashes; k++) {
+                    sb.append('\\');
+                }
+                continue;
+            }
+            for (int k = 0; k < backslashes - 1; k++) {
+                sb.append('\\');
+            }
+            int digits = data[i] == 'u' ? 4 : 8;
+            i++;
+            if (i + digits > end) {
+                return null;
+            }
+            int cp = 0;
+            for (int k = 0; k < digits; k++) {
+                int digit = Character.digit((char) (data[i + k] & 0xff), 16);
+                if (digit < 0) {
+                    return null;
+                }
+                cp = (cp << 4) | digit;
+            }
+            if (cp < 0 || cp > Character.MAX_CODE_POINT) {
+                return null;
+            }
+            sb.appendCodePoint(cp);
+            i += digits;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Decodes the escapes of a bytes literal like {@code codecs.escape_decode}. Returns
+     * {@code null} for an invalid {@code \\x} escape and stores its index in
+     * {@code errorPosition[0]}.
+     */
+    @TruffleBoundary
+    static byte[] decodeEscape(byte[] data, int offset, int length, int[] errorPosition) {
+        byte[] result = new byte[length];
+        int n = 0;
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            byte b = data[i++];
+            if (b != '\\' || i == end) {
+                result[n++] = b;
+                continue;
+            }
+            byte c = data[i++];
+            switch (c) {
+                case '\n':
+                    break;
+                case '\\':
+                case '\'':
+                case '"':
+                    result[n++] = c;
+                    break;
+                case 'a':
+                    result[n++] = 7;
+                    break;
+                case 'b':
+                    result[n++] = '\b';
+                    break;
+                case 'f':
+                    result[n++] = '\f';
+                    break;
+                case 'n':
+                    result[n++] = '\n';
+                    break;
+                case 'r':
+                    result[n++] = '\r';
+                    break;
+                case 't':
+                    result[n++] = '\t';
+                    break;
+                case 'v':
+                    result[n++] = 11;
+                    break;
+                case 'x': {
+                    int hi = i < end ? Character.digit((char) data[i], 16) : -1;
+                    int lo = i + 1 < end ? Character.digit((char) data[i + 1], 16) : -1;
+                    if (hi < 0 || lo < 0) {
+                        errorPosition[0] = i - 2 - offset;
+                        return null;
+                    }
+                    result[n++] = (byte) ((hi << 4) | lo);
+                    i += 2;
+                    break;
+                }
+                default:
+                    if (c >= '0' && c <= '7') {
+                        int value = c - '0';
+                        for (int k = 0; k < 2 && i < end && data[i] >= '0' && data[i] <= '7'; k++) {
+                            value = (value << 3) | (data[i++] - '0');
+                        }
+                        result[n++] = (byte) value;
+                    } else {
+                        // unknown escapes are kept as they are
+                        result[n++] = '\\';
+                        result[n++] = c;
+                    }
+            }
+        }
+        return n == length ? result : Arrays.copyOf(result, n);
+    }
+}
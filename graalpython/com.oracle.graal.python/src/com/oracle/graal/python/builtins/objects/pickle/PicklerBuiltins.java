@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.pickle;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__INIT__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.type.TypeNodes.GetNameNode;
+import com.oracle.graal.python.nodes.attributes.GetAttributeNode.GetAnyAttributeNode;
+import com.oracle.graal.python.nodes.expression.CastToBooleanNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.nodes.util.CastToIndexNode;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PPickler)
+public class PicklerBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return PicklerBuiltinsFactory.getFactories();
+    }
+
+    /**
+     * Converts the {@code protocol} argument; {@code None} selects the default protocol and
+     * negative numbers the highest one.
+     */
+    public static int getProtocol(PythonBuiltinBaseNode node, CastToIndexNode castToIndexNode, Object protocol) {
+        if (protocol instanceof PNone) {
+            return PickleUtils.DEFAULT_PROTOCOL;
+        }
+        int proto = castToIndexNode.execute(protocol);
+        if (proto < 0) {
+            return PickleUtils.HIGHEST_PROTOCOL;
+        } else if (proto > PickleUtils.HIGHEST_PROTOCOL) {
+            throw node.raise(ValueError, "pickle protocol must be <= %d", PickleUtils.HIGHEST_PROTOCOL);
+        }
+        return proto;
+    }
+
+    // Pickler(file, protocol=None, fix_imports=True)
+    @Builtin(name = __INIT__, minNumOfPositionalArgs = 2, parameterNames = {"self", "file", "protocol", "fix_imports"})
+    @GenerateNodeFactory
+    public abstract static class InitNode extends PythonBuiltinNode {
+        @Specialization
+        PNone init(PPickler self, Object file, Object protocol, Object fixImports,
+                        @Cached("create()") CastToIndexNode castToIndexNode,
+                        @Cached("createIfTrueNode()") CastToBooleanNode isTrueNode,
+                        @Cached("create()") GetAnyAttributeNode getWriteNode,
+                        @Cached("create()") IsBuiltinClassProfile attributeErrorProfile) {
+            int proto = getProtocol(this, castToIndexNode, protocol);
+            Object write;
+            try {
+                write = getWriteNode.executeObject(file, "write");
+            } catch (PException e) {
+                e.expectAttributeError(attributeErrorProfile);
+                throw raise(TypeError, "file must have a 'write' attribute");
+            }
+            self.init(proto, fixImports instanceof PNone || isTrueNode.executeWith(fixImports), write);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "dump", minNumOfPositionalArgs = 2, parameterNames = {"self", "obj"})
+    @GenerateNodeFactory
+    public abstract static class DumpNode extends PythonBinaryBuiltinNode {
+        @Child private PicklerNodes.DumpNode dumpNode = PicklerNodes.DumpNode.create();
+
+        @Specialization
+        PNone dump(PPickler self, Object obj) {
+            if (!self.isInitialized()) {
+                throw dumpNode.raisePickleError("PicklingError", "Pickler.__init__() was not called by %s.__init__()", GetNameNode.doSlowPath(self.getLazyPythonClass()));
+            }
+            dumpNode.execute(self, obj, true);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "clear_memo", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class ClearMemoNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        PNone clear(PPickler self) {
+            self.clearMemo();
+            return PNone.NONE;
+        }
+    }
+}
@@ -0,0 +1,952 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.pickle;
+
+import static com.oracle.graal.python.builtins.PythonBuiltinClassType.RecursionError;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.ADDITEMS;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.APPEND;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.APPENDS;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BATCHSIZE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINBYTES;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINFLOAT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINGET;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BININT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BININT1;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BININT2;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINPERSID;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINPUT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINUNICODE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BUILD;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.DICT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EMPTY_DICT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EMPTY_LIST;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EMPTY_SET;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EMPTY_TUPLE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EXT1;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EXT2;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EXT4;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.FLOAT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.FROZENSET;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.GET;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.GLOBAL;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.INT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LIST;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LONG;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LONG1;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LONG4;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LONG_BINGET;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LONG_BINPUT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.MARK;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.MEMOIZE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.NEWFALSE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.NEWOBJ;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.NEWOBJ_EX;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.NEWTRUE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.NONE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.PERSID;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.POP;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.POP_MARK;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.PROTO;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.PUT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.REDUCE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.SETITEM;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.SETITEMS;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.SHORT_BINBYTES;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.SHORT_BINUNICODE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.STACK_GLOBAL;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.STOP;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.TUPLE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.TUPLE1;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.TUPLE2;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.TUPLE3;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__CALL__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__REDUCE_EX__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__REDUCE__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.objects.PEllipsis;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.PNotImplemented;
+import com.oracle.graal.python.builtins.objects.bytes.PBytes;
+import com.oracle.graal.python.builtins.objects.common.HashingStorage;
+import com.oracle.graal.python.builtins.objects.common.HashingStorage.DictEntry;
+import com.oracle.graal.python.builtins.objects.dict.PDict;
+import com.oracle.graal.python.builtins.objects.floats.PFloat;
+import com.oracle.graal.python.builtins.objects.function.PBuiltinFunction;
+import com.oracle.graal.python.builtins.objects.function.PFunction;
+import com.oracle.graal.python.builtins.objects.ints.PInt;
+import com.oracle.graal.python.builtins.objects.list.PList;
+import com.oracle.graal.python.builtins.objects.method.PBuiltinMethod;
+import com.oracle.graal.python.builtins.objects.module.PythonModule;
+import com.oracle.graal.python.builtins.objects.set.PBaseSet;
+import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.builtins.objects.tuple.PTuple;
+import com.oracle.graal.python.builtins.objects.type.TypeNodes.GetNameNode;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.attributes.LookupInheritedAttributeNode;
+import com.oracle.graal.python.nodes.control.GetIteratorExpressionNode.GetIteratorNode;
+import com.oracle.graal.python.nodes.control.GetNextNode;
+import com.oracle.graal.python.nodes.object.GetClassNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.graal.python.runtime.formatting.FloatFormatter;
+import com.oracle.graal.python.runtime.formatting.InternalFormat;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+public abstract class PicklerNodes {
+
+    /**
+     * Writes one pickle, following {@code pickle._Pickler} of CPython 3.7. Builtin types whose
+     * exact type is known are written without calling into Python; everything else goes through
+     * {@code copyreg} and {@code __reduce_ex__} like in CPython.
+     */
+    public static final class DumpNode extends PickleBaseNode {
+        private static final int MAX_DEPTH = 1000;
+
+        @Child private GetClassNode getClassNode;
+        @Child private GetIteratorNode getIteratorNode;
+        @Child private GetNextNode getNextNode;
+        @Child private LookupInheritedAttributeNode.Dynamic lookupCallNode;
+        private final IsBuiltinClassProfile stopIterationProfile = IsBuiltinClassProfile.create();
+
+        /** The state of one dump; a {@code __reduce__} method may start another dump. */
+        private static final class DumpState {
+            private final PPickler pickler;
+            private final Object persistentId;
+            private Object dispatchTable;
+            private int depth;
+
+            DumpState(PPickler pickler, Object persistentId, Object dispatchTable) {
+                this.pickler = pickler;
+                this.persistentId = persistentId;
+                this.dispatchTable = dispatchTable;
+            }
+        }
+
+        public static DumpNode create() {
+            return new DumpNode();
+        }
+
+        /**
+         * Pickles {@code obj}. If the pickler has a file, the pickle is written to it, otherwise
+         * it stays in the pickler's output buffer. The {@code persistent_id} and
+         * {@code dispatch_table} attributes are only looked up if {@code lookupHooks} is set.
+         */
+        @TruffleBoundary
+        public void execute(PPickler pickler, Object obj, boolean lookupHooks) {
+            Object persistentId = null;
+            Object dispatchTable = null;
+            if (lookupHooks) {
+                persistentId = lookupAttribute(pickler, "persistent_id");
+                persistentId = persistentId == PNone.NO_VALUE || persistentId == PNone.NONE ? null : persistentId;
+                dispatchTable = lookupAttribute(pickler, "dispatch_table");
+                dispatchTable = dispatchTable == PNone.NO_VALUE ? null : dispatchTable;
+            }
+            DumpState state = new DumpState(pickler, persistentId, dispatchTable);
+            pickler.clearOutput();
+            int proto = pickler.getProtocol();
+            if (proto >= 2) {
+                pickler.write(PROTO, (byte) proto);
+            }
+            pickler.setFraming(proto >= 4);
+            save(state, obj, true);
+            pickler.write(STOP);
+            pickler.commitFrame();
+            pickler.setFraming(false);
+            if (pickler.getWrite() != null) {
+                flush(pickler);
+            }
+        }
+
+        private void flush(PPickler pickler) {
+            call(pickler.getWrite(), factory().createBytes(pickler.takeOutput()));
+        }
+
+        private void save(DumpState state, Object obj, boolean savePersistentId) {
+            PPickler pickler = state.pickler;
+            if (pickler.isFrameFull()) {
+                pickler.commitFrame();
+                if (pickler.getWrite() != null) {
+                    // hand the finished frame to the file so that the buffer stays small
+                    flush(pickler);
+                }
+            }
+            if (savePersistentId && state.persistentId != null) {
+                Object pid = call(state.persistentId, obj);
+                if (pid != PNone.NONE) {
+                    savePersistentId(state, pid);
+                    return;
+                }
+            }
+            if (obj == PNone.NONE) {
+                pickler.write(NONE);
+            } else if (obj instanceof Boolean) {
+                saveBool(pickler, (boolean) obj);
+            } else if (obj instanceof Integer) {
+                saveLong(pickler, (int) obj);
+            } else if (obj instanceof Long) {
+                saveLong(pickler, (long) obj);
+            } else if (obj instanceof Double) {
+                saveFloat(pickler, (double) obj);
+            } else if (isExact(obj, PythonBuiltinClassType.Boolean)) {
+                saveBool(pickler, ((PInt) obj).isOne());
+            } else if (isExact(obj, PythonBuiltinClassType.PInt)) {
+                saveBigInteger(pickler, ((PInt) obj).getValue());
+            } else if (isExact(obj, PythonBuiltinClassType.PFloat)) {
+                saveFloat(pickler, ((PFloat) obj).getValue());
+            } else {
+                Integer index = pickler.getMemo().get(obj);
+                if (index != null) {
+                    writeGet(pickler, index);
+                    return;
+                }
+                if (obj instanceof String) {
+                    saveString(state, obj, (String) obj);
+                } else if (isExact(obj, PythonBuiltinClassType.PString)) {
+                    saveString(state, obj, ((PString) obj).getValue());
+                } else {
+                    enter(state);
+                    saveObject(state, obj);
+                    state.depth--;
+                }
+            }
+        }
+
+        private void saveObject(DumpState state, Object obj) {
+            if (isExact(obj, PythonBuiltinClassType.PBytes)) {
+                saveBytes(state, (PBytes) obj);
+            } else if (isExact(obj, PythonBuiltinClassType.PTuple)) {
+                saveTuple(state, (PTuple) obj);
+            } else if (isExact(obj, PythonBuiltinClassType.PList)) {
+                saveList(state, (PList) obj);
+            } else if (isExact(obj, PythonBuiltinClassType.PDict)) {
+                saveDict(state, (PDict) obj);
+            } else if (isExact(obj, PythonBuiltinClassType.PSet)) {
+                saveSet(state, (PBaseSet) obj);
+            } else if (isExact(obj, PythonBuiltinClassType.PFrozenSet)) {
+                saveFrozenSet(state, (PBaseSet) obj);
+            } else if (obj instanceof PFunction || obj instanceof PBuiltinFunction || (obj instanceof PBuiltinMethod && ((PBuiltinMethod) obj).getSelf() instanceof PythonModule)) {
+                saveGlobal(state, obj, PNone.NONE);
+            } else if (PGuards.isClass(obj)) {
+                saveType(state, obj);
+            } else {
+                saveReduceValue(state, obj);
+            }
+        }
+
+        private void enter(DumpState state) {
+            if (++state.depth > MAX_DEPTH) {
+                state.depth = 0;
+                throw raise(RecursionError, "maximum recursion depth exceeded while pickling an object");
+            }
+        }
+
+        private void savePersistentId(DumpState state, Object pid) {
+            PPickler pickler = state.pickler;
+            if (pickler.isBin()) {
+                save(state, pid, false);
+                pickler.write(BINPERSID);
+            } else {
+                String s = pid instanceof PString ? ((PString) pid).getValue() : pid instanceof String ? (String) pid : null;
+                if (s == null || !isAscii(s)) {
+                    throw raisePickleError("PicklingError", "persistent IDs in protocol 0 must be ASCII strings");
+                }
+                pickler.write(PERSID);
+                writeLine(pickler, s);
+            }
+        }
+
+        private static void saveBool(PPickler pickler, boolean value) {
+            if (pickler.getProtocol() >= 2) {
+                pickler.write(value ? NEWTRUE : NEWFALSE);
+            } else {
+                pickler.write(INT);
+                writeLine(pickler, value ? "01" : "00");
+            }
+        }
+
+        private static void saveLong(PPickler pickler, long value) {
+            if (pickler.isBin()) {
+                if (value >= 0 && value <= 0xff) {
+                    pickler.write(BININT1, (byte) value);
+                } else if (value >= 0 && value <= 0xffff) {
+                    pickler.writeWithArgument(BININT2, value, 2);
+                } else if (value == (int) value) {
+                    pickler.writeWithArgument(BININT, value, 4);
+                } else {
+                    saveLongAsBigInteger(pickler, BigInteger.valueOf(value));
+                }
+            } else if (value == (int) value) {
+                pickler.write(INT);
+                writeLine(pickler, Long.toString(value));
+            } else {
+                saveLongAsBigInteger(pickler, BigInteger.valueOf(value));
+            }
+        }
+
+        private static void saveBigInteger(PPickler pickler, BigInteger value) {
+            if (value.bitLength() < 64) {
+                saveLong(pickler, value.longValue());
+            } else {
+                saveLongAsBigInteger(pickler, value);
+            }
+        }
+
+        private static void saveLongAsBigInteger(PPickler pickler, BigInteger value) {
+            if (pickler.getProtocol() >= 2) {
+                byte[] encoded = PickleUtils.encodeLong(value);
+                if (encoded.length <= 0xff) {
+                    pickler.write(LONG1, (byte) encoded.length);
+                    pickler.write(encoded);
+                } else {
+                    pickler.writeWithArgument(LONG4, encoded.length, 4);
+                    pickler.write(encoded);
+                }
+            } else {
+                pickler.write(LONG);
+                writeLine(pickler, value.toString() + "L");
+            }
+        }
+
+        private static void saveFloat(PPickler pickler, double value) {
+            if (pickler.isBin()) {
+                long bits = Double.doubleToRawLongBits(value);
+                pickler.writeWithArgument(BINFLOAT, Long.reverseBytes(bits), 8);
+            } else {
+                // the same as float.__repr__
+                InternalFormat.Spec spec = new InternalFormat.Spec(' ', '>', InternalFormat.Spec.NONE, false, InternalFormat.Spec.UNSPECIFIED, false, 0, 'r');
+                FloatFormatter formatter = new FloatFormatter(getCore(), spec);
+                formatter.setMinFracDigits(1);
+                pickler.write(FLOAT);
+                writeLine(pickler, formatter.format(value).getResult());
+            }
+        }
+
+        private void saveString(DumpState state, Object obj, String value) {
+            PPickler pickler = state.pickler;
+            if (pickler.isBin()) {
+                byte[] encoded = PickleUtils.encodeUTF8(value);
+                boolean direct;
+                if (encoded.length <= 0xff && pickler.getProtocol() >= 4) {
+                    direct = pickler.writeWithPayload(SHORT_BINUNICODE, 1, encoded, 0, encoded.length);
+                } else {
+                    direct = pickler.writeWithPayload(BINUNICODE, 4, encoded, 0, encoded.length);
+                }
+                if (direct) {
+                    flush(pickler);
+                    call(pickler.getWrite(), factory().createBytes(encoded));
+                }
+            } else {
+                String escaped = value.replace("\\", "\\u005c").replace("\n", "\\u000a");
+                pickler.write(PickleUtils.UNICODE);
+                pickler.write(PickleUtils.encodeRawUnicodeEscape(escaped));
+                pickler.write((byte) '\n');
+            }
+            memoize(pickler, obj);
+        }
+
+        private void saveBytes(DumpState state, PBytes bytes) {
+            PPickler pickler = state.pickler;
+            SequenceStorage storage = bytes.getSequenceStorage();
+            int length = storage.length();
+            if (pickler.getProtocol() < 3) {
+                // written as a call that recreates the object, as there is no bytes opcode
+                if (length == 0) {
+                    saveReduce(state, getCore().lookupType(PythonBuiltinClassType.PBytes), factory().createTuple(new Object[0]), PNone.NONE, PNone.NONE, PNone.NONE, bytes);
+                } else {
+                    String latin1 = new String(getBytes(storage), 0, length, StandardCharsets.ISO_8859_1);
+                    Object encode = getCore().lookupBuiltinModule("_codecs").getAttribute("encode");
+                    saveReduce(state, encode, factory().createTuple(new Object[]{latin1, "latin1"}), PNone.NONE, PNone.NONE, PNone.NONE, bytes);
+                }
+                return;
+            }
+            byte[] data = getBytes(storage);
+            boolean direct;
+            if (length <= 0xff) {
+                direct = pickler.writeWithPayload(SHORT_BINBYTES, 1, data, 0, length);
+            } else {
+                direct = pickler.writeWithPayload(BINBYTES, 4, data, 0, length);
+            }
+            if (direct) {
+                flush(pickler);
+                // the object itself is written, so the payload is never copied
+                call(pickler.getWrite(), bytes);
+            }
+            memoize(pickler, bytes);
+        }
+
+        private static byte[] getBytes(SequenceStorage storage) {
+            if (storage instanceof ByteSequenceStorage) {
+                return ((ByteSequenceStorage) storage).getInternalByteArray();
+            }
+            byte[] result = new byte[storage.length()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = (byte) (int) storage.getItemNormalized(i);
+            }
+            return result;
+        }
+
+        private void saveTuple(DumpState state, PTuple tuple) {
+            PPickler pickler = state.pickler;
+            SequenceStorage storage = tuple.getSequenceStorage();
+            int n = storage.length();
+            if (n == 0) {
+                if (pickler.isBin()) {
+                    pickler.write(EMPTY_TUPLE);
+                } else {
+                    pickler.write(MARK, TUPLE);
+                }
+                return;
+            }
+            if (n <= 3 && pickler.getProtocol() >= 2) {
+                for (int i = 0; i < n; i++) {
+                    save(state, storage.getItemNormalized(i), true);
+                }
+                Integer index = pickler.getMemo().get(tuple);
+                if (index != null) {
+                    // the tuple was memoized while its items were saved, i.e., it is recursive
+                    for (int i = 0; i < n; i++) {
+                        pickler.write(POP);
+                    }
+                    writeGet(pickler, index);
+                } else {
+                    pickler.write(n == 1 ? TUPLE1 : n == 2 ? TUPLE2 : TUPLE3);
+                    memoize(pickler, tuple);
+                }
+                return;
+            }
+            pickler.write(MARK);
+            for (int i = 0; i < n; i++) {
+                save(state, storage.getItemNormalized(i), true);
+            }
+            Integer index = pickler.getMemo().get(tuple);
+            if (index != null) {
+                if (pickler.isBin()) {
+                    pickler.write(POP_MARK);
+                } else {
+                    for (int i = 0; i <= n; i++) {
+                        pickler.write(POP);
+                    }
+                }
+                writeGet(pickler, index);
+                return;
+            }
+            pickler.write(TUPLE);
+            memoize(pickler, tuple);
+        }
+
+        private void saveList(DumpState state, PList list) {
+            PPickler pickler = state.pickler;
+            if (pickler.isBin()) {
+                pickler.write(EMPTY_LIST);
+            } else {
+                pickler.write(MARK, LIST);
+            }
+            memoize(pickler, list);
+            if (!pickler.isBin()) {
+                for (int i = 0; i < list.getSequenceStorage().length(); i++) {
+                    save(state, list.getSequenceStorage().getItemNormalized(i), true);
+                    pickler.write(APPEND);
+                }
+                return;
+            }
+            // the storage is fetched again for every item because saving may modify the list
+            int i = 0;
+            while (i < list.getSequenceStorage().length()) {
+                int end = Math.min(i + BATCHSIZE, list.getSequenceStorage().length());
+                if (end - i == 1) {
+                    save(state, list.getSequenceStorage().getItemNormalized(i), true);
+                    pickler.write(APPEND);
+                    i++;
+                    continue;
+                }
+                pickler.write(MARK);
+                for (; i < end && i < list.getSequenceStorage().length(); i++) {
+                    save(state, list.getSequenceStorage().getItemNormalized(i), true);
+                }
+                pickler.write(APPENDS);
+            }
+        }
+
+        private void batchAppends(DumpState state, Object items) {
+            PPickler pickler = state.pickler;
+            Object iterator = getIterator(items);
+            Object[] batch = new Object[BATCHSIZE];
+            while (true) {
+                int n = 0;
+                Object item;
+                while (n < BATCHSIZE && (item = next(iterator)) != null) {
+                    batch[n++] = item;
+                }
+                if (n == 0) {
+                    return;
+                }
+                if (n == 1 || !pickler.isBin()) {
+                    for (int i = 0; i < n; i++) {
+                        save(state, batch[i], true);
+                        pickler.write(APPEND);
+                    }
+                } else {
+                    pickler.write(MARK);
+                    for (int i = 0; i < n; i++) {
+                        save(state, batch[i], true);
+                    }
+                    pickler.write(APPENDS);
+                }
+                if (n < BATCHSIZE) {
+                    return;
+                }
+            }
+        }
+
+        private void saveDict(DumpState state, PDict dict) {
+            PPickler pickler = state.pickler;
+            if (pickler.isBin()) {
+                pickler.write(EMPTY_DICT);
+            } else {
+                pickler.write(MARK, DICT);
+            }
+            memoize(pickler, dict);
+            HashingStorage storage = dict.getDictStorage();
+            Object[] keys = new Object[storage.length()];
+            Object[] values = new Object[keys.length];
+            int n = 0;
+            for (DictEntry entry : storage.entries()) {
+                keys[n] = entry.getKey();
+                values[n] = entry.getValue();
+                n++;
+            }
+            writeSetItems(state, keys, values, n);
+        }
+
+        private void writeSetItems(DumpState state, Object[] keys, Object[] values, int n) {
+            PPickler pickler = state.pickler;
+            if (!pickler.isBin()) {
+                for (int i = 0; i < n; i++) {
+                    save(state, keys[i], true);
+                    save(state, values[i], true);
+                    pickler.write(SETITEM);
+                }
+                return;
+            }
+            for (int start = 0; start < n; start += BATCHSIZE) {
+                int end = Math.min(start + BATCHSIZE, n);
+                if (end - start == 1) {
+                    save(state, keys[start], true);
+                    save(state, values[start], true);
+                    pickler.write(SETITEM);
+                } else {
+                    pickler.write(MARK);
+                    for (int i = start; i < end; i++) {
+                        save(state, keys[i], true);
+                        save(state, values[i], true);
+                    }
+                    pickler.write(SETITEMS);
+                }
+            }
+        }
+
+        private void batchSetItems(DumpState state, Object items) {
+            Object iterator = getIterator(items);
+            ArrayList<Object> keys = new ArrayList<>();
+            ArrayList<Object> values = new ArrayList<>();
+            Object item;
+            while ((item = next(iterator)) != null) {
+                if (!(item instanceof PTuple) || ((PTuple) item).getSequenceStorage().length() != 2) {
+                    throw raise(TypeError, "dict items iterator must return 2-tuples");
+                }
+                SequenceStorage pair = ((PTuple) item).getSequenceStorage();
+                keys.add(pair.getItemNormalized(0));
+                values.add(pair.getItemNormalized(1));
+            }
+            writeSetItems(state, keys.toArray(), values.toArray(), keys.size());
+        }
+
+        private static Object[] getSetItems(PBaseSet set) {
+            HashingStorage storage = set.getDictStorage();
+            Object[] items = new Object[storage.length()];
+            int n = 0;
+            for (Object key : storage.keys()) {
+                items[n++] = key;
+            }
+            return items;
+        }
+
+        private void saveSet(DumpState state, PBaseSet set) {
+            PPickler pickler = state.pickler;
+            Object[] items = getSetItems(set);
+            if (pickler.getProtocol() < 4) {
+                saveReduce(state, getCore().lookupType(PythonBuiltinClassType.PSet), factory().createTuple(new Object[]{factory().createList(items)}), PNone.NONE, PNone.NONE, PNone.NONE, set);
+                return;
+            }
+            pickler.write(EMPTY_SET);
+            memoize(pickler, set);
+            for (int start = 0; start < items.length; start += BATCHSIZE) {
+                pickler.write(MARK);
+                for (int i = start; i < Math.min(start + BATCHSIZE, items.length); i++) {
+                    save(state, items[i], true);
+                }
+                pickler.write(ADDITEMS);
+            }
+        }
+
+        private void saveFrozenSet(DumpState state, PBaseSet set) {
+            PPickler pickler = state.pickler;
+            Object[] items = getSetItems(set);
+            if (pickler.getProtocol() < 4) {
+                saveReduce(state, getCore().lookupType(PythonBuiltinClassType.PFrozenSet), factory().createTuple(new Object[]{factory().createList(items)}), PNone.NONE, PNone.NONE, PNone.NONE,
+                                set);
+                return;
+            }
+            pickler.write(MARK);
+            for (Object item : items) {
+                save(state, item, true);
+            }
+            Integer index = pickler.getMemo().get(set);
+            if (index != null) {
+                pickler.write(POP_MARK);
+                writeGet(pickler, index);
+                return;
+            }
+            pickler.write(FROZENSET);
+            memoize(pickler, set);
+        }
+
+        private void saveType(DumpState state, Object type) {
+            Object typeType = getCore().lookupType(PythonBuiltinClassType.PythonClass);
+            Object singleton = null;
+            if (type == getCore().lookupType(PythonBuiltinClassType.PNone)) {
+                singleton = PNone.NONE;
+            } else if (type == getCore().lookupType(PythonBuiltinClassType.PNotImplemented)) {
+                singleton = PNotImplemented.NOT_IMPLEMENTED;
+            } else if (type == getCore().lookupType(PythonBuiltinClassType.PEllipsis)) {
+                singleton = PEllipsis.INSTANCE;
+            }
+            if (singleton != null) {
+                saveReduce(state, typeType, factory().createTuple(new Object[]{singleton}), PNone.NONE, PNone.NONE, PNone.NONE, type);
+            } else {
+                saveGlobal(state, type, PNone.NONE);
+            }
+        }
+
+        private void saveGlobal(DumpState state, Object obj, Object name) {
+            PPickler pickler = state.pickler;
+            int proto = pickler.getProtocol();
+            // (module_name, name, lastname, parent or None if it is the module, extension code)
+            Object reference = call(getPickleModuleAttribute("_global_reference"), obj, name, proto, pickler.isFixImports());
+            SequenceStorage parts = ((PTuple) reference).getSequenceStorage();
+            Object moduleName = parts.getItemNormalized(0);
+            Object globalName = parts.getItemNormalized(1);
+            Object parent = parts.getItemNormalized(3);
+            long code = toLong(parts.getItemNormalized(4));
+            if (code > 0) {
+                if (code <= 0xff) {
+                    pickler.write(EXT1, (byte) code);
+                } else if (code <= 0xffff) {
+                    pickler.writeWithArgument(EXT2, code, 2);
+                } else {
+                    pickler.writeWithArgument(EXT4, code, 4);
+                }
+                return;
+            }
+            if (proto >= 4) {
+                save(state, moduleName, true);
+                save(state, globalName, true);
+                pickler.write(STACK_GLOBAL);
+            } else if (parent != PNone.NONE) {
+                Object getattr = getCore().getBuiltins().getAttribute("getattr");
+                saveReduce(state, getattr, factory().createTuple(new Object[]{parent, parts.getItemNormalized(2)}), PNone.NONE, PNone.NONE, PNone.NONE, null);
+            } else {
+                String module = toJavaString(moduleName);
+                String global = toJavaString(globalName);
+                if (proto < 3 && !(isAscii(module) && isAscii(global))) {
+                    throw raisePickleError("PicklingError", "can't pickle global identifier '%s.%s' using pickle protocol %d", module, global, proto);
+                }
+                pickler.write(GLOBAL);
+                pickler.write(PickleUtils.encodeUTF8(module));
+                pickler.write((byte) '\n');
+                pickler.write(PickleUtils.encodeUTF8(global));
+                pickler.write((byte) '\n');
+            }
+            memoize(pickler, obj);
+        }
+
+        private void saveReduceValue(DumpState state, Object obj) {
+            Object type = getClass(obj);
+            Object reduceValue = null;
+            if (state.dispatchTable == null) {
+                state.dispatchTable = call(getPickleModuleAttribute("_dispatch_table"));
+            }
+            Object reduce = callMethod(state.dispatchTable, "get", type, PNone.NONE);
+            if (reduce != PNone.NONE) {
+                reduceValue = call(reduce, obj);
+            } else {
+                Object reduceEx = lookupAttribute(obj, __REDUCE_EX__);
+                if (reduceEx != PNone.NO_VALUE) {
+                    reduceValue = call(reduceEx, state.pickler.getProtocol());
+                } else {
+                    reduce = lookupAttribute(obj, __REDUCE__);
+                    if (reduce == PNone.NO_VALUE) {
+                        throw raisePickleError("PicklingError", "can't pickle %s objects", GetNameNode.doSlowPath(type));
+                    }
+                    reduceValue = call(reduce);
+                }
+            }
+            if (reduceValue instanceof String || reduceValue instanceof PString) {
+                saveGlobal(state, obj, reduceValue);
+                return;
+            }
+            if (!(reduceValue instanceof PTuple)) {
+                throw raisePickleError("PicklingError", "__reduce__ must return a string or tuple");
+            }
+            SequenceStorage storage = ((PTuple) reduceValue).getSequenceStorage();
+            int n = storage.length();
+            if (n < 2 || n > 5) {
+                throw raisePickleError("PicklingError", "tuple returned by __reduce__ must contain 2 through 5 elements");
+            }
+            Object func = storage.getItemNormalized(0);
+            Object args = storage.getItemNormalized(1);
+            Object objState = n > 2 ? storage.getItemNormalized(2) : PNone.NONE;
+            Object listItems = n > 3 ? storage.getItemNormalized(3) : PNone.NONE;
+            Object dictItems = n > 4 ? storage.getItemNormalized(4) : PNone.NONE;
+            saveReduce(state, func, args, objState, listItems, dictItems, obj);
+        }
+
+        /**
+         * Implements {@code save_reduce}; {@code obj} is {@code null} if the result must not be
+         * memoized.
+         */
+        private void saveReduce(DumpState state, Object func, Object args, Object objState, Object listItems, Object dictItems, Object obj) {
+            PPickler pickler = state.pickler;
+            int proto = pickler.getProtocol();
+            if (!(args instanceof PTuple)) {
+                throw raisePickleError("PicklingError", "args from save_reduce() must be a tuple");
+            }
+            if (!isCallable(func)) {
+                throw raisePickleError("PicklingError", "func from save_reduce() must be callable");
+            }
+            SequenceStorage argsStorage = ((PTuple) args).getSequenceStorage();
+            Object funcName = proto >= 2 ? lookupAttribute(func, "__name__") : PNone.NO_VALUE;
+            String name = funcName instanceof String || funcName instanceof PString ? toJavaString(funcName) : "";
+            if (name.equals("__newobj_ex__")) {
+                if (argsStorage.length() != 3) {
+                    throw raisePickleError("PicklingError", "length of the NEWOBJ_EX argument tuple must be exactly 3, not %d", argsStorage.length());
+                }
+                Object cls = argsStorage.getItemNormalized(0);
+                Object clsArgs = argsStorage.getItemNormalized(1);
+                Object clsKwargs = argsStorage.getItemNormalized(2);
+                checkNewObjClass(cls, obj, "__newobj_ex__");
+                if (!(clsArgs instanceof PTuple)) {
+                    throw raisePickleError("PicklingError", "NEWOBJ_EX args argument must be a tuple");
+                }
+                if (!(clsKwargs instanceof PDict)) {
+                    throw raisePickleError("PicklingError", "NEWOBJ_EX kwargs argument must be a dict");
+                }
+                if (proto >= 4) {
+                    save(state, cls, true);
+                    save(state, clsArgs, true);
+                    save(state, clsKwargs, true);
+                    pickler.write(NEWOBJ_EX);
+                } else {
+                    Object partial = call(getPickleModuleAttribute("_newobj_ex_partial"), cls, clsArgs, clsKwargs);
+                    save(state, partial, true);
+                    save(state, factory().createTuple(new Object[0]), true);
+                    pickler.write(REDUCE);
+                }
+            } else if (name.equals("__newobj__")) {
+                if (argsStorage.length() == 0) {
+                    throw raisePickleError("PicklingError", "__newobj__ arglist is empty");
+                }
+                Object cls = argsStorage.getItemNormalized(0);
+                checkNewObjClass(cls, obj, "__newobj__");
+                Object[] newArgs = new Object[argsStorage.length() - 1];
+                for (int i = 0; i < newArgs.length; i++) {
+                    newArgs[i] = argsStorage.getItemNormalized(i + 1);
+                }
+                save(state, cls, true);
+                save(state, factory().createTuple(newArgs), true);
+                pickler.write(NEWOBJ);
+            } else {
+                save(state, func, true);
+                save(state, args, true);
+                pickler.write(REDUCE);
+            }
+            if (obj != null) {
+                Integer index = pickler.getMemo().get(obj);
+                if (index != null) {
+                    pickler.write(POP);
+                    writeGet(pickler, index);
+                } else {
+                    memoize(pickler, obj);
+                }
+            }
+            if (listItems != PNone.NONE) {
+                batchAppends(state, listItems);
+            }
+            if (dictItems != PNone.NONE) {
+                batchSetItems(state, dictItems);
+            }
+            if (objState != PNone.NONE) {
+                save(state, objState, true);
+                pickler.write(BUILD);
+            }
+        }
+
+        private void checkNewObjClass(Object cls, Object obj, String funcName) {
+            if (!PGuards.isClass(cls)) {
+                throw raisePickleError("PicklingError", "args[0] from %s args is not a type", funcName);
+            }
+            if (obj != null && getClass(obj) != cls) {
+                throw raisePickleError("PicklingError", "args[0] from %s args has the wrong class", funcName);
+            }
+        }
+
+        private static void memoize(PPickler pickler, Object obj) {
+            int index = pickler.getMemo().size();
+            pickler.getMemo().put(obj, index);
+            if (pickler.getProtocol() >= 4) {
+                pickler.write(MEMOIZE);
+            } else if (pickler.isBin()) {
+                if (index < 256) {
+                    pickler.write(BINPUT, (byte) index);
+                } else {
+                    pickler.writeWithArgument(LONG_BINPUT, index, 4);
+                }
+            } else {
+                pickler.write(PUT);
+                writeLine(pickler, Integer.toString(index));
+            }
+        }
+
+        private static void writeGet(PPickler pickler, int index) {
+            if (pickler.isBin()) {
+                if (index < 256) {
+                    pickler.write(BINGET, (byte) index);
+                } else {
+                    pickler.writeWithArgument(LONG_BINGET, index, 4);
+                }
+            } else {
+                pickler.write(GET);
+                writeLine(pickler, Integer.toString(index));
+            }
+        }
+
+        private static void writeLine(PPickler pickler, String ascii) {
+            pickler.write(ascii.getBytes(StandardCharsets.ISO_8859_1));
+            pickler.write((byte) '\n');
+        }
+
+        private static boolean isAscii(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                if (s.charAt(i) >= 128) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static String toJavaString(Object s) {
+            return s instanceof PString ? ((PString) s).getValue() : (String) s;
+        }
+
+        private static long toLong(Object value) {
+            if (value instanceof Integer) {
+                return (int) value;
+            } else if (value instanceof Long) {
+                return (long) value;
+            } else if (value instanceof PInt) {
+                return ((PInt) value).longValue();
+            }
+            return 0;
+        }
+
+        private Object getClass(Object obj) {
+            if (getClassNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                getClassNode = insert(GetClassNode.create());
+            }
+            return getClassNode.execute(obj);
+        }
+
+        private boolean isCallable(Object obj) {
+            if (PGuards.isCallable(obj) || PGuards.isClass(obj)) {
+                return true;
+            }
+            if (lookupCallNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                lookupCallNode = insert(LookupInheritedAttributeNode.Dynamic.create());
+            }
+            return lookupCallNode.execute(obj, __CALL__) != PNone.NO_VALUE;
+        }
+
+        private Object getIterator(Object iterable) {
+            if (getIteratorNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                getIteratorNode = insert(GetIteratorNode.create());
+            }
+            return getIteratorNode.executeWith(iterable);
+        }
+
+        /**
+         * Returns the next item or {@code null} if the iterator is exhausted.
+         */
+        private Object next(Object iterator) {
+            if (getNextNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                getNextNode = insert(GetNextNode.create());
+            }
+            try {
+                return getNextNode.execute(iterator);
+            } catch (PException e) {
+                e.expectStopIteration(stopIterationProfile);
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.pickle;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__INIT__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.builtins.objects.type.TypeNodes.GetNameNode;
+import com.oracle.graal.python.nodes.attributes.GetAttributeNode.GetAnyAttributeNode;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.expression.CastToBooleanNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PUnpickler)
+public class UnpicklerBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return UnpicklerBuiltinsFactory.getFactories();
+    }
+
+    /**
+     * Converts the {@code encoding} or {@code errors} argument, which defaults to {@code dflt}.
+     */
+    public static String getStringArgument(PythonBuiltinBaseNode node, Object value, String name, String dflt) {
+        if (value instanceof PNone) {
+            return dflt;
+        } else if (value instanceof String) {
+            return (String) value;
+        } else if (value instanceof PString) {
+            return ((PString) value).getValue();
+        }
+        throw node.raise(TypeError, "argument '%s' must be str, not %p", name, value);
+    }
+
+    // Unpickler(file, *, fix_imports=True, encoding="ASCII", errors="strict")
+    @Builtin(name = __INIT__, minNumOfPositionalArgs = 2, parameterNames = {"self", "file"}, varArgsMarker = true, keywordOnlyNames = {"fix_imports", "encoding", "errors"})
+    @GenerateNodeFactory
+    public abstract static class InitNode extends PythonBuiltinNode {
+        @Specialization
+        PNone init(PUnpickler self, Object file, Object fixImports, Object encoding, Object errors,
+                        @Cached("createIfTrueNode()") CastToBooleanNode isTrueNode,
+                        @Cached("create()") GetAnyAttributeNode getAttributeNode,
+                        @Cached("create()") IsBuiltinClassProfile attributeErrorProfile) {
+            Object read;
+            Object readline;
+            try {
+                read = getAttributeNode.executeObject(file, "read");
+                readline = getAttributeNode.executeObject(file, "readline");
+            } catch (PException e) {
+                e.expectAttributeError(attributeErrorProfile);
+                throw raise(TypeError, "file must have 'read' and 'readline' attributes");
+            }
+            String encodingName = getStringArgument(this, encoding, "encoding", "ASCII");
+            String errorsName = getStringArgument(this, errors, "errors", "strict");
+            self.init(read, readline, fixImports instanceof PNone || isTrueNode.executeWith(fixImports), encodingName, errorsName);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "load", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    public abstract static class LoadNode extends PythonUnaryBuiltinNode {
+        @Child private UnpicklerNodes.LoadNode loadNode = UnpicklerNodes.LoadNode.create();
+
+        @Specialization
+        Object load(PUnpickler self) {
+            if (!self.isInitialized()) {
+                throw loadNode.raisePickleError("UnpicklingError", "Unpickler.__init__() was not called by %s.__init__()", GetNameNode.doSlowPath(self.getLazyPythonClass()));
+            }
+            return loadNode.execute(self, true);
+        }
+    }
+
+    /**
+     * Imports {@code module_name} and returns its attribute {@code global_name}, with the Python 2
+     * names mapped to Python 3 ones if the pickle was written by Python 2.
+     */
+    @Builtin(name = "find_class", minNumOfPositionalArgs = 3, parameterNames = {"self", "module_name", "global_name"})
+    @GenerateNodeFactory
+    public abstract static class FindClassNode extends PythonTernaryBuiltinNode {
+        @Child private CallNode callNode = CallNode.create();
+
+        @Specialization
+        Object findClass(PUnpickler self, Object moduleName, Object globalName) {
+            Object findClass = PickleBaseNode.getPickleModuleAttribute("_find_class");
+            return callNode.execute(null, findClass, new Object[]{moduleName, globalName, self.getProtocol(), self.isFixImports()}, PKeyword.EMPTY_KEYWORDS);
+        }
+    }
+}
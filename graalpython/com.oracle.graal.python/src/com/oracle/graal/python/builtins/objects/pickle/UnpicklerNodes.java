@@ -0,0 +1,954 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.pickle;
+
+import static com.oracle.graal.python.builtins.PythonBuiltinClassType.EOFError;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.ADDITEMS;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.APPEND;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.APPENDS;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINBYTES;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINBYTES8;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINFLOAT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINGET;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BININT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BININT1;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BININT2;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINPERSID;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINPUT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINSTRING;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINUNICODE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BINUNICODE8;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.BUILD;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.DICT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.DUP;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EMPTY_DICT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EMPTY_LIST;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EMPTY_SET;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EMPTY_TUPLE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EXT1;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EXT2;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.EXT4;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.FLOAT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.FRAME;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.FROZENSET;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.GET;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.GLOBAL;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.HIGHEST_PROTOCOL;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.INST;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.INT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LIST;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LONG;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LONG1;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LONG4;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LONG_BINGET;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.LONG_BINPUT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.MARK;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.MEMOIZE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.NEWFALSE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.NEWOBJ;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.NEWOBJ_EX;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.NEWTRUE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.NONE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.OBJ;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.PERSID;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.POP;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.POP_MARK;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.PROTO;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.PUT;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.REDUCE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.SETITEM;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.SETITEMS;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.SHORT_BINBYTES;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.SHORT_BINSTRING;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.SHORT_BINUNICODE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.STACK_GLOBAL;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.STOP;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.STRING;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.TUPLE;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.TUPLE1;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.TUPLE2;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.TUPLE3;
+import static com.oracle.graal.python.builtins.objects.pickle.PickleUtils.UNICODE;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__SETSTATE__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.KeyError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.MemoryError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.UnicodeDecodeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.bytes.PIBytesLike;
+import com.oracle.graal.python.builtins.objects.common.EconomicMapStorage;
+import com.oracle.graal.python.builtins.objects.common.HashingCollectionNodes;
+import com.oracle.graal.python.builtins.objects.common.HashingStorage;
+import com.oracle.graal.python.builtins.objects.common.HashingStorage.DictEntry;
+import com.oracle.graal.python.builtins.objects.common.HashingStorageNodes;
+import com.oracle.graal.python.builtins.objects.common.PHashingCollection;
+import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes;
+import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes.ListGeneralizationNode;
+import com.oracle.graal.python.builtins.objects.dict.PDict;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.list.PList;
+import com.oracle.graal.python.builtins.objects.set.PSet;
+import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.builtins.objects.tuple.PTuple;
+import com.oracle.graal.python.nodes.PGuards;
+import com.oracle.graal.python.nodes.attributes.LookupInheritedAttributeNode;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+public abstract class UnpicklerNodes {
+
+    /**
+     * Reads one pickle, following {@code pickle._Unpickler} of CPython 3.7. Containers of exact
+     * builtin types are filled directly through their storages.
+     */
+    public static final class LoadNode extends PickleBaseNode {
+        @Child private SequenceStorageNodes.AppendNode appendNode;
+        @Child private HashingCollectionNodes.SetItemNode setItemNode;
+        @Child private HashingStorageNodes.SetItemNode setStorageItemNode;
+        @Child private LookupInheritedAttributeNode lookupSetStateNode;
+
+        public static LoadNode create() {
+            return new LoadNode();
+        }
+
+        /**
+         * Reads the next pickle from the unpickler's input, which is refilled from the file if the
+         * unpickler has one. The persistent_load hook is only looked up if {@code lookupHooks} is
+         * set.
+         */
+        @TruffleBoundary
+        public Object execute(PUnpickler self, boolean lookupHooks) {
+            self.reset();
+            Object persistentLoad = null;
+            while (true) {
+                int opcode = readOpcode(self);
+                switch ((byte) opcode) {
+                    case PROTO: {
+                        int proto = self.getInput()[read(self, 1)] & 0xff;
+                        if (proto > HIGHEST_PROTOCOL) {
+                            throw raise(ValueError, "unsupported pickle protocol: %d", proto);
+                        }
+                        self.setProtocol(proto);
+                        break;
+                    }
+                    case FRAME:
+                        loadFrame(self);
+                        break;
+                    case STOP:
+                        return pop(self);
+                    case MARK:
+                        self.pushMark();
+                        break;
+                    case POP:
+                        if (self.getMarkCount() > 0 && self.getFence() == self.getStackSize()) {
+                            self.popMark();
+                        } else {
+                            pop(self);
+                        }
+                        break;
+                    case POP_MARK:
+                        popMark(self);
+                        break;
+                    case DUP:
+                        self.push(peek(self));
+                        break;
+                    case NONE:
+                        self.push(PNone.NONE);
+                        break;
+                    case NEWTRUE:
+                        self.push(true);
+                        break;
+                    case NEWFALSE:
+                        self.push(false);
+                        break;
+                    case INT:
+                        self.push(loadInt(self));
+                        break;
+                    case BININT:
+                        self.push((int) readLittleEndian(self, 4));
+                        break;
+                    case BININT1:
+                        self.push((int) readLittleEndian(self, 1));
+                        break;
+                    case BININT2:
+                        self.push((int) readLittleEndian(self, 2));
+                        break;
+                    case LONG:
+                        self.push(loadLong(self));
+                        break;
+                    case LONG1:
+                    case LONG4: {
+                        long n = opcode == (LONG1 & 0xff) ? readLittleEndian(self, 1) : (int) readLittleEndian(self, 4);
+                        if (n < 0) {
+                            throw raisePickleError("UnpicklingError", "LONG pickle has negative byte count");
+                        }
+                        int offset = read(self, (int) n);
+                        self.push(toInt(PickleUtils.decodeLong(self.getInput(), offset, (int) n)));
+                        break;
+                    }
+                    case FLOAT:
+                        self.push(loadFloat(self));
+                        break;
+                    case BINFLOAT:
+                        self.push(Double.longBitsToDouble(Long.reverseBytes(readLittleEndian(self, 8))));
+                        break;
+                    case STRING:
+                        self.push(loadString(self));
+                        break;
+                    case BINSTRING:
+                    case SHORT_BINSTRING: {
+                        long n = opcode == (SHORT_BINSTRING & 0xff) ? readLittleEndian(self, 1) : (int) readLittleEndian(self, 4);
+                        if (n < 0) {
+                            throw raisePickleError("UnpicklingError", "BINSTRING pickle has negative byte count");
+                        }
+                        int offset = read(self, (int) n);
+                        self.push(decodeString(self, Arrays.copyOfRange(self.getInput(), offset, offset + (int) n)));
+                        break;
+                    }
+                    case BINBYTES:
+                    case SHORT_BINBYTES:
+                    case BINBYTES8: {
+                        int n = readSize(self, opcode == (SHORT_BINBYTES & 0xff) ? 1 : opcode == (BINBYTES & 0xff) ? 4 : 8, "BINBYTES");
+                        int offset = read(self, n);
+                        self.push(factory().createBytes(Arrays.copyOfRange(self.getInput(), offset, offset + n)));
+                        break;
+                    }
+                    case UNICODE: {
+                        int offset = readLine(self);
+                        String s = PickleUtils.decodeRawUnicodeEscape(self.getInput(), offset, self.getPosition() - offset - 1);
+                        if (s == null) {
+                            throw raise(UnicodeDecodeError, "'rawunicodeescape' codec can't decode bytes: truncated \\uXXXX escape");
+                        }
+                        self.push(s);
+                        break;
+                    }
+                    case BINUNICODE:
+                    case SHORT_BINUNICODE:
+                    case BINUNICODE8: {
+                        int n = readSize(self, opcode == (SHORT_BINUNICODE & 0xff) ? 1 : opcode == (BINUNICODE & 0xff) ? 4 : 8, "BINUNICODE");
+                        int offset = read(self, n);
+                        self.push(decodeUTF8(self.getInput(), offset, n));
+                        break;
+                    }
+                    case EMPTY_TUPLE:
+                        self.push(factory().createTuple(new Object[0]));
+                        break;
+                    case TUPLE:
+                        self.push(factory().createTuple(popMark(self)));
+                        break;
+                    case TUPLE1:
+                    case TUPLE2:
+                    case TUPLE3: {
+                        Object[] items = new Object[opcode - (TUPLE1 & 0xff) + 1];
+                        for (int i = items.length - 1; i >= 0; i--) {
+                            items[i] = pop(self);
+                        }
+                        self.push(factory().createTuple(items));
+                        break;
+                    }
+                    case EMPTY_LIST:
+                        self.push(factory().createList());
+                        break;
+                    case LIST:
+                        self.push(factory().createList(popMark(self)));
+                        break;
+                    case EMPTY_DICT:
+                        self.push(factory().createDict());
+                        break;
+                    case DICT: {
+                        Object[] items = popMark(self);
+                        PDict dict = factory().createDict();
+                        setItems(dict, items, "DICT");
+                        self.push(dict);
+                        break;
+                    }
+                    case EMPTY_SET:
+                        self.push(factory().createSet());
+                        break;
+                    case FROZENSET: {
+                        Object[] items = popMark(self);
+                        HashingStorage storage = EconomicMapStorage.create(items.length, true);
+                        for (Object item : items) {
+                            storage = getSetStorageItemNode().execute(storage, item, PNone.NO_VALUE);
+                        }
+                        self.push(factory().createFrozenSet(storage));
+                        break;
+                    }
+                    case APPEND: {
+                        Object value = pop(self);
+                        append(peek(self), new Object[]{value});
+                        break;
+                    }
+                    case APPENDS: {
+                        Object[] items = popMark(self);
+                        append(peek(self), items);
+                        break;
+                    }
+                    case SETITEM: {
+                        Object value = pop(self);
+                        Object key = pop(self);
+                        setItems(peek(self), new Object[]{key, value}, "SETITEM");
+                        break;
+                    }
+                    case SETITEMS: {
+                        Object[] items = popMark(self);
+                        setItems(peek(self), items, "SETITEMS");
+                        break;
+                    }
+                    case ADDITEMS: {
+                        Object[] items = popMark(self);
+                        addItems(peek(self), items);
+                        break;
+                    }
+                    case GET: {
+                        int offset = readLine(self);
+                        self.push(getMemo(self, parseInt(self, offset).longValue()));
+                        break;
+                    }
+                    case BINGET:
+                        self.push(getMemo(self, readLittleEndian(self, 1)));
+                        break;
+                    case LONG_BINGET:
+                        self.push(getMemo(self, readLittleEndian(self, 4) & 0xffffffffL));
+                        break;
+                    case PUT: {
+                        int offset = readLine(self);
+                        long index = parseInt(self, offset).longValue();
+                        if (index < 0) {
+                            throw raise(ValueError, "negative PUT argument");
+                        }
+                        putMemo(self, index);
+                        break;
+                    }
+                    case BINPUT:
+                        putMemo(self, readLittleEndian(self, 1));
+                        break;
+                    case LONG_BINPUT:
+                        putMemo(self, readLittleEndian(self, 4) & 0xffffffffL);
+                        break;
+                    case MEMOIZE:
+                        putMemo(self, self.getMemoLength());
+                        break;
+                    case GLOBAL: {
+                        String module = readLineUTF8(self);
+                        String name = readLineUTF8(self);
+                        self.push(findClass(self, module, name));
+                        break;
+                    }
+                    case STACK_GLOBAL: {
+                        Object name = pop(self);
+                        Object module = pop(self);
+                        if (!isString(name) || !isString(module)) {
+                            throw raisePickleError("UnpicklingError", "STACK_GLOBAL requires str");
+                        }
+                        self.push(findClass(self, module, name));
+                        break;
+                    }
+                    case EXT1:
+                    case EXT2:
+                    case EXT4: {
+                        long code = opcode == (EXT1 & 0xff) ? readLittleEndian(self, 1) : opcode == (EXT2 & 0xff) ? readLittleEndian(self, 2) : (int) readLittleEndian(self, 4);
+                        self.push(call(getPickleModuleAttribute("_get_extension"), getAttribute(self, "find_class"), code));
+                        break;
+                    }
+                    case REDUCE: {
+                        Object args = pop(self);
+                        Object func = peek(self);
+                        if (!(args instanceof PTuple)) {
+                            throw raise(TypeError, "argument list must be a tuple");
+                        }
+                        self.replaceTop(call(func, getItems((PTuple) args)));
+                        break;
+                    }
+                    case NEWOBJ: {
+                        Object args = pop(self);
+                        Object cls = pop(self);
+                        if (!(args instanceof PTuple)) {
+                            throw raisePickleError("UnpicklingError", "NEWOBJ expected an arg tuple.");
+                        }
+                        if (!PGuards.isClass(cls)) {
+                            throw raisePickleError("UnpicklingError", "NEWOBJ class argument isn't a type object");
+                        }
+                        self.push(newObject(cls, getItems((PTuple) args), PKeyword.EMPTY_KEYWORDS));
+                        break;
+                    }
+                    case NEWOBJ_EX: {
+                        Object kwargs = pop(self);
+                        Object args = pop(self);
+                        Object cls = pop(self);
+                        if (!PGuards.isClass(cls)) {
+                            throw raisePickleError("UnpicklingError", "NEWOBJ_EX class argument must be a type");
+                        }
+                        if (!(args instanceof PTuple)) {
+                            throw raisePickleError("UnpicklingError", "NEWOBJ_EX args argument must be a tuple");
+                        }
+                        if (!(kwargs instanceof PDict)) {
+                            throw raisePickleError("UnpicklingError", "NEWOBJ_EX kwargs argument must be a dict");
+                        }
+                        self.push(newObject(cls, getItems((PTuple) args), getKeywords((PDict) kwargs)));
+                        break;
+                    }
+                    case INST: {
+                        String module = readLineAscii(self);
+                        String name = readLineAscii(self);
+                        if (module == null || name == null) {
+                            throw raise(UnicodeDecodeError, "'ascii' codec can't decode the INST arguments");
+                        }
+                        Object cls = findClass(self, module, name);
+                        Object[] args = popMark(self);
+                        self.push(call(getPickleModuleAttribute("_instantiate"), cls, factory().createTuple(args)));
+                        break;
+                    }
+                    case OBJ: {
+                        Object[] items = popMark(self);
+                        if (items.length == 0) {
+                            throw raisePickleError("UnpicklingError", "unpickling stack underflow");
+                        }
+                        Object[] args = Arrays.copyOfRange(items, 1, items.length);
+                        self.push(call(getPickleModuleAttribute("_instantiate"), items[0], factory().createTuple(args)));
+                        break;
+                    }
+                    case BUILD: {
+                        Object state = pop(self);
+                        build(peek(self), state);
+                        break;
+                    }
+                    case PERSID:
+                    case BINPERSID: {
+                        Object pid;
+                        if (opcode == (PERSID & 0xff)) {
+                            String s = readLineAscii(self);
+                            if (s == null) {
+                                throw raisePickleError("UnpicklingError", "persistent IDs in protocol 0 must be ASCII strings");
+                            }
+                            pid = s;
+                        } else {
+                            pid = pop(self);
+                        }
+                        if (persistentLoad == null) {
+                            persistentLoad = lookupHooks ? lookupAttribute(self, "persistent_load") : PNone.NO_VALUE;
+                        }
+                        if (persistentLoad == PNone.NO_VALUE) {
+                            throw raisePickleError("UnpicklingError", "A load persistent id instruction was encountered,\nbut no persistent_load function was specified.");
+                        }
+                        self.push(call(persistentLoad, pid));
+                        break;
+                    }
+                    default:
+                        if (opcode == -1) {
+                            throw raise(EOFError, "Ran out of input");
+                        }
+                        if (opcode >= 0x20 && opcode <= 0x7e && opcode != '\'' && opcode != '\\') {
+                            throw raisePickleError("UnpicklingError", "invalid load key, '%c'.", (char) opcode);
+                        }
+                        throw raisePickleError("UnpicklingError", "invalid load key, '\\x%02x'.", opcode);
+                }
+            }
+        }
+
+        // input
+
+        /**
+         * Returns the next opcode, or {@code -1} at the end of the input.
+         */
+        private int readOpcode(PUnpickler self) {
+            if (self.available() == 0) {
+                if (self.getRead() == null) {
+                    return -1;
+                }
+                byte[] data = readFromFile(self.getRead(), 1);
+                if (data.length == 0) {
+                    return -1;
+                }
+                self.setInput(data, 0, data.length);
+            }
+            return self.getInput()[self.consume(1)] & 0xff;
+        }
+
+        /**
+         * Makes {@code n} bytes available in the input, consumes them and returns their offset.
+         */
+        private int read(PUnpickler self, int n) {
+            int available = self.available();
+            if (available < n) {
+                if (self.getRead() == null) {
+                    throw raisePickleError("UnpicklingError", "pickle data was truncated");
+                }
+                // read exactly what is missing so that nothing after the pickle is consumed
+                byte[] data = readFromFile(self.getRead(), n - available);
+                if (data.length < n - available) {
+                    throw raisePickleError("UnpicklingError", "pickle data was truncated");
+                }
+                self.setInput(concat(self, data), 0, n);
+            }
+            return self.consume(n);
+        }
+
+        /**
+         * Consumes a line and returns its offset; the line ends just before the position.
+         */
+        private int readLine(PUnpickler self) {
+            int end = self.findLineEnd();
+            if (end == -1) {
+                if (self.getRead() == null) {
+                    throw raisePickleError("UnpicklingError", "pickle data was truncated");
+                }
+                byte[] line = toBytes(call(self.getReadline()));
+                if (line.length == 0 || line[line.length - 1] != '\n') {
+                    throw raisePickleError("UnpicklingError", "pickle data was truncated");
+                }
+                byte[] data = concat(self, line);
+                self.setInput(data, 0, data.length);
+                end = data.length;
+            }
+            return self.consume(end - self.getPosition());
+        }
+
+        private static byte[] concat(PUnpickler self, byte[] data) {
+            int available = self.available();
+            if (available == 0) {
+                return data;
+            }
+            byte[] result = new byte[available + data.length];
+            System.arraycopy(self.getInput(), self.getPosition(), result, 0, available);
+            System.arraycopy(data, 0, result, available, data.length);
+            return result;
+        }
+
+        private void loadFrame(PUnpickler self) {
+            long size = readLittleEndian(self, 8);
+            if (size < 0 || size > Integer.MAX_VALUE) {
+                throw raise(ValueError, "frame size > sys.maxsize: %d", size);
+            }
+            if (self.getRead() != null && self.available() == 0) {
+                // the whole frame is read at once, the opcodes in it are then read from memory
+                byte[] data = readFromFile(self.getRead(), (int) size);
+                if (data.length < size) {
+                    throw raisePickleError("UnpicklingError", "pickle exhausted before end of frame");
+                }
+                self.setInput(data, 0, data.length);
+            }
+        }
+
+        private byte[] readFromFile(Object read, int n) {
+            return toBytes(call(read, n));
+        }
+
+        private byte[] toBytes(Object data) {
+            if (!(data instanceof PIBytesLike)) {
+                throw raise(TypeError, "a bytes-like object is required, not '%p'", data);
+            }
+            SequenceStorage storage = ((PIBytesLike) data).getSequenceStorage();
+            if (storage instanceof ByteSequenceStorage) {
+                byte[] array = ((ByteSequenceStorage) storage).getInternalByteArray();
+                return array.length == storage.length() ? array : Arrays.copyOf(array, storage.length());
+            }
+            byte[] result = new byte[storage.length()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = (byte) (int) storage.getItemNormalized(i);
+            }
+            return result;
+        }
+
+        private long readLittleEndian(PUnpickler self, int size) {
+            int offset = read(self, size);
+            byte[] input = self.getInput();
+            long value = 0;
+            for (int i = size - 1; i >= 0; i--) {
+                value = (value << 8) | (input[offset + i] & 0xff);
+            }
+            return value;
+        }
+
+        private int readSize(PUnpickler self, int size, String opcodeName) {
+            long n = readLittleEndian(self, size);
+            if (size == 4) {
+                n &= 0xffffffffL;
+            }
+            if (n < 0 || n > Integer.MAX_VALUE - 8) {
+                throw raise(MemoryError, "%s exceeds the maximum size of a Java array", opcodeName);
+            }
+            return (int) n;
+        }
+
+        private String readLineAscii(PUnpickler self) {
+            int offset = readLine(self);
+            int end = self.getPosition() - 1;
+            byte[] input = self.getInput();
+            for (int i = offset; i < end; i++) {
+                if (input[i] < 0) {
+                    return null;
+                }
+            }
+            return new String(input, offset, end - offset, StandardCharsets.ISO_8859_1);
+        }
+
+        private String readLineUTF8(PUnpickler self) {
+            int offset = readLine(self);
+            return decodeUTF8(self.getInput(), offset, self.getPosition() - offset - 1);
+        }
+
+        private String decodeUTF8(byte[] data, int offset, int length) {
+            String s = PickleUtils.decodeUTF8(data, offset, length);
+            if (s == null) {
+                // let the codec produce the proper error
+                Object bytes = factory().createBytes(Arrays.copyOfRange(data, offset, offset + length));
+                Object decoded = callMethod(bytes, "decode", "utf-8", "surrogatepass");
+                return decoded instanceof PString ? ((PString) decoded).getValue() : (String) decoded;
+            }
+            return s;
+        }
+
+        // text opcodes of protocol 0
+
+        private BigInteger parseInt(PUnpickler self, int offset) {
+            String s = new String(self.getInput(), offset, self.getPosition() - offset - 1, StandardCharsets.ISO_8859_1).trim();
+            if (s.endsWith("L")) {
+                s = s.substring(0, s.length() - 1);
+            }
+            try {
+                return new BigInteger(s.startsWith("+") ? s.substring(1) : s);
+            } catch (NumberFormatException e) {
+                throw raise(ValueError, "invalid literal for int() with base 10: '%s'", s);
+            }
+        }
+
+        private Object loadInt(PUnpickler self) {
+            int offset = readLine(self);
+            int length = self.getPosition() - offset - 1;
+            byte[] input = self.getInput();
+            if (length == 2 && input[offset] == '0' && (input[offset + 1] == '0' || input[offset + 1] == '1')) {
+                return input[offset + 1] == '1';
+            }
+            return toInt(parseInt(self, offset));
+        }
+
+        private Object loadLong(PUnpickler self) {
+            return toInt(parseInt(self, readLine(self)));
+        }
+
+        private Object toInt(BigInteger value) {
+            if (value.bitLength() < 32) {
+                return value.intValue();
+            } else if (value.bitLength() < 64) {
+                return value.longValue();
+            }
+            return factory().createInt(value);
+        }
+
+        private double loadFloat(PUnpickler self) {
+            int offset = readLine(self);
+            String s = new String(self.getInput(), offset, self.getPosition() - offset - 1, StandardCharsets.ISO_8859_1).trim();
+            switch (s.toLowerCase()) {
+                case "inf":
+                case "+inf":
+                    return Double.POSITIVE_INFINITY;
+                case "-inf":
+                    return Double.NEGATIVE_INFINITY;
+                case "nan":
+                case "+nan":
+                case "-nan":
+                    return Double.NaN;
+            }
+            try {
+                return Double.parseDouble(s);
+            } catch (NumberFormatException e) {
+                throw raise(ValueError, "could not convert string to float: '%s'", s);
+            }
+        }
+
+        private Object loadString(PUnpickler self) {
+            int offset = readLine(self);
+            int length = self.getPosition() - offset - 1;
+            byte[] input = self.getInput();
+            if (length < 2 || input[offset] != input[offset + length - 1] || (input[offset] != '\'' && input[offset] != '"')) {
+                throw raisePickleError("UnpicklingError", "the STRING opcode argument must be quoted");
+            }
+            int[] errorPosition = new int[1];
+            byte[] decoded = PickleUtils.decodeEscape(input, offset + 1, length - 2, errorPosition);
+            if (decoded == null) {
+                throw raise(ValueError, "invalid \\x escape at position %d", errorPosition[0]);
+            }
+            return decodeString(self, decoded);
+        }
+
+        /**
+         * Converts the payload of a protocol 2 string to {@code str} with the unpickler's encoding,
+         * or keeps it as {@code bytes} if the encoding is "bytes".
+         */
+        private Object decodeString(PUnpickler self, byte[] data) {
+            String encoding = self.getEncoding();
+            if (encoding.equals("bytes")) {
+                return factory().createBytes(data);
+            }
+            if (isAsciiCompatible(encoding) && isAscii(data)) {
+                return new String(data, StandardCharsets.ISO_8859_1);
+            }
+            return callMethod(factory().createBytes(data), "decode", encoding, self.getErrors());
+        }
+
+        private static boolean isAsciiCompatible(String encoding) {
+            switch (encoding.toLowerCase()) {
+                case "ascii":
+                case "latin1":
+                case "latin-1":
+                case "utf-8":
+                case "utf8":
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private static boolean isAscii(byte[] data) {
+            for (byte b : data) {
+                if (b < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // stack and memo
+
+        private Object pop(PUnpickler self) {
+            if (self.getStackSize() <= self.getFence()) {
+                throw raisePickleError("UnpicklingError", "unpickling stack underflow");
+            }
+            return self.pop();
+        }
+
+        private Object peek(PUnpickler self) {
+            if (self.getStackSize() <= self.getFence()) {
+                throw raisePickleError("UnpicklingError", "unpickling stack underflow");
+            }
+            return self.peek();
+        }
+
+        private Object[] popMark(PUnpickler self) {
+            if (self.getMarkCount() == 0) {
+                throw raisePickleError("UnpicklingError", "could not find MARK");
+            }
+            return self.popMark();
+        }
+
+        private Object getMemo(PUnpickler self, long index) {
+            Object value = self.getMemo(index);
+            if (value == null) {
+                throw raise(KeyError, "%d", index);
+            }
+            return value;
+        }
+
+        private void putMemo(PUnpickler self, long index) {
+            Object value = peek(self);
+            if (index > Integer.MAX_VALUE - 8) {
+                throw raise(MemoryError, "memo index %d is too large", index);
+            }
+            self.putMemo((int) index, value);
+        }
+
+        // object construction
+
+        private Object findClass(PUnpickler self, Object module, Object name) {
+            if (isExact(self, PythonBuiltinClassType.PUnpickler)) {
+                return call(getPickleModuleAttribute("_find_class"), module, name, self.getProtocol(), self.isFixImports());
+            }
+            return callMethod(self, "find_class", module, name);
+        }
+
+        private Object newObject(Object cls, Object[] args, PKeyword[] keywords) {
+            Object[] arguments = new Object[args.length + 1];
+            arguments[0] = cls;
+            System.arraycopy(args, 0, arguments, 1, args.length);
+            return callWithKeywords(getAttribute(cls, "__new__"), arguments, keywords);
+        }
+
+        private PKeyword[] getKeywords(PDict kwargs) {
+            PKeyword[] keywords = new PKeyword[kwargs.size()];
+            int i = 0;
+            for (DictEntry entry : kwargs.getDictStorage().entries()) {
+                if (!isString(entry.getKey())) {
+                    throw raise(TypeError, "keywords must be strings");
+                }
+                keywords[i++] = new PKeyword(entry.getKey().toString(), entry.getValue());
+            }
+            return keywords;
+        }
+
+        private static Object[] getItems(PTuple tuple) {
+            SequenceStorage storage = tuple.getSequenceStorage();
+            Object[] items = new Object[storage.length()];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = storage.getItemNormalized(i);
+            }
+            return items;
+        }
+
+        private void append(Object list, Object[] items) {
+            if (isExact(list, PythonBuiltinClassType.PList)) {
+                PList pList = (PList) list;
+                if (pList.getSequenceStorage().length() == 0) {
+                    // let the factory pick the most specific storage for all items at once
+                    pList.setSequenceStorage(factory().createList(items).getSequenceStorage());
+                    return;
+                }
+                if (appendNode == null) {
+                    CompilerDirectives.transferToInterpreterAndInvalidate();
+                    appendNode = insert(SequenceStorageNodes.AppendNode.create());
+                }
+                for (Object item : items) {
+                    pList.setSequenceStorage(appendNode.execute(pList.getSequenceStorage(), item, ListGeneralizationNode.SUPPLIER));
+                }
+                return;
+            }
+            if (items.length > 1) {
+                Object extend = lookupAttribute(list, "extend");
+                if (extend != PNone.NO_VALUE) {
+                    call(extend, factory().createList(items));
+                    return;
+                }
+            }
+            Object appendMethod = getAttribute(list, "append");
+            for (Object item : items) {
+                call(appendMethod, item);
+            }
+        }
+
+        private void setItems(Object dict, Object[] items, String opcodeName) {
+            if ((items.length & 1) != 0) {
+                throw raisePickleError("UnpicklingError", "odd number of items for %s", opcodeName);
+            }
+            if (isExact(dict, PythonBuiltinClassType.PDict)) {
+                for (int i = 0; i < items.length; i += 2) {
+                    getSetItemNode().execute((PDict) dict, items[i], items[i + 1]);
+                }
+                return;
+            }
+            Object setItem = getAttribute(dict, "__setitem__");
+            for (int i = 0; i < items.length; i += 2) {
+                call(setItem, items[i], items[i + 1]);
+            }
+        }
+
+        private void addItems(Object set, Object[] items) {
+            if (set instanceof PSet) {
+                for (Object item : items) {
+                    getSetItemNode().execute((PHashingCollection) set, item, PNone.NO_VALUE);
+                }
+                return;
+            }
+            Object add = getAttribute(set, "add");
+            for (Object item : items) {
+                call(add, item);
+            }
+        }
+
+        private void build(Object inst, Object state) {
+            if (lookupSetStateNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                lookupSetStateNode = insert(LookupInheritedAttributeNode.create(__SETSTATE__));
+            }
+            // looking at the type first avoids an AttributeError for every plain object
+            if (lookupSetStateNode.execute(inst) != PNone.NO_VALUE) {
+                callMethod(inst, __SETSTATE__, state);
+                return;
+            }
+            Object instState = state;
+            Object slotState = PNone.NONE;
+            if (state instanceof PTuple && ((PTuple) state).getSequenceStorage().length() == 2) {
+                instState = ((PTuple) state).getSequenceStorage().getItemNormalized(0);
+                slotState = ((PTuple) state).getSequenceStorage().getItemNormalized(1);
+            }
+            if (instState != PNone.NONE) {
+                if (!(instState instanceof PDict)) {
+                    throw raisePickleError("UnpicklingError", "state is not a dictionary");
+                }
+                Object instDict = getAttribute(inst, "__dict__");
+                for (DictEntry entry : ((PDict) instState).getDictStorage().entries()) {
+                    if (instDict instanceof PHashingCollection) {
+                        getSetItemNode().execute((PHashingCollection) instDict, entry.getKey(), entry.getValue());
+                    } else {
+                        callMethod(instDict, "__setitem__", entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            if (slotState != PNone.NONE) {
+                if (!(slotState instanceof PDict)) {
+                    throw raisePickleError("UnpicklingError", "slot state is not a dictionary");
+                }
+                Object setattr = getCore().getBuiltins().getAttribute("setattr");
+                for (DictEntry entry : ((PDict) slotState).getDictStorage().entries()) {
+                    call(setattr, inst, entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        private HashingCollectionNodes.SetItemNode getSetItemNode() {
+            if (setItemNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                setItemNode = insert(HashingCollectionNodes.SetItemNode.create());
+            }
+            return setItemNode;
+        }
+
+        private HashingStorageNodes.SetItemNode getSetStorageItemNode() {
+            if (setStorageItemNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                setStorageItemNode = insert(HashingStorageNodes.SetItemNode.create());
+            }
+            return setStorageItemNode;
+        }
+
+        private static boolean isString(Object obj) {
+            return obj instanceof String || obj instanceof PString;
+        }
+    }
+}
@@ -40,54 +40,193 @@
  */
 package com.oracle.graal.python.builtins.objects.random;
 
-import java.util.Random;
+import java.math.BigInteger;
+import java.security.SecureRandom;
 
 import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
 import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 
-public class PRandom extends PythonBuiltinObject {
-    private static class PythonRandom extends Random {
-        private static final long serialVersionUID = 1L;
+/**
+ * A Mersenne Twister (MT19937) random number generator that produces the same sequences as
+ * CPython's {@code _random.Random} for the same seed or state.
+ */
+public final class PRandom extends PythonBuiltinObject {
+    public static final int N = 624;
+    private static final int M = 397;
+    private static final int MATRIX_A = 0x9908b0df;
+    private static final int UPPER_MASK = 0x80000000;
+    private static final int LOWER_MASK = 0x7fffffff;
+
+    private final int[] mt = new int[N];
+    private int index = N + 1;
+
+    public PRandom(LazyPythonClass cls) {
+        super(cls);
+    }
 
-        long getSeed() {
-            int nextseed = this.next(48); // 48 magic number of bits shifted away in superclass
-            this.setSeed(nextseed);
-            return nextseed;
+    private void initGenrand(int s) {
+        mt[0] = s;
+        for (int i = 1; i < N; i++) {
+            mt[i] = 1812433253 * (mt[i - 1] ^ (mt[i - 1] >>> 30)) + i;
         }
+        index = N;
     }
 
-    private PythonRandom javaRandom;
+    private void initByArray(int[] key) {
+        initGenrand(19650218);
+        int i = 1;
+        int j = 0;
+        for (int k = Math.max(N, key.length); k > 0; k--) {
+            mt[i] = (mt[i] ^ ((mt[i - 1] ^ (mt[i - 1] >>> 30)) * 1664525)) + key[j] + j;
+            i++;
+            j++;
+            if (i >= N) {
+                mt[0] = mt[N - 1];
+                i = 1;
+            }
+            if (j >= key.length) {
+                j = 0;
+            }
+        }
+        for (int k = N - 1; k > 0; k--) {
+            mt[i] = (mt[i] ^ ((mt[i - 1] ^ (mt[i - 1] >>> 30)) * 1566083941)) - i;
+            i++;
+            if (i >= N) {
+                mt[0] = mt[N - 1];
+                i = 1;
+            }
+        }
+        mt[0] = UPPER_MASK;
+    }
 
-    public PRandom(LazyPythonClass cls) {
-        super(cls);
-        resetJavaRandom();
+    /**
+     * Seeds the generator with {@code |n|}, using all of its bits.
+     */
+    @TruffleBoundary
+    public void seed(BigInteger n) {
+        BigInteger abs = n.abs();
+        int words = Math.max(1, (abs.bitLength() + 31) / 32);
+        int[] key = new int[words];
+        for (int i = 0; i < words; i++) {
+            key[i] = abs.shiftRight(i * 32).intValue();
+        }
+        initByArray(key);
     }
 
+    /**
+     * Seeds the generator with {@code |n|}.
+     */
     @TruffleBoundary
-    public void setSeed(long seed) {
-        javaRandom.setSeed(seed);
+    public void seed(long n) {
+        if (n == Long.MIN_VALUE) {
+            seed(BigInteger.valueOf(n));
+        } else {
+            seedUnsigned(Math.abs(n));
+        }
     }
 
+    /**
+     * Seeds the generator with {@code n} interpreted as an unsigned 64-bit value, like CPython does
+     * for the hash of a non-integer seed.
+     */
     @TruffleBoundary
-    public long getSeed() {
-        return javaRandom.getSeed();
+    public void seedUnsigned(long n) {
+        int high = (int) (n >>> 32);
+        initByArray(high == 0 ? new int[]{(int) n} : new int[]{(int) n, high});
     }
 
-    public long nextLong() {
-        return javaRandom.nextLong();
+    @TruffleBoundary
+    public void seedFromEntropy() {
+        int[] key = new int[N];
+        SecureRandom random = new SecureRandom();
+        for (int i = 0; i < N; i++) {
+            key[i] = random.nextInt();
+        }
+        initByArray(key);
     }
 
+    private void generate() {
+        int kk;
+        int y;
+        for (kk = 0; kk < N - M; kk++) {
+            y = (mt[kk] & UPPER_MASK) | (mt[kk + 1] & LOWER_MASK);
+            mt[kk] = mt[kk + M] ^ (y >>> 1) ^ ((y & 1) * MATRIX_A);
+        }
+        for (; kk < N - 1; kk++) {
+            y = (mt[kk] & UPPER_MASK) | (mt[kk + 1] & LOWER_MASK);
+            mt[kk] = mt[kk + (M - N)] ^ (y >>> 1) ^ ((y & 1) * MATRIX_A);
+        }
+        y = (mt[N - 1] & UPPER_MASK) | (mt[0] & LOWER_MASK);
+        mt[N - 1] = mt[M - 1] ^ (y >>> 1) ^ ((y & 1) * MATRIX_A);
+        index = 0;
+    }
+
+    /**
+     * Returns the next 32 random bits; the result must be treated as unsigned.
+     */
+    public int nextInt32() {
+        if (index >= N) {
+            generate();
+        }
+        int y = mt[index++];
+        y ^= (y >>> 11);
+        y ^= (y << 7) & 0x9d2c5680;
+        y ^= (y << 15) & 0xefc60000;
+        y ^= (y >>> 18);
+        return y;
+    }
+
+    /**
+     * Returns a random double in {@code [0.0, 1.0)} with 53 bits of precision.
+     */
     public double nextDouble() {
-        return javaRandom.nextDouble();
+        int a = nextInt32() >>> 5;
+        int b = nextInt32() >>> 6;
+        return (a * 67108864.0 + b) * (1.0 / 9007199254740992.0);
     }
 
-    public Random getJavaRandom() {
-        return javaRandom;
+    /**
+     * Fills {@code dst} with the next {@code dst.length} results of {@link #nextDouble()}.
+     */
+    public void fillDoubles(double[] dst) {
+        for (int i = 0; i < dst.length; i++) {
+            dst[i] = nextDouble();
+        }
     }
 
+    /**
+     * Returns {@code k} random bits as a non-negative integer; {@code k} must be positive.
+     */
     @TruffleBoundary
-    public void resetJavaRandom() {
-        javaRandom = new PythonRandom();
+    public BigInteger nextBits(int k) {
+        int words = (k - 1) / 32 + 1;
+        byte[] bytes = new byte[words * 4];
+        int remaining = k;
+        // the first word holds the least significant bits
+        for (int i = 0; i < words; i++, remaining -= 32) {
+            int r = nextInt32();
+            if (remaining < 32) {
+                r >>>= 32 - remaining;
+            }
+            int pos = bytes.length - 4 * (i + 1);
+            bytes[pos] = (byte) (r >>> 24);
+            bytes[pos + 1] = (byte) (r >>> 16);
+            bytes[pos + 2] = (byte) (r >>> 8);
+            bytes[pos + 3] = (byte) r;
+        }
+        return new BigInteger(1, bytes);
+    }
+
+    public int[] getState() {
+        return mt;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
     }
 }
@@ -49,6 +49,7 @@ import com.oracle.graal.python.builtins.PythonBuiltinClassType;
 import com.oracle.graal.python.builtins.PythonBuiltins;
 import com.oracle.graal.python.builtins.objects.PNone;
 import com.oracle.graal.python.builtins.objects.ints.PInt;
+import com.oracle.graal.python.builtins.objects.list.PList;
 import com.oracle.graal.python.builtins.objects.tuple.PTuple;
 import com.oracle.graal.python.nodes.PGuards;
 import com.oracle.graal.python.nodes.SpecialMethodNames;
@@ -56,6 +57,7 @@ import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode;
 import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
 import com.oracle.graal.python.nodes.truffle.PythonArithmeticTypes;
 import com.oracle.graal.python.runtime.exception.PythonErrorType;
+import com.oracle.graal.python.runtime.sequence.storage.DoubleSequenceStorage;
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
@@ -79,33 +81,27 @@ public class RandomBuiltins extends PythonBuiltins {
     public abstract static class SeedNode extends PythonBuiltinNode {
 
         @Specialization
-        @TruffleBoundary
         public PNone seed(PRandom random, @SuppressWarnings("unused") PNone none) {
-            random.setSeed(System.currentTimeMillis());
+            random.seedFromEntropy();
             return PNone.NONE;
         }
 
         @Specialization
         public PNone seed(PRandom random, long inputSeed) {
-            random.setSeed(inputSeed);
+            random.seed(inputSeed);
             return PNone.NONE;
         }
 
         @Specialization
         public PNone seed(PRandom random, PInt inputSeed) {
-            random.setSeed(inputSeed.longValue());
-            return PNone.NONE;
-        }
-
-        @Specialization
-        public PNone seed(PRandom random, double inputSeed) {
-            random.setSeed((long) ((Long.MAX_VALUE - inputSeed) * 412316924));
+            random.seed(inputSeed.getValue());
             return PNone.NONE;
         }
 
         @CompilationFinal boolean gotUnexpectedHashResult = false;
         @Child LookupAndCallUnaryNode callHash;
 
+        // like CPython, other objects are seeded with their hash interpreted as unsigned value
         @Fallback
         public PNone seedNonLong(Object random, Object inputSeed) {
             if (random instanceof PRandom) {
@@ -117,7 +113,7 @@ public class RandomBuiltins extends PythonBuiltins {
                 if (!gotUnexpectedHashResult) {
                     try {
                         long hash = callHash.executeLong(inputSeed);
-                        ((PRandom) random).setSeed(hash);
+                        ((PRandom) random).seedUnsigned(hash);
                         return PNone.NONE;
                     } catch (UnexpectedResultException e) {
                         CompilerDirectives.transferToInterpreterAndInvalidate();
@@ -130,9 +126,9 @@ public class RandomBuiltins extends PythonBuiltins {
                         hashResult = callHash.executeObject(inputSeed);
                     }
                     if (PGuards.isInteger(hashResult)) {
-                        ((PRandom) random).setSeed(((Number) hashResult).intValue());
+                        ((PRandom) random).seedUnsigned(((Number) hashResult).longValue());
                     } else if (PGuards.isPInt(hashResult)) {
-                        ((PRandom) random).setSeed(((PInt) hashResult).intValue());
+                        ((PRandom) random).seedUnsigned(((PInt) hashResult).longValue());
                     } else {
                         throw raise(PythonErrorType.TypeError, "__hash__ method should return an integer");
                     }
@@ -155,15 +151,46 @@ public class RandomBuiltins extends PythonBuiltins {
         @TruffleBoundary
         public PNone setstate(PRandom random, PTuple tuple) {
             Object[] arr = tuple.getArray();
-            if (arr.length == 1) {
-                Object object = arr[0];
-                if (object instanceof Long) {
-                    random.resetJavaRandom();
-                    random.setSeed((Long) object);
-                    return PNone.NONE;
+            if (arr.length != PRandom.N + 1) {
+                throw raise(PythonErrorType.ValueError, "state vector is the wrong size");
+            }
+            int[] state = new int[PRandom.N];
+            for (int i = 0; i < PRandom.N; i++) {
+                state[i] = (int) toUnsignedLong(arr[i]);
+            }
+            long index = toUnsignedLong(arr[PRandom.N]);
+            if (index > PRandom.N) {
+                throw raise(PythonErrorType.ValueError, "invalid state");
+            }
+            System.arraycopy(state, 0, random.getState(), 0, PRandom.N);
+            random.setIndex((int) index);
+            return PNone.NONE;
+        }
+
+        @Fallback
+        @SuppressWarnings("unused")
+        public PNone setstate(Object random, Object state) {
+            throw raise(PythonErrorType.TypeError, "state vector must be a tuple");
+        }
+
+        private long toUnsignedLong(Object value) {
+            if (value instanceof Integer || value instanceof Long) {
+                long l = ((Number) value).longValue();
+                if (l >= 0) {
+                    return l;
+                }
+            } else if (value instanceof PInt && ((PInt) value).getValue().signum() >= 0) {
+                // like CPython's PyLong_AsUnsignedLong, values up to 2**64 - 1 are accepted
+                if (((PInt) value).getValue().bitLength() > 64) {
+                    throw raise(PythonErrorType.OverflowError, "Python int too large to convert to C unsigned long");
                 }
+                return ((PInt) value).longValue();
+            } else if (!(value instanceof Boolean)) {
+                throw raise(PythonErrorType.TypeError, "an integer is required");
+            } else {
+                return (boolean) value ? 1 : 0;
             }
-            throw raise(PythonErrorType.SystemError, "state vector invalid.");
+            throw raise(PythonErrorType.OverflowError, "can't convert negative value to unsigned int");
         }
     }
 
@@ -174,7 +201,13 @@ public class RandomBuiltins extends PythonBuiltins {
         @Specialization
         @TruffleBoundary
         public PTuple getstate(PRandom random) {
-            return factory().createTuple(new Object[]{random.getSeed()});
+            int[] state = random.getState();
+            Object[] result = new Object[PRandom.N + 1];
+            for (int i = 0; i < PRandom.N; i++) {
+                result[i] = Integer.toUnsignedLong(state[i]);
+            }
+            result[PRandom.N] = random.getIndex();
+            return factory().createTuple(result);
         }
     }
 
@@ -183,24 +216,45 @@ public class RandomBuiltins extends PythonBuiltins {
     public abstract static class RandomNode extends PythonBuiltinNode {
 
         @Specialization
-        @TruffleBoundary
         public double random(PRandom random) {
             return random.nextDouble();
         }
     }
 
+    // generates k random numbers at once, as if random() was called k times
+    @Builtin(name = "_random_list", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    @TypeSystemReference(PythonArithmeticTypes.class)
+    public abstract static class RandomListNode extends PythonBuiltinNode {
+
+        @Specialization
+        public PList randomList(PRandom random, int k) {
+            if (k < 0) {
+                throw raise(PythonErrorType.ValueError, "number of values must be non-negative");
+            }
+            double[] values = new double[k];
+            random.fillDoubles(values);
+            return factory().createList(new DoubleSequenceStorage(values));
+        }
+    }
+
     @Builtin(name = "getrandbits", minNumOfPositionalArgs = 2)
     @GenerateNodeFactory
+    @TypeSystemReference(PythonArithmeticTypes.class)
     public abstract static class GetRandBitsNode extends PythonBuiltinNode {
 
-        @TruffleBoundary
-        private static BigInteger createRandomBits(PRandom random, int k) {
-            return new BigInteger(k, random.getJavaRandom());
+        @Specialization(guards = "k <= 32")
+        public long getrandbitsSmall(PRandom random, int k) {
+            if (k <= 0) {
+                throw raise(PythonErrorType.ValueError, "number of bits must be greater than zero");
+            }
+            return Integer.toUnsignedLong(random.nextInt32()) >>> (32 - k);
         }
 
-        @Specialization
+        @Specialization(guards = "k > 32")
         public PInt getrandbits(PRandom random, int k) {
-            return factory().createInt(createRandomBits(random, k));
+            BigInteger bits = random.nextBits(k);
+            return factory().createInt(bits);
         }
     }
 }
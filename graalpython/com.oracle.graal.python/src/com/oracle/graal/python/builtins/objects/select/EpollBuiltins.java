@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.select;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__ENTER__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__EXIT__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.OSError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.exception.OSErrorEnum;
+import com.oracle.graal.python.builtins.objects.select.SelectNodes.FileDescriptorNode;
+import com.oracle.graal.python.builtins.objects.select.SelectNodes.TimeoutToMillisNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.util.CastToIndexNode;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PEpoll)
+public class EpollBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return EpollBuiltinsFactory.getFactories();
+    }
+
+    abstract static class EpollBaseNode extends PythonBuiltinNode {
+        protected final void checkOpen(PPoll self) {
+            if (self.isClosed()) {
+                throw raise(ValueError, "I/O operation on closed epoll object");
+            }
+        }
+
+        /**
+         * Readiness is always level-triggered, so edge-triggered registrations are refused rather
+         * than silently reporting the same event again.
+         */
+        protected final int checkEvents(VirtualFrame frame, int events) {
+            if ((events & PPoll.EPOLLET) != 0) {
+                throw raiseOSError(frame, OSErrorEnum.EINVAL);
+            }
+            return events;
+        }
+    }
+
+    @Builtin(name = "register", minNumOfPositionalArgs = 2, parameterNames = {"self", "fd", "eventmask"})
+    @GenerateNodeFactory
+    abstract static class RegisterNode extends EpollBaseNode {
+        @Specialization
+        Object register(VirtualFrame frame, PPoll self, Object fd, Object eventmask,
+                        @Cached("create()") FileDescriptorNode fileDescriptorNode,
+                        @Cached("create()") CastToIndexNode castToIndexNode) {
+            checkOpen(self);
+            int fdInt = fileDescriptorNode.execute(fd);
+            int events = eventmask instanceof PNone ? PollBuiltins.DEFAULT_EVENTS : checkEvents(frame, castToIndexNode.execute(eventmask));
+            if (self.isRegistered(fdInt)) {
+                throw raiseOSError(frame, OSErrorEnum.EEXIST);
+            }
+            self.register(fdInt, events);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "modify", minNumOfPositionalArgs = 3, parameterNames = {"self", "fd", "eventmask"})
+    @GenerateNodeFactory
+    abstract static class ModifyNode extends EpollBaseNode {
+        @Specialization
+        Object modify(VirtualFrame frame, PPoll self, Object fd, Object eventmask,
+                        @Cached("create()") FileDescriptorNode fileDescriptorNode,
+                        @Cached("create()") CastToIndexNode castToIndexNode) {
+            checkOpen(self);
+            int fdInt = fileDescriptorNode.execute(fd);
+            if (!self.isRegistered(fdInt)) {
+                throw raiseOSError(frame, OSErrorEnum.ENOENT);
+            }
+            self.register(fdInt, checkEvents(frame, castToIndexNode.execute(eventmask)));
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "unregister", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class UnregisterNode extends EpollBaseNode {
+        @Specialization
+        Object unregister(VirtualFrame frame, PPoll self, Object fd,
+                        @Cached("create()") FileDescriptorNode fileDescriptorNode) {
+            checkOpen(self);
+            if (!self.unregister(fileDescriptorNode.execute(fd))) {
+                throw raiseOSError(frame, OSErrorEnum.ENOENT);
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "poll", minNumOfPositionalArgs = 1, parameterNames = {"self", "timeout", "maxevents"})
+    @GenerateNodeFactory
+    abstract static class PollNode extends EpollBaseNode {
+        @Specialization
+        Object poll(PPoll self, Object timeout, Object maxevents,
+                        @Cached("createSeconds()") TimeoutToMillisNode timeoutNode,
+                        @Cached("create()") CastToIndexNode castToIndexNode) {
+            checkOpen(self);
+            long millis = timeoutNode.execute(timeout);
+            int max = maxevents instanceof PNone ? -1 : castToIndexNode.execute(maxevents);
+            if (max == 0 || max < -1) {
+                throw raise(ValueError, "maxevents must be greater than 0, got %d", max);
+            }
+            int[] fds = self.getFds();
+            int[] events = self.getEvents();
+            int[] revents;
+            try {
+                revents = self.poll(getContext().getResources(), getContext().getGil(), fds, events, millis);
+            } catch (IOException e) {
+                throw raise(OSError, e);
+            }
+            Object[] result = PollBuiltins.toEventList(factory(), fds, revents, max < 0 ? Integer.MAX_VALUE : max);
+            disableOneShot(self, fds, events, revents, result.length);
+            return factory().createList(result);
+        }
+
+        /**
+         * File descriptors registered with {@code EPOLLONESHOT} stay registered but report no
+         * further events until they are modified.
+         */
+        private static void disableOneShot(PPoll self, int[] fds, int[] events, int[] revents, int reported) {
+            int n = 0;
+            for (int i = 0; i < fds.length && n < reported; i++) {
+                if (revents[i] != 0) {
+                    n++;
+                    if ((events[i] & PPoll.EPOLLONESHOT) != 0) {
+                        self.register(fds[i], PPoll.EPOLLONESHOT);
+                    }
+                }
+            }
+        }
+    }
+
+    @Builtin(name = "close", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class CloseNode extends EpollBaseNode {
+        @Specialization
+        Object close(PPoll self) {
+            self.close();
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "closed", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class ClosedNode extends EpollBaseNode {
+        @Specialization
+        boolean closed(PPoll self) {
+            return self.isClosed();
+        }
+    }
+
+    @Builtin(name = __ENTER__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class EnterNode extends EpollBaseNode {
+        @Specialization
+        Object enter(PPoll self) {
+            checkOpen(self);
+            return self;
+        }
+    }
+
+    @Builtin(name = __EXIT__, minNumOfPositionalArgs = 4)
+    @GenerateNodeFactory
+    abstract static class ExitNode extends EpollBaseNode {
+        @Specialization
+        Object exit(PPoll self, @SuppressWarnings("unused") Object type, @SuppressWarnings("unused") Object value, @SuppressWarnings("unused") Object tb) {
+            self.close();
+            return PNone.NONE;
+        }
+    }
+}
@@ -0,0 +1,488 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.select;
+
+import java.io.IOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
+import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+import com.oracle.graal.python.runtime.GlobalInterpreterLock;
+import com.oracle.graal.python.runtime.PosixResources;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * The state of a {@code select.poll} or {@code select.epoll} object: the registered file
+ * descriptors and their event masks. Waiting is implemented with a {@link Selector}; channels that
+ * are not selectable (e.g. regular files) are always ready, like regular files are for
+ * {@code poll(2)}.
+ * <p>
+ * Each object keeps its own selector for its whole lifetime, and the channels stay registered with
+ * it between waits, so a wait only registers the file descriptors that were added since the last
+ * one and cancels those that were removed. A registered channel has to be in non-blocking mode; it
+ * is switched back to blocking mode once it is no longer registered with any selector. Until then
+ * the blocking I/O functions use {@link #read(ReadableByteChannel, ByteBuffer)} and
+ * {@link #write(WritableByteChannel, ByteBuffer)}, which wait for the channel to become ready
+ * instead. Readiness is always level-triggered; {@link #EPOLLET} is rejected by
+ * {@code epoll.register} and {@code epoll.modify}.
+ * </p>
+ */
+public final class PPoll extends PythonBuiltinObject {
+    public static final int POLLIN = 0x001;
+    public static final int POLLPRI = 0x002;
+    public static final int POLLOUT = 0x004;
+    public static final int POLLERR = 0x008;
+    public static final int POLLHUP = 0x010;
+    public static final int POLLNVAL = 0x020;
+    public static final int POLLRDNORM = 0x040;
+    public static final int POLLRDBAND = 0x080;
+    public static final int POLLWRNORM = 0x100;
+    public static final int POLLWRBAND = 0x200;
+    public static final int POLLMSG = 0x400;
+    public static final int POLLRDHUP = 0x2000;
+    public static final int EPOLLONESHOT = 1 << 30;
+    public static final int EPOLLET = 1 << 31;
+
+    private static final int READ_EVENTS = POLLIN | POLLRDNORM;
+    private static final int WRITE_EVENTS = POLLOUT | POLLWRNORM;
+
+    /**
+     * Closes the selectors of objects that were collected without being closed (e.g.
+     * {@code select.poll} objects, which have no {@code close} method).
+     */
+    private static final ReferenceQueue<PPoll> collectedQueue = new ReferenceQueue<>();
+    private static final Set<SelectorReference> selectorReferences = new HashSet<>();
+
+    /**
+     * The channels that were switched to non-blocking mode for being registered with a selector.
+     * Switching the blocking mode and registering are done while holding this set's lock, so that
+     * a channel is never switched back while another thread registers it.
+     */
+    private static final Set<SelectableChannel> switchedChannels = Collections.newSetFromMap(new WeakHashMap<>());
+
+    private static final class SelectorReference extends PhantomReference<PPoll> {
+        private final Selector selector;
+
+        SelectorReference(PPoll referent, Selector selector) {
+            super(referent, collectedQueue);
+            this.selector = selector;
+        }
+    }
+
+    private final Map<Integer, Integer> registered = new LinkedHashMap<>();
+    private boolean closed;
+    private Selector selector;
+    private SelectorReference selectorReference;
+    /** Set while a thread waits on {@link #selector}; the flag is only accessed with the GIL. */
+    private boolean waiting;
+
+    public PPoll(LazyPythonClass cls) {
+        super(cls);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @TruffleBoundary
+    public void close() {
+        closed = true;
+        registered.clear();
+        if (selector != null && !waiting) {
+            closeSelector();
+        }
+    }
+
+    private void closeSelector() {
+        synchronized (selectorReferences) {
+            selectorReferences.remove(selectorReference);
+        }
+        selectorReference.clear();
+        selectorReference = null;
+        closeAndRestoreBlocking(selector);
+        selector = null;
+    }
+
+    private Selector getSelector() throws IOException {
+        if (selector == null) {
+            closeCollectedSelectors();
+            selector = Selector.open();
+            selectorReference = new SelectorReference(this, selector);
+            synchronized (selectorReferences) {
+                selectorReferences.add(selectorReference);
+            }
+        }
+        return selector;
+    }
+
+    private static void closeCollectedSelectors() {
+        SelectorReference ref;
+        while ((ref = (SelectorReference) collectedQueue.poll()) != null) {
+            synchronized (selectorReferences) {
+                selectorReferences.remove(ref);
+            }
+            closeAndRestoreBlocking(ref.selector);
+        }
+    }
+
+    /**
+     * Closing a selector deregisters its channels at once, so those that are not registered
+     * elsewhere can be switched back to blocking mode.
+     */
+    private static void closeAndRestoreBlocking(Selector selector) {
+        List<SelectableChannel> channels = new ArrayList<>();
+        try {
+            for (SelectionKey key : selector.keys()) {
+                channels.add(key.channel());
+            }
+            selector.close();
+            for (SelectableChannel channel : channels) {
+                restoreBlocking(channel);
+            }
+        } catch (IOException e) {
+            // nothing to do, the selector is not used any more
+        }
+    }
+
+    @TruffleBoundary
+    public boolean isRegistered(int fd) {
+        return registered.containsKey(fd);
+    }
+
+    @TruffleBoundary
+    public void register(int fd, int events) {
+        registered.put(fd, events);
+    }
+
+    @TruffleBoundary
+    public boolean unregister(int fd) {
+        return registered.remove(fd) != null;
+    }
+
+    @TruffleBoundary
+    public int size() {
+        return registered.size();
+    }
+
+    @TruffleBoundary
+    public int[] getFds() {
+        int[] fds = new int[registered.size()];
+        int i = 0;
+        for (int fd : registered.keySet()) {
+            fds[i++] = fd;
+        }
+        return fds;
+    }
+
+    @TruffleBoundary
+    public int[] getEvents() {
+        int[] events = new int[registered.size()];
+        int i = 0;
+        for (int mask : registered.values()) {
+            events[i++] = mask;
+        }
+        return events;
+    }
+
+    /**
+     * Like {@link #waitForEvents(PosixResources, GlobalInterpreterLock, int[], int[], long)}, but
+     * keeps the channels registered with the selector of this object between calls. A thread that
+     * polls while another one is already waiting on the same object uses a temporary selector.
+     */
+    @TruffleBoundary
+    public int[] poll(PosixResources resources, GlobalInterpreterLock gil, int[] fds, int[] events, long timeoutMillis) throws IOException {
+        if (waiting) {
+            return waitForEvents(resources, gil, fds, events, timeoutMillis);
+        }
+        waiting = true;
+        try {
+            return waitForRegisteredEvents(getSelector(), resources, gil, fds, events, timeoutMillis);
+        } finally {
+            waiting = false;
+            if (closed && selector != null) {
+                // closed by another thread while this one was waiting
+                closeSelector();
+            }
+        }
+    }
+
+    private static int[] waitForRegisteredEvents(Selector selector, PosixResources resources, GlobalInterpreterLock gil, int[] fds, int[] events, long timeoutMillis) throws IOException {
+        int[] revents = new int[fds.length];
+        Map<SelectableChannel, List<Integer>> indices = new IdentityHashMap<>();
+        boolean anyReady = collectChannels(resources, fds, events, revents, indices);
+        List<SelectableChannel> cancelled = new ArrayList<>();
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid() && !indices.containsKey(key.channel())) {
+                key.cancel();
+                cancelled.add(key.channel());
+            }
+        }
+        for (Map.Entry<SelectableChannel, List<Integer>> entry : indices.entrySet()) {
+            SelectableChannel channel = entry.getKey();
+            int ops = toInterestOps(channel.validOps(), events, entry.getValue());
+            SelectionKey key = channel.keyFor(selector);
+            if (key != null && key.isValid()) {
+                if (key.interestOps() != ops) {
+                    key.interestOps(ops);
+                }
+            } else if (ops != 0) {
+                if (key != null) {
+                    // cancelled by an earlier wait that failed, deregister it first
+                    selector.selectNow();
+                }
+                register(selector, channel, ops);
+            }
+        }
+        try {
+            select(selector, gil, anyReady, timeoutMillis);
+            readyEvents(selector, indices, events, revents);
+        } finally {
+            selector.selectedKeys().clear();
+            // the selection operation has deregistered the cancelled keys
+            for (SelectableChannel channel : cancelled) {
+                restoreBlocking(channel);
+            }
+        }
+        return revents;
+    }
+
+    /**
+     * Waits until at least one of the given file descriptors is ready for one of its requested
+     * events, or until the timeout expires. A negative timeout blocks indefinitely. Returns the
+     * ready events per file descriptor ({@code 0} if not ready). The channels are registered with a
+     * temporary selector only for the duration of the call. The GIL is released while blocking.
+     */
+    @TruffleBoundary
+    public static int[] waitForEvents(PosixResources resources, GlobalInterpreterLock gil, int[] fds, int[] events, long timeoutMillis) throws IOException {
+        int[] revents = new int[fds.length];
+        Map<SelectableChannel, List<Integer>> indices = new IdentityHashMap<>();
+        boolean anyReady = collectChannels(resources, fds, events, revents, indices);
+        Selector selector = Selector.open();
+        try {
+            for (Map.Entry<SelectableChannel, List<Integer>> entry : indices.entrySet()) {
+                SelectableChannel channel = entry.getKey();
+                int ops = toInterestOps(channel.validOps(), events, entry.getValue());
+                if (ops != 0) {
+                    register(selector, channel, ops);
+                }
+            }
+            select(selector, gil, anyReady, timeoutMillis);
+            readyEvents(selector, indices, events, revents);
+        } finally {
+            selector.close();
+            for (SelectableChannel channel : indices.keySet()) {
+                restoreBlocking(channel);
+            }
+        }
+        return revents;
+    }
+
+    /**
+     * Sets the events of file descriptors that need no selector and groups the others by channel,
+     * since several file descriptors may refer to the same channel. Returns {@code true} if any
+     * file descriptor is ready already.
+     */
+    private static boolean collectChannels(PosixResources resources, int[] fds, int[] events, int[] revents, Map<SelectableChannel, List<Integer>> indices) {
+        boolean anyReady = false;
+        for (int i = 0; i < fds.length; i++) {
+            Channel channel = resources.getFileChannel(fds[i]);
+            if (channel == null || !channel.isOpen()) {
+                revents[i] = POLLNVAL;
+                anyReady = true;
+            } else if (channel instanceof SelectableChannel) {
+                indices.computeIfAbsent((SelectableChannel) channel, c -> new ArrayList<>()).add(i);
+            } else {
+                int ready = 0;
+                if (channel instanceof ReadableByteChannel) {
+                    ready |= events[i] & READ_EVENTS;
+                }
+                if (channel instanceof WritableByteChannel) {
+                    ready |= events[i] & WRITE_EVENTS;
+                }
+                revents[i] = ready;
+                anyReady |= ready != 0;
+            }
+        }
+        return anyReady;
+    }
+
+    private static void select(Selector selector, GlobalInterpreterLock gil, boolean anyReady, long timeoutMillis) throws IOException {
+        if (anyReady || timeoutMillis == 0) {
+            selector.selectNow();
+        } else {
+            boolean released = gil.release();
+            try {
+                if (timeoutMillis < 0) {
+                    selector.select();
+                } else {
+                    selector.select(timeoutMillis);
+                }
+            } finally {
+                gil.acquire(released);
+            }
+        }
+    }
+
+    private static void readyEvents(Selector selector, Map<SelectableChannel, List<Integer>> indices, int[] events, int[] revents) {
+        for (SelectionKey key : selector.selectedKeys()) {
+            List<Integer> channelIndices = indices.get(key.channel());
+            if (channelIndices == null) {
+                continue;
+            }
+            int readyOps = key.readyOps();
+            for (int i : channelIndices) {
+                int ready = 0;
+                if ((readyOps & (SelectionKey.OP_READ | SelectionKey.OP_ACCEPT)) != 0) {
+                    ready |= events[i] & READ_EVENTS;
+                }
+                if ((readyOps & (SelectionKey.OP_WRITE | SelectionKey.OP_CONNECT)) != 0) {
+                    ready |= events[i] & WRITE_EVENTS;
+                }
+                revents[i] |= ready;
+            }
+        }
+    }
+
+    private static void register(Selector selector, SelectableChannel channel, int ops) throws IOException {
+        synchronized (switchedChannels) {
+            if (channel.isBlocking()) {
+                channel.configureBlocking(false);
+                switchedChannels.add(channel);
+            }
+            channel.register(selector, ops);
+        }
+    }
+
+    private static void restoreBlocking(SelectableChannel channel) throws IOException {
+        synchronized (switchedChannels) {
+            if (!channel.isRegistered() && switchedChannels.remove(channel)) {
+                try {
+                    channel.configureBlocking(true);
+                } catch (ClosedChannelException e) {
+                    // closed in the meantime, nothing to restore
+                }
+            }
+        }
+    }
+
+    private static int toInterestOps(int validOps, int[] events, List<Integer> indices) {
+        int ops = 0;
+        for (int i : indices) {
+            if ((events[i] & READ_EVENTS) != 0) {
+                ops |= validOps & (SelectionKey.OP_READ | SelectionKey.OP_ACCEPT);
+            }
+            if ((events[i] & WRITE_EVENTS) != 0) {
+                ops |= validOps & (SelectionKey.OP_WRITE | SelectionKey.OP_CONNECT);
+            }
+        }
+        return ops;
+    }
+
+    /**
+     * Reads from the channel like a blocking read: if the channel was switched to non-blocking
+     * mode by a poll object and no data is available, waits until it becomes readable.
+     */
+    @TruffleBoundary
+    public static int read(ReadableByteChannel channel, ByteBuffer dst) throws IOException {
+        int n = channel.read(dst);
+        while (n == 0 && dst.hasRemaining() && awaitReady(channel, SelectionKey.OP_READ)) {
+            n = channel.read(dst);
+        }
+        return n;
+    }
+
+    /**
+     * Writes to the channel like a blocking write: if the channel was switched to non-blocking
+     * mode by a poll object and nothing could be written, waits until it becomes writable.
+     */
+    @TruffleBoundary
+    public static int write(WritableByteChannel channel, ByteBuffer src) throws IOException {
+        int n = channel.write(src);
+        while (n == 0 && src.hasRemaining() && awaitReady(channel, SelectionKey.OP_WRITE)) {
+            n = channel.write(src);
+        }
+        return n;
+    }
+
+    /**
+     * Waits on a temporary selector until the channel is ready for the given operation. Returns
+     * {@code false} if the channel is in blocking mode, or in non-blocking mode for another reason
+     * than being polled, so that the caller does not retry.
+     */
+    private static boolean awaitReady(Channel channel, int op) throws IOException {
+        if (!(channel instanceof SelectableChannel) || (((SelectableChannel) channel).validOps() & op) == 0) {
+            return false;
+        }
+        SelectableChannel selectable = (SelectableChannel) channel;
+        try (Selector selector = Selector.open()) {
+            synchronized (switchedChannels) {
+                if (selectable.isBlocking()) {
+                    // switched back in the meantime, so the next call blocks by itself
+                    return true;
+                } else if (!switchedChannels.contains(selectable)) {
+                    return false;
+                }
+                selectable.register(selector, op);
+            }
+            selector.select();
+        }
+        restoreBlocking(selectable);
+        return true;
+    }
+}
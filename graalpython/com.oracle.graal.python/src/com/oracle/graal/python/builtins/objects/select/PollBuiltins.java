@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.select;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.KeyError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.OSError;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.exception.OSErrorEnum;
+import com.oracle.graal.python.builtins.objects.select.SelectNodes.FileDescriptorNode;
+import com.oracle.graal.python.builtins.objects.select.SelectNodes.TimeoutToMillisNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.util.CastToIndexNode;
+import com.oracle.graal.python.runtime.object.PythonObjectFactory;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PPoll)
+public class PollBuiltins extends PythonBuiltins {
+
+    static final int DEFAULT_EVENTS = PPoll.POLLIN | PPoll.POLLPRI | PPoll.POLLOUT;
+
+    /**
+     * Creates the {@code (fd, events)} tuples for the ready file descriptors, at most {@code max}.
+     */
+    static Object[] toEventList(PythonObjectFactory factory, int[] fds, int[] revents, int max) {
+        int count = 0;
+        for (int i = 0; i < revents.length; i++) {
+            if (revents[i] != 0) {
+                count++;
+            }
+        }
+        Object[] result = new Object[Math.min(count, max)];
+        int j = 0;
+        for (int i = 0; i < revents.length && j < result.length; i++) {
+            if (revents[i] != 0) {
+                result[j++] = factory.createTuple(new Object[]{fds[i], revents[i]});
+            }
+        }
+        return result;
+    }
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return PollBuiltinsFactory.getFactories();
+    }
+
+    @Builtin(name = "register", minNumOfPositionalArgs = 2, parameterNames = {"self", "fd", "eventmask"})
+    @GenerateNodeFactory
+    abstract static class RegisterNode extends PythonBuiltinNode {
+        @Specialization
+        Object register(PPoll self, Object fd, Object eventmask,
+                        @Cached("create()") FileDescriptorNode fileDescriptorNode,
+                        @Cached("create()") CastToIndexNode castToIndexNode) {
+            int events = eventmask instanceof PNone ? DEFAULT_EVENTS : castToIndexNode.execute(eventmask);
+            self.register(fileDescriptorNode.execute(fd), events);
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "modify", minNumOfPositionalArgs = 3, parameterNames = {"self", "fd", "eventmask"})
+    @GenerateNodeFactory
+    abstract static class ModifyNode extends PythonBuiltinNode {
+        @Specialization
+        Object modify(VirtualFrame frame, PPoll self, Object fd, Object eventmask,
+                        @Cached("create()") FileDescriptorNode fileDescriptorNode,
+                        @Cached("create()") CastToIndexNode castToIndexNode) {
+            int fdInt = fileDescriptorNode.execute(fd);
+            if (!self.isRegistered(fdInt)) {
+                throw raiseOSError(frame, OSErrorEnum.ENOENT);
+            }
+            self.register(fdInt, castToIndexNode.execute(eventmask));
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "unregister", minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class UnregisterNode extends PythonBuiltinNode {
+        @Specialization
+        Object unregister(PPoll self, Object fd,
+                        @Cached("create()") FileDescriptorNode fileDescriptorNode) {
+            int fdInt = fileDescriptorNode.execute(fd);
+            if (!self.unregister(fdInt)) {
+                throw raise(KeyError, "%d", fdInt);
+            }
+            return PNone.NONE;
+        }
+    }
+
+    @Builtin(name = "poll", minNumOfPositionalArgs = 1, parameterNames = {"self", "timeout"})
+    @GenerateNodeFactory
+    abstract static class PollNode extends PythonBuiltinNode {
+        @Specialization
+        Object poll(PPoll self, Object timeout,
+                        @Cached("createMillis()") TimeoutToMillisNode timeoutNode) {
+            long millis = timeoutNode.execute(timeout);
+            int[] fds = self.getFds();
+            int[] events = self.getEvents();
+            int[] revents;
+            try {
+                revents = self.poll(getContext().getResources(), getContext().getGil(), fds, events, millis);
+            } catch (IOException e) {
+                throw raise(OSError, e);
+            }
+            return factory().createList(toEventList(factory(), fds, revents, Integer.MAX_VALUE));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.select;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.ints.PInt;
+import com.oracle.graal.python.builtins.objects.select.SelectNodesFactory.FileDescriptorNodeGen;
+import com.oracle.graal.python.builtins.objects.select.SelectNodesFactory.TimeoutToMillisNodeGen;
+import com.oracle.graal.python.nodes.PNodeWithContext;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode;
+import com.oracle.graal.python.nodes.util.CastToDoubleNode;
+import com.oracle.graal.python.nodes.util.CastToIndexNode;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+
+public abstract class SelectNodes {
+
+    /**
+     * Converts an integer or an object with a {@code fileno()} method to a file descriptor.
+     */
+    public abstract static class FileDescriptorNode extends PNodeWithContext {
+        protected static final String FILENO = "fileno";
+
+        public abstract int execute(Object obj);
+
+        @Specialization
+        static int doIt(Object obj,
+                        @Cached("createBinaryProfile()") ConditionProfile isIntProfile,
+                        @Cached("create(FILENO)") LookupAndCallUnaryNode callFilenoNode,
+                        @Cached("create()") CastToIndexNode castToIndexNode,
+                        @Cached PRaiseNode raise) {
+            Object fdObj = obj;
+            if (!isIntProfile.profile(obj instanceof Integer || obj instanceof Long || obj instanceof PInt)) {
+                fdObj = callFilenoNode.executeObject(obj);
+            }
+            int fd = castToIndexNode.execute(fdObj);
+            if (fd < 0) {
+                throw raise.raise(ValueError, "file descriptor cannot be a negative integer (%d)", fd);
+            }
+            return fd;
+        }
+
+        public static FileDescriptorNode create() {
+            return FileDescriptorNodeGen.create();
+        }
+    }
+
+    /**
+     * Converts a timeout to milliseconds, rounding away from zero. {@code None} and negative
+     * values mean "block indefinitely" and are returned as {@code -1}.
+     */
+    public abstract static class TimeoutToMillisNode extends PNodeWithContext {
+        private final double unitMillis;
+
+        protected TimeoutToMillisNode(double unitMillis) {
+            this.unitMillis = unitMillis;
+        }
+
+        public abstract long execute(Object timeout);
+
+        @Specialization
+        long doNone(@SuppressWarnings("unused") PNone timeout) {
+            return -1;
+        }
+
+        @Specialization(guards = "!isPNone(timeout)")
+        long doOther(Object timeout,
+                        @Cached("create()") CastToDoubleNode castToDoubleNode) {
+            double value = castToDoubleNode.execute(timeout);
+            if (value < 0) {
+                return -1;
+            }
+            return (long) Math.ceil(value * unitMillis);
+        }
+
+        protected static boolean isPNone(Object obj) {
+            return obj instanceof PNone;
+        }
+
+        /**
+         * Creates a node for timeouts given in seconds.
+         */
+        public static TimeoutToMillisNode createSeconds() {
+            return TimeoutToMillisNodeGen.create(1000.0);
+        }
+
+        /**
+         * Creates a node for timeouts given in milliseconds.
+         */
+        public static TimeoutToMillisNode createMillis() {
+            return TimeoutToMillisNodeGen.create(1.0);
+        }
+    }
+}
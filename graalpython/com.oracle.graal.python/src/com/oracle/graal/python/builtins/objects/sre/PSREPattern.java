@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.sre;
+
+import com.oracle.graal.python.builtins.objects.common.HashingStorage;
+import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
+import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * A compiled regular expression ({@code re.Pattern}). The pattern is compiled by TRegex when it is
+ * created; the variants needed for {@code match} and {@code fullmatch} are compiled on first use
+ * and kept here, as is the template last used by {@code sub}.
+ */
+public final class PSREPattern extends PythonBuiltinObject {
+    public static final int SEARCH = 0;
+    public static final int MATCH = 1;
+    public static final int FULLMATCH = 2;
+
+    private final Object engine;
+    private final Object pattern;
+    private final Object source;
+    private final int flags;
+    private final String flagsStr;
+    private final boolean binary;
+    private final int groups;
+    private final HashingStorage groupIndex;
+    private final String[] groupNames;
+    private final Object[] execs = new Object[3];
+
+    private Object templateSource;
+    private SRETemplate template;
+    private int[] groupParents;
+
+    public PSREPattern(LazyPythonClass cls, Object engine, Object pattern, Object source, int flags, String flagsStr, boolean binary, int groups, HashingStorage groupIndex,
+                    String[] groupNames, Object searchExec) {
+        super(cls);
+        this.engine = engine;
+        this.pattern = pattern;
+        this.source = source;
+        this.flags = flags;
+        this.flagsStr = flagsStr;
+        this.binary = binary;
+        this.groups = groups;
+        this.groupIndex = groupIndex;
+        this.groupNames = groupNames;
+        this.execs[SEARCH] = searchExec;
+    }
+
+    /** The TRegex engine that compiled this pattern. */
+    public Object getEngine() {
+        return engine;
+    }
+
+    /** The pattern as passed to {@code re.compile}. */
+    public Object getPattern() {
+        return pattern;
+    }
+
+    /** The pattern as passed to TRegex, i.e., a {@code String} or a {@code bytes} object. */
+    public Object getSource() {
+        return source;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    public String getFlagsStr() {
+        return flagsStr;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /** The number of capturing groups, not counting the whole match. */
+    public int getGroups() {
+        return groups;
+    }
+
+    public HashingStorage getGroupIndex() {
+        return groupIndex;
+    }
+
+    /**
+     * Returns the name of group {@code index}, or {@code null} if the group is unnamed.
+     */
+    public String getGroupName(int index) {
+        return index < groupNames.length ? groupNames[index] : null;
+    }
+
+    /**
+     * Returns the innermost capturing group enclosing each group ({@code 0} for groups at the top
+     * level). Computed from the pattern on first use.
+     */
+    @TruffleBoundary
+    public int[] getGroupParents() {
+        if (groupParents == null) {
+            groupParents = SRENodes.parseGroupParents(source, flags, groups);
+        }
+        return groupParents;
+    }
+
+    /**
+     * Returns the index of the group called {@code name}, or {@code -1}.
+     */
+    public int getGroupIndex(String name) {
+        for (int i = 0; i < groupNames.length; i++) {
+            if (name.equals(groupNames[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The {@code exec} function of the compiled regex for {@link #SEARCH}, {@link #MATCH} or
+     * {@link #FULLMATCH}, or {@code null} if it has not been compiled yet.
+     */
+    public Object getExec(int mode) {
+        return execs[mode];
+    }
+
+    public void setExec(int mode, Object exec) {
+        execs[mode] = exec;
+    }
+
+    /**
+     * Returns the template parsed from {@code repl} if it is the one {@code sub} was last called
+     * with, or {@code null}.
+     */
+    public SRETemplate getTemplate(Object repl) {
+        Object cached = templateSource;
+        if (cached != null && (cached == repl || (repl instanceof String && repl.equals(cached)))) {
+            return template;
+        }
+        return null;
+    }
+
+    public void setTemplate(Object repl, SRETemplate template) {
+        this.templateSource = repl;
+        this.template = template;
+    }
+}
@@ -0,0 +1,401 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.sre;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__GETITEM__;
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__REPR__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.IndexError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.bytes.BytesNodes;
+import com.oracle.graal.python.builtins.objects.dict.PDict;
+import com.oracle.graal.python.builtins.objects.ints.PInt;
+import com.oracle.graal.python.builtins.objects.sre.SRENodes.ExpandTemplateNode;
+import com.oracle.graal.python.builtins.objects.sre.SRENodes.Joiner;
+import com.oracle.graal.python.builtins.objects.sre.SRENodes.ResultNode;
+import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.builtins.objects.tuple.PTuple;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonBinaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.nodes.util.CastToIndexNode;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PSREMatch)
+public class SREMatchBuiltins extends PythonBuiltins {
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return SREMatchBuiltinsFactory.getFactories();
+    }
+
+    /**
+     * Base class for the methods that take group indices or group names.
+     */
+    abstract static class GroupBaseNode extends PythonBuiltinNode {
+        @Child private ResultNode resultNode;
+        @Child private CastToIndexNode castToIndexNode;
+
+        protected final ResultNode getResultNode() {
+            if (resultNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                resultNode = insert(ResultNode.create());
+            }
+            return resultNode;
+        }
+
+        protected final int getGroupIndex(PSREMatch self, Object group) {
+            int index;
+            if (group instanceof String) {
+                index = self.getPattern().getGroupIndex((String) group);
+            } else if (group instanceof PString) {
+                index = self.getPattern().getGroupIndex(((PString) group).getValue());
+            } else if (group instanceof Integer || group instanceof Long || group instanceof Boolean || group instanceof PInt) {
+                if (castToIndexNode == null) {
+                    CompilerDirectives.transferToInterpreterAndInvalidate();
+                    castToIndexNode = insert(CastToIndexNode.create());
+                }
+                index = castToIndexNode.execute(group);
+            } else {
+                index = -1;
+            }
+            if (index < 0 || index > self.getPattern().getGroups()) {
+                throw raise(IndexError, "no such group");
+            }
+            return index;
+        }
+
+        protected final Object getGroup(PSREMatch self, int index, Object defaultValue) {
+            Object result = self.getResult();
+            int start = getResultNode().getStart(result, index);
+            if (start < 0) {
+                return defaultValue;
+            }
+            return SRENodes.slice(factory(), self.getInput(), start, getResultNode().getEnd(result, index));
+        }
+
+        protected final Object getGroup(PSREMatch self, Object group) {
+            return getGroup(self, getGroupIndex(self, group), PNone.NONE);
+        }
+
+        protected final PTuple getSpan(PSREMatch self, int index) {
+            Object result = self.getResult();
+            return factory().createTuple(new Object[]{getResultNode().getStart(result, index), getResultNode().getEnd(result, index)});
+        }
+
+        protected static Object getDefault(Object defaultValue) {
+            return defaultValue == PNone.NO_VALUE ? PNone.NONE : defaultValue;
+        }
+    }
+
+    @Builtin(name = "group", minNumOfPositionalArgs = 1, takesVarArgs = true)
+    @GenerateNodeFactory
+    abstract static class GroupNode extends GroupBaseNode {
+        @Specialization(guards = "args.length == 0")
+        Object groupZero(PSREMatch self, @SuppressWarnings("unused") Object[] args) {
+            return getGroup(self, 0, PNone.NONE);
+        }
+
+        @Specialization(guards = "args.length == 1")
+        Object groupOne(PSREMatch self, Object[] args) {
+            return getGroup(self, args[0]);
+        }
+
+        @Specialization(guards = {"args.length == cachedLength", "cachedLength > 1"}, limit = "3")
+        @ExplodeLoop
+        PTuple groupsCached(PSREMatch self, Object[] args,
+                        @Cached("args.length") int cachedLength) {
+            Object[] groups = new Object[cachedLength];
+            for (int i = 0; i < cachedLength; i++) {
+                groups[i] = getGroup(self, args[i]);
+            }
+            return factory().createTuple(groups);
+        }
+
+        @Specialization(replaces = "groupsCached", guards = "args.length > 1")
+        PTuple groups(PSREMatch self, Object[] args) {
+            Object[] groups = new Object[args.length];
+            for (int i = 0; i < args.length; i++) {
+                groups[i] = getGroup(self, args[i]);
+            }
+            return factory().createTuple(groups);
+        }
+    }
+
+    @Builtin(name = __GETITEM__, minNumOfPositionalArgs = 2)
+    @GenerateNodeFactory
+    abstract static class GetItemNode extends GroupBaseNode {
+        @Specialization
+        Object getItem(PSREMatch self, Object group) {
+            return getGroup(self, group);
+        }
+    }
+
+    @Builtin(name = "groups", minNumOfPositionalArgs = 1, parameterNames = {"self", "default"})
+    @GenerateNodeFactory
+    abstract static class GroupsNode extends GroupBaseNode {
+        @Specialization
+        PTuple groups(PSREMatch self, Object defaultValue) {
+            Object value = getDefault(defaultValue);
+            int n = self.getPattern().getGroups();
+            Object[] groups = new Object[n];
+            for (int i = 0; i < n; i++) {
+                groups[i] = getGroup(self, i + 1, value);
+            }
+            return factory().createTuple(groups);
+        }
+    }
+
+    @Builtin(name = "groupdict", minNumOfPositionalArgs = 1, parameterNames = {"self", "default"})
+    @GenerateNodeFactory
+    abstract static class GroupDictNode extends GroupBaseNode {
+        @Specialization
+        PDict groupdict(PSREMatch self, Object defaultValue) {
+            Object value = getDefault(defaultValue);
+            PSREPattern pattern = self.getPattern();
+            PDict dict = factory().createDict();
+            for (int i = 1; i <= pattern.getGroups(); i++) {
+                String name = pattern.getGroupName(i);
+                if (name != null) {
+                    dict.setItem(name, getGroup(self, i, value));
+                }
+            }
+            return dict;
+        }
+    }
+
+    @Builtin(name = "start", minNumOfPositionalArgs = 1, parameterNames = {"self", "group"})
+    @GenerateNodeFactory
+    abstract static class StartNode extends GroupBaseNode {
+        @Specialization
+        int start(PSREMatch self, Object group) {
+            int index = group == PNone.NO_VALUE ? 0 : getGroupIndex(self, group);
+            return getResultNode().getStart(self.getResult(), index);
+        }
+    }
+
+    @Builtin(name = "end", minNumOfPositionalArgs = 1, parameterNames = {"self", "group"})
+    @GenerateNodeFactory
+    abstract static class EndNode extends GroupBaseNode {
+        @Specialization
+        int end(PSREMatch self, Object group) {
+            int index = group == PNone.NO_VALUE ? 0 : getGroupIndex(self, group);
+            return getResultNode().getEnd(self.getResult(), index);
+        }
+    }
+
+    @Builtin(name = "span", minNumOfPositionalArgs = 1, parameterNames = {"self", "group"})
+    @GenerateNodeFactory
+    abstract static class SpanNode extends GroupBaseNode {
+        @Specialization
+        PTuple span(PSREMatch self, Object group) {
+            return getSpan(self, group == PNone.NO_VALUE ? 0 : getGroupIndex(self, group));
+        }
+    }
+
+    @Builtin(name = "regs", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class RegsNode extends GroupBaseNode {
+        @Specialization
+        PTuple regs(PSREMatch self) {
+            int n = self.getPattern().getGroups();
+            Object[] regs = new Object[n + 1];
+            for (int i = 0; i <= n; i++) {
+                regs[i] = getSpan(self, i);
+            }
+            return factory().createTuple(regs);
+        }
+    }
+
+    @Builtin(name = "expand", minNumOfPositionalArgs = 2, parameterNames = {"self", "template"})
+    @GenerateNodeFactory
+    abstract static class ExpandNode extends PythonBinaryBuiltinNode {
+        @Specialization
+        Object expand(PSREMatch self, Object template,
+                        @Cached("create()") BytesNodes.ToBytesNode toBytesNode,
+                        @Cached("create()") ExpandTemplateNode expandTemplateNode) {
+            PSREPattern pattern = self.getPattern();
+            SRETemplate parsed = pattern.getTemplate(template);
+            if (parsed == null) {
+                byte[] templateBytes = pattern.isBinary() ? toBytesNode.execute(template) : null;
+                parsed = SRENodes.parseTemplate(this, pattern, template, templateBytes);
+                pattern.setTemplate(template, parsed);
+            }
+            Joiner joiner = new Joiner(pattern.isBinary());
+            expandTemplateNode.execute(joiner, parsed, self.getResult(), self.getInput());
+            Object joined = joiner.finish();
+            return joined instanceof byte[] ? factory().createBytes((byte[]) joined) : joined;
+        }
+    }
+
+    /**
+     * Computes the index of the last matched group, i.e., of the group that was closed last. The
+     * result object only records spans: among the groups that end last, a group closes after the
+     * groups opened before it, unless it is nested in one of them.
+     */
+    abstract static class LastIndexBaseNode extends GroupBaseNode {
+        protected final int getLastIndex(PSREMatch self) {
+            Object result = self.getResult();
+            int[] parents = null;
+            int lastIndex = -1;
+            int lastEnd = -1;
+            for (int i = 1; i <= self.getPattern().getGroups(); i++) {
+                int start = getResultNode().getStart(result, i);
+                if (start < 0) {
+                    continue;
+                }
+                int end = getResultNode().getEnd(result, i);
+                if (end == lastEnd) {
+                    if (parents == null) {
+                        parents = self.getPattern().getGroupParents();
+                    }
+                    if (isNestedIn(parents, i, lastIndex)) {
+                        continue;
+                    }
+                }
+                if (end >= lastEnd) {
+                    lastIndex = i;
+                    lastEnd = end;
+                }
+            }
+            return lastIndex;
+        }
+
+        private static boolean isNestedIn(int[] parents, int group, int outer) {
+            for (int p = parents[group]; p != 0; p = parents[p]) {
+                if (p == outer) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    @Builtin(name = "lastindex", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class LastIndexNode extends LastIndexBaseNode {
+        @Specialization
+        Object lastindex(PSREMatch self) {
+            int lastIndex = getLastIndex(self);
+            return lastIndex < 0 ? PNone.NONE : lastIndex;
+        }
+    }
+
+    @Builtin(name = "lastgroup", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class LastGroupNode extends LastIndexBaseNode {
+        @Specialization
+        Object lastgroup(PSREMatch self) {
+            int lastIndex = getLastIndex(self);
+            String name = lastIndex < 0 ? null : self.getPattern().getGroupName(lastIndex);
+            return name == null ? PNone.NONE : name;
+        }
+    }
+
+    @Builtin(name = "string", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class StringNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        Object string(PSREMatch self) {
+            return self.getString();
+        }
+    }
+
+    @Builtin(name = "re", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class ReNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        PSREPattern re(PSREMatch self) {
+            return self.getPattern();
+        }
+    }
+
+    @Builtin(name = "pos", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class PosNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        int pos(PSREMatch self) {
+            return self.getPos();
+        }
+    }
+
+    @Builtin(name = "endpos", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class EndPosNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        int endpos(PSREMatch self) {
+            return self.getEndpos();
+        }
+    }
+
+    @Builtin(name = __REPR__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class ReprNode extends GroupBaseNode {
+        @Specialization
+        String repr(PSREMatch self,
+                        @Cached("create(__REPR__)") LookupAndCallUnaryNode reprNode) {
+            Object result = self.getResult();
+            int start = getResultNode().getStart(result, 0);
+            int end = getResultNode().getEnd(result, 0);
+            Object match = SRENodes.slice(factory(), self.getInput(), start, end);
+            return format(start, end, reprNode.executeObject(match).toString());
+        }
+
+        @TruffleBoundary
+        private static String format(int start, int end, String matchRepr) {
+            return "<re.Match object; span=(" + start + ", " + end + "), match=" + matchRepr + ">";
+        }
+    }
+}
@@ -0,0 +1,794 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.sre;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.IndexError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.oracle.graal.python.PythonLanguage;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.bytes.PBytes;
+import com.oracle.graal.python.builtins.objects.bytes.PIBytesLike;
+import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes;
+import com.oracle.graal.python.builtins.objects.exception.PBaseException;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.memoryview.MemoryViewNodes;
+import com.oracle.graal.python.builtins.objects.memoryview.PMemoryView;
+import com.oracle.graal.python.builtins.objects.mmap.PMMap;
+import com.oracle.graal.python.builtins.objects.sre.SRETemplate.TemplateError;
+import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.nodes.PNodeWithContext;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.util.CastToIndexNode;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.graal.python.runtime.object.PythonObjectFactory;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleException;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Fallback;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.interop.ArityException;
+import com.oracle.truffle.api.interop.InteropException;
+import com.oracle.truffle.api.interop.InteropLibrary;
+import com.oracle.truffle.api.interop.UnsupportedMessageException;
+import com.oracle.truffle.api.interop.UnsupportedTypeException;
+import com.oracle.truffle.api.nodes.Node;
+
+/**
+ * Nodes that drive TRegex for the {@code _sre} objects. Regexes are compiled through the interop
+ * protocol of the TRegex engine objects created by {@code _sre.setup}; searches pass the subject
+ * to the compiled regex's {@code exec} function and read group boundaries from the result object.
+ *
+ * Subjects are normalized by {@link NormalizeInputNode} to either a {@code String} or a
+ * {@code bytes}-like object backed by a {@link ByteSequenceStorage}, so all other nodes only deal
+ * with those two representations.
+ */
+public abstract class SRENodes {
+    private static final String AT_POSITION = " at position ";
+
+    public abstract static class SREBaseNode extends PNodeWithContext {
+        @Child private PythonObjectFactory objectFactory;
+        @Child private PRaiseNode raiseNode;
+
+        protected final PythonObjectFactory factory() {
+            if (objectFactory == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                objectFactory = insert(PythonObjectFactory.create());
+            }
+            return objectFactory;
+        }
+
+        protected final PRaiseNode getRaiseNode() {
+            if (raiseNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                raiseNode = insert(PRaiseNode.create());
+            }
+            return raiseNode;
+        }
+
+        protected final PException raise(PythonBuiltinClassType type, String format, Object... arguments) {
+            return getRaiseNode().raise(type, format, arguments);
+        }
+
+        protected final PException raise(PythonBuiltinClassType type, Exception e) {
+            return getRaiseNode().raise(type, e);
+        }
+    }
+
+    /**
+     * Raises {@code re.error(message, pattern, pos)}, or a {@code ValueError} if {@code _sre.setup}
+     * has not been called yet.
+     */
+    @TruffleBoundary
+    public static PException raiseError(Node node, String message, Object pattern, int pos) {
+        Object errorType = PythonLanguage.getCore().lookupBuiltinModule("_sre").getAttribute("error");
+        if (errorType == PNone.NO_VALUE) {
+            throw PRaiseNode.getUncached().raise(ValueError, "%s", message);
+        }
+        Object[] args = pos >= 0 ? new Object[]{message, pattern, pos} : new Object[]{message, pattern};
+        Object exception = CallNode.getUncached().execute(null, errorType, args, PKeyword.EMPTY_KEYWORDS);
+        if (exception instanceof PBaseException) {
+            throw PRaiseNode.raise(node, (PBaseException) exception);
+        }
+        throw PRaiseNode.getUncached().raise(TypeError, "exceptions must derive from BaseException");
+    }
+
+    /**
+     * Raises the exception CPython raises for an invalid replacement template.
+     */
+    @TruffleBoundary
+    public static PException raiseTemplateError(Node node, TemplateError e, Object template) {
+        if (e.isUnknownGroupName()) {
+            throw PRaiseNode.getUncached().raise(IndexError, "%s", e.getMessage());
+        }
+        throw raiseError(node, e.getMessage(), template, e.getPosition());
+    }
+
+    /**
+     * Compiles regexes with TRegex. This only happens when a pattern is created and when the
+     * {@code match} or {@code fullmatch} variant of a pattern is first used, so it is not
+     * specialized.
+     */
+    public static final class CompileNode extends SREBaseNode {
+
+        /**
+         * Compiles {@code source} and returns the compiled regex object. Syntax errors are raised
+         * as {@code re.error} for {@code pattern}.
+         */
+        @TruffleBoundary
+        public Object compile(Object engine, Object source, String flags, Object pattern) {
+            InteropLibrary interop = InteropLibrary.getFactory().getUncached();
+            try {
+                return interop.execute(engine, source, flags);
+            } catch (ArityException | UnsupportedTypeException | UnsupportedMessageException e) {
+                throw raise(TypeError, "%s", e);
+            } catch (RuntimeException e) {
+                if (e instanceof TruffleException && ((TruffleException) e).isSyntaxError()) {
+                    String message = e.getMessage();
+                    int boundary = message.lastIndexOf(AT_POSITION);
+                    if (boundary >= 0) {
+                        try {
+                            int position = Integer.parseInt(message.substring(boundary + AT_POSITION.length()));
+                            throw raiseError(this, message.substring(0, boundary), pattern, position);
+                        } catch (NumberFormatException nfe) {
+                            // fall through
+                        }
+                    }
+                    throw raiseError(this, message, pattern, -1);
+                }
+                throw e;
+            }
+        }
+
+        @TruffleBoundary
+        public Object readMember(Object compiled, String member) {
+            InteropLibrary interop = InteropLibrary.getFactory().getUncached();
+            try {
+                return interop.readMember(compiled, member);
+            } catch (InteropException e) {
+                throw raise(TypeError, "%s", e);
+            }
+        }
+
+        /**
+         * Returns the number of capturing groups of a compiled regex, not counting the whole match.
+         */
+        @TruffleBoundary
+        public int getGroups(Object compiled) {
+            InteropLibrary interop = InteropLibrary.getFactory().getUncached();
+            try {
+                return interop.asInt(interop.readMember(compiled, "groupCount")) - 1;
+            } catch (InteropException e) {
+                throw raise(TypeError, "%s", e);
+            }
+        }
+
+        /**
+         * Returns the names of the groups of a compiled regex indexed by group number, with
+         * {@code null} entries for unnamed groups.
+         */
+        @TruffleBoundary
+        public String[] getGroupNames(Object compiled, int groupCount) {
+            InteropLibrary interop = InteropLibrary.getFactory().getUncached();
+            String[] names = new String[groupCount + 1];
+            try {
+                Object groups = interop.readMember(compiled, "groups");
+                if (interop.isNull(groups) || !interop.hasMembers(groups)) {
+                    return names;
+                }
+                Object keys = interop.getMembers(groups);
+                long size = interop.getArraySize(keys);
+                for (long i = 0; i < size; i++) {
+                    String name = interop.asString(interop.readArrayElement(keys, i));
+                    int index = interop.asInt(interop.readMember(groups, name));
+                    if (index >= 0 && index < names.length) {
+                        names[index] = name;
+                    }
+                }
+                return names;
+            } catch (InteropException e) {
+                throw raise(TypeError, "%s", e);
+            }
+        }
+
+        /**
+         * Compiles the variant of {@code pattern} used by {@code mode} and returns its
+         * {@code exec} function.
+         */
+        @TruffleBoundary
+        public Object compileVariant(PSREPattern pattern, int mode) {
+            assert mode != PSREPattern.SEARCH;
+            Object source = pattern.getSource();
+            if (mode == PSREPattern.FULLMATCH) {
+                if (source instanceof String) {
+                    String s = (String) source;
+                    source = s.endsWith("\\Z") ? s : s + "\\Z";
+                } else {
+                    byte[] bytes = getBytes(source);
+                    int len = length(source);
+                    if (len < 2 || bytes[len - 2] != '\\' || bytes[len - 1] != 'Z') {
+                        byte[] appended = Arrays.copyOf(bytes, len + 2);
+                        appended[len] = '\\';
+                        appended[len + 1] = 'Z';
+                        source = factory().createBytes(appended);
+                    }
+                }
+            }
+            // the internal 'y' (sticky) flag anchors the match at the start position
+            Object compiled = compile(pattern.getEngine(), source, pattern.getFlagsStr() + "y", pattern.getPattern());
+            return readMember(compiled, "exec");
+        }
+
+        public static CompileNode create() {
+            return new CompileNode();
+        }
+    }
+
+    /**
+     * Returns the {@code exec} function for a search mode of a pattern, compiling it on first use.
+     */
+    public static final class GetExecNode extends SREBaseNode {
+        @Child private CompileNode compileNode;
+
+        public Object execute(PSREPattern pattern, int mode) {
+            Object exec = pattern.getExec(mode);
+            if (exec == null) {
+                if (compileNode == null) {
+                    CompilerDirectives.transferToInterpreterAndInvalidate();
+                    compileNode = insert(CompileNode.create());
+                }
+                exec = compileNode.compileVariant(pattern, mode);
+                pattern.setExec(mode, exec);
+            }
+            return exec;
+        }
+
+        public static GetExecNode create() {
+            return new GetExecNode();
+        }
+    }
+
+    /**
+     * Calls a regex {@code exec} function and returns the TRegex result object.
+     */
+    public static final class ExecNode extends SREBaseNode {
+        @Child private InteropLibrary interop = InteropLibrary.getFactory().createDispatched(3);
+
+        public Object execute(Object exec, Object input, int fromIndex) {
+            try {
+                return interop.execute(exec, input, fromIndex);
+            } catch (ArityException | UnsupportedTypeException | UnsupportedMessageException e) {
+                throw raise(TypeError, "%s", e);
+            }
+        }
+
+        public static ExecNode create() {
+            return new ExecNode();
+        }
+    }
+
+    /**
+     * Reads from TRegex result objects.
+     */
+    public static final class ResultNode extends SREBaseNode {
+        @Child private InteropLibrary interop = InteropLibrary.getFactory().createDispatched(4);
+
+        public boolean isMatch(Object result) {
+            try {
+                return interop.asBoolean(interop.readMember(result, "isMatch"));
+            } catch (InteropException e) {
+                throw raise(TypeError, "%s", e);
+            }
+        }
+
+        public int getStart(Object result, int group) {
+            try {
+                return interop.asInt(interop.invokeMember(result, "getStart", group));
+            } catch (InteropException e) {
+                throw raise(TypeError, "%s", e);
+            }
+        }
+
+        public int getEnd(Object result, int group) {
+            try {
+                return interop.asInt(interop.invokeMember(result, "getEnd", group));
+            } catch (InteropException e) {
+                throw raise(TypeError, "%s", e);
+            }
+        }
+
+        public static ResultNode create() {
+            return new ResultNode();
+        }
+    }
+
+    /**
+     * Converts the {@code pos} and {@code endpos} arguments to {@code int}. Missing arguments are
+     * replaced by a default, and large values are clamped, since they are clamped to the length of
+     * the subject anyway.
+     */
+    public abstract static class ToPosNode extends SREBaseNode {
+        public abstract int execute(Object value, int defaultValue);
+
+        @Specialization
+        @SuppressWarnings("unused")
+        int doNoValue(PNone value, int defaultValue) {
+            return defaultValue;
+        }
+
+        @Specialization
+        @SuppressWarnings("unused")
+        int doInt(int value, int defaultValue) {
+            return value;
+        }
+
+        @Specialization
+        @SuppressWarnings("unused")
+        int doLong(long value, int defaultValue) {
+            return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+        }
+
+        @Specialization(guards = {"!isPNone(value)", "!isInteger(value)"})
+        @SuppressWarnings("unused")
+        int doGeneric(Object value, int defaultValue,
+                        @Cached("createOverflow()") CastToIndexNode castToIndexNode) {
+            return castToIndexNode.execute(value);
+        }
+
+        protected static boolean isPNone(Object value) {
+            return value instanceof PNone;
+        }
+
+        protected static boolean isInteger(Object value) {
+            return value instanceof Integer || value instanceof Long;
+        }
+
+        protected static CastToIndexNode createOverflow() {
+            return CastToIndexNode.createOverflow();
+        }
+
+        public static ToPosNode create() {
+            return SRENodesFactory.ToPosNodeGen.create();
+        }
+    }
+
+    /**
+     * Checks that a subject matches the type of the pattern and converts it to a {@code String},
+     * or a {@code bytes}-like object backed by a {@link ByteSequenceStorage}. Buffers of other
+     * objects are copied.
+     */
+    public abstract static class NormalizeInputNode extends SREBaseNode {
+        public abstract Object execute(PSREPattern pattern, Object string);
+
+        @Specialization
+        String doString(PSREPattern pattern, String string) {
+            if (pattern.isBinary()) {
+                throw raise(TypeError, "cannot use a bytes pattern on a string-like object");
+            }
+            return string;
+        }
+
+        @Specialization
+        String doPString(PSREPattern pattern, PString string) {
+            return doString(pattern, string.getValue());
+        }
+
+        @Specialization(guards = "isByteStorage(bytes)")
+        Object doBytesLike(PSREPattern pattern, PIBytesLike bytes) {
+            checkBinary(pattern);
+            return bytes;
+        }
+
+        @Specialization(guards = "!isByteStorage(bytes)")
+        Object doOtherStorage(PSREPattern pattern, PIBytesLike bytes,
+                        @Cached("create()") SequenceStorageNodes.ToByteArrayNode toByteArrayNode) {
+            checkBinary(pattern);
+            return factory().createBytes(toByteArrayNode.execute(bytes.getSequenceStorage()));
+        }
+
+        @Specialization
+        Object doMemoryView(PSREPattern pattern, PMemoryView view,
+                        @Cached("create()") MemoryViewNodes.ToJavaBytesNode toJavaBytesNode) {
+            checkBinary(pattern);
+            return factory().createBytes(toJavaBytesNode.execute(view));
+        }
+
+        @Specialization
+        Object doMMap(PSREPattern pattern, PMMap mmap) {
+            checkBinary(pattern);
+            if (mmap.isClosed()) {
+                throw raise(ValueError, "mmap closed or invalid");
+            }
+            byte[] bytes = new byte[(int) Math.min(mmap.getLength(), Integer.MAX_VALUE)];
+            mmap.getBytes(0, bytes, 0, bytes.length);
+            return factory().createBytes(bytes);
+        }
+
+        @Fallback
+        @SuppressWarnings("unused")
+        Object doError(PSREPattern pattern, Object string) {
+            throw raise(TypeError, "expected string or bytes-like object");
+        }
+
+        private void checkBinary(PSREPattern pattern) {
+            if (!pattern.isBinary()) {
+                throw raise(TypeError, "cannot use a string pattern on a bytes-like object");
+            }
+        }
+
+        protected static boolean isByteStorage(PIBytesLike bytes) {
+            return bytes.getSequenceStorage() instanceof ByteSequenceStorage;
+        }
+
+        public static NormalizeInputNode create() {
+            return SRENodesFactory.NormalizeInputNodeGen.create();
+        }
+    }
+
+    /**
+     * Runs one search of a pattern on a subject and returns the {@code re.Match}, or {@code None}.
+     * {@code pos} and {@code endpos} are clamped to the subject like CPython does.
+     */
+    public static final class SearchNode extends SREBaseNode {
+        @Child private NormalizeInputNode normalizeInputNode = NormalizeInputNode.create();
+        @Child private GetExecNode getExecNode = GetExecNode.create();
+        @Child private ExecNode execNode = ExecNode.create();
+        @Child private ResultNode resultNode = ResultNode.create();
+
+        public Object execute(PSREPattern pattern, int mode, Object string, int pos, int endpos) {
+            Object input = normalizeInputNode.execute(pattern, string);
+            int length = length(input);
+            int start = Math.max(0, Math.min(pos, length));
+            int end = Math.max(0, Math.min(endpos, length));
+            if (end < start) {
+                return PNone.NONE;
+            }
+            if (end < length) {
+                input = truncate(factory(), input, end);
+            }
+            return executeNormalized(pattern, mode, string, input, start, end);
+        }
+
+        /**
+         * Searches an already normalized and truncated subject starting at {@code pos}.
+         */
+        public Object executeNormalized(PSREPattern pattern, int mode, Object string, Object input, int pos, int endpos) {
+            Object result = execNode.execute(getExecNode.execute(pattern, mode), input, pos);
+            if (!resultNode.isMatch(result)) {
+                return PNone.NONE;
+            }
+            return factory().createSREMatch(pattern, string, input, pos, endpos, result);
+        }
+
+        public static SearchNode create() {
+            return new SearchNode();
+        }
+    }
+
+    /**
+     * Expands a parsed template for a match into a {@link Joiner}.
+     */
+    public static final class ExpandTemplateNode extends SREBaseNode {
+        @Child private ResultNode resultNode = ResultNode.create();
+
+        public void execute(Joiner joiner, SRETemplate template, Object result, Object input) {
+            int n = template.getGroupReferences();
+            for (int i = 0; i < n; i++) {
+                joiner.appendLiteral(template, i);
+                int group = template.getGroup(i);
+                int start = resultNode.getStart(result, group);
+                if (start >= 0) {
+                    joiner.append(input, start, resultNode.getEnd(result, group));
+                }
+            }
+            joiner.appendLiteral(template, n);
+        }
+
+        public static ExpandTemplateNode create() {
+            return new ExpandTemplateNode();
+        }
+    }
+
+    /**
+     * Collects the pieces of the result of {@code sub} or {@code expand}.
+     */
+    public static final class Joiner {
+        private final StringBuilder sb;
+        private final ByteArrayOutputStream bytes;
+
+        @TruffleBoundary
+        public Joiner(boolean binary) {
+            if (binary) {
+                sb = null;
+                bytes = new ByteArrayOutputStream();
+            } else {
+                sb = new StringBuilder();
+                bytes = null;
+            }
+        }
+
+        /**
+         * Appends {@code input[start:end]}, where {@code input} is a normalized subject.
+         */
+        @TruffleBoundary
+        public void append(Object input, int start, int end) {
+            if (input instanceof String) {
+                sb.append((String) input, start, end);
+            } else {
+                bytes.write(getBytes(input), start, end - start);
+            }
+        }
+
+        @TruffleBoundary
+        public void appendString(String s) {
+            sb.append(s);
+        }
+
+        @TruffleBoundary
+        public void appendBytes(byte[] b) {
+            bytes.write(b, 0, b.length);
+        }
+
+        void appendLiteral(SRETemplate template, int i) {
+            if (sb != null) {
+                appendString(template.getLiteral(i));
+            } else {
+                appendBytes(template.getByteLiteral(i));
+            }
+        }
+
+        /** Returns a {@code String} or a {@code byte[]}. */
+        @TruffleBoundary
+        public Object finish() {
+            return sb != null ? sb.toString() : bytes.toByteArray();
+        }
+    }
+
+    /**
+     * Parses a replacement template given as {@code str} or bytes-like object.
+     */
+    @TruffleBoundary
+    public static SRETemplate parseTemplate(Node node, PSREPattern pattern, Object repl, byte[] replBytes) {
+        String template;
+        if (replBytes != null) {
+            template = new String(replBytes, StandardCharsets.ISO_8859_1);
+        } else if (repl instanceof String || repl instanceof PString) {
+            template = repl.toString();
+        } else {
+            throw PRaiseNode.getUncached().raise(TypeError, "expected str instance, %p found", repl);
+        }
+        try {
+            return SRETemplate.parse(template, pattern);
+        } catch (TemplateError e) {
+            throw raiseTemplateError(node, e, repl);
+        }
+    }
+
+    private static final int FLAG_VERBOSE = 64;
+
+    /**
+     * Computes the innermost capturing group enclosing each group of the pattern {@code source}
+     * ({@code 0} for groups at the top level). Only the syntax that affects the nesting of groups
+     * is recognized: escapes, character classes, comments, inline flags and the different kinds of
+     * parentheses. The pattern has already been accepted by TRegex, so it is well-formed.
+     */
+    @TruffleBoundary
+    static int[] parseGroupParents(Object source, int flags, int groups) {
+        String p = source instanceof String ? (String) source : new String(getBytes(source), StandardCharsets.ISO_8859_1);
+        int n = p.length();
+        int[] parents = new int[groups + 1];
+        // for every open parenthesis, the enclosing group and verbose mode to restore on close
+        int[] savedGroup = new int[n];
+        boolean[] savedVerbose = new boolean[n];
+        int depth = 0;
+        int current = 0;
+        int nextGroup = 1;
+        boolean verbose = (flags & FLAG_VERBOSE) != 0;
+        int i = 0;
+        while (i < n) {
+            char c = p.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == '[') {
+                i = skipCharacterClass(p, i + 1);
+            } else if (c == '#' && verbose) {
+                while (i < n && p.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (c == ')') {
+                if (depth > 0) {
+                    depth--;
+                    current = savedGroup[depth];
+                    verbose = savedVerbose[depth];
+                }
+                i++;
+            } else if (c != '(') {
+                i++;
+            } else if (i + 1 < n && p.charAt(i + 1) == '?') {
+                int end = i + 2;
+                char kind = end < n ? p.charAt(end) : ')';
+                if (kind == '#') {
+                    // comment, ends at the next parenthesis
+                    i = p.indexOf(')', end) + 1;
+                    if (i == 0) {
+                        i = n;
+                    }
+                    continue;
+                }
+                while (end < n && "aiLmsux-".indexOf(p.charAt(end)) >= 0) {
+                    end++;
+                }
+                if (end > i + 2 && end < n && p.charAt(end) == ')') {
+                    // global inline flags
+                    verbose |= isVerboseSet(p, i + 2, end);
+                    i = end + 1;
+                    continue;
+                }
+                savedGroup[depth] = current;
+                savedVerbose[depth] = verbose;
+                depth++;
+                if (end > i + 2 && end < n && p.charAt(end) == ':') {
+                    // flags scoped to this group
+                    int minus = p.indexOf('-', i + 2);
+                    if (minus < 0 || minus > end) {
+                        verbose |= isVerboseSet(p, i + 2, end);
+                    } else {
+                        verbose = (verbose || isVerboseSet(p, i + 2, minus)) && !isVerboseSet(p, minus, end);
+                    }
+                    i = end + 1;
+                } else if (kind == 'P' && end + 1 < n && p.charAt(end + 1) == '<') {
+                    if (nextGroup <= groups) {
+                        parents[nextGroup] = current;
+                        current = nextGroup++;
+                    }
+                    i = end + 2;
+                } else if (kind == '(') {
+                    // conditional: skip the group reference
+                    i = p.indexOf(')', end) + 1;
+                    if (i == 0) {
+                        i = n;
+                    }
+                } else {
+                    i = end;
+                }
+            } else {
+                savedGroup[depth] = current;
+                savedVerbose[depth] = verbose;
+                depth++;
+                if (nextGroup <= groups) {
+                    parents[nextGroup] = current;
+                    current = nextGroup++;
+                }
+                i++;
+            }
+        }
+        return parents;
+    }
+
+    private static boolean isVerboseSet(String p, int from, int to) {
+        int x = p.indexOf('x', from);
+        return x >= 0 && x < to;
+    }
+
+    /**
+     * Returns the index after the character class whose contents start at {@code start}.
+     */
+    private static int skipCharacterClass(String p, int start) {
+        int n = p.length();
+        int i = start;
+        if (i < n && p.charAt(i) == '^') {
+            i++;
+        }
+        if (i < n && p.charAt(i) == ']') {
+            // a leading ']' is a literal
+            i++;
+        }
+        while (i < n) {
+            char c = p.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == ']') {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return n;
+    }
+
+    /** The length of a normalized subject. */
+    public static int length(Object input) {
+        if (input instanceof String) {
+            return ((String) input).length();
+        }
+        return ((PIBytesLike) input).getSequenceStorage().length();
+    }
+
+    /** The backing array of a normalized {@code bytes}-like subject. */
+    public static byte[] getBytes(Object input) {
+        return ((ByteSequenceStorage) ((PIBytesLike) input).getSequenceStorage()).getInternalByteArray();
+    }
+
+    /**
+     * Returns {@code input[start:end]} as a {@code str} or {@code bytes} object.
+     */
+    public static Object slice(PythonObjectFactory factory, Object input, int start, int end) {
+        if (input instanceof String) {
+            return substring((String) input, start, end);
+        }
+        return factory.createBytes(copyOfRange(getBytes(input), start, end));
+    }
+
+    /** Returns an empty {@code str} or {@code bytes} object matching {@code input}. */
+    public static Object empty(PythonObjectFactory factory, Object input) {
+        if (input instanceof String) {
+            return "";
+        }
+        return factory.createBytes(new byte[0]);
+    }
+
+    static Object truncate(PythonObjectFactory factory, Object input, int end) {
+        if (input instanceof String) {
+            return substring((String) input, 0, end);
+        }
+        PBytes bytes = factory.createBytes(copyOfRange(getBytes(input), 0, end));
+        return bytes;
+    }
+
+    @TruffleBoundary
+    private static String substring(String s, int start, int end) {
+        return s.substring(start, end);
+    }
+
+    @TruffleBoundary
+    private static byte[] copyOfRange(byte[] bytes, int start, int end) {
+        return Arrays.copyOfRange(bytes, start, end);
+    }
+}
@@ -0,0 +1,496 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.sre;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__REPR__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+
+import java.util.List;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.bytes.BytesNodes;
+import com.oracle.graal.python.builtins.objects.bytes.PIBytesLike;
+import com.oracle.graal.python.builtins.objects.function.PKeyword;
+import com.oracle.graal.python.builtins.objects.list.PList;
+import com.oracle.graal.python.builtins.objects.memoryview.PMemoryView;
+import com.oracle.graal.python.builtins.objects.sre.SRENodes.ExecNode;
+import com.oracle.graal.python.builtins.objects.sre.SRENodes.ExpandTemplateNode;
+import com.oracle.graal.python.builtins.objects.sre.SRENodes.GetExecNode;
+import com.oracle.graal.python.builtins.objects.sre.SRENodes.Joiner;
+import com.oracle.graal.python.builtins.objects.sre.SRENodes.NormalizeInputNode;
+import com.oracle.graal.python.builtins.objects.sre.SRENodes.ResultNode;
+import com.oracle.graal.python.builtins.objects.sre.SRENodes.SearchNode;
+import com.oracle.graal.python.builtins.objects.sre.SRENodes.ToPosNode;
+import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.nodes.attributes.GetAttributeNode.GetAnyAttributeNode;
+import com.oracle.graal.python.nodes.builtins.ListNodes.AppendNode;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
+import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
+import com.oracle.graal.python.runtime.object.PythonObjectFactory;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PSREPattern)
+public class SREPatternBuiltins extends PythonBuiltins {
+
+    private static final int FLAG_TEMPLATE = 1;
+    private static final int FLAG_LOCALE = 4;
+    private static final int FLAG_UNICODE = 32;
+    private static final int FLAG_ASCII = 256;
+    private static final String[] FLAG_NAMES = {"re.TEMPLATE", "re.IGNORECASE", "re.LOCALE", "re.MULTILINE", "re.DOTALL", "re.UNICODE", "re.VERBOSE", "re.DEBUG", "re.ASCII"};
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return SREPatternBuiltinsFactory.getFactories();
+    }
+
+    abstract static class SearchBaseNode extends PythonBuiltinNode {
+        @Child private SearchNode searchNode = SearchNode.create();
+        @Child private ToPosNode posNode = ToPosNode.create();
+        @Child private ToPosNode endposNode = ToPosNode.create();
+
+        protected Object search(PSREPattern self, int mode, Object string, Object pos, Object endpos) {
+            return searchNode.execute(self, mode, string, posNode.execute(pos, 0), endposNode.execute(endpos, Integer.MAX_VALUE));
+        }
+    }
+
+    @Builtin(name = "search", minNumOfPositionalArgs = 2, parameterNames = {"self", "string", "pos", "endpos"})
+    @GenerateNodeFactory
+    abstract static class SearchMethodNode extends SearchBaseNode {
+        @Specialization
+        Object doSearch(PSREPattern self, Object string, Object pos, Object endpos) {
+            return search(self, PSREPattern.SEARCH, string, pos, endpos);
+        }
+    }
+
+    @Builtin(name = "match", minNumOfPositionalArgs = 2, parameterNames = {"self", "string", "pos", "endpos"})
+    @GenerateNodeFactory
+    abstract static class MatchMethodNode extends SearchBaseNode {
+        @Specialization
+        Object doMatch(PSREPattern self, Object string, Object pos, Object endpos) {
+            return search(self, PSREPattern.MATCH, string, pos, endpos);
+        }
+    }
+
+    @Builtin(name = "fullmatch", minNumOfPositionalArgs = 2, parameterNames = {"self", "string", "pos", "endpos"})
+    @GenerateNodeFactory
+    abstract static class FullMatchMethodNode extends SearchBaseNode {
+        @Specialization
+        Object doFullMatch(PSREPattern self, Object string, Object pos, Object endpos) {
+            return search(self, PSREPattern.FULLMATCH, string, pos, endpos);
+        }
+    }
+
+    @Builtin(name = "findall", minNumOfPositionalArgs = 2, parameterNames = {"self", "string", "pos", "endpos"})
+    @GenerateNodeFactory
+    abstract static class FindAllNode extends PythonBuiltinNode {
+        @Specialization
+        PList findall(PSREPattern self, Object string, Object pos, Object endpos,
+                        @Cached("create()") NormalizeInputNode normalizeInputNode,
+                        @Cached("create()") ToPosNode posNode,
+                        @Cached("create()") ToPosNode endposNode,
+                        @Cached("create()") GetExecNode getExecNode,
+                        @Cached("create()") ExecNode execNode,
+                        @Cached("create()") ResultNode resultNode,
+                        @Cached("create()") AppendNode appendNode) {
+            Object input = normalizeInputNode.execute(self, string);
+            int length = SRENodes.length(input);
+            int start = Math.max(0, Math.min(posNode.execute(pos, 0), length));
+            int end = Math.max(0, Math.min(endposNode.execute(endpos, Integer.MAX_VALUE), length));
+            PList list = factory().createList();
+            if (end < start) {
+                return list;
+            }
+            if (end < length) {
+                input = SRENodes.truncate(factory(), input, end);
+            }
+            Object exec = getExecNode.execute(self, PSREPattern.SEARCH);
+            int groups = self.getGroups();
+            int i = start;
+            while (i <= end) {
+                Object result = execNode.execute(exec, input, i);
+                if (!resultNode.isMatch(result)) {
+                    break;
+                }
+                Object item;
+                if (groups == 0) {
+                    item = SRENodes.slice(factory(), input, resultNode.getStart(result, 0), resultNode.getEnd(result, 0));
+                } else if (groups == 1) {
+                    item = getGroup(resultNode, result, input, 1);
+                } else {
+                    Object[] items = new Object[groups];
+                    for (int g = 0; g < groups; g++) {
+                        items[g] = getGroup(resultNode, result, input, g + 1);
+                    }
+                    item = factory().createTuple(items);
+                }
+                appendNode.execute(list, item);
+                int matchStart = resultNode.getStart(result, 0);
+                int matchEnd = resultNode.getEnd(result, 0);
+                i = matchStart == matchEnd ? matchEnd + 1 : matchEnd;
+            }
+            return list;
+        }
+
+        private Object getGroup(ResultNode resultNode, Object result, Object input, int group) {
+            int groupStart = resultNode.getStart(result, group);
+            if (groupStart < 0) {
+                return SRENodes.empty(factory(), input);
+            }
+            return SRENodes.slice(factory(), input, groupStart, resultNode.getEnd(result, group));
+        }
+    }
+
+    abstract static class ScannerBaseNode extends PythonBuiltinNode {
+        @Child private NormalizeInputNode normalizeInputNode = NormalizeInputNode.create();
+        @Child private ToPosNode posNode = ToPosNode.create();
+        @Child private ToPosNode endposNode = ToPosNode.create();
+
+        protected final PSREScanner createScanner(PSREPattern self, Object string, Object pos, Object endpos) {
+            Object input = normalizeInputNode.execute(self, string);
+            int length = SRENodes.length(input);
+            int start = Math.max(0, Math.min(posNode.execute(pos, 0), length));
+            int end = Math.max(0, Math.min(endposNode.execute(endpos, Integer.MAX_VALUE), length));
+            if (end < length) {
+                input = SRENodes.truncate(factory(), input, end);
+            }
+            return factory().createSREScanner(self, string, input, end < start ? -1 : start, end);
+        }
+    }
+
+    @Builtin(name = "scanner", minNumOfPositionalArgs = 2, parameterNames = {"self", "string", "pos", "endpos"})
+    @GenerateNodeFactory
+    abstract static class ScannerNode extends ScannerBaseNode {
+        @Specialization
+        PSREScanner scanner(PSREPattern self, Object string, Object pos, Object endpos) {
+            return createScanner(self, string, pos, endpos);
+        }
+    }
+
+    @Builtin(name = "finditer", minNumOfPositionalArgs = 2, parameterNames = {"self", "string", "pos", "endpos"})
+    @GenerateNodeFactory
+    abstract static class FindIterNode extends ScannerBaseNode {
+        @Specialization
+        Object finditer(PSREPattern self, Object string, Object pos, Object endpos,
+                        @Cached("create()") GetAnyAttributeNode getSearchNode) {
+            PSREScanner scanner = createScanner(self, string, pos, endpos);
+            return factory().createSentinelIterator(getSearchNode.executeObject(scanner, "search"), PNone.NONE);
+        }
+    }
+
+    abstract static class SubBaseNode extends PythonBuiltinNode {
+        @Child private NormalizeInputNode normalizeInputNode = NormalizeInputNode.create();
+        @Child private GetExecNode getExecNode = GetExecNode.create();
+        @Child private ExecNode execNode = ExecNode.create();
+        @Child private ResultNode resultNode = ResultNode.create();
+        @Child private ExpandTemplateNode expandTemplateNode;
+        @Child private CallNode callNode;
+        @Child private BytesNodes.ToBytesNode toBytesNode;
+
+        private final ConditionProfile templateProfile = ConditionProfile.createBinaryProfile();
+
+        /**
+         * Returns the result string and the number of replacements.
+         */
+        protected Object[] sub(VirtualFrame frame, PSREPattern self, Object repl, Object string, int count) {
+            Object input = normalizeInputNode.execute(self, string);
+            SRETemplate template = null;
+            if (templateProfile.profile(isTemplate(repl))) {
+                template = getTemplate(self, repl);
+            }
+            Object exec = getExecNode.execute(self, PSREPattern.SEARCH);
+            int length = SRENodes.length(input);
+            Joiner joiner = new Joiner(self.isBinary());
+            int n = 0;
+            int pos = 0;
+            while ((count == 0 || n < count) && pos <= length) {
+                Object result = execNode.execute(exec, input, pos);
+                if (!resultNode.isMatch(result)) {
+                    break;
+                }
+                n++;
+                int start = resultNode.getStart(result, 0);
+                int end = resultNode.getEnd(result, 0);
+                joiner.append(input, pos, start);
+                if (template != null) {
+                    getExpandTemplateNode().execute(joiner, template, result, input);
+                } else {
+                    PSREMatch match = factory().createSREMatch(self, string, input, 0, length, result);
+                    Object item = getCallNode().execute(frame, repl, new Object[]{match}, PKeyword.EMPTY_KEYWORDS);
+                    if (item != PNone.NONE) {
+                        appendItem(joiner, self, item);
+                    }
+                }
+                pos = end;
+                if (start == end) {
+                    if (pos < length) {
+                        joiner.append(input, pos, pos + 1);
+                    }
+                    pos++;
+                }
+            }
+            if (pos < length) {
+                joiner.append(input, pos, length);
+            }
+            Object joined = joiner.finish();
+            Object value = joined instanceof byte[] ? factory().createBytes((byte[]) joined) : joined;
+            return new Object[]{value, n};
+        }
+
+        private SRETemplate getTemplate(PSREPattern self, Object repl) {
+            SRETemplate template = self.getTemplate(repl);
+            if (template == null) {
+                byte[] replBytes = null;
+                if (self.isBinary()) {
+                    if (!(repl instanceof PIBytesLike || repl instanceof PMemoryView)) {
+                        throw raise(TypeError, "expected a bytes-like object, %p found", repl);
+                    }
+                    replBytes = getToBytesNode().execute(repl);
+                } else if (!(repl instanceof String || repl instanceof PString)) {
+                    throw raise(TypeError, "expected str instance, %p found", repl);
+                }
+                template = SRENodes.parseTemplate(this, self, repl, replBytes);
+                self.setTemplate(repl, template);
+            }
+            return template;
+        }
+
+        private void appendItem(Joiner joiner, PSREPattern self, Object item) {
+            if (self.isBinary()) {
+                joiner.appendBytes(getToBytesNode().execute(item));
+            } else if (item instanceof String) {
+                joiner.appendString((String) item);
+            } else if (item instanceof PString) {
+                joiner.appendString(((PString) item).getValue());
+            } else {
+                throw raise(TypeError, "expected str instance, %p found", item);
+            }
+        }
+
+        private static boolean isTemplate(Object repl) {
+            return repl instanceof String || repl instanceof PString || repl instanceof PIBytesLike || repl instanceof PMemoryView;
+        }
+
+        private ExpandTemplateNode getExpandTemplateNode() {
+            if (expandTemplateNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                expandTemplateNode = insert(ExpandTemplateNode.create());
+            }
+            return expandTemplateNode;
+        }
+
+        private CallNode getCallNode() {
+            if (callNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                callNode = insert(CallNode.create());
+            }
+            return callNode;
+        }
+
+        private BytesNodes.ToBytesNode getToBytesNode() {
+            if (toBytesNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                toBytesNode = insert(BytesNodes.ToBytesNode.create());
+            }
+            return toBytesNode;
+        }
+    }
+
+    @Builtin(name = "sub", minNumOfPositionalArgs = 3, parameterNames = {"self", "repl", "string", "count"})
+    @GenerateNodeFactory
+    abstract static class SubNode extends SubBaseNode {
+        @Specialization
+        Object doSub(VirtualFrame frame, PSREPattern self, Object repl, Object string, Object count,
+                        @Cached("create()") ToPosNode countNode) {
+            return sub(frame, self, repl, string, countNode.execute(count, 0))[0];
+        }
+    }
+
+    @Builtin(name = "subn", minNumOfPositionalArgs = 3, parameterNames = {"self", "repl", "string", "count"})
+    @GenerateNodeFactory
+    abstract static class SubnNode extends SubBaseNode {
+        @Specialization
+        Object doSubn(VirtualFrame frame, PSREPattern self, Object repl, Object string, Object count,
+                        @Cached("create()") ToPosNode countNode) {
+            return factory().createTuple(sub(frame, self, repl, string, countNode.execute(count, 0)));
+        }
+    }
+
+    @Builtin(name = "split", minNumOfPositionalArgs = 2, parameterNames = {"self", "string", "maxsplit"})
+    @GenerateNodeFactory
+    abstract static class SplitNode extends PythonTernaryBuiltinNode {
+        @Specialization
+        PList split(PSREPattern self, Object string, Object maxsplitObj,
+                        @Cached("create()") NormalizeInputNode normalizeInputNode,
+                        @Cached("create()") ToPosNode maxsplitNode,
+                        @Cached("create()") GetExecNode getExecNode,
+                        @Cached("create()") ExecNode execNode,
+                        @Cached("create()") ResultNode resultNode,
+                        @Cached("create()") AppendNode appendNode) {
+            Object input = normalizeInputNode.execute(self, string);
+            int maxsplit = maxsplitNode.execute(maxsplitObj, 0);
+            Object exec = getExecNode.execute(self, PSREPattern.SEARCH);
+            int length = SRENodes.length(input);
+            int groups = self.getGroups();
+            PythonObjectFactory factory = factory();
+            PList list = factory.createList();
+            int n = 0;
+            int collectPos = 0;
+            int searchPos = 0;
+            while ((maxsplit <= 0 || n < maxsplit) && searchPos <= length) {
+                Object result = execNode.execute(exec, input, searchPos);
+                if (!resultNode.isMatch(result)) {
+                    break;
+                }
+                n++;
+                int start = resultNode.getStart(result, 0);
+                int end = resultNode.getEnd(result, 0);
+                appendNode.execute(list, SRENodes.slice(factory, input, collectPos, start));
+                for (int g = 1; g <= groups; g++) {
+                    int groupStart = resultNode.getStart(result, g);
+                    if (groupStart >= 0) {
+                        appendNode.execute(list, SRENodes.slice(factory, input, groupStart, resultNode.getEnd(result, g)));
+                    } else {
+                        appendNode.execute(list, PNone.NONE);
+                    }
+                }
+                collectPos = end;
+                searchPos = start == end ? end + 1 : end;
+            }
+            appendNode.execute(list, SRENodes.slice(factory, input, collectPos, length));
+            return list;
+        }
+    }
+
+    @Builtin(name = __REPR__, minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class ReprNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        String repr(PSREPattern self,
+                        @Cached("create(__REPR__)") LookupAndCallUnaryNode reprNode) {
+            Object patternRepr = reprNode.executeObject(self.getPattern());
+            return format(patternRepr.toString(), self.getFlags(), self.isBinary());
+        }
+
+        @TruffleBoundary
+        private static String format(String patternRepr, int patternFlags, boolean binary) {
+            StringBuilder sb = new StringBuilder("re.compile(");
+            sb.append(patternRepr.length() > 200 ? patternRepr.substring(0, 200) : patternRepr);
+            int flags = patternFlags;
+            // the UNICODE flag is implied for str patterns
+            if (!binary && (flags & (FLAG_LOCALE | FLAG_UNICODE | FLAG_ASCII)) == FLAG_UNICODE) {
+                flags &= ~FLAG_UNICODE;
+            }
+            if (flags != 0) {
+                sb.append(", ");
+                boolean first = true;
+                for (int i = 0; i < FLAG_NAMES.length; i++) {
+                    int flag = FLAG_TEMPLATE << i;
+                    if ((flags & flag) != 0) {
+                        if (!first) {
+                            sb.append('|');
+                        }
+                        sb.append(FLAG_NAMES[i]);
+                        first = false;
+                        flags &= ~flag;
+                    }
+                }
+                if (flags != 0) {
+                    if (!first) {
+                        sb.append('|');
+                    }
+                    sb.append("0x").append(Integer.toHexString(flags));
+                }
+            }
+            return sb.append(')').toString();
+        }
+    }
+
+    @Builtin(name = "pattern", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class PatternNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        Object pattern(PSREPattern self) {
+            return self.getPattern();
+        }
+    }
+
+    @Builtin(name = "flags", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class FlagsNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        int flags(PSREPattern self) {
+            return self.getFlags();
+        }
+    }
+
+    @Builtin(name = "groups", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class GroupsNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        int groups(PSREPattern self) {
+            return self.getGroups();
+        }
+    }
+
+    @Builtin(name = "groupindex", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class GroupIndexNode extends PythonUnaryBuiltinNode {
+        @Specialization
+        Object groupindex(PSREPattern self) {
+            return factory().createMappingproxy(self.getGroupIndex());
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.sre;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * A parsed replacement template of {@code Pattern.sub} and {@code Match.expand}: literal chunks
+ * interleaved with group references, i.e., {@code literal[0] group[0] literal[1] ... literal[n]}.
+ * Parsing follows {@code sre_parse.parse_template}. Templates of {@code bytes} patterns are parsed
+ * as Latin-1 strings and their literals are kept as {@code byte[]}.
+ */
+public final class SRETemplate {
+    public static final class TemplateError extends Exception {
+        private static final long serialVersionUID = 6209873052391405761L;
+
+        private final int position;
+        private final boolean unknownGroupName;
+
+        TemplateError(String message, int position, boolean unknownGroupName) {
+            super(message);
+            this.position = position;
+            this.unknownGroupName = unknownGroupName;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+        /** CPython raises an {@code IndexError} rather than {@code re.error} in this case. */
+        public boolean isUnknownGroupName() {
+            return unknownGroupName;
+        }
+
+        @SuppressWarnings("sync-override")
+        @Override
+        public Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    private static final int MAXGROUPS = Integer.MAX_VALUE;
+
+    @CompilationFinal(dimensions = 1) private final String[] literals;
+    @CompilationFinal(dimensions = 1) private final byte[][] byteLiterals;
+    @CompilationFinal(dimensions = 1) private final int[] groups;
+
+    private SRETemplate(String[] literals, byte[][] byteLiterals, int[] groups) {
+        this.literals = literals;
+        this.byteLiterals = byteLiterals;
+        this.groups = groups;
+    }
+
+    /** The number of group references. */
+    public int getGroupReferences() {
+        return groups.length;
+    }
+
+    public int getGroup(int i) {
+        return groups[i];
+    }
+
+    public String getLiteral(int i) {
+        return literals[i];
+    }
+
+    public byte[] getByteLiteral(int i) {
+        return byteLiterals[i];
+    }
+
+    @TruffleBoundary
+    public static SRETemplate parse(String template, PSREPattern pattern) throws TemplateError {
+        ArrayList<String> literalList = new ArrayList<>();
+        ArrayList<Integer> groupList = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int n = template.length();
+        int i = 0;
+        while (i < n) {
+            char c = template.charAt(i);
+            if (c != '\\') {
+                literal.append(c);
+                i++;
+                continue;
+            }
+            int escapeStart = i;
+            if (i + 1 >= n) {
+                throw new TemplateError("bad escape (end of pattern)", escapeStart, false);
+            }
+            c = template.charAt(i + 1);
+            i += 2;
+            if (c == 'g') {
+                if (i >= n || template.charAt(i) != '<') {
+                    throw new TemplateError("missing <", i, false);
+                }
+                int end = template.indexOf('>', i + 1);
+                if (end < 0) {
+                    throw new TemplateError(i + 1 >= n ? "missing group name" : "missing >, unterminated name", i + 1, false);
+                }
+                String name = template.substring(i + 1, end);
+                if (name.isEmpty()) {
+                    throw new TemplateError("missing group name", i + 1, false);
+                }
+                int index;
+                if (isIdentifier(name)) {
+                    index = pattern.getGroupIndex(name);
+                    if (index < 0) {
+                        throw new TemplateError("unknown group name '" + name + "'", i + 1, true);
+                    }
+                } else {
+                    index = parseGroupNumber(name);
+                    if (index < 0) {
+                        throw new TemplateError("bad character in group name '" + name + "'", i + 1, false);
+                    }
+                }
+                addGroup(literalList, groupList, literal, index, pattern, escapeStart);
+                i = end + 1;
+            } else if (c == '0') {
+                int value = 0;
+                for (int k = 0; k < 2 && i < n && isOctal(template.charAt(i)); k++) {
+                    value = value * 8 + (template.charAt(i++) - '0');
+                }
+                literal.append((char) (value & 0xff));
+            } else if (c >= '1' && c <= '9') {
+                int index = c - '0';
+                if (i < n && isDigit(template.charAt(i))) {
+                    char c2 = template.charAt(i);
+                    if (isOctal(c) && isOctal(c2) && i + 1 < n && isOctal(template.charAt(i + 1))) {
+                        int value = ((c - '0') * 8 + (c2 - '0')) * 8 + (template.charAt(i + 1) - '0');
+                        if (value > 0377) {
+                            throw new TemplateError("octal escape value " + template.substring(escapeStart, i + 2) + " outside of range 0-0o377", escapeStart, false);
+                        }
+                        literal.append((char) value);
+                        i += 2;
+                        continue;
+                    }
+                    index = index * 10 + (c2 - '0');
+                    i++;
+                }
+                addGroup(literalList, groupList, literal, index, pattern, escapeStart);
+            } else {
+                char escaped = getEscape(c);
+                if (escaped != 0) {
+                    literal.append(escaped);
+                } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                    throw new TemplateError("bad escape \\" + c, escapeStart, false);
+                } else {
+                    literal.append('\\').append(c);
+                }
+            }
+        }
+        literalList.add(literal.toString());
+        String[] literals = literalList.toArray(new String[0]);
+        int[] groups = new int[groupList.size()];
+        for (int k = 0; k < groups.length; k++) {
+            groups[k] = groupList.get(k);
+        }
+        byte[][] byteLiterals = null;
+        if (pattern.isBinary()) {
+            byteLiterals = new byte[literals.length][];
+            for (int k = 0; k < literals.length; k++) {
+                byteLiterals[k] = literals[k].getBytes(StandardCharsets.ISO_8859_1);
+            }
+        }
+        return new SRETemplate(literals, byteLiterals, groups);
+    }
+
+    private static void addGroup(ArrayList<String> literalList, ArrayList<Integer> groupList, StringBuilder literal, int index, PSREPattern pattern, int position) throws TemplateError {
+        if (index > pattern.getGroups()) {
+            throw new TemplateError("invalid group reference " + index, position, false);
+        }
+        literalList.add(literal.toString());
+        literal.setLength(0);
+        groupList.add(index);
+    }
+
+    private static int parseGroupNumber(String name) {
+        long value = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+            if (value >= MAXGROUPS) {
+                return -1;
+            }
+        }
+        return (int) value;
+    }
+
+    private static boolean isIdentifier(String name) {
+        if (!Character.isUnicodeIdentifierStart(name.codePointAt(0)) && name.charAt(0) != '_') {
+            return false;
+        }
+        for (int i = Character.charCount(name.codePointAt(0)); i < name.length(); i += Character.charCount(name.codePointAt(i))) {
+            if (!Character.isUnicodeIdentifierPart(name.codePointAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char getEscape(char c) {
+        switch (c) {
+            case 'a':
+                return '\u0007';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'v':
+                return '\u000b';
+            case '\\':
+                return '\\';
+            default:
+                return 0;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isOctal(char c) {
+        return c >= '0' && c <= '7';
+    }
+}
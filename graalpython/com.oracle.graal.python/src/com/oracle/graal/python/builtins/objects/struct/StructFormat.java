@@ -0,0 +1,406 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.struct;
+
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * A compiled struct format string. Instances are immutable and shared by all {@code Struct}
+ * objects and module functions that use the same format, so cached nodes can treat the format
+ * codes as constants.
+ *
+ * Native sizes and alignments are the ones of an LP64 platform.
+ */
+public final class StructFormat {
+    /** Same limit as CPython's module cache; the cache is cleared when it is reached. */
+    private static final int MAX_CACHE = 100;
+
+    public static final StructFormat EMPTY = new StructFormat("", false, false, 0, 0, new FormatCode[0]);
+
+    /**
+     * A run of {@code repeat} items of one format character. For {@code 's'} and {@code 'p'},
+     * {@code size} is the length of the string and {@code repeat} is always 1.
+     */
+    public static final class FormatCode {
+        public final char format;
+        public final int offset;
+        public final int size;
+        public final int repeat;
+
+        FormatCode(char format, int offset, int size, int repeat) {
+            this.format = format;
+            this.offset = offset;
+            this.size = size;
+            this.repeat = repeat;
+        }
+
+        public boolean isUnsigned() {
+            return format == 'B' || format == 'H' || format == 'I' || format == 'L' || format == 'Q' || format == 'N';
+        }
+    }
+
+    /**
+     * The formats compiled by a context, cleared by {@code struct._clearcache()}. Python threads of
+     * the context may use it concurrently.
+     */
+    public static final class Cache {
+        private final HashMap<String, StructFormat> formats = new HashMap<>();
+
+        @TruffleBoundary
+        public StructFormat lookup(String format) throws FormatError {
+            synchronized (formats) {
+                StructFormat cached = formats.get(format);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            StructFormat compiled = compile(format);
+            synchronized (formats) {
+                if (formats.size() >= MAX_CACHE) {
+                    formats.clear();
+                }
+                formats.put(format, compiled);
+            }
+            return compiled;
+        }
+
+        @TruffleBoundary
+        public void clear() {
+            synchronized (formats) {
+                formats.clear();
+            }
+        }
+    }
+
+    /**
+     * An invalid format string; converted to {@code struct.error} by the caller.
+     */
+    public static final class FormatError extends Exception {
+        private static final long serialVersionUID = -4093196384730412566L;
+
+        public FormatError(String message) {
+            super(message);
+        }
+
+        @SuppressWarnings("sync-override")
+        @Override
+        public Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    private final String format;
+    private final boolean isNative;
+    private final boolean isBigEndian;
+    private final int size;
+    private final int length;
+    @CompilationFinal(dimensions = 1) private final FormatCode[] codes;
+
+    private StructFormat(String format, boolean isNative, boolean isBigEndian, int size, int length, FormatCode[] codes) {
+        this.format = format;
+        this.isNative = isNative;
+        this.isBigEndian = isBigEndian;
+        this.size = size;
+        this.length = length;
+        this.codes = codes;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public boolean isNative() {
+        return isNative;
+    }
+
+    public boolean isBigEndian() {
+        return isBigEndian;
+    }
+
+    /** The number of bytes of packed data. */
+    public int getSize() {
+        return size;
+    }
+
+    /** The number of values that are packed or unpacked. */
+    public int getLength() {
+        return length;
+    }
+
+    public FormatCode[] getCodes() {
+        return codes;
+    }
+
+    @TruffleBoundary
+    public static StructFormat compile(String format) throws FormatError {
+        int pos = 0;
+        boolean isNative = false;
+        boolean isBigEndian = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+        char first = format.isEmpty() ? '\0' : format.charAt(0);
+        switch (first) {
+            case '<':
+                isBigEndian = false;
+                pos++;
+                break;
+            case '>':
+            case '!':
+                isBigEndian = true;
+                pos++;
+                break;
+            case '=':
+                pos++;
+                break;
+            case '@':
+                pos++;
+                isNative = true;
+                break;
+            default:
+                isNative = true;
+                break;
+        }
+
+        ArrayList<FormatCode> codes = new ArrayList<>();
+        long size = 0;
+        int length = 0;
+        int end = format.indexOf('\0');
+        if (end < 0) {
+            end = format.length();
+        }
+        while (pos < end) {
+            char c = format.charAt(pos++);
+            if (isSpace(c)) {
+                continue;
+            }
+            long num = 1;
+            if ('0' <= c && c <= '9') {
+                num = c - '0';
+                while (pos < end && '0' <= (c = format.charAt(pos)) && c <= '9') {
+                    num = num * 10 + (c - '0');
+                    if (num > Integer.MAX_VALUE) {
+                        throw new FormatError("total struct size too long");
+                    }
+                    pos++;
+                }
+                if (pos >= end) {
+                    throw new FormatError("repeat count given without format specifier");
+                }
+                pos++;
+            }
+            int itemSize = getItemSize(c, isNative);
+            if (itemSize < 0) {
+                throw new FormatError("bad char in struct format");
+            }
+            if (isNative && size > 0) {
+                // native items are aligned to their size
+                size += (itemSize - 1) - (size - 1) % itemSize;
+            }
+            if (c == 's' || c == 'p') {
+                codes.add(new FormatCode(c, (int) size, (int) num, 1));
+                length++;
+            } else if (c != 'x' && num > 0) {
+                codes.add(new FormatCode(c, (int) size, itemSize, (int) num));
+                length += num;
+            }
+            size += num * itemSize;
+            if (size > Integer.MAX_VALUE || length < 0) {
+                throw new FormatError("total struct size too long");
+            }
+        }
+        return new StructFormat(format, isNative, isBigEndian, (int) size, length, codes.toArray(new FormatCode[codes.size()]));
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\u000b' || c == '\f';
+    }
+
+    /**
+     * Returns the size of one item of the given format character, or -1 if it is invalid.
+     */
+    private static int getItemSize(char c, boolean isNative) {
+        switch (c) {
+            case 'x':
+            case 'b':
+            case 'B':
+            case 'c':
+            case 's':
+            case 'p':
+            case '?':
+                return 1;
+            case 'h':
+            case 'H':
+            case 'e':
+                return 2;
+            case 'i':
+            case 'I':
+            case 'f':
+                return 4;
+            case 'l':
+            case 'L':
+                return isNative ? 8 : 4;
+            case 'q':
+            case 'Q':
+            case 'd':
+                return 8;
+            case 'n':
+            case 'N':
+            case 'P':
+                return isNative ? 8 : -1;
+            default:
+                return -1;
+        }
+    }
+
+    public static long readLong(byte[] buffer, int offset, int size, boolean isBigEndian) {
+        long x = 0;
+        if (isBigEndian) {
+            for (int i = 0; i < size; i++) {
+                x = (x << 8) | (buffer[offset + i] & 0xFF);
+            }
+        } else {
+            for (int i = size - 1; i >= 0; i--) {
+                x = (x << 8) | (buffer[offset + i] & 0xFF);
+            }
+        }
+        return x;
+    }
+
+    public static void writeLong(byte[] buffer, int offset, int size, boolean isBigEndian, long value) {
+        long x = value;
+        if (isBigEndian) {
+            for (int i = size - 1; i >= 0; i--) {
+                buffer[offset + i] = (byte) x;
+                x >>= 8;
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                buffer[offset + i] = (byte) x;
+                x >>= 8;
+            }
+        }
+    }
+
+    /**
+     * Unpacks an IEEE 754 half precision float, like {@code _PyFloat_Unpack2}.
+     */
+    public static double readHalfFloat(byte[] buffer, int offset, boolean isBigEndian) {
+        int bits = (int) readLong(buffer, offset, 2, isBigEndian);
+        boolean sign = (bits & 0x8000) != 0;
+        int e = (bits >> 10) & 0x1F;
+        int f = bits & 0x3FF;
+        if (e == 0x1F) {
+            if (f == 0) {
+                return sign ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+            }
+            return sign ? -Double.NaN : Double.NaN;
+        }
+        double x = f / 1024.0;
+        if (e == 0) {
+            e = -14;
+        } else {
+            x += 1.0;
+            e -= 15;
+        }
+        x = Math.scalb(x, e);
+        return sign ? -x : x;
+    }
+
+    /**
+     * Packs an IEEE 754 half precision float with round-half-even, like {@code _PyFloat_Pack2}.
+     * Returns false if the value is too large.
+     */
+    public static boolean writeHalfFloat(byte[] buffer, int offset, boolean isBigEndian, double value) {
+        int sign;
+        int e;
+        int bits;
+        if (value == 0.0) {
+            sign = Double.doubleToRawLongBits(value) < 0 ? 1 : 0;
+            e = 0;
+            bits = 0;
+        } else if (Double.isInfinite(value)) {
+            sign = value < 0.0 ? 1 : 0;
+            e = 0x1F;
+            bits = 0;
+        } else if (Double.isNaN(value)) {
+            sign = Double.doubleToRawLongBits(value) < 0 ? 1 : 0;
+            e = 0x1F;
+            bits = 512;
+        } else {
+            sign = value < 0.0 ? 1 : 0;
+            double x = Math.abs(value);
+            // x = f * 2**e with 1 <= f < 2
+            e = Math.getExponent(x);
+            double f = x < Double.MIN_NORMAL ? 0.0 : Math.scalb(x, -e);
+            if (e >= 16) {
+                return false;
+            } else if (e < -25 || f == 0.0) {
+                f = 0.0;
+                e = 0;
+            } else if (e < -14) {
+                // denormalized
+                f = Math.scalb(f, 14 + e);
+                e = 0;
+            } else {
+                e += 15;
+                f -= 1.0;
+            }
+            f *= 1024.0;
+            bits = (int) f;
+            f -= bits;
+            if (f > 0.5 || (f == 0.5 && bits % 2 == 1)) {
+                bits++;
+                if (bits == 1024) {
+                    bits = 0;
+                    e++;
+                    if (e == 31) {
+                        return false;
+                    }
+                }
+            }
+        }
+        writeLong(buffer, offset, 2, isBigEndian, (sign << 15) | (e << 10) | bits);
+        return true;
+    }
+}
@@ -0,0 +1,734 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.struct;
+
+import static com.oracle.graal.python.nodes.SpecialMethodNames.__INDEX__;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.BufferError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.OverflowError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.TypeError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import com.oracle.graal.python.PythonLanguage;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.bytes.BytesNodes;
+import com.oracle.graal.python.builtins.objects.bytes.PByteArray;
+import com.oracle.graal.python.builtins.objects.bytes.PBytes;
+import com.oracle.graal.python.builtins.objects.bytes.PIBytesLike;
+import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes;
+import com.oracle.graal.python.builtins.objects.exception.PBaseException;
+import com.oracle.graal.python.builtins.objects.ints.PInt;
+import com.oracle.graal.python.builtins.objects.memoryview.MemoryViewNodes;
+import com.oracle.graal.python.builtins.objects.memoryview.PMemoryView;
+import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.builtins.objects.struct.StructFormat.FormatCode;
+import com.oracle.graal.python.builtins.objects.struct.StructFormat.FormatError;
+import com.oracle.graal.python.builtins.objects.tuple.PTuple;
+import com.oracle.graal.python.nodes.PNodeWithContext;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.nodes.call.CallNode;
+import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode;
+import com.oracle.graal.python.nodes.expression.CastToBooleanNode;
+import com.oracle.graal.python.nodes.util.CastToDoubleNode;
+import com.oracle.graal.python.nodes.util.CastToIndexNode;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.graal.python.runtime.object.PythonObjectFactory;
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Fallback;
+import com.oracle.truffle.api.dsl.ImportStatic;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
+
+public abstract class StructNodes {
+    /** Formats with more codes than this are not unrolled into the compiled code. */
+    static final int MAX_EXPLODED_CODES = 16;
+
+    public abstract static class StructBaseNode extends PNodeWithContext {
+        @Child private PythonObjectFactory objectFactory;
+        @Child private PRaiseNode raiseNode;
+        @Child private CallNode callNode;
+
+        protected final PythonObjectFactory factory() {
+            if (objectFactory == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                objectFactory = insert(PythonObjectFactory.create());
+            }
+            return objectFactory;
+        }
+
+        protected final PException raise(PythonBuiltinClassType type, String format, Object... arguments) {
+            if (raiseNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                raiseNode = insert(PRaiseNode.create());
+            }
+            return raiseNode.raise(type, format, arguments);
+        }
+
+        /**
+         * Raises {@code struct.error}, which is defined by {@code lib-graalpython/_struct.py}.
+         */
+        public final PException raiseStructError(String format, Object... arguments) {
+            if (callNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                callNode = insert(CallNode.create());
+            }
+            Object exception = callNode.execute(null, getStructError(), formatMessage(format, arguments));
+            if (exception instanceof PBaseException) {
+                if (raiseNode == null) {
+                    CompilerDirectives.transferToInterpreterAndInvalidate();
+                    raiseNode = insert(PRaiseNode.create());
+                }
+                throw raiseNode.raise((PBaseException) exception);
+            }
+            throw raise(TypeError, "exceptions must derive from BaseException");
+        }
+
+        @TruffleBoundary
+        private static Object getStructError() {
+            return PythonLanguage.getCore().lookupBuiltinModule("_struct").getAttribute("error");
+        }
+
+        @TruffleBoundary
+        private static String formatMessage(String format, Object... arguments) {
+            return String.format(format, arguments);
+        }
+
+        protected final StructFormat lookupFormat(String format) {
+            try {
+                return PythonLanguage.getContextRef().get().getStructFormatCache().lookup(format);
+            } catch (FormatError e) {
+                throw raiseStructError(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Compiles a format given as {@code str} or {@code bytes}. Formats that are constant at a call
+     * site are compiled only once.
+     */
+    public abstract static class GetFormatNode extends StructBaseNode {
+        public abstract StructFormat execute(Object format);
+
+        @Specialization(guards = "format.equals(cachedString)", limit = "3")
+        StructFormat doCached(@SuppressWarnings("unused") String format,
+                        @SuppressWarnings("unused") @Cached("format") String cachedString,
+                        @Cached("lookupFormat(format)") StructFormat cachedFormat) {
+            return cachedFormat;
+        }
+
+        @Specialization(replaces = "doCached")
+        StructFormat doString(String format) {
+            return lookupFormat(format);
+        }
+
+        @Specialization
+        StructFormat doPString(PString format) {
+            return lookupFormat(format.getValue());
+        }
+
+        @Specialization
+        StructFormat doBytes(PBytes format,
+                        @Cached("create()") BytesNodes.ToBytesNode toBytesNode) {
+            return lookupFormat(decodeAscii(toBytesNode.execute(format)));
+        }
+
+        @Fallback
+        StructFormat doError(Object format) {
+            throw raise(TypeError, "Struct() argument 1 must be a str or bytes object, not %p", format);
+        }
+
+        @TruffleBoundary
+        private static String decodeAscii(byte[] bytes) {
+            char[] chars = new char[bytes.length];
+            for (int i = 0; i < bytes.length; i++) {
+                chars[i] = (char) (bytes[i] & 0xFF);
+            }
+            return new String(chars);
+        }
+
+        public static GetFormatNode create() {
+            return StructNodesFactory.GetFormatNodeGen.create();
+        }
+    }
+
+    /**
+     * Returns the contents of a readable buffer. The storage of {@code bytes} and {@code bytearray}
+     * objects is returned without copying; other buffers are copied.
+     */
+    public abstract static class ToByteStorageNode extends StructBaseNode {
+        public abstract ByteSequenceStorage execute(Object buffer);
+
+        @Specialization(guards = "isByteStorage(bytes)")
+        ByteSequenceStorage doBytesLike(PIBytesLike bytes) {
+            return (ByteSequenceStorage) bytes.getSequenceStorage();
+        }
+
+        @Specialization(guards = "!isByteStorage(bytes)")
+        ByteSequenceStorage doOtherStorage(PIBytesLike bytes,
+                        @Cached("create()") SequenceStorageNodes.ToByteArrayNode toByteArrayNode) {
+            return new ByteSequenceStorage(toByteArrayNode.execute(bytes.getSequenceStorage()));
+        }
+
+        @Specialization
+        ByteSequenceStorage doMemoryView(PMemoryView view,
+                        @Cached("create()") BytesNodes.ToBytesNode toBytesNode) {
+            return new ByteSequenceStorage(toBytesNode.execute(view));
+        }
+
+        @Fallback
+        ByteSequenceStorage doError(Object buffer) {
+            throw raise(TypeError, "a bytes-like object is required, not '%p'", buffer);
+        }
+
+        protected static boolean isByteStorage(PIBytesLike bytes) {
+            return bytes.getSequenceStorage() instanceof ByteSequenceStorage;
+        }
+
+        public static ToByteStorageNode create() {
+            return StructNodesFactory.ToByteStorageNodeGen.create();
+        }
+    }
+
+    /**
+     * {@code pack(v1, v2, ...)}: returns the values packed into a new {@code bytes} object.
+     */
+    public static final class PackNode extends StructBaseNode {
+        @Child private PackValuesNode packValuesNode = PackValuesNode.create();
+
+        public PBytes execute(StructFormat format, Object[] args) {
+            if (args.length != format.getLength()) {
+                throw raiseStructError("pack expected %d items for packing (got %d)", format.getLength(), args.length);
+            }
+            byte[] result = new byte[format.getSize()];
+            packValuesNode.execute(format, args, 0, result, 0);
+            return factory().createBytes(result);
+        }
+
+        public static PackNode create() {
+            return new PackNode();
+        }
+    }
+
+    /**
+     * {@code pack_into(buffer, offset, v1, v2, ...)}. A {@code bytearray} is packed into in place;
+     * a {@code memoryview} is written directly to the memory of the object it exports.
+     */
+    public static final class PackIntoNode extends StructBaseNode {
+        @Child private PackValuesNode packValuesNode = PackValuesNode.create();
+        @Child private CastToIndexNode castToIndexNode = CastToIndexNode.create();
+        @Child private MemoryViewNodes.WriteBytesNode writeBytesNode;
+
+        public void execute(StructFormat format, Object[] args) {
+            if (args.length != format.getLength() + 2) {
+                if (args.length == 0) {
+                    throw raiseStructError("pack_into expected buffer argument");
+                } else if (args.length == 1) {
+                    throw raiseStructError("pack_into expected offset argument");
+                }
+                throw raiseStructError("pack_into expected %d items for packing (got %d)", format.getLength(), args.length - 2);
+            }
+            Object buffer = args[0];
+            if (buffer instanceof PByteArray && ((PByteArray) buffer).getSequenceStorage() instanceof ByteSequenceStorage) {
+                ByteSequenceStorage storage = (ByteSequenceStorage) ((PByteArray) buffer).getSequenceStorage();
+                int offset = checkOffset(format, castToIndexNode.execute(args[1]), storage.length());
+                packValuesNode.execute(format, args, 2, storage.getInternalByteArray(), offset);
+            } else if (buffer instanceof PMemoryView) {
+                PMemoryView view = (PMemoryView) buffer;
+                if (view.isReleased()) {
+                    throw raise(ValueError, "operation forbidden on released memoryview object");
+                } else if (view.isReadOnly()) {
+                    throw raise(TypeError, "argument must be read-write bytes-like object, not %p", buffer);
+                } else if (!view.isCContiguous()) {
+                    throw raise(BufferError, "memoryview: underlying buffer is not C-contiguous");
+                }
+                int offset = checkOffset(format, castToIndexNode.execute(args[1]), view.getNBytes());
+                byte[] data = new byte[format.getSize()];
+                packValuesNode.execute(format, args, 2, data, 0);
+                getWriteBytesNode().execute(view.getOwner(), view.getOffset() + offset, data, 0, data.length);
+            } else {
+                throw raise(TypeError, "argument must be read-write bytes-like object, not %p", buffer);
+            }
+        }
+
+        private int checkOffset(StructFormat format, int offset, int length) {
+            int size = format.getSize();
+            int result = offset;
+            if (result < 0) {
+                if (result + size > 0) {
+                    throw raiseStructError("no space to pack %d bytes at offset %d", size, result);
+                }
+                if (result + length < 0) {
+                    throw raiseStructError("offset %d out of range for %d-byte buffer", result, length);
+                }
+                result += length;
+            }
+            if (length - result < size) {
+                throw raiseStructError("pack_into requires a buffer of at least %d bytes for packing %d bytes at offset %d (actual buffer size is %d)", (long) size + result, size, result,
+                                length);
+            }
+            return result;
+        }
+
+        private MemoryViewNodes.WriteBytesNode getWriteBytesNode() {
+            if (writeBytesNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                writeBytesNode = insert(MemoryViewNodes.WriteBytesNode.create());
+            }
+            return writeBytesNode;
+        }
+
+        public static PackIntoNode create() {
+            return new PackIntoNode();
+        }
+    }
+
+    /**
+     * {@code unpack(buffer)}: the buffer size must be exactly the size of the format.
+     */
+    public static final class UnpackNode extends StructBaseNode {
+        @Child private ToByteStorageNode toByteStorageNode = ToByteStorageNode.create();
+        @Child private UnpackValuesNode unpackValuesNode = UnpackValuesNode.create();
+
+        public PTuple execute(StructFormat format, Object buffer) {
+            ByteSequenceStorage storage = toByteStorageNode.execute(buffer);
+            if (storage.length() != format.getSize()) {
+                throw raiseStructError("unpack requires a buffer of %d bytes", format.getSize());
+            }
+            return factory().createTuple(unpackValuesNode.execute(format, storage.getInternalByteArray(), 0));
+        }
+
+        public static UnpackNode create() {
+            return new UnpackNode();
+        }
+    }
+
+    /**
+     * {@code unpack_from(buffer, offset=0)}: negative offsets count from the end of the buffer.
+     */
+    public static final class UnpackFromNode extends StructBaseNode {
+        @Child private ToByteStorageNode toByteStorageNode = ToByteStorageNode.create();
+        @Child private UnpackValuesNode unpackValuesNode = UnpackValuesNode.create();
+        @Child private CastToIndexNode castToIndexNode = CastToIndexNode.create();
+
+        public PTuple execute(StructFormat format, Object buffer, Object offsetObject) {
+            ByteSequenceStorage storage = toByteStorageNode.execute(buffer);
+            int offset = offsetObject instanceof PNone ? 0 : castToIndexNode.execute(offsetObject);
+            int length = storage.length();
+            if (offset < 0) {
+                offset += length;
+            }
+            if (offset < 0 || length - offset < format.getSize()) {
+                throw raiseStructError("unpack_from requires a buffer of at least %d bytes", format.getSize());
+            }
+            return factory().createTuple(unpackValuesNode.execute(format, storage.getInternalByteArray(), offset));
+        }
+
+        public static UnpackFromNode create() {
+            return new UnpackFromNode();
+        }
+    }
+
+    /**
+     * {@code iter_unpack(buffer)}: the buffer size must be a multiple of the size of the format.
+     */
+    public static final class IterUnpackNode extends StructBaseNode {
+        @Child private ToByteStorageNode toByteStorageNode = ToByteStorageNode.create();
+
+        public PStructUnpackIterator execute(StructFormat format, Object buffer) {
+            if (format.getSize() == 0) {
+                throw raiseStructError("cannot iteratively unpack with a struct of length 0");
+            }
+            ByteSequenceStorage storage = toByteStorageNode.execute(buffer);
+            if (storage.length() % format.getSize() != 0) {
+                throw raiseStructError("iterative unpacking requires a buffer of a multiple of %d bytes", format.getSize());
+            }
+            return factory().createStructUnpackIterator(format, storage);
+        }
+
+        public static IterUnpackNode create() {
+            return new IterUnpackNode();
+        }
+    }
+
+    /**
+     * Unpacks {@code format.getSize()} bytes starting at {@code offset} into an array of values.
+     * The caller checks that the buffer is large enough.
+     */
+    @ImportStatic(StructNodes.class)
+    public abstract static class UnpackValuesNode extends StructBaseNode {
+        public abstract Object[] execute(StructFormat format, byte[] buffer, int offset);
+
+        @Specialization(guards = {"format == cachedFormat", "cachedFormat.getCodes().length <= MAX_EXPLODED_CODES"}, limit = "3")
+        @ExplodeLoop
+        Object[] doCached(@SuppressWarnings("unused") StructFormat format, byte[] buffer, int offset,
+                        @Cached("format") StructFormat cachedFormat) {
+            FormatCode[] codes = cachedFormat.getCodes();
+            Object[] result = new Object[cachedFormat.getLength()];
+            int index = 0;
+            for (int i = 0; i < codes.length; i++) {
+                index = unpackCode(codes[i], cachedFormat.isNative(), cachedFormat.isBigEndian(), buffer, offset, result, index);
+            }
+            return result;
+        }
+
+        @Specialization(replaces = "doCached")
+        Object[] doGeneric(StructFormat format, byte[] buffer, int offset) {
+            FormatCode[] codes = format.getCodes();
+            Object[] result = new Object[format.getLength()];
+            int index = 0;
+            for (int i = 0; i < codes.length; i++) {
+                index = unpackCode(codes[i], format.isNative(), format.isBigEndian(), buffer, offset, result, index);
+            }
+            return result;
+        }
+
+        private int unpackCode(FormatCode code, boolean isNative, boolean isBigEndian, byte[] buffer, int offset, Object[] result, int index) {
+            int pos = offset + code.offset;
+            if (code.format == 's') {
+                result[index] = factory().createBytes(Arrays.copyOfRange(buffer, pos, pos + code.size));
+                return index + 1;
+            } else if (code.format == 'p') {
+                int n = Math.max(0, Math.min(buffer[pos] & 0xFF, code.size - 1));
+                result[index] = factory().createBytes(Arrays.copyOfRange(buffer, pos + 1, pos + 1 + n));
+                return index + 1;
+            }
+            int next = index;
+            for (int j = 0; j < code.repeat; j++) {
+                result[next++] = unpackItem(code, isNative, isBigEndian, buffer, pos);
+                pos += code.size;
+            }
+            return next;
+        }
+
+        private Object unpackItem(FormatCode code, boolean isNative, boolean isBigEndian, byte[] buffer, int pos) {
+            switch (code.format) {
+                case 'c':
+                    return factory().createBytes(new byte[]{buffer[pos]});
+                case '?':
+                    return buffer[pos] != 0;
+                case 'e':
+                    return StructFormat.readHalfFloat(buffer, pos, isBigEndian);
+                case 'f':
+                    return (double) Float.intBitsToFloat((int) StructFormat.readLong(buffer, pos, 4, isBigEndian));
+                case 'd':
+                    return Double.longBitsToDouble(StructFormat.readLong(buffer, pos, 8, isBigEndian));
+                default:
+                    long x = StructFormat.readLong(buffer, pos, code.size, isBigEndian);
+                    if (code.isUnsigned() || (isNative && code.format == 'P')) {
+                        if (code.size < 4) {
+                            return (int) x;
+                        } else if (x >= 0) {
+                            return x;
+                        }
+                        return factory().createInt(unsignedValue(x));
+                    }
+                    int shift = 64 - 8 * code.size;
+                    x = (x << shift) >> shift;
+                    return code.size <= 4 ? (Object) (int) x : (Object) x;
+            }
+        }
+
+        @TruffleBoundary
+        private static BigInteger unsignedValue(long x) {
+            return BigInteger.valueOf(x).add(BigInteger.ONE.shiftLeft(64));
+        }
+
+        public static UnpackValuesNode create() {
+            return StructNodesFactory.UnpackValuesNodeGen.create();
+        }
+    }
+
+    /**
+     * Packs {@code format.getLength()} values starting at {@code args[argsOffset]} into
+     * {@code buffer} at {@code offset}. The caller checks the number of values and the buffer
+     * size.
+     */
+    @ImportStatic(StructNodes.class)
+    public abstract static class PackValuesNode extends StructBaseNode {
+        private static final BigInteger MAX_UNSIGNED_LONG = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+
+        @Child private LookupAndCallUnaryNode callIndexNode;
+        @Child private CastToDoubleNode castToDoubleNode;
+        @Child private CastToBooleanNode castToBooleanNode;
+        @Child private ToByteStorageNode toByteStorageNode;
+
+        public abstract void execute(StructFormat format, Object[] args, int argsOffset, byte[] buffer, int offset);
+
+        @Specialization(guards = {"format == cachedFormat", "cachedFormat.getCodes().length <= MAX_EXPLODED_CODES"}, limit = "3")
+        @ExplodeLoop
+        void doCached(@SuppressWarnings("unused") StructFormat format, Object[] args, int argsOffset, byte[] buffer, int offset,
+                        @Cached("format") StructFormat cachedFormat) {
+            Arrays.fill(buffer, offset, offset + cachedFormat.getSize(), (byte) 0);
+            FormatCode[] codes = cachedFormat.getCodes();
+            int index = argsOffset;
+            for (int i = 0; i < codes.length; i++) {
+                index = packCode(codes[i], cachedFormat.isNative(), cachedFormat.isBigEndian(), args, index, buffer, offset);
+            }
+        }
+
+        @Specialization(replaces = "doCached")
+        void doGeneric(StructFormat format, Object[] args, int argsOffset, byte[] buffer, int offset) {
+            Arrays.fill(buffer, offset, offset + format.getSize(), (byte) 0);
+            FormatCode[] codes = format.getCodes();
+            int index = argsOffset;
+            for (int i = 0; i < codes.length; i++) {
+                index = packCode(codes[i], format.isNative(), format.isBigEndian(), args, index, buffer, offset);
+            }
+        }
+
+        private int packCode(FormatCode code, boolean isNative, boolean isBigEndian, Object[] args, int index, byte[] buffer, int offset) {
+            int pos = offset + code.offset;
+            if (code.format == 's' || code.format == 'p') {
+                Object value = args[index];
+                if (!(value instanceof PBytes || value instanceof PByteArray)) {
+                    throw raiseStructError("argument for '%c' must be a bytes object", code.format);
+                }
+                ByteSequenceStorage storage = getToByteStorageNode().execute(value);
+                if (code.format == 's') {
+                    int n = Math.min(storage.length(), code.size);
+                    System.arraycopy(storage.getInternalByteArray(), 0, buffer, pos, n);
+                } else if (code.size > 0) {
+                    int n = Math.min(storage.length(), code.size - 1);
+                    System.arraycopy(storage.getInternalByteArray(), 0, buffer, pos + 1, n);
+                    buffer[pos] = (byte) Math.min(n, 255);
+                }
+                return index + 1;
+            }
+            int next = index;
+            for (int j = 0; j < code.repeat; j++) {
+                packItem(code, isNative, isBigEndian, args[next++], buffer, pos);
+                pos += code.size;
+            }
+            return next;
+        }
+
+        private void packItem(FormatCode code, boolean isNative, boolean isBigEndian, Object value, byte[] buffer, int pos) {
+            switch (code.format) {
+                case 'c':
+                    if (value instanceof PBytes) {
+                        ByteSequenceStorage storage = getToByteStorageNode().execute(value);
+                        if (storage.length() == 1) {
+                            buffer[pos] = storage.getInternalByteArray()[0];
+                            return;
+                        }
+                    }
+                    throw raiseStructError("char format requires a bytes object of length 1");
+                case '?':
+                    buffer[pos] = (byte) (isTrue(value) ? 1 : 0);
+                    return;
+                case 'e':
+                    if (!StructFormat.writeHalfFloat(buffer, pos, isBigEndian, asDouble(value))) {
+                        throw raise(OverflowError, "float too large to pack with e format");
+                    }
+                    return;
+                case 'f': {
+                    double x = asDouble(value);
+                    float y = (float) x;
+                    if (!isNative && Float.isInfinite(y) && !Double.isInfinite(x)) {
+                        throw raise(OverflowError, "float too large to pack with f format");
+                    }
+                    StructFormat.writeLong(buffer, pos, 4, isBigEndian, Float.floatToRawIntBits(y));
+                    return;
+                }
+                case 'd':
+                    StructFormat.writeLong(buffer, pos, 8, isBigEndian, Double.doubleToRawLongBits(asDouble(value)));
+                    return;
+                default:
+                    StructFormat.writeLong(buffer, pos, code.size, isBigEndian, asInteger(code, isNative, value));
+            }
+        }
+
+        /**
+         * Converts a value for an integer format and checks its range, with the same errors as
+         * CPython. Values of 8-byte unsigned formats above {@code Long.MAX_VALUE} are returned as
+         * their two's complement.
+         */
+        private long asInteger(FormatCode code, boolean isNative, Object value) {
+            Object number = value;
+            if (!isInteger(number)) {
+                number = callIndex(value);
+            }
+            char format = code.format;
+            boolean isStdLongLong = !isNative && (format == 'q' || format == 'Q');
+            boolean isPointer = isNative && format == 'P';
+            boolean isUnsigned = code.isUnsigned() && format != 'B' && !(isNative && format == 'H');
+            long x;
+            if (number instanceof PInt) {
+                BigInteger big = ((PInt) number).getValue();
+                if (fitsInLong(big)) {
+                    x = big.longValue();
+                } else if ((isUnsigned || isPointer) && fitsInUnsignedLong(big)) {
+                    return big.longValue();
+                } else if (isStdLongLong) {
+                    if (format == 'Q' && big.signum() < 0) {
+                        throw raise(OverflowError, "can't convert negative int to unsigned");
+                    }
+                    throw raise(OverflowError, "int too big to convert");
+                } else if (isPointer) {
+                    throw raise(OverflowError, "Python int too large to convert to C %s", big.signum() < 0 ? "long" : "unsigned long");
+                } else {
+                    throw raiseStructError("argument out of range");
+                }
+            } else if (number instanceof Boolean) {
+                x = ((boolean) number) ? 1 : 0;
+            } else {
+                x = ((Number) number).longValue();
+            }
+            if (isUnsigned && x < 0) {
+                if (isStdLongLong) {
+                    throw raise(OverflowError, "can't convert negative int to unsigned");
+                }
+                throw raiseStructError("argument out of range");
+            }
+            switch (format) {
+                case 'b':
+                    if (x < -128 || x > 127) {
+                        throw raiseStructError("byte format requires -128 <= number <= 127");
+                    }
+                    return x;
+                case 'B':
+                    if (x < 0 || x > 255) {
+                        throw raiseStructError("ubyte format requires 0 <= number <= 255");
+                    }
+                    return x;
+                case 'h':
+                    if (!isNative) {
+                        break;
+                    }
+                    if (x < Short.MIN_VALUE || x > Short.MAX_VALUE) {
+                        throw raiseStructError("short format requires -32768 <= number <= 32767");
+                    }
+                    return x;
+                case 'H':
+                    if (!isNative) {
+                        break;
+                    }
+                    if (x < 0 || x > 0xFFFF) {
+                        throw raiseStructError("ushort format requires 0 <= number <= 65535");
+                    }
+                    return x;
+                default:
+                    break;
+            }
+            if (code.size < 8) {
+                int bits = code.size * 8;
+                if (isUnsigned) {
+                    if (x >= (1L << bits)) {
+                        throw raiseStructError("'%c' format requires 0 <= number <= %d", format, (1L << bits) - 1);
+                    }
+                } else {
+                    long largest = (1L << (bits - 1)) - 1;
+                    if (x < ~largest || x > largest) {
+                        throw raiseStructError("'%c' format requires %d <= number <= %d", format, ~largest, largest);
+                    }
+                }
+            }
+            return x;
+        }
+
+        private static boolean isInteger(Object value) {
+            return value instanceof Integer || value instanceof Long || value instanceof Boolean || value instanceof PInt;
+        }
+
+        @TruffleBoundary
+        private static boolean fitsInLong(BigInteger big) {
+            return big.bitLength() < 64;
+        }
+
+        @TruffleBoundary
+        private static boolean fitsInUnsignedLong(BigInteger big) {
+            return big.signum() >= 0 && big.compareTo(MAX_UNSIGNED_LONG) <= 0;
+        }
+
+        private Object callIndex(Object value) {
+            if (callIndexNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                callIndexNode = insert(LookupAndCallUnaryNode.create(__INDEX__));
+            }
+            Object result = callIndexNode.executeObject(value);
+            if (result == PNone.NO_VALUE) {
+                throw raiseStructError("required argument is not an integer");
+            }
+            if (!isInteger(result)) {
+                throw raise(TypeError, "__index__ returned non-int (type %p)", result);
+            }
+            return result;
+        }
+
+        private double asDouble(Object value) {
+            if (castToDoubleNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                castToDoubleNode = insert(CastToDoubleNode.create());
+            }
+            try {
+                return castToDoubleNode.execute(value);
+            } catch (PException e) {
+                throw raiseStructError("required argument is not a float");
+            }
+        }
+
+        private boolean isTrue(Object value) {
+            if (castToBooleanNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                castToBooleanNode = insert(CastToBooleanNode.createIfTrueNode());
+            }
+            return castToBooleanNode.executeWith(value);
+        }
+
+        private ToByteStorageNode getToByteStorageNode() {
+            if (toByteStorageNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                toByteStorageNode = insert(ToByteStorageNode.create());
+            }
+            return toByteStorageNode;
+        }
+
+        public static PackValuesNode create() {
+            return StructNodesFactory.PackValuesNodeGen.create();
+        }
+    }
+}
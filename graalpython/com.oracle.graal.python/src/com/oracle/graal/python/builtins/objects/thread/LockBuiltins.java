@@ -64,6 +64,7 @@ import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
 import com.oracle.graal.python.nodes.function.builtins.PythonTernaryBuiltinNode;
 import com.oracle.graal.python.nodes.function.builtins.PythonUnaryBuiltinNode;
 import com.oracle.graal.python.nodes.util.CastToDoubleNode;
+import com.oracle.graal.python.runtime.GlobalInterpreterLock;
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
@@ -126,11 +127,20 @@ public class LockBuiltins extends PythonBuiltins {
             // acquire lock
             if (isBlockingProfile.profile(!isBlocking)) {
                 return self.acquireNonBlocking();
+            } else if (self.acquireNonBlocking()) {
+                // uncontended, no need to give up the GIL
+                return true;
             } else {
-                if (defaultTimeoutProfile.profile(timeoutSeconds == DEFAULT_TIMEOUT)) {
-                    return self.acquireBlocking();
-                } else {
-                    return self.acquireTimeout(timeoutSeconds);
+                GlobalInterpreterLock gil = getContext().getGil();
+                boolean released = gil.release();
+                try {
+                    if (defaultTimeoutProfile.profile(timeoutSeconds == DEFAULT_TIMEOUT)) {
+                        return self.acquireBlocking();
+                    } else {
+                        return self.acquireTimeout(timeoutSeconds);
+                    }
+                } finally {
+                    gil.acquire(released);
                 }
             }
         }
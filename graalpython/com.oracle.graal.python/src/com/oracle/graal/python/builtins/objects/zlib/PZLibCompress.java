@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.zlib;
+
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
+import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * A {@code zlib.Compress} object. {@link Deflater} only produces raw and zlib streams, so the gzip
+ * header and trailer are written here.
+ */
+public final class PZLibCompress extends PythonBuiltinObject {
+    public static final int Z_NO_FLUSH = 0;
+    public static final int Z_FINISH = 4;
+
+    private static final int GZIP_OS_UNIX = 3;
+
+    private final Deflater deflater;
+    /** The CRC of the uncompressed data of a gzip stream, or {@code null} for other streams. */
+    private final CRC32 gzipCrc;
+    private final int level;
+    private boolean headerWritten;
+    private boolean finished;
+
+    public PZLibCompress(LazyPythonClass cls, Deflater deflater, boolean gzip, int level) {
+        super(cls);
+        this.deflater = deflater;
+        this.gzipCrc = gzip ? new CRC32() : null;
+        this.level = level;
+        this.headerWritten = !gzip;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Compresses {@code len} bytes of {@code data}. The input is completely consumed by the
+     * deflater, so the array is not referenced after this call.
+     */
+    @TruffleBoundary
+    public void compress(byte[] data, int offset, int len, ZLibOutputBuffer out) {
+        writeHeader(out);
+        if (gzipCrc != null) {
+            gzipCrc.update(data, offset, len);
+        }
+        deflater.setInput(data, offset, len);
+        while (!deflater.needsInput()) {
+            deflate(out, Deflater.NO_FLUSH);
+        }
+    }
+
+    /**
+     * Flushes the pending output. {@code Z_FINISH} ends the stream and releases the deflater;
+     * modes that {@link Deflater} does not know, like {@code Z_PARTIAL_FLUSH}, sync the output.
+     */
+    @TruffleBoundary
+    public void flush(int mode, ZLibOutputBuffer out) {
+        if (mode == Z_NO_FLUSH) {
+            return;
+        }
+        writeHeader(out);
+        if (mode == Z_FINISH) {
+            deflater.finish();
+            while (!deflater.finished()) {
+                deflate(out, Deflater.NO_FLUSH);
+            }
+            if (gzipCrc != null) {
+                writeIntLE(out, (int) gzipCrc.getValue());
+                writeIntLE(out, (int) deflater.getBytesRead());
+            }
+            deflater.end();
+            finished = true;
+        } else {
+            int flushMode = mode == Deflater.FULL_FLUSH ? Deflater.FULL_FLUSH : Deflater.SYNC_FLUSH;
+            // the deflater has flushed everything once it does not fill the output space
+            boolean full;
+            do {
+                full = deflate(out, flushMode);
+            } while (full);
+        }
+    }
+
+    /**
+     * Deflates into the free space of {@code out} and returns whether that space was filled.
+     */
+    private boolean deflate(ZLibOutputBuffer out, int flushMode) {
+        int free = out.ensureFree();
+        int n = deflater.deflate(out.getArray(), out.getLength(), free, flushMode);
+        out.advance(n);
+        return n == free;
+    }
+
+    // the gzip header as written by zlib: no file name and no modification time
+    private void writeHeader(ZLibOutputBuffer out) {
+        if (!headerWritten) {
+            int xfl = level == 9 ? 2 : (level == 0 || level == 1 ? 4 : 0);
+            out.write(new byte[]{0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, (byte) xfl, GZIP_OS_UNIX}, 0, 10);
+            headerWritten = true;
+        }
+    }
+
+    private static void writeIntLE(ZLibOutputBuffer out, int value) {
+        out.write(new byte[]{(byte) value, (byte) (value >>> 8), (byte) (value >>> 16), (byte) (value >>> 24)}, 0, 4);
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.zlib;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.oracle.graal.python.builtins.objects.object.PythonBuiltinObject;
+import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * A {@code zlib.Decompress} object. {@link Inflater} only reads raw and zlib streams, so gzip
+ * headers and trailers are parsed here. Header and trailer bytes that arrive in pieces are kept
+ * until they are complete; all other input is inflated directly from the caller's array.
+ */
+public final class PZLibDecompress extends PythonBuiltinObject {
+    public static final int FORMAT_RAW = 0;
+    public static final int FORMAT_ZLIB = 1;
+    public static final int FORMAT_GZIP = 2;
+    /** Detects zlib or gzip streams by their header, like {@code wbits} values above 32. */
+    public static final int FORMAT_AUTO = 3;
+
+    private static final int STATE_HEADER = 0;
+    private static final int STATE_DATA = 1;
+    private static final int STATE_TRAILER = 2;
+    private static final int STATE_EOF = 3;
+
+    private static final int GZIP_TRAILER_LENGTH = 8;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final byte[] zdict;
+    private int format;
+    private int state;
+    private Inflater inflater;
+    private CRC32 gzipCrc;
+    /** Header or trailer bytes of a gzip stream that were passed before they were complete. */
+    private byte[] pending = EMPTY;
+    private byte[] unusedData = EMPTY;
+    private byte[] unconsumedTail = EMPTY;
+
+    public PZLibDecompress(LazyPythonClass cls, int format, byte[] zdict) {
+        super(cls);
+        this.format = format;
+        this.zdict = zdict;
+        if (format == FORMAT_RAW || format == FORMAT_ZLIB) {
+            initInflater(format == FORMAT_RAW);
+        } else {
+            state = STATE_HEADER;
+        }
+    }
+
+    public boolean isEof() {
+        return state == STATE_EOF;
+    }
+
+    public byte[] getUnusedData() {
+        return unusedData;
+    }
+
+    public byte[] getUnconsumedTail() {
+        return unconsumedTail;
+    }
+
+    /**
+     * Decompresses {@code len} bytes of {@code data}, producing at most {@code maxLength} bytes if
+     * it is positive. Input that is left because of that limit becomes the unconsumed tail, input
+     * after the end of the stream is appended to the unused data.
+     */
+    @TruffleBoundary
+    public void decompress(byte[] data, int offset, int len, int maxLength, ZLibOutputBuffer out) throws DataFormatException {
+        if (state == STATE_EOF) {
+            unusedData = concat(unusedData, data, offset, len);
+            return;
+        }
+        byte[] input = data;
+        int pos = offset;
+        int end = offset + len;
+        if (pending.length > 0) {
+            input = concat(pending, data, offset, len);
+            pos = 0;
+            end = input.length;
+            pending = EMPTY;
+        }
+        if (state == STATE_HEADER) {
+            pos = readHeader(input, pos, end);
+        }
+        if (state == STATE_DATA) {
+            pos = inflate(input, pos, end, maxLength, out);
+        }
+        if (state == STATE_TRAILER) {
+            pos = readTrailer(input, pos, end);
+        }
+        if (state == STATE_EOF) {
+            inflater.end();
+            unusedData = concat(unusedData, input, pos, end - pos);
+            unconsumedTail = EMPTY;
+        } else {
+            unconsumedTail = Arrays.copyOfRange(input, pos, end);
+        }
+    }
+
+    private void initInflater(boolean nowrap) {
+        inflater = new Inflater(nowrap);
+        if (nowrap && zdict != null) {
+            inflater.setDictionary(zdict);
+        }
+        state = STATE_DATA;
+    }
+
+    private int readHeader(byte[] input, int pos, int end) throws DataFormatException {
+        if (format == FORMAT_AUTO) {
+            if (pos == end) {
+                return pos;
+            }
+            format = (input[pos] & 0xFF) == 0x1f ? FORMAT_GZIP : FORMAT_ZLIB;
+            if (format == FORMAT_ZLIB) {
+                initInflater(false);
+                return pos;
+            }
+        }
+        int headerLength = parseGzipHeader(input, pos, end);
+        if (headerLength < 0) {
+            pending = Arrays.copyOfRange(input, pos, end);
+            return end;
+        }
+        initInflater(true);
+        gzipCrc = new CRC32();
+        return pos + headerLength;
+    }
+
+    private int inflate(byte[] input, int pos, int end, int maxLength, ZLibOutputBuffer out) throws DataFormatException {
+        inflater.setInput(input, pos, end - pos);
+        while (maxLength <= 0 || out.getLength() < maxLength) {
+            int room = out.ensureFree();
+            if (maxLength > 0) {
+                room = Math.min(room, maxLength - out.getLength());
+            }
+            int n;
+            try {
+                n = inflater.inflate(out.getArray(), out.getLength(), room);
+            } catch (DataFormatException e) {
+                throw dataError(e.getMessage());
+            }
+            if (gzipCrc != null) {
+                gzipCrc.update(out.getArray(), out.getLength(), n);
+            }
+            out.advance(n);
+            if (inflater.finished()) {
+                state = gzipCrc != null ? STATE_TRAILER : STATE_EOF;
+                break;
+            } else if (n == 0) {
+                if (inflater.needsDictionary()) {
+                    if (zdict == null) {
+                        throw new DataFormatException("Error 2 while decompressing data");
+                    }
+                    inflater.setDictionary(zdict);
+                } else if (inflater.needsInput()) {
+                    break;
+                }
+            }
+        }
+        return end - inflater.getRemaining();
+    }
+
+    private int readTrailer(byte[] input, int pos, int end) throws DataFormatException {
+        if (end - pos < GZIP_TRAILER_LENGTH) {
+            pending = Arrays.copyOfRange(input, pos, end);
+            return end;
+        }
+        if (readIntLE(input, pos) != (int) gzipCrc.getValue()) {
+            throw dataError("incorrect data check");
+        } else if (readIntLE(input, pos + 4) != (int) inflater.getBytesWritten()) {
+            throw dataError("incorrect length check");
+        }
+        state = STATE_EOF;
+        return pos + GZIP_TRAILER_LENGTH;
+    }
+
+    /**
+     * Returns the length of the gzip header at {@code pos} (RFC 1952), or -1 if the header is not
+     * complete yet.
+     */
+    private static int parseGzipHeader(byte[] input, int pos, int end) throws DataFormatException {
+        if (end - pos >= 1 && (input[pos] & 0xFF) != 0x1f || end - pos >= 2 && (input[pos + 1] & 0xFF) != 0x8b) {
+            throw dataError("incorrect header check");
+        } else if (end - pos >= 3 && input[pos + 2] != 8) {
+            throw dataError("unknown compression method");
+        } else if (end - pos < 10) {
+            return -1;
+        }
+        int flags = input[pos + 3];
+        int i = pos + 10;
+        if ((flags & FEXTRA) != 0) {
+            if (end - i < 2) {
+                return -1;
+            }
+            i += 2 + ((input[i] & 0xFF) | (input[i + 1] & 0xFF) << 8);
+        }
+        if ((flags & FNAME) != 0) {
+            i = skipZeroTerminated(input, i, end);
+        }
+        if ((flags & FCOMMENT) != 0) {
+            i = skipZeroTerminated(input, i, end);
+        }
+        if ((flags & FHCRC) != 0) {
+            i += 2;
+        }
+        return i <= end ? i - pos : -1;
+    }
+
+    private static int skipZeroTerminated(byte[] input, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (input[i] == 0) {
+                return i + 1;
+            }
+        }
+        // not complete, make the caller wait for more input
+        return Math.max(start, end) + 1;
+    }
+
+    private static int readIntLE(byte[] input, int pos) {
+        return (input[pos] & 0xFF) | (input[pos + 1] & 0xFF) << 8 | (input[pos + 2] & 0xFF) << 16 | (input[pos + 3] & 0xFF) << 24;
+    }
+
+    private static byte[] concat(byte[] head, byte[] data, int offset, int len) {
+        if (len == 0) {
+            return head;
+        }
+        byte[] result = Arrays.copyOf(head, head.length + len);
+        System.arraycopy(data, offset, result, head.length, len);
+        return result;
+    }
+
+    private static DataFormatException dataError(String reason) {
+        return new DataFormatException("Error -3 while decompressing data: " + reason);
+    }
+}
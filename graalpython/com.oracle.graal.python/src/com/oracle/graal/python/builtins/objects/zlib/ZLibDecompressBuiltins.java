@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.zlib;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.NotImplementedError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ValueError;
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.ZLibError;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.zip.DataFormatException;
+
+import com.oracle.graal.python.builtins.Builtin;
+import com.oracle.graal.python.builtins.CoreFunctions;
+import com.oracle.graal.python.builtins.PythonBuiltinClassType;
+import com.oracle.graal.python.builtins.PythonBuiltins;
+import com.oracle.graal.python.builtins.objects.PNone;
+import com.oracle.graal.python.builtins.objects.bytes.BytesNodes;
+import com.oracle.graal.python.builtins.objects.bytes.PBytes;
+import com.oracle.graal.python.nodes.function.PythonBuiltinBaseNode;
+import com.oracle.graal.python.nodes.function.PythonBuiltinNode;
+import com.oracle.graal.python.nodes.util.CastToIndexNode;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.GenerateNodeFactory;
+import com.oracle.truffle.api.dsl.NodeFactory;
+import com.oracle.truffle.api.dsl.Specialization;
+
+@CoreFunctions(extendClasses = PythonBuiltinClassType.PZLibDecompress)
+public class ZLibDecompressBuiltins extends PythonBuiltins {
+    private static final int DEF_BUF_SIZE = 16 * 1024;
+
+    @Override
+    protected List<? extends NodeFactory<? extends PythonBuiltinBaseNode>> getNodeFactories() {
+        return ZLibDecompressBuiltinsFactory.getFactories();
+    }
+
+    @Builtin(name = "decompress", minNumOfPositionalArgs = 2, parameterNames = {"self", "data", "max_length"})
+    @GenerateNodeFactory
+    abstract static class DecompressNode extends PythonBuiltinNode {
+        @Specialization
+        PBytes decompress(PZLibDecompress self, Object data, Object maxLengthObj,
+                        @Cached("create()") BytesNodes.ToByteBufferNode toByteBufferNode,
+                        @Cached("create()") CastToIndexNode castToIndexNode) {
+            int maxLength = maxLengthObj == PNone.NO_VALUE ? 0 : castToIndexNode.execute(maxLengthObj);
+            if (maxLength < 0) {
+                throw raise(ValueError, "max_length must be non-negative");
+            }
+            ByteBuffer input = toByteBufferNode.execute(data);
+            int capacity = maxLength > 0 ? Math.min(maxLength, DEF_BUF_SIZE) : DEF_BUF_SIZE;
+            ZLibOutputBuffer out = new ZLibOutputBuffer(capacity);
+            try {
+                self.decompress(input.array(), input.position(), input.remaining(), maxLength, out);
+            } catch (DataFormatException e) {
+                throw raise(ZLibError, e.getMessage());
+            }
+            return factory().createBytes(out.toStorage());
+        }
+    }
+
+    @Builtin(name = "flush", minNumOfPositionalArgs = 1, parameterNames = {"self", "length"})
+    @GenerateNodeFactory
+    abstract static class FlushNode extends PythonBuiltinNode {
+        @Specialization
+        PBytes flush(PZLibDecompress self, Object lengthObj,
+                        @Cached("create()") CastToIndexNode castToIndexNode) {
+            int length = lengthObj == PNone.NO_VALUE ? DEF_BUF_SIZE : castToIndexNode.execute(lengthObj);
+            if (length <= 0) {
+                throw raise(ValueError, "length must be greater than zero");
+            }
+            byte[] tail = self.getUnconsumedTail();
+            ZLibOutputBuffer out = new ZLibOutputBuffer(length);
+            try {
+                self.decompress(tail, 0, tail.length, 0, out);
+            } catch (DataFormatException e) {
+                throw raise(ZLibError, e.getMessage());
+            }
+            return factory().createBytes(out.toStorage());
+        }
+    }
+
+    @Builtin(name = "copy", minNumOfPositionalArgs = 1)
+    @GenerateNodeFactory
+    abstract static class CopyNode extends PythonBuiltinNode {
+        @Specialization
+        PZLibDecompress copy(@SuppressWarnings("unused") PZLibDecompress self) {
+            throw raise(NotImplementedError, "copying decompression objects");
+        }
+    }
+
+    @Builtin(name = "unused_data", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class UnusedDataNode extends PythonBuiltinNode {
+        @Specialization
+        PBytes unusedData(PZLibDecompress self) {
+            return factory().createBytes(self.getUnusedData());
+        }
+    }
+
+    @Builtin(name = "unconsumed_tail", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class UnconsumedTailNode extends PythonBuiltinNode {
+        @Specialization
+        PBytes unconsumedTail(PZLibDecompress self) {
+            return factory().createBytes(self.getUnconsumedTail());
+        }
+    }
+
+    @Builtin(name = "eof", minNumOfPositionalArgs = 1, isGetter = true)
+    @GenerateNodeFactory
+    abstract static class EofNode extends PythonBuiltinNode {
+        @Specialization
+        boolean eof(PZLibDecompress self) {
+            return self.isEof();
+        }
+    }
+}
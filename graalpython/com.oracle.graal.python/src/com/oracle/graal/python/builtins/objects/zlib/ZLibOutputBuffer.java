@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.builtins.objects.zlib;
+
+import java.util.Arrays;
+
+import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
+
+/**
+ * A growable buffer collecting the output of a (de)compression step. The buffer array becomes the
+ * storage of the resulting {@code bytes} object without a final copy.
+ */
+public final class ZLibOutputBuffer {
+    private static final int MIN_CAPACITY = 64;
+
+    private byte[] data;
+    private int length;
+
+    public ZLibOutputBuffer(int initialCapacity) {
+        this.data = new byte[Math.max(initialCapacity, MIN_CAPACITY)];
+    }
+
+    public byte[] getArray() {
+        return data;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Makes room for at least one more byte and returns the number of free bytes at the end of
+     * {@link #getArray()}.
+     */
+    public int ensureFree() {
+        if (length == data.length) {
+            data = Arrays.copyOf(data, data.length > Integer.MAX_VALUE / 2 ? Integer.MAX_VALUE - 8 : data.length * 2);
+        }
+        return data.length - length;
+    }
+
+    /**
+     * Marks {@code n} bytes written to the free space as used.
+     */
+    public void advance(int n) {
+        length += n;
+    }
+
+    public void write(byte[] src, int offset, int len) {
+        if (data.length - length < len) {
+            data = Arrays.copyOf(data, Math.max(length + len, data.length * 2));
+        }
+        System.arraycopy(src, offset, data, length, len);
+        length += len;
+    }
+
+    public ByteSequenceStorage toStorage() {
+        return new ByteSequenceStorage(data, length);
+    }
+}
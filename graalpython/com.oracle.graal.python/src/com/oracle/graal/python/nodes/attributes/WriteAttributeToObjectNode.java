@@ -65,11 +65,14 @@ import com.oracle.graal.python.nodes.call.CallNode;
 import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
 import com.oracle.graal.python.runtime.PythonOptions;
 import com.oracle.truffle.api.Assumption;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Cached.Exclusive;
 import com.oracle.truffle.api.dsl.GenerateUncached;
 import com.oracle.truffle.api.dsl.ImportStatic;
 import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.api.profiles.BranchProfile;
 import com.oracle.truffle.api.profiles.ConditionProfile;
 
@@ -100,6 +103,52 @@ public abstract class WriteAttributeToObjectNode extends ObjectAttributeNode {
     private static void handlePythonClass(ConditionProfile isClassProfile, PythonObject object, Object key) {
         if (isClassProfile.profile(object instanceof PythonManagedClass)) {
             ((PythonManagedClass) object).invalidateFinalAttribute(key);
+        } else if (object instanceof PythonModule) {
+            ((PythonModule) object).invalidateAttributeStableAssumption(key);
+        }
+    }
+
+    /**
+     * Like {@link #handlePythonClass}, but for a single object. Once a module attribute changed too
+     * often to be cached as a constant, nobody can depend on its value anymore, so further writes of
+     * that attribute skip the invalidation.
+     */
+    protected static final class HandlePythonClassNode extends Node {
+        private static final HandlePythonClassNode UNCACHED = new HandlePythonClassNode(false);
+
+        private final boolean isCached;
+        private final ConditionProfile isClassProfile = ConditionProfile.createBinaryProfile();
+        @CompilationFinal private Object mutableModuleAttribute;
+
+        private HandlePythonClassNode(boolean isCached) {
+            this.isCached = isCached;
+        }
+
+        public void execute(PythonObject object, Object key) {
+            if (isClassProfile.profile(object instanceof PythonManagedClass)) {
+                ((PythonManagedClass) object).invalidateFinalAttribute(key);
+            } else if (object instanceof PythonModule) {
+                if (isCached && mutableModuleAttribute != null && mutableModuleAttribute == key) {
+                    return;
+                }
+                if (((PythonModule) object).invalidateAttributeStableAssumption(key) && isCached && mutableModuleAttribute == null) {
+                    CompilerDirectives.transferToInterpreterAndInvalidate();
+                    mutableModuleAttribute = key;
+                }
+            }
+        }
+
+        @Override
+        public boolean isAdoptable() {
+            return isCached;
+        }
+
+        public static HandlePythonClassNode create() {
+            return new HandlePythonClassNode(true);
+        }
+
+        public static HandlePythonClassNode getUncached() {
+            return UNCACHED;
         }
     }
 
@@ -116,9 +165,9 @@ public abstract class WriteAttributeToObjectNode extends ObjectAttributeNode {
                     @Cached("singleContextAssumption()") @SuppressWarnings("unused") Assumption singleContextAssumption,
                     @Cached("cachedObject.getDictUnsetOrSameAsStorageAssumption()") @SuppressWarnings("unused") Assumption dictUnsetOrSameAsStorageAssumption,
                     @Cached("create()") WriteAttributeToDynamicObjectNode writeAttributeToDynamicObjectNode,
-                    @Exclusive @Cached("createBinaryProfile()") ConditionProfile isClassProfile,
+                    @Exclusive @Cached HandlePythonClassNode handlePythonClassNode,
                     @Exclusive @Cached @SuppressWarnings("unused") IsBuiltinClassProfile exactBuiltinInstanceProfile) {
-        handlePythonClass(isClassProfile, object, key);
+        handlePythonClassNode.execute(object, key);
         return writeAttributeToDynamicObjectNode.execute(object.getStorage(), key, value);
     }
 
@@ -149,8 +198,8 @@ public abstract class WriteAttributeToObjectNode extends ObjectAttributeNode {
                     @Cached BranchProfile updateStorage,
                     @Cached HashingCollectionNodes.GetDictStorageNode getDictStorage,
                     @Exclusive @Cached HashingStorageNodes.SetItemNode setItemNode,
-                    @Exclusive @Cached("createBinaryProfile()") ConditionProfile isClassProfile) {
-        handlePythonClass(isClassProfile, object, key);
+                    @Exclusive @Cached HandlePythonClassNode handlePythonClassNode) {
+        handlePythonClassNode.execute(object, key);
         PHashingCollection dict = object.getDict();
         HashingStorage dictStorage = getDictStorage.execute(dict);
         HashingStorage hashingStorage = setItemNode.execute(dictStorage, key, value);
@@ -211,6 +211,18 @@ public abstract class PythonCallNode extends ExpressionNode {
         return calleeName;
     }
 
+    /**
+     * Returns the attribute name for calls of the form {@code obj.name(...)}, or {@code null} for
+     * any other callee.
+     */
+    public final String getCalleeAttributeName() {
+        ExpressionNode callee = getCalleeNode();
+        if (callee instanceof GetCallAttributeNode) {
+            return ((GetCallAttributeNode) callee).key;
+        }
+        return null;
+    }
+
     @Override
     public boolean hasSideEffectAsAnExpression() {
         return true;
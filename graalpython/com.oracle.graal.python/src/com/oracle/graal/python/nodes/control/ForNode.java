@@ -26,6 +26,7 @@
 package com.oracle.graal.python.nodes.control;
 
 import com.oracle.graal.python.PythonLanguage;
+import com.oracle.graal.python.builtins.objects.generator.PGenerator;
 import com.oracle.graal.python.builtins.objects.iterator.PDoubleIterator;
 import com.oracle.graal.python.builtins.objects.iterator.PIntegerIterator;
 import com.oracle.graal.python.builtins.objects.iterator.PLongIterator;
@@ -34,6 +35,7 @@ import com.oracle.graal.python.nodes.PRaiseNode;
 import com.oracle.graal.python.nodes.SpecialMethodNames;
 import com.oracle.graal.python.nodes.expression.ExpressionNode;
 import com.oracle.graal.python.nodes.frame.WriteNode;
+import com.oracle.graal.python.nodes.function.GeneratorExpressionNode;
 import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
 import com.oracle.graal.python.nodes.statement.StatementNode;
 import com.oracle.graal.python.runtime.PythonContext;
@@ -42,6 +44,7 @@ import com.oracle.graal.python.runtime.exception.PException;
 import com.oracle.graal.python.runtime.exception.PythonErrorType;
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
+import com.oracle.truffle.api.RootCallTarget;
 import com.oracle.truffle.api.Truffle;
 import com.oracle.truffle.api.TruffleLanguage.ContextReference;
 import com.oracle.truffle.api.dsl.Cached;
@@ -51,6 +54,7 @@ import com.oracle.truffle.api.frame.FrameSlot;
 import com.oracle.truffle.api.frame.FrameSlotKind;
 import com.oracle.truffle.api.frame.FrameSlotTypeException;
 import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.DirectCallNode;
 import com.oracle.truffle.api.nodes.NodeInfo;
 import com.oracle.truffle.api.nodes.RepeatingNode;
 
@@ -62,8 +66,8 @@ final class ForRepeatingNode extends PNodeWithContext implements RepeatingNode {
     @Child StatementNode body;
     @Child PRaiseNode raise;
 
-    public ForRepeatingNode(StatementNode target, StatementNode body) {
-        this.nextElement = ForNextElementNodeGen.create(target);
+    public ForRepeatingNode(StatementNode target, StatementNode body, boolean iteratesNewObject) {
+        this.nextElement = ForNextElementNodeGen.create(target, iteratesNewObject);
         this.body = body;
     }
 
@@ -90,8 +94,15 @@ abstract class ForNextElementNode extends PNodeWithContext {
 
     @Child StatementNode target;
 
-    public ForNextElementNode(StatementNode target) {
+    /**
+     * Whether the loop iterates over a generator expression, i.e., a generator created just for it,
+     * which therefore usually does not escape the loop.
+     */
+    private final boolean iteratesNewObject;
+
+    public ForNextElementNode(StatementNode target, boolean iteratesNewObject) {
         this.target = target;
+        this.iteratesNewObject = iteratesNewObject;
     }
 
     public abstract boolean execute(VirtualFrame frame, Object range);
@@ -136,7 +147,41 @@ abstract class ForNextElementNode extends PNodeWithContext {
         return true;
     }
 
-    @Specialization
+    /**
+     * A small generator created for this loop is resumed through a call that is always inlined, so
+     * the loop, the generator body and the generator's creation are compiled together and escape
+     * analysis can remove the generator object and its frame.
+     */
+    @Specialization(guards = {"iterator.getCallTarget() == callTarget", "inlineGenerator"}, limit = "1")
+    protected boolean doGenerator(VirtualFrame frame, PGenerator iterator,
+                    @Cached("iterator.getCallTarget()") RootCallTarget callTarget,
+                    @Cached("canInlineGenerator(callTarget)") boolean inlineGenerator,
+                    @Cached("createInlinedCall(callTarget)") DirectCallNode call,
+                    @Cached("create()") IsBuiltinClassProfile errorProfile) {
+        if (iterator.isFinished()) {
+            return false;
+        }
+        Object value;
+        try {
+            value = call.call(iterator.getArguments());
+        } catch (PException e) {
+            e.expectStopIteration(errorProfile);
+            iterator.markAsFinished();
+            return false;
+        }
+        ((WriteNode) target).doWrite(frame, value);
+        return true;
+    }
+
+    protected boolean canInlineGenerator(RootCallTarget callTarget) {
+        return iteratesNewObject && GetNextInliningNode.canInlineGenerator(callTarget);
+    }
+
+    protected static DirectCallNode createInlinedCall(RootCallTarget callTarget) {
+        return GetNextInliningNode.createInlinedCall(callTarget);
+    }
+
+    @Specialization(replaces = "doGenerator")
     protected boolean doIterator(VirtualFrame frame, Object object,
                     @Cached("create()") GetNextNode next,
                     @Cached("create()") IsBuiltinClassProfile errorProfile) {
@@ -160,7 +205,16 @@ public final class ForNode extends LoopNode {
 
     public ForNode(StatementNode body, StatementNode target, ExpressionNode iterator) {
         this.iterator = iterator;
-        this.loopNode = Truffle.getRuntime().createLoopNode(new ForRepeatingNode(target, body));
+        this.loopNode = Truffle.getRuntime().createLoopNode(new ForRepeatingNode(target, body, iteratesNewObject(iterator)));
+    }
+
+    private static boolean iteratesNewObject(ExpressionNode iterator) {
+        if (iterator instanceof GetIteratorExpressionNode) {
+            ExpressionNode iterable = ((GetIteratorExpressionNode) iterator).getOperand();
+            // a call may return any existing generator, and the callee is unknown until runtime
+            return iterable instanceof GeneratorExpressionNode;
+        }
+        return false;
     }
 
     public StatementNode getTarget() {
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2018, 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.nodes.control;
+
+import static com.oracle.graal.python.runtime.exception.PythonErrorType.StopIteration;
+
+import com.oracle.graal.python.PythonLanguage;
+import com.oracle.graal.python.builtins.objects.generator.PGenerator;
+import com.oracle.graal.python.nodes.PNodeWithContext;
+import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.runtime.PythonOptions;
+import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.nodes.DirectCallNode;
+import com.oracle.truffle.api.nodes.NodeUtil;
+import com.oracle.truffle.api.nodes.UnexpectedResultException;
+
+/**
+ * Like {@link GetNextNode}, but a small generator is resumed through a call that is always inlined.
+ * This is meant for builtins that consume their whole argument, like {@code sum} or {@code list}: if
+ * the generator was created just for the call, the caller, the consumer and the generator body are
+ * compiled together and escape analysis can remove the generator object and its frame. The
+ * specialization is monomorphic; since builtin root nodes can be split, each call site of the
+ * consumer gets its own cache.
+ */
+public abstract class GetNextInliningNode extends PNodeWithContext {
+
+    public abstract Object execute(Object iterator);
+
+    public abstract int executeInt(Object iterator) throws UnexpectedResultException;
+
+    public abstract double executeDouble(Object iterator) throws UnexpectedResultException;
+
+    @Specialization(guards = {"iterator.getCallTarget() == callTarget", "inlineGenerator"}, limit = "1")
+    protected Object doGenerator(PGenerator iterator,
+                    @Cached("iterator.getCallTarget()") RootCallTarget callTarget,
+                    @Cached("canInlineGenerator(callTarget)") boolean inlineGenerator,
+                    @Cached("createInlinedCall(callTarget)") DirectCallNode call,
+                    @Cached("create()") IsBuiltinClassProfile errorProfile,
+                    @Cached("create()") PRaiseNode raise) {
+        if (iterator.isFinished()) {
+            throw raise.raise(StopIteration);
+        }
+        try {
+            return call.call(iterator.getArguments());
+        } catch (PException e) {
+            e.expectStopIteration(errorProfile);
+            iterator.markAsFinished();
+            throw e;
+        }
+    }
+
+    /*
+     * Other iterators like range or list iterators often produce primitives. These specializations
+     * keep them unboxed for executeInt/executeDouble; the first element of another type disables
+     * them.
+     */
+
+    @Specialization(rewriteOn = UnexpectedResultException.class)
+    protected int doIteratorInt(Object iterator,
+                    @Cached("create()") GetNextNode next) throws UnexpectedResultException {
+        return next.executeInt(iterator);
+    }
+
+    @Specialization(rewriteOn = UnexpectedResultException.class)
+    protected double doIteratorDouble(Object iterator,
+                    @Cached("create()") GetNextNode next) throws UnexpectedResultException {
+        return next.executeDouble(iterator);
+    }
+
+    @Specialization(replaces = {"doGenerator", "doIteratorInt", "doIteratorDouble"})
+    protected Object doIterator(Object iterator,
+                    @Cached("create()") GetNextNode next) {
+        return next.execute(iterator);
+    }
+
+    /**
+     * Whether the generator body is small enough to be inlined into each of its consumers, as
+     * limited by {@link PythonOptions#InlineGeneratorsIntoLoopsMaxNodes}.
+     */
+    static boolean canInlineGenerator(RootCallTarget callTarget) {
+        int maxNodes = PythonOptions.getOption(PythonLanguage.getContextRef().get(), PythonOptions.InlineGeneratorsIntoLoopsMaxNodes);
+        return maxNodes > 0 && NodeUtil.countNodes(callTarget.getRootNode()) <= maxNodes;
+    }
+
+    static DirectCallNode createInlinedCall(RootCallTarget callTarget) {
+        DirectCallNode call = Truffle.getRuntime().createDirectCallNode(callTarget);
+        call.forceInlining();
+        return call;
+    }
+
+    public static GetNextInliningNode create() {
+        return GetNextInliningNodeGen.create();
+    }
+}
@@ -60,6 +60,7 @@ import com.oracle.graal.python.nodes.argument.CreateArgumentsNode;
 import com.oracle.graal.python.nodes.call.CallNode;
 import com.oracle.graal.python.nodes.call.special.LookupAndCallUnaryNode;
 import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
+import com.oracle.graal.python.runtime.GlobalInterpreterLock;
 import com.oracle.graal.python.runtime.PythonContext;
 import com.oracle.graal.python.runtime.PythonCore;
 import com.oracle.graal.python.runtime.PythonOptions;
@@ -108,6 +109,8 @@ public class TopLevelExceptionHandler extends RootNode {
             return null;
         } else {
             assert context.get().getCurrentException() == null;
+            GlobalInterpreterLock gil = context.get().getGil();
+            gil.enter();
             try {
                 return run(frame);
             } catch (PException e) {
@@ -124,6 +127,8 @@ public class TopLevelExceptionHandler extends RootNode {
                     }
                 }
                 throw e;
+            } finally {
+                gil.leave();
             }
         }
     }
@@ -224,6 +229,7 @@ public class TopLevelExceptionHandler extends RootNode {
             // internal sources are not run in the main module
             PArguments.setGlobals(arguments, pythonContext.getCore().factory().createDict());
         } else {
+            pythonContext.initializeMainModule(getSourceSection().getSource().getPath());
             PythonModule mainModule = pythonContext.getMainModule();
             PHashingCollection mainDict = mainModule.getDict();
             PArguments.setGlobals(arguments, mainModule);
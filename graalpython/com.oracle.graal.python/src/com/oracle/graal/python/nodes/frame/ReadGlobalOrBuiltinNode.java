@@ -44,6 +44,8 @@ import com.oracle.graal.python.nodes.subscript.GetItemNode;
 import com.oracle.graal.python.runtime.PythonContext;
 import com.oracle.graal.python.runtime.PythonCore;
 import com.oracle.graal.python.runtime.exception.PException;
+import com.oracle.truffle.api.Assumption;
+import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.TruffleLanguage.ContextReference;
@@ -78,6 +80,68 @@ public abstract class ReadGlobalOrBuiltinNode extends ExpressionNode implements
         return WriteGlobalNode.create(attributeId, rhs);
     }
 
+    /**
+     * Reads a global or builtin that did not change so far as a constant. The assumptions are
+     * invalidated when the name is written to or deleted from the globals or the builtins, and
+     * also when it is defined in the globals, because then it would shadow the builtin.
+     */
+    @Specialization(guards = {"getGlobals(frame) == cachedGlobals", "cachedValue != null"}, limit = "1", assumptions = {"singleContextAssumption", "stableAssumptions"})
+    protected Object readGlobalCached(@SuppressWarnings("unused") VirtualFrame frame,
+                    @SuppressWarnings("unused") @Cached("getModuleGlobals(frame)") PythonModule cachedGlobals,
+                    @SuppressWarnings("unused") @Cached("singleContextAssumption()") Assumption singleContextAssumption,
+                    @SuppressWarnings("unused") @Cached(value = "getStableAssumptions(cachedGlobals)", dimensions = 1) Assumption[] stableAssumptions,
+                    @Cached("readStableValue(cachedGlobals, stableAssumptions)") Object cachedValue) {
+        return cachedValue;
+    }
+
+    protected static PythonObject getGlobals(VirtualFrame frame) {
+        return PArguments.getGlobals(frame);
+    }
+
+    protected static PythonModule getModuleGlobals(VirtualFrame frame) {
+        PythonObject globals = PArguments.getGlobals(frame);
+        return globals instanceof PythonModule ? (PythonModule) globals : null;
+    }
+
+    /**
+     * Returns the assumptions a constant read of this name depends on, or an empty array if the
+     * name changed too often. The assumptions are created before the value is read, so that a
+     * concurrent write cannot be missed.
+     */
+    protected Assumption[] getStableAssumptions(PythonModule globals) {
+        CompilerAsserts.neverPartOfCompilation();
+        PythonModule builtins = getInitializedBuiltins();
+        if (globals == null || builtins == null) {
+            return new Assumption[0];
+        }
+        Assumption globalAssumption = globals.getAttributeStableAssumption(attributeId);
+        Assumption builtinAssumption = builtins.getAttributeStableAssumption(attributeId);
+        if (globalAssumption == null || builtinAssumption == null) {
+            return new Assumption[0];
+        }
+        return new Assumption[]{globals.getDictUnsetOrSameAsStorageAssumption(), globalAssumption, builtins.getDictUnsetOrSameAsStorageAssumption(), builtinAssumption};
+    }
+
+    /**
+     * Returns the current value of the global or builtin, or {@code null} if it must not be cached.
+     */
+    protected Object readStableValue(PythonModule globals, Assumption[] stableAssumptions) {
+        CompilerAsserts.neverPartOfCompilation();
+        if (stableAssumptions.length == 0) {
+            return null;
+        }
+        Object result = ReadAttributeFromObjectNode.getUncached().execute(globals, attributeId);
+        if (result == PNone.NO_VALUE) {
+            result = ReadAttributeFromObjectNode.getUncached().execute(getInitializedBuiltins(), attributeId);
+        }
+        return result == PNone.NO_VALUE ? null : result;
+    }
+
+    private static PythonModule getInitializedBuiltins() {
+        PythonContext context = PythonLanguage.getContextRef().get();
+        return context.getCore().isInitialized() ? context.getBuiltins() : null;
+    }
+
     @Specialization(guards = "isInModule(frame)")
     protected Object readGlobal(VirtualFrame frame) {
         Object result = readFromModuleNode.execute(PArguments.getGlobals(frame), attributeId);
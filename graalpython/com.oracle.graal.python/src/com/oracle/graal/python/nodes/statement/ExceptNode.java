@@ -34,23 +34,36 @@ import com.oracle.graal.python.builtins.objects.type.PythonBuiltinClass;
 import com.oracle.graal.python.builtins.objects.type.TypeNodes.GetMroNode;
 import com.oracle.graal.python.builtins.objects.type.TypeNodes.IsSameTypeNode;
 import com.oracle.graal.python.builtins.objects.type.TypeNodes.IsTypeNode;
+import com.oracle.graal.python.nodes.BuiltinNames;
 import com.oracle.graal.python.nodes.PNodeWithContext;
 import com.oracle.graal.python.nodes.PRaiseNode;
+import com.oracle.graal.python.nodes.call.PythonCallNode;
 import com.oracle.graal.python.nodes.expression.ExpressionNode;
+import com.oracle.graal.python.nodes.frame.ReadGlobalOrBuiltinNode;
+import com.oracle.graal.python.nodes.frame.ReadVariableNode;
+import com.oracle.graal.python.nodes.frame.WriteIdentifierNode;
+import com.oracle.graal.python.nodes.frame.WriteLocalVariableNode;
 import com.oracle.graal.python.nodes.frame.WriteNode;
+import com.oracle.graal.python.nodes.function.FunctionDefinitionNode;
+import com.oracle.graal.python.nodes.function.GeneratorExpressionNode;
+import com.oracle.graal.python.nodes.generator.WriteGeneratorFrameVariableNode;
 import com.oracle.graal.python.nodes.object.GetLazyClassNode;
 import com.oracle.graal.python.nodes.object.IsBuiltinClassProfile;
 import com.oracle.graal.python.runtime.PythonContext;
 import com.oracle.graal.python.runtime.exception.ExceptionHandledException;
 import com.oracle.graal.python.runtime.exception.PException;
 import com.oracle.graal.python.runtime.exception.PythonErrorType;
+import com.oracle.truffle.api.Assumption;
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
+import com.oracle.truffle.api.Truffle;
 import com.oracle.truffle.api.TruffleLanguage.ContextReference;
 import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.instrumentation.GenerateWrapper;
 import com.oracle.truffle.api.instrumentation.InstrumentableNode;
 import com.oracle.truffle.api.instrumentation.ProbeNode;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.NodeVisitor;
 import com.oracle.truffle.api.profiles.BranchProfile;
 import com.oracle.truffle.api.profiles.ConditionProfile;
 
@@ -78,6 +91,21 @@ public class ExceptNode extends PNodeWithContext implements InstrumentableNode {
     private final ConditionProfile matchesProfile = ConditionProfile.createBinaryProfile();
     @CompilationFinal private ContextReference<PythonContext> contextRef;
 
+    /**
+     * Whether binding the exception to {@link #exceptName} needs to reify its traceback right
+     * away. Reification walks the whole stack, so we only do it if the handler body may let the
+     * exception object escape its frame. Otherwise the traceback is reified on demand (e.g. by
+     * {@code sys.exc_info()}) while the handler is still executing, or right before the handler
+     * is left with an exception. The static check in {@link #mayEscapeHandler()} cannot see what
+     * callees do, so an exception that is reified after its handler was left invalidates
+     * {@link #noEscapeAssumption} and the handler reifies on bind from then on.
+     */
+    @CompilationFinal private int reifyOnBind = REIFY_UNKNOWN;
+    @CompilationFinal private Assumption noEscapeAssumption;
+    private static final int REIFY_UNKNOWN = 0;
+    private static final int REIFY_NEVER = 1;
+    private static final int REIFY_ALWAYS = 2;
+
     public ExceptNode(StatementNode body, ExpressionNode exceptType, WriteNode exceptName) {
         this.body = body;
         this.exceptName = exceptName;
@@ -96,7 +124,20 @@ public class ExceptNode extends PNodeWithContext implements InstrumentableNode {
             contextRef = PythonLanguage.getContextRef();
         }
         contextRef.get().setCaughtException(e);
-        body.executeVoid(frame);
+        boolean lazy = exceptName != null && reifyOnBind == REIFY_NEVER;
+        try {
+            body.executeVoid(frame);
+        } catch (PException handlerException) {
+            if (lazy) {
+                // the new exception may reference ours, reify it while the stack is still intact
+                e.getExceptionObject().reifyException();
+            }
+            throw handlerException;
+        } finally {
+            if (lazy) {
+                e.getExceptionObject().leaveLazyReificationHandler();
+            }
+        }
         throw ExceptionHandledException.INSTANCE;
     }
 
@@ -181,7 +222,23 @@ public class ExceptNode extends PNodeWithContext implements InstrumentableNode {
         if (matchesProfile.profile(matches)) {
             if (exceptName != null) {
                 exceptName.doWrite(frame, e.getExceptionObject());
-                e.getExceptionObject().reifyException();
+                if (reifyOnBind == REIFY_UNKNOWN) {
+                    CompilerDirectives.transferToInterpreterAndInvalidate();
+                    if (mayEscapeHandler()) {
+                        reifyOnBind = REIFY_ALWAYS;
+                    } else {
+                        reifyOnBind = REIFY_NEVER;
+                        noEscapeAssumption = Truffle.getRuntime().createAssumption("exception does not escape handler");
+                    }
+                } else if (reifyOnBind == REIFY_NEVER && !noEscapeAssumption.isValid()) {
+                    CompilerDirectives.transferToInterpreterAndInvalidate();
+                    reifyOnBind = REIFY_ALWAYS;
+                }
+                if (reifyOnBind == REIFY_ALWAYS) {
+                    e.getExceptionObject().reifyException();
+                } else {
+                    e.getExceptionObject().setLazyReification(noEscapeAssumption);
+                }
             }
             return true;
         } else {
@@ -189,6 +246,45 @@ public class ExceptNode extends PNodeWithContext implements InstrumentableNode {
         }
     }
 
+    /**
+     * A static approximation of whether the exception may escape the handler, which is backed by
+     * {@link #noEscapeAssumption} at runtime. The exception object can only leave the handler
+     * through the bound name. If that is a plain
+     * local variable that is never read in the handler body, the object cannot escape. Globals and
+     * cell variables are conservatively assumed to escape, and so are handlers that define nested
+     * functions, classes or generators, or that may access the frame's locals by other means than
+     * the name ({@code locals()}, {@code vars()}, {@code eval}, {@code exec},
+     * {@code sys._getframe()}, {@code inspect.currentframe()}).
+     */
+    private boolean mayEscapeHandler() {
+        if (!(exceptName instanceof WriteLocalVariableNode || exceptName instanceof WriteGeneratorFrameVariableNode)) {
+            return true;
+        }
+        Object identifier = ((WriteIdentifierNode) exceptName).getIdentifier();
+        boolean[] mayEscape = new boolean[1];
+        body.accept(new NodeVisitor() {
+            public boolean visit(Node node) {
+                if ((node instanceof ReadVariableNode && identifier.equals(((ReadVariableNode) node).getSlot().getIdentifier())) ||
+                                node instanceof FunctionDefinitionNode || node instanceof GeneratorExpressionNode ||
+                                (node instanceof ReadGlobalOrBuiltinNode && isFrameAccessingBuiltin(((ReadGlobalOrBuiltinNode) node).getAttributeId())) ||
+                                (node instanceof PythonCallNode && isFrameAccessingMethod(((PythonCallNode) node).getCalleeAttributeName()))) {
+                    mayEscape[0] = true;
+                    return false;
+                }
+                return true;
+            }
+        });
+        return mayEscape[0];
+    }
+
+    private static boolean isFrameAccessingBuiltin(String name) {
+        return BuiltinNames.LOCALS.equals(name) || BuiltinNames.VARS.equals(name) || BuiltinNames.EVAL.equals(name) || BuiltinNames.EXEC.equals(name);
+    }
+
+    private static boolean isFrameAccessingMethod(String name) {
+        return "_getframe".equals(name) || "currentframe".equals(name);
+    }
+
     /**
      * Fallback case for non-builtin classes and changing types.
      */
@@ -50,17 +50,22 @@ import java.nio.channels.SeekableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.util.function.Supplier;
 
+import com.oracle.graal.python.PythonLanguage;
 import com.oracle.graal.python.builtins.objects.common.SequenceStorageNodes;
+import com.oracle.graal.python.builtins.objects.select.PPoll;
 import com.oracle.graal.python.nodes.PNodeWithContext;
 import com.oracle.graal.python.nodes.PRaiseNode;
 import com.oracle.graal.python.nodes.util.ChannelNodesFactory.ReadByteFromChannelNodeGen;
 import com.oracle.graal.python.nodes.util.ChannelNodesFactory.ReadFromChannelNodeGen;
 import com.oracle.graal.python.nodes.util.ChannelNodesFactory.WriteByteToChannelNodeGen;
 import com.oracle.graal.python.nodes.util.ChannelNodesFactory.WriteToChannelNodeGen;
+import com.oracle.graal.python.runtime.GlobalInterpreterLock;
+import com.oracle.graal.python.runtime.PythonContext;
 import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
 import com.oracle.graal.python.runtime.sequence.storage.SequenceStorage;
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleLanguage.ContextReference;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.profiles.BranchProfile;
@@ -94,6 +99,7 @@ public abstract class ChannelNodes {
     abstract static class ReadFromChannelBaseNode extends PNodeWithContext implements ChannelBaseNode {
 
         private final BranchProfile gotException = BranchProfile.create();
+        private final ContextReference<PythonContext> contextRef = PythonLanguage.getContextRef();
 
         @TruffleBoundary(allowInlining = true)
         protected static byte[] getByteBufferArray(ByteBuffer dst) {
@@ -102,16 +108,25 @@ public abstract class ChannelNodes {
 
         protected int readIntoBuffer(ReadableByteChannel readableChannel, ByteBuffer dst, PRaiseNode raise) {
             try {
-                return read(readableChannel, dst);
+                return read(contextRef.get().getGil(), readableChannel, dst);
             } catch (IOException e) {
                 gotException.enter();
                 throw raise.raise(OSError, e);
             }
         }
 
+        /*
+         * Reading may block (e.g. on pipes or stdin), so other threads may run meanwhile. Only the
+         * channel call runs without the GIL; errors are raised after it has been acquired again.
+         */
         @TruffleBoundary(allowInlining = true, transferToInterpreterOnException = false)
-        private static int read(ReadableByteChannel readableChannel, ByteBuffer dst) throws IOException {
-            return readableChannel.read(dst);
+        private static int read(GlobalInterpreterLock gil, ReadableByteChannel readableChannel, ByteBuffer dst) throws IOException {
+            boolean released = gil.release();
+            try {
+                return PPoll.read(readableChannel, dst);
+            } finally {
+                gil.acquire(released);
+            }
         }
     }
 
@@ -135,7 +150,7 @@ public abstract class ChannelNodes {
 
         @TruffleBoundary(allowInlining = true, transferToInterpreterOnException = false)
         private static int write(WritableByteChannel writableChannel, ByteBuffer src) throws IOException {
-            return writableChannel.write(src);
+            return PPoll.write(writableChannel, src);
         }
     }
 
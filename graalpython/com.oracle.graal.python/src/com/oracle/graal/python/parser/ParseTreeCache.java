@@ -0,0 +1,407 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Pair;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.antlr.v4.runtime.tree.TerminalNodeImpl;
+
+import com.oracle.graal.python.parser.antlr.Python3Parser;
+import com.oracle.truffle.api.TruffleFile;
+import com.oracle.truffle.api.TruffleLanguage.Env;
+
+/**
+ * An on-disk cache of ANTLR parse trees, the counterpart of CPython's {@code __pycache__}.
+ * Lexing and parsing dominate the time it takes to import a module, whereas the scope and tree
+ * translators that turn the parse tree into Truffle nodes are cheap. The parse tree (including the
+ * token stream) is therefore stored in a compact binary form and read back as long as the source
+ * file is unchanged, i.e., has the same modification time, length and hash.
+ *
+ * All failures are treated as cache misses; a missing or unwritable cache directory never affects
+ * the import itself.
+ */
+final class ParseTreeCache {
+    private static final String CACHE_DIR = "__pycache__";
+    private static final String SUFFIX = ".graalpython.tree";
+
+    private static final int MAGIC = 0x47505054;
+    private static final int FORMAT_VERSION = 1;
+    // invalidates all entries when the grammar changes
+    private static final int GRAMMAR_HASH = Python3Parser._serializedATN.hashCode();
+
+    // rule nodes are tagged with their rule index + 1
+    private static final byte NODE_TOKEN = 0;
+
+    private static final byte TEXT_FROM_INPUT = 0;
+    private static final byte TEXT_EXPLICIT = 1;
+
+    private static Constructor<?>[] ruleContexts;
+
+    private ParseTreeCache() {
+    }
+
+    /**
+     * Returns the cache file for the given source file, which is located in a {@code __pycache__}
+     * directory next to the source or, if a prefix is given, in a mirror of the source directory
+     * below the prefix (like CPython's {@code PYTHONPYCACHEPREFIX}).
+     */
+    static TruffleFile getCacheFile(Env env, String prefix, String sourcePath) {
+        TruffleFile source = env.getTruffleFile(sourcePath).getAbsoluteFile();
+        TruffleFile parent = source.getParent();
+        if (parent == null) {
+            return null;
+        }
+        String name = source.getName() + SUFFIX;
+        if (prefix.isEmpty()) {
+            return parent.resolve(CACHE_DIR).resolve(name);
+        } else {
+            String dir = parent.getPath();
+            while (dir.startsWith("/")) {
+                dir = dir.substring(1);
+            }
+            TruffleFile root = env.getTruffleFile(prefix);
+            return dir.isEmpty() ? root.resolve(name) : root.resolve(dir).resolve(name);
+        }
+    }
+
+    /**
+     * Reads the parse tree for {@code sourceText} from the cache file, or returns {@code null} if
+     * there is no valid entry.
+     */
+    static ParserRuleContext read(TruffleFile cacheFile, String sourceText, long mtime) {
+        try {
+            if (!cacheFile.exists()) {
+                return null;
+            }
+            Reader in = new Reader(cacheFile.readAllBytes());
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || in.readInt() != GRAMMAR_HASH || in.readLong() != mtime || in.readInt() != sourceText.length() ||
+                            in.readLong() != hash(sourceText)) {
+                return null;
+            }
+            CharStream input = CharStreams.fromString(sourceText);
+            Pair<TokenSource, CharStream> tokenSource = new Pair<>(null, input);
+            Token[] tokens = new Token[in.readVarInt()];
+            for (int i = 0; i < tokens.length; i++) {
+                tokens[i] = readToken(in, tokenSource, tokens, i);
+            }
+            return readRule(in, tokens, getRuleContexts(), null);
+        } catch (IOException | ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the parse tree and the tokens it was parsed from to the cache file. The entry is
+     * written to a temporary file first, so that concurrent readers never see partial entries.
+     */
+    static void write(TruffleFile cacheFile, ParserRuleContext tree, List<Token> tokens, String sourceText, long mtime) {
+        TruffleFile tmpFile = null;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(sourceText.length());
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(GRAMMAR_HASH);
+            out.writeLong(mtime);
+            out.writeInt(sourceText.length());
+            out.writeLong(hash(sourceText));
+            writeVarInt(out, tokens.size());
+            Token previous = null;
+            for (int i = 0; i < tokens.size(); i++) {
+                Token token = tokens.get(i);
+                if (token.getTokenIndex() != i) {
+                    return;
+                }
+                writeToken(out, token, previous);
+                previous = token;
+            }
+            if (!writeNode(out, tree, tokens)) {
+                return;
+            }
+            out.flush();
+
+            TruffleFile dir = cacheFile.getParent();
+            if (!dir.exists()) {
+                dir.createDirectories();
+            }
+            // the random name keeps concurrent writers in other threads and processes apart
+            TruffleFile file = dir.resolve(cacheFile.getName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try (OutputStream stream = file.newOutputStream(StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                tmpFile = file;
+                bytes.writeTo(stream);
+            }
+            tmpFile.move(cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tmpFile = null;
+        } catch (IOException | RuntimeException e) {
+            // not cached, e.g., because the directory is read-only
+        } finally {
+            if (tmpFile != null) {
+                try {
+                    tmpFile.delete();
+                } catch (IOException | RuntimeException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private static long hash(String text) {
+        // 64-bit FNV-1a
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static void writeToken(DataOutputStream out, Token token, Token previous) throws IOException {
+        // positions are stored relative to the previous token, which keeps them small
+        int previousStop = previous == null ? -1 : previous.getStopIndex();
+        int previousLine = previous == null ? 1 : previous.getLine();
+        writeVarInt(out, token.getType());
+        writeVarInt(out, token.getChannel());
+        writeVarInt(out, token.getStartIndex() - previousStop);
+        writeVarInt(out, token.getStopIndex() - token.getStartIndex());
+        writeVarInt(out, token.getLine() - previousLine);
+        writeVarInt(out, token.getCharPositionInLine());
+        // most tokens compute their text from the input, only synthesized ones carry their own
+        CommonToken fromInput = new CommonToken(new Pair<>(null, token.getInputStream()), token.getType(), token.getChannel(), token.getStartIndex(), token.getStopIndex());
+        String text = token.getText();
+        if (text == null || text.equals(fromInput.getText())) {
+            out.writeByte(TEXT_FROM_INPUT);
+        } else {
+            out.writeByte(TEXT_EXPLICIT);
+            writeVarInt(out, text.length());
+            out.writeChars(text);
+        }
+    }
+
+    private static Token readToken(Reader in, Pair<TokenSource, CharStream> tokenSource, Token[] tokens, int index) {
+        Token previous = index == 0 ? null : tokens[index - 1];
+        int type = in.readVarInt();
+        int channel = in.readVarInt();
+        int start = (previous == null ? -1 : previous.getStopIndex()) + in.readVarInt();
+        int stop = start + in.readVarInt();
+        CommonToken token = new CommonToken(tokenSource, type, channel, start, stop);
+        token.setLine((previous == null ? 1 : previous.getLine()) + in.readVarInt());
+        token.setCharPositionInLine(in.readVarInt());
+        token.setTokenIndex(index);
+        if (in.readByte() == TEXT_EXPLICIT) {
+            char[] text = new char[in.readVarInt()];
+            for (int i = 0; i < text.length; i++) {
+                text[i] = in.readChar();
+            }
+            token.setText(new String(text));
+        }
+        return token;
+    }
+
+    /**
+     * Nodes are written in pre-order. A rule node is its rule index (tokens use
+     * {@link #NODE_TOKEN}), the invoking state, the start and stop token relative to the previous
+     * start token, and the number of children.
+     */
+    private static boolean writeNode(DataOutputStream out, ParseTree node, List<Token> tokens) throws IOException {
+        return writeNode(out, node, tokens, new int[1]);
+    }
+
+    private static boolean writeNode(DataOutputStream out, ParseTree node, List<Token> tokens, int[] lastStart) throws IOException {
+        if (node instanceof ParserRuleContext) {
+            ParserRuleContext ctx = (ParserRuleContext) node;
+            int start = tokenIndex(ctx.start, tokens);
+            int stop = tokenIndex(ctx.stop, tokens);
+            writeVarInt(out, ctx.getRuleIndex() + 1);
+            writeVarInt(out, ctx.invokingState);
+            writeVarInt(out, start - lastStart[0]);
+            writeVarInt(out, stop - start);
+            lastStart[0] = start;
+            int n = ctx.getChildCount();
+            writeVarInt(out, n);
+            for (int i = 0; i < n; i++) {
+                if (!writeNode(out, ctx.getChild(i), tokens, lastStart)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (node instanceof TerminalNode && !(node instanceof ErrorNode)) {
+            int index = tokenIndex(((TerminalNode) node).getSymbol(), tokens);
+            if (index < 0) {
+                return false;
+            }
+            writeVarInt(out, NODE_TOKEN);
+            writeVarInt(out, index - lastStart[0]);
+            return true;
+        }
+        return false;
+    }
+
+    private static ParserRuleContext readRule(Reader in, Token[] tokens, Constructor<?>[] contexts, ParserRuleContext parent) throws IOException, ReflectiveOperationException {
+        int kind = in.readVarInt();
+        if (kind == NODE_TOKEN) {
+            throw new IOException("corrupt parse tree cache entry");
+        }
+        ParserRuleContext ctx = (ParserRuleContext) contexts[kind - 1].newInstance(parent, in.readVarInt());
+        int start = in.lastStart + in.readVarInt();
+        int stop = start + in.readVarInt();
+        in.lastStart = start;
+        ctx.start = token(tokens, start);
+        ctx.stop = token(tokens, stop);
+        int n = in.readVarInt();
+        for (int i = 0; i < n; i++) {
+            if (in.peekByte() == NODE_TOKEN) {
+                in.readByte();
+                TerminalNodeImpl terminal = new TerminalNodeImpl(tokens[in.lastStart + in.readVarInt()]);
+                terminal.parent = ctx;
+                ctx.addChild(terminal);
+            } else {
+                ctx.addChild(readRule(in, tokens, contexts, ctx));
+            }
+        }
+        return ctx;
+    }
+
+    private static int tokenIndex(Token token, List<Token> tokens) {
+        if (token == null) {
+            return -1;
+        }
+        int index = token.getTokenIndex();
+        return index >= 0 && index < tokens.size() && tokens.get(index) == token ? index : -1;
+    }
+
+    private static Token token(Token[] tokens, int index) {
+        return index < 0 ? null : tokens[index];
+    }
+
+    /**
+     * The generated parser has exactly one context class per rule, all with the same constructor
+     * signature.
+     */
+    private static Constructor<?>[] getRuleContexts() throws ReflectiveOperationException {
+        Constructor<?>[] result = ruleContexts;
+        if (result == null) {
+            result = new Constructor<?>[Python3Parser.ruleNames.length];
+            for (Class<?> clazz : Python3Parser.class.getClasses()) {
+                if (ParserRuleContext.class.isAssignableFrom(clazz)) {
+                    Constructor<?> constructor = clazz.getConstructor(ParserRuleContext.class, int.class);
+                    ParserRuleContext probe = (ParserRuleContext) constructor.newInstance(null, -1);
+                    result[probe.getRuleIndex()] = constructor;
+                }
+            }
+            ruleContexts = result;
+        }
+        return result;
+    }
+
+    // variable length encoding of zig-zag encoded ints, most values are small
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        int v = (value << 1) ^ (value >> 31);
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    /**
+     * A minimal unsynchronized reader for the cache entries.
+     */
+    private static final class Reader {
+        private final byte[] bytes;
+        private int pos;
+        int lastStart;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        byte readByte() {
+            return bytes[pos++];
+        }
+
+        byte peekByte() {
+            return bytes[pos];
+        }
+
+        char readChar() {
+            return (char) (((bytes[pos++] & 0xFF) << 8) | (bytes[pos++] & 0xFF));
+        }
+
+        int readInt() {
+            return (readChar() << 16) | readChar();
+        }
+
+        long readLong() {
+            return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+        }
+
+        int readVarInt() {
+            int v = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = bytes[pos++] & 0xFF;
+                v |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return (v >>> 1) ^ -(v & 1);
+        }
+    }
+}
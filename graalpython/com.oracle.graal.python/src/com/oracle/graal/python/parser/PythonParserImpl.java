@@ -25,15 +25,24 @@
  */
 package com.oracle.graal.python.parser;
 
+import java.io.IOException;
+
+import org.antlr.v4.runtime.BufferedTokenStream;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.ParserRuleContext;
 
+import com.oracle.graal.python.PythonLanguage;
 import com.oracle.graal.python.parser.antlr.Builder;
 import com.oracle.graal.python.parser.antlr.Python3Parser;
+import com.oracle.graal.python.runtime.PythonContext;
 import com.oracle.graal.python.runtime.PythonCore;
+import com.oracle.graal.python.runtime.PythonOptions;
 import com.oracle.graal.python.runtime.PythonParser;
 import com.oracle.graal.python.runtime.exception.PException;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleFile;
+import com.oracle.truffle.api.TruffleLanguage.Env;
+import com.oracle.truffle.api.TruffleOptions;
 import com.oracle.truffle.api.frame.Frame;
 import com.oracle.truffle.api.frame.FrameDescriptor;
 import com.oracle.truffle.api.nodes.Node;
@@ -51,8 +60,62 @@ public final class PythonParserImpl implements PythonParser {
     @Override
     @TruffleBoundary
     public Node parse(ParserMode mode, ParserErrorCallback errors, Source source, Frame currentFrame) {
+        return doParse(mode, errors, source, currentFrame, false, false);
+    }
+
+    @Override
+    @TruffleBoundary
+    public Node parseModule(ParserErrorCallback errors, Source source, boolean writeCache) {
+        return doParse(ParserMode.File, errors, source, null, true, writeCache);
+    }
+
+    private static Node doParse(ParserMode mode, ParserErrorCallback errors, Source source, Frame currentFrame, boolean isImport, boolean writeCache) {
+        String text = source.getCharacters().toString();
+        TruffleFile cacheFile = null;
+        long mtime = 0;
+        ParserRuleContext input = null;
+        if (isImport && source.getPath() != null && !TruffleOptions.AOT) {
+            PythonContext context = PythonLanguage.getContextRef().get();
+            if (PythonOptions.getOption(context, PythonOptions.WithParseCache)) {
+                try {
+                    Env env = context.getEnv();
+                    mtime = env.getTruffleFile(source.getPath()).getLastModifiedTime().toMillis();
+                    cacheFile = ParseTreeCache.getCacheFile(env, PythonOptions.getOption(context, PythonOptions.PyCachePrefix), source.getPath());
+                } catch (IOException | SecurityException e) {
+                    cacheFile = null;
+                }
+                if (cacheFile != null) {
+                    input = ParseTreeCache.read(cacheFile, text, mtime);
+                    if (!writeCache) {
+                        cacheFile = null;
+                    }
+                }
+            }
+        }
+        if (input == null) {
+            Python3Parser parser = getPython3Parser(text);
+            input = parse(mode, errors, source, parser);
+            if (cacheFile != null) {
+                ParseTreeCache.write(cacheFile, input, ((BufferedTokenStream) parser.getTokenStream()).getTokens(), text, mtime);
+            }
+        }
+
+        // prepare scope translator
+        TranslationEnvironment environment = new TranslationEnvironment(errors.getLanguage());
+        FrameDescriptor inlineLocals = mode == ParserMode.InlineEvaluation ? currentFrame.getFrameDescriptor() : null;
+        ScopeTranslator<Object> defineScopes = new ScopeTranslator<>(errors, environment, source.isInteractive(), inlineLocals);
+        // first pass of the scope translator -> define the scopes
+        input.accept(defineScopes);
+        // create frame slots for cell and free vars
+        defineScopes.setFreeVarsInRootScope(currentFrame);
+        defineScopes.createFrameSlotsForCellAndFreeVars();
+
+        // create Truffle ASTs
+        return PythonTreeTranslator.translate(errors, source.getName(), input, environment, source, mode);
+    }
+
+    private static ParserRuleContext parse(ParserMode mode, ParserErrorCallback errors, Source source, Python3Parser parser) {
         // ANTLR parsing
-        Python3Parser parser = getPython3Parser(source.getCharacters().toString());
         ParserRuleContext input;
         try {
             switch (mode) {
@@ -85,19 +148,7 @@ public final class PythonParserImpl implements PythonParser {
                 throw handleParserError(errors, source, e);
             }
         }
-
-        // prepare scope translator
-        TranslationEnvironment environment = new TranslationEnvironment(errors.getLanguage());
-        FrameDescriptor inlineLocals = mode == ParserMode.InlineEvaluation ? currentFrame.getFrameDescriptor() : null;
-        ScopeTranslator<Object> defineScopes = new ScopeTranslator<>(errors, environment, source.isInteractive(), inlineLocals);
-        // first pass of the scope translator -> define the scopes
-        input.accept(defineScopes);
-        // create frame slots for cell and free vars
-        defineScopes.setFreeVarsInRootScope(currentFrame);
-        defineScopes.createFrameSlotsForCellAndFreeVars();
-
-        // create Truffle ASTs
-        return PythonTreeTranslator.translate(errors, source.getName(), input, environment, source, mode);
+        return input;
     }
 
     @Override
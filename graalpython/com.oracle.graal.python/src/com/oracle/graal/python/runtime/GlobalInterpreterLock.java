@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.graal.python.runtime;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * The global interpreter lock. Only the thread holding it may execute Python code, so the
+ * builtins can mutate storages without further synchronization.
+ *
+ * The lock is activated when the first additional Python thread is started; until then the single
+ * thread runs without any locking. The holder gives it up at safepoints (loop back edges and
+ * function entries, see {@link PythonContext#triggerAsyncActions()}) once another thread has waited
+ * for longer than the switch interval, and around blocking operations, following CPython's
+ * {@code Py_BEGIN_ALLOW_THREADS} pattern:
+ *
+ * <pre>
+ * boolean released = gil.release();
+ * try {
+ *     // blocking call
+ * } finally {
+ *     gil.acquire(released);
+ * }
+ * </pre>
+ *
+ * Threads entering the context from the host (evaluating a source or calling a Python object
+ * through interop) and new Python threads bracket their execution with {@link #enter()} and
+ * {@link #leave()}. The lock is taken on the outermost entry of a thread and given up when that
+ * entry is left, so no thread keeps it while the host does something else.
+ */
+public final class GlobalInterpreterLock {
+    /** The default switch interval of 5ms, as in CPython. */
+    public static final double DEFAULT_SWITCH_INTERVAL = 0.005;
+
+    // a fair lock hands the GIL to the longest waiting thread when the holder yields
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private volatile boolean active;
+    private volatile boolean dropRequested;
+    private volatile long switchIntervalNanos = (long) (DEFAULT_SWITCH_INTERVAL * 1_000_000_000L);
+    /** The number of nested entries of each thread, see {@link #enter()}. */
+    private final ThreadLocal<int[]> entries = ThreadLocal.withInitial(() -> new int[1]);
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Activates the lock with the current thread as holder. Must be called by the thread executing
+     * Python code before it starts another one.
+     */
+    @TruffleBoundary
+    public void activate() {
+        if (!active) {
+            lock.lock();
+            active = true;
+        }
+    }
+
+    /**
+     * Called when the current thread starts executing Python code. Acquires the lock if this is
+     * the outermost entry of the thread. The entries are counted even while the lock is inactive,
+     * since it may be activated before the outermost entry is left.
+     */
+    @TruffleBoundary
+    public void enter() {
+        if (entries.get()[0]++ == 0) {
+            acquire();
+        }
+    }
+
+    /**
+     * Called when the current thread stops executing Python code. Releases the lock if this was
+     * the outermost entry of the thread.
+     */
+    @TruffleBoundary
+    public void leave() {
+        if (--entries.get()[0] == 0) {
+            release();
+        }
+    }
+
+    /**
+     * Releases the lock if the current thread holds it and returns whether it did.
+     */
+    @TruffleBoundary
+    public boolean release() {
+        if (active && lock.isHeldByCurrentThread()) {
+            lock.unlock();
+            return true;
+        }
+        return false;
+    }
+
+    public void acquire(boolean wasReleased) {
+        if (wasReleased) {
+            acquire();
+        }
+    }
+
+    /**
+     * Blocks until the current thread holds the lock. While waiting, the holder is asked to give
+     * it up after every switch interval. Interrupts are deferred until the lock is held.
+     */
+    @TruffleBoundary
+    public void acquire() {
+        if (!active || lock.isHeldByCurrentThread()) {
+            return;
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (lock.tryLock(switchIntervalNanos, TimeUnit.NANOSECONDS)) {
+                    break;
+                }
+                dropRequested = true;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        dropRequested = false;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Called at safepoints; lets a waiting thread run if it has asked for the lock.
+     */
+    public void yieldIfRequested() {
+        if (dropRequested) {
+            yieldLock();
+        }
+    }
+
+    @TruffleBoundary
+    private void yieldLock() {
+        if (release()) {
+            acquire();
+        }
+    }
+
+    public double getSwitchInterval() {
+        return switchIntervalNanos / 1_000_000_000.0;
+    }
+
+    public void setSwitchInterval(double seconds) {
+        switchIntervalNanos = Math.max(1L, (long) (seconds * 1_000_000_000L));
+    }
+}
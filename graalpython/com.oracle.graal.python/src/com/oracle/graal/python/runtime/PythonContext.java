@@ -39,11 +39,14 @@ import java.util.function.Supplier;
 
 import com.oracle.graal.python.PythonLanguage;
 import com.oracle.graal.python.builtins.objects.bytes.OpaqueBytes;
+import com.oracle.graal.python.builtins.objects.cext.HandleCache;
 import com.oracle.graal.python.builtins.objects.cext.PThreadState;
 import com.oracle.graal.python.builtins.objects.cext.PythonNativeClass;
 import com.oracle.graal.python.builtins.objects.common.HashingStorage;
 import com.oracle.graal.python.builtins.objects.dict.PDict;
 import com.oracle.graal.python.builtins.objects.module.PythonModule;
+import com.oracle.graal.python.builtins.objects.struct.StructFormat;
+import com.oracle.graal.python.builtins.objects.thread.PLock;
 import com.oracle.graal.python.runtime.AsyncHandler.AsyncAction;
 import com.oracle.graal.python.runtime.exception.PException;
 import com.oracle.truffle.api.Assumption;
@@ -65,6 +68,7 @@ public final class PythonContext {
     private final PythonCore core;
     private final HashMap<Object, CallTarget> atExitHooks = new HashMap<>();
     private final HashMap<PythonNativeClass, CyclicAssumption> nativeClassStableAssumptions = new HashMap<>();
+    private final StructFormat.Cache structFormatCache = new StructFormat.Cache();
     private final AtomicLong globalId = new AtomicLong(Integer.MAX_VALUE * 2L + 4L);
     private final ThreadGroup threadGroup = new ThreadGroup(GRAALPYTHON_THREADS);
 
@@ -90,6 +94,9 @@ public final class PythonContext {
     private OutputStream err;
     private InputStream in;
     @CompilationFinal private Object capiLibrary = null;
+    private HandleCache handleCache;
+    /** The path of the file that {@code __file__} of the main module was set to. */
+    private String mainModulePath;
     private static final Assumption singleNativeContext = Truffle.getRuntime().createAssumption("single native context assumption");
     private static final Assumption singleThreaded = Truffle.getRuntime().createAssumption("single Threaded");
 
@@ -102,6 +109,14 @@ public final class PythonContext {
     private final PosixResources resources;
     private final AsyncHandler handler;
 
+    private final GlobalInterpreterLock gil = new GlobalInterpreterLock();
+
+    /** The lock released when a Python thread finishes, see {@code _thread._set_sentinel}. */
+    private final ThreadLocal<PLock> threadSentinel = new ThreadLocal<>();
+
+    /** Waits for the non-daemon threads of the {@code threading} module at exit. */
+    private CallTarget threadingShutdownHook;
+
     public PythonContext(PythonLanguage language, TruffleLanguage.Env env, PythonCore core) {
         this.language = language;
         this.core = core;
@@ -230,9 +245,12 @@ public final class PythonContext {
     }
 
     public void initialize() {
+        long start = System.nanoTime();
         core.initialize(this);
         setupRuntimeInformation();
         core.postInitialize();
+        // the time until the first statement of user code can run, see --log.python.level=FINE
+        PythonCore.writeInfo("Context initialized in " + (System.nanoTime() - start) / 1_000_000 + "ms.");
     }
 
     public void patch(Env newEnv) {
@@ -271,6 +289,18 @@ public final class PythonContext {
         this.capiLibrary = capiLibrary;
     }
 
+    public StructFormat.Cache getStructFormatCache() {
+        return structFormatCache;
+    }
+
+    public HandleCache getHandleCache() {
+        return handleCache;
+    }
+
+    public void setHandleCache(HandleCache handleCache) {
+        this.handleCache = handleCache;
+    }
+
     public HashingStorage.Equivalence getSlowPathEquivalence() {
         if (slowPathEquivalence == null) {
             CompilerDirectives.transferToInterpreterAndInvalidate();
@@ -292,8 +322,16 @@ public final class PythonContext {
     @TruffleBoundary
     public void runShutdownHooks() {
         handler.shutdown();
-        for (CallTarget f : atExitHooks.values()) {
-            f.call();
+        gil.enter();
+        try {
+            if (threadingShutdownHook != null) {
+                threadingShutdownHook.call();
+            }
+            for (CallTarget f : atExitHooks.values()) {
+                f.call();
+            }
+        } finally {
+            gil.leave();
         }
     }
 
@@ -307,8 +345,15 @@ public final class PythonContext {
         return customThreadState.get();
     }
 
+    /**
+     * Sets {@code __file__} of the main module for a top-level source that is about to run. This
+     * happens only when a different file runs, so re-running the same source does not redefine the
+     * attribute (which would invalidate the assumptions of cached global reads).
+     */
+    @TruffleBoundary
     public void initializeMainModule(String path) {
-        if (path != null) {
+        if (path != null && !path.equals(mainModulePath)) {
+            mainModulePath = path;
             mainModule.setAttribute(__FILE__, path);
         }
     }
@@ -338,6 +383,27 @@ public final class PythonContext {
      */
     public void triggerAsyncActions() {
         handler.triggerAsyncActions();
+        if (!singleThreaded.isValid()) {
+            gil.yieldIfRequested();
+        }
+    }
+
+    public GlobalInterpreterLock getGil() {
+        return gil;
+    }
+
+    @TruffleBoundary
+    public PLock getThreadSentinel() {
+        return threadSentinel.get();
+    }
+
+    @TruffleBoundary
+    public void setThreadSentinel(PLock lock) {
+        threadSentinel.set(lock);
+    }
+
+    public void setThreadingShutdownHook(CallTarget hook) {
+        threadingShutdownHook = hook;
     }
 
     public void registerAsyncAction(Supplier<AsyncAction> actionSupplier) {
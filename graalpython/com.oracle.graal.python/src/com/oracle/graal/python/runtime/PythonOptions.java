@@ -91,6 +91,21 @@ public final class PythonOptions {
     @Option(category = OptionCategory.USER, help = "Equivalent to the Python -I flag. Isolate from the users environment by not adding the cwd to the path", stability = OptionStability.STABLE) //
     public static final OptionKey<Boolean> IsolateFlag = new OptionKey<>(false);
 
+    @Option(category = OptionCategory.USER, help = "Equivalent to the Python -B flag. Don't write parse tree caches on import.", stability = OptionStability.STABLE) //
+    public static final OptionKey<Boolean> DontWriteBytecodeFlag = new OptionKey<>(false);
+
+    @Option(category = OptionCategory.USER, help = "Equivalent to setting the PYTHONPYCACHEPREFIX environment variable for the standard launcher. Directory for the parse tree caches instead of __pycache__ directories next to the sources.") //
+    public static final OptionKey<String> PyCachePrefix = new OptionKey<>("");
+
+    @Option(category = OptionCategory.EXPERT, help = "Cache the parse trees of imported modules and core files on disk. Default true.") //
+    public static final OptionKey<Boolean> WithParseCache = new OptionKey<>(true);
+
+    @Option(category = OptionCategory.EXPERT, help = "Write the parse tree caches of core files, and start with sys.dont_write_bytecode=False so that imports write them, too, unless the -B flag is given. Default false.") //
+    public static final OptionKey<Boolean> WriteParseCache = new OptionKey<>(false);
+
+    @Option(category = OptionCategory.EXPERT, help = "Load the core files of rarely used builtin modules when the module is first used instead of at startup. Default true.") //
+    public static final OptionKey<Boolean> LazyCoreModules = new OptionKey<>(true);
+
     @Option(category = OptionCategory.INTERNAL, help = "Expose internal sources as normal sources, so they will show up in the debugger and stacks") //
     public static final OptionKey<Boolean> ExposeInternalSources = new OptionKey<>(false);
 
@@ -121,14 +136,17 @@ public final class PythonOptions {
     @Option(category = OptionCategory.EXPERT, help = "") //
     public static final OptionKey<Boolean> ForceInlineGeneratorCalls = new OptionKey<>(false);
 
+    @Option(category = OptionCategory.EXPERT, help = "Maximal number of AST nodes of a generator body that is inlined into a 'for' loop iterating over a newly created generator, or into sum(), list(), any() and all(), 0 disables it. Default 300") //
+    public static final OptionKey<Integer> InlineGeneratorsIntoLoopsMaxNodes = new OptionKey<>(300);
+
     @Option(category = OptionCategory.EXPERT, help = "Minimal size of string, when lazy strings are used. Default 20") //
     public static final OptionKey<Integer> MinLazyStringLength = new OptionKey<>(20);
 
     @Option(category = OptionCategory.EXPERT, help = "This option is set by the Python launcher to tell the language it can print exceptions directly") //
     public static final OptionKey<Boolean> AlwaysRunExcepthook = new OptionKey<>(false);
 
-    @Option(category = OptionCategory.EXPERT, help = "This option control builtin _thread module support") //
-    public static final OptionKey<Boolean> WithThread = new OptionKey<>(false);
+    @Option(category = OptionCategory.EXPERT, help = "This option control builtin _thread module support. Threads are serialized by a global interpreter lock. Default true.") //
+    public static final OptionKey<Boolean> WithThread = new OptionKey<>(true);
 
     @Option(category = OptionCategory.EXPERT, help = "Switch on/off using lazy strings for performance reasons. Default true.") //
     public static final OptionKey<Boolean> LazyStrings = new OptionKey<>(true);
@@ -88,6 +88,13 @@ public interface PythonParser {
      */
     Node parse(ParserMode mode, ParserErrorCallback errors, Source source, Frame currentFrame);
 
+    /**
+     * Parses the file of an imported module or a core file like {@link ParserMode#File}, but may
+     * reuse a cached parse tree of that file, the counterpart of CPython's {@code .pyc} files. If
+     * {@code writeCache} is set, a parse tree that was not cached yet is written to the cache.
+     */
+    Node parseModule(ParserErrorCallback errors, Source source, boolean writeCache);
+
     /**
      * Check if an expression can be parsed as an identifier
      */
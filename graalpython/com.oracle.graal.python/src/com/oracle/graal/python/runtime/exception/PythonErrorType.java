@@ -71,4 +71,5 @@ public abstract class PythonErrorType {
     public static final PythonBuiltinClassType FileNotFoundError = PythonBuiltinClassType.FileNotFoundError;
     public static final PythonBuiltinClassType ZipImportError = PythonBuiltinClassType.ZipImportError;
     public static final PythonBuiltinClassType ZLibError = PythonBuiltinClassType.ZLibError;
+    public static final PythonBuiltinClassType CSVError = PythonBuiltinClassType.CSVError;
 }
@@ -27,9 +27,12 @@ package com.oracle.graal.python.runtime.object;
 
 import java.lang.ref.ReferenceQueue;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.DirectoryStream;
+import java.security.MessageDigest;
 import java.util.Map;
+import java.util.zip.Deflater;
 
 import com.oracle.graal.python.PythonLanguage;
 import com.oracle.graal.python.builtins.PythonBuiltinClassType;
@@ -49,6 +52,12 @@ import com.oracle.graal.python.builtins.objects.common.HashingStorage;
 import com.oracle.graal.python.builtins.objects.common.LocalsStorage;
 import com.oracle.graal.python.builtins.objects.common.PHashingCollection;
 import com.oracle.graal.python.builtins.objects.complex.PComplex;
+import com.oracle.graal.python.builtins.objects.csv.CSVModuleState;
+import com.oracle.graal.python.builtins.objects.csv.PCSVDialect;
+import com.oracle.graal.python.builtins.objects.csv.PCSVReader;
+import com.oracle.graal.python.builtins.objects.csv.PCSVWriter;
+import com.oracle.graal.python.builtins.objects.deque.PDeque;
+import com.oracle.graal.python.builtins.objects.deque.PDequeIterator;
 import com.oracle.graal.python.builtins.objects.dict.PDict;
 import com.oracle.graal.python.builtins.objects.dict.PDictView;
 import com.oracle.graal.python.builtins.objects.dict.PDictView.PDictItemsView;
@@ -66,7 +75,29 @@ import com.oracle.graal.python.builtins.objects.function.Signature;
 import com.oracle.graal.python.builtins.objects.generator.PGenerator;
 import com.oracle.graal.python.builtins.objects.getsetdescriptor.GetSetDescriptor;
 import com.oracle.graal.python.builtins.objects.getsetdescriptor.HiddenKeyDescriptor;
+import com.oracle.graal.python.builtins.objects.hashlib.HashAlgorithm;
+import com.oracle.graal.python.builtins.objects.hashlib.PHashlibHash;
 import com.oracle.graal.python.builtins.objects.ints.PInt;
+import com.oracle.graal.python.builtins.objects.json.PJSONEncoder;
+import com.oracle.graal.python.builtins.objects.json.PJSONEncoder.FastEncode;
+import com.oracle.graal.python.builtins.objects.json.PJSONScanner;
+import com.oracle.graal.python.builtins.objects.io.PBufferedIO;
+import com.oracle.graal.python.builtins.objects.io.PBytesIO;
+import com.oracle.graal.python.builtins.objects.io.PStringIO;
+import com.oracle.graal.python.builtins.objects.io.PUtf8TextIO;
+import com.oracle.graal.python.builtins.objects.itertools.PAccumulate;
+import com.oracle.graal.python.builtins.objects.itertools.PChain;
+import com.oracle.graal.python.builtins.objects.itertools.PCount;
+import com.oracle.graal.python.builtins.objects.itertools.PCycle;
+import com.oracle.graal.python.builtins.objects.itertools.PDropwhile;
+import com.oracle.graal.python.builtins.objects.itertools.PFilterfalse;
+import com.oracle.graal.python.builtins.objects.itertools.PGroupBy;
+import com.oracle.graal.python.builtins.objects.itertools.PGrouper;
+import com.oracle.graal.python.builtins.objects.itertools.PIslice;
+import com.oracle.graal.python.builtins.objects.itertools.PRepeat;
+import com.oracle.graal.python.builtins.objects.itertools.PStarmap;
+import com.oracle.graal.python.builtins.objects.itertools.PTakewhile;
+import com.oracle.graal.python.builtins.objects.itertools.PZipLongest;
 import com.oracle.graal.python.builtins.objects.iterator.PArrayIterator;
 import com.oracle.graal.python.builtins.objects.iterator.PBaseSetIterator;
 import com.oracle.graal.python.builtins.objects.iterator.PDoubleSequenceIterator;
@@ -90,6 +121,8 @@ import com.oracle.graal.python.builtins.objects.method.PMethod;
 import com.oracle.graal.python.builtins.objects.mmap.PMMap;
 import com.oracle.graal.python.builtins.objects.module.PythonModule;
 import com.oracle.graal.python.builtins.objects.object.PythonObject;
+import com.oracle.graal.python.builtins.objects.pickle.PPickler;
+import com.oracle.graal.python.builtins.objects.pickle.PUnpickler;
 import com.oracle.graal.python.builtins.objects.posix.PDirEntry;
 import com.oracle.graal.python.builtins.objects.posix.PScandirIterator;
 import com.oracle.graal.python.builtins.objects.random.PRandom;
@@ -97,12 +130,19 @@ import com.oracle.graal.python.builtins.objects.range.PRange;
 import com.oracle.graal.python.builtins.objects.referencetype.PReferenceType;
 import com.oracle.graal.python.builtins.objects.reversed.PSequenceReverseIterator;
 import com.oracle.graal.python.builtins.objects.reversed.PStringReverseIterator;
+import com.oracle.graal.python.builtins.objects.select.PPoll;
 import com.oracle.graal.python.builtins.objects.set.PBaseSet;
 import com.oracle.graal.python.builtins.objects.set.PFrozenSet;
 import com.oracle.graal.python.builtins.objects.set.PSet;
 import com.oracle.graal.python.builtins.objects.slice.PSlice;
 import com.oracle.graal.python.builtins.objects.socket.PSocket;
+import com.oracle.graal.python.builtins.objects.sre.PSREMatch;
+import com.oracle.graal.python.builtins.objects.sre.PSREPattern;
+import com.oracle.graal.python.builtins.objects.sre.PSREScanner;
 import com.oracle.graal.python.builtins.objects.str.PString;
+import com.oracle.graal.python.builtins.objects.struct.PStruct;
+import com.oracle.graal.python.builtins.objects.struct.PStructUnpackIterator;
+import com.oracle.graal.python.builtins.objects.struct.StructFormat;
 import com.oracle.graal.python.builtins.objects.superobject.SuperObject;
 import com.oracle.graal.python.builtins.objects.thread.PLock;
 import com.oracle.graal.python.builtins.objects.thread.PRLock;
@@ -113,6 +153,8 @@ import com.oracle.graal.python.builtins.objects.type.LazyPythonClass;
 import com.oracle.graal.python.builtins.objects.type.PythonAbstractClass;
 import com.oracle.graal.python.builtins.objects.type.PythonClass;
 import com.oracle.graal.python.builtins.objects.zipimporter.PZipImporter;
+import com.oracle.graal.python.builtins.objects.zlib.PZLibCompress;
+import com.oracle.graal.python.builtins.objects.zlib.PZLibDecompress;
 import com.oracle.graal.python.parser.ExecutionCellSlots;
 import com.oracle.graal.python.runtime.PythonContext;
 import com.oracle.graal.python.runtime.sequence.storage.ByteSequenceStorage;
@@ -310,6 +352,125 @@ public abstract class PythonObjectFactory extends Node {
         return trace(new PRandom(cls));
     }
 
+    public PBufferedIO createBufferedIO(LazyPythonClass cls, boolean isReader, boolean isWriter) {
+        return trace(new PBufferedIO(cls, isReader, isWriter));
+    }
+
+    public PBytesIO createBytesIO(LazyPythonClass cls) {
+        return trace(new PBytesIO(cls));
+    }
+
+    public PStringIO createStringIO(LazyPythonClass cls) {
+        return trace(new PStringIO(cls));
+    }
+
+    public PUtf8TextIO createUtf8TextIO(LazyPythonClass cls, PBufferedIO buffer, int newlineMode, String writeNewline, boolean lineBuffering) {
+        return trace(new PUtf8TextIO(cls, buffer, newlineMode, writeNewline, lineBuffering));
+    }
+
+    public PPoll createPoll(LazyPythonClass cls) {
+        return trace(new PPoll(cls));
+    }
+
+    public PDeque createDeque(LazyPythonClass cls) {
+        return trace(new PDeque(cls));
+    }
+
+    public PDequeIterator createDequeIterator(LazyPythonClass cls, PDeque deque, boolean reversed) {
+        return trace(new PDequeIterator(cls, deque, reversed));
+    }
+
+    public PJSONScanner createJSONScanner(LazyPythonClass cls, boolean strict, Object objectHook, Object objectPairsHook, Object parseFloat, Object parseInt, Object parseConstant,
+                    boolean builtinParseFloat, boolean builtinParseInt) {
+        return trace(new PJSONScanner(cls, strict, objectHook, objectPairsHook, parseFloat, parseInt, parseConstant, builtinParseFloat, builtinParseInt));
+    }
+
+    public PJSONEncoder createJSONEncoder(LazyPythonClass cls, boolean checkCircular, Object defaultFn, Object encoder, String keySeparator, String itemSeparator, boolean sortKeys,
+                    boolean skipKeys, boolean allowNan, FastEncode fastEncode) {
+        return trace(new PJSONEncoder(cls, checkCircular, defaultFn, encoder, keySeparator, itemSeparator, sortKeys, skipKeys, allowNan, fastEncode));
+    }
+
+    public PPickler createPickler(LazyPythonClass cls) {
+        return trace(new PPickler(cls));
+    }
+
+    public PUnpickler createUnpickler(LazyPythonClass cls) {
+        return trace(new PUnpickler(cls));
+    }
+
+    public PStruct createStruct(LazyPythonClass cls) {
+        return trace(new PStruct(cls));
+    }
+
+    public PStructUnpackIterator createStructUnpackIterator(StructFormat format, ByteSequenceStorage buffer) {
+        return trace(new PStructUnpackIterator(PythonBuiltinClassType.PStructUnpackIterator, format, buffer));
+    }
+
+    public PSREPattern createSREPattern(Object engine, Object pattern, Object source, int flags, String flagsStr, boolean binary, int groups, HashingStorage groupIndex,
+                    String[] groupNames, Object searchExec) {
+        return trace(new PSREPattern(PythonBuiltinClassType.PSREPattern, engine, pattern, source, flags, flagsStr, binary, groups, groupIndex, groupNames, searchExec));
+    }
+
+    public PSREMatch createSREMatch(PSREPattern pattern, Object string, Object input, int pos, int endpos, Object result) {
+        return trace(new PSREMatch(PythonBuiltinClassType.PSREMatch, pattern, string, input, pos, endpos, result));
+    }
+
+    public PSREScanner createSREScanner(PSREPattern pattern, Object string, Object input, int pos, int endpos) {
+        return trace(new PSREScanner(PythonBuiltinClassType.PSREScanner, pattern, string, input, pos, endpos));
+    }
+
+    public PRepeat createRepeat(LazyPythonClass cls, Object element, long count) {
+        return trace(new PRepeat(cls, element, count));
+    }
+
+    public PCount createCount(LazyPythonClass cls, Object start, Object step) {
+        return trace(new PCount(cls, start, step));
+    }
+
+    public PChain createChain(LazyPythonClass cls, Object source) {
+        return trace(new PChain(cls, source));
+    }
+
+    public PStarmap createStarmap(LazyPythonClass cls, Object function, Object iterator) {
+        return trace(new PStarmap(cls, function, iterator));
+    }
+
+    public PIslice createIslice(LazyPythonClass cls, Object iterator, long start, long stop, long step) {
+        return trace(new PIslice(cls, iterator, start, stop, step));
+    }
+
+    public PAccumulate createAccumulate(LazyPythonClass cls, Object iterator, Object function) {
+        return trace(new PAccumulate(cls, iterator, function));
+    }
+
+    public PDropwhile createDropwhile(LazyPythonClass cls, Object predicate, Object iterator) {
+        return trace(new PDropwhile(cls, predicate, iterator));
+    }
+
+    public PTakewhile createTakewhile(LazyPythonClass cls, Object predicate, Object iterator) {
+        return trace(new PTakewhile(cls, predicate, iterator));
+    }
+
+    public PFilterfalse createFilterfalse(LazyPythonClass cls, Object predicate, Object iterator) {
+        return trace(new PFilterfalse(cls, predicate, iterator));
+    }
+
+    public PZipLongest createZipLongest(LazyPythonClass cls, Object[] iterators, Object fillValue) {
+        return trace(new PZipLongest(cls, iterators, fillValue));
+    }
+
+    public PCycle createCycle(LazyPythonClass cls, Object iterator) {
+        return trace(new PCycle(cls, iterator));
+    }
+
+    public PGroupBy createGroupBy(LazyPythonClass cls, Object iterator, Object keyFunction) {
+        return trace(new PGroupBy(cls, iterator, keyFunction));
+    }
+
+    public PGrouper createGrouper(PGroupBy parent, Object targetKey) {
+        return trace(new PGrouper(PythonBuiltinClassType.PGrouper, parent, targetKey));
+    }
+
     /*
      * Classes, methods and functions
      */
@@ -330,8 +491,15 @@ public abstract class PythonObjectFactory extends Node {
         return trace(new PythonAbstractNativeObject(ptr));
     }
 
-    public PMemoryView createMemoryView(LazyPythonClass metaclass, Object value) {
-        return trace(new PMemoryView(metaclass, value));
+    public PMemoryView createMemoryView(LazyPythonClass metaclass, Object owner, int offset, String format, int itemsize, boolean readonly, int[] shape, int[] strides) {
+        return trace(new PMemoryView(metaclass, owner, offset, format, itemsize, readonly, shape, strides));
+    }
+
+    /**
+     * Creates a one-dimensional view of unsigned bytes over {@code length} bytes of {@code owner}.
+     */
+    public PMemoryView createByteMemoryView(Object owner, int length, boolean readonly) {
+        return createMemoryView(PythonBuiltinClassType.PMemoryView, owner, 0, "B", 1, readonly, new int[]{length}, new int[]{1});
     }
 
     public final PMethod createMethod(LazyPythonClass cls, Object self, Object function) {
@@ -472,7 +640,8 @@ public abstract class PythonObjectFactory extends Node {
     }
 
     public PDict createDictFixedStorage(PythonObject pythonObject) {
-        return createDict(new PythonObjectDictStorage(pythonObject.getStorage(), pythonObject.getDictUnsetOrSameAsStorageAssumption()));
+        PythonModule module = pythonObject instanceof PythonModule ? (PythonModule) pythonObject : null;
+        return createDict(new PythonObjectDictStorage(pythonObject.getStorage(), pythonObject.getDictUnsetOrSameAsStorageAssumption(), module));
     }
 
     public PDict createDict(HashingStorage storage) {
@@ -802,11 +971,32 @@ public abstract class PythonObjectFactory extends Node {
         return trace(new PDirEntry(cls, name, file));
     }
 
-    public PMMap createMMap(SeekableByteChannel channel, long length, long offset) {
-        return trace(new PMMap(PythonBuiltinClassType.PMMap, channel, length, offset));
+    public PMMap createMMap(LazyPythonClass clazz, ByteBuffer[] windows, long length, long offset, boolean readonly, SeekableByteChannel channel, boolean writeBack) {
+        return trace(new PMMap(clazz, windows, length, offset, readonly, channel, writeBack));
+    }
+
+    public PHashlibHash createHashlibHash(LazyPythonClass cls, HashAlgorithm algorithm, MessageDigest digest) {
+        return trace(new PHashlibHash(cls, algorithm, digest));
+    }
+
+    public PZLibCompress createZLibCompress(LazyPythonClass cls, Deflater deflater, boolean gzip, int level) {
+        return trace(new PZLibCompress(cls, deflater, gzip, level));
+    }
+
+    public PZLibDecompress createZLibDecompress(LazyPythonClass cls, int format, byte[] zdict) {
+        return trace(new PZLibDecompress(cls, format, zdict));
+    }
+
+    public PCSVDialect createCSVDialect(LazyPythonClass cls, char delimiter, boolean doublequote, char escapechar, String lineterminator, char quotechar, int quoting, boolean skipinitialspace,
+                    boolean strict) {
+        return trace(new PCSVDialect(cls, delimiter, doublequote, escapechar, lineterminator, quotechar, quoting, skipinitialspace, strict));
+    }
+
+    public PCSVReader createCSVReader(LazyPythonClass cls, Object iterator, PCSVDialect dialect, CSVModuleState moduleState) {
+        return trace(new PCSVReader(cls, iterator, dialect, moduleState));
     }
 
-    public PMMap createMMap(LazyPythonClass clazz, SeekableByteChannel channel, long length, long offset) {
-        return trace(new PMMap(clazz, channel, length, offset));
+    public PCSVWriter createCSVWriter(LazyPythonClass cls, Object write, PCSVDialect dialect) {
+        return trace(new PCSVWriter(cls, write, dialect));
     }
 }
@@ -38,6 +38,7 @@
 # SOFTWARE.
 
 import _pyio
+import codecs
 import io
 
 import _io
@@ -57,32 +58,88 @@ def open(*args, **kwargs):
     return _pyio.open(*args, **kwargs)
 
 
+# the buffered streams, BytesIO and StringIO are implemented in Java; make _pyio (and thus open) use them as well
+for name in ['BufferedRandom', 'BufferedWriter', 'BufferedReader', 'BytesIO', 'StringIO']:
+    setattr(_pyio, name, getattr(_io, name))
+    setattr(io, name, getattr(_io, name))
+for cls in [_io.BufferedRandom, _io.BufferedWriter, _io.BufferedReader, _io.BytesIO]:
+    _pyio.BufferedIOBase.register(cls)
+_pyio.TextIOBase.register(_io.StringIO)
+_io._fd_raw_types = (_io.FileIO, _pyio.FileIO)
+
+
+class TextIOWrapper(_pyio.TextIOWrapper):
+    # UTF-8 text with strict error handling over the Java buffered streams is read and written by an
+    # _io._Utf8TextIO object, which decodes directly from the read buffer and encodes directly into the
+    # write buffer. It never creates the _pyio decoder, so tell() and seek() work on plain byte positions.
+    __doc__ = _pyio.TextIOWrapper.__doc__
+    __module__ = "_io"
+
+    def _configure(self, encoding=None, errors=None, newline=None, line_buffering=False, write_through=False):
+        super()._configure(encoding, errors, newline, line_buffering, write_through)
+        self._utf8 = None
+        if type(self._buffer) in _utf8_buffer_types and errors == "strict" and codecs.lookup(encoding).name == "utf-8":
+            self._utf8 = _io._Utf8TextIO(self._buffer, newline, line_buffering)
+
+    def read(self, size=None):
+        if self._utf8 is not None:
+            return self._utf8.read(size)
+        return super().read(size)
+
+    def readline(self, size=None):
+        if self._utf8 is not None:
+            return self._utf8.readline(size)
+        return super().readline(size)
+
+    def __next__(self):
+        if self._utf8 is not None:
+            line = self._utf8.readline()
+            if not line:
+                raise StopIteration
+            return line
+        return super().__next__()
+
+    def write(self, s):
+        if self._utf8 is not None:
+            return self._utf8.write(s)
+        return super().write(s)
+
+    def detach(self):
+        self._utf8 = None
+        return super().detach()
+
+    @property
+    def newlines(self):
+        if self._utf8 is not None:
+            return self._utf8.newlines
+        return super().newlines
+
+
+_utf8_buffer_types = (_io.BufferedReader, _io.BufferedWriter, _io.BufferedRandom)
+_pyio.TextIOWrapper = TextIOWrapper
+
+
 for module in [_io, io]:
     setattr(module, 'open', open)
-    setattr(module, 'TextIOWrapper', _pyio.TextIOWrapper)
+    setattr(module, 'TextIOWrapper', TextIOWrapper)
     setattr(module, 'IncrementalNewlineDecoder', _pyio.IncrementalNewlineDecoder)
-    setattr(module, 'BufferedRandom', _pyio.BufferedRandom)
     setattr(module, 'BufferedRWPair', _pyio.BufferedRWPair)
-    setattr(module, 'BufferedWriter', _pyio.BufferedWriter)
-    setattr(module, 'BufferedReader', _pyio.BufferedReader)
-    setattr(module, 'StringIO', _pyio.StringIO)
     setattr(module, '_IOBase', _pyio.IOBase)
     setattr(module, 'BufferedIOBase', _pyio.BufferedIOBase)
     setattr(module, 'RawIOBase', _pyio.RawIOBase)
     setattr(module, 'FileIO', _pyio.FileIO)
-    setattr(module, 'BytesIO', _pyio.BytesIO)
     setattr(module, '_TextIOBase', _pyio.TextIOBase)
 
 
 setattr(builtins, 'open', open)
 
 
-sys.stdin = _pyio.TextIOWrapper(_pyio.BufferedReader(sys.stdin), encoding="utf-8", line_buffering=True)
+sys.stdin = TextIOWrapper(_io.BufferedReader(sys.stdin), encoding="utf-8", line_buffering=True)
 sys.stdin.mode = "r"
 sys.__stdin__ = sys.stdin
-sys.stdout = _pyio.TextIOWrapper(_pyio.BufferedWriter(sys.stdout), encoding="utf-8", line_buffering=True)
+sys.stdout = TextIOWrapper(_io.BufferedWriter(sys.stdout), encoding="utf-8", line_buffering=True)
 sys.stdout.mode = "w"
 sys.__stdout__ = sys.stdout
-sys.stderr = _pyio.TextIOWrapper(_pyio.BufferedWriter(sys.stderr), encoding="utf-8", line_buffering=True)
+sys.stderr = TextIOWrapper(_io.BufferedWriter(sys.stderr), encoding="utf-8", line_buffering=True)
 sys.stderr.mode = "w"
 sys.__stderr__ = sys.stderr
@@ -160,11 +160,6 @@ def utf_8_encode(string, errors=None):
     return __truffle_encode(string, "utf-8", errors)
 
 
-@__builtin__
-def utf_8_decode(string, errors=None, final=False):
-    return __truffle_decode(string, "utf-8", errors)
-
-
 @__builtin__
 def utf_7_encode(string, errors=None):
     return __truffle_encode(string, "utf-7", errors)
@@ -48,7 +48,23 @@ def load(suffix=""):
     return __import__(filename, module_name)
 
 
-load("_external")
+importlib_external = load("_external")
+
+
+def _get_code(self, fullname):
+    # we never write marshalled .pyc files, instead the parser caches the parse trees of imported
+    # modules unless sys.dont_write_bytecode is set
+    source_path = self.get_filename(fullname)
+    return self.source_to_code(self.get_data(source_path), source_path)
+
+
+def _source_to_code(self, data, path, *, _optimize=-1):
+    # the parse tree does not depend on the optimization level, which is passed on like to compile()
+    return _imp.source_to_code(data, path, not sys.dont_write_bytecode, _optimize)
+
+
+importlib_external.SourceLoader.get_code = _get_code
+importlib_external.SourceLoader.source_to_code = _source_to_code
 importlib = load()
 importlib._install(sys, _imp)
 importlib._install_external_importers()
@@ -554,34 +554,14 @@ class _BufferedIOBase(_IOBase):
     pass
 
 
-class BytesIO(_BufferedIOBase):
-    pass
-
-
 class _TextIOBase(_IOBase):
     pass
 
 
-class StringIO(_TextIOBase):
-    pass
-
-
-class BufferedReader(_BufferedIOBase):
-    pass
-
-
-class BufferedWriter(_BufferedIOBase):
-    pass
-
-
 class BufferedRWPair(_BufferedIOBase):
     pass
 
 
-class BufferedRandom(_BufferedIOBase):
-    pass
-
-
 class IncrementalNewlineDecoder(object):
     pass
 
@@ -594,6 +574,11 @@ def open(*args, **kwargs):
     raise NotImplementedError
 
 
+# BytesIO, StringIO, BufferedReader, BufferedWriter and BufferedRandom are implemented in Java. Buffered objects
+# over exact instances of these raw classes access the file descriptor directly.
+_fd_raw_types = (FileIO,)
+
+
 # ----------------------------------------------------------------------------------------------------------------------
 #
 # needed for imports will be patched in the __builtins_patches__ module
@@ -0,0 +1,180 @@
+# Copyright (c) 2019, 2019, Oracle and/or its affiliates. All rights reserved.
+# DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+#
+# The Universal Permissive License (UPL), Version 1.0
+#
+# Subject to the condition set forth below, permission is hereby granted to any
+# person obtaining a copy of this software, associated documentation and/or
+# data (collectively the "Software"), free of charge and under any and all
+# copyright rights in the Software, and any and all patent rights owned or
+# freely licensable by each licensor hereunder covering either (i) the
+# unmodified Software as contributed to or provided by such licensor, or (ii)
+# the Larger Works (as defined below), to deal in both
+#
+# (a) the Software, and
+#
+# (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+# one is included with the Software each a "Larger Work" to which the Software
+# is contributed by such licensors),
+#
+# without restriction, including without limitation the rights to copy, create
+# derivative works of, display, perform, and distribute the Software and make,
+# use, sell, offer for sale, import, export, have made, and have sold the
+# Software and the Larger Work(s), and to sublicense the foregoing rights on
+# either these or other terms.
+#
+# This license is subject to the following condition:
+#
+# The above copyright notice and either this complete permission notice or at a
+# minimum a reference to the UPL must be included in all copies or substantial
+# portions of the Software.
+#
+# THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+# IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+# FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+# AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+# LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+# OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+# SOFTWARE.
+
+import sys
+
+
+class PickleError(Exception):
+    pass
+
+
+class PicklingError(PickleError):
+    pass
+
+
+class UnpicklingError(PickleError):
+    pass
+
+
+def _getattribute(obj, name):
+    for subpath in name.split('.'):
+        if subpath == '<locals>':
+            raise AttributeError("Can't get local attribute {!r} on {!r}"
+                                 .format(name, obj))
+        try:
+            parent = obj
+            obj = getattr(obj, subpath)
+        except AttributeError:
+            raise AttributeError("Can't get attribute {!r} on {!r}"
+                                 .format(name, obj)) from None
+    return obj, parent
+
+
+def _whichmodule(obj, name):
+    module_name = getattr(obj, '__module__', None)
+    if module_name is not None:
+        return module_name
+    for module_name, module in list(sys.modules.items()):
+        if module_name == '__main__' or module is None:
+            continue
+        try:
+            if _getattribute(module, name)[0] is obj:
+                return module_name
+        except AttributeError:
+            pass
+    return '__main__'
+
+
+def _global_reference(obj, name, proto, fix_imports):
+    """Resolves the name under which 'obj' is pickled by reference.
+
+    Returns (module_name, name, lastname, parent, extension code), where parent
+    is None if it is the module itself and the code is 0 if there is none.
+    """
+    if name is None:
+        name = getattr(obj, '__qualname__', None)
+    if name is None:
+        name = obj.__name__
+    module_name = _whichmodule(obj, name)
+    try:
+        __import__(module_name, level=0)
+        module = sys.modules[module_name]
+        obj2, parent = _getattribute(module, name)
+    except (ImportError, KeyError, AttributeError):
+        raise PicklingError(
+            "Can't pickle %r: it's not found as %s.%s" %
+            (obj, module_name, name)) from None
+    if obj2 is not obj:
+        raise PicklingError(
+            "Can't pickle %r: it's not the same object as %s.%s" %
+            (obj, module_name, name))
+    code = 0
+    if proto >= 2:
+        import copyreg
+        code = copyreg._extension_registry.get((module_name, name), 0)
+    lastname = name.rpartition('.')[2]
+    if parent is module:
+        name = lastname
+        parent = None
+        if proto < 3 and fix_imports:
+            import _compat_pickle
+            if (module_name, name) in _compat_pickle.REVERSE_NAME_MAPPING:
+                module_name, name = _compat_pickle.REVERSE_NAME_MAPPING[(module_name, name)]
+            elif module_name in _compat_pickle.REVERSE_IMPORT_MAPPING:
+                module_name = _compat_pickle.REVERSE_IMPORT_MAPPING[module_name]
+    return module_name, name, lastname, parent, code
+
+
+def _dispatch_table():
+    import copyreg
+    return copyreg.dispatch_table
+
+
+def _newobj_ex_partial(cls, args, kwargs):
+    import functools
+    return functools.partial(cls.__new__, cls, *args, **kwargs)
+
+
+def _find_class(module, name, proto, fix_imports):
+    if proto < 3 and fix_imports:
+        import _compat_pickle
+        if (module, name) in _compat_pickle.NAME_MAPPING:
+            module, name = _compat_pickle.NAME_MAPPING[(module, name)]
+        elif module in _compat_pickle.IMPORT_MAPPING:
+            module = _compat_pickle.IMPORT_MAPPING[module]
+    __import__(module, level=0)
+    if proto >= 4:
+        return _getattribute(sys.modules[module], name)[0]
+    else:
+        return getattr(sys.modules[module], name)
+
+
+def _get_extension(find_class, code):
+    import copyreg
+    nil = []
+    obj = copyreg._extension_cache.get(code, nil)
+    if obj is not nil:
+        return obj
+    key = copyreg._inverted_registry.get(code)
+    if not key:
+        if code <= 0:
+            raise UnpicklingError("EXT specifies code <= 0")
+        raise ValueError("unregistered extension code %d" % code)
+    obj = find_class(*key)
+    copyreg._extension_cache[code] = obj
+    return obj
+
+
+def _instantiate(klass, args):
+    if (args or not isinstance(klass, type) or
+            hasattr(klass, "__getinitargs__")):
+        try:
+            return klass(*args)
+        except TypeError as err:
+            raise TypeError("in constructor for %s: %s" %
+                            (klass.__name__, str(err)), sys.exc_info()[2])
+    return klass.__new__(klass)
+
+
+def dump(obj, file, protocol=None, *, fix_imports=True):
+    Pickler(file, protocol, fix_imports=fix_imports).dump(obj)
+
+
+def load(file, *, fix_imports=True, encoding="ASCII", errors="strict"):
+    return Unpickler(file, fix_imports=fix_imports, encoding=encoding, errors=errors).load()
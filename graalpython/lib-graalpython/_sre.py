@@ -37,18 +37,6 @@
 # OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
 # SOFTWARE.
 
-import polyglot as _interop
-
-from mmap import mmap
-
-def default(value, default):
-    return default if not value else value
-
-def maxsize():
-    import sys
-    return sys.maxsize
-
-
 class _RegexResult:
     def __init__(self, pattern_input, isMatch, groupCount, start, end):
         self.input = pattern_input
@@ -148,350 +136,11 @@ FLAG_NAMES = ["re.TEMPLATE", "re.IGNORECASE", "re.LOCALE", "re.MULTILINE",
               "re.ASCII"]
 
 
-class SRE_Match():
-    def __init__(self, pattern, pos, endpos, result, input_str, compiled_regex):
-        self.result = result
-        self.compiled_regex = compiled_regex
-        self.re = pattern
-        self.pos = pos
-        self.endpos = endpos
-        self.input_str = input_str
-
-    def end(self, groupnum=0):
-        return self.result.getEnd(groupnum)
-
-    def group(self, *args):
-        if not args:
-            return self.__group__(0)
-        elif len(args) == 1:
-            return self.__group__(args[0])
-        else:
-            lst = []
-            for arg in args:
-                lst.append(self.__group__(arg))
-            return tuple(lst)
-
-    def groups(self, default=None):
-        lst = []
-        for arg in range(1, self.result.groupCount):
-            lst.append(self.__group__(arg))
-        return tuple(lst)
-
-    def __groupidx__(self, idx):
-        if isinstance(idx, str):
-            return self.compiled_regex.groups[idx]
-        else:
-            return idx
-
-    def __group__(self, idx):
-        idxarg = self.__groupidx__(idx)
-        start = self.result.getStart(idxarg)
-        if start < 0:
-            return None
-        else:
-            return self.input_str[start:self.result.getEnd(idxarg)]
-
-    def groupdict(self, default=None):
-        d = {}
-        if self.compiled_regex.groups:
-            assert _interop.__has_keys__(self.compiled_regex.groups)
-            for k in _interop.__keys__(self.compiled_regex.groups):
-                idx = self.compiled_regex.groups[k]
-                d[k] = self.__group__(idx)
-        return d
-
-    def span(self, groupnum=0):
-        idxarg = self.__groupidx__(groupnum)
-        return (self.result.getStart(idxarg), self.result.getEnd(idxarg))
-
-    def start(self, groupnum=0):
-        idxarg = self.__groupidx__(groupnum)
-        return self.result.getStart(idxarg)
-
-    @property
-    def string(self):
-        return self.input_str
-
-    @property
-    def lastgroup(self):
-        return self.result.groupCount
-
-    @property
-    def lastindex(self):
-        return self.result.getEnd(0)
-
-    def __repr__(self):
-        return "<re.Match object; span=%r, match=%r>" % (self.span(), self.group())
-
-def _append_end_assert(pattern):
-    if isinstance(pattern, str):
-        return pattern if pattern.endswith(r"\Z") else pattern + r"\Z"
-    else:
-        return pattern if pattern.endswith(rb"\Z") else pattern + rb"\Z"
-
-def _is_bytes_like(object):
-    return isinstance(object, (bytes, bytearray, memoryview, mmap))
-
-class SRE_Pattern():
-    def __init__(self, pattern, flags):
-        self.__binary = isinstance(pattern, bytes)
-        self.pattern = pattern
-        self.flags = flags
-        flags_str = []
-        for char,flag in FLAGS.items():
-            if flags & flag:
-                flags_str.append(char)
-        self.flags_str = "".join(flags_str)
-        self.__compiled_regexes = dict()
-        self.groupindex = dict()
-        if self.__tregex_compile(self.pattern).groups is not None:
-            for group_name in dir(self.__tregex_compile(self.pattern).groups):
-                groups = self.__tregex_compile(self.pattern).groups
-                self.groups = _interop.__get_size__(_interop.__keys__(groups))
-                self.groupindex[group_name] = groups[group_name]
-
-    def __check_input_type(self, input):
-        if not isinstance(input, str) and not _is_bytes_like(input):
-            raise TypeError("expected string or bytes-like object")
-        if not self.__binary and _is_bytes_like(input):
-            raise TypeError("cannot use a string pattern on a bytes-like object")
-        if self.__binary and isinstance(input, str):
-            raise TypeError("cannot use a bytes pattern on a string-like object")
-
-
-    def __tregex_compile(self, pattern, flags=None):
-        if flags is None:
-            flags = self.flags_str
-        if (pattern, flags) not in self.__compiled_regexes:
-            tregex_engine = TREGEX_ENGINE_BYTES if self.__binary else TREGEX_ENGINE_STR
-            try:
-                self.__compiled_regexes[(pattern, flags)] = tregex_call_compile(tregex_engine, pattern, flags)
-            except ValueError as e:
-                message = str(e)
-                boundary = message.rfind(" at position ")
-                if boundary == -1:
-                    raise error(message, pattern)
-                else:
-                    position = int(message[boundary + len(" at position "):])
-                    message = message[:boundary]
-                    raise error(message, pattern, position)
-        return self.__compiled_regexes[(pattern, flags)]
-
-
-    def __repr__(self):
-        flags = self.flags
-        flag_items = []
-        for i,name in enumerate(FLAG_NAMES):
-            if flags & (1 << i):
-                flags -= (1 << i)
-                flag_items.append(name)
-        if flags != 0:
-            flag_items.append("0x%x" % flags)
-        if len(flag_items) == 0:
-            sep = ""
-            sflags = ""
-        else:
-            sep = ", "
-            sflags = "|".join(flag_items)
-        return "re.compile(%s%s%s)" % (self.pattern, sep, sflags)
-
-    def _search(self, pattern, string, pos, endpos, sticky=False):
-        pattern = self.__tregex_compile(pattern, self.flags_str + ("y" if sticky else ""))
-        input_str = string
-        if endpos == -1 or endpos >= len(string):
-            result = tregex_call_exec(pattern.exec, input_str, min(pos, len(string) + 1))
-        else:
-            input_str = string[:endpos]
-            result = tregex_call_exec(pattern.exec, input_str, min(pos, endpos % len(string) + 1))
-        if result.isMatch:
-            return SRE_Match(self, pos, endpos, result, input_str, pattern)
-        else:
-            return None
-
-    def search(self, string, pos=0, endpos=None):
-        self.__check_input_type(string)
-        return self._search(self.pattern, string, pos, default(endpos, -1))
-
-    def match(self, string, pos=0, endpos=None):
-        self.__check_input_type(string)
-        return self._search(self.pattern, string, pos, default(endpos, -1), sticky=True)
-
-    def fullmatch(self, string, pos=0, endpos=None):
-        self.__check_input_type(string)
-        return self._search(_append_end_assert(self.pattern), string, pos, default(endpos, -1), sticky=True)
-
-    def __sanitize_out_type(self, elem):
-        """Helper function for findall and split. Ensures that the type of the elements of the
-           returned list if always either 'str' or 'bytes'."""
-        if self.__binary:
-            return bytes(elem)
-        else:
-            return str(elem)
-
-    def finditer(self, string, pos=0, endpos=-1):
-        self.__check_input_type(string)
-        if endpos > len(string):
-            endpos = len(string)
-        elif endpos < 0:
-            endpos = endpos % len(string) + 1
-        while pos < endpos:
-            compiled_regex = self.__tregex_compile(self.pattern)
-            result = tregex_call_exec(compiled_regex.exec, string, pos)
-            if not result.isMatch:
-                break
-            else:
-                yield SRE_Match(self, pos, endpos, result, string, compiled_regex)
-            no_progress = (result.getStart(0) == result.getEnd(0))
-            pos = result.getEnd(0) + no_progress
-        return
-
-    def findall(self, string, pos=0, endpos=-1):
-        self.__check_input_type(string)
-        if endpos > len(string):
-            endpos = len(string)
-        elif endpos < 0 and len(string) > 0:
-            endpos = endpos % len(string) + 1
-        matchlist = []
-        while pos < endpos:
-            compiled_regex = self.__tregex_compile(self.pattern)
-            result = tregex_call_exec(compiled_regex.exec, string, pos)
-            if not result.isMatch:
-                break
-            elif result.groupCount == 1:
-                matchlist.append(self.__sanitize_out_type(string[result.getStart(0):result.getEnd(0)]))
-            elif result.groupCount == 2:
-                matchlist.append(self.__sanitize_out_type(string[result.getStart(1):result.getEnd(1)]))
-            else:
-                matchlist.append(tuple(map(self.__sanitize_out_type, SRE_Match(self, pos, endpos, result, string, compiled_regex).groups())))
-            no_progress = (result.getStart(0) == result.getEnd(0))
-            pos = result.getEnd(0) + no_progress
-        return matchlist
-
-    def __replace_groups(self, repl, string, match_result, pattern):
-        def group(match_result, group_nr, string):
-            if group_nr >= match_result.groupCount:
-                return None
-            group_start = match_result.getStart(group_nr)
-            group_end = match_result.getEnd(group_nr)
-            return string[group_start:group_end]
-
-        n = len(repl)
-        result = b"" if self.__binary else ""
-        start = 0
-        backslash = b'\\' if self.__binary else '\\'
-        pos = repl.find(backslash, start)
-        while pos != -1 and start < n:
-            if pos+1 < n:
-                if repl[pos + 1].isdigit() and match_result.groupCount > 0:
-                    # TODO: Should handle backreferences longer than 1 digit and fall back to octal escapes.
-                    group_nr = int(repl[pos+1].decode('ascii')) if self.__binary else int(repl[pos+1])
-                    group_str = group(match_result, group_nr, string)
-                    if group_str is None:
-                        raise error("invalid group reference %s at position %s" % (group_nr, pos))
-                    result += repl[start:pos] + group_str
-                    start = pos + 2
-                elif repl[pos + 1] == (b'g' if self.__binary else 'g'):
-                    group_ref, group_ref_end, digits_only = self.__extract_groupname(repl, pos + 2)
-                    if group_ref:
-                        group_str = group(match_result, int(group_ref) if digits_only else pattern.groups[group_ref], string)
-                        if group_str is None:
-                            raise error("invalid group reference %s at position %s" % (group_ref, pos))
-                        result += repl[start:pos] + group_str
-                    start = group_ref_end + 1
-                elif repl[pos + 1] == backslash:
-                    result += repl[start:pos] + backslash
-                    start = pos + 2
-                else:
-                    assert False, "unexpected escape in re.sub"
-            pos = repl.find(backslash, start)
-        result += repl[start:]
-        return result
-
-
-    def __extract_groupname(self, repl, pos):
-        if repl[pos] == (b'<' if self.__binary else '<'):
-            digits_only = True
-            n = len(repl)
-            i = pos + 1
-            while i < n and repl[i] != (b'>' if self.__binary else '>'):
-                digits_only = digits_only and repl[i].isdigit()
-                i += 1
-            if i < n:
-                # found '>'
-                group_ref = repl[pos + 1 : i]
-                group_ref_str = group_ref.decode('ascii') if self.__binary else group_ref
-                return group_ref_str, i, digits_only
-        return None, pos, False
-
-
-    def sub(self, repl, string, count=0):
-        self.__check_input_type(string)
-        n = 0
-        pattern = self.__tregex_compile(self.pattern)
-        result = []
-        pos = 0
-        is_string_rep = isinstance(repl, str) or _is_bytes_like(repl)
-        if is_string_rep:
-            self.__check_input_type(repl)
-            try:
-                repl = _process_escape_sequences(repl)
-            except ValueError as e:
-                raise error(str(e))
-        while (count == 0 or n < count) and pos <= len(string):
-            match_result = tregex_call_exec(pattern.exec, string, pos)
-            if not match_result.isMatch:
-                break
-            n += 1
-            start = match_result.getStart(0)
-            end = match_result.getEnd(0)
-            result.append(string[pos:start])
-            if is_string_rep:
-                result.append(self.__replace_groups(repl, string, match_result, pattern))
-            else:
-                _srematch = SRE_Match(self, pos, -1, match_result, string, pattern)
-                _repl = repl(_srematch)
-                result.append(_repl)
-            pos = end
-            if start == end:
-                if pos < len(string):
-                    result.append(string[pos])
-                pos = pos + 1
-        result.append(string[pos:])
-        if self.__binary:
-            return b"".join(result)
-        else:
-            return "".join(result)
-
-    def split(self, string, maxsplit=0):
-        n = 0
-        pattern = self.__tregex_compile(self.pattern)
-        result = []
-        collect_pos = 0
-        search_pos = 0
-        while (maxsplit == 0 or n < maxsplit) and search_pos <= len(string):
-            match_result = tregex_call_exec(pattern.exec, string, search_pos)
-            if not match_result.isMatch:
-                break
-            n += 1
-            start = match_result.getStart(0)
-            end = match_result.getEnd(0)
-            result.append(self.__sanitize_out_type(string[collect_pos:start]))
-            # add all group strings
-            for i in range(1, match_result.groupCount):
-                groupStart = match_result.getStart(i)
-                if groupStart >= 0:
-                    result.append(self.__sanitize_out_type(string[groupStart:match_result.getEnd(i)]))
-                else:
-                    result.append(None)
-            collect_pos = end
-            search_pos = end
-            if start == end:
-                search_pos = search_pos + 1
-        result.append(self.__sanitize_out_type(string[collect_pos:]))
-        return result
-
+def _tcompile(pattern, flags):
+    flags_str = "".join(char for char, flag in FLAGS.items() if flags & flag)
+    engine = TREGEX_ENGINE_BYTES if isinstance(pattern, bytes) else TREGEX_ENGINE_STR
+    return tregex_compile(engine, pattern, int(flags), flags_str)
 
-_tcompile = SRE_Pattern
 
 def compile(pattern, flags, code, groups, groupindex, indexgroup):
     import _cpython_sre
@@ -43,22 +43,6 @@ def hasattr(obj, key):
     return getattr(obj, key, default) is not default
 
 
-@__builtin__
-def any(iterable):
-    for i in iterable:
-        if i:
-            return True
-    return False
-
-
-@__builtin__
-def all(iterable):
-    for i in iterable:
-        if not i:
-            return False
-    return True
-
-
 @__builtin__
 def filter(func, iterable):
     result = []
@@ -147,21 +147,6 @@ def PyDict_Copy(dictObj):
     return dictObj.copy()
 
 
-@may_raise
-def PyDict_GetItem(dictObj, key):
-    if not isinstance(dictObj, dict):
-        raise TypeError('expected dict, {!s} found'.format(type(dictObj)))
-    return dictObj.get(key, native_null)
-
-
-@may_raise(-1)
-def PyDict_SetItem(dictObj, key, value):
-    if not isinstance(dictObj, dict):
-        raise TypeError('expected dict, {!s} found'.format(type(dictObj)))
-    dictObj[key] = value
-    return 0
-
-
 @may_raise(-1)
 def PyDict_DelItem(dictObj, key):
     if not isinstance(dictObj, dict):
@@ -283,15 +268,6 @@ def PyList_New(size):
     return [None] * size
 
 
-@may_raise
-def PyList_GetItem(listObj, pos):
-    if not isinstance(listObj, list):
-        __bad_internal_call(None, None, listObj)
-    if pos < 0:
-        raise IndexError("list index out of range")
-    return listObj[pos]
-
-
 @may_raise(-1)
 def PyList_SetItem(listObj, pos, newitem):
     if not isinstance(listObj, list):
@@ -302,21 +278,6 @@ def PyList_SetItem(listObj, pos, newitem):
     return 0
 
 
-@may_raise(-1)
-def PyList_Append(listObj, newitem):
-    if not isinstance(listObj, list):
-        __bad_internal_call(None, None, listObj)
-    listObj.append(newitem)
-    return 0
-
-
-@may_raise
-def PyList_AsTuple(listObj):
-    if not isinstance(listObj, list):
-        raise SystemError("expected list type")
-    return tuple(listObj)
-
-
 @may_raise
 def PyList_GetSlice(listObj, ilow, ihigh):
     if not isinstance(listObj, list):
@@ -332,13 +293,6 @@ def PyList_SetSlice(listObj, ilow, ihigh, s):
     return 0
 
 
-@may_raise(-1)
-def PyList_Size(listObj):
-    if not isinstance(listObj, list):
-        __bad_internal_call(None, None, listObj)
-    return len(listObj)
-
-
 @may_raise(-1)
 def PyList_Sort(listObj):
     if not isinstance(listObj, list):
@@ -349,11 +303,6 @@ def PyList_Sort(listObj):
 
 ##################### LONG
 
-@may_raise(-1)
-def PyLong_AsPrimitive(n, signed, size):
-    return TrufflePInt_AsPrimitive(int(n), signed, size)
-
-
 def _PyLong_Sign(n):
     if n==0:
         return 0
@@ -864,13 +813,6 @@ def PyTuple_New(size):
     return (None,) * size
 
 
-@may_raise(-1)
-def PyTuple_Size(t):
-    if not isinstance(t, tuple):
-        __bad_internal_call(None, None, t)
-    return len(t)
-
-
 @may_raise
 def PyTuple_GetSlice(t, start, end):
     if not isinstance(t, tuple):
@@ -1219,11 +1161,6 @@ def run_capi_loaded_hooks(capi_library):
         hook()
 
 
-def import_native_memoryview(capi_library):
-    import _memoryview
-    assert _memoryview is not None
-
-
 def initialize_datetime_capi():
     import datetime
 
@@ -17,6 +17,9 @@ FTEXT, FHCRC, FEXTRA, FNAME, FCOMMENT = 1, 2, 4, 8, 16
 
 READ, WRITE = 1, 2
 
+# Truffle change: the size of the compressed chunks read by _GzipReader
+_READ_BUFFER_SIZE = 128 * 1024
+
 def open(filename, mode="rb", compresslevel=9,
          encoding=None, errors=None, newline=None):
     """Open a gzip-compressed file in binary or text mode.
@@ -466,7 +469,9 @@ class _GzipReader(_compression.DecompressReader):
                 self._new_member = False
 
             # Read a chunk of data from the file
-            buf = self._fp.read(io.DEFAULT_BUFFER_SIZE)
+            # Truffle change: read large chunks, so that big files are
+            # decompressed with few calls through the file and zlib objects
+            buf = self._fp.read(_READ_BUFFER_SIZE)
 
             uncompress = self._decompressor.decompress(buf, size)
             if self._decompressor.unconsumed_tail != b"":
@@ -69,6 +69,11 @@ RECIP_BPF = 2**-BPF
 
 import _random
 
+# Truffle change: _random.Random._random_list(k) returns the next k results of
+# random() at once. choices() uses it for large k if random() is not overridden.
+_random_list = getattr(_random.Random, "_random_list", None)
+_BULK_CHOICES_MIN = 16
+
 class Random(_random.Random):
     """Random number generator base class used by bound module functions.
 
@@ -349,10 +354,14 @@ class Random(_random.Random):
 
         """
         random = self.random
+        bulk = (_random_list is not None and k >= _BULK_CHOICES_MIN and
+                type(self).random is _random.Random.random)
         if cum_weights is None:
             if weights is None:
                 _int = int
                 total = len(population)
+                if bulk:
+                    return [population[_int(r * total)] for r in _random_list(self, k)]
                 return [population[_int(random() * total)] for i in range(k)]
             cum_weights = list(_itertools.accumulate(weights))
         elif weights is not None:
@@ -361,6 +370,8 @@ class Random(_random.Random):
             raise ValueError('The number of weights does not match the population')
         bisect = _bisect.bisect
         total = cum_weights[-1]
+        if bulk:
+            return [population[bisect(cum_weights, r * total)] for r in _random_list(self, k)]
         return [population[bisect(cum_weights, random() * total)] for i in range(k)]
 
 ## -------------------- real-valued distributions  -------------------
@@ -647,7 +647,6 @@ def python_checkcopyrights(args):
 def import_python_sources(args):
     # mappings for files that are renamed
     mapping = {
-        "_memoryview.c": "memoryobject.c",
         "_cpython_sre.c": "_sre.c",
         "_cpython_unicodedata.c": "unicodedata.c",
         "_bz2.c": "_bz2module.c",
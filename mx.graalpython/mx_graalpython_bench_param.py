@@ -72,6 +72,7 @@ MICRO_BENCHMARKS = {
     'boolean-logic': ITER_15 + ['1000'],
     'builtin-len-tuple': ITER_10 + [],
     'builtin-len': ITER_25 + [],
+    'builtin-sum': ITER_15 + ['10000'],
     'class_access': ITER_25 + ['1000'],
     'call-method-polymorphic': ITER_10 + ['1000'],
     'for-range': ITER_25 + ['50000'],
@@ -98,6 +99,8 @@ MICRO_BENCHMARKS = {
     'call-classmethod': ITER_15 + ['50000000'],
     'mmap-anonymous': ITER_15 + ['1000'],
     'mmap-file': ITER_15 + ['1000'],
+    'threadpool-io': ITER_10 + ['20'],
+    'try-except-keyerror': ITER_15 + ['10000'],
 }
 
 